@@ -0,0 +1,175 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Proof;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Statement;
+import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the individual operations of the algorithm helpers which are performed for each voter: ElGamal encryption and decryption of a vote, DSA signing and
+ * verification of an encrypted vote, and the Schnorr and Chaum-Pedersen proofs of knowledge used by the commitments. Each is measured for each group size in
+ * {@link GroupState}. The number of threads calling each operation at the same time is set with the JMH {@code -t} option, such as {@code -t 4}, so that
+ * contention can be compared against a single thread.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class AlgorithmHelperBenchmark {
+
+  /** The Chaum-Pedersen algorithm helper. */
+  private final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper = new ChaumPedersenAlgorithmHelper();
+
+  /** A Chaum-Pedersen proof of the statements. */
+  private Proof chaumPedersenProof;
+
+  /** The statements proved by the Chaum-Pedersen proof: equality of discrete logarithms for g and the election public key. */
+  private Statement[] chaumPedersenStatements;
+
+  /** The ElGamal algorithm helper. */
+  private final ElGamalAlgorithmHelper elGamalAlgorithmHelper = new ElGamalAlgorithmHelper();
+
+  /** The encrypted element. */
+  private byte[] encrypted;
+
+  /** The Schnorr algorithm helper. */
+  private final SchnorrAlgorithmHelper schnorrAlgorithmHelper = new SchnorrAlgorithmHelper();
+
+  /** A Schnorr proof of the statement. */
+  private Proof schnorrProof;
+
+  /** The statement proved by the Schnorr proof: knowledge of the discrete logarithm for g. */
+  private Statement schnorrStatement;
+
+  /** The signature of the encrypted element. */
+  private byte[] signature;
+
+  /** The witness of the proofs. */
+  private BigInteger witness;
+
+  /**
+   * Creates the encrypted element, signature, statements and proofs which are verified.
+   *
+   * @param group The group.
+   * @throws Exception if the values could not be created.
+   */
+  @Setup(Level.Trial)
+  public void setUp(final GroupState group) throws Exception {
+    final BigInteger p = group.parameters.getP();
+    final BigInteger g = group.parameters.getG();
+    final BigInteger h = group.electionKeyPair.getPublicKey();
+
+    this.encrypted = this.elGamalAlgorithmHelper.encrypt(group.random, group.parameters, group.electionKeyPair, group.element.toByteArray())[0];
+    this.signature = group.dsaAlgorithmHelper.sign(group.parameters, group.signatureKeyPair, this.encrypted);
+
+    this.witness = new BigInteger(group.parameters.getQ().bitLength(), group.random).mod(group.parameters.getQ());
+    this.schnorrStatement = new Statement(g.modPow(this.witness, p), g);
+    this.schnorrProof = this.schnorrAlgorithmHelper.generateProof(group.random, group.parameters, this.witness, this.schnorrStatement);
+    this.chaumPedersenStatements = new Statement[] {this.schnorrStatement, new Statement(h.modPow(this.witness, p), h)};
+    this.chaumPedersenProof = this.chaumPedersenAlgorithmHelper.generateProof(group.random, group.parameters, this.witness, this.chaumPedersenStatements);
+  }
+
+  /**
+   * @param group The group.
+   * @return The proof.
+   * @throws Exception if the proof could not be generated.
+   */
+  @Benchmark
+  public Proof chaumPedersenGenerate(final GroupState group) throws Exception {
+    return this.chaumPedersenAlgorithmHelper.generateProof(group.random, group.parameters, this.witness, this.chaumPedersenStatements);
+  }
+
+  /**
+   * @param group The group.
+   * @return True if the proof is verified.
+   * @throws Exception if the proof could not be verified.
+   */
+  @Benchmark
+  public boolean chaumPedersenVerify(final GroupState group) throws Exception {
+    return this.chaumPedersenAlgorithmHelper.verifyProof(group.parameters, this.chaumPedersenProof, this.chaumPedersenStatements);
+  }
+
+  /**
+   * @param group The group.
+   * @return The signature.
+   * @throws Exception if the encrypted element could not be signed.
+   */
+  @Benchmark
+  public byte[] dsaSign(final GroupState group) throws Exception {
+    return group.dsaAlgorithmHelper.sign(group.parameters, group.signatureKeyPair, this.encrypted);
+  }
+
+  /**
+   * @param group The group.
+   * @return True if the signature is verified.
+   * @throws Exception if the signature could not be verified.
+   */
+  @Benchmark
+  public boolean dsaVerify(final GroupState group) throws Exception {
+    return group.dsaAlgorithmHelper.verify(group.parameters, group.signatureKeyPair, this.encrypted, this.signature);
+  }
+
+  /**
+   * @param group The group.
+   * @return The decrypted element.
+   * @throws Exception if the element could not be decrypted.
+   */
+  @Benchmark
+  public byte[] elGamalDecrypt(final GroupState group) throws Exception {
+    return this.elGamalAlgorithmHelper.decrypt(group.parameters, group.electionKeyPair, this.encrypted);
+  }
+
+  /**
+   * @param group The group.
+   * @return The encrypted element and the random value used to encrypt it.
+   * @throws Exception if the element could not be encrypted.
+   */
+  @Benchmark
+  public byte[][] elGamalEncrypt(final GroupState group) throws Exception {
+    return this.elGamalAlgorithmHelper.encrypt(group.random, group.parameters, group.electionKeyPair, group.element.toByteArray());
+  }
+
+  /**
+   * @param group The group.
+   * @return The proof.
+   * @throws Exception if the proof could not be generated.
+   */
+  @Benchmark
+  public Proof schnorrGenerate(final GroupState group) throws Exception {
+    return this.schnorrAlgorithmHelper.generateProof(group.random, group.parameters, this.witness, this.schnorrStatement);
+  }
+
+  /**
+   * @param group The group.
+   * @return True if the proof is verified.
+   * @throws Exception if the proof could not be verified.
+   */
+  @Benchmark
+  public boolean schnorrVerify(final GroupState group) throws Exception {
+    return this.schnorrAlgorithmHelper.verifyProof(group.parameters, this.schnorrProof, this.schnorrStatement);
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.TrackerNumber;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks reading and writing a CSV election file through {@link BaseShellComponent}, using tracker numbers with a group element and an encrypted group
+ * element in each row, for each group size and element encoding. Each thread, set with the JMH {@code -t} option, reads and writes its own file.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CSVBenchmark {
+
+  /** The shell component used to read and write the file. */
+  private final BaseShellComponent component = new CSVShellComponent();
+
+  /** The encoding used for group elements. */
+  @Param({"DECIMAL", "HEX", "BASE64"})
+  public ElementEncoding encoding;
+
+  /** The file which is read and written. */
+  private File file;
+
+  /** The size of the group in bits. */
+  @Param({"2048", "3072"})
+  public int groupSize;
+
+  /** The number of rows in the file. */
+  @Param({"1000"})
+  public int rows;
+
+  /** The tracker numbers which are written. */
+  private List<TrackerNumber> trackerNumbers;
+
+  /**
+   * Creates the tracker numbers and writes them to a temporary file, so that there is a file to read.
+   *
+   * @throws Exception if the file could not be written.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final SecureRandom random = new SecureRandom();
+
+    this.trackerNumbers = new ArrayList<>();
+
+    for (int i = 0; i < this.rows; i++) {
+      final CipherText encrypted = new CipherText(new BigInteger(this.groupSize, random), new BigInteger(this.groupSize, random));
+      this.trackerNumbers.add(new TrackerNumber(i, new BigInteger(this.groupSize, random), encrypted.toByteArray()));
+    }
+
+    this.file = Files.createTempFile("benchmark", ".csv").toFile();
+    this.write();
+  }
+
+  /**
+   * @return The tracker numbers read.
+   * @throws Exception if the file could not be read.
+   */
+  @Benchmark
+  public List<TrackerNumber> read() throws Exception {
+    return this.component.readCSV(this.file, TrackerNumber.class, JacksonViews.RestrictedPublic.class, new ArrayList<>());
+  }
+
+  /**
+   * @return The lazily read tracker numbers, with the group element of each parsed, as for a lookup.
+   * @throws Exception if the file could not be read.
+   */
+  @Benchmark
+  public List<BaseShellComponent.LazyRecord<TrackerNumber>> readLazily() throws Exception {
+    final List<BaseShellComponent.LazyRecord<TrackerNumber>> records = this.component.readCSVLazily(this.file, TrackerNumber.class, JacksonViews.RestrictedPublic.class);
+
+    for (final BaseShellComponent.LazyRecord<TrackerNumber> record : records) {
+      record.getElement("trackerNumberInGroup");
+    }
+
+    return records;
+  }
+
+  /**
+   * Deletes the temporary file.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * @return The file written.
+   * @throws Exception if the file could not be written.
+   */
+  @Benchmark
+  public File write() throws Exception {
+    this.component.writeCSV(this.file, TrackerNumber.class, this.trackerNumbers, JacksonViews.RestrictedPublic.class, this.encoding);
+
+    return this.file;
+  }
+
+  /**
+   * Shell component used only for its CSV methods.
+   */
+  private static class CSVShellComponent extends BaseShellComponent {
+
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherTextView;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding a ciphertext, as happens for every encrypted vote, tracker number and commitment read from or written to an election file.
+ * Decoding is measured both into a new {@link CipherText} and through a reused {@link CipherTextView}. The ciphertext components are random values of the group
+ * size, since the cost depends only on their length. The number of threads is set with the JMH {@code -t} option.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CipherTextBenchmark {
+
+  /** The buffer reused for encoding. */
+  private ByteBuffer buffer;
+
+  /** The ciphertext. */
+  private CipherText cipherText;
+
+  /** The encoded ciphertext. */
+  private byte[] encoded;
+
+  /** The size of the group in bits. */
+  @Param({"2048", "3072"})
+  public int groupSize;
+
+  /** The view reused for decoding. */
+  private final CipherTextView view = new CipherTextView();
+
+  /**
+   * Creates the ciphertext and its encoding.
+   *
+   * @throws Exception if the ciphertext could not be encoded.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    final SecureRandom random = new SecureRandom();
+
+    this.cipherText = new CipherText(new BigInteger(this.groupSize, random), new BigInteger(this.groupSize, random));
+    this.encoded = this.cipherText.toByteArray();
+    this.buffer = ByteBuffer.allocate(this.encoded.length);
+  }
+
+  /**
+   * @return The decoded ciphertext.
+   * @throws Exception if the ciphertext could not be decoded.
+   */
+  @Benchmark
+  public CipherText decode() throws Exception {
+    return new CipherText(this.encoded);
+  }
+
+  /**
+   * @param blackhole Consumes the decoded components.
+   * @throws Exception if the ciphertext could not be decoded.
+   */
+  @Benchmark
+  public void decodeView(final Blackhole blackhole) throws Exception {
+    this.view.wrap(this.encoded);
+    blackhole.consume(this.view.getAlpha());
+    blackhole.consume(this.view.getBeta());
+  }
+
+  /**
+   * @return The encoded ciphertext.
+   * @throws Exception if the ciphertext could not be encoded.
+   */
+  @Benchmark
+  public byte[] encode() throws Exception {
+    return this.cipherText.toByteArray();
+  }
+
+  /**
+   * @return The buffer holding the encoded ciphertext.
+   * @throws Exception if the ciphertext could not be encoded.
+   */
+  @Benchmark
+  public ByteBuffer encodeInto() throws Exception {
+    this.buffer.clear();
+    this.cipherText.writeTo(this.buffer);
+
+    return this.buffer;
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.co.pervasive_intelligence.vmv.cryptography.AlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyPair;
+import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+/**
+ * Benchmark state holding election parameters for each group size, created in the same way as the election parameters, together with an election key pair and a
+ * voter's signing key pair. The parameters are created once for each trial, outside of the measurement, since creating a 3072 bit group takes some time.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@State(Scope.Benchmark)
+public class GroupState {
+
+  /** The DSA algorithm helper. */
+  public final DSAAlgorithmHelper dsaAlgorithmHelper = new DSAAlgorithmHelper();
+
+  /** The election key pair used for encryption. */
+  public KeyPair electionKeyPair;
+
+  /** An element of the group. */
+  public BigInteger element;
+
+  /** The size of the group in bits, which is the length of p. */
+  @Param({"2048", "3072"})
+  public int groupSize;
+
+  /** The election parameters. */
+  public DHParametersWrapper parameters;
+
+  /** Source of randomness. */
+  public final SecureRandom random = new SecureRandom();
+
+  /** The voter's key pair used for signing. */
+  public KeyPair signatureKeyPair;
+
+  /**
+   * Creates the parameters and key pairs for the group size.
+   *
+   * @throws Exception if the parameters could not be created.
+   */
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    this.parameters = (DHParametersWrapper) this.dsaAlgorithmHelper.createParameters(this.random, this.groupSize, AlgorithmHelper.DEFAULT_LENGTH_N);
+    this.electionKeyPair = this.dsaAlgorithmHelper.createKeys(this.random, this.parameters);
+    this.signatureKeyPair = this.dsaAlgorithmHelper.createKeys(this.random, this.parameters);
+    this.element = this.parameters.getG().modPow(new BigInteger(this.parameters.getQ().bitLength(), this.random), this.parameters.getP());
+  }
+}
@@ -0,0 +1,171 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticMessageSource;
+import uk.co.pervasive_intelligence.vmv.cryptography.SeleneCryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Commitment;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ProofWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.TrackerNumber;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.VoteOption;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.VoterKeyPairs;
+import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Selene operations which are performed for each voter without tellers: creating the commitments, with their proofs and self-check, and
+ * encrypting the votes, with their signatures, proofs and self-check. Each invocation processes a batch of {@link #VOTERS} voters in parallel, as the commands
+ * do, and the score is the time per voter. The number of threads in the helper's executor is a parameter, so that the scaling of the parallel sections can be
+ * compared for each group size.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+public class SeleneBenchmark {
+
+  /** The vote options. */
+  private static final String[] OPTIONS = {"Alice", "Bob", "Carol"};
+
+  /** The number of voters processed by each invocation. */
+  private static final int VOTERS = 32;
+
+  /** The executor used by the helper. */
+  private ForkJoinPool executor;
+
+  /** The helper. */
+  private SeleneCryptographyHelper helper;
+
+  /** The number of threads used by the helper. */
+  @Param({"1", "4"})
+  public int threads;
+
+  /** The tracker numbers for the commitments. */
+  private List<TrackerNumber> trackerNumbers;
+
+  /** The vote options, mapped into the group. */
+  private List<VoteOption> voteOptions;
+
+  /** The voters, with their plaintext votes and signing key pairs. */
+  private List<Voter> voters;
+
+  /** The voters' key pairs. */
+  private List<VoterKeyPairs> votersKeyPairs;
+
+  /**
+   * @param group The group.
+   * @return The commitments.
+   * @throws Exception if the commitments could not be created.
+   */
+  @Benchmark
+  @OperationsPerInvocation(VOTERS)
+  public List<Commitment> createCommitments(final GroupState group) throws Exception {
+    final ProofWrapper<List<Commitment>> commitments = this.helper.createCommitments(group.parameters, group.electionKeyPair, this.votersKeyPairs,
+        this.trackerNumbers);
+    commitments.getProofFile().delete();
+
+    return commitments.getObject();
+  }
+
+  /**
+   * @param group The group.
+   * @return The voters with their encrypted votes.
+   * @throws Exception if the votes could not be encrypted.
+   */
+  @Benchmark
+  @OperationsPerInvocation(VOTERS)
+  public List<Voter> encryptVotes(final GroupState group) throws Exception {
+    final ProofWrapper<List<Voter>> voters = this.helper.encryptVotes(group.parameters, group.electionKeyPair, this.votersKeyPairs, this.voteOptions,
+        this.voters, Collections.emptyList());
+    voters.getProofFile().delete();
+
+    return voters.getObject();
+  }
+
+  /**
+   * Removes the encrypted votes, since votes which have already been encrypted are not encrypted again.
+   */
+  @Setup(Level.Invocation)
+  public void resetVoters() {
+    for (final Voter voter : this.voters) {
+      voter.setEncryptedVote(null);
+      voter.setEncryptedVoteSignature(null);
+    }
+  }
+
+  /**
+   * Creates the helper, the voters' key pairs, tracker numbers and vote options for the group.
+   *
+   * @param group The group.
+   * @throws Exception if the voters could not be created.
+   */
+  @Setup(Level.Trial)
+  public void setUp(final GroupState group) throws Exception {
+    final StaticMessageSource messageSource = new StaticMessageSource();
+    messageSource.setUseCodeAsDefaultMessage(true);
+
+    // Verificatum is not used without tellers.
+    this.helper = new SeleneCryptographyHelper(messageSource, group.dsaAlgorithmHelper, new ElGamalAlgorithmHelper(), null, new SchnorrAlgorithmHelper(),
+        new ChaumPedersenAlgorithmHelper(), new ShuffleAlgorithmHelper());
+    this.executor = new ForkJoinPool(this.threads);
+    this.helper.setExecutor(this.executor);
+
+    this.votersKeyPairs = this.helper.createVotersKeyPairs(VOTERS, group.parameters);
+    this.trackerNumbers = new ArrayList<>(this.helper.createTrackerNumbers(group.parameters, group.electionKeyPair, VOTERS));
+
+    this.voteOptions = new ArrayList<>();
+
+    for (final String option : OPTIONS) {
+      this.voteOptions.add(new VoteOption(option));
+    }
+
+    this.helper.mapVoteOptions(group.parameters, this.voteOptions);
+
+    this.voters = new ArrayList<>();
+
+    for (int i = 0; i < VOTERS; i++) {
+      final Voter voter = new Voter(i);
+      voter.setPlainTextVote(OPTIONS[i % OPTIONS.length]);
+      voter.setVoterKeyPairs(new VoterKeyPairs(null, this.votersKeyPairs.get(i).getSignatureKeyPair()));
+      this.voters.add(voter);
+    }
+  }
+
+  /**
+   * Shuts down the executor.
+   */
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    this.executor.shutdownNow();
+  }
+}
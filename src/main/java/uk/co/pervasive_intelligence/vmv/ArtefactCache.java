@@ -0,0 +1,334 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Caches the parsed content of election files, such as the parameters, keys, voters and tracker numbers, for the lifetime of the application so that a file read
+ * by one command is not parsed again by the next. Entries are keyed by the canonical path of the file, the class and view it was read with. An entry is used
+ * without reading the file again while the size, modification time and file key, such as the inode, of the file are unchanged. Otherwise the file is only
+ * hashed again if its size is unchanged, and the entry is used if the content digest recorded when it was cached still matches, such as when the file has been
+ * copied again. Files written by this application invalidate their entries.
+ * <p>
+ * The cached lists are unmodifiable and shared between commands, so the values in them must be treated as read-only. The memory used by each entry is estimated
+ * from the size of its file, and the least recently used entries are evicted to keep within the budget.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ArtefactCache {
+
+  /** The size of the buffer used to read files. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The digest algorithm used to detect changes to the content of files. */
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ArtefactCache.class);
+
+  /** The maximum estimated memory in bytes used by all of the entries. */
+  private final long budget;
+
+  /** The entries, in order of least to most recently used. */
+  private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+  /** The total estimated memory in bytes used by all of the entries. */
+  private long weight = 0;
+
+  /**
+   * Constructor requiring the memory budget.
+   *
+   * @param budget The maximum estimated memory in bytes used by all of the entries. Zero or less disables the cache.
+   */
+  public ArtefactCache(final long budget) {
+    this.budget = budget;
+  }
+
+  /**
+   * Reads the attributes of a file used to detect changes to it.
+   *
+   * @param file The file.
+   * @return The attributes.
+   * @throws IOException if the attributes could not be read.
+   */
+  private static BasicFileAttributes attributes(final File file) throws IOException {
+    return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+  }
+
+  /**
+   * Calculates the digest of the content of a file.
+   *
+   * @param file The file.
+   * @return The digest.
+   * @throws Exception if the file could not be read.
+   */
+  private static byte[] digest(final File file) throws Exception {
+    try (final DigestInputStream input = new DigestInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE),
+        MessageDigest.getInstance(DIGEST_ALGORITHM))) {
+      drain(input);
+      return input.getMessageDigest().digest();
+    }
+  }
+
+  /**
+   * Reads the remainder of a stream.
+   *
+   * @param input The stream.
+   * @throws IOException if the stream could not be read.
+   */
+  private static void drain(final InputStream input) throws IOException {
+    final byte[] buffer = new byte[BUFFER_SIZE];
+
+    while (input.read(buffer) >= 0) {
+      // Do nothing.
+    }
+  }
+
+  /**
+   * Forms the key of an entry.
+   *
+   * @param file  The canonical file.
+   * @param clazz The class of the content.
+   * @param view  The optional view the content was read with.
+   * @return The key.
+   */
+  private static String key(final File file, final Class<?> clazz, final Class<?> view) {
+    return file.getPath() + File.pathSeparator + clazz.getName() + File.pathSeparator + ((view != null) ? view.getName() : "");
+  }
+
+  /**
+   * Removes all of the entries.
+   */
+  public synchronized void clear() {
+    this.entries.clear();
+    this.weight = 0;
+  }
+
+  /**
+   * Gets the content of a file from the cache, loading and caching it if the file has not been read before with the same class and view or has since changed.
+   *
+   * @param file   The file.
+   * @param clazz  The class of the content.
+   * @param view   The optional view to read the content with.
+   * @param loader Parses the content of the file.
+   * @param <T>    The type of content.
+   * @return The unmodifiable list of values.
+   * @throws VMVException if the file could not be read.
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> get(final File file, final Class<T> clazz, final Class<?> view, final Loader<T> loader) throws VMVException {
+    try {
+      final File canonicalFile = file.getCanonicalFile();
+      final String key = key(canonicalFile, clazz, view);
+      final BasicFileAttributes attributes = attributes(canonicalFile);
+
+      final Entry cached;
+
+      synchronized (this) {
+        cached = this.entries.get(key);
+      }
+
+      // Use the entry if the file is unchanged, without reading it.
+      if ((cached != null) && cached.isUnchanged(attributes)) {
+        LOG.debug("Artefact cache hit for {}", key);
+        return (List<T>) cached.values;
+      }
+
+      // Otherwise, if the file could be the same, use the entry if its content is unchanged, such as when it has been copied again.
+      if ((cached != null) && (cached.size == attributes.size()) && Arrays.equals(cached.digest, digest(canonicalFile))) {
+        final Entry restamped = new Entry(attributes, cached.digest, cached.values);
+
+        if (restamped.isUnchanged(attributes(canonicalFile))) {
+          LOG.debug("Artefact cache hit for unchanged content of {}", key);
+          this.put(key, restamped);
+          return (List<T>) cached.values;
+        }
+      }
+
+      // Otherwise parse the file, calculating its digest as it is read.
+      final List<T> values;
+      final byte[] digest;
+
+      try (final DigestInputStream input = new DigestInputStream(new BufferedInputStream(new FileInputStream(canonicalFile), BUFFER_SIZE),
+          MessageDigest.getInstance(DIGEST_ALGORITHM));
+           final BufferedReader reader = new BufferedReader(new InputStreamReader(new FilterInputStream(input) {
+             @Override
+             public void close() {
+               // The parser closes its input when done, but the remainder of the file is still needed for the digest.
+             }
+           }, StandardCharsets.UTF_8))) {
+        values = Collections.unmodifiableList(new ArrayList<>(loader.load(reader)));
+        drain(input);
+        digest = input.getMessageDigest().digest();
+      }
+
+      // Only cache the values if the file did not change while it was being read.
+      final Entry entry = new Entry(attributes, digest, values);
+
+      if (entry.isUnchanged(attributes(canonicalFile))) {
+        this.put(key, entry);
+      }
+
+      return values;
+    }
+    catch (final VMVException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not read CSV file " + file, e);
+    }
+  }
+
+  /**
+   * @return The total estimated memory in bytes used by all of the entries.
+   */
+  public synchronized long getWeight() {
+    return this.weight;
+  }
+
+  /**
+   * Removes the entries for a file, such as when it is about to be written.
+   *
+   * @param file The file.
+   */
+  public void invalidate(final File file) {
+    final String prefix;
+
+    try {
+      prefix = file.getCanonicalPath() + File.pathSeparator;
+    }
+    catch (final IOException e) {
+      LOG.debug("Could not invalidate artefact cache for {}", file, e);
+      return;
+    }
+
+    synchronized (this) {
+      final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+
+      while (iterator.hasNext()) {
+        final Map.Entry<String, Entry> entry = iterator.next();
+
+        if (entry.getKey().startsWith(prefix)) {
+          this.weight -= entry.getValue().size;
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Adds an entry, replacing any existing entry for the same key and evicting the least recently used entries to keep within the budget. Entries larger than
+   * the budget are not added, and nothing is added if the cache is disabled.
+   *
+   * @param key   The key.
+   * @param entry The entry.
+   */
+  private synchronized void put(final String key, final Entry entry) {
+    final Entry replaced = this.entries.remove(key);
+
+    if (replaced != null) {
+      this.weight -= replaced.size;
+    }
+
+    if ((this.budget <= 0) || (entry.size > this.budget)) {
+      return;
+    }
+
+    final Iterator<Map.Entry<String, Entry>> iterator = this.entries.entrySet().iterator();
+
+    while (((this.weight + entry.size) > this.budget) && iterator.hasNext()) {
+      final Map.Entry<String, Entry> eldest = iterator.next();
+      LOG.debug("Artefact cache evict {}", eldest.getKey());
+      this.weight -= eldest.getValue().size;
+      iterator.remove();
+    }
+
+    this.entries.put(key, entry);
+    this.weight += entry.size;
+  }
+
+  /**
+   * @return The number of entries.
+   */
+  public synchronized int size() {
+    return this.entries.size();
+  }
+
+  /**
+   * Parses the content of a file.
+   *
+   * @param <T> The type of content.
+   */
+  @FunctionalInterface
+  public interface Loader<T> {
+
+    /**
+     * Parses the content.
+     *
+     * @param input The content of the file.
+     * @return The values read in.
+     * @throws VMVException if the content could not be parsed.
+     */
+    List<T> load(BufferedReader input) throws VMVException;
+  }
+
+  /**
+   * A cached file.
+   */
+  private static class Entry {
+
+    /** The digest of the content of the file. */
+    private final byte[] digest;
+
+    /** The file key of the file, such as its device and inode, or null if the file system has none. */
+    private final Object fileKey;
+
+    /** The modification time of the file. */
+    private final FileTime modified;
+
+    /** The size of the file, used as the estimate of the memory used by the entry. */
+    private final long size;
+
+    /** The unmodifiable values read from the file. */
+    private final List<?> values;
+
+    /**
+     * Constructor requiring all fields.
+     *
+     * @param attributes The attributes of the file when it was read.
+     * @param digest     The digest of the content of the file.
+     * @param values     The unmodifiable values read from the file.
+     */
+    private Entry(final BasicFileAttributes attributes, final byte[] digest, final List<?> values) {
+      this.size = attributes.size();
+      this.modified = attributes.lastModifiedTime();
+      this.fileKey = attributes.fileKey();
+      this.digest = digest;
+      this.values = values;
+    }
+
+    /**
+     * Determines if the file is unchanged since it was read.
+     *
+     * @param attributes The current attributes of the file.
+     * @return True if the size, modification time and file key of the file are unchanged.
+     */
+    private boolean isUnchanged(final BasicFileAttributes attributes) {
+      return (this.size == attributes.size()) && this.modified.equals(attributes.lastModifiedTime()) && Objects.equals(this.fileKey, attributes.fileKey());
+    }
+  }
+}
@@ -6,22 +6,43 @@
 package uk.co.pervasive_intelligence.vmv;
 
 import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.*;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
 import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
 import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
 import com.fasterxml.jackson.databind.util.NameTransformer;
 import com.fasterxml.jackson.dataformat.csv.CsvGenerator;
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.standard.ShellComponent;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+import uk.co.pervasive_intelligence.vmv.job.JobManager;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowRunner;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -31,16 +52,44 @@ import java.util.Set;
  */
 public abstract class BaseShellComponent {
 
+  /** The maximum length of the first line of CSV content which is peeked to find the element encoding. */
+  private static final int MAXIMUM_HEADER_LENGTH = 65536;
+
+  /** The operation under which CSV files are recorded in the metrics. */
+  private static final String METRICS_CSV = "csv";
+
+  /** The optional cache of election files shared by all shell components. */
+  private ArtefactCache artefactCache = null;
+
+  /** The optional metrics shared by all shell components and helpers. */
+  private Metrics metrics = null;
+
+  /**
+   * @return True if the current command is running alongside other commands which record into the same metrics, as a workflow step or background job.
+   */
+  private static boolean isSharingMetrics() {
+    return JobManager.isBackground() || WorkflowRunner.isStep();
+  }
+
   /**
    * Creates the CSV mapper with appropriate options and with the view filtering.
    *
-   * @param view The optional view to filter for.
+   * @param view     The optional view to filter for.
+   * @param encoding The encoding used for {@link BigInteger} values.
    * @return The CSV mapper.
    */
-  private CsvMapper getCsvMapper(final Class<?> view) {
+  private CsvMapper getCsvMapper(final Class<?> view, final ElementEncoding encoding) {
     final ApplyViewCsvMapper csvMapper = new ApplyViewCsvMapper(view);
     csvMapper.configure(CsvGenerator.Feature.ALWAYS_QUOTE_STRINGS, true);
 
+    // Only override the default decimal handling of big integers if needed.
+    if (encoding != ElementEncoding.DECIMAL) {
+      final SimpleModule module = new SimpleModule();
+      module.addSerializer(BigInteger.class, new ElementEncodingSerializer(encoding));
+      module.addDeserializer(BigInteger.class, new ElementEncodingDeserializer(encoding));
+      csvMapper.registerModule(module);
+    }
+
     return csvMapper;
   }
 
@@ -67,25 +116,71 @@ public abstract class BaseShellComponent {
    * @throws VMVException if the file could not be read.
    */
   public List<?> readCSV(final File file, final Class<?> clazz, final Class<?> view) throws VMVException {
+    return this.readCSV(file, clazz, view, new ArrayList<>());
+  }
+
+  /**
+   * Reads the content of a CSV file into the supplied list, such as a {@link uk.co.pervasive_intelligence.vmv.cryptography.data.VoterStore}, rather than a new
+   * {@link ArrayList}. If an optional view is provided then only those properties with a view that matches are read. No properties are included by default if
+   * they do not have an associated {@link JsonView}.
+   *
+   * @param file   The input file.
+   * @param clazz  The class (or contained class) of the content.
+   * @param view   The optional view to filter for.
+   * @param values The list to which the values are added.
+   * @param <T>    The type of content.
+   * @return The list of values read in.
+   * @throws VMVException if the file could not be read.
+   */
+  public <T> List<T> readCSV(final File file, final Class<T> clazz, final Class<?> view, final List<T> values) throws VMVException {
+    final Metrics.Timer timer = (this.metrics != null) ? this.metrics.start(METRICS_CSV, "read") : null;
+
+    try (final BufferedReader input = Files.newBufferedReader(file.toPath())) {
+      this.readCSV(input, clazz, view, values);
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not read CSV file " + file, e);
+    }
+
+    if (timer != null) {
+      timer.setItems(values.size()).close();
+    }
+
+    return values;
+  }
+
+  /**
+   * Reads CSV content from a reader into the supplied list, such as when reading an entry of a {@link java.util.zip.ZipFile}. If an optional view is provided then
+   * only those properties with a view that matches are read. No properties are included by default if they do not have an associated {@link JsonView}. The
+   * reader is not closed.
+   *
+   * @param input  The input reader.
+   * @param clazz  The class (or contained class) of the content.
+   * @param view   The optional view to filter for.
+   * @param values The list to which the values are added.
+   * @param <T>    The type of content.
+   * @return The list of values read in.
+   * @throws VMVException if the content could not be read.
+   */
+  public <T> List<T> readCSV(final BufferedReader input, final Class<T> clazz, final Class<?> view, final List<T> values) throws VMVException {
     try {
-      // Construct the mapper and schema for the optional view and class.
-      final CsvMapper csvMapper = this.getCsvMapper(view);
-      final CsvSchema schema = csvMapper.schemaFor(clazz).withHeader();
+      // Construct the mapper and schema for the optional view and class, using the encoding recorded in the content.
+      final CsvMapper csvMapper = this.getCsvMapper(view, this.readElementEncoding(input));
+      final CsvSchema schema = csvMapper.schemaFor(clazz).withHeader().withComments();
 
       // Read the values, validating each as they are read.
-      ObjectReader reader = csvMapper.readerFor(clazz).with(schema);
+      ObjectReader reader = csvMapper.readerFor(clazz).with(schema).without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
 
       if (view != null) {
         reader = reader.withView(view);
       }
 
-      final MappingIterator<Object> iterator = reader.readValues(file);
+      final MappingIterator<T> iterator = reader.readValues(input);
       final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
-      final List<Object> values = new ArrayList<>();
 
       while (iterator.hasNextValue()) {
-        final Object value = iterator.nextValue();
-        final Set<ConstraintViolation<Object>> valid = validator.validate(value);
+        final T value = iterator.nextValue();
+        final Set<ConstraintViolation<T>> valid = validator.validate(value);
 
         if (!valid.isEmpty()) {
           throw new VMVException("Could not validate de-serialised object: " + valid);
@@ -99,11 +194,157 @@ public abstract class BaseShellComponent {
     catch (final VMVException e) {
       throw e;
     }
+    catch (final Exception e) {
+      throw new VMVException("Could not read CSV", e);
+    }
+  }
+
+  /**
+   * Reads the content of a CSV file as a list of {@link LazyRecord} values which keep the raw text of each field and only parse it on first access. This allows a
+   * scan or lookup to touch only the columns it uses, with the full object only being constructed, and validated, for the records that are needed. If an optional
+   * view is provided then only those columns with a view that matches are kept, as for {@link #readCSV(File, Class, Class)}.
+   *
+   * @param file  The input file.
+   * @param clazz The class (or contained class) of the content.
+   * @param view  The optional view to filter for.
+   * @param <T>   The type of content.
+   * @return The list of lazy records read in.
+   * @throws VMVException if the file could not be read.
+   */
+  public <T> List<LazyRecord<T>> readCSVLazily(final File file, final Class<T> clazz, final Class<?> view) throws VMVException {
+    try (final BufferedReader input = Files.newBufferedReader(file.toPath())) {
+      // Construct the mapper and schema for the optional view and class, using the encoding recorded in the file.
+      final ElementEncoding encoding = this.readElementEncoding(input);
+      final CsvMapper csvMapper = this.getCsvMapper(view, encoding);
+      final CsvSchema schema = csvMapper.schemaFor(clazz);
+
+      // Read the raw rows without any conversion.
+      final MappingIterator<String[]> iterator = csvMapper.readerFor(String[].class).with(CsvParser.Feature.WRAP_AS_ARRAY)
+          .with(CsvSchema.emptySchema().withComments()).readValues(input);
+      final List<LazyRecord<T>> values = new ArrayList<>();
+
+      if (!iterator.hasNextValue()) {
+        return values;
+      }
+
+      // Map the header onto the columns of the schema so that only the columns in the view are kept.
+      final String[] header = iterator.nextValue();
+      final Map<String, Integer> columns = new HashMap<>();
+      final int[] positions = new int[schema.size()];
+      int size = 0;
+
+      for (int i = 0; i < header.length; i++) {
+        if ((schema.column(header[i]) != null) && !columns.containsKey(header[i])) {
+          columns.put(header[i], size);
+          positions[size++] = i;
+        }
+      }
+
+      ObjectReader reader = csvMapper.readerFor(clazz);
+
+      if (view != null) {
+        reader = reader.withView(view);
+      }
+
+      final LazyRecordContext context = new LazyRecordContext(columns, encoding, reader);
+
+      while (iterator.hasNextValue()) {
+        final String[] row = iterator.nextValue();
+        final String[] fields = new String[size];
+
+        for (int i = 0; i < size; i++) {
+          fields[i] = (positions[i] < row.length) ? row[positions[i]] : null;
+        }
+
+        values.add(new LazyRecord<>(context, fields));
+      }
+
+      return values;
+    }
     catch (final Exception e) {
       throw new VMVException("Could not read CSV file " + file, e);
     }
   }
 
+  /**
+   * Reads the content of a CSV file which is not changed by the caller, such as the election parameters, keys or tracker numbers, through the
+   * {@link ArtefactCache} if there is one. The returned list is shared with other callers and must be treated as read-only. If an optional view is provided then
+   * only those properties with a view that matches are read, as for {@link #readCSV(File, Class, Class)}.
+   *
+   * @param file  The input file.
+   * @param clazz The class (or contained class) of the content.
+   * @param view  The optional view to filter for.
+   * @param <T>   The type of content.
+   * @return The list of values read in.
+   * @throws VMVException if the file could not be read.
+   */
+  public <T> List<T> readCachedCSV(final File file, final Class<T> clazz, final Class<?> view) throws VMVException {
+    if (this.artefactCache == null) {
+      return this.readCSV(file, clazz, view, new ArrayList<>());
+    }
+
+    return this.artefactCache.get(file, clazz, view, input -> this.readCSV(input, clazz, view, new ArrayList<>()));
+  }
+
+  /**
+   * Reads the element encoding recorded in the first line of CSV content without consuming it.
+   *
+   * @param input The input reader, which must support marking.
+   * @return The recorded encoding, defaulting to {@link ElementEncoding#DECIMAL}.
+   * @throws IOException if the content could not be read.
+   */
+  private ElementEncoding readElementEncoding(final BufferedReader input) throws IOException {
+    input.mark(MAXIMUM_HEADER_LENGTH);
+    final ElementEncoding encoding = ElementEncoding.fromHeader(input.readLine());
+    input.reset();
+
+    return encoding;
+  }
+
+  /**
+   * @return The optional cache of election files shared by all shell components. May be null.
+   */
+  public ArtefactCache getArtefactCache() {
+    return this.artefactCache;
+  }
+
+  /**
+   * @return The optional metrics shared by all shell components and helpers. May be null.
+   */
+  public Metrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * Sets the optional cache used by {@link #readCachedCSV(File, Class, Class)}.
+   *
+   * @param artefactCache The cache of election files.
+   */
+  @Autowired(required = false)
+  public void setArtefactCache(final ArtefactCache artefactCache) {
+    this.artefactCache = artefactCache;
+  }
+
+  /**
+   * Sets the optional metrics in which the time taken to read and write CSV files is recorded.
+   *
+   * @param metrics The metrics shared by all shell components and helpers.
+   */
+  @Autowired(required = false)
+  public void setMetrics(final Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Starts recording the metrics of a command, discarding those of earlier commands so that each report only covers its own command. The metrics are kept
+   * while the command runs as a workflow step or background job, since other commands may be recording into them at the same time.
+   */
+  public void startMetrics() {
+    if ((this.metrics != null) && !isSharingMetrics()) {
+      this.metrics.clear();
+    }
+  }
+
   /**
    * Writes the content as CSV to the file using the optional view. If an optional view is provided then only those properties with a view that matches are written.
    * No properties are included by default if they do not have an associated {@link JsonView}.
@@ -115,22 +356,80 @@ public abstract class BaseShellComponent {
    * @throws VMVException if the file could not be written.
    */
   public void writeCSV(final File file, final Class<?> clazz, final Object content, final Class<?> view) throws VMVException {
+    this.writeCSV(file, clazz, content, view, ElementEncoding.DECIMAL);
+  }
+
+  /**
+   * Writes the content as CSV to the file using the optional view and the specified encoding for {@link BigInteger} values. If an optional view is provided then
+   * only those properties with a view that matches are written. No properties are included by default if they do not have an associated {@link JsonView}. Any
+   * non-default encoding is recorded in the first line of the file.
+   *
+   * @param file     The output file.
+   * @param clazz    The class (or contained class) of the content.
+   * @param content  The content to write.
+   * @param view     The optional view to filter for.
+   * @param encoding The encoding used for {@link BigInteger} values.
+   * @throws VMVException if the file could not be written.
+   */
+  public void writeCSV(final File file, final Class<?> clazz, final Object content, final Class<?> view, final ElementEncoding encoding) throws VMVException {
+    final Metrics.Timer timer = (this.metrics != null) ? this.metrics.start(METRICS_CSV, "write") : null;
+
+    // The file is rewritten in place, so any content cached from it is no longer valid.
+    if (this.artefactCache != null) {
+      this.artefactCache.invalidate(file);
+    }
+
+    try (final Writer output = Files.newBufferedWriter(file.toPath())) {
+      this.writeCSV(output, clazz, content, view, encoding);
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not write CSV file " + file, e);
+    }
+
+    if (timer != null) {
+      timer.setItems((content instanceof Collection) ? ((Collection<?>) content).size() : 1).close();
+    }
+  }
+
+  /**
+   * Writes the content as CSV to a writer using the optional view and the specified encoding for {@link BigInteger} values, such as when writing an entry of a
+   * {@link java.util.zip.ZipOutputStream}. If an optional view is provided then only those properties with a view that matches are written. No properties are
+   * included by default if they do not have an associated {@link JsonView}. Any non-default encoding is recorded in the first line of the content. The writer is
+   * flushed but not closed.
+   *
+   * @param output   The output writer.
+   * @param clazz    The class (or contained class) of the content.
+   * @param content  The content to write.
+   * @param view     The optional view to filter for.
+   * @param encoding The encoding used for {@link BigInteger} values.
+   * @throws VMVException if the content could not be written.
+   */
+  public void writeCSV(final Writer output, final Class<?> clazz, final Object content, final Class<?> view, final ElementEncoding encoding) throws VMVException {
     try {
       // Construct the mapper and schema for the optional view and class.
-      final CsvMapper csvMapper = this.getCsvMapper(view);
+      final CsvMapper csvMapper = this.getCsvMapper(view, encoding);
       final CsvSchema schema = csvMapper.schemaFor(clazz).withHeader();
 
+      // Record the encoding, if needed.
+      final String header = encoding.toHeader();
+
+      if (header != null) {
+        output.write(header);
+        output.write(schema.getLineSeparator());
+      }
+
       // Write the values.
-      ObjectWriter writer = csvMapper.writer().with(schema);
+      ObjectWriter writer = csvMapper.writer().with(schema).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
       if (view != null) {
         writer = writer.withView(view);
       }
 
-      writer.writeValue(file, content);
+      writer.writeValue(output, content);
+      output.flush();
     }
     catch (final Exception e) {
-      throw new VMVException("Could not write CSV file " + file, e);
+      throw new VMVException("Could not write CSV", e);
     }
   }
 
@@ -146,6 +445,59 @@ public abstract class BaseShellComponent {
     this.writeCSV(file, clazz, content, null);
   }
 
+  /**
+   * Opens a writer to which CSV values are written one at a time using the optional view and the specified encoding for {@link BigInteger} values, so that values
+   * which are produced in batches never need to be held in memory together. If an optional view is provided then only those properties with a view that matches
+   * are written. Any non-default encoding is recorded in the first line of the content. Closing the returned writer flushes it but does not close the output.
+   *
+   * @param output   The output writer.
+   * @param clazz    The class of each value.
+   * @param view     The optional view to filter for.
+   * @param encoding The encoding used for {@link BigInteger} values.
+   * @return The writer for the values.
+   * @throws VMVException if the writer could not be opened.
+   */
+  public SequenceWriter writeCSVValues(final Writer output, final Class<?> clazz, final Class<?> view, final ElementEncoding encoding) throws VMVException {
+    try {
+      // Construct the mapper and schema for the optional view and class.
+      final CsvMapper csvMapper = this.getCsvMapper(view, encoding);
+      final CsvSchema schema = csvMapper.schemaFor(clazz).withHeader();
+
+      // Record the encoding, if needed.
+      final String header = encoding.toHeader();
+
+      if (header != null) {
+        output.write(header);
+        output.write(schema.getLineSeparator());
+      }
+
+      ObjectWriter writer = csvMapper.writerFor(clazz).with(schema).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+      if (view != null) {
+        writer = writer.withView(view);
+      }
+
+      return writer.writeValues(output);
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not write CSV", e);
+    }
+  }
+
+  /**
+   * Writes the metrics report of a command, named after the command, into the directory of its output file once the command has completed. Nothing is written
+   * for workflow steps or background jobs, whose metrics cannot be separated from those of the commands running alongside them.
+   *
+   * @param command The name of the command, e.g. "mix-votes".
+   * @param output  The command's output file, or its first published file if it has no output file. If null, no report is written.
+   * @throws VMVException if the report could not be written.
+   */
+  public void writeMetrics(final String command, final File output) throws VMVException {
+    if ((this.metrics != null) && (output != null) && !isSharingMetrics()) {
+      this.metrics.write(output.getAbsoluteFile().getParentFile(), command);
+    }
+  }
+
   /**
    * Custom {@link CsvMapper} which builds a schema based upon the available views.
    */
@@ -251,4 +603,222 @@ public abstract class BaseShellComponent {
       }
     }
   }
+
+  /**
+   * Deserialises {@link BigInteger} values using an {@link ElementEncoding}.
+   */
+  public static class ElementEncodingDeserializer extends StdScalarDeserializer<BigInteger> {
+
+    /** The encoding. */
+    private final ElementEncoding encoding;
+
+    /**
+     * Constructor allowing the encoding to be defined.
+     *
+     * @param encoding The encoding.
+     */
+    public ElementEncodingDeserializer(final ElementEncoding encoding) {
+      super(BigInteger.class);
+      this.encoding = encoding;
+    }
+
+    /**
+     * Deserialises the value.
+     *
+     * @param parser  The parser.
+     * @param context The deserialisation context.
+     * @return The decoded value, or null if there is no value.
+     * @throws IOException if the value could not be decoded.
+     */
+    @Override
+    public BigInteger deserialize(final JsonParser parser, final DeserializationContext context) throws IOException {
+      final String value = parser.getValueAsString();
+
+      if ((value == null) || value.isEmpty()) {
+        return null;
+      }
+
+      try {
+        return this.encoding.decode(value);
+      }
+      catch (final IllegalArgumentException e) {
+        return (BigInteger) context.handleWeirdStringValue(BigInteger.class, value, "not a valid %s value", this.encoding);
+      }
+    }
+  }
+
+  /**
+   * Serialises {@link BigInteger} values using an {@link ElementEncoding}.
+   */
+  public static class ElementEncodingSerializer extends StdScalarSerializer<BigInteger> {
+
+    /** The encoding. */
+    private final ElementEncoding encoding;
+
+    /**
+     * Constructor allowing the encoding to be defined.
+     *
+     * @param encoding The encoding.
+     */
+    public ElementEncodingSerializer(final ElementEncoding encoding) {
+      super(BigInteger.class);
+      this.encoding = encoding;
+    }
+
+    /**
+     * Serialises the value.
+     *
+     * @param value     The value.
+     * @param generator The generator.
+     * @param provider  The serialiser provider.
+     * @throws IOException if the value could not be written.
+     */
+    @Override
+    public void serialize(final BigInteger value, final JsonGenerator generator, final SerializerProvider provider) throws IOException {
+      generator.writeString(this.encoding.encode(value));
+    }
+  }
+
+  /**
+   * A record read from a CSV file which keeps the raw text of each field and parses it on first access.
+   *
+   * @param <T> The type of content.
+   */
+  public static class LazyRecord<T> {
+
+    /** The context shared by all records read from the same file. */
+    private final LazyRecordContext context;
+
+    /** The parsed elements, indexed by column. */
+    private final BigInteger[] elements;
+
+    /** The raw text of each field, indexed by column. */
+    private final String[] fields;
+
+    /** The materialised value. */
+    private T value;
+
+    /**
+     * Constructor requiring the context and fields.
+     *
+     * @param context The shared context.
+     * @param fields  The raw text of each field.
+     */
+    private LazyRecord(final LazyRecordContext context, final String[] fields) {
+      this.context = context;
+      this.fields = fields;
+      this.elements = new BigInteger[fields.length];
+    }
+
+    /**
+     * Finds the index of a column.
+     *
+     * @param column The column name.
+     * @return The index of the column.
+     * @throws IllegalArgumentException if the column was not read.
+     */
+    private int column(final String column) {
+      final Integer index = this.context.columns.get(column);
+
+      if (index == null) {
+        throw new IllegalArgumentException("Unknown column: " + column);
+      }
+
+      return index;
+    }
+
+    /**
+     * Parses a single field as a {@link BigInteger} using the encoding recorded in the file, without materialising the rest of the record.
+     *
+     * @param column The column name.
+     * @return The parsed value, or null if the field is empty.
+     * @throws IllegalArgumentException if the column was not read or the field could not be parsed.
+     */
+    public BigInteger getElement(final String column) {
+      final int index = this.column(column);
+
+      if ((this.elements[index] == null) && (this.fields[index] != null) && !this.fields[index].isEmpty()) {
+        this.elements[index] = this.context.encoding.decode(this.fields[index]);
+      }
+
+      return this.elements[index];
+    }
+
+    /**
+     * Returns the raw text of a single field.
+     *
+     * @param column The column name.
+     * @return The raw text of the field.
+     * @throws IllegalArgumentException if the column was not read.
+     */
+    public String getField(final String column) {
+      return this.fields[this.column(column)];
+    }
+
+    /**
+     * Materialises and validates the full value on first access.
+     *
+     * @return The value.
+     * @throws VMVException if the value could not be materialised or validated.
+     */
+    public T getValue() throws VMVException {
+      if (this.value == null) {
+        final ObjectNode node = JsonNodeFactory.instance.objectNode();
+
+        for (final Map.Entry<String, Integer> column : this.context.columns.entrySet()) {
+          node.put(column.getKey(), this.fields[column.getValue()]);
+        }
+
+        final T value;
+
+        try {
+          value = this.context.reader.readValue(node);
+        }
+        catch (final IOException e) {
+          throw new VMVException("Could not de-serialise object", e);
+        }
+
+        final Set<ConstraintViolation<T>> valid = this.context.validator.validate(value);
+
+        if (!valid.isEmpty()) {
+          throw new VMVException("Could not validate de-serialised object: " + valid);
+        }
+
+        this.value = value;
+      }
+
+      return this.value;
+    }
+  }
+
+  /**
+   * The state shared by all {@link LazyRecord} values read from the same file.
+   */
+  private static class LazyRecordContext {
+
+    /** The index of each column, by name. */
+    private final Map<String, Integer> columns;
+
+    /** The encoding used for {@link BigInteger} values. */
+    private final ElementEncoding encoding;
+
+    /** The reader used to materialise values, including any view. */
+    private final ObjectReader reader;
+
+    /** The validator used on materialised values. */
+    private final Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+    /**
+     * Constructor requiring the shared state.
+     *
+     * @param columns  The index of each column, by name.
+     * @param encoding The encoding used for {@link BigInteger} values.
+     * @param reader   The reader used to materialise values.
+     */
+    private LazyRecordContext(final Map<String, Integer> columns, final ElementEncoding encoding, final ObjectReader reader) {
+      this.columns = columns;
+      this.encoding = encoding;
+      this.reader = reader;
+    }
+  }
 }
@@ -6,9 +6,19 @@
 package uk.co.pervasive_intelligence.vmv;
 
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.job.JobManager;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowRunner;
+
+import java.util.concurrent.TimeUnit;
 
 /**
- * Implements a {@link CryptographyHelper.ProgressListener} for the shell.
+ * Implements a {@link CryptographyHelper.ProgressListener} for the shell. Progress of background jobs is not output, so that it does not interrupt the prompt:
+ * it is shown by listing the jobs instead. Nor is the progress of workflow steps, which may run concurrently and would otherwise overwrite each other's
+ * progress line: the start and end of each step are logged instead.
+ * <p>
+ * When an operation reports the number of items completed, the progress line is rewritten at most every {@link #REFRESH_INTERVAL} milliseconds with the
+ * number of items completed, the smoothed rate in items per second, the estimated time remaining at that rate and the number of active worker threads, so that
+ * the progress of a long run can be judged.
  *
  * @author Matthew Casey, Pervasive Intelligence Ltd
  */
@@ -17,19 +27,96 @@ public class ShellProgress implements CryptographyHelper.ProgressListener {
   /** The minimum change in progress that can be reported. */
   private static final int MINIMUM_CHANGE = 5;
 
+  /** The minimum interval in milliseconds between rewriting the progress line. */
+  static final long REFRESH_INTERVAL = 1000;
+
+  /** The time constant in milliseconds over which the rate is smoothed. */
+  static final long SMOOTHING_TIME = 10000;
+
+  /** The number of items completed at the last rate sample. */
+  private long lastCompleted = 0;
+
+  /** The length of the last progress line, so that a shorter line can clear it. */
+  private int lastLength = 0;
+
+  /** The time the progress line was last written. */
+  private long lastPrinted = 0;
+
   /** The last progress reported. */
   private int lastProgress = 0;
 
+  /** The time of the last rate sample. */
+  private long lastSample = 0;
+
+  /** The name of the current progress item. */
+  private String name = null;
+
+  /** The smoothed rate in items per second. */
+  private double rate = 0;
+
   /** The start time. */
   private long start = 0;
 
+  /** The total number of items, or zero if only a percentage has been reported. */
+  private long total = 0;
+
+  /**
+   * Formats the progress line for an operation which reports the number of items completed.
+   *
+   * @param name      The name of the progress item.
+   * @param completed The number of items completed.
+   * @param total     The total number of items.
+   * @param rate      The rate in items per second.
+   * @param threads   The number of worker threads currently active.
+   * @return The progress line.
+   */
+  static String format(final String name, final long completed, final long total, final double rate, final int threads) {
+    final long progress = (total > 0) ? 100 * completed / total : 100;
+    final String eta;
+
+    if (completed >= total) {
+      eta = formatDuration(0);
+    }
+    else if (rate > 0) {
+      eta = formatDuration(Math.round((total - completed) / rate));
+    }
+    else {
+      eta = "--:--:--";
+    }
+
+    return String.format("%s: %d%% %d/%d, %.1f/s, ETA %s, %d threads", name, progress, completed, total, rate, eta, threads);
+  }
+
+  /**
+   * Formats a duration as hours, minutes and seconds.
+   *
+   * @param seconds The duration in seconds.
+   * @return The formatted duration.
+   */
+  static String formatDuration(final long seconds) {
+    return String.format("%d:%02d:%02d", TimeUnit.SECONDS.toHours(seconds), TimeUnit.SECONDS.toMinutes(seconds) % 60, seconds % 60);
+  }
+
   /**
    * Called when an operation ends.
    */
   @Override
   public void onEnd() {
+    if (this.isSuppressed()) {
+      return;
+    }
+
     this.lastProgress = 100;
-    System.out.println(String.format("%d%% (%.3fs)", this.lastProgress, (System.currentTimeMillis() - this.start) / 1000f));
+    final long elapsed = System.currentTimeMillis() - this.start;
+
+    if (this.total > 0) {
+      this.rewrite(String.format("%s: %d%% (%.3fs, %.1f/s)", this.name, this.lastProgress, elapsed / 1000f,
+          (elapsed > 0) ? this.total * 1000d / elapsed : 0));
+      System.out.println();
+    }
+    else {
+      System.out.println(String.format("%d%% (%.3fs)", this.lastProgress, elapsed / 1000f));
+    }
   }
 
   /**
@@ -39,6 +126,10 @@ public class ShellProgress implements CryptographyHelper.ProgressListener {
    */
   @Override
   public void onProgress(final float progress) {
+    if (this.isSuppressed()) {
+      return;
+    }
+
     final int rounded = Math.round(progress);
 
     if ((this.lastProgress < rounded) && (rounded < 100) && ((rounded - this.lastProgress) >= MINIMUM_CHANGE)) {
@@ -48,6 +139,41 @@ public class ShellProgress implements CryptographyHelper.ProgressListener {
     }
   }
 
+  /**
+   * Called at a fixed interval while the items of an operation are processed in parallel. The rate is smoothed exponentially over {@link #SMOOTHING_TIME}
+   * so that the estimated time remaining does not jump with each sample.
+   *
+   * @param completed The number of items completed.
+   * @param total     The total number of items.
+   * @param threads   The number of worker threads currently active.
+   */
+  @Override
+  public void onProgress(final long completed, final long total, final int threads) {
+    if (this.isSuppressed()) {
+      return;
+    }
+
+    final long now = System.currentTimeMillis();
+    final long interval = now - this.lastSample;
+
+    if (interval > 0) {
+      final double sample = (completed - this.lastCompleted) * 1000d / interval;
+      final double weight = (this.total > 0) ? 1 - Math.exp(-interval / (double) SMOOTHING_TIME) : 1;
+
+      this.rate += weight * (sample - this.rate);
+      this.lastCompleted = completed;
+      this.lastSample = now;
+    }
+
+    this.total = total;
+
+    if ((now - this.lastPrinted) >= REFRESH_INTERVAL) {
+      this.lastPrinted = now;
+      this.lastProgress = (total > 0) ? (int) (100 * completed / total) : 100;
+      this.rewrite(format(this.name, completed, total, this.rate, threads));
+    }
+  }
+
   /**
    * Called when an operation starts.
    *
@@ -55,8 +181,45 @@ public class ShellProgress implements CryptographyHelper.ProgressListener {
    */
   @Override
   public void onStart(final String name) {
+    if (this.isSuppressed()) {
+      return;
+    }
+
+    this.name = name;
     this.start = System.currentTimeMillis();
     this.lastProgress = 0;
-    System.out.print(String.format("%s: %d%%..", name, this.lastProgress));
+    this.lastCompleted = 0;
+    this.lastSample = this.start;
+    this.lastPrinted = this.start;
+    this.rate = 0;
+    this.total = 0;
+
+    final String line = String.format("%s: %d%%..", name, this.lastProgress);
+    this.lastLength = line.length();
+    System.out.print(line);
+  }
+
+  /**
+   * @return True if progress on the current thread is not output, because it is reported by a background job or a workflow step.
+   */
+  private boolean isSuppressed() {
+    return JobManager.isBackground() || WorkflowRunner.isStep();
+  }
+
+  /**
+   * Rewrites the progress line in place, clearing any remainder of the previous line.
+   *
+   * @param line The new progress line.
+   */
+  private void rewrite(final String line) {
+    final StringBuilder builder = new StringBuilder("\r").append(line);
+
+    for (int i = line.length(); i < this.lastLength; i++) {
+      builder.append(' ');
+    }
+
+    this.lastLength = line.length();
+    System.out.print(builder);
+    System.out.flush();
   }
 }
@@ -13,6 +13,8 @@ import org.springframework.context.MessageSource;
 import org.springframework.core.annotation.Order;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
 
+import java.util.Arrays;
+
 /**
  * Spring Boot application entry point. Note that this bean has an order of 0 to make sure {@link ApplicationRunner} is run before the shell.
  *
@@ -40,11 +42,16 @@ public class VMVApplication implements ApplicationRunner {
   }
 
   /**
-   * Main entry point for application. Starts-up Spring.
+   * Main entry point for application. Starts-up Spring with the interactive shell, unless the first argument is {@link VMVCommandLine#RUN_ARGUMENT} in which
+   * case the remaining arguments are run headless as commands and the application exits with their status.
    *
    * @param args The command line arguments.
    */
   public static void main(final String[] args) {
+    if ((args.length > 0) && VMVCommandLine.RUN_ARGUMENT.equals(args[0])) {
+      System.exit(new VMVCommandLine().run(Arrays.copyOfRange(args, 1, args.length)));
+    }
+
     final SpringApplication application = new SpringApplication(VMVApplication.class);
     application.run(args);
   }
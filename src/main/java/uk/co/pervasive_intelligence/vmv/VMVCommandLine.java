@@ -0,0 +1,384 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv;
+
+import com.beust.jcommander.ParameterException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.boot.Banner;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.context.MessageSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.shell.Utils;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.util.ClassUtils;
+import uk.co.pervasive_intelligence.vmv.configuration.CacheConfiguration;
+import uk.co.pervasive_intelligence.vmv.configuration.CryptographyConfiguration;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.configuration.JobConfiguration;
+
+import javax.validation.ConstraintViolationException;
+import java.io.File;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Headless entry point which runs one or more shell commands without the interactive shell, for example from a script. The commands are given either in the
+ * argument vector, separated by {@link #COMMAND_SEPARATOR}, or one per line in a command file given with {@link #FILE_OPTION}. Only the configuration needed by
+ * the commands and the shell components which implement them are created, so that Spring Shell and JLine are never started.
+ * <p>
+ * The commands are run in order and the first to fail stops the run. The exit status is {@link #EXIT_SUCCESS} if all commands complete, {@link #EXIT_FAILURE}
+ * if a command fails and {@link #EXIT_USAGE} if the commands could not be understood.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VMVCommandLine {
+
+  /** The argument which separates commands in the argument vector. */
+  static final String COMMAND_SEPARATOR = ";";
+
+  /** The character which starts a comment line in a command file. */
+  static final String COMMENT = "#";
+
+  /** Exit status when a command has failed. */
+  static final int EXIT_FAILURE = 1;
+
+  /** Exit status when all commands have completed. */
+  static final int EXIT_SUCCESS = 0;
+
+  /** Exit status when the commands could not be understood. */
+  static final int EXIT_USAGE = 2;
+
+  /** The option which gives the command file in place of commands. */
+  static final String FILE_OPTION = "--file";
+
+  /** The first argument which selects the headless entry point. */
+  public static final String RUN_ARGUMENT = "run";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VMVCommandLine.class);
+
+  /** The base name of the message resources. */
+  private static final String MESSAGES_BASE_NAME = "messages/messages";
+
+  /** The shell command methods, by command name. */
+  private final Map<String, Method> commands;
+
+  /** The writer for errors. */
+  private final PrintWriter error;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /** The writer for the results of commands. */
+  private final PrintWriter output;
+
+  /**
+   * Default constructor: finds all of the shell commands in the application, writing results to the standard output and errors to the standard error.
+   */
+  public VMVCommandLine() {
+    this(new PrintWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), true),
+        new PrintWriter(new OutputStreamWriter(System.err, StandardCharsets.UTF_8), true));
+  }
+
+  /**
+   * Constructor: finds all of the shell commands in the application.
+   *
+   * @param output The writer for the results of commands.
+   * @param error  The writer for errors.
+   */
+  public VMVCommandLine(final PrintWriter output, final PrintWriter error) {
+    final ResourceBundleMessageSource resourceBundleMessageSource = new ResourceBundleMessageSource();
+    resourceBundleMessageSource.setBasename(MESSAGES_BASE_NAME);
+    resourceBundleMessageSource.setDefaultEncoding(StandardCharsets.UTF_8.name());
+
+    this.messageSource = resourceBundleMessageSource;
+    this.output = output;
+    this.error = error;
+    this.commands = findCommands();
+  }
+
+  /**
+   * Finds the shell command methods of all of the shell components in the application, by command name. The command name is derived in the same way as Spring
+   * Shell: the key of the command if given, otherwise the method name with each capital letter replaced by a hyphen and its lower case.
+   *
+   * @return The command methods, by command name.
+   */
+  public static Map<String, Method> findCommands() {
+    final ClassPathScanningCandidateComponentProvider provider = new ClassPathScanningCandidateComponentProvider(false);
+    provider.addIncludeFilter(new AnnotationTypeFilter(ShellComponent.class));
+
+    final Map<String, Method> commands = new TreeMap<>();
+
+    for (final BeanDefinition beanDefinition : provider.findCandidateComponents(VMVCommandLine.class.getPackage().getName())) {
+      final Class<?> clazz = ClassUtils.resolveClassName(beanDefinition.getBeanClassName(), VMVCommandLine.class.getClassLoader());
+
+      for (final Method method : clazz.getMethods()) {
+        final ShellMethod shellMethod = method.getAnnotation(ShellMethod.class);
+
+        if (shellMethod != null) {
+          final String[] keys = (shellMethod.key().length > 0) ? shellMethod.key() : new String[] {Utils.unCamelify(method.getName())};
+
+          for (final String key : keys) {
+            commands.put(key, method);
+          }
+        }
+      }
+    }
+
+    return commands;
+  }
+
+  /**
+   * Splits the arguments into commands, where each command is its name followed by its options. The commands are either separated by
+   * {@link #COMMAND_SEPARATOR} or read from the command file given by {@link #FILE_OPTION}, one per line. Blank lines and lines starting with {@link #COMMENT}
+   * are ignored in a command file.
+   *
+   * @param args The arguments.
+   * @return The commands.
+   * @throws Exception if the command file could not be read or a line could not be split.
+   */
+  static List<List<String>> parse(final String... args) throws Exception {
+    final List<List<String>> commands = new ArrayList<>();
+
+    if ((args.length == 2) && FILE_OPTION.equals(args[0])) {
+      for (final String line : Files.readAllLines(new File(args[1]).toPath(), StandardCharsets.UTF_8)) {
+        final String trimmed = line.trim();
+
+        if (!trimmed.isEmpty() && !trimmed.startsWith(COMMENT)) {
+          commands.add(tokenise(trimmed));
+        }
+      }
+    }
+    else {
+      List<String> command = new ArrayList<>();
+
+      for (final String arg : args) {
+        if (COMMAND_SEPARATOR.equals(arg)) {
+          if (!command.isEmpty()) {
+            commands.add(command);
+          }
+
+          command = new ArrayList<>();
+        }
+        else {
+          command.add(arg);
+        }
+      }
+
+      if (!command.isEmpty()) {
+        commands.add(command);
+      }
+    }
+
+    return commands;
+  }
+
+  /**
+   * Resolves the arguments of a shell command method from its options in the same way as the shell, including validating them since the method is then
+   * invoked directly rather than by the shell.
+   *
+   * @param resolver The parameter resolver.
+   * @param method   The shell command method.
+   * @param words    The options of the command, excluding the command name.
+   * @return The arguments.
+   * @throws ParameterException           if the options are not valid for the command.
+   * @throws ConstraintViolationException if the resolved options fail validation.
+   */
+  public static Object[] resolveArguments(final JCommanderParameterResolver resolver, final Method method, final List<String> words) {
+    final Object[] arguments = new Object[method.getParameterCount()];
+
+    for (int i = 0; i < arguments.length; i++) {
+      final MethodParameter parameter = Utils.createMethodParameter(method, i);
+      arguments[i] = resolver.resolve(parameter, words).resolvedValue();
+      resolver.validate(parameter, arguments[i]);
+    }
+
+    return arguments;
+  }
+
+  /**
+   * Splits a line of a command file into words in the same way as the shell: words are separated by white space, unless quoted with single or double quotes.
+   *
+   * @param line The line.
+   * @return The words.
+   * @throws IllegalArgumentException if a quote is not closed.
+   */
+  public static List<String> tokenise(final String line) {
+    final List<String> words = new ArrayList<>();
+    final StringBuilder word = new StringBuilder();
+    boolean inWord = false;
+    char quote = 0;
+
+    for (final char c : line.toCharArray()) {
+      if (quote != 0) {
+        if (c == quote) {
+          quote = 0;
+        }
+        else {
+          word.append(c);
+        }
+      }
+      else if ((c == '"') || (c == '\'')) {
+        quote = c;
+        inWord = true;
+      }
+      else if (Character.isWhitespace(c)) {
+        if (inWord) {
+          words.add(word.toString());
+          word.setLength(0);
+          inWord = false;
+        }
+      }
+      else {
+        word.append(c);
+        inWord = true;
+      }
+    }
+
+    if (quote != 0) {
+      throw new IllegalArgumentException("Unclosed quote in: " + line);
+    }
+
+    if (inWord) {
+      words.add(word.toString());
+    }
+
+    return words;
+  }
+
+  /**
+   * Creates the application context containing only the configuration and shell components needed by the commands.
+   *
+   * @param components The shell components needed.
+   * @return The started application context.
+   */
+  private ConfigurableApplicationContext createContext(final Set<Class<?>> components) {
+    final List<Class<?>> sources = new ArrayList<>(Arrays.asList(PropertyPlaceholderAutoConfiguration.class, MessageSourceAutoConfiguration.class,
+        CacheConfiguration.class, CryptographyConfiguration.class, JCommanderConfiguration.class, JobConfiguration.class));
+    sources.addAll(components);
+
+    return new SpringApplicationBuilder(sources.toArray(new Class<?>[0]))
+        .web(WebApplicationType.NONE)
+        .bannerMode(Banner.Mode.OFF)
+        .logStartupInfo(false)
+        .run();
+  }
+
+  /**
+   * Outputs a message to the error writer and the log.
+   *
+   * @param code      The message code.
+   * @param arguments The message arguments.
+   */
+  private void error(final String code, final Object... arguments) {
+    final String message = this.messageSource.getMessage(code, arguments, null);
+    LOG.error(message);
+    this.error.println(message);
+    this.error.flush();
+  }
+
+  /**
+   * @return The names of all of the commands which can be run.
+   */
+  public Set<String> getCommands() {
+    return Collections.unmodifiableSet(this.commands.keySet());
+  }
+
+  /**
+   * Runs the commands in order, stopping at the first which fails.
+   *
+   * @param args The commands, separated by {@link #COMMAND_SEPARATOR}, or {@link #FILE_OPTION} followed by the command file.
+   * @return The exit status.
+   */
+  public int run(final String... args) {
+    final List<List<String>> commands;
+
+    try {
+      commands = parse(args);
+    }
+    catch (final Exception e) {
+      LOG.error("run:", e);
+      this.error("application.headless.unreadable", e.getMessage());
+      return EXIT_USAGE;
+    }
+
+    if (commands.isEmpty()) {
+      this.error("application.headless.usage", RUN_ARGUMENT, COMMAND_SEPARATOR, FILE_OPTION);
+      return EXIT_USAGE;
+    }
+
+    // Check all of the commands before any are run.
+    final Set<Class<?>> components = new LinkedHashSet<>();
+
+    for (final List<String> command : commands) {
+      final Method method = this.commands.get(command.get(0));
+
+      if (method == null) {
+        this.error("application.headless.unknown_command", command.get(0), String.join(", ", this.commands.keySet()));
+        return EXIT_USAGE;
+      }
+
+      components.add(method.getDeclaringClass());
+    }
+
+    try (final ConfigurableApplicationContext context = this.createContext(components)) {
+      final JCommanderParameterResolver resolver = context.getBean(JCommanderParameterResolver.class);
+
+      for (final List<String> command : commands) {
+        final String name = command.get(0);
+        final List<String> words = command.subList(1, command.size());
+        final Method method = this.commands.get(name);
+        final Object[] arguments;
+
+        try {
+          arguments = resolveArguments(resolver, method, words);
+        }
+        catch (final ParameterException | ConstraintViolationException e) {
+          this.error("application.headless.invalid_options", name, e.getMessage());
+          return EXIT_USAGE;
+        }
+
+        try {
+          final Object result = method.invoke(context.getBean(method.getDeclaringClass()), arguments);
+
+          if (result != null) {
+            LOG.info("{}: {}", name, result);
+            this.output.println(result);
+            this.output.flush();
+          }
+        }
+        catch (final InvocationTargetException e) {
+          final Throwable cause = (e.getCause() != null) ? e.getCause() : e;
+          this.error("application.headless.failed", name, cause.getMessage());
+          return EXIT_FAILURE;
+        }
+      }
+    }
+    catch (final Exception e) {
+      LOG.error("run:", e);
+      this.error("application.headless.error", e.getMessage());
+      return EXIT_FAILURE;
+    }
+
+    return EXIT_SUCCESS;
+  }
+}
@@ -0,0 +1,37 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.configuration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+import uk.co.pervasive_intelligence.vmv.ArtefactCache;
+
+/**
+ * Cache configuration.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@Configuration
+public class CacheConfiguration {
+
+  /** The number of bytes in a megabyte. */
+  private static final long MEGABYTE = 1024L * 1024L;
+
+  /**
+   * Used to inject the singleton {@link ArtefactCache} shared by all shell components.
+   *
+   * @param budget The maximum estimated memory in megabytes used by the cache: zero disables the cache.
+   * @return The {@link ArtefactCache}.
+   */
+  @Bean
+  @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
+  public ArtefactCache artefactCache(@Value("${vmv.cache.budget:256}") final long budget) {
+    return new ArtefactCache(budget * MEGABYTE);
+  }
+}
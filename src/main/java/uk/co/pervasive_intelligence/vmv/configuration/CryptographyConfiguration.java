@@ -5,6 +5,7 @@
  */
 package uk.co.pervasive_intelligence.vmv.configuration;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
@@ -13,11 +14,18 @@ import org.springframework.context.annotation.Scope;
 import uk.co.pervasive_intelligence.vmv.ShellProgress;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.SeleneCryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.SimulatedVerificatumHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Cryptographic configuration.
@@ -47,6 +55,9 @@ public class CryptographyConfiguration {
    * @param verificatumHelper The Verificatum helper.
    * @param schnorrAlgorithmHelper Schnorr algorithm helper.
    * @param chaumPedersenAlgorithmHelper Chaum-Pedersen algorithm helper.
+   * @param shuffleAlgorithmHelper Shuffle algorithm helper used when there are no tellers.
+   * @param metrics The metrics shared by all helpers and shell components.
+   * @param parallelism The number of threads shared by all commands for parallel processing: zero for the number of processors.
    * @return The {@link CryptographyHelper}.
    */
   @Bean
@@ -54,10 +65,23 @@ public class CryptographyConfiguration {
   public CryptographyHelper cryptographyHelper(final MessageSource messageSource, final DSAAlgorithmHelper dsaAlgorithmHelper,
                                                final ElGamalAlgorithmHelper elgamalAlgorithmHelper, final VerificatumHelper verificatumHelper,
                                                final SchnorrAlgorithmHelper schnorrAlgorithmHelper,
-                                               final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper) {
+                                               final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper,
+                                               final ShuffleAlgorithmHelper shuffleAlgorithmHelper, final Metrics metrics,
+                                               @Value("${vmv.cryptography.parallelism:0}") final int parallelism) {
     final SeleneCryptographyHelper cryptographyHelper = new SeleneCryptographyHelper(messageSource, dsaAlgorithmHelper, elgamalAlgorithmHelper, verificatumHelper,
-        schnorrAlgorithmHelper, chaumPedersenAlgorithmHelper);
-    cryptographyHelper.addProgressListener(new ShellProgress());
+        schnorrAlgorithmHelper, chaumPedersenAlgorithmHelper, shuffleAlgorithmHelper);
+
+    // Commands running at the same time, such as background jobs, share the one executor so that they stay within the same number of threads.
+    cryptographyHelper.setExecutor(Executors.newWorkStealingPool((parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors()));
+
+    // Record the metrics of all operations, including Verificatum's commands, in the same report.
+    cryptographyHelper.setMetrics(metrics);
+    verificatumHelper.setMetrics(metrics);
+
+    // Share the progress so that Verificatum's protocol progress is shown in the same way as other operations.
+    final ShellProgress progress = new ShellProgress();
+    cryptographyHelper.addProgressListener(progress);
+    verificatumHelper.addProgressListener(progress);
 
     return cryptographyHelper;
   }
@@ -84,6 +108,19 @@ public class CryptographyConfiguration {
     return new ElGamalAlgorithmHelper();
   }
 
+  /*
+   * Used to inject the singleton {@link Metrics}.
+   *
+   * @param report The name of the metrics report written, after the name of the command, next to the output file of each command. If empty, no report is
+   *               written.
+   * @return The {@link Metrics}.
+   */
+  @Bean
+  @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
+  public Metrics metrics(@Value("${vmv.metrics.report:" + Metrics.DEFAULT_REPORT + "}") final String report) {
+    return new Metrics(report.isEmpty() ? null : report);
+  }
+
   /*
    * Used to inject the singleton {@link SchnorrAlgorithmHelper}.
    *
@@ -95,14 +132,37 @@ public class CryptographyConfiguration {
     return new SchnorrAlgorithmHelper();
   }
 
+  /*
+   * Used to inject the singleton {@link ShuffleAlgorithmHelper}.
+   *
+   * @return The {@link ShuffleAlgorithmHelper}.
+   */
+  @Bean
+  @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
+  public ShuffleAlgorithmHelper shuffleAlgorithmHelper() {
+    return new ShuffleAlgorithmHelper();
+  }
+
   /*
    * Used to inject the singleton {@link VerificatumHelper}.
    *
+   * @param library The directory containing the Verificatum JAR files used to run commands in-process. If empty, all commands are run as processes.
+   * @param nativeLibrary The directory containing the Verificatum native libraries used for GMP arithmetic. If empty, the default library path is searched.
+   * @param timeout The maximum time in seconds for a Verificatum command to run, or zero for no limit.
+   * @param simulate True if the tellers should be simulated within this JVM rather than run by Verificatum.
    * @return The {@link VerificatumHelper}.
    */
   @Bean
   @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
-  public VerificatumHelper verificatumHelper() {
-    return new VerificatumHelper();
+  public VerificatumHelper verificatumHelper(@Value("${vmv.verificatum.library:}") final String library,
+                                             @Value("${vmv.verificatum.native-library:}") final String nativeLibrary,
+                                             @Value("${vmv.verificatum.timeout:0}") final long timeout,
+                                             @Value("${vmv.verificatum.simulate:false}") final boolean simulate) {
+    if (simulate) {
+      return new SimulatedVerificatumHelper(TimeUnit.SECONDS.toMillis(timeout));
+    }
+
+    return new VerificatumHelper(library.isEmpty() ? null : new File(library), nativeLibrary.isEmpty() ? null : new File(nativeLibrary),
+        TimeUnit.SECONDS.toMillis(timeout));
   }
 }
@@ -12,6 +12,7 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.annotation.Order;
 import org.springframework.shell.jcommander.JCommanderParameterResolverAutoConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
 
 import java.io.File;
 import java.math.BigInteger;
@@ -54,6 +55,23 @@ public class JCommanderConfiguration {
     }
   }
 
+  /**
+   * Class used to parse string parameters into {@link ElementEncoding} values, ignoring case.
+   */
+  public static class ElementEncodingConverter implements IStringConverter<ElementEncoding> {
+
+    /**
+     * Converts the string value.
+     *
+     * @param value The value to convert.
+     * @return The corresponding {@link ElementEncoding} value.
+     */
+    @Override
+    public ElementEncoding convert(final String value) {
+      return ElementEncoding.valueOf(value.toUpperCase());
+    }
+  }
+
   /**
    * Class used to parse string parameters into {@link File} objects.
    */
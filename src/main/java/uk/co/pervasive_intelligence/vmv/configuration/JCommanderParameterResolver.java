@@ -13,6 +13,9 @@ import org.springframework.shell.ParameterDescription;
 import org.springframework.shell.*;
 import org.springframework.util.ReflectionUtils;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
 import javax.validation.Validation;
 import javax.validation.Validator;
 import javax.validation.ValidatorFactory;
@@ -22,6 +25,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -177,4 +181,25 @@ public class JCommanderParameterResolver implements ParameterResolver {
 
     return isSupported.get();
   }
+
+  /**
+   * Validates a resolved value in the same way as the shell does before invoking a command, which is only if the parameter is annotated with {@link Valid}.
+   * Commands which are invoked directly, rather than by the shell, must be validated with this method.
+   *
+   * @param parameter The parameter which has been resolved.
+   * @param value     The resolved value.
+   * @throws ConstraintViolationException if the value is not valid.
+   */
+  public void validate(final MethodParameter parameter, final Object value) {
+    if ((value != null) && parameter.hasParameterAnnotation(Valid.class)) {
+      final Set<ConstraintViolation<Object>> violations = this.validator.validate(value);
+
+      if (!violations.isEmpty()) {
+        throw new ConstraintViolationException(violations.stream()
+            .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+            .sorted()
+            .collect(Collectors.joining(", ")), violations);
+      }
+    }
+  }
 }
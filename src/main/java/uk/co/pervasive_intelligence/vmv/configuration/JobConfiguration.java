@@ -0,0 +1,40 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.configuration;
+
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Scope;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumHelper;
+import uk.co.pervasive_intelligence.vmv.job.JobManager;
+
+/**
+ * Background job configuration.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@Configuration
+public class JobConfiguration {
+
+  /**
+   * Used to inject the singleton {@link JobManager}. Running jobs are cancelled when the application closes.
+   *
+   * @param cryptographyHelper The cryptography helper, which reports the progress of each job.
+   * @param verificatumHelper  The Verificatum helper, which reports the progress of each job.
+   * @return The {@link JobManager}.
+   */
+  @Bean(destroyMethod = "shutdown")
+  @Scope(value = ConfigurableBeanFactory.SCOPE_SINGLETON)
+  public JobManager jobManager(final CryptographyHelper cryptographyHelper, final VerificatumHelper verificatumHelper) {
+    final JobManager jobManager = new JobManager();
+    cryptographyHelper.addProgressListener(jobManager);
+    verificatumHelper.addProgressListener(jobManager);
+
+    return jobManager;
+  }
+}
@@ -20,6 +20,9 @@ import java.util.Set;
  */
 public interface CryptographyHelper {
 
+  /** The number of voters at and above which voters are held in a columnar {@link VoterStore}. */
+  int COLUMNAR_VOTERS_THRESHOLD = 100000;
+
   /** Default Verificatum hint port. */
   int DEFAULT_HINT_PORT = 8081;
 
@@ -69,11 +72,41 @@ public interface CryptographyHelper {
    * @param keyPair        The election key pair.
    * @param votersKeyPairs The list of voter key pairs.
    * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @return The encrypted commitment values and the corresponding CSV proof file. The proof file may be deleted once used.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  default ProofWrapper<List<Commitment>> createCommitments(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
+                                                           final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+    return this.createCommitments(parameters, keyPair, votersKeyPairs, trackerNumbers, false);
+  }
+
+  /**
+   * Uses the list of voter key pairs and tracker numbers and creates the corresponding encrypted commitments for them, as
+   * {@link #createCommitments(Parameters, KeyPair, List, List)}, optionally writing the proofs straight into a {@link ProofArchive} as they are created.
+   *
+   * @param parameters     The election parameters.
+   * @param keyPair        The election key pair.
+   * @param votersKeyPairs The list of voter key pairs.
+   * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @param archive        True if the proof file is to be written as a {@link ProofArchive} indexed by each voter's public key, false for a CSV file.
    * @return The encrypted commitment values and the corresponding proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   ProofWrapper<List<Commitment>> createCommitments(Parameters parameters, KeyPair keyPair, List<VoterKeyPairs> votersKeyPairs,
-                                                   List<TrackerNumber> trackerNumbers) throws CryptographyException;
+                                                   List<TrackerNumber> trackerNumbers, boolean archive) throws CryptographyException;
+
+  /**
+   * Creates a teller's share of the threshold decryption of a list of ciphertexts using the key share held in its teller directory, as created by
+   * {@link #mergeKeyShares(Parameters, int, List)}. The share includes proofs that it was made with the teller's key share, and is published so that any threshold
+   * number of shares can be combined to decrypt the ciphertexts.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param cipherTexts The ciphertexts to decrypt.
+   * @return The teller's decryption share.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  DecryptionShare createDecryptionShare(Parameters parameters, int teller, List<CipherText> cipherTexts) throws CryptographyException;
 
   /**
    * Creates the election key pair using the created parameters.
@@ -94,6 +127,19 @@ public interface CryptographyHelper {
    */
   Parameters createElectionParameters(Object... options) throws CryptographyException;
 
+  /**
+   * Creates a teller's contribution to the election key without a dealer. The teller chooses a random secret polynomial and writes the share of it dealt to each
+   * teller into its teller directory, from where each must be copied privately to the recipient's teller directory. The returned commitments to the polynomial
+   * are published so that every teller can check the shares it receives. Once all tellers have done this, each calls
+   * {@link #mergeKeyShares(Parameters, int, List)}.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The commitments to the teller's polynomial.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  KeyShareCommitments createKeyShares(Parameters parameters, int teller) throws CryptographyException;
+
   /**
    * Creates a Verificatum teller, returning its information file which should be shared with all other tellers.
    *
@@ -140,8 +186,31 @@ public interface CryptographyHelper {
    * @return The consolidated list of voter data ready to be associated with voters and the corresponding proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
+  default ProofWrapper<List<Voter>> decryptCommitments(final Parameters parameters, final KeyPair keyPair, final int teller,
+                                                       final List<VoterKeyPairs> votersKeyPairs, final List<TrackerNumber> trackerNumbers,
+                                                       final List<List<Commitment>> commitments) throws CryptographyException {
+    return this.decryptCommitments(parameters, keyPair, teller, votersKeyPairs, trackerNumbers, commitments, null);
+  }
+
+  /**
+   * Decrypts the commitments and forms the final association between each voter key pair, tracker number and commitment, as
+   * {@link #decryptCommitments(Parameters, KeyPair, int, List, List, List)}, optionally combining the tellers' published decryption shares of the commitments
+   * formed by {@link #formCommitments(Parameters, List, List, List)} rather than decrypting with Verificatum.
+   *
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair.
+   * @param teller           The number of the teller. Each teller has a unique number, starting at 1.
+   * @param votersKeyPairs   The list of voter key pairs.
+   * @param trackerNumbers   The shuffled list of public tracker numbers.
+   * @param commitments      The encrypted commitments from each teller.
+   * @param decryptionShares The decryption shares of a threshold number of tellers, or null to decrypt with Verificatum or locally.
+   * @return The consolidated list of voter data ready to be associated with voters and the corresponding proof file. The proof file may be deleted once used,
+   * and is null when the decryption shares are combined since the shares are their own proof.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
   ProofWrapper<List<Voter>> decryptCommitments(Parameters parameters, KeyPair keyPair, int teller, List<VoterKeyPairs> votersKeyPairs,
-                                               List<TrackerNumber> trackerNumbers, List<List<Commitment>> commitments) throws CryptographyException;
+                                               List<TrackerNumber> trackerNumbers, List<List<Commitment>> commitments, List<DecryptionShare> decryptionShares)
+      throws CryptographyException;
 
   /**
    * Uses an alpha and beta to obtain the decrypted tracker number for a voter given their public encryption key.
@@ -158,6 +227,34 @@ public interface CryptographyHelper {
   TrackerNumber decryptTrackerNumber(Parameters parameters, BigInteger alpha, BigInteger beta, BigInteger publicKey, List<VoterKeyPairs> votersKeyPairs,
                                      List<TrackerNumber> trackerNumbers) throws CryptographyException;
 
+  /**
+   * Uses an alpha and beta to obtain the decrypted tracker number in the group for a voter, so that the tracker number can be looked up by the caller.
+   *
+   * @param parameters The election parameters.
+   * @param alpha      The alpha commitment.
+   * @param beta       The beta commitment.
+   * @param keyPair    The voter's trapdoor key pair.
+   * @return The tracker number in the group.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  BigInteger decryptTrackerNumberInGroup(Parameters parameters, BigInteger alpha, BigInteger beta, KeyPair keyPair) throws CryptographyException;
+
+  /**
+   * Combines the tellers' published decryption shares of the votes shuffled by {@link #shuffleVotes(Parameters, KeyPair, int, List)} to obtain the plaintext
+   * vote and tracker number of each voter.
+   *
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair. Only the public key is needed.
+   * @param trackerNumbers   The tracker numbers for conversion of tracker number in group to plaintext tracker number.
+   * @param voteOptions      The list of vote options for conversion of option number in group to plaintext vote.
+   * @param cipherTexts      The shuffled encrypted tracker numbers and votes, one block per voter.
+   * @param decryptionShares The decryption shares of the shuffled ciphertexts from a threshold number of tellers.
+   * @return The mixed list of voter data with plaintext vote and tracker number.
+   * @throws CryptographyException if a share is invalid or the cryptographic operation could not be completed.
+   */
+  List<Voter> decryptVotes(Parameters parameters, KeyPair keyPair, List<TrackerNumber> trackerNumbers, List<VoteOption> voteOptions,
+                           List<CipherText> cipherTexts, List<DecryptionShare> decryptionShares) throws CryptographyException;
+
   /**
    * Encrypts and signs the plaintext votes for every voter. The voter list is updated to include the encrypted vote and this list is also returned together with
    * the proof of knowledge.
@@ -168,17 +265,61 @@ public interface CryptographyHelper {
    * @param voteOptions      The list of vote options.
    * @param voters           The list of voters with their plaintext votes.
    * @param ersEncryptProofs The optional list of encryption proofs which go alongside prior encrypted votes.
+   * @return The encrypted list of voter data and the corresponding CSV proof file. The proof file may be deleted once used.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  default ProofWrapper<List<Voter>> encryptVotes(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
+                                                 final List<VoteOption> voteOptions, final List<Voter> voters, final List<EncryptProof> ersEncryptProofs)
+      throws CryptographyException {
+    return this.encryptVotes(parameters, keyPair, votersKeyPairs, voteOptions, voters, ersEncryptProofs, false);
+  }
+
+  /**
+   * Encrypts and signs the plaintext votes for every voter, as {@link #encryptVotes(Parameters, KeyPair, List, List, List, List)}, optionally writing the proofs
+   * straight into a {@link ProofArchive} as they are created.
+   *
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair.
+   * @param votersKeyPairs   The list of voter key pairs.
+   * @param voteOptions      The list of vote options.
+   * @param voters           The list of voters with their plaintext votes.
+   * @param ersEncryptProofs The optional list of encryption proofs which go alongside prior encrypted votes.
+   * @param archive          True if the proof file is to be written as a {@link ProofArchive} indexed by each voter's public key, false for a CSV file.
    * @return The encrypted list of voter data and the corresponding proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   ProofWrapper<List<Voter>> encryptVotes(Parameters parameters, KeyPair keyPair, List<VoterKeyPairs> votersKeyPairs, List<VoteOption> voteOptions,
-                                         List<Voter> voters, final List<EncryptProof> ersEncryptProofs) throws CryptographyException;
+                                         List<Voter> voters, List<EncryptProof> ersEncryptProofs, boolean archive) throws CryptographyException;
+
+  /**
+   * Forms the encrypted commitment of each voter from the commitments of every teller and the voter's encrypted tracker number. These are the ciphertexts
+   * decrypted by {@link #decryptCommitments(Parameters, KeyPair, int, List, List, List, List)}.
+   *
+   * @param parameters     The election parameters.
+   * @param votersKeyPairs The list of voter key pairs.
+   * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @param commitments    The encrypted commitments from each teller.
+   * @return The encrypted commitment of each voter, in the same order as the voter key pairs.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  List<CipherText> formCommitments(Parameters parameters, List<VoterKeyPairs> votersKeyPairs, List<TrackerNumber> trackerNumbers,
+                                   List<List<Commitment>> commitments) throws CryptographyException;
 
   /**
    * @return The class used for the election parameters.
    */
   Class<? extends Parameters> getElectionParametersClass();
 
+  /**
+   * Gets the array of key share deal files dealt to a teller, in dealer order. The files are assumed to be held within the specified teller directory.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The array of key share deal files.
+   * @throws CryptographyException if incorrect teller information is provided.
+   */
+  File[] getKeyShareDealFiles(Parameters parameters, int teller) throws CryptographyException;
+
   /**
    * @return The secure random number generator.
    */
@@ -221,6 +362,19 @@ public interface CryptographyHelper {
    */
   void mapVoteOptions(Parameters parameters, List<VoteOption> voteOptions) throws CryptographyException;
 
+  /**
+   * Merges the shares of the election key dealt to a teller by every teller, as created by {@link #createKeyShares(Parameters, int)} and copied into the teller's
+   * directory, into the teller's key share. Each share is checked against its dealer's published commitments. The key share is held in the teller directory and
+   * the election public key, formed from the commitments, is set in the teller's Verificatum session so that it shuffles under the key.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param commitments The published commitments of every teller, in teller order.
+   * @return The election key pair with only the public key present.
+   * @throws CryptographyException if a share is missing or invalid, or the cryptographic operation could not be completed.
+   */
+  KeyPair mergeKeyShares(Parameters parameters, int teller, List<KeyShareCommitments> commitments) throws CryptographyException;
+
   /**
    * Merges the Verificatum teller information files ready to perform key generation, shuffling, mixing or decryption.
    *
@@ -244,6 +398,19 @@ public interface CryptographyHelper {
   ProofWrapper<List<Voter>> mixVotes(Parameters parameters, KeyPair keyPair, int teller, List<TrackerNumber> trackerNumbers, List<VoteOption> voteOptions,
                                      List<Voter> voters) throws CryptographyException;
 
+  /**
+   * Precomputes as much of the tracker number shuffle and the vote mix as possible before the ciphertexts are known, for example during the voting period, so
+   * that {@link #shuffleTrackerNumbers(Parameters, KeyPair, int, List)} and {@link #mixVotes(Parameters, KeyPair, int, List, List, List)} automatically use the
+   * precomputed material. All tellers must precompute at the same time.
+   *
+   * @param parameters            The election parameters.
+   * @param teller                The number of the teller. Each teller has a unique number, starting at 1.
+   * @param maximumTrackerNumbers The maximum number of tracker numbers which will be shuffled, or zero to skip the shuffle.
+   * @param maximumVoters         The maximum number of votes which will be mixed, or zero to skip the mix.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  void precomputeMixing(Parameters parameters, int teller, int maximumTrackerNumbers, int maximumVoters) throws CryptographyException;
+
   /**
    * Removes a progress listener. If the listener was not added, it will be ignored.
    *
@@ -255,12 +422,68 @@ public interface CryptographyHelper {
    * Shuffles the tracker numbers.
    *
    * @param parameters     The election parameters.
+   * @param keyPair        The election key pair. Only the public key is needed, and only when there are no tellers.
    * @param teller         The number of the teller. Each teller has a unique number, starting at 1.
    * @param trackerNumbers The tracker numbers to shuffle
    * @return The shuffled tracker numbers and the corresponding shuffle proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
-  ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(Parameters parameters, int teller, List<TrackerNumber> trackerNumbers) throws CryptographyException;
+  ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(Parameters parameters, KeyPair keyPair, int teller, List<TrackerNumber> trackerNumbers)
+      throws CryptographyException;
+
+  /**
+   * Shuffles the encrypted tracker number and vote of each voter without decrypting them, so that the tellers can then each publish a decryption share with
+   * {@link #createDecryptionShare(Parameters, int, List)} and the votes are decrypted by {@link #decryptVotes(Parameters, KeyPair, List, List, List, List)}.
+   *
+   * @param parameters The election parameters.
+   * @param keyPair    The election key pair. Only the public key is needed, and only when there are no tellers.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param voters     The list of voters with their encrypted votes and encrypted tracker numbers.
+   * @return The shuffled encrypted tracker numbers and votes, one block per voter, and the corresponding shuffle proof file. The proof file may be deleted once
+   * used.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  ProofWrapper<List<CipherText>> shuffleVotes(Parameters parameters, KeyPair keyPair, int teller, List<Voter> voters) throws CryptographyException;
+
+  /**
+   * Verifies the proofs of knowledge of a single voter's commitment, as published by {@link #createCommitments(Parameters, KeyPair, List, List)}.
+   *
+   * @param parameters      The election parameters.
+   * @param keyPair         The election key pair. Only the public key is needed.
+   * @param voterPublicKey  The voter's public encryption key.
+   * @param commitment      The voter's commitment.
+   * @param commitmentProof The proof of knowledge of the voter's commitment.
+   * @return True if the proof is valid.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  boolean verifyCommitmentProof(Parameters parameters, KeyPair keyPair, BigInteger voterPublicKey, Commitment commitment, CommitmentProof commitmentProof)
+      throws CryptographyException;
+
+  /**
+   * Verifies the proof of knowledge of the encryption of a single encrypted vote, together with the voter's signature of the encrypted vote, as published by
+   * {@link #encryptVotes(Parameters, KeyPair, List, List, List, List)}.
+   *
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair. Only the public key is needed.
+   * @param encrypted        The encrypted vote.
+   * @param signatureKeyPair The voter's signature key pair. Only the public key is needed.
+   * @param encryptProof     The proof of encryption.
+   * @return True if the proof is valid.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  boolean verifyEncryptProof(Parameters parameters, KeyPair keyPair, byte[] encrypted, KeyPair signatureKeyPair, EncryptProof encryptProof)
+      throws CryptographyException;
+
+  /**
+   * Verifies published proofs of shuffle, mixing or decryption, such as those published by {@link #shuffleTrackerNumbers(Parameters, KeyPair, int, List)}.
+   * Each proof is only verified against the election's own published values and fails if it was created for any other values.
+   *
+   * @param statement The election's own published values.
+   * @param proofs    The published proof files.
+   * @return The outcome of verifying each proof, in the same order as the proofs.
+   * @throws CryptographyException if the proofs could not be read.
+   */
+  List<ProofVerification> verifyProofs(ProofStatement statement, List<File> proofs) throws CryptographyException;
 
   /**
    * Used to provide progress on operations.
@@ -279,6 +502,18 @@ public interface CryptographyHelper {
      */
     void onProgress(final float progress);
 
+    /**
+     * Called at a fixed interval while the items of an operation are processed in parallel, with the number of items completed so far in any order. By default
+     * only the percentage progress is passed on.
+     *
+     * @param completed The number of items completed.
+     * @param total     The total number of items.
+     * @param threads   The number of worker threads currently active.
+     */
+    default void onProgress(final long completed, final long total, final int threads) {
+      this.onProgress((total > 0) ? 100 * completed / (float) total : 100f);
+    }
+
     /**
      * Called when an operation starts.
      *
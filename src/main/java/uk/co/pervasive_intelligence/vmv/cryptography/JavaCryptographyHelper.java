@@ -8,6 +8,7 @@ package uk.co.pervasive_intelligence.vmv.cryptography;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
 
 import javax.crypto.Cipher;
 import java.security.SecureRandom;
@@ -28,6 +29,9 @@ public abstract class JavaCryptographyHelper extends BaseHelper implements Crypt
   /** Logger. */
   private static final Logger LOG = LoggerFactory.getLogger(JavaCryptographyHelper.class);
 
+  /** The metrics recorded for each phase of each operation. */
+  private Metrics metrics = new Metrics();
+
   /** The set of progress listeners. */
   private final Set<ProgressListener> progressListeners = new LinkedHashSet<>();
 
@@ -63,6 +67,13 @@ public abstract class JavaCryptographyHelper extends BaseHelper implements Crypt
     }
   }
 
+  /**
+   * @return The metrics recorded for each phase of each operation.
+   */
+  public Metrics getMetrics() {
+    return this.metrics;
+  }
+
   /**
    * @return The secure random number generator.
    */
@@ -120,6 +131,15 @@ public abstract class JavaCryptographyHelper extends BaseHelper implements Crypt
     this.progressListeners.remove(listener);
   }
 
+  /**
+   * Sets the metrics recorded for each phase of each operation, such as metrics shared with other helpers.
+   *
+   * @param metrics The metrics.
+   */
+  public void setMetrics(final Metrics metrics) {
+    this.metrics = metrics;
+  }
+
   /**
    * Called to start progress for all listeners.
    *
@@ -141,4 +161,17 @@ public abstract class JavaCryptographyHelper extends BaseHelper implements Crypt
       listener.onProgress(progress);
     }
   }
+
+  /**
+   * Called to update progress for all listeners from the number of items completed.
+   *
+   * @param completed The number of items completed.
+   * @param total     The total number of items.
+   * @param threads   The number of worker threads currently active.
+   */
+  void updateProgress(final long completed, final long total, final int threads) {
+    for (final ProgressListener listener : this.progressListeners) {
+      listener.onProgress(completed, total, threads);
+    }
+  }
 }
@@ -0,0 +1,775 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Chunked, compressed and indexed archive of proofs. The proofs are split into fixed size chunks, each of which is written as a separately compressed CSV entry in a
+ * ZIP file. Proofs may have an optional key (such as the voter's public key), and the keys are held in an index which is sorted by key and itself split into
+ * chunks, with only the first key of each index chunk held in the index header. Opening an archive therefore only reads the header, a proof is retrieved by key
+ * by binary searching the header and then a single index chunk before decompressing only the proof's chunk, and the proofs can be verified one chunk at a time
+ * in parallel.
+ * <p>
+ * Archives are written as the proofs are created using {@link #create(File, Class, Class, ElementEncoding, int)}, so that only a single chunk of proofs, and the
+ * keys, are held in memory.
+ *
+ * @param <T> The type of proof.
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ProofArchive<T> implements Closeable {
+
+  /** The default number of proofs in each chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+  /** The file extension used to request an archive rather than a single CSV file. */
+  public static final String EXTENSION = ".zip";
+
+  /** The name of the archive information entry. */
+  private static final String ARCHIVE_ENTRY = "archive.csv";
+
+  /** The name format of each chunk entry. */
+  private static final String CHUNK_ENTRY = "chunk-%08d.csv";
+
+  /** The name format of each index chunk entry. */
+  private static final String INDEX_CHUNK_ENTRY = "index-%08d.csv";
+
+  /** The name of the index header entry. */
+  private static final String INDEX_ENTRY = "index.csv";
+
+  /** The archive information. */
+  private final ArchiveInfo info;
+
+  /** The class of proof. */
+  private final Class<T> clazz;
+
+  /** The first key of each index chunk, in key order. */
+  private final List<IndexChunk> indexChunks;
+
+  /** Used to read CSV content. */
+  private final BaseShellComponent shellComponent;
+
+  /** The optional view to filter for. */
+  private final Class<?> view;
+
+  /** The archive. */
+  private final ZipFile zipFile;
+
+  /**
+   * Constructor requiring the opened archive and its index header.
+   *
+   * @param zipFile        The archive.
+   * @param clazz          The class of proof.
+   * @param view           The optional view to filter for.
+   * @param info           The archive information.
+   * @param indexChunks    The first key of each index chunk, in key order.
+   * @param shellComponent Used to read CSV content.
+   */
+  private ProofArchive(final ZipFile zipFile, final Class<T> clazz, final Class<?> view, final ArchiveInfo info, final List<IndexChunk> indexChunks,
+                       final BaseShellComponent shellComponent) {
+    this.zipFile = zipFile;
+    this.clazz = clazz;
+    this.view = view;
+    this.info = info;
+    this.indexChunks = indexChunks;
+    this.shellComponent = shellComponent;
+  }
+
+  /**
+   * Creates an archive to which proofs are added as they are created. The archive is only complete once it has been closed.
+   *
+   * @param file      The archive file.
+   * @param clazz     The class of proof.
+   * @param view      The optional view to filter for.
+   * @param encoding  The encoding used for {@link BigInteger} values.
+   * @param chunkSize The number of proofs in each chunk.
+   * @param <T>       The type of proof.
+   * @return The archive writer, which must be closed once all of the proofs have been added.
+   * @throws CryptographyException if the archive could not be created.
+   */
+  public static <T> ChunkWriter<T> create(final File file, final Class<T> clazz, final Class<?> view, final ElementEncoding encoding, final int chunkSize)
+      throws CryptographyException {
+    if (chunkSize <= 0) {
+      throw new CryptographyException("Invalid proof archive chunk size: " + chunkSize);
+    }
+
+    try {
+      return new ChunkWriter<>(new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(file.toPath()))), clazz, view, encoding, chunkSize);
+    }
+    catch (final IOException e) {
+      throw new CryptographyException("Could not create proof archive " + file, e);
+    }
+  }
+
+  /**
+   * Creates a CSV reader and writer.
+   *
+   * @return The shell component used to read and write CSV content.
+   */
+  private static BaseShellComponent createShellComponent() {
+    return new BaseShellComponent() {
+    };
+  }
+
+  /**
+   * Determines if a file is to be treated as a proof archive.
+   *
+   * @param file The file.
+   * @return True if the file has the archive extension.
+   */
+  public static boolean isArchive(final File file) {
+    return (file != null) && file.getName().toLowerCase(Locale.ROOT).endsWith(EXTENSION);
+  }
+
+  /**
+   * Opens a proof archive, reading its information and index header.
+   *
+   * @param file  The archive file.
+   * @param clazz The class of proof.
+   * @param view  The optional view to filter for.
+   * @param <T>   The type of proof.
+   * @return The opened archive, which must be closed once finished with.
+   * @throws CryptographyException if the archive could not be opened or does not hold the required class of proof.
+   */
+  public static <T> ProofArchive<T> open(final File file, final Class<T> clazz, final Class<?> view) throws CryptographyException {
+    ZipFile zipFile = null;
+
+    try {
+      zipFile = new ZipFile(file);
+      final BaseShellComponent shellComponent = createShellComponent();
+      final ArchiveInfo info = readInfo(zipFile, shellComponent);
+
+      if (!clazz.getSimpleName().equals(info.getType())) {
+        throw new CryptographyException("Proof archive " + file + " holds " + info.getType() + " not " + clazz.getSimpleName());
+      }
+
+      final List<IndexChunk> indexChunks = read(zipFile, INDEX_ENTRY, IndexChunk.class, null, shellComponent);
+
+      return new ProofArchive<>(zipFile, clazz, view, info, indexChunks, shellComponent);
+    }
+    catch (final Exception e) {
+      if (zipFile != null) {
+        try {
+          zipFile.close();
+        }
+        catch (final IOException ignored) {
+          // Do nothing.
+        }
+      }
+
+      if (e instanceof CryptographyException) {
+        throw (CryptographyException) e;
+      }
+
+      throw new CryptographyException("Could not open proof archive " + file, e);
+    }
+  }
+
+  /**
+   * Reads all of the values in an archive entry.
+   *
+   * @param zipFile        The archive.
+   * @param name           The name of the entry.
+   * @param clazz          The class of value.
+   * @param view           The optional view to filter for.
+   * @param shellComponent Used to read CSV content.
+   * @param <V>            The type of value.
+   * @return The values.
+   * @throws CryptographyException if the entry is missing or could not be read.
+   */
+  private static <V> List<V> read(final ZipFile zipFile, final String name, final Class<V> clazz, final Class<?> view, final BaseShellComponent shellComponent)
+      throws CryptographyException {
+    final ZipEntry entry = zipFile.getEntry(name);
+
+    if (entry == null) {
+      throw new CryptographyException("Missing proof archive entry: " + name);
+    }
+
+    try (final BufferedReader input = new BufferedReader(new InputStreamReader(zipFile.getInputStream(entry), StandardCharsets.UTF_8))) {
+      return shellComponent.readCSV(input, clazz, view, new ArrayList<>());
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not read proof archive entry: " + name, e);
+    }
+  }
+
+  /**
+   * Reads the archive information.
+   *
+   * @param zipFile        The archive.
+   * @param shellComponent Used to read CSV content.
+   * @return The archive information.
+   * @throws CryptographyException if the information could not be read.
+   */
+  private static ArchiveInfo readInfo(final ZipFile zipFile, final BaseShellComponent shellComponent) throws CryptographyException {
+    final List<ArchiveInfo> info = read(zipFile, ARCHIVE_ENTRY, ArchiveInfo.class, null, shellComponent);
+
+    if (info.size() != 1) {
+      throw new CryptographyException("Invalid proof archive information");
+    }
+
+    return info.get(0);
+  }
+
+  /**
+   * Reads the type of proof held in an archive, so that the archive can be opened for the correct class of proof.
+   *
+   * @param file The archive file.
+   * @return The simple class name of the proofs.
+   * @throws CryptographyException if the archive could not be read.
+   */
+  public static String readType(final File file) throws CryptographyException {
+    try (final ZipFile zipFile = new ZipFile(file)) {
+      return readInfo(zipFile, createShellComponent()).getType();
+    }
+    catch (final IOException e) {
+      throw new CryptographyException("Could not open proof archive " + file, e);
+    }
+  }
+
+  /**
+   * Writes the proofs as an archive. The optional keys are in the same order as the proofs, and any null keys cannot be used to retrieve a proof.
+   *
+   * @param file      The archive file.
+   * @param clazz     The class of proof.
+   * @param proofs    The proofs.
+   * @param keys      The optional keys for each proof, such as the voter's public key. May be null.
+   * @param view      The optional view to filter for.
+   * @param encoding  The encoding used for {@link BigInteger} values.
+   * @param chunkSize The number of proofs in each chunk.
+   * @param <T>       The type of proof.
+   * @throws CryptographyException if the archive could not be written.
+   */
+  public static <T> void write(final File file, final Class<T> clazz, final List<T> proofs, final List<BigInteger> keys, final Class<?> view,
+                               final ElementEncoding encoding, final int chunkSize) throws CryptographyException {
+    if ((keys != null) && (keys.size() != proofs.size())) {
+      throw new CryptographyException("Number of keys and proofs does not match: " + keys.size() + " vs. " + proofs.size());
+    }
+
+    try (final ChunkWriter<T> writer = create(file, clazz, view, encoding, chunkSize)) {
+      for (int i = 0; i < proofs.size(); i++) {
+        writer.add(proofs.get(i), (keys != null) ? keys.get(i) : null);
+      }
+    }
+  }
+
+  /**
+   * Closes the archive.
+   *
+   * @throws IOException if the archive could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    this.zipFile.close();
+  }
+
+  /**
+   * Finds the position of the first proof with a key by binary searching the index header and then the index chunk which could hold the key.
+   *
+   * @param key The key.
+   * @return The position of the proof, or -1 if there is no proof with the key.
+   * @throws CryptographyException if the index could not be read.
+   */
+  private int find(final BigInteger key) throws CryptographyException {
+    // Find the first index chunk starting at or after the key.
+    int low = 0;
+    int high = this.indexChunks.size();
+
+    while (low < high) {
+      final int middle = (low + high) >>> 1;
+
+      if (this.indexChunks.get(middle).getFirstKey().compareTo(key) < 0) {
+        low = middle + 1;
+      }
+      else {
+        high = middle;
+      }
+    }
+
+    // The first occurrence of the key is either at the end of the previous index chunk or at the start of the found one.
+    if (low > 0) {
+      final List<IndexEntry> entries = read(this.zipFile, String.format(INDEX_CHUNK_ENTRY, low - 1), IndexEntry.class, null, this.shellComponent);
+      final int index = Collections.binarySearch(entries, new IndexEntry(key, -1), IndexEntry.ORDER);
+      final int insertion = (index < 0) ? -(index + 1) : index;
+
+      if ((insertion < entries.size()) && entries.get(insertion).getKey().equals(key)) {
+        return entries.get(insertion).getPosition();
+      }
+    }
+
+    if ((low < this.indexChunks.size()) && this.indexChunks.get(low).getFirstKey().equals(key)) {
+      return read(this.zipFile, String.format(INDEX_CHUNK_ENTRY, low), IndexEntry.class, null, this.shellComponent).get(0).getPosition();
+    }
+
+    return -1;
+  }
+
+  /**
+   * Retrieves a single proof by its position, decompressing only its chunk.
+   *
+   * @param position The position of the proof.
+   * @return The proof.
+   * @throws CryptographyException if the proof could not be read.
+   */
+  public T get(final int position) throws CryptographyException {
+    if ((position < 0) || (position >= this.info.getProofs())) {
+      throw new CryptographyException("Invalid proof position: " + position);
+    }
+
+    final List<T> chunk = this.getChunk(position / this.info.getChunkSize());
+    final int row = position % this.info.getChunkSize();
+
+    if (row >= chunk.size()) {
+      throw new CryptographyException("Missing proof at position: " + position);
+    }
+
+    return chunk.get(row);
+  }
+
+  /**
+   * Retrieves a single proof by its key, reading only the index header, a single index chunk and the proof's chunk.
+   *
+   * @param key The key of the proof, such as the voter's public key.
+   * @return The proof, or null if there is no proof for the key.
+   * @throws CryptographyException if the proof could not be read.
+   */
+  public T get(final BigInteger key) throws CryptographyException {
+    final int position = this.find(key);
+
+    return (position < 0) ? null : this.get(position);
+  }
+
+  /**
+   * Reads all of the proofs which have a key, decompressing each chunk once.
+   *
+   * @return The proofs, by key.
+   * @throws CryptographyException if the proofs could not be read.
+   */
+  public Map<BigInteger, T> getByKey() throws CryptographyException {
+    final BigInteger[] keys = new BigInteger[this.info.getProofs()];
+    int numberOfKeys = 0;
+
+    // Read the keys in key order, keeping the first position of any duplicates.
+    for (int i = 0; i < this.indexChunks.size(); i++) {
+      for (final IndexEntry entry : read(this.zipFile, String.format(INDEX_CHUNK_ENTRY, i), IndexEntry.class, null, this.shellComponent)) {
+        if ((entry.getPosition() >= 0) && (entry.getPosition() < keys.length) && (keys[entry.getPosition()] == null)) {
+          keys[entry.getPosition()] = entry.getKey();
+          numberOfKeys++;
+        }
+      }
+    }
+
+    final Map<BigInteger, T> proofs = new HashMap<>(numberOfKeys * 2);
+
+    for (int chunk = 0; chunk < this.getNumberOfChunks(); chunk++) {
+      final List<T> chunkProofs = this.getChunk(chunk);
+
+      for (int row = 0; row < chunkProofs.size(); row++) {
+        final int position = (chunk * this.info.getChunkSize()) + row;
+
+        if ((position < keys.length) && (keys[position] != null)) {
+          proofs.putIfAbsent(keys[position], chunkProofs.get(row));
+        }
+      }
+    }
+
+    return proofs;
+  }
+
+  /**
+   * Reads all of the proofs in a chunk.
+   *
+   * @param chunk The chunk number.
+   * @return The proofs in the chunk.
+   * @throws CryptographyException if the chunk could not be read.
+   */
+  public List<T> getChunk(final int chunk) throws CryptographyException {
+    return read(this.zipFile, String.format(CHUNK_ENTRY, chunk), this.clazz, this.view, this.shellComponent);
+  }
+
+  /**
+   * @return The number of chunks.
+   */
+  public int getNumberOfChunks() {
+    return (this.info.getProofs() + this.info.getChunkSize() - 1) / this.info.getChunkSize();
+  }
+
+  /**
+   * @return The number of proofs.
+   */
+  public int size() {
+    return this.info.getProofs();
+  }
+
+  /**
+   * Verifies all of the proofs in the archive, with each chunk being read and verified as a separate parallel task.
+   *
+   * @param executor The executor used to run the tasks.
+   * @param verifier Verifies each proof.
+   * @return True if all of the proofs were verified.
+   * @throws CryptographyException if the proofs could not be read or verified.
+   */
+  public boolean verify(final ExecutorService executor, final ProofVerifier<T> verifier) throws CryptographyException {
+    final List<Callable<Boolean>> verifyTasks = new ArrayList<>();
+
+    for (int i = 0; i < this.getNumberOfChunks(); i++) {
+      final int chunk = i;
+
+      verifyTasks.add(() -> {
+        final List<T> proofs = this.getChunk(chunk);
+        boolean verified = true;
+        int row = 0;
+
+        while (verified && (row < proofs.size())) {
+          verified = verifier.verify((chunk * this.info.getChunkSize()) + row, proofs.get(row));
+          row++;
+        }
+
+        return verified;
+      });
+    }
+
+    try {
+      boolean verified = true;
+
+      for (final Future<Boolean> future : executor.invokeAll(verifyTasks)) {
+        verified &= future.get();
+      }
+
+      return verified;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not verify proof archive in parallel", e);
+    }
+  }
+
+  /**
+   * Verifies a single proof from an archive.
+   *
+   * @param <T> The type of proof.
+   */
+  @FunctionalInterface
+  public interface ProofVerifier<T> {
+
+    /**
+     * Verifies a single proof.
+     *
+     * @param position The position of the proof in the archive.
+     * @param proof    The proof.
+     * @return True if the proof is verified.
+     * @throws CryptographyException if the proof could not be verified.
+     */
+    boolean verify(int position, T proof) throws CryptographyException;
+  }
+
+  /**
+   * The archive information.
+   */
+  public static class ArchiveInfo {
+
+    /** The number of proofs in each full chunk. */
+    private int chunkSize;
+
+    /** The number of proofs. */
+    private int proofs;
+
+    /** The simple class name of the proofs. */
+    private String type;
+
+    /**
+     * Constructor for de-serialisation.
+     */
+    private ArchiveInfo() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor requiring all fields.
+     *
+     * @param type      The simple class name of the proofs.
+     * @param proofs    The number of proofs.
+     * @param chunkSize The number of proofs in each full chunk.
+     */
+    public ArchiveInfo(final String type, final int proofs, final int chunkSize) {
+      this.type = type;
+      this.proofs = proofs;
+      this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @return The number of proofs in each full chunk.
+     */
+    public int getChunkSize() {
+      return this.chunkSize;
+    }
+
+    /**
+     * @return The number of proofs.
+     */
+    public int getProofs() {
+      return this.proofs;
+    }
+
+    /**
+     * @return The simple class name of the proofs.
+     */
+    public String getType() {
+      return this.type;
+    }
+  }
+
+  /**
+   * Writes an archive as the proofs are created. Each chunk is compressed into the archive as soon as it is full, and the keys are sorted and written as the index
+   * when the writer is closed.
+   *
+   * @param <T> The type of proof.
+   */
+  public static class ChunkWriter<T> implements AutoCloseable {
+
+    /** The proofs in the current chunk. */
+    private final List<T> chunk;
+
+    /** The number of proofs in each chunk. */
+    private final int chunkSize;
+
+    /** The class of proof. */
+    private final Class<T> clazz;
+
+    /** The encoding used for {@link BigInteger} values. */
+    private final ElementEncoding encoding;
+
+    /** The keys of the proofs and their positions. */
+    private final List<IndexEntry> keys = new ArrayList<>();
+
+    /** The archive. */
+    private final ZipOutputStream output;
+
+    /** Used to write CSV content. */
+    private final BaseShellComponent shellComponent = createShellComponent();
+
+    /** The optional view to filter for. */
+    private final Class<?> view;
+
+    /** Writes to the current archive entry. */
+    private final Writer writer;
+
+    /** Has the writer been closed? */
+    private boolean closed = false;
+
+    /** The number of proofs added. */
+    private int size = 0;
+
+    /**
+     * Constructor requiring the archive output.
+     *
+     * @param output    The archive.
+     * @param clazz     The class of proof.
+     * @param view      The optional view to filter for.
+     * @param encoding  The encoding used for {@link BigInteger} values.
+     * @param chunkSize The number of proofs in each chunk.
+     */
+    private ChunkWriter(final ZipOutputStream output, final Class<T> clazz, final Class<?> view, final ElementEncoding encoding, final int chunkSize) {
+      this.output = output;
+      this.writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+      this.clazz = clazz;
+      this.view = view;
+      this.encoding = encoding;
+      this.chunkSize = chunkSize;
+      this.chunk = new ArrayList<>(chunkSize);
+    }
+
+    /**
+     * Adds the next proof to the archive.
+     *
+     * @param proof The proof.
+     * @param key   The optional key of the proof, such as the voter's public key. May be null, in which case the proof cannot be retrieved by key.
+     * @throws CryptographyException if the proof could not be written.
+     */
+    public void add(final T proof, final BigInteger key) throws CryptographyException {
+      if (key != null) {
+        this.keys.add(new IndexEntry(key, this.size));
+      }
+
+      this.chunk.add(proof);
+      this.size++;
+
+      if (this.chunk.size() >= this.chunkSize) {
+        this.writeChunk();
+      }
+    }
+
+    /**
+     * Writes any partial chunk followed by the index and archive information, and closes the archive.
+     *
+     * @throws CryptographyException if the archive could not be written.
+     */
+    @Override
+    public void close() throws CryptographyException {
+      if (this.closed) {
+        return;
+      }
+
+      this.closed = true;
+
+      try {
+        if (!this.chunk.isEmpty()) {
+          this.writeChunk();
+        }
+
+        // Sort the keys, keeping the positions of duplicates in order, and write them as index chunks headed by their first key.
+        this.keys.sort(IndexEntry.ORDER);
+        final List<IndexChunk> indexChunks = new ArrayList<>();
+
+        for (int start = 0; start < this.keys.size(); start += this.chunkSize) {
+          final List<IndexEntry> entries = this.keys.subList(start, Math.min(start + this.chunkSize, this.keys.size()));
+          this.writeEntry(String.format(INDEX_CHUNK_ENTRY, indexChunks.size()), IndexEntry.class, entries, null);
+          indexChunks.add(new IndexChunk(entries.get(0).getKey()));
+        }
+
+        this.writeEntry(INDEX_ENTRY, IndexChunk.class, indexChunks, null);
+        this.writeEntry(ARCHIVE_ENTRY, ArchiveInfo.class, Collections.singletonList(new ArchiveInfo(this.clazz.getSimpleName(), this.size, this.chunkSize)),
+            null);
+      }
+      finally {
+        try {
+          this.output.close();
+        }
+        catch (final IOException e) {
+          throw new CryptographyException("Could not close proof archive", e);
+        }
+      }
+    }
+
+    /**
+     * @return The number of proofs added.
+     */
+    public int size() {
+      return this.size;
+    }
+
+    /**
+     * Writes the current chunk as a separate entry so that it can be decompressed on its own.
+     *
+     * @throws CryptographyException if the chunk could not be written.
+     */
+    private void writeChunk() throws CryptographyException {
+      this.writeEntry(String.format(CHUNK_ENTRY, (this.size - 1) / this.chunkSize), this.clazz, this.chunk, this.view);
+      this.chunk.clear();
+    }
+
+    /**
+     * Writes an archive entry.
+     *
+     * @param name    The name of the entry.
+     * @param clazz   The class of value.
+     * @param content The values.
+     * @param view    The optional view to filter for.
+     * @throws CryptographyException if the entry could not be written.
+     */
+    private void writeEntry(final String name, final Class<?> clazz, final List<?> content, final Class<?> view) throws CryptographyException {
+      try {
+        this.output.putNextEntry(new ZipEntry(name));
+        this.shellComponent.writeCSV(this.writer, clazz, content, view, this.encoding);
+        this.output.closeEntry();
+      }
+      catch (final Exception e) {
+        throw new CryptographyException("Could not write proof archive entry: " + name, e);
+      }
+    }
+  }
+
+  /**
+   * The header of an index chunk.
+   */
+  public static class IndexChunk {
+
+    /** The first key in the index chunk. */
+    private BigInteger firstKey;
+
+    /**
+     * Constructor for de-serialisation.
+     */
+    private IndexChunk() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor requiring all fields.
+     *
+     * @param firstKey The first key in the index chunk.
+     */
+    public IndexChunk(final BigInteger firstKey) {
+      this.firstKey = firstKey;
+    }
+
+    /**
+     * @return The first key in the index chunk.
+     */
+    public BigInteger getFirstKey() {
+      return this.firstKey;
+    }
+  }
+
+  /**
+   * An entry in the archive index.
+   */
+  public static class IndexEntry {
+
+    /** Orders entries by key and then by position. */
+    static final Comparator<IndexEntry> ORDER = Comparator.comparing(IndexEntry::getKey).thenComparingInt(IndexEntry::getPosition);
+
+    /** The key of the proof. */
+    private BigInteger key;
+
+    /** The position of the proof in the archive. */
+    private int position;
+
+    /**
+     * Constructor for de-serialisation.
+     */
+    private IndexEntry() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor requiring all fields.
+     *
+     * @param key      The key of the proof.
+     * @param position The position of the proof in the archive.
+     */
+    public IndexEntry(final BigInteger key, final int position) {
+      this.key = key;
+      this.position = position;
+    }
+
+    /**
+     * @return The key of the proof.
+     */
+    public BigInteger getKey() {
+      return this.key;
+    }
+
+    /**
+     * @return The position of the proof in the archive.
+     */
+    public int getPosition() {
+      return this.position;
+    }
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Packages proofs for publication. A proof directory, such as that written by Verificatum, is ZIPped straight to its final destination and a proof file is moved
+ * there, so that the proof is only ever written once. The destination is replaced atomically where the file system allows, so that a partially written proof is
+ * never published.
+ * <p>
+ * Proof directories largely contain byte trees of group elements, which are effectively random and do not compress. Each file is therefore sampled before it is
+ * added: incompressible files are stored rather than deflated, and their checksums, which must be known before a stored entry is written, are calculated in
+ * parallel.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ProofPackage {
+
+  /** The size of the buffer used to read files. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The suffix of the partially written destination. */
+  private static final String PART_SUFFIX = ".part";
+
+  /** The number of bytes at the start of each file which are compressed to decide whether the file is compressible. */
+  private static final int SAMPLE_SIZE = 64 * 1024;
+
+  /** The proportion of the sample size above which a compressed sample shows that its file is not worth compressing. */
+  private static final double STORE_RATIO = 0.9;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ProofPackage() {
+    // Do nothing.
+  }
+
+  /**
+   * Determines whether a file is worth compressing by compressing a sample from its start.
+   *
+   * @param path The file.
+   * @return True if the file should be deflated, false if it should be stored.
+   * @throws IOException if the file could not be read.
+   */
+  private static boolean isCompressible(final Path path) throws IOException {
+    final byte[] sample = new byte[SAMPLE_SIZE];
+    int length = 0;
+
+    try (final InputStream input = Files.newInputStream(path)) {
+      int read;
+
+      while ((length < sample.length) && ((read = input.read(sample, length, sample.length - length)) > 0)) {
+        length += read;
+      }
+    }
+
+    if (length == 0) {
+      return false;
+    }
+
+    final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    try {
+      deflater.setInput(sample, 0, length);
+      deflater.finish();
+
+      final byte[] compressed = new byte[BUFFER_SIZE];
+      long compressedLength = 0;
+
+      while (!deflater.finished()) {
+        compressedLength += deflater.deflate(compressed);
+      }
+
+      return compressedLength < (length * STORE_RATIO);
+    }
+    finally {
+      deflater.end();
+    }
+  }
+
+  /**
+   * Moves a file to its destination, replacing any existing file. The move is atomic where the file system allows.
+   *
+   * @param source      The file to move.
+   * @param destination The destination.
+   * @throws IOException if the file could not be moved.
+   */
+  private static void move(final Path source, final Path destination) throws IOException {
+    try {
+      Files.move(source, destination, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (final AtomicMoveNotSupportedException e) {
+      Files.move(source, destination, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Creates the ZIP entry for a file in a proof directory, deciding whether to deflate or store it. Stored entries have their size and checksum set.
+   *
+   * @param directory The proof directory.
+   * @param path      The file within the directory.
+   * @return The ZIP entry.
+   * @throws IOException if the file could not be read.
+   */
+  private static ZipEntry prepareEntry(final Path directory, final Path path) throws IOException {
+    final ZipEntry zipEntry = new ZipEntry(directory.relativize(path).toString().replace(File.separatorChar, '/'));
+
+    if (!isCompressible(path)) {
+      final CRC32 crc = new CRC32();
+      final byte[] buffer = new byte[BUFFER_SIZE];
+      long size = 0;
+
+      try (final InputStream input = Files.newInputStream(path)) {
+        int read;
+
+        while ((read = input.read(buffer)) > 0) {
+          crc.update(buffer, 0, read);
+          size += read;
+        }
+      }
+
+      zipEntry.setMethod(ZipEntry.STORED);
+      zipEntry.setSize(size);
+      zipEntry.setCompressedSize(size);
+      zipEntry.setCrc(crc.getValue());
+    }
+
+    return zipEntry;
+  }
+
+  /**
+   * Publishes a proof to its destination, replacing any existing file. A proof directory is ZIPped to the destination, while a proof file is moved there.
+   *
+   * @param proof       The proof directory or file.
+   * @param destination The destination file.
+   * @throws CryptographyException if the proof could not be published.
+   */
+  public static void publish(final File proof, final File destination) throws CryptographyException {
+    if (proof.isDirectory()) {
+      write(proof.toPath(), destination.toPath());
+    }
+    else {
+      try {
+        move(proof.toPath(), destination.toPath());
+      }
+      catch (final Exception e) {
+        throw new CryptographyException("Could not publish proof file", e);
+      }
+    }
+  }
+
+  /**
+   * Unpacks a published proof into a directory so that it can be verified. A ZIPped proof directory is streamed entry by entry into the directory without
+   * first being copied, while a proof directory is used as it is.
+   *
+   * @param proof     The published proof ZIP file or proof directory.
+   * @param directory The empty directory into which a ZIPped proof is unpacked.
+   * @return The proof directory.
+   * @throws CryptographyException if the proof could not be unpacked.
+   */
+  public static File unpack(final File proof, final Path directory) throws CryptographyException {
+    if (proof.isDirectory()) {
+      return proof;
+    }
+
+    final Path root = directory.toAbsolutePath().normalize();
+
+    try (final ZipInputStream zipInputStream = new ZipInputStream(new BufferedInputStream(new FileInputStream(proof), BUFFER_SIZE))) {
+      ZipEntry zipEntry;
+
+      while ((zipEntry = zipInputStream.getNextEntry()) != null) {
+        final Path path = root.resolve(zipEntry.getName()).normalize();
+
+        // Never write outside of the directory.
+        if (!path.startsWith(root)) {
+          throw new CryptographyException("Invalid proof entry " + zipEntry.getName());
+        }
+
+        if (zipEntry.isDirectory()) {
+          Files.createDirectories(path);
+        }
+        else {
+          Files.createDirectories(path.getParent());
+          Files.copy(zipInputStream, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        zipInputStream.closeEntry();
+      }
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not unpack proof file", e);
+    }
+
+    return root.toFile();
+  }
+
+  /**
+   * ZIPs the specified directory straight to the specified ZIP file. The ZIP file is written alongside the destination and then moved into place.
+   *
+   * @param directory The directory to ZIP.
+   * @param zipFile   The output ZIP file.
+   * @throws CryptographyException if the directory could not be ZIPped.
+   */
+  public static void write(final Path directory, final Path zipFile) throws CryptographyException {
+    final Path absoluteZipFile = zipFile.toAbsolutePath();
+    Path partFile = null;
+
+    try {
+      // Sample and checksum the files in parallel, keeping them in a fixed order.
+      final List<Path> paths;
+
+      try (final Stream<Path> walk = Files.walk(directory)) {
+        paths = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+      }
+
+      final List<ZipEntry> zipEntries = paths.parallelStream().map(path -> {
+        try {
+          return prepareEntry(directory, path);
+        }
+        catch (final Exception e) {
+          throw new RuntimeException(e); // Re-throw as an unchecked exception because of the lambda.
+        }
+      }).collect(Collectors.toList());
+
+      // Write the ZIP file next to its destination so that it can be renamed into place.
+      partFile = Files.createTempFile(absoluteZipFile.getParent(), "." + absoluteZipFile.getFileName(), PART_SUFFIX);
+
+      try (final ZipOutputStream zipOutputStream = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partFile), BUFFER_SIZE))) {
+        for (int i = 0; i < paths.size(); i++) {
+          zipOutputStream.putNextEntry(zipEntries.get(i));
+          Files.copy(paths.get(i), zipOutputStream);
+          zipOutputStream.closeEntry();
+        }
+      }
+
+      move(partFile, absoluteZipFile);
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not create ZIP file", e);
+    }
+    finally {
+      if (partFile != null) {
+        partFile.toFile().delete();
+      }
+    }
+  }
+}
@@ -5,7 +5,8 @@
  */
 package uk.co.pervasive_intelligence.vmv.cryptography;
 
-import com.fasterxml.jackson.annotation.JsonView;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import org.springframework.context.MessageSource;
 import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
@@ -14,16 +15,23 @@ import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.threshold.ThresholdDecryptionAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
 import java.math.BigInteger;
 import java.net.InetAddress;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.util.*;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,6 +42,33 @@ import java.util.stream.IntStream;
  */
 public class SeleneCryptographyHelper extends JavaCryptographyHelper {
 
+  /** The number of items processed by each parallel task in {@link #invokeBatches(int, BatchTask, BatchConsumer)}. */
+  static final int BATCH_SIZE = 256;
+
+  /** The number of batches submitted at a time for each thread in {@link #invokeBatches(int, BatchTask, BatchConsumer)}. */
+  static final int BATCHES_PER_THREAD = 4;
+
+  /** The prefix of the key share deal files written into, and copied between, the teller directories. */
+  static final String KEY_SHARE_DEAL_PREFIX = "keyShareDeal";
+
+  /** The file in the teller directory holding the teller's share of the election key. */
+  static final String KEY_SHARE_FILENAME = "keyShare.json";
+
+  /** JSON file extension. */
+  private static final String JSON_EXTENSION = ".json";
+
+  /** The number of ciphertexts mixed as a block for each vote: the tracker number and the vote. */
+  static final int MIX_VOTES_WIDTH = 2;
+
+  /** The interval in milliseconds at which the progress of parallel tasks is reported. */
+  static final long PROGRESS_INTERVAL = 500;
+
+  /** The type of proof reported when verifying a shuffle proof. */
+  static final String SHUFFLE_PROOF_TYPE = "shuffling";
+
+  /** The number of ciphertexts shuffled as a block for each tracker number. */
+  static final int SHUFFLE_TRACKER_NUMBERS_WIDTH = 1;
+
   /** The maximum tracker number values. */
   static final int TRACKER_NUMBER_MAX = 99999999;
 
@@ -50,7 +85,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
   private final ElGamalAlgorithmHelper elgamalAlgorithmHelper;
 
   /** Executor used for parallel processing. */
-  private final ExecutorService executor = Executors.newWorkStealingPool();
+  private ExecutorService executor = Executors.newWorkStealingPool();
 
   /** The source for messages. */
   private final MessageSource messageSource;
@@ -58,6 +93,12 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
   /** Schnorr algorithm helper. */
   private final SchnorrAlgorithmHelper schnorrAlgorithmHelper;
 
+  /** Shuffle algorithm helper used when there are no tellers. */
+  private final ShuffleAlgorithmHelper shuffleAlgorithmHelper;
+
+  /** Threshold decryption helper used to generate the key shares and create and combine the decryption shares. */
+  private final ThresholdDecryptionAlgorithmHelper thresholdDecryptionAlgorithmHelper;
+
   /** Verificatum helper. */
   private final VerificatumHelper verificatumHelper;
 
@@ -70,16 +111,33 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
    * @param verificatumHelper            The Verificatum helper.
    * @param schnorrAlgorithmHelper       Schnorr algorithm helper.
    * @param chaumPedersenAlgorithmHelper Chaum-Pedersen algorithm helper.
+   * @param shuffleAlgorithmHelper       Shuffle algorithm helper used when there are no tellers.
    */
   public SeleneCryptographyHelper(final MessageSource messageSource, final DSAAlgorithmHelper dsaAlgorithmHelper,
                                   final ElGamalAlgorithmHelper elgamalAlgorithmHelper, final VerificatumHelper verificatumHelper,
-                                  final SchnorrAlgorithmHelper schnorrAlgorithmHelper, final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper) {
+                                  final SchnorrAlgorithmHelper schnorrAlgorithmHelper, final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper,
+                                  final ShuffleAlgorithmHelper shuffleAlgorithmHelper) {
     this.messageSource = messageSource;
     this.dsaAlgorithmHelper = dsaAlgorithmHelper;
     this.elgamalAlgorithmHelper = elgamalAlgorithmHelper;
     this.verificatumHelper = verificatumHelper;
     this.schnorrAlgorithmHelper = schnorrAlgorithmHelper;
     this.chaumPedersenAlgorithmHelper = chaumPedersenAlgorithmHelper;
+    this.shuffleAlgorithmHelper = shuffleAlgorithmHelper;
+    this.thresholdDecryptionAlgorithmHelper = new ThresholdDecryptionAlgorithmHelper(chaumPedersenAlgorithmHelper);
+  }
+
+  /**
+   * Constructs the name of the file holding the share of the election key dealt by one teller to another.
+   *
+   * @param parameters The election parameters.
+   * @param dealer     The number of the teller which dealt the share.
+   * @param recipient  The number of the teller to which the share is dealt.
+   * @return The name of the file.
+   */
+  public static String getKeyShareDealFilename(final Parameters parameters, final int dealer, final int recipient) {
+    return String.format("%s-%s-%s%s", KEY_SHARE_DEAL_PREFIX, VerificatumHelper.getTellerName(parameters, dealer),
+        VerificatumHelper.getTellerName(parameters, recipient), JSON_EXTENSION);
   }
 
   /**
@@ -169,6 +227,27 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     this.endProgress();
   }
 
+  /**
+   * Checks that there is a tracker number and a commitment from each teller for every voter.
+   *
+   * @param votersKeyPairs The list of voter key pairs.
+   * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @param commitments    The encrypted commitments from each teller.
+   * @throws CryptographyException if the numbers do not match.
+   */
+  private void checkCommitments(final List<VoterKeyPairs> votersKeyPairs, final List<TrackerNumber> trackerNumbers, final List<List<Commitment>> commitments)
+      throws CryptographyException {
+    int commitmentsSize = 0;
+    for (final List<Commitment> list : commitments) {
+      commitmentsSize = Math.max(commitmentsSize, list.size());
+    }
+
+    if ((votersKeyPairs.size() != trackerNumbers.size()) || (votersKeyPairs.size() != commitmentsSize)) {
+      throw new CryptographyException("Number of voter key pairs, tracker numbers or commitments does not match: " + votersKeyPairs.size() + " vs. "
+          + trackerNumbers.size() + " vs. " + commitments.size());
+    }
+  }
+
   /**
    * Checks that the teller parameters are correct for the election.
    *
@@ -208,6 +287,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     // Create the alpha commitment values from all of the teller files. This assumes that the voters and partial commitments are in the same order, albeit we
     // check that the voter's public key matches.
     this.startProgress(this.messageSource.getMessage("cryptography.selene.complete.commitment", new Object[] {voters.size()}, null));
+    final Metrics.Timer timer = this.getMetrics().start("complete-commitments", Metrics.TOTAL).setItems(voters.size());
     final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
 
     for (int i = 0; i < voters.size(); i++) {
@@ -234,6 +314,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
       this.updateProgress(100 * (i + 1) / (float) voters.size());
     }
 
+    timer.close();
     this.endProgress();
   }
 
@@ -288,36 +369,40 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     final BigInteger q = wrapper.getQ();
     final BigInteger g = wrapper.getG();
 
-    // Form the statements.
-    final CipherText cipherTextG = new CipherText(commitment.getEncryptedG()); // (A1, A2).
-    final CipherText cipherTextH = new CipherText(commitment.getEncryptedH()); // (B1, B2).
+    // Form the statements, decoding each ciphertext component once.
+    final CipherTextView view = new CipherTextView();
+
+    view.wrap(commitment.getEncryptedG());
+    final BigInteger a1 = view.getAlpha();
+    final BigInteger a2 = view.getBeta();
+
+    view.wrap(commitment.getEncryptedH());
+    final BigInteger b1 = view.getAlpha();
+    final BigInteger b2 = view.getBeta();
 
     // pi11 = NIZK2.Prove(A1; g; s1) where s1 is the encryptionSecretG.
-    final Proof pi11 = this.schnorrAlgorithmHelper.generateProof(this.getRandom(), parameters, encryptionSecretG, new Statement(cipherTextG.getAlpha(), g));
+    final Proof pi11 = this.schnorrAlgorithmHelper.generateProof(this.getRandom(), parameters, encryptionSecretG, new Statement(a1, g));
 
     // pi12 = NIZK2.Prove(B1; g; s2) where s2 is the encryptionSecretH.
-    final Proof pi12 = this.schnorrAlgorithmHelper.generateProof(this.getRandom(), parameters, encryptionSecretH, new Statement(cipherTextH.getAlpha(), g));
+    final Proof pi12 = this.schnorrAlgorithmHelper.generateProof(this.getRandom(), parameters, encryptionSecretH, new Statement(b1, g));
 
     // Choose random element t in q.
     final BigInteger t = new BigInteger(q.bitLength(), this.getRandom()).mod(q);
 
     // Compute (A1', A2') = (A1^t, A2^t) mod p; (B1', B2') = (B1^t, B2^t) mod p.
-    final BigInteger a1Dash = cipherTextG.getAlpha().modPow(t, p);
-    final BigInteger a2Dash = cipherTextG.getBeta().modPow(t, p);
-    final BigInteger b1Dash = cipherTextH.getAlpha().modPow(t, p);
-    final BigInteger b2Dash = cipherTextH.getBeta().modPow(t, p);
+    final BigInteger a1Dash = a1.modPow(t, p);
+    final BigInteger a2Dash = a2.modPow(t, p);
+    final BigInteger b1Dash = b1.modPow(t, p);
+    final BigInteger b2Dash = b2.modPow(t, p);
 
     // pi21 = NIZK1.Prove(A1Dash, A1; A2Dash, A2; t).
-    final Proof pi21 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t,
-        new Statement(a1Dash, cipherTextG.getAlpha()), new Statement(a2Dash, cipherTextG.getBeta()));
+    final Proof pi21 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t, new Statement(a1Dash, a1), new Statement(a2Dash, a2));
 
     // pi22 = NIZK1.Prove(B1Dash, B1; B2Dash, B2; t).
-    final Proof pi22 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t,
-        new Statement(b1Dash, cipherTextH.getAlpha()), new Statement(b2Dash, cipherTextH.getBeta()));
+    final Proof pi22 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t, new Statement(b1Dash, b1), new Statement(b2Dash, b2));
 
     // pi23 = NIZK1.Prove(B1Dash, B1; B2Dash, B2; t).
-    final Proof pi23 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t,
-        new Statement(a1Dash, cipherTextG.getAlpha()), new Statement(b1Dash, cipherTextH.getAlpha()));
+    final Proof pi23 = this.chaumPedersenAlgorithmHelper.generateProof(this.getRandom(), parameters, t, new Statement(a1Dash, a1), new Statement(b1Dash, b1));
 
     // Compute C = a^t mod p; D = b^t mod p, where a = g^random and b = h^random.
     final BigInteger c = commitment.getG().modPow(t, p);
@@ -351,72 +436,116 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
    * @param keyPair        The election key pair.
    * @param votersKeyPairs The list of voter key pairs.
    * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @param archive        True if the proof file is to be written as a {@link ProofArchive} indexed by each voter's public key, false for a CSV file.
    * @return The encrypted commitment values and the corresponding proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   @Override
   public ProofWrapper<List<Commitment>> createCommitments(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
-                                                          final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+                                                          final List<TrackerNumber> trackerNumbers, final boolean archive) throws CryptographyException {
     if (votersKeyPairs.size() != trackerNumbers.size()) {
       throw new CryptographyException("Number of voter key pairs and tracker numbers does not match: " + votersKeyPairs.size() + " vs. " + trackerNumbers.size());
     }
 
     // Create the encrypted tracker number commitments.
     this.startProgress(this.messageSource.getMessage("cryptography.selene.create.commitments", new Object[] {trackerNumbers.size()}, null));
+    final Metrics.Timer timer = this.getMetrics().start("create-commitments", Metrics.TOTAL).setItems(votersKeyPairs.size());
     final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
     final BigInteger p = wrapper.getP();
-    final List<Commitment> commitments = new ArrayList<>();
-    final List<CommitmentProof> commitmentProofs = new ArrayList<>();
-
+    final List<Commitment> commitments = new ArrayList<>(votersKeyPairs.size());
 
     // The commitments are created across tellers, but if there are no tellers, this is the same process as for the local teller. Either way, execute the creation
-    // in parallel.
-    try {
-      final List<Callable<Object[]>> createCommitmentsTasks = new ArrayList<>();
-      IntStream.range(0, votersKeyPairs.size()).forEach(i -> createCommitmentsTasks.add(() -> {
+    // in parallel bounded batches, streaming the proofs to the proof file as each batch completes.
+    final File proofFile = this.createProofFile();
+
+    try (final ProofOutput<CommitmentProof> proofs = new ProofOutput<>(proofFile, CommitmentProof.class, parameters.getElementEncoding(), archive)) {
+      this.invokeBatches(votersKeyPairs.size(), i -> {
         // Create a random value (mod p) and use it to create the commitment.
         final BigInteger random = new BigInteger(wrapper.getL(), this.getRandom()).mod(p);
         final BigInteger voterPublicKey = votersKeyPairs.get(i).getTrapdoorKeyPair().getPublicKey();
-        final Object[] commitmentValues = this.createCommitment(parameters, keyPair, voterPublicKey, random);
+        final Object[] commitmentValues = this.getMetrics().time("create-commitments", "commitment",
+            () -> this.createCommitment(parameters, keyPair, voterPublicKey, random));
         final Commitment commitment = (Commitment) commitmentValues[0];
 
         // Create the corresponding proofs of knowledge on the commitments. This requires the random value used during the encryption.
         final BigInteger encryptionSecretG = new BigInteger(1, (byte[]) commitmentValues[1]);
         final BigInteger encryptionSecretH = new BigInteger(1, (byte[]) commitmentValues[2]);
-        final CommitmentProof commitmentProof = this.createCommitmentProof(parameters, keyPair, voterPublicKey, random, commitment, encryptionSecretG,
-            encryptionSecretH);
+        final CommitmentProof commitmentProof = this.getMetrics().time("create-commitments", "proof",
+            () -> this.createCommitmentProof(parameters, keyPair, voterPublicKey, random, commitment, encryptionSecretG, encryptionSecretH));
 
         // Verify proofs before proceeding as a sanity check.
-        if (!this.verifyCommitmentProof(parameters, keyPair, voterPublicKey, commitment, commitmentProof)) {
+        if (!this.getMetrics().time("create-commitments", "self-check",
+            () -> this.verifyCommitmentProof(parameters, keyPair, voterPublicKey, commitment, commitmentProof))) {
           throw new CryptographyException("Could not verify commitment proofs for voter: " + i);
         }
 
         return new Object[] {commitment, commitmentProof};
-      }));
-
-      final List<Future<Object[]>> createCommitmentsFutures = this.executor.invokeAll(createCommitmentsTasks);
+      }, (i, results) -> {
+        commitments.add((Commitment) results[0]);
+        proofs.write((CommitmentProof) results[1], votersKeyPairs.get(i).getTrapdoorKeyPair().getPublicKey());
+      });
+    }
+    catch (final Exception e) {
+      proofFile.delete();
+      throw new CryptographyException("Could not execute create commitments in parallel", e);
+    }
 
-      for (int i = 0; i < votersKeyPairs.size(); i++) {
-        final Object[] results = createCommitmentsFutures.get(i).get();
-        final Commitment commitment = (Commitment) results[0];
-        final CommitmentProof commitmentProof = (CommitmentProof) results[1];
+    timer.close();
+    this.endProgress();
 
-        commitments.add(commitment);
-        commitmentProofs.add(commitmentProof);
+    return new ProofWrapper<>(commitments, proofFile);
+  }
 
-        this.updateProgress(100 * (i + 1) / (float) votersKeyPairs.size());
-      }
+  /**
+   * Creates a temporary proof file.
+   *
+   * @return The proof file.
+   * @throws CryptographyException if the file could not be created.
+   */
+  private File createProofFile() throws CryptographyException {
+    try {
+      return Files.createTempFile(null, null).toFile();
     }
     catch (final Exception e) {
-      throw new CryptographyException("Could not execute create commitments in parallel", e);
+      throw new CryptographyException("Could not create proof file", e);
+    }
+  }
+
+  /**
+   * Creates a teller's share of the threshold decryption of a list of ciphertexts using the key share held in its teller directory.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param cipherTexts The ciphertexts to decrypt.
+   * @return The teller's decryption share.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public DecryptionShare createDecryptionShare(final Parameters parameters, final int teller, final List<CipherText> cipherTexts) throws CryptographyException {
+    this.checkTellers(parameters, teller);
+
+    final File keyShareFile = new File(VerificatumHelper.getTellerDirectory(parameters, teller), KEY_SHARE_FILENAME);
+
+    if (!keyShareFile.exists()) {
+      throw new CryptographyException("Could not create decryption share as teller " + teller + " has no key share " + keyShareFile);
     }
 
-    // Create the proof CSV file.
-    final File proofFile = this.writeCSVToFile(CommitmentProof.class, commitmentProofs, JacksonViews.Public.class);
+    final KeyShare keyShare;
+
+    try {
+      keyShare = new ObjectMapper().readValue(keyShareFile, KeyShare.class);
+    }
+    catch (final IOException e) {
+      throw new CryptographyException("Could not read key share " + keyShareFile, e);
+    }
 
+    this.startProgress(this.messageSource.getMessage("cryptography.selene.create.decryption.share", new Object[] {cipherTexts.size()}, null));
+    final Metrics.Timer timer = this.getMetrics().start("create-decryption-share", Metrics.TOTAL).setItems(cipherTexts.size());
+    final DecryptionShare share = this.thresholdDecryptionAlgorithmHelper.decrypt(this.getRandom(), parameters, keyShare, cipherTexts);
+    timer.close();
     this.endProgress();
 
-    return new ProofWrapper<>(commitments, proofFile);
+    return share;
   }
 
   /**
@@ -534,15 +663,17 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     try {
       // Execute the creation of keys in parallel.
       this.startProgress(name);
+      final Metrics.Timer timer = this.getMetrics().start("create-key-pairs", Metrics.TOTAL).setItems(number);
       final List<Callable<KeyPair>> createKeysTasks = new ArrayList<>();
-      IntStream.range(0, number).forEach(i -> createKeysTasks.add(() -> this.dsaAlgorithmHelper.createKeys(this.getRandom(), parameters)));
+      IntStream.range(0, number).forEach(i -> createKeysTasks.add(() -> this.getMetrics().time("create-key-pairs", "key-pair",
+          () -> this.dsaAlgorithmHelper.createKeys(this.getRandom(), parameters))));
 
-      final List<Future<KeyPair>> createKeysFutures = this.executor.invokeAll(createKeysTasks);
+      final List<Future<KeyPair>> createKeysFutures = this.invokeAll(createKeysTasks);
 
       for (int i = 0; i < number; i++) {
         keyPairs.add(createKeysFutures.get(i).get());
-        this.updateProgress(100 * (i + 1) / (float) number);
       }
+      timer.close();
       this.endProgress();
     }
     catch (final Exception e) {
@@ -552,6 +683,93 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     return keyPairs;
   }
 
+  /**
+   * Creates a teller's contribution to the election key without a dealer, writing the share dealt to each teller into the teller directory.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The commitments to the teller's polynomial.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public KeyShareCommitments createKeyShares(final Parameters parameters, final int teller) throws CryptographyException {
+    this.checkTellers(parameters, teller);
+
+    this.startProgress(this.messageSource.getMessage("cryptography.selene.create.key_shares", new Object[] {teller, parameters.getNumberOfTellers()}, null));
+    final BigInteger[] polynomial = this.thresholdDecryptionAlgorithmHelper.createPolynomial(this.getRandom(), parameters, parameters.getNumberOfTellers(),
+        parameters.getThresholdTellers());
+    final KeyShareCommitments commitments = this.thresholdDecryptionAlgorithmHelper.commit(parameters, teller, polynomial);
+    final File tellerDirectory = VerificatumHelper.getTellerDirectory(parameters, teller);
+    final ObjectMapper mapper = new ObjectMapper();
+
+    try {
+      Files.createDirectories(tellerDirectory.toPath());
+
+      for (int recipient = 1; recipient <= parameters.getNumberOfTellers(); recipient++) {
+        mapper.writeValue(new File(tellerDirectory, getKeyShareDealFilename(parameters, teller, recipient)),
+            this.thresholdDecryptionAlgorithmHelper.deal(parameters, teller, recipient, polynomial));
+      }
+    }
+    catch (final IOException e) {
+      throw new CryptographyException("Could not write key share deals", e);
+    }
+    finally {
+      // The polynomial must not be kept once the shares have been dealt.
+      Arrays.fill(polynomial, BigInteger.ZERO);
+    }
+
+    this.endProgress();
+
+    return commitments;
+  }
+
+  /**
+   * Creates the consumer of mixed plaintexts which looks up the tracker number and vote option of each block and adds the corresponding mixed voter.
+   *
+   * @param trackerNumbers The tracker numbers for conversion of tracker number in group to plaintext tracker number.
+   * @param voteOptions    The list of vote options for conversion of option number in group to plaintext vote.
+   * @param mixedVoters    The list to which each mixed voter is added.
+   * @return The consumer.
+   */
+  private VerificatumByteTree.BlockConsumer createMixedVoterConsumer(final List<TrackerNumber> trackerNumbers, final List<VoteOption> voteOptions,
+                                                                     final List<Voter> mixedVoters) {
+    // Index the tracker numbers and vote options so that each can be found in constant time.
+    final Map<BigInteger, TrackerNumber> trackerNumbersInGroup = new HashMap<>(trackerNumbers.size() * 2);
+
+    for (final TrackerNumber trackerNumber : trackerNumbers) {
+      trackerNumbersInGroup.putIfAbsent(trackerNumber.getTrackerNumberInGroup(), trackerNumber);
+    }
+
+    final Map<BigInteger, VoteOption> voteOptionsInGroup = new HashMap<>(voteOptions.size() * 2);
+
+    for (final VoteOption voteOption : voteOptions) {
+      voteOptionsInGroup.putIfAbsent(voteOption.getOptionNumberInGroup(), voteOption);
+    }
+
+    return (block, plainText) -> {
+      final Voter voter = new Voter();
+
+      // Look up the tracker number
+      final TrackerNumber trackerNumber = trackerNumbersInGroup.get(plainText[0]);
+
+      if (trackerNumber == null) {
+        throw new CryptographyException("Could not find tracker number for tracker number in group " + plainText[0]);
+      }
+
+      voter.setTrackerNumber(trackerNumber);
+
+      // Lookup the plain text vote.
+      final VoteOption voteOption = voteOptionsInGroup.get(plainText[1]);
+
+      if (voteOption == null) {
+        throw new CryptographyException("Could not find vote option for vote option in group " + plainText[1]);
+      }
+
+      voter.setPlainTextVote(voteOption.getOption());
+      mixedVoters.add(voter);
+    };
+  }
+
   /**
    * Creates a Verificatum teller, returning its information file which should be shared with all other tellers.
    *
@@ -602,6 +820,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
   @Override
   public Set<TrackerNumber> createTrackerNumbers(final Parameters parameters, final KeyPair keyPair, final int number) throws CryptographyException {
     this.startProgress(this.messageSource.getMessage("cryptography.selene.create.tracker_numbers", new Object[] {number}, null));
+    final Metrics.Timer timer = this.getMetrics().start("create-tracker-numbers", Metrics.TOTAL).setItems(number);
 
     // Create the tracker number as its associated values.
     final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
@@ -626,26 +845,42 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
 
     try {
       final List<Callable<byte[]>> createTrackerNumbersTasks = new ArrayList<>();
-      IntStream.range(0, number).forEach(i -> createTrackerNumbersTasks.add(() -> this.elgamalAlgorithmHelper.encrypt(this.getRandom(), parameters, keyPair,
-          orderedGroupValues.get(i).toByteArray())[0]));
+      IntStream.range(0, number).forEach(i -> createTrackerNumbersTasks.add(() -> this.getMetrics().time("create-tracker-numbers", "encrypt",
+          () -> this.elgamalAlgorithmHelper.encrypt(this.getRandom(), parameters, keyPair, orderedGroupValues.get(i).toByteArray())[0])));
 
-      final List<Future<byte[]>> createTrackerNumbersFutures = this.executor.invokeAll(createTrackerNumbersTasks);
+      final List<Future<byte[]>> createTrackerNumbersFutures = this.invokeAll(createTrackerNumbersTasks);
 
       // ...and form the resulting objects.
       for (int i = 0; i < number; i++) {
         trackerNumbers.add(new TrackerNumber(orderedValues.get(i), orderedGroupValues.get(i), createTrackerNumbersFutures.get(i).get()));
-        this.updateProgress(100 * trackerNumbers.size() / (float) number);
       }
     }
     catch (final Exception e) {
       throw new CryptographyException("Could not execute create tracker numbers in parallel", e);
     }
 
+    timer.close();
     this.endProgress();
 
     return trackerNumbers;
   }
 
+  /**
+   * Creates a list to hold voters. A columnar {@link VoterStore} is used for large electorates, or where the source is already held in one, so that each voter
+   * does not need its own graph of objects.
+   *
+   * @param parameters The election parameters.
+   * @param source     The source records from which the voters are created.
+   * @return The empty list of voters.
+   */
+  private List<Voter> createVoterList(final Parameters parameters, final List<?> source) {
+    if ((source instanceof VoterStore) || (source.size() >= COLUMNAR_VOTERS_THRESHOLD)) {
+      return VoterStore.forParameters(parameters);
+    }
+
+    return new ArrayList<>(source.size());
+  }
+
   /**
    * Creates key pairs for all voters using the required election parameters.
    *
@@ -673,84 +908,53 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
   }
 
   /**
-   * Decrypts the commitments and forms the final association between each voter key pair, tracker number and commitment, returning the voter information.
+   * Decrypts the commitments and forms the final association between each voter key pair, tracker number and commitment, returning the voter information. The
+   * commitments are decrypted locally if there are no tellers, by combining the tellers' decryption shares if these are supplied, or otherwise with Verificatum.
    *
-   * @param parameters     The election parameters.
-   * @param keyPair        The election key pair.
-   * @param teller         The number of the teller. Each teller has a unique number, starting at 1.
-   * @param votersKeyPairs The list of voter key pairs.
-   * @param trackerNumbers The shuffled list of public tracker numbers.
-   * @param commitments    The encrypted commitments from each teller.
-   * @return The consolidated list of voter data ready to be associated with voters and the corresponding proof file. The proof file may be deleted once used.
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair.
+   * @param teller           The number of the teller. Each teller has a unique number, starting at 1.
+   * @param votersKeyPairs   The list of voter key pairs.
+   * @param trackerNumbers   The shuffled list of public tracker numbers.
+   * @param commitments      The encrypted commitments from each teller.
+   * @param decryptionShares The decryption shares of a threshold number of tellers, or null to decrypt with Verificatum or locally.
+   * @return The consolidated list of voter data ready to be associated with voters and the corresponding proof file. The proof file may be deleted once used,
+   * and is null when the decryption shares are combined.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   @Override
   public ProofWrapper<List<Voter>> decryptCommitments(final Parameters parameters, final KeyPair keyPair, final int teller,
                                                       final List<VoterKeyPairs> votersKeyPairs, final List<TrackerNumber> trackerNumbers,
-                                                      final List<List<Commitment>> commitments) throws CryptographyException {
-    int commitmentsSize = 0;
-    for (final List<Commitment> list : commitments) {
-      commitmentsSize = Math.max(commitmentsSize, list.size());
-    }
+                                                      final List<List<Commitment>> commitments, final List<DecryptionShare> decryptionShares)
+      throws CryptographyException {
+    this.checkCommitments(votersKeyPairs, trackerNumbers, commitments);
 
-    if ((votersKeyPairs.size() != trackerNumbers.size()) || (votersKeyPairs.size() != commitmentsSize)) {
-      throw new CryptographyException("Number of voter key pairs, tracker numbers or commitments does not match: " + votersKeyPairs.size() + " vs. "
-          + trackerNumbers.size() + " vs. " + commitments.size());
-    }
-
-    if (parameters.getNumberOfTellers() > 0) {
+    if ((parameters.getNumberOfTellers() > 0) && (decryptionShares == null)) {
       this.checkTellers(parameters, teller);
     }
 
-    // Form the commitment values from all of the teller files. We assume that all teller files have been supplied and that the commitments are in the same order,
-    // albeit we check that the voter's public key matches.
-    this.startProgress(this.messageSource.getMessage("cryptography.selene.decrypt.form", new Object[] {trackerNumbers.size()}, null));
-    final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
-    final List<CipherText> combined = new ArrayList<>();
-
-    for (int i = 0; i < votersKeyPairs.size(); i++) {
-      // Form the product of all the encrypted h terms, checking that each commitment has the same trapdoor public key as expected for the voter.
-      BigInteger alphaProduct = BigInteger.ONE;
-      BigInteger betaProduct = BigInteger.ONE;
-
-      for (final List<Commitment> tellerCommitments : commitments) {
-        BigInteger publicKey = null;
-
-        if ((votersKeyPairs.get(i) != null) && (votersKeyPairs.get(i).getTrapdoorKeyPair() != null)) {
-          publicKey = votersKeyPairs.get(i).getTrapdoorKeyPair().getPublicKey();
-        }
-
-        if ((publicKey == null) || !publicKey.equals(tellerCommitments.get(i).getPublicKey())) {
-          throw new CryptographyException("Voter's trapdoor public key (null " + (publicKey == null) + ") does not match commitment public key for voter " + i);
-        }
-
-        final CipherText commitmentCipherText = new CipherText(tellerCommitments.get(i).getEncryptedH());
-        alphaProduct = alphaProduct.multiply(commitmentCipherText.getAlpha()).mod(wrapper.getP());
-        betaProduct = betaProduct.multiply(commitmentCipherText.getBeta()).mod(wrapper.getP());
-      }
-
-      // Multiple with the voter's encrypted tracker number.
-      final CipherText trackerNumberCipherText = new CipherText(trackerNumbers.get(i).getEncryptedTrackerNumberInGroup());
-      alphaProduct = alphaProduct.multiply(trackerNumberCipherText.getAlpha()).mod(wrapper.getP());
-      betaProduct = betaProduct.multiply(trackerNumberCipherText.getBeta()).mod(wrapper.getP());
-
-      // Form the combined value.
-      combined.add(new CipherText(alphaProduct, betaProduct));
-      this.updateProgress(100 * (i + 1) / (float) votersKeyPairs.size());
-    }
-
-    this.endProgress();
+    final Metrics.Timer timer = this.getMetrics().start("decrypt-commitments", Metrics.TOTAL).setItems(votersKeyPairs.size());
+    Metrics.Timer phaseTimer = this.getMetrics().start("decrypt-commitments", "form").setItems(votersKeyPairs.size());
+    final List<CipherText> combined = this.formCommitments(parameters, votersKeyPairs, trackerNumbers, commitments);
+    phaseTimer.close();
 
-    // Decrypt the resulting combined values. If no tellers are being used, decrypt locally. Otherwise use Verificatum.
+    // Decrypt the resulting combined values. If decryption shares are supplied, combine them. If no tellers are being used, decrypt locally. Otherwise use
+    // Verificatum.
     this.startProgress(this.messageSource.getMessage("cryptography.selene.decrypt.commitments", new Object[] {trackerNumbers.size()}, null));
+    phaseTimer = this.getMetrics().start("decrypt-commitments", "decrypt").setItems(votersKeyPairs.size());
     final List<BigInteger> decryptedCommitments;
     final File proofFile;
 
-    if (parameters.getNumberOfTellers() <= 0) {
+    if (decryptionShares != null) {
+      // Native threshold decryption: the published decryption shares are verified and combined, and are themselves the proof.
+      decryptedCommitments = this.thresholdDecryptionAlgorithmHelper.combine(parameters, keyPair.getPublicKey(), combined, decryptionShares);
+      proofFile = null;
+    }
+    else if (parameters.getNumberOfTellers() <= 0) {
       decryptedCommitments = new ArrayList<>();
 
       for (int i = 0; i < votersKeyPairs.size(); i++) {
-        final byte[] decrypted = this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, combined.get(i).toByteArray());
+        final byte[] decrypted = this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, combined.get(i));
         decryptedCommitments.add(new BigInteger(1, decrypted));
         this.updateProgress(100 * (i + 1) / (float) votersKeyPairs.size());
       }
@@ -770,11 +974,13 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
       proofFile = decrypted.getProofFile();
     }
 
+    phaseTimer.close();
     this.endProgress();
 
     // Form the association between the voter key pairs, encrypted tracker numbers and decrypted commitments.
     this.startProgress(this.messageSource.getMessage("cryptography.selene.decrypt.allocate", new Object[] {trackerNumbers.size()}, null));
-    final List<Voter> voters = new ArrayList<>();
+    phaseTimer = this.getMetrics().start("decrypt-commitments", "allocate").setItems(votersKeyPairs.size());
+    final List<Voter> voters = this.createVoterList(parameters, votersKeyPairs);
 
     for (int i = 0; i < votersKeyPairs.size(); i++) {
       final Voter voter = new Voter();
@@ -785,6 +991,8 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
       this.updateProgress(100 * (i + 1) / (float) votersKeyPairs.size());
     }
 
+    phaseTimer.close();
+    timer.close();
     this.endProgress();
 
     return new ProofWrapper<>(voters, proofFile);
@@ -821,8 +1029,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     }
 
     // Attempt to decrypt the alpha and beta commitments to obtain the tracker number in the group.
-    final byte[] decrypted = this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, new CipherText(alpha, beta).toByteArray());
-    final BigInteger trackerNumberInGroup = new BigInteger(1, decrypted);
+    final BigInteger trackerNumberInGroup = this.decryptTrackerNumberInGroup(parameters, alpha, beta, keyPair);
 
     // Attempt to find the corresponding tracker number.
     TrackerNumber trackerNumber = null;
@@ -842,6 +1049,60 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     return trackerNumber;
   }
 
+  /**
+   * Uses an alpha and beta to obtain the decrypted tracker number in the group for a voter, so that the tracker number can be looked up by the caller.
+   *
+   * @param parameters The election parameters.
+   * @param alpha      The alpha commitment.
+   * @param beta       The beta commitment.
+   * @param keyPair    The voter's trapdoor key pair.
+   * @return The tracker number in the group.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public BigInteger decryptTrackerNumberInGroup(final Parameters parameters, final BigInteger alpha, final BigInteger beta, final KeyPair keyPair)
+      throws CryptographyException {
+    return new BigInteger(1, this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, new CipherText(alpha, beta)));
+  }
+
+  /**
+   * Combines the tellers' published decryption shares of the shuffled votes to obtain the plaintext vote and tracker number of each voter.
+   *
+   * @param parameters       The election parameters.
+   * @param keyPair          The election key pair. Only the public key is needed.
+   * @param trackerNumbers   The tracker numbers for conversion of tracker number in group to plaintext tracker number.
+   * @param voteOptions      The list of vote options for conversion of option number in group to plaintext vote.
+   * @param cipherTexts      The shuffled encrypted tracker numbers and votes, one block per voter.
+   * @param decryptionShares The decryption shares of the shuffled ciphertexts from a threshold number of tellers.
+   * @return The mixed list of voter data with plaintext vote and tracker number.
+   * @throws CryptographyException if a share is invalid or the cryptographic operation could not be completed.
+   */
+  @Override
+  public List<Voter> decryptVotes(final Parameters parameters, final KeyPair keyPair, final List<TrackerNumber> trackerNumbers,
+                                  final List<VoteOption> voteOptions, final List<CipherText> cipherTexts, final List<DecryptionShare> decryptionShares)
+      throws CryptographyException {
+    if ((cipherTexts.size() % MIX_VOTES_WIDTH) != 0) {
+      throw new CryptographyException("Number of ciphertexts " + cipherTexts.size() + " is not a multiple of the width " + MIX_VOTES_WIDTH);
+    }
+
+    final int size = cipherTexts.size() / MIX_VOTES_WIDTH;
+
+    this.startProgress(this.messageSource.getMessage("cryptography.selene.decrypt.votes", new Object[] {size}, null));
+    final Metrics.Timer timer = this.getMetrics().start("decrypt-votes", Metrics.TOTAL).setItems(size);
+    final List<BigInteger> plainTexts = this.thresholdDecryptionAlgorithmHelper.combine(parameters, keyPair.getPublicKey(), cipherTexts, decryptionShares);
+    final List<Voter> mixedVoters = this.createVoterList(parameters, cipherTexts.subList(0, size));
+    final VerificatumByteTree.BlockConsumer consumer = this.createMixedVoterConsumer(trackerNumbers, voteOptions, mixedVoters);
+
+    for (int i = 0; i < size; i++) {
+      consumer.accept(i, plainTexts.subList(i * MIX_VOTES_WIDTH, (i + 1) * MIX_VOTES_WIDTH).toArray(new BigInteger[0]));
+    }
+
+    timer.close();
+    this.endProgress();
+
+    return mixedVoters;
+  }
+
   /**
    * Encrypts and signs the plaintext votes for every voter. The voter list is updated to include the encrypted vote and this list is also returned together with
    * the proof of knowledge.
@@ -852,171 +1113,502 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
    * @param voteOptions      The list of vote options.
    * @param voters           The list of voters with their plaintext votes.
    * @param ersEncryptProofs The optional list of encryption proofs which go alongside prior encrypted votes.
+   * @param archive          True if the proof file is to be written as a {@link ProofArchive} indexed by each voter's public key, false for a CSV file.
    * @return The encrypted list of voter data and the corresponding proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   @Override
   public ProofWrapper<List<Voter>> encryptVotes(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
-                                                final List<VoteOption> voteOptions, final List<Voter> voters, final List<EncryptProof> ersEncryptProofs) throws CryptographyException {
+                                                final List<VoteOption> voteOptions, final List<Voter> voters, final List<EncryptProof> ersEncryptProofs,
+                                                final boolean archive) throws CryptographyException {
     if (votersKeyPairs.size() < voters.size()) {
       throw new CryptographyException("Number of voter key pairs insufficient for voters: " + votersKeyPairs.size() + " vs. " + voters.size());
     }
 
     // Encrypt and sign each vote, ignoring blanks and those votes which have already been encrypted.
     this.startProgress(this.messageSource.getMessage("cryptography.selene.encrypt.votes", new Object[] {voters.size()}, null));
-    final List<EncryptProof> encryptProofs = new ArrayList<>();
-    final Set<String> encryptedVotes = new HashSet<>();
-    int expectedVotes = 0;
-
-    try {
-      final List<Callable<Object[]>> encryptVotesTasks = new ArrayList<>();
-      IntStream.range(0, voters.size()).forEach(i -> encryptVotesTasks.add(() -> {
-        final Voter voter = voters.get(i);
-
-        // Find any existing encrypted vote, signature and proof.
-        byte[] encryptedVote = (voter != null) ? voter.getEncryptedVote() : null;
-        encryptedVote = (encryptedVote != null) && (encryptedVote.length <= 0) ? null : encryptedVote;
-
-        byte[] encryptedVoteSignature = (voter != null) ? voter.getEncryptedVoteSignature() : null;
-        encryptedVoteSignature = (encryptedVoteSignature != null) && (encryptedVoteSignature.length <= 0) ? null : encryptedVoteSignature;
-
-        EncryptProof encryptProof = null;
-
-        // Find the corresponding proof using the signature.
-        if (encryptedVoteSignature != null) {
-          final byte[] searchSignature = encryptedVoteSignature;
-
-          encryptProof = ersEncryptProofs.stream()
-              .filter(proof -> (proof != null) && Arrays.equals(proof.getEncryptedVoteSignature(), searchSignature))
-              .findAny().orElse(null);
-        }
-
-        if ((encryptedVote != null) && ((encryptedVoteSignature == null) || (encryptProof == null))) {
-          throw new CryptographyException("Missing signature or proof for encrypted vote for voter " + voter.getId());
-        }
+    final Metrics.Timer timer = this.getMetrics().start("encrypt-votes", Metrics.TOTAL).setItems(voters.size());
+    final DistinctRows encryptedVotes = new DistinctRows(voters.size());
 
-        // If we need to encrypt, then do not encrypt or sign blank votes. Correspondingly, no proof gets generated.
-        if ((encryptedVote == null) && (voter != null) && (voter.getPlainTextVote() != null) && (voter.getPlainTextVote().trim().length() > 0)) {
-          // We need to encrypt, then find the relevant keys and perform the encryption, signing and proof generation.
-          final BigInteger signaturePublicKey;
+    // Index the voters' key pairs by their signature public key so that each voter's private signing key can be found in constant time.
+    final Map<BigInteger, VoterKeyPairs> votersKeyPairsBySignature = new HashMap<>(votersKeyPairs.size() * 2);
 
-          if ((voter.getVoterKeyPairs() != null) && (voter.getVoterKeyPairs().getSignatureKeyPair() != null)) {
-            signaturePublicKey = voter.getVoterKeyPairs().getSignatureKeyPair().getPublicKey();
-          }
-          else {
-            signaturePublicKey = null;
-          }
-
-          if (signaturePublicKey == null) {
-            throw new CryptographyException("Missing signature key pair for voter " + voter.getId());
-          }
-
-          // Find the voter's private signing key using the their public key.
-          final VoterKeyPairs voterKeyPairs = votersKeyPairs.stream()
-              .filter(pair -> signaturePublicKey.equals(((pair != null) && (pair.getSignatureKeyPair() != null)) ? pair.getSignatureKeyPair().getPublicKey() :
-                  null))
-              .findAny().orElse(null);
-
-          if ((voterKeyPairs == null) || (voterKeyPairs.getSignatureKeyPair() == null) || (voterKeyPairs.getSignatureKeyPair().getPrivateKey() == null)) {
-            throw new CryptographyException("Could not find signature key pair or signature private key for voter " + voter.getId());
-          }
-
-          // Find the corresponding vote option.
-          final VoteOption voteOption = voteOptions.stream()
-              .filter(option -> voter.getPlainTextVote().equals(option.getOption()))
-              .findAny().orElse(null);
+    for (final VoterKeyPairs pair : votersKeyPairs) {
+      if ((pair != null) && (pair.getSignatureKeyPair() != null) && (pair.getSignatureKeyPair().getPublicKey() != null)) {
+        votersKeyPairsBySignature.putIfAbsent(pair.getSignatureKeyPair().getPublicKey(), pair);
+      }
+    }
 
-          if (voteOption == null) {
-            throw new CryptographyException("Plaintext vote for voter " + voter.getId() + " does not match one of the available vote options " + voter.getPlainTextVote());
-          }
+    // Likewise index the vote options by their option, and any proofs for prior encrypted votes by their signature.
+    final Map<String, VoteOption> voteOptionsByOption = new HashMap<>(voteOptions.size() * 2);
 
-          // Encrypt and sign their plaintext vote as a vote option. We also convert the encrypted vote into a string and put it in the encrypted votes set.
-          final byte[][] encryptedVoteCiphers = this.elgamalAlgorithmHelper.encrypt(this.getRandom(), parameters, keyPair,
-              voteOption.getOptionNumberInGroup().toByteArray());
-          encryptedVote = encryptedVoteCiphers[0];
-          encryptedVoteSignature = this.dsaAlgorithmHelper.sign(parameters, voterKeyPairs.getSignatureKeyPair(), encryptedVoteCiphers[0]);
+    for (final VoteOption voteOption : voteOptions) {
+      voteOptionsByOption.putIfAbsent(voteOption.getOption(), voteOption);
+    }
 
-          // Create the corresponding proof of knowledge of the encryption. This requires the random value used during the encryption.
-          final BigInteger encryptionSecret = new BigInteger(1, encryptedVoteCiphers[1]);
-          encryptProof = this.createEncryptProof(parameters, keyPair, voteOption.getOptionNumberInGroup(), encryptedVoteCiphers[0],
-              voterKeyPairs.getSignatureKeyPair(), encryptedVoteSignature, encryptionSecret);
+    final Map<ByteBuffer, EncryptProof> ersEncryptProofsBySignature = new HashMap<>();
 
-          // Verify proof before proceeding as a sanity check.
-          if (!this.verifyEncryptProof(parameters, keyPair, encryptedVoteCiphers[0], voterKeyPairs.getSignatureKeyPair(), encryptProof)) {
-            throw new CryptographyException("Could not verify encryption proofs for voter: " + i);
-          }
+    if (ersEncryptProofs != null) {
+      for (final EncryptProof proof : ersEncryptProofs) {
+        if ((proof != null) && (proof.getEncryptedVoteSignature() != null)) {
+          ersEncryptProofsBySignature.putIfAbsent(ByteBuffer.wrap(proof.getEncryptedVoteSignature()), proof);
         }
+      }
+    }
 
-        return new Object[] {encryptedVote, encryptedVoteSignature, encryptProof};
-      }));
-
-      final List<Future<Object[]>> encryptVotesFutures = this.executor.invokeAll(encryptVotesTasks);
+    // Encrypt the votes in bounded batches, writing each batch into the voters and streaming its proofs to the proof file before the next batches are started.
+    final File proofFile = this.createProofFile();
 
-      // Extract the results.
-      for (int i = 0; i < voters.size(); i++) {
-        final Object[] results = encryptVotesFutures.get(i).get();
+    try (final ProofOutput<EncryptProof> proofs = new ProofOutput<>(proofFile, EncryptProof.class, parameters.getElementEncoding(), archive)) {
+      this.invokeBatches(voters.size(), i -> this.encryptVote(parameters, keyPair, voters.get(i), i, votersKeyPairsBySignature, voteOptionsByOption,
+          ersEncryptProofsBySignature), (i, results) -> {
         final byte[] encryptedVote = (byte[]) results[0];
         final byte[] encryptedVoteSignature = (byte[]) results[1];
         final EncryptProof encryptProof = (EncryptProof) results[2];
 
         // We may not have an encrypted vote, which is normal if there was no vote.
         if ((encryptedVote != null) && (encryptedVoteSignature != null) && (encryptProof != null)) {
-          expectedVotes++;
-
           final Voter voter = voters.get(i);
-          encryptedVotes.add(Base64.getEncoder().encodeToString(encryptedVote));
           voter.setEncryptedVote(encryptedVote);
           voter.setEncryptedVoteSignature(encryptedVoteSignature);
-          encryptProofs.add(encryptProof);
-        }
+          proofs.write(encryptProof, ((voter.getVoterKeyPairs() != null) && (voter.getVoterKeyPairs().getTrapdoorKeyPair() != null)) ?
+              voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey() : null);
 
-        this.updateProgress(100 * (i + 1) / (float) voters.size());
-      }
+          // Check that each encrypted vote is unique.
+          if (!encryptedVotes.add(encryptedVote, i, row -> voters.get(row).getEncryptedVote())) {
+            throw new CryptographyException("Found duplicate encrypted votes");
+          }
+        }
+      });
+    }
+    catch (final CryptographyException e) {
+      proofFile.delete();
+      throw e;
     }
     catch (final Exception e) {
+      proofFile.delete();
       throw new CryptographyException("Could not execute encrypt votes in parallel", e);
     }
 
-    // To check that each encrypted vote is unique, we just need to check that the number of encrypted votes (Base 64 encoded strings) in the encrypted vote set
-    // has the same number as the number of expected votes.
-    if (encryptedVotes.size() != expectedVotes) {
-      throw new CryptographyException("Found duplicate encrypted votes");
-    }
-
-    // Create the proof CSV file.
-    final File proofFile = this.writeCSVToFile(EncryptProof.class, encryptProofs, JacksonViews.Public.class);
-
+    timer.close();
     this.endProgress();
 
     return new ProofWrapper<>(voters, proofFile);
   }
 
   /**
-   * @return The class used for the election parameters.
-   */
-  @Override
-  public Class<? extends Parameters> getElectionParametersClass() {
-    return this.dsaAlgorithmHelper.getParametersClass();
-  }
-
-  /**
-   * Gets the array of local teller information files in order for all tellers. The files are assumed to be held within the specified teller directory.
+   * Encrypts and signs the plaintext vote of a single voter, unless it is blank or has already been encrypted.
    *
-   * @param parameters The election parameters.
-   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
-   * @return The array of local teller information files.
-   * @throws CryptographyException if incorrect teller information is provided.
+   * @param parameters                  The election parameters.
+   * @param keyPair                     The election key pair.
+   * @param voter                       The voter.
+   * @param index                       The index of the voter.
+   * @param votersKeyPairsBySignature   The voters' key pairs, by signature public key.
+   * @param voteOptionsByOption         The vote options, by option.
+   * @param ersEncryptProofsBySignature The proofs which go alongside prior encrypted votes, by signature.
+   * @return The encrypted vote, its signature and its proof of encryption, all of which are null if there is no vote.
+   * @throws CryptographyException if the vote could not be encrypted.
    */
-  @Override
-  public File[] getTellerInformationFiles(final Parameters parameters, final int teller) throws CryptographyException {
-    this.checkTellers(parameters, teller);
+  private Object[] encryptVote(final Parameters parameters, final KeyPair keyPair, final Voter voter, final int index,
+                               final Map<BigInteger, VoterKeyPairs> votersKeyPairsBySignature, final Map<String, VoteOption> voteOptionsByOption,
+                               final Map<ByteBuffer, EncryptProof> ersEncryptProofsBySignature) throws CryptographyException {
+    // Find any existing encrypted vote, signature and proof.
+    byte[] encryptedVote = (voter != null) ? voter.getEncryptedVote() : null;
+    encryptedVote = (encryptedVote != null) && (encryptedVote.length <= 0) ? null : encryptedVote;
 
-    return this.verificatumHelper.getTellerInformationFiles(parameters, teller);
-  }
+    byte[] encryptedVoteSignature = (voter != null) ? voter.getEncryptedVoteSignature() : null;
+    encryptedVoteSignature = (encryptedVoteSignature != null) && (encryptedVoteSignature.length <= 0) ? null : encryptedVoteSignature;
 
-  /**
-   * Maps the list of vote options to numbers in the election parameter group. The list of vote options is modified to contain the mapping.
-   *
+    // Find the corresponding proof using the signature.
+    EncryptProof encryptProof = (encryptedVoteSignature != null) ? ersEncryptProofsBySignature.get(ByteBuffer.wrap(encryptedVoteSignature)) : null;
+
+    if ((encryptedVote != null) && ((encryptedVoteSignature == null) || (encryptProof == null))) {
+      throw new CryptographyException("Missing signature or proof for encrypted vote for voter " + voter.getId());
+    }
+
+    // If we need to encrypt, then do not encrypt or sign blank votes. Correspondingly, no proof gets generated.
+    if ((encryptedVote == null) && (voter != null) && (voter.getPlainTextVote() != null) && (voter.getPlainTextVote().trim().length() > 0)) {
+      // We need to encrypt, then find the relevant keys and perform the encryption, signing and proof generation.
+      final BigInteger signaturePublicKey;
+
+      if ((voter.getVoterKeyPairs() != null) && (voter.getVoterKeyPairs().getSignatureKeyPair() != null)) {
+        signaturePublicKey = voter.getVoterKeyPairs().getSignatureKeyPair().getPublicKey();
+      }
+      else {
+        signaturePublicKey = null;
+      }
+
+      if (signaturePublicKey == null) {
+        throw new CryptographyException("Missing signature key pair for voter " + voter.getId());
+      }
+
+      // Find the voter's private signing key using the their public key.
+      final VoterKeyPairs voterKeyPairs = votersKeyPairsBySignature.get(signaturePublicKey);
+
+      if ((voterKeyPairs == null) || (voterKeyPairs.getSignatureKeyPair() == null) || (voterKeyPairs.getSignatureKeyPair().getPrivateKey() == null)) {
+        throw new CryptographyException("Could not find signature key pair or signature private key for voter " + voter.getId());
+      }
+
+      // Find the corresponding vote option.
+      final VoteOption voteOption = voteOptionsByOption.get(voter.getPlainTextVote());
+
+      if (voteOption == null) {
+        throw new CryptographyException("Plaintext vote for voter " + voter.getId() + " does not match one of the available vote options " + voter.getPlainTextVote());
+      }
+
+      // Encrypt and sign their plaintext vote as a vote option.
+      final byte[][] encryptedVoteCiphers = this.getMetrics().time("encrypt-votes", "encrypt",
+          () -> this.elgamalAlgorithmHelper.encrypt(this.getRandom(), parameters, keyPair, voteOption.getOptionNumberInGroup().toByteArray()));
+      encryptedVote = encryptedVoteCiphers[0];
+      encryptedVoteSignature = this.getMetrics().time("encrypt-votes", "sign",
+          () -> this.dsaAlgorithmHelper.sign(parameters, voterKeyPairs.getSignatureKeyPair(), encryptedVoteCiphers[0]));
+
+      // Create the corresponding proof of knowledge of the encryption. This requires the random value used during the encryption.
+      final BigInteger encryptionSecret = new BigInteger(1, encryptedVoteCiphers[1]);
+      final byte[] signature = encryptedVoteSignature;
+      encryptProof = this.getMetrics().time("encrypt-votes", "proof", () -> this.createEncryptProof(parameters, keyPair,
+          voteOption.getOptionNumberInGroup(), encryptedVoteCiphers[0], voterKeyPairs.getSignatureKeyPair(), signature, encryptionSecret));
+
+      // Verify proof before proceeding as a sanity check.
+      final EncryptProof proof = encryptProof;
+
+      if (!this.getMetrics().time("encrypt-votes", "self-check",
+          () -> this.verifyEncryptProof(parameters, keyPair, encryptedVoteCiphers[0], voterKeyPairs.getSignatureKeyPair(), proof))) {
+        throw new CryptographyException("Could not verify encryption proofs for voter: " + index);
+      }
+    }
+
+    return new Object[] {encryptedVote, encryptedVoteSignature, encryptProof};
+  }
+
+  /**
+   * Finds the voters whose votes are to be mixed: those with both an encrypted tracker number and an encrypted vote.
+   *
+   * @param voters The voters.
+   * @return The index of each voter to be mixed, in order.
+   * @throws CryptographyException if a voter has no tracker number.
+   */
+  private int[] findMixRows(final List<Voter> voters) throws CryptographyException {
+    final int[] rows = new int[voters.size()];
+    int size = 0;
+
+    for (int i = 0; i < voters.size(); i++) {
+      final Voter voter = voters.get(i);
+
+      if (voter.getTrackerNumber() == null) {
+        throw new CryptographyException("Missing tracker number for voter " + i);
+      }
+
+      final byte[] encryptedTrackerNumberInGroup = voter.getTrackerNumber().getEncryptedTrackerNumberInGroup();
+      final byte[] encryptedVote = voter.getEncryptedVote();
+
+      if ((encryptedTrackerNumberInGroup != null) && (encryptedTrackerNumberInGroup.length > 0) && (encryptedVote != null) && (encryptedVote.length > 0)) {
+        rows[size++] = i;
+      }
+    }
+
+    return Arrays.copyOf(rows, size);
+  }
+
+  /**
+   * Forms the encrypted commitment of each voter from the commitments of every teller and the voter's encrypted tracker number.
+   *
+   * @param parameters     The election parameters.
+   * @param votersKeyPairs The list of voter key pairs.
+   * @param trackerNumbers The shuffled list of public tracker numbers.
+   * @param commitments    The encrypted commitments from each teller.
+   * @return The encrypted commitment of each voter, in the same order as the voter key pairs.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public List<CipherText> formCommitments(final Parameters parameters, final List<VoterKeyPairs> votersKeyPairs, final List<TrackerNumber> trackerNumbers,
+                                          final List<List<Commitment>> commitments) throws CryptographyException {
+    this.checkCommitments(votersKeyPairs, trackerNumbers, commitments);
+
+    // Form the commitment values from all of the teller files. We assume that all teller files have been supplied and that the commitments are in the same order,
+    // albeit we check that the voter's public key matches.
+    this.startProgress(this.messageSource.getMessage("cryptography.selene.decrypt.form", new Object[] {trackerNumbers.size()}, null));
+    final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
+    final List<CipherText> combined = new ArrayList<>(votersKeyPairs.size());
+    final CipherTextView view = new CipherTextView();
+
+    for (int i = 0; i < votersKeyPairs.size(); i++) {
+      // Form the product of all the encrypted h terms, checking that each commitment has the same trapdoor public key as expected for the voter.
+      BigInteger alphaProduct = BigInteger.ONE;
+      BigInteger betaProduct = BigInteger.ONE;
+
+      for (final List<Commitment> tellerCommitments : commitments) {
+        BigInteger publicKey = null;
+
+        if ((votersKeyPairs.get(i) != null) && (votersKeyPairs.get(i).getTrapdoorKeyPair() != null)) {
+          publicKey = votersKeyPairs.get(i).getTrapdoorKeyPair().getPublicKey();
+        }
+
+        if ((publicKey == null) || !publicKey.equals(tellerCommitments.get(i).getPublicKey())) {
+          throw new CryptographyException("Voter's trapdoor public key (null " + (publicKey == null) + ") does not match commitment public key for voter " + i);
+        }
+
+        view.wrap(tellerCommitments.get(i).getEncryptedH());
+        alphaProduct = alphaProduct.multiply(view.getAlpha()).mod(wrapper.getP());
+        betaProduct = betaProduct.multiply(view.getBeta()).mod(wrapper.getP());
+      }
+
+      // Multiple with the voter's encrypted tracker number.
+      view.wrap(trackerNumbers.get(i).getEncryptedTrackerNumberInGroup());
+      alphaProduct = alphaProduct.multiply(view.getAlpha()).mod(wrapper.getP());
+      betaProduct = betaProduct.multiply(view.getBeta()).mod(wrapper.getP());
+
+      // Form the combined value.
+      combined.add(new CipherText(alphaProduct, betaProduct));
+      this.updateProgress(100 * (i + 1) / (float) votersKeyPairs.size());
+    }
+
+    this.endProgress();
+
+    return combined;
+  }
+
+  /**
+   * @return The number of worker threads currently running tasks, if known, otherwise zero.
+   */
+  private int getActiveThreads() {
+    if (this.executor instanceof ForkJoinPool) {
+      return ((ForkJoinPool) this.executor).getActiveThreadCount();
+    }
+
+    if (this.executor instanceof ThreadPoolExecutor) {
+      return ((ThreadPoolExecutor) this.executor).getActiveCount();
+    }
+
+    return 0;
+  }
+
+  /**
+   * @return The class used for the election parameters.
+   */
+  @Override
+  public Class<? extends Parameters> getElectionParametersClass() {
+    return this.dsaAlgorithmHelper.getParametersClass();
+  }
+
+  /**
+   * Gets the array of key share deal files dealt to a teller, in dealer order. The files are assumed to be held within the specified teller directory.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The array of key share deal files.
+   * @throws CryptographyException if incorrect teller information is provided.
+   */
+  @Override
+  public File[] getKeyShareDealFiles(final Parameters parameters, final int teller) throws CryptographyException {
+    this.checkTellers(parameters, teller);
+
+    final File tellerDirectory = VerificatumHelper.getTellerDirectory(parameters, teller);
+    final File[] files = new File[parameters.getNumberOfTellers()];
+
+    for (int dealer = 1; dealer <= parameters.getNumberOfTellers(); dealer++) {
+      files[dealer - 1] = new File(tellerDirectory, getKeyShareDealFilename(parameters, dealer, teller));
+    }
+
+    return files;
+  }
+
+  /**
+   * Gets the encrypted tracker number and vote of each voter who has both, one block per voter. The ciphertexts are only decoded from the voters as they are
+   * needed, so that the voters, which may be held in a columnar store, are not copied.
+   *
+   * @param voters The list of voters with their encrypted votes and encrypted tracker numbers.
+   * @return The ciphertexts.
+   * @throws CryptographyException if a voter has no tracker number.
+   */
+  private List<CipherText> getMixCipherTexts(final List<Voter> voters) throws CryptographyException {
+    final int[] rows = this.findMixRows(voters);
+
+    return new AbstractList<CipherText>() {
+      @Override
+      public CipherText get(final int index) {
+        final Voter voter = voters.get(rows[index / MIX_VOTES_WIDTH]);
+
+        try {
+          return new CipherText(((index % MIX_VOTES_WIDTH) == 0) ? voter.getTrackerNumber().getEncryptedTrackerNumberInGroup() : voter.getEncryptedVote());
+        }
+        catch (final CryptographyException e) {
+          throw new RuntimeException(e); // Re-throw as an unchecked exception because of the list.
+        }
+      }
+
+      @Override
+      public int size() {
+        return rows.length * MIX_VOTES_WIDTH;
+      }
+    };
+  }
+
+  /**
+   * Gets the array of local teller information files in order for all tellers. The files are assumed to be held within the specified teller directory.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The array of local teller information files.
+   * @throws CryptographyException if incorrect teller information is provided.
+   */
+  @Override
+  public File[] getTellerInformationFiles(final Parameters parameters, final int teller) throws CryptographyException {
+    this.checkTellers(parameters, teller);
+
+    return this.verificatumHelper.getTellerInformationFiles(parameters, teller);
+  }
+
+  /**
+   * Executes tasks in parallel and waits for all of them to complete, in the same way as {@link ExecutorService#invokeAll(Collection)}. While waiting, progress
+   * is reported every {@link #PROGRESS_INTERVAL} milliseconds from the number of tasks completed in any order, so that a slow first task does not hold up the
+   * progress of the others. Each task counts its own completion using a {@link LongAdder} so that the workers do not contend on the count, and the progress is
+   * reported on the calling thread, as for all other progress.
+   *
+   * @param tasks The tasks.
+   * @param <T>   The type of result.
+   * @return The completed futures, in the same order as the tasks.
+   * @throws InterruptedException if interrupted while waiting, in which case the remaining tasks are cancelled.
+   */
+  private <T> List<Future<T>> invokeAll(final List<Callable<T>> tasks) throws InterruptedException {
+    final LongAdder completed = new LongAdder();
+    final List<Callable<T>> countedTasks = new ArrayList<>(tasks.size());
+
+    for (final Callable<T> task : tasks) {
+      countedTasks.add(() -> {
+        try {
+          return task.call();
+        }
+        finally {
+          completed.increment();
+        }
+      });
+    }
+
+    return this.invokeAll(countedTasks, completed, tasks.size());
+  }
+
+  /**
+   * Executes tasks in parallel and waits for all of them to complete, reporting progress from a count of completed items which the tasks maintain themselves.
+   *
+   * @param tasks     The tasks.
+   * @param completed The number of items completed, which the tasks increment.
+   * @param total     The total number of items.
+   * @param <T>       The type of result.
+   * @return The completed futures, in the same order as the tasks.
+   * @throws InterruptedException if interrupted while waiting, in which case the remaining tasks are cancelled.
+   */
+  private <T> List<Future<T>> invokeAll(final List<Callable<T>> tasks, final LongAdder completed, final long total) throws InterruptedException {
+    final List<Future<T>> futures = new ArrayList<>(tasks.size());
+
+    try {
+      for (final Callable<T> task : tasks) {
+        futures.add(this.executor.submit(task));
+      }
+
+      long next = System.currentTimeMillis() + PROGRESS_INTERVAL;
+
+      for (final Future<T> future : futures) {
+        while (!future.isDone()) {
+          try {
+            future.get(Math.max(next - System.currentTimeMillis(), 1), TimeUnit.MILLISECONDS);
+          }
+          catch (final TimeoutException | ExecutionException | CancellationException e) {
+            // Failures are reported when the results are collected.
+          }
+
+          if (System.currentTimeMillis() >= next) {
+            this.updateProgress(completed.sum(), total, this.getActiveThreads());
+            next = System.currentTimeMillis() + PROGRESS_INTERVAL;
+          }
+        }
+      }
+
+      this.updateProgress(completed.sum(), total, this.getActiveThreads());
+
+      return futures;
+    }
+    catch (final InterruptedException e) {
+      for (final Future<T> future : futures) {
+        future.cancel(true);
+      }
+
+      throw e;
+    }
+  }
+
+  /**
+   * Processes a number of items in parallel using bounded batches. Each task processes {@link #BATCH_SIZE} consecutive items, and only
+   * {@link #BATCHES_PER_THREAD} batches per thread are submitted at a time. The results of each group of batches are passed to the consumer in item order on
+   * the calling thread before the next group is started, so that the results held in memory are bounded however many items there are.
+   *
+   * @param size     The number of items.
+   * @param task     Processes a single item.
+   * @param consumer Receives the result of each item, in order.
+   * @param <T>      The type of result.
+   * @throws Exception if an item could not be processed or its result consumed.
+   */
+  private <T> void invokeBatches(final int size, final BatchTask<T> task, final BatchConsumer<T> consumer) throws Exception {
+    final int parallelism = (this.executor instanceof ForkJoinPool) ? ((ForkJoinPool) this.executor).getParallelism() : Runtime.getRuntime().availableProcessors();
+    final int group = BATCH_SIZE * BATCHES_PER_THREAD * Math.max(1, parallelism);
+    final LongAdder completed = new LongAdder();
+
+    for (int start = 0; start < size; start += group) {
+      final List<Callable<List<T>>> batches = new ArrayList<>();
+
+      for (int batch = start; batch < Math.min(start + group, size); batch += BATCH_SIZE) {
+        final int from = batch;
+        final int to = Math.min(batch + BATCH_SIZE, size);
+
+        batches.add(() -> {
+          final List<T> results = new ArrayList<>(to - from);
+
+          for (int i = from; i < to; i++) {
+            results.add(task.process(i));
+            completed.increment();
+          }
+
+          return results;
+        });
+      }
+
+      // Consume the results in order, releasing each batch once it has been consumed.
+      final List<Future<List<T>>> futures = this.invokeAll(batches, completed, size);
+      int index = start;
+
+      for (int i = 0; i < futures.size(); i++) {
+        for (final T result : futures.get(i).get()) {
+          consumer.accept(index++, result);
+        }
+
+        futures.set(i, null);
+      }
+    }
+  }
+
+  /**
+   * Determines whether a proof file is a shuffle proof written by {@link #writeShuffleProofToFile(ShuffleProof)}, rather than a Verificatum proof.
+   *
+   * @param proof The published proof.
+   * @return True if the proof is a shuffle proof.
+   * @throws CryptographyException if the proof could not be read.
+   */
+  private boolean isShuffleProof(final File proof) throws CryptographyException {
+    if (!proof.isFile()) {
+      return false;
+    }
+
+    try (final InputStream input = Files.newInputStream(proof.toPath())) {
+      return input.read() == '{';
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not read proof file", e);
+    }
+  }
+
+  /**
+   * Maps the list of vote options to numbers in the election parameter group. The list of vote options is modified to contain the mapping.
+   *
    * @param parameters  The election parameters.
    * @param voteOptions The vote options to map.
    * @throws CryptographyException if the cryptographic operation could not be completed.
@@ -1064,6 +1656,47 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     this.endProgress();
   }
 
+  /**
+   * Merges the shares of the election key dealt to a teller by every teller into the teller's key share, which is held in the teller directory, and sets the
+   * election public key in the teller's Verificatum session.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param commitments The published commitments of every teller, in teller order.
+   * @return The election key pair with only the public key present.
+   * @throws CryptographyException if a share is missing or invalid, or the cryptographic operation could not be completed.
+   */
+  @Override
+  public KeyPair mergeKeyShares(final Parameters parameters, final int teller, final List<KeyShareCommitments> commitments) throws CryptographyException {
+    this.checkTellers(parameters, teller);
+
+    this.startProgress(this.messageSource.getMessage("cryptography.selene.merge.key_shares", new Object[] {teller, parameters.getNumberOfTellers()}, null));
+    final File tellerDirectory = VerificatumHelper.getTellerDirectory(parameters, teller);
+    final ObjectMapper mapper = new ObjectMapper();
+    final List<KeyShareDeal> deals = new ArrayList<>(parameters.getNumberOfTellers());
+
+    try {
+      for (final File dealFile : this.getKeyShareDealFiles(parameters, teller)) {
+        if (!dealFile.exists()) {
+          throw new CryptographyException("Could not merge key shares as missing " + dealFile.getName() + " key share deal");
+        }
+
+        deals.add(mapper.readValue(dealFile, KeyShareDeal.class));
+      }
+
+      mapper.writeValue(new File(tellerDirectory, KEY_SHARE_FILENAME), this.thresholdDecryptionAlgorithmHelper.merge(parameters, teller, commitments, deals));
+    }
+    catch (final IOException e) {
+      throw new CryptographyException("Could not merge key shares", e);
+    }
+
+    final BigInteger publicKey = this.thresholdDecryptionAlgorithmHelper.combinePublicKey(parameters, commitments);
+    this.verificatumHelper.setPublicKey(parameters, teller, publicKey);
+    this.endProgress();
+
+    return new KeyPair(null, publicKey);
+  }
+
   /**
    * Merges the Verificatum teller information files ready to perform key generation, shuffling, mixing or decryption.
    *
@@ -1104,110 +1737,109 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     }
 
     try {
-      // Extract the encrypted tracker number and vote values as cipher texts.
-      final List<List<CipherText>> cipherTexts = voters.stream().map(voter -> {
-        try {
-          final byte[] encryptedTrackerNumberInGroup = voter.getTrackerNumber().getEncryptedTrackerNumberInGroup();
-          final byte[] encryptedVote = voter.getEncryptedVote();
+      final List<CipherText> cipherTexts = this.getMixCipherTexts(voters);
 
-          if ((encryptedTrackerNumberInGroup != null) && (encryptedTrackerNumberInGroup.length > 0) &&
-              (encryptedVote != null) && (encryptedVote.length > 0)) {
-            return Arrays.asList(new CipherText(encryptedTrackerNumberInGroup), new CipherText(encryptedVote));
-          }
-          else {
-            return null;
-          }
-        }
-        catch (final Exception e) {
-          throw new RuntimeException(e); // Re-throw as an unchecked exception because of the lambda.
-        }
-      }).filter(Objects::nonNull).collect(Collectors.toList());
-
-      // Mix the encrypted votes: shuffle and decrypt.
+      // Mix the encrypted votes: shuffle and decrypt. Each mixed tracker number and vote is written straight into the mixed voters as it is decrypted.
       this.startProgress(this.messageSource.getMessage("cryptography.selene.mix.votes", new Object[] {voters.size()}, null));
-      final List<List<BigInteger>> plainTexts = new ArrayList<>();
+      final Metrics.Timer timer = this.getMetrics().start("mix-votes", Metrics.TOTAL).setItems(voters.size());
+      final List<Voter> mixedVoters = this.createVoterList(parameters, voters);
+      final VerificatumByteTree.BlockConsumer consumer = this.createMixedVoterConsumer(trackerNumbers, voteOptions, mixedVoters);
       final File proofFile;
 
       if (parameters.getNumberOfTellers() <= 0) {
-        // Local shuffle with an empty proof file. This does not re-encrypt.
-        Collections.shuffle(cipherTexts);
+        // Local verifiable re-encryption shuffle with proof file, keeping the tracker number and vote together.
+        final ShuffleProof shuffleProof = this.shuffleAlgorithmHelper.shuffle(this.getRandom(), parameters, keyPair.getPublicKey(), MIX_VOTES_WIDTH,
+            cipherTexts);
+        final List<CipherText> shuffledCipherTexts = shuffleProof.getOutput();
+        final BigInteger[] plainText = new BigInteger[MIX_VOTES_WIDTH];
 
         // Now decrypt.
-        for (final List<CipherText> cipherText : cipherTexts) {
-          final BigInteger trackerNumberInGroup = new BigInteger(1, this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, cipherText.get(0).toByteArray()));
-          final BigInteger optionNumberInGroup = new BigInteger(1, this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, cipherText.get(1).toByteArray()));
-          plainTexts.add(Arrays.asList(trackerNumberInGroup, optionNumberInGroup));
-        }
+        for (int i = 0; i < shuffledCipherTexts.size(); i += MIX_VOTES_WIDTH) {
+          for (int j = 0; j < MIX_VOTES_WIDTH; j++) {
+            plainText[j] = new BigInteger(1, this.elgamalAlgorithmHelper.decrypt(parameters, keyPair, shuffledCipherTexts.get(i + j)));
+          }
 
-        try {
-          proofFile = Files.createTempFile(null, null).toFile();
-        }
-        catch (final Exception e) {
-          throw new CryptographyException("Could not create empty proof file", e);
+          consumer.accept(i / MIX_VOTES_WIDTH, plainText);
         }
+
+        proofFile = this.writeShuffleProofToFile(shuffleProof);
       }
       else {
-        // Verificatum mix with proof file. Here Verificatum requires a single list of interleaved ciphertexts.
-        final List<CipherText> flatCipherTexts = cipherTexts.stream().flatMap(Collection::stream).collect(Collectors.toList());
-        final ProofWrapper<List<BigInteger>> mix = this.verificatumHelper.mix(parameters, teller, 2, flatCipherTexts); // Tracker number and vote together.
-
-        for (int i = 0; i < mix.getObject().size(); i += 2) {
-          plainTexts.add(Arrays.asList(mix.getObject().get(i), mix.getObject().get(i + 1)));
-        }
-
-        proofFile = mix.getProofFile();
+        // Verificatum mix with proof file, streaming the ciphertexts to Verificatum and the plaintexts back. Tracker number and vote together.
+        proofFile = this.verificatumHelper.mix(parameters, teller, MIX_VOTES_WIDTH, cipherTexts, consumer);
       }
 
-      // Extract the mixed values and convert them back into voter objects.
-      final List<Voter> mixedVoters = new ArrayList<>();
-
-      for (final List<BigInteger> plainText : plainTexts) {
-        final Voter voter = new Voter();
+      timer.close();
+      this.endProgress();
 
-        // Look up the tracker number
-        final TrackerNumber trackerNumber = trackerNumbers.stream()
-            .filter(tracker -> tracker.getTrackerNumberInGroup().equals(plainText.get(0)))
-            .findAny().orElse(null);
+      return new ProofWrapper<>(mixedVoters, proofFile);
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not mix votes", e);
+    }
+  }
 
-        if (trackerNumber == null) {
-          throw new CryptographyException("Could not find tracker number for tracker number in group " + plainText.get(0));
-        }
+  /**
+   * Precomputes as much of the tracker number shuffle and the vote mix as possible before the ciphertexts are known, for example during the voting period, so
+   * that {@link #shuffleTrackerNumbers(Parameters, KeyPair, int, List)} and {@link #mixVotes(Parameters, KeyPair, int, List, List, List)} automatically use the
+   * precomputed material. All tellers must precompute at the same time.
+   *
+   * @param parameters            The election parameters.
+   * @param teller                The number of the teller. Each teller has a unique number, starting at 1.
+   * @param maximumTrackerNumbers The maximum number of tracker numbers which will be shuffled, or zero to skip the shuffle.
+   * @param maximumVoters         The maximum number of votes which will be mixed, or zero to skip the mix.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public void precomputeMixing(final Parameters parameters, final int teller, final int maximumTrackerNumbers, final int maximumVoters)
+      throws CryptographyException {
+    // Without tellers the shuffle is local and there is nothing to precompute.
+    if (parameters.getNumberOfTellers() <= 0) {
+      return;
+    }
 
-        voter.setTrackerNumber(trackerNumber);
+    this.checkTellers(parameters, teller);
 
-        // Lookup the plain text vote.
-        final VoteOption voteOption = voteOptions.stream()
-            .filter(option -> option.getOptionNumberInGroup().equals(plainText.get(1)))
-            .findAny().orElse(null);
+    try {
+      this.startProgress(this.messageSource.getMessage("cryptography.selene.precompute.mixing", new Object[] {maximumTrackerNumbers, maximumVoters}, null));
 
-        if (voteOption == null) {
-          throw new CryptographyException("Could not find vote option for vote option in group " + plainText.get(1));
-        }
+      if (maximumTrackerNumbers > 0) {
+        this.verificatumHelper.precomputeShuffle(parameters, teller, SHUFFLE_TRACKER_NUMBERS_WIDTH, maximumTrackerNumbers);
+      }
 
-        voter.setPlainTextVote(voteOption.getOption());
-        mixedVoters.add(voter);
+      if (maximumVoters > 0) {
+        this.verificatumHelper.precomputeMix(parameters, teller, MIX_VOTES_WIDTH, maximumVoters);
       }
 
       this.endProgress();
-
-      return new ProofWrapper<>(mixedVoters, proofFile);
     }
     catch (final Exception e) {
-      throw new CryptographyException("Could not mix votes", e);
+      throw new CryptographyException("Could not precompute mixing", e);
     }
   }
 
+  /**
+   * Sets the executor used for parallel processing, so that all commands running at the same time share one executor and its number of threads.
+   *
+   * @param executor The executor.
+   */
+  public void setExecutor(final ExecutorService executor) {
+    this.executor = executor;
+  }
+
   /**
    * Shuffles the tracker numbers.
    *
    * @param parameters     The election parameters.
+   * @param keyPair        The election key pair. Only the public key is needed, and only when there are no tellers.
    * @param teller         The number of the teller. Each teller has a unique number, starting at 1.
    * @param trackerNumbers The tracker numbers to shuffle
    * @return The shuffled tracker numbers and the corresponding shuffle proof file. The proof file may be deleted once used.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
   @Override
-  public ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(final Parameters parameters, final int teller, final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+  public ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(final Parameters parameters, final KeyPair keyPair, final int teller,
+                                                                 final List<TrackerNumber> trackerNumbers) throws CryptographyException {
     if (parameters.getNumberOfTellers() > 0) {
       this.checkTellers(parameters, teller);
     }
@@ -1225,25 +1857,25 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
 
       // Shuffle the tracker numbers.
       this.startProgress(this.messageSource.getMessage("cryptography.selene.shuffle.tracker_numbers", new Object[] {trackerNumbers.size()}, null));
+      final Metrics.Timer timer = this.getMetrics().start("shuffle-tracker-numbers", Metrics.TOTAL).setItems(trackerNumbers.size());
       final List<CipherText> shuffledCipherTexts;
       final List<TrackerNumber> shuffledTrackerNumbers;
       final File proofFile;
 
       if (parameters.getNumberOfTellers() <= 0) {
-        // Local shuffle with an empty proof file. This does not re-encrypt.
-        Collections.shuffle(cipherTexts);
-        shuffledCipherTexts = cipherTexts;
-
-        try {
-          proofFile = Files.createTempFile(null, null).toFile();
-        }
-        catch (final Exception e) {
-          throw new CryptographyException("Could not create empty proof file", e);
+        // Local verifiable re-encryption shuffle with proof file.
+        if ((keyPair == null) || (keyPair.getPublicKey() == null)) {
+          throw new CryptographyException("Election public key required to shuffle without tellers");
         }
+
+        final ShuffleProof shuffleProof = this.shuffleAlgorithmHelper.shuffle(this.getRandom(), parameters, keyPair.getPublicKey(),
+            SHUFFLE_TRACKER_NUMBERS_WIDTH, cipherTexts);
+        shuffledCipherTexts = shuffleProof.getOutput();
+        proofFile = this.writeShuffleProofToFile(shuffleProof);
       }
       else {
         // Verificatum shuffle with proof file.
-        final ProofWrapper<List<CipherText>> shuffle = this.verificatumHelper.shuffle(parameters, teller, 1, cipherTexts);
+        final ProofWrapper<List<CipherText>> shuffle = this.verificatumHelper.shuffle(parameters, teller, SHUFFLE_TRACKER_NUMBERS_WIDTH, cipherTexts);
         shuffledCipherTexts = shuffle.getObject();
         proofFile = shuffle.getProofFile();
       }
@@ -1258,6 +1890,7 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
         }
       }).collect(Collectors.toList());
 
+      timer.close();
       this.endProgress();
 
       return new ProofWrapper<>(shuffledTrackerNumbers, proofFile);
@@ -1267,6 +1900,56 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
     }
   }
 
+  /**
+   * Shuffles the encrypted tracker number and vote of each voter without decrypting them.
+   *
+   * @param parameters The election parameters.
+   * @param keyPair    The election key pair. Only the public key is needed, and only when there are no tellers.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param voters     The list of voters with their encrypted votes and encrypted tracker numbers.
+   * @return The shuffled encrypted tracker numbers and votes, one block per voter, and the corresponding shuffle proof file. The proof file may be deleted once
+   * used.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public ProofWrapper<List<CipherText>> shuffleVotes(final Parameters parameters, final KeyPair keyPair, final int teller, final List<Voter> voters)
+      throws CryptographyException {
+    if (parameters.getNumberOfTellers() > 0) {
+      this.checkTellers(parameters, teller);
+    }
+
+    try {
+      final List<CipherText> cipherTexts = this.getMixCipherTexts(voters);
+
+      this.startProgress(this.messageSource.getMessage("cryptography.selene.shuffle.votes", new Object[] {voters.size()}, null));
+      final Metrics.Timer timer = this.getMetrics().start("shuffle-votes", Metrics.TOTAL).setItems(voters.size());
+      final ProofWrapper<List<CipherText>> shuffled;
+
+      if (parameters.getNumberOfTellers() <= 0) {
+        // Local verifiable re-encryption shuffle with proof file, keeping the tracker number and vote together.
+        if ((keyPair == null) || (keyPair.getPublicKey() == null)) {
+          throw new CryptographyException("Election public key required to shuffle without tellers");
+        }
+
+        final ShuffleProof shuffleProof = this.shuffleAlgorithmHelper.shuffle(this.getRandom(), parameters, keyPair.getPublicKey(), MIX_VOTES_WIDTH,
+            cipherTexts);
+        shuffled = new ProofWrapper<>(shuffleProof.getOutput(), this.writeShuffleProofToFile(shuffleProof));
+      }
+      else {
+        // Verificatum shuffle with proof file, under the public key set from the tellers' key shares.
+        shuffled = this.verificatumHelper.shuffle(parameters, teller, MIX_VOTES_WIDTH, cipherTexts);
+      }
+
+      timer.close();
+      this.endProgress();
+
+      return shuffled;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not shuffle votes", e);
+    }
+  }
+
   /**
    * Verifies the non-interactive zero-knowledge proofs of knowledge of a commitment for a voter.
    *
@@ -1278,33 +1961,41 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
    * @return True if the proof is valid.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
-  private boolean verifyCommitmentProof(final Parameters parameters, final KeyPair keyPair, final BigInteger voterPublicKey, final Commitment commitment,
-                                        final CommitmentProof commitmentProof) throws CryptographyException {
+  @Override
+  public boolean verifyCommitmentProof(final Parameters parameters, final KeyPair keyPair, final BigInteger voterPublicKey, final Commitment commitment,
+                                       final CommitmentProof commitmentProof) throws CryptographyException {
     final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
     final BigInteger p = wrapper.getP();
     final BigInteger g = wrapper.getG();
 
-    // Form the statements.
-    final CipherText cipherTextG = new CipherText(commitment.getEncryptedG()); // (A1, A2).
-    final CipherText cipherTextH = new CipherText(commitment.getEncryptedH()); // (B1, B2).
+    // Form the statements, decoding each ciphertext component once.
+    final CipherTextView view = new CipherTextView();
+
+    view.wrap(commitment.getEncryptedG());
+    final BigInteger a1 = view.getAlpha();
+    final BigInteger a2 = view.getBeta();
+
+    view.wrap(commitment.getEncryptedH());
+    final BigInteger b1 = view.getAlpha();
+    final BigInteger b2 = view.getBeta();
 
     // pi11 =? NIZK2.Verify(A1; g; s1) where s1 is the encryptionSecretG.
-    boolean result = this.schnorrAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi11(), new Statement(cipherTextG.getAlpha(), g));
+    boolean result = this.schnorrAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi11(), new Statement(a1, g));
 
     // pi12 =? NIZK2.Verify(B1; g; s2) where s2 is the encryptionSecretH.
-    result &= this.schnorrAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi12(), new Statement(cipherTextH.getAlpha(), g));
+    result &= this.schnorrAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi12(), new Statement(b1, g));
 
     // pi21 =? NIZK1.Verify(A1Dash, A1; A2Dash, A2; t).
-    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi21(), new Statement(commitmentProof.getA1Dash(),
-        cipherTextG.getAlpha()), new Statement(commitmentProof.getA2Dash(), cipherTextG.getBeta()));
+    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi21(), new Statement(commitmentProof.getA1Dash(), a1),
+        new Statement(commitmentProof.getA2Dash(), a2));
 
     // pi22 =? NIZK1.Verify(B1Dash, B1; B2Dash, B2; t).
-    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi22(), new Statement(commitmentProof.getB1Dash(),
-        cipherTextH.getAlpha()), new Statement(commitmentProof.getB2Dash(), cipherTextH.getBeta()));
+    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi22(), new Statement(commitmentProof.getB1Dash(), b1),
+        new Statement(commitmentProof.getB2Dash(), b2));
 
     // pi23 =? NIZK1.Verify(B1Dash, B1; B2Dash, B2; t).
-    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi23(), new Statement(commitmentProof.getA1Dash(),
-        cipherTextG.getAlpha()), new Statement(commitmentProof.getB1Dash(), cipherTextH.getAlpha()));
+    result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi23(), new Statement(commitmentProof.getA1Dash(), a1),
+        new Statement(commitmentProof.getB1Dash(), b1));
 
     // pi31 =? NIZK1.Verify(A1Dash, g; A2Dash * C^-1 mod p, electionPublicKey).
     result &= this.chaumPedersenAlgorithmHelper.verifyProof(parameters, commitmentProof.getPi31(), new Statement(commitmentProof.getA1Dash(), g),
@@ -1335,8 +2026,9 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
    * @return True if the proof is valid.
    * @throws CryptographyException if the cryptographic operation could not be completed.
    */
-  boolean verifyEncryptProof(final Parameters parameters, final KeyPair keyPair, final byte[] encrypted, final KeyPair signatureKeyPair,
-                             final EncryptProof encryptProof) throws CryptographyException {
+  @Override
+  public boolean verifyEncryptProof(final Parameters parameters, final KeyPair keyPair, final byte[] encrypted, final KeyPair signatureKeyPair,
+                                    final EncryptProof encryptProof) throws CryptographyException {
     final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
     final BigInteger p = wrapper.getP();
     final BigInteger q = wrapper.getQ();
@@ -1363,29 +2055,335 @@ public class SeleneCryptographyHelper extends JavaCryptographyHelper {
   }
 
   /**
-   * Writes the content as CSV to a file using the optional view. If an optional view is provided then only those properties with a view that matches are written.
-   * No properties are included by default if they do not have an associated {@link JsonView}.
+   * Verifies published proofs of shuffle, mixing or decryption. Each proof is an independent session, so the proofs are verified concurrently.
+   *
+   * @param statement The election's own published values.
+   * @param proofs    The published proof ZIP files, proof directories or shuffle proof files.
+   * @return The outcome of verifying each proof, in the same order as the proofs.
+   * @throws CryptographyException if the proofs could not be read.
+   */
+  @Override
+  public List<ProofVerification> verifyProofs(final ProofStatement statement, final List<File> proofs) throws CryptographyException {
+    final List<ProofVerification> verifications = new ArrayList<>();
+
+    try {
+      this.startProgress(this.messageSource.getMessage("cryptography.selene.verify.proofs", new Object[] {proofs.size()}, null));
+      final Metrics.Timer timer = this.getMetrics().start("verify-proofs", Metrics.TOTAL).setItems(proofs.size());
+
+      final List<Future<ProofVerification>> verifyFutures = new ArrayList<>();
+      for (final File proof : proofs) {
+        if (this.isShuffleProof(proof)) {
+          verifyFutures.add(this.executor.submit(() -> this.getMetrics().time("verify-proofs", "shuffle-proof", () -> this.verifyShuffleProof(proof, statement))));
+        }
+        else {
+          verifyFutures.add(this.executor.submit(() -> this.getMetrics().time("verify-proofs", "verificatum-proof", () -> this.verificatumHelper.verify(proof, statement))));
+        }
+      }
+
+      for (int i = 0; i < proofs.size(); i++) {
+        verifications.add(verifyFutures.get(i).get());
+        this.updateProgress(100 * (i + 1) / (float) proofs.size());
+      }
+      timer.close();
+      this.endProgress();
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not execute verify proofs in parallel", e);
+    }
+
+    return verifications;
+  }
+
+  /**
+   * Verifies a shuffle proof written by {@link #writeShuffleProofToFile(ShuffleProof)} against the election's own published values. A shuffle of tracker
+   * numbers must be of the published tracker numbers into the published shuffled tracker numbers, and a mix must be of the published encrypted votes. The mixed
+   * ciphertexts are not published, so those in a mix proof are used.
+   *
+   * @param proof     The published proof.
+   * @param statement The election's own published values.
+   * @return The outcome of verifying the proof.
+   */
+  private ProofVerification verifyShuffleProof(final File proof, final ProofStatement statement) {
+    final long start = System.currentTimeMillis();
+    int width = 0;
+    boolean verified = false;
+    String error = null;
+
+    try {
+      final ShuffleProof shuffleProof = new ObjectMapper().readValue(proof, ShuffleProof.class);
+      width = shuffleProof.getWidth();
+
+      final List<CipherText> input;
+      final List<CipherText> output;
+
+      if (width == SHUFFLE_TRACKER_NUMBERS_WIDTH) {
+        input = statement.getTrackerNumbers();
+        output = statement.getShuffledTrackerNumbers();
+      }
+      else {
+        input = statement.getVotes();
+        output = null;
+      }
+
+      if ((input == null) || ((width == SHUFFLE_TRACKER_NUMBERS_WIDTH) && (output == null))) {
+        error = "Missing published ciphertexts for shuffle proof of width " + width;
+      }
+      else {
+        verified = this.shuffleAlgorithmHelper.verify(statement.getParameters(), statement.getPublicKey(), input, output, shuffleProof);
+
+        if (!verified) {
+          error = "Shuffle proof is not valid for the election";
+        }
+      }
+    }
+    catch (final Exception e) {
+      error = e.getMessage();
+    }
+
+    return new ProofVerification(proof.getPath(), SHUFFLE_PROOF_TYPE, null, width, verified, System.currentTimeMillis() - start, error);
+  }
+
+  /**
+   * Writes a shuffle proof as JSON to a file.
    *
-   * @param clazz   The class (or contained class) of the content.
-   * @param content The content to write.
-   * @param view    The optional view to filter for.
-   * @return The CSV file.
+   * @param shuffleProof The shuffle proof.
+   * @return The JSON file.
    * @throws CryptographyException if the file could not be written.
    */
-  private File writeCSVToFile(final Class<?> clazz, final Object content, final Class<?> view) throws CryptographyException {
-    final File csvFile;
+  private File writeShuffleProofToFile(final ShuffleProof shuffleProof) throws CryptographyException {
+    final File jsonFile;
 
     try {
-      // Use a shell component to write the CSV file.
-      csvFile = Files.createTempFile(null, null).toFile();
-      final BaseShellComponent shellComponent = new BaseShellComponent() {
-      };
-      shellComponent.writeCSV(csvFile, clazz, content, view);
+      jsonFile = Files.createTempFile(null, null).toFile();
+      new ObjectMapper().writeValue(jsonFile, shuffleProof);
     }
     catch (final Exception e) {
-      throw new CryptographyException("Could not create CSV file", e);
+      throw new CryptographyException("Could not create shuffle proof file", e);
     }
 
-    return csvFile;
+    return jsonFile;
+  }
+
+  /**
+   * Receives the result of each item processed by {@link #invokeBatches(int, BatchTask, BatchConsumer)}, in order.
+   *
+   * @param <T> The type of result.
+   */
+  @FunctionalInterface
+  private interface BatchConsumer<T> {
+
+    /**
+     * Receives the result of an item.
+     *
+     * @param index  The index of the item.
+     * @param result The result.
+     * @throws Exception if the result could not be used.
+     */
+    void accept(int index, T result) throws Exception;
+  }
+
+  /**
+   * Processes a single item for {@link #invokeBatches(int, BatchTask, BatchConsumer)}.
+   *
+   * @param <T> The type of result.
+   */
+  @FunctionalInterface
+  private interface BatchTask<T> {
+
+    /**
+     * Processes an item.
+     *
+     * @param index The index of the item.
+     * @return The result.
+     * @throws Exception if the item could not be processed.
+     */
+    T process(int index) throws Exception;
+  }
+
+  /**
+   * Writes proofs as they are created, either to a CSV file or to a {@link ProofArchive} indexed by a key for each proof.
+   *
+   * @param <T> The type of proof.
+   */
+  private static class ProofOutput<T> implements Closeable {
+
+    /** The archive, if the proofs are being archived. */
+    private final ProofArchive.ChunkWriter<T> archive;
+
+    /** The CSV output, if the proofs are not being archived. */
+    private final Writer output;
+
+    /** The CSV proofs, if the proofs are not being archived. */
+    private final SequenceWriter proofs;
+
+    /**
+     * Constructor requiring the proof file.
+     *
+     * @param file     The proof file.
+     * @param clazz    The class of proof.
+     * @param encoding The encoding used for {@link BigInteger} values.
+     * @param archive  True if the proofs are to be archived, false for a CSV file.
+     * @throws CryptographyException if the proof file could not be opened.
+     */
+    ProofOutput(final File file, final Class<T> clazz, final ElementEncoding encoding, final boolean archive) throws CryptographyException {
+      if (archive) {
+        this.archive = ProofArchive.create(file, clazz, JacksonViews.Public.class, encoding, ProofArchive.DEFAULT_CHUNK_SIZE);
+        this.output = null;
+        this.proofs = null;
+      }
+      else {
+        try {
+          this.archive = null;
+          this.output = Files.newBufferedWriter(file.toPath());
+          this.proofs = new BaseShellComponent() {
+          }.writeCSVValues(this.output, clazz, JacksonViews.Public.class, encoding);
+        }
+        catch (final Exception e) {
+          throw new CryptographyException("Could not open proof file " + file, e);
+        }
+      }
+    }
+
+    /**
+     * Closes the proof file.
+     *
+     * @throws IOException if the proof file could not be closed.
+     */
+    @Override
+    public void close() throws IOException {
+      if (this.archive != null) {
+        try {
+          this.archive.close();
+        }
+        catch (final CryptographyException e) {
+          throw new IOException(e);
+        }
+      }
+      else {
+        try {
+          this.proofs.close();
+        }
+        finally {
+          this.output.close();
+        }
+      }
+    }
+
+    /**
+     * Writes the next proof.
+     *
+     * @param proof The proof.
+     * @param key   The key of the proof used to index the archive, such as the voter's public key.
+     * @throws Exception if the proof could not be written.
+     */
+    void write(final T proof, final BigInteger key) throws Exception {
+      if (this.archive != null) {
+        this.archive.add(proof, key);
+      }
+      else {
+        this.proofs.write(proof);
+      }
+    }
+  }
+
+  /**
+   * Set of distinct byte arrays, such as encrypted votes, which holds only a 64-bit hash and the row of each value rather than the value itself. Values with the
+   * same hash are compared in full by reading them back from their rows, so that the set costs a few bytes per value however large the values are.
+   */
+  static class DistinctRows {
+
+    /** The hash of each value, by slot. */
+    private long[] hashes;
+
+    /** The row of each value plus one, by slot, so that zero marks an empty slot. */
+    private int[] rows;
+
+    /** The number of values in the set. */
+    private int size = 0;
+
+    /**
+     * Constructor allowing the expected number of values to be defined.
+     *
+     * @param expected The expected number of values.
+     */
+    DistinctRows(final int expected) {
+      final int capacity = Integer.highestOneBit(Math.max(16, expected * 2) - 1) << 1;
+      this.hashes = new long[capacity];
+      this.rows = new int[capacity];
+    }
+
+    /**
+     * Calculates the 64-bit FNV-1a hash of a value.
+     *
+     * @param value The value.
+     * @return The hash.
+     */
+    private static long hash(final byte[] value) {
+      long hash = 0xcbf29ce484222325L;
+
+      for (final byte b : value) {
+        hash ^= (b & 0xff);
+        hash *= 0x100000001b3L;
+      }
+
+      return hash;
+    }
+
+    /**
+     * Adds a value to the set.
+     *
+     * @param value  The value.
+     * @param row    The row holding the value.
+     * @param values Reads back the value held in another row.
+     * @return True if the value was added, false if an equal value is already in the set.
+     */
+    boolean add(final byte[] value, final int row, final IntFunction<byte[]> values) {
+      if ((this.size + 1) * 2 > this.rows.length) {
+        this.resize();
+      }
+
+      final long hash = hash(value);
+      final int mask = this.rows.length - 1;
+      int slot = (int) (hash ^ (hash >>> 32)) & mask;
+
+      while (this.rows[slot] != 0) {
+        if ((this.hashes[slot] == hash) && Arrays.equals(values.apply(this.rows[slot] - 1), value)) {
+          return false;
+        }
+
+        slot = (slot + 1) & mask;
+      }
+
+      this.hashes[slot] = hash;
+      this.rows[slot] = row + 1;
+      this.size++;
+
+      return true;
+    }
+
+    /**
+     * Doubles the capacity of the set.
+     */
+    private void resize() {
+      final long[] hashes = this.hashes;
+      final int[] rows = this.rows;
+      this.hashes = new long[hashes.length * 2];
+      this.rows = new int[rows.length * 2];
+
+      final int mask = this.rows.length - 1;
+
+      for (int i = 0; i < rows.length; i++) {
+        if (rows[i] != 0) {
+          int slot = (int) (hashes[i] ^ (hashes[i] >>> 32)) & mask;
+
+          while (this.rows[slot] != 0) {
+            slot = (slot + 1) & mask;
+          }
+
+          this.hashes[slot] = hashes[i];
+          this.rows[slot] = rows[i];
+        }
+      }
+    }
   }
 }
@@ -0,0 +1,727 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.threshold.ThresholdDecryptionAlgorithmHelper;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Simulates the Verificatum mix-net within a single JVM so that the teller code paths can be tested and benchmarked on one machine without Verificatum being
+ * installed. Each teller is a thread which calls this helper in the same way it would call {@link VerificatumHelper}, and the tellers of an election meet in
+ * memory rather than over the network, so that the host addresses and ports given to each teller are recorded but not used.
+ * <p>
+ * The simulation follows the same threshold protocol: the tellers generate Shamir shares of the election secret key without a dealer, the first threshold
+ * tellers each re-encrypt and permute the ciphertexts in turn, and the first threshold tellers each contribute a decryption share which every teller verifies
+ * and combines. Decryption is native rather than simulated: the shares are created and combined by {@link ThresholdDecryptionAlgorithmHelper} with batched
+ * Chaum-Pedersen proofs and are written to the proof directory as share files. Each teller performs its own part of the work on its own thread, so the cost of
+ * an operation is spread across the tellers as it would be in a real mix-net. Every teller receives the same output and a proof directory with the same layout,
+ * but the shuffles are not proved: the output must not be used for a real election.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class SimulatedVerificatumHelper extends VerificatumHelper {
+
+  /** The prefix of the decryption share files written to the proof directory. */
+  static final String DECRYPTION_SHARE_PREFIX = "DecryptionShare";
+
+  /** The suffix of the decryption share files written to the proof directory. */
+  static final String DECRYPTION_SHARE_SUFFIX = ".json";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(SimulatedVerificatumHelper.class);
+
+  /** The version recorded in each proof directory. */
+  private static final String SIMULATED_VERSION = "simulated";
+
+  /** The elections being simulated, by name. */
+  private final Map<String, Election> elections = new ConcurrentHashMap<>();
+
+  /** Source of randomness. */
+  private final SecureRandom random = new SecureRandom();
+
+  /** Threshold decryption helper used to create and combine the decryption shares. */
+  private final ThresholdDecryptionAlgorithmHelper thresholdDecryptionAlgorithmHelper = new ThresholdDecryptionAlgorithmHelper(new ChaumPedersenAlgorithmHelper());
+
+  /** The maximum time in milliseconds for a teller to wait for the other tellers, or zero for no limit. */
+  private final long timeout;
+
+  /**
+   * Default constructor: tellers wait for each other indefinitely.
+   */
+  public SimulatedVerificatumHelper() {
+    this(0);
+  }
+
+  /**
+   * Constructor which fails any operation for which a teller waits longer than the timeout for the other tellers.
+   *
+   * @param timeout The maximum time in milliseconds for a teller to wait for the other tellers, or zero for no limit.
+   */
+  public SimulatedVerificatumHelper(final long timeout) {
+    super(null, timeout);
+    this.timeout = timeout;
+  }
+
+  /**
+   * Checks that the parameters are suitable for ElGamal over a prime order group.
+   *
+   * @param parameters The election parameters.
+   * @return The parameters.
+   * @throws CryptographyException if the parameters are of the wrong class.
+   */
+  private static DHParametersWrapper checkDHParameters(final Parameters parameters) throws CryptographyException {
+    if (!(parameters instanceof DHParametersWrapper)) {
+      throw new CryptographyException("Could not perform operation: wrong class " + parameters.getClass().getName());
+    }
+
+    return (DHParametersWrapper) parameters;
+  }
+
+  /**
+   * Creates the election key pair. The first teller to call this for an election generates the secret key and its shares. Each teller will have their own share
+   * of the secret key and hence the output is only the public key.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The created key pair with only the public key present.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  @Override
+  public KeyPair createElectionKeyPair(final Parameters parameters, final int teller) throws CryptographyException {
+    final Election election = this.getElection(parameters);
+
+    return new KeyPair(null, election.getKeys(this.thresholdDecryptionAlgorithmHelper, this.random).publicKey);
+  }
+
+  /**
+   * Creates a simulated teller, returning its information file which should be shared with all other tellers. The first teller to be created for an election
+   * starts a new simulation of it.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param hostAddress The teller's address (or DNS host name).
+   * @param tellerPort  The teller's main port.
+   * @param hintPort    The teller's hint port.
+   * @return The path to the teller's information file which needs to be copied to all tellers.
+   * @throws CryptographyException if the teller could not be setup.
+   */
+  @Override
+  public File createTeller(final Parameters parameters, final int teller, final String hostAddress, final int tellerPort, final int hintPort) throws CryptographyException {
+    checkDHParameters(parameters);
+
+    // A teller being created again means that the previous simulation of the election has finished.
+    this.elections.compute(parameters.getName(), (name, election) -> ((election == null) || !election.created.add(teller)) ?
+        new Election(parameters, teller) : election);
+
+    try {
+      final File tellerDirectory = getTellerDirectory(parameters, teller);
+      tellerDirectory.mkdirs();
+
+      final String information = String.format("<party>%n  <name>%s</name>%n  <http>http://%s:%d</http>%n  <hint>%s:%d</hint>%n</party>%n",
+          getTellerName(parameters, teller), hostAddress, tellerPort, hostAddress, hintPort);
+      final File tellerInfoFile = new File(tellerDirectory, getTellerInfoFile(parameters, teller).toString());
+      Files.write(tellerInfoFile.toPath(), information.getBytes(StandardCharsets.UTF_8));
+
+      return tellerInfoFile;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not create teller start", e);
+    }
+  }
+
+  /**
+   * Decrypts a list of ciphertexts.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width       The number of ciphertexts to be operated on as a block.
+   * @param cipherTexts The list of ciphertexts to be decrypted.
+   * @return The decrypted plaintexts with the corresponding proof directory.
+   * @throws CryptographyException if the operation could not be performed.
+   */
+  @Override
+  public ProofWrapper<List<BigInteger>> decrypt(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
+    final Round round = this.getElection(parameters).join(OPERATION_SESSION_DECRYPT, teller, cipherTexts);
+
+    try {
+      final List<BigInteger> plainTexts = this.decrypt(round, teller, cipherTexts);
+      return new ProofWrapper<>(plainTexts, this.writeProofDirectory(parameters, teller, OPERATION_SESSION_DECRYPT, width, round));
+    }
+    finally {
+      round.leave();
+    }
+  }
+
+  /**
+   * Performs this teller's part of a distributed decryption and then waits for the other tellers to obtain the plaintexts. Each of the first threshold tellers
+   * creates a proved decryption share from its share of the secret key, and every teller verifies and combines the shares.
+   *
+   * @param round       The round of the operation.
+   * @param teller      The number of the teller.
+   * @param cipherTexts The ciphertexts to decrypt.
+   * @return The plaintexts.
+   * @throws CryptographyException if the decryption failed.
+   */
+  private List<BigInteger> decrypt(final Round round, final int teller, final List<CipherText> cipherTexts) throws CryptographyException {
+    final Election election = round.election;
+    final Keys keys = election.getKeys(this.thresholdDecryptionAlgorithmHelper, this.random);
+
+    if (keys.shares == null) {
+      throw new CryptographyException("Could not decrypt: the public key was set by the tellers and their key shares are not held by the simulation");
+    }
+
+    if (teller <= election.threshold) {
+      final CompletableFuture<DecryptionShare> share = round.shares.get(teller - 1);
+
+      try {
+        share.complete(this.thresholdDecryptionAlgorithmHelper.decrypt(this.random, election.parameters, keys.shares.get(teller - 1), cipherTexts));
+      }
+      catch (final CryptographyException | RuntimeException e) {
+        share.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    // Combine the shares from all of the decrypting tellers.
+    final List<DecryptionShare> shares = new ArrayList<>(round.shares.size());
+
+    for (final CompletableFuture<DecryptionShare> share : round.shares) {
+      shares.add(this.await(share));
+    }
+
+    return this.thresholdDecryptionAlgorithmHelper.combine(election.parameters, keys.publicKey, cipherTexts, shares);
+  }
+
+  /**
+   * Waits for the result of another teller.
+   *
+   * @param future The future result.
+   * @param <T>    The type of result.
+   * @return The result.
+   * @throws CryptographyException if the other teller failed or did not finish in time.
+   */
+  private <T> T await(final CompletableFuture<T> future) throws CryptographyException {
+    try {
+      return (this.timeout > 0) ? future.get(this.timeout, TimeUnit.MILLISECONDS) : future.get();
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CryptographyException("Interrupted waiting for tellers", e);
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not complete operation with other tellers", e);
+    }
+  }
+
+  /**
+   * Obtains the simulation of an election.
+   *
+   * @param parameters The election parameters.
+   * @return The election.
+   * @throws CryptographyException if the election has not been created.
+   */
+  private Election getElection(final Parameters parameters) throws CryptographyException {
+    final Election election = this.elections.get(parameters.getName());
+
+    if (election == null) {
+      throw new CryptographyException("No simulated tellers have been created for election " + parameters.getName());
+    }
+
+    return election;
+  }
+
+  /**
+   * Merges the simulated teller information files into the protocol information file.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @throws CryptographyException if the teller could not be setup.
+   */
+  @Override
+  public void mergeTeller(final Parameters parameters, final int teller) throws CryptographyException {
+    final File tellerDirectory = getTellerDirectory(parameters, teller);
+    final StringBuilder protocolInformation = new StringBuilder(String.format("<protocol>%n  <name>%s</name>%n  <nopart>%d</nopart>%n  <thres>%d</thres>%n",
+        parameters.getName(), parameters.getNumberOfTellers(), parameters.getThresholdTellers()));
+
+    try {
+      for (int i = 1; i <= parameters.getNumberOfTellers(); i++) {
+        final File tellerInfoFile = getTellerInfoFile(parameters, i);
+        final File path = new File(tellerDirectory, tellerInfoFile.toString());
+
+        if (!path.exists()) {
+          throw new CryptographyException("Could not finish creation of teller as missing " + tellerInfoFile.toString() + " teller information file");
+        }
+
+        protocolInformation.append(new String(Files.readAllBytes(path.toPath()), StandardCharsets.UTF_8));
+      }
+
+      protocolInformation.append(String.format("</protocol>%n"));
+      Files.write(new File(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME).toPath(), protocolInformation.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not merge teller", e);
+    }
+  }
+
+  /**
+   * Mixes a list of ciphertexts: the ciphertexts are shuffled and then decrypted. The simulated tellers share the plaintexts in memory, which are then passed to
+   * the consumer one block at a time.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width       The number of ciphertexts to be operated on as a block.
+   * @param cipherTexts The list of ciphertexts to be mixed.
+   * @param consumer    Receives each block of mixed and decrypted plaintexts.
+   * @return The corresponding proof directory.
+   * @throws CryptographyException if the operation could not be performed.
+   */
+  @Override
+  public File mix(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts,
+                  final VerificatumByteTree.BlockConsumer consumer) throws CryptographyException {
+    final Round round = this.getElection(parameters).join(OPERATION_SESSION_MIX, teller, cipherTexts);
+
+    try {
+      final List<CipherText> shuffled = this.shuffle(round, teller, width);
+      final List<BigInteger> plainTexts = this.decrypt(round, teller, shuffled);
+      final File proofDirectory = this.writeProofDirectory(parameters, teller, OPERATION_SESSION_MIX, width, round);
+      final BigInteger[] values = new BigInteger[width];
+
+      for (int i = 0; i < (plainTexts.size() / width); i++) {
+        for (int j = 0; j < width; j++) {
+          values[j] = plainTexts.get((i * width) + j);
+        }
+
+        consumer.accept(i, values);
+      }
+
+      return proofDirectory;
+    }
+    finally {
+      round.leave();
+    }
+  }
+
+  /**
+   * Precomputation is not simulated: the simulated shuffle is performed in full when the ciphertexts are known.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width      The number of ciphertexts to be operated on as a block.
+   * @param maximum    The maximum number of blocks of ciphertexts which will be mixed.
+   */
+  @Override
+  public void precomputeMix(final Parameters parameters, final int teller, final int width, final int maximum) {
+    LOG.debug("Simulated precompute mix for teller {}", teller);
+  }
+
+  /**
+   * Precomputation is not simulated: the simulated shuffle is performed in full when the ciphertexts are known.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width      The number of ciphertexts to be operated on as a block.
+   * @param maximum    The maximum number of blocks of ciphertexts which will be shuffled.
+   */
+  @Override
+  public void precomputeShuffle(final Parameters parameters, final int teller, final int width, final int maximum) {
+    LOG.debug("Simulated precompute shuffle for teller {}", teller);
+  }
+
+  /**
+   * Sets the election public key where it was generated by the tellers outside of the simulation, so that the simulated shuffles use it. The simulation cannot
+   * then decrypt, since the tellers hold the key shares.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param publicKey  The election public key.
+   * @throws CryptographyException if the public key does not match that already set for the election.
+   */
+  @Override
+  public void setPublicKey(final Parameters parameters, final int teller, final BigInteger publicKey) throws CryptographyException {
+    this.getElection(parameters).setKeys(publicKey);
+  }
+
+  /**
+   * Shuffles a list of ciphertexts.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width       The number of ciphertexts to be operated on as a block.
+   * @param cipherTexts The list of ciphertexts to be shuffled.
+   * @return The shuffled (and re-encrypted) ciphertexts with the corresponding proof directory.
+   * @throws CryptographyException if the operation could not be performed.
+   */
+  @Override
+  public ProofWrapper<List<CipherText>> shuffle(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
+    final Round round = this.getElection(parameters).join(OPERATION_SESSION_SHUFFLE, teller, cipherTexts);
+
+    try {
+      final List<CipherText> shuffled = this.shuffle(round, teller, width);
+      return new ProofWrapper<>(shuffled, this.writeProofDirectory(parameters, teller, OPERATION_SESSION_SHUFFLE, width, round));
+    }
+    finally {
+      round.leave();
+    }
+  }
+
+  /**
+   * Performs this teller's part of a distributed shuffle and then waits for the other tellers to obtain the final shuffled ciphertexts. Each of the first
+   * threshold tellers re-encrypts and permutes the output of the previous teller.
+   *
+   * @param round  The round of the operation.
+   * @param teller The number of the teller.
+   * @param width  The number of ciphertexts to be operated on as a block.
+   * @return The shuffled ciphertexts.
+   * @throws CryptographyException if the shuffle failed.
+   */
+  private List<CipherText> shuffle(final Round round, final int teller, final int width) throws CryptographyException {
+    final Election election = round.election;
+
+    if ((width < 1) || ((round.input.size() % width) != 0)) {
+      throw new CryptographyException("Number of ciphertexts " + round.input.size() + " is not a multiple of the width " + width);
+    }
+
+    if (teller <= election.threshold) {
+      final List<CipherText> input = this.await(round.shuffles.get(teller - 1));
+      final CompletableFuture<List<CipherText>> output = round.shuffles.get(teller);
+
+      try {
+        output.complete(this.reEncryptAndPermute(election, input, width));
+      }
+      catch (final RuntimeException e) {
+        output.completeExceptionally(e);
+        throw e;
+      }
+    }
+
+    return this.await(round.shuffles.get(election.threshold));
+  }
+
+  /**
+   * Re-encrypts each ciphertext and randomly permutes the blocks of ciphertexts.
+   *
+   * @param election    The election.
+   * @param cipherTexts The ciphertexts.
+   * @param width       The number of ciphertexts to be operated on as a block.
+   * @return The re-encrypted and permuted ciphertexts.
+   * @throws CryptographyException if the election keys could not be obtained.
+   */
+  private List<CipherText> reEncryptAndPermute(final Election election, final List<CipherText> cipherTexts, final int width) throws CryptographyException {
+    final BigInteger p = election.parameters.getP();
+    final BigInteger g = election.parameters.getG();
+    final BigInteger q = election.parameters.getQ();
+    final BigInteger publicKey = election.getKeys(this.thresholdDecryptionAlgorithmHelper, this.random).publicKey;
+
+    final List<Integer> blocks = new ArrayList<>();
+    for (int i = 0; i < (cipherTexts.size() / width); i++) {
+      blocks.add(i);
+    }
+    Collections.shuffle(blocks, this.random);
+
+    final List<CipherText> output = new ArrayList<>(cipherTexts.size());
+
+    for (final int block : blocks) {
+      for (int j = 0; j < width; j++) {
+        final CipherText cipherText = cipherTexts.get((block * width) + j);
+        final BigInteger r = new BigInteger(q.bitLength(), this.random).mod(q);
+        output.add(new CipherText(cipherText.getAlpha().multiply(g.modPow(r, p)).mod(p), cipherText.getBeta().multiply(publicKey.modPow(r, p)).mod(p)));
+      }
+    }
+
+    return output;
+  }
+
+  /**
+   * Simulated proofs contain no proofs, so they can never be verified.
+   *
+   * @param proof     The published proof ZIP file or proof directory.
+   * @param statement The election's own published values.
+   * @return The failed verification.
+   */
+  @Override
+  public ProofVerification verify(final File proof, final ProofStatement statement) {
+    return new ProofVerification(proof.getPath(), null, null, 0, false, 0, "Simulated proofs cannot be verified");
+  }
+
+  /**
+   * Writes the proof directory for an operation with the same layout as Verificatum. The proof directory records the operation and contains a share file for
+   * each of the decryption shares, but there are no proofs of the shuffle.
+   *
+   * @param parameters         The election parameters.
+   * @param teller             The number of the teller.
+   * @param auxiliarySessionId The auxiliary session identifier of the operation.
+   * @param width              The number of ciphertexts operated on as a block.
+   * @param round              The round of the operation.
+   * @return The proof directory.
+   * @throws CryptographyException if the directory could not be written.
+   */
+  private File writeProofDirectory(final Parameters parameters, final int teller, final String auxiliarySessionId, final int width, final Round round)
+      throws CryptographyException {
+    final File tellerDirectory = getTellerDirectory(parameters, teller);
+    final Path proofPath = Paths.get(tellerDirectory.toString(), PROOF_DIRECTORY.toString(), auxiliarySessionId);
+
+    try {
+      Files.createDirectories(proofPath);
+      Files.write(proofPath.resolve("version"), SIMULATED_VERSION.getBytes(StandardCharsets.UTF_8));
+      Files.write(proofPath.resolve("type"), auxiliarySessionId.getBytes(StandardCharsets.UTF_8));
+      Files.write(proofPath.resolve("auxsid"), auxiliarySessionId.getBytes(StandardCharsets.UTF_8));
+      Files.write(proofPath.resolve("width"), Integer.toString(width).getBytes(StandardCharsets.UTF_8));
+
+      // Only completed shares are written, which is all of them once a decryption has been combined.
+      final ObjectMapper mapper = new ObjectMapper();
+
+      for (final CompletableFuture<DecryptionShare> share : round.shares) {
+        if (share.isDone() && !share.isCompletedExceptionally()) {
+          final DecryptionShare decryptionShare = share.get();
+          mapper.writeValue(proofPath.resolve(String.format("%s%02d%s", DECRYPTION_SHARE_PREFIX, decryptionShare.getTeller(), DECRYPTION_SHARE_SUFFIX)).toFile(),
+              decryptionShare);
+        }
+      }
+
+      final File protocolInformationFile = new File(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME);
+      if (protocolInformationFile.exists()) {
+        Files.copy(protocolInformationFile.toPath(), proofPath.resolve(TELLER_PUBLIC_INFO_FILENAME), StandardCopyOption.REPLACE_EXISTING);
+      }
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not create proof directory", e);
+    }
+
+    return proofPath.toFile();
+  }
+
+  /**
+   * A simulated election, shared by all of its tellers.
+   */
+  private static class Election {
+
+    /** The tellers which have been created. */
+    private final Set<Integer> created = ConcurrentHashMap.newKeySet();
+
+    /** The number of operations joined by each teller for each auxiliary session identifier. */
+    private final Map<String, Integer> joined = new HashMap<>();
+
+    /** The election parameters. */
+    private final DHParametersWrapper parameters;
+
+    /** The operations in progress, by auxiliary session identifier and sequence number. */
+    private final Map<String, Round> rounds = new HashMap<>();
+
+    /** The threshold number of tellers. */
+    private final int threshold;
+
+    /** The election keys, generated by the first teller to need them. */
+    private Keys keys = null;
+
+    /**
+     * Constructor for a new simulation.
+     *
+     * @param parameters The election parameters.
+     * @param teller     The first teller created.
+     */
+    private Election(final Parameters parameters, final int teller) {
+      this.parameters = (DHParametersWrapper) parameters;
+      this.threshold = Math.max(1, parameters.getThresholdTellers());
+      this.created.add(teller);
+    }
+
+    /**
+     * Gets the election keys, generating them if needed.
+     *
+     * @param helper Threshold decryption helper used to split the secret key into shares.
+     * @param random Source of randomness.
+     * @return The election keys.
+     * @throws CryptographyException if the number of tellers is invalid.
+     */
+    private synchronized Keys getKeys(final ThresholdDecryptionAlgorithmHelper helper, final SecureRandom random) throws CryptographyException {
+      if (this.keys == null) {
+        if (this.parameters.getNumberOfTellers() < this.threshold) {
+          throw new CryptographyException("Threshold " + this.threshold + " exceeds the number of tellers " + this.parameters.getNumberOfTellers());
+        }
+
+        this.keys = new Keys(this.parameters, this.threshold, helper, random);
+      }
+
+      return this.keys;
+    }
+
+    /**
+     * Joins a teller to an operation. Tellers perform the same operations in the same order, and so the nth call by each teller for an auxiliary session
+     * identifier joins the same round.
+     *
+     * @param auxiliarySessionId The auxiliary session identifier of the operation.
+     * @param teller             The number of the teller.
+     * @param cipherTexts        The teller's input ciphertexts.
+     * @return The round.
+     */
+    private synchronized Round join(final String auxiliarySessionId, final int teller, final List<CipherText> cipherTexts) {
+      final String tellerKey = auxiliarySessionId + "/" + teller;
+      final int sequence = this.joined.merge(tellerKey, 1, Integer::sum);
+      final String roundKey = auxiliarySessionId + "/" + sequence;
+
+      return this.rounds.computeIfAbsent(roundKey, key -> new Round(this, key, cipherTexts));
+    }
+
+    /**
+     * Removes a round once all tellers have left it.
+     *
+     * @param round The round.
+     */
+    private synchronized void remove(final Round round) {
+      this.rounds.remove(round.key);
+    }
+
+    /**
+     * Sets the election public key where it was generated by the tellers outside of the simulation. Every teller sets the same key.
+     *
+     * @param publicKey The election public key.
+     * @throws CryptographyException if a different key has already been set or generated.
+     */
+    private synchronized void setKeys(final BigInteger publicKey) throws CryptographyException {
+      if (this.keys == null) {
+        this.keys = new Keys(publicKey);
+      }
+      else if (!this.keys.publicKey.equals(publicKey)) {
+        throw new CryptographyException("Public key does not match that of the other tellers");
+      }
+    }
+  }
+
+  /**
+   * The election public key and the shares of its secret key.
+   */
+  private static class Keys {
+
+    /** The public key. */
+    private final BigInteger publicKey;
+
+    /** The share of the secret key for each teller, in teller order. Null if the public key was generated by the tellers outside of the simulation. */
+    private final List<KeyShare> shares;
+
+    /**
+     * Constructor for a public key generated by the tellers outside of the simulation, such that the simulation cannot decrypt.
+     *
+     * @param publicKey The public key.
+     */
+    private Keys(final BigInteger publicKey) {
+      this.publicKey = publicKey;
+      this.shares = null;
+    }
+
+    /**
+     * Generates the keys without a dealer in the same way as real tellers: each teller deals a share of its own random polynomial to every teller, and each
+     * teller's key share is the sum of the deals it receives.
+     *
+     * @param parameters The election parameters.
+     * @param threshold  The threshold number of tellers.
+     * @param helper     Threshold decryption helper used to deal and merge the key shares.
+     * @param random     Source of randomness.
+     * @throws CryptographyException if the key shares could not be generated.
+     */
+    private Keys(final DHParametersWrapper parameters, final int threshold, final ThresholdDecryptionAlgorithmHelper helper, final SecureRandom random)
+        throws CryptographyException {
+      final int tellers = parameters.getNumberOfTellers();
+      final List<KeyShareCommitments> commitments = new ArrayList<>(tellers);
+      final List<List<KeyShareDeal>> deals = new ArrayList<>(tellers);
+
+      for (int recipient = 1; recipient <= tellers; recipient++) {
+        deals.add(new ArrayList<>(tellers));
+      }
+
+      for (int dealer = 1; dealer <= tellers; dealer++) {
+        final BigInteger[] polynomial = helper.createPolynomial(random, parameters, tellers, threshold);
+        commitments.add(helper.commit(parameters, dealer, polynomial));
+
+        for (int recipient = 1; recipient <= tellers; recipient++) {
+          deals.get(recipient - 1).add(helper.deal(parameters, dealer, recipient, polynomial));
+        }
+      }
+
+      this.publicKey = helper.combinePublicKey(parameters, commitments);
+      this.shares = new ArrayList<>(tellers);
+
+      for (int teller = 1; teller <= tellers; teller++) {
+        this.shares.add(helper.merge(parameters, teller, commitments, deals.get(teller - 1)));
+      }
+    }
+  }
+
+  /**
+   * A single operation performed by all tellers of an election.
+   */
+  private static class Round {
+
+    /** The election. */
+    private final Election election;
+
+
+    /** The input ciphertexts. */
+    private final List<CipherText> input;
+
+    /** The key of the round. */
+    private final String key;
+
+    /** The number of tellers which have not yet left the round. */
+    private final AtomicInteger remaining;
+
+    /** The decryption shares from each of the threshold tellers. */
+    private final List<CompletableFuture<DecryptionShare>> shares = new ArrayList<>();
+
+    /** The input followed by the output of each of the threshold shuffling tellers. */
+    private final List<CompletableFuture<List<CipherText>>> shuffles = new ArrayList<>();
+
+    /**
+     * Constructor for a round started by the first teller to join it.
+     *
+     * @param election    The election.
+     * @param key         The key of the round.
+     * @param cipherTexts The input ciphertexts.
+     */
+    private Round(final Election election, final String key, final List<CipherText> cipherTexts) {
+      this.election = election;
+      this.key = key;
+      this.input = cipherTexts;
+      this.remaining = new AtomicInteger(election.parameters.getNumberOfTellers());
+
+      this.shuffles.add(CompletableFuture.completedFuture(cipherTexts));
+
+      for (int i = 0; i < election.threshold; i++) {
+        this.shuffles.add(new CompletableFuture<>());
+        this.shares.add(new CompletableFuture<>());
+      }
+    }
+
+    /**
+     * Called when a teller has finished with the round.
+     */
+    private void leave() {
+      if (this.remaining.decrementAndGet() <= 0) {
+        this.election.remove(this);
+      }
+    }
+  }
+}
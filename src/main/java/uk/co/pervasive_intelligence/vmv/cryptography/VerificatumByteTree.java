@@ -0,0 +1,459 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes ciphertexts and plaintexts using Verificatum's raw byte tree format, so that they can be passed directly to and from vmn without converting
+ * them with vmnc. A byte tree is either a leaf, written as the byte 1, a 4-byte big-endian data length and the data, or a node, written as the byte 0, a 4-byte
+ * big-endian number of children and the children.
+ * <p>
+ * Each group element is a leaf holding the element as an unsigned big-endian integer, padded with leading zeros to the byte length of the modulus. A list of
+ * elements is a node of leaves. A list of ciphertexts is a node holding the list of alpha components followed by the list of beta components. Where the width
+ * is greater than one, each of these lists is replaced by a node with one list per column of the block, and plaintexts are similarly a node with one list per
+ * column.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VerificatumByteTree {
+
+  /** Byte tree leaf marker. */
+  private static final byte LEAF = 1;
+
+  /** Byte tree node marker. */
+  private static final byte NODE = 0;
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private VerificatumByteTree() {
+    // Do nothing.
+  }
+
+  /**
+   * Reads a group element leaf.
+   *
+   * @param input The input stream.
+   * @return The element.
+   * @throws IOException           if the element could not be read.
+   * @throws CryptographyException if the byte tree is malformed.
+   */
+  private static BigInteger readElement(final DataInputStream input) throws IOException, CryptographyException {
+    if (input.readByte() != LEAF) {
+      throw new CryptographyException("Malformed byte tree: expected leaf");
+    }
+
+    final int length = input.readInt();
+
+    if (length < 0) {
+      throw new CryptographyException("Malformed byte tree: negative leaf length");
+    }
+
+    final byte[] bytes = new byte[length];
+    input.readFully(bytes);
+
+    return new BigInteger(1, bytes);
+  }
+
+  /**
+   * Reads a list of group elements into one column of a row-major array.
+   *
+   * @param input  The input stream.
+   * @param values The array to fill.
+   * @param column The column to fill.
+   * @param width  The number of columns.
+   * @throws IOException           if the elements could not be read.
+   * @throws CryptographyException if the byte tree is malformed or the list has the wrong size.
+   */
+  private static void readElements(final DataInputStream input, final BigInteger[] values, final int column, final int width) throws IOException,
+      CryptographyException {
+    final int size = readNode(input);
+
+    if (size != (values.length / width)) {
+      throw new CryptographyException("Malformed byte tree: expected " + (values.length / width) + " elements but found " + size);
+    }
+
+    for (int i = 0; i < size; i++) {
+      values[(i * width) + column] = readElement(input);
+    }
+  }
+
+  /**
+   * Reads one side of a list of ciphertexts, or a list of plaintexts, into a row-major array, where there is one list per column if the width is greater than
+   * one.
+   *
+   * @param input The input stream.
+   * @param width The number of elements operated on as a block.
+   * @return The elements.
+   * @throws IOException           if the elements could not be read.
+   * @throws CryptographyException if the byte tree is malformed.
+   */
+  private static BigInteger[] readColumns(final DataInputStream input, final int width) throws IOException, CryptographyException {
+    if ((width > 1) && (readNode(input) != width)) {
+      throw new CryptographyException("Malformed byte tree: expected " + width + " columns");
+    }
+
+    // Peek at the number of rows in the first column to size the array.
+    input.mark(Byte.BYTES + Integer.BYTES);
+    final int rows = readNode(input);
+    input.reset();
+
+    final BigInteger[] values = new BigInteger[rows * width];
+
+    for (int j = 0; j < width; j++) {
+      readElements(input, values, j, width);
+    }
+
+    return values;
+  }
+
+  /**
+   * Reads a node header.
+   *
+   * @param input The input stream.
+   * @return The number of children in the node.
+   * @throws IOException           if the node could not be read.
+   * @throws CryptographyException if the byte tree is malformed.
+   */
+  private static int readNode(final DataInputStream input) throws IOException, CryptographyException {
+    if (input.readByte() != NODE) {
+      throw new CryptographyException("Malformed byte tree: expected node");
+    }
+
+    final int children = input.readInt();
+
+    if (children < 0) {
+      throw new CryptographyException("Malformed byte tree: negative number of children");
+    }
+
+    return children;
+  }
+
+  /**
+   * Reads a list of ciphertexts from a raw file. Where the width is greater than one, the ciphertexts are returned one block after another.
+   *
+   * @param file  The raw file.
+   * @param width The number of ciphertexts operated on as a block.
+   * @return The ciphertexts.
+   * @throws CryptographyException if the ciphertexts could not be read.
+   */
+  public static List<CipherText> readCipherTexts(final File file, final int width) throws CryptographyException {
+    try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (readNode(input) != 2) {
+        throw new CryptographyException("Malformed byte tree: expected ciphertext pair");
+      }
+
+      final BigInteger[] alphas = readColumns(input, width);
+      final BigInteger[] betas = readColumns(input, width);
+
+      if (alphas.length != betas.length) {
+        throw new CryptographyException("Malformed byte tree: different numbers of alpha and beta components");
+      }
+
+      final List<CipherText> cipherTexts = new ArrayList<>(alphas.length);
+
+      for (int i = 0; i < alphas.length; i++) {
+        cipherTexts.add(new CipherText(alphas[i], betas[i]));
+      }
+
+      return cipherTexts;
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not read raw ciphertexts", e);
+    }
+  }
+
+  /**
+   * Reads a list of plaintexts from a raw file. Where the width is greater than one, the plaintexts are returned one block after another.
+   *
+   * @param file  The raw file.
+   * @param width The number of plaintexts operated on as a block.
+   * @return The plaintexts.
+   * @throws CryptographyException if the plaintexts could not be read.
+   */
+  public static List<BigInteger> readPlainTexts(final File file, final int width) throws CryptographyException {
+    final List<BigInteger> plainTexts = new ArrayList<>();
+    readPlainTexts(file, width, (block, values) -> plainTexts.addAll(Arrays.asList(values)));
+
+    return plainTexts;
+  }
+
+  /**
+   * Streams a list of plaintexts from a raw file one block at a time, so that the plaintexts never need to be held in memory together. Each column of the
+   * block is read through its own stream, which is first positioned at the start of its column by skipping over the preceding columns.
+   *
+   * @param file     The raw file.
+   * @param width    The number of plaintexts operated on as a block.
+   * @param consumer Receives each block of plaintexts in order. The array of values is re-used for each block.
+   * @return The number of blocks read.
+   * @throws CryptographyException if the plaintexts could not be read or the consumer failed.
+   */
+  public static int readPlainTexts(final File file, final int width, final BlockConsumer consumer) throws CryptographyException {
+    final DataInputStream[] inputs = new DataInputStream[width];
+
+    try {
+      int rows = -1;
+
+      for (int j = 0; j < width; j++) {
+        inputs[j] = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+        if ((width > 1) && (readNode(inputs[j]) != width)) {
+          throw new CryptographyException("Malformed byte tree: expected " + width + " columns");
+        }
+
+        for (int k = 0; k < j; k++) {
+          skipElements(inputs[j]);
+        }
+
+        final int size = readNode(inputs[j]);
+
+        if ((rows >= 0) && (size != rows)) {
+          throw new CryptographyException("Malformed byte tree: expected " + rows + " elements but found " + size);
+        }
+
+        rows = size;
+      }
+
+      final BigInteger[] values = new BigInteger[width];
+
+      for (int i = 0; i < rows; i++) {
+        for (int j = 0; j < width; j++) {
+          values[j] = readElement(inputs[j]);
+        }
+
+        consumer.accept(i, values);
+      }
+
+      return Math.max(rows, 0);
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not read raw plaintexts", e);
+    }
+    finally {
+      for (final DataInputStream input : inputs) {
+        if (input != null) {
+          try {
+            input.close();
+          }
+          catch (final IOException ignored) {
+            // Do nothing.
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Reads an ElGamal public key from a raw file, such as the full public key in a proof directory. The key is a node holding the group generator followed by
+   * the public key element.
+   *
+   * @param file The raw file.
+   * @return The generator and the public key element, in that order.
+   * @throws CryptographyException if the public key could not be read.
+   */
+  public static BigInteger[] readPublicKey(final File file) throws CryptographyException {
+    try (final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+      if (readNode(input) != 2) {
+        throw new CryptographyException("Malformed byte tree: expected public key pair");
+      }
+
+      return new BigInteger[] {readElement(input), readElement(input)};
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not read raw public key", e);
+    }
+  }
+
+  /**
+   * Skips over a list of group elements without reading them.
+   *
+   * @param input The input stream.
+   * @throws IOException           if the elements could not be skipped.
+   * @throws CryptographyException if the byte tree is malformed.
+   */
+  private static void skipElements(final DataInputStream input) throws IOException, CryptographyException {
+    final int size = readNode(input);
+
+    for (int i = 0; i < size; i++) {
+      if (input.readByte() != LEAF) {
+        throw new CryptographyException("Malformed byte tree: expected leaf");
+      }
+
+      final int length = input.readInt();
+
+      if (length < 0) {
+        throw new CryptographyException("Malformed byte tree: negative leaf length");
+      }
+
+      if (input.skipBytes(length) != length) {
+        throw new EOFException("Truncated byte tree leaf");
+      }
+    }
+  }
+
+  /**
+   * Writes one side of a list of ciphertexts, with one list per column if the width is greater than one.
+   *
+   * @param output      The output stream.
+   * @param length      The fixed byte length of each element.
+   * @param width       The number of ciphertexts operated on as a block.
+   * @param cipherTexts The ciphertexts.
+   * @param alpha       True to write the alpha components, false to write the beta components.
+   * @throws IOException           if the elements could not be written.
+   * @throws CryptographyException if an element is too large.
+   */
+  private static void writeColumns(final DataOutputStream output, final int length, final int width, final List<CipherText> cipherTexts, final boolean alpha)
+      throws IOException, CryptographyException {
+    final int rows = cipherTexts.size() / width;
+
+    if (width > 1) {
+      writeNode(output, width);
+    }
+
+    for (int j = 0; j < width; j++) {
+      writeNode(output, rows);
+
+      for (int i = 0; i < rows; i++) {
+        final CipherText cipherText = cipherTexts.get((i * width) + j);
+        writeElement(output, length, alpha ? cipherText.getAlpha() : cipherText.getBeta());
+      }
+    }
+  }
+
+  /**
+   * Writes a list of ciphertexts to a raw file. Where the width is greater than one, the ciphertexts must be supplied one block after another.
+   *
+   * @param file        The raw file.
+   * @param modulus     The group modulus, which determines the byte length of each element.
+   * @param width       The number of ciphertexts operated on as a block.
+   * @param cipherTexts The ciphertexts.
+   * @throws CryptographyException if the ciphertexts could not be written.
+   */
+  public static void writeCipherTexts(final File file, final BigInteger modulus, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
+    if ((width < 1) || ((cipherTexts.size() % width) != 0)) {
+      throw new CryptographyException("Number of ciphertexts " + cipherTexts.size() + " is not a multiple of the width " + width);
+    }
+
+    // Verificatum pads each element to the length of the modulus including its sign bit.
+    final int length = modulus.toByteArray().length;
+
+    try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)))) {
+      writeNode(output, 2);
+      writeColumns(output, length, width, cipherTexts, true);
+      writeColumns(output, length, width, cipherTexts, false);
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not write raw ciphertexts", e);
+    }
+  }
+
+  /**
+   * Writes a group element leaf.
+   *
+   * @param output The output stream.
+   * @param length The fixed byte length of the element.
+   * @param value  The element.
+   * @throws IOException           if the element could not be written.
+   * @throws CryptographyException if the element is too large.
+   */
+  private static void writeElement(final DataOutputStream output, final int length, final BigInteger value) throws IOException, CryptographyException {
+    final byte[] bytes = value.toByteArray();
+
+    // Drop any sign byte which takes the element beyond the fixed length.
+    int offset = 0;
+    while (((bytes.length - offset) > length) && (bytes[offset] == 0)) {
+      offset++;
+    }
+
+    final int size = bytes.length - offset;
+    if ((value.signum() < 0) || (size > length)) {
+      throw new CryptographyException("Element is not in the group");
+    }
+
+    output.writeByte(LEAF);
+    output.writeInt(length);
+
+    for (int i = size; i < length; i++) {
+      output.writeByte(0);
+    }
+
+    output.write(bytes, offset, size);
+  }
+
+  /**
+   * Writes a node header.
+   *
+   * @param output   The output stream.
+   * @param children The number of children in the node.
+   * @throws IOException if the node could not be written.
+   */
+  private static void writeNode(final DataOutputStream output, final int children) throws IOException {
+    output.writeByte(NODE);
+    output.writeInt(children);
+  }
+
+  /**
+   * Writes an ElGamal public key to a raw file in the form read by {@link #readPublicKey(File)}: a node holding the group generator followed by the public key
+   * element.
+   *
+   * @param file      The raw file.
+   * @param modulus   The group modulus, which determines the byte length of each element.
+   * @param generator The group generator.
+   * @param publicKey The public key element.
+   * @throws CryptographyException if the public key could not be written.
+   */
+  public static void writePublicKey(final File file, final BigInteger modulus, final BigInteger generator, final BigInteger publicKey)
+      throws CryptographyException {
+    final int length = modulus.toByteArray().length;
+
+    try (final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false)))) {
+      writeNode(output, 2);
+      writeElement(output, length, generator);
+      writeElement(output, length, publicKey);
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not write raw public key", e);
+    }
+  }
+
+  /**
+   * Receives the blocks of plaintexts as they are streamed from a raw file.
+   */
+  @FunctionalInterface
+  public interface BlockConsumer {
+
+    /**
+     * Receives a block of plaintexts.
+     *
+     * @param block  The number of the block, starting at zero.
+     * @param values The plaintexts in the block, one for each column. The array is re-used for the next block.
+     * @throws CryptographyException if the block could not be used.
+     */
+    void accept(int block, BigInteger[] values) throws CryptographyException;
+  }
+}
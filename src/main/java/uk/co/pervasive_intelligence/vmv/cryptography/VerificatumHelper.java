@@ -5,26 +5,36 @@
  */
 package uk.co.pervasive_intelligence.vmv.cryptography;
 
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
 
 import java.io.*;
 import java.math.BigInteger;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides an interface to the Verificatum suite of programmes in order to perform required distributed operations.
@@ -33,12 +43,27 @@ import java.util.zip.ZipOutputStream;
  */
 public class VerificatumHelper {
 
+  /** The directory in which the Verificatum JAR files are installed by default. */
+  public static final String DEFAULT_LIBRARY_DIRECTORY = "/usr/local/share/java";
+
+  /** The directory in which the Verificatum native libraries are installed by default. */
+  public static final String DEFAULT_NATIVE_LIBRARY_DIRECTORY = "/usr/local/lib";
+
+  /** Description of native GMP arithmetic recorded in the teller information file. */
+  private static final String ARITHMETIC_NATIVE = "native GMP arithmetic (VMGJ)";
+
+  /** Description of pure Java arithmetic recorded in the teller information file. */
+  private static final String ARITHMETIC_PURE_JAVA = "pure Java arithmetic";
+
   /** URL HTTP prefix. */
   private static final String HTTP = "http://";
 
   /** JSON file extension */
   private static final String JSON_EXTENSION = ".json";
 
+  /** The end of the XML declaration, after which the arithmetic is recorded. */
+  private static final String XML_DECLARATION_END = "?>";
+
   /** Platform line separator. */
   private static final String LINE_SEPARATOR = System.getProperty("line.separator");
 
@@ -48,41 +73,62 @@ public class VerificatumHelper {
   /** Logger. */
   private static final Logger LOG = LoggerFactory.getLogger(DSAAlgorithmHelper.class);
 
+  /** The operation under which commands run in-process are recorded in the metrics. */
+  private static final String METRICS_IN_PROCESS = "verificatum";
+
+  /** The operation under which commands run as separate processes are recorded in the metrics. */
+  private static final String METRICS_PROCESS = "verificatum-process";
+
   /** Mix-net operation: decrypt. */
   private static final String OPERATION_DECRYPT = "-decrypt";
 
-  /** The JSON input file for a mix-net operation. */
-  private static final String OPERATION_IN_JSON_FILENAME = "operation_in" + JSON_EXTENSION;
-
   /** Mix-net operation: mix. */
   private static final String OPERATION_MIX = "-mix";
 
-  /** The JSON output file from a mix-net operation. */
-  private static final String OPERATION_OUT_JSON_FILENAME = "operation_out" + JSON_EXTENSION;
+  /** Mix-net operation: precompute a shuffle or mix. */
+  private static final String OPERATION_PRECOMPUTE = "-precomp";
 
   /** Mix-net operation auxiliary session identifier: decrypt. */
-  private static final String OPERATION_SESSION_DECRYPT = "decrypt";
+  static final String OPERATION_SESSION_DECRYPT = "decrypt";
 
   /** Mix-net operation auxiliary session identifier: mix. */
-  private static final String OPERATION_SESSION_MIX = "mix";
+  static final String OPERATION_SESSION_MIX = "mix";
 
   /** Mix-net operation auxiliary session identifier: shuffle. */
-  private static final String OPERATION_SESSION_SHUFFLE = "shuffle";
+  static final String OPERATION_SESSION_SHUFFLE = "shuffle";
 
   /** Mix-net operation: shuffle. */
   private static final String OPERATION_SHUFFLE = "-shuffle";
 
-  /** Mix-net operation output type: ciphertexts. */
-  private static final String OUTPUT_CIPHERTEXTS = "-ciphs";
+  /** The file in a proof directory holding its auxiliary session identifier. */
+  private static final String PROOF_AUXSID_FILENAME = "auxsid";
+
+  /** The file in a proof directory holding the input ciphertexts. */
+  private static final String PROOF_INPUT_FILENAME = "Ciphertexts.bt";
 
-  /** Mix-net operation output type: plaintexts. */
-  private static final String OUTPUT_PLAINTEXTS = "-plain";
+  /** The file in a proof directory holding the full public key. */
+  private static final String PROOF_PUBLIC_KEY_FILENAME = "FullPublicKey.bt";
+
+  /** The file in a proof directory holding the shuffled ciphertexts. */
+  private static final String PROOF_SHUFFLED_FILENAME = "ShuffledCiphertexts.bt";
+
+  /** The file in a proof directory holding its type. */
+  private static final String PROOF_TYPE_FILENAME = "type";
+
+  /** The verifier option for each type of proof. */
+  private static final Map<String, String> PROOF_TYPES = new HashMap<>();
+
+  /** The file in a proof directory holding its width. */
+  private static final String PROOF_WIDTH_FILENAME = "width";
+
+  /** The directory within which Verificatum writes temporary files when verifying a proof. */
+  private static final String VERIFY_WORKING_DIRECTORY = "wd";
 
   /** URL port separator. */
   private static final String PORT_SEPARATOR = ":";
 
   /** The directory in which the shuffle/mix/decrypt proof is held. */
-  private static final File PROOF_DIRECTORY = new File("dir", "nizkp");
+  static final File PROOF_DIRECTORY = new File("dir", "nizkp");
 
   /** The JSON public key file. */
   private static final String PUBLIC_KEY_JSON_FILENAME = "publicKey" + JSON_EXTENSION;
@@ -112,11 +158,218 @@ public class VerificatumHelper {
   private static final String LOCAL_TELLER_INFO_FILENAME = "localProtInfo" + XML_EXTENSION;
 
   /** The merged public teller information file. */
-  private static final String TELLER_PUBLIC_INFO_FILENAME = "protInfo" + XML_EXTENSION;
+  static final String TELLER_PUBLIC_INFO_FILENAME = "protInfo" + XML_EXTENSION;
 
   /** The private teller information file. */
   private static final String TELLER_PRIVATE_INFO_FILENAME = "privInfo" + XML_EXTENSION;
 
+  /** The protocol information stub file created for each teller. */
+  private static final String TELLER_STUB_INFO_FILENAME = "stub" + XML_EXTENSION;
+
+  /** The Verificatum working directory within the teller directory. */
+  private static final String WORKING_DIRECTORY = "dir";
+
+  /** Drains the output of command processes as it is written. */
+  private static final ExecutorService OUTPUT_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+    final Thread thread = new Thread(runnable, "verificatum-output");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  static {
+    PROOF_TYPES.put("decryption", OPERATION_DECRYPT);
+    PROOF_TYPES.put("mixing", OPERATION_MIX);
+    PROOF_TYPES.put("shuffling", OPERATION_SHUFFLE);
+  }
+
+  /** Runs commands in-process, if Verificatum is installed. Null if all commands are run as processes. */
+  private final VerificatumInProcessRunner inProcessRunner;
+
+  /** The metrics recorded for each command, including the duration of each separate process. */
+  private Metrics metrics = new Metrics();
+
+  /** True if the tellers use Verificatum's native GMP arithmetic (VMGJ). */
+  private final boolean nativeArithmetic;
+
+  /** The set of progress listeners. */
+  private final Set<CryptographyHelper.ProgressListener> progressListeners = new CopyOnWriteArraySet<>();
+
+  /** The command processes which are currently running. */
+  private final Set<Process> running = ConcurrentHashMap.newKeySet();
+
+  /** The maximum time in milliseconds for a command to run, or zero for no limit. */
+  private final long timeout;
+
+  /**
+   * Default constructor: all commands are run as separate processes.
+   */
+  public VerificatumHelper() {
+    this(null);
+  }
+
+  /**
+   * Constructor which runs commands in-process using the Verificatum JAR files installed in the specified directory, falling back to separate processes if
+   * Verificatum is not installed there or cannot be loaded.
+   *
+   * @param libraryDirectory The directory containing the Verificatum JAR files, such as "/usr/local/share/java". May be null.
+   */
+  public VerificatumHelper(final File libraryDirectory) {
+    this(libraryDirectory, 0);
+  }
+
+  /**
+   * Constructor which runs commands in-process using the Verificatum JAR files installed in the specified directory, falling back to separate processes if
+   * Verificatum is not installed there or cannot be loaded, and which fails any command running for longer than the timeout.
+   *
+   * @param libraryDirectory The directory containing the Verificatum JAR files, such as "/usr/local/share/java". May be null.
+   * @param timeout          The maximum time in milliseconds for a command to run, or zero for no limit.
+   */
+  public VerificatumHelper(final File libraryDirectory, final long timeout) {
+    this(libraryDirectory, null, timeout);
+  }
+
+  /**
+   * Constructor which runs commands in-process using the Verificatum JAR files installed in the specified directory, falling back to separate processes if
+   * Verificatum is not installed there or cannot be loaded, and which fails any command running for longer than the timeout. Verificatum's GMP-backed native
+   * arithmetic (VMGJ) is used if it is installed and its native libraries can be loaded from the native library directory.
+   *
+   * @param libraryDirectory       The directory containing the Verificatum JAR files, such as "/usr/local/share/java". May be null.
+   * @param nativeLibraryDirectory The directory containing the Verificatum native libraries, such as "/usr/local/lib". May be null.
+   * @param timeout                The maximum time in milliseconds for a command to run, or zero for no limit.
+   */
+  public VerificatumHelper(final File libraryDirectory, final File nativeLibraryDirectory, final long timeout) {
+    this.inProcessRunner = VerificatumInProcessRunner.create(libraryDirectory, nativeLibraryDirectory);
+    this.timeout = timeout;
+
+    // Processes use the Verificatum scripts, which use native arithmetic whenever its library is installed.
+    this.nativeArithmetic = (this.inProcessRunner != null) ? this.inProcessRunner.isNativeArithmetic() :
+        VerificatumInProcessRunner.hasNativeLibrary(nativeLibraryDirectory);
+  }
+
+  /**
+   * Checks that a proof directory was created for the election's own values: the bundled protocol information and full public key must be the election's, and
+   * the bundled input and shuffled ciphertexts must be those published by the election. The ciphertexts of a decryption are formed from the commitments of all
+   * of the tellers and are not published, so only the protocol information and public key of a decryption proof are checked.
+   *
+   * @param proofDirectory The unpacked proof directory.
+   * @param type           The type of proof.
+   * @param width          The number of ciphertexts operated on as a block.
+   * @param statement      The election's own published values.
+   * @return The reason why the proof is not for the election, or null if it is.
+   * @throws IOException           if the proof directory could not be read.
+   * @throws CryptographyException if the proof could not be read.
+   */
+  private static String checkStatement(final File proofDirectory, final String type, final int width, final ProofStatement statement) throws IOException,
+      CryptographyException {
+    final File protocolInformation = new File(proofDirectory, TELLER_PUBLIC_INFO_FILENAME);
+
+    if (protocolInformation.exists() && !FileUtils.contentEquals(protocolInformation, statement.getProtocolInformation())) {
+      return "Protocol information does not match the election";
+    }
+
+    final BigInteger[] publicKey = VerificatumByteTree.readPublicKey(new File(proofDirectory, PROOF_PUBLIC_KEY_FILENAME));
+
+    if (!publicKey[1].equals(statement.getPublicKey())) {
+      return "Public key does not match the election";
+    }
+
+    if ("shuffling".equals(type)) {
+      if ((statement.getTrackerNumbers() == null) || (statement.getShuffledTrackerNumbers() == null)) {
+        return "Published tracker numbers and shuffled tracker numbers are required";
+      }
+
+      if (!statement.getTrackerNumbers().equals(VerificatumByteTree.readCipherTexts(new File(proofDirectory, PROOF_INPUT_FILENAME), width))) {
+        return "Input ciphertexts do not match the published tracker numbers";
+      }
+
+      if (!statement.getShuffledTrackerNumbers().equals(VerificatumByteTree.readCipherTexts(new File(proofDirectory, PROOF_SHUFFLED_FILENAME), width))) {
+        return "Shuffled ciphertexts do not match the published shuffled tracker numbers";
+      }
+    }
+    else if ("mixing".equals(type)) {
+      if (statement.getVotes() == null) {
+        return "Published encrypted votes are required";
+      }
+
+      if (!statement.getVotes().equals(VerificatumByteTree.readCipherTexts(new File(proofDirectory, PROOF_INPUT_FILENAME), width))) {
+        return "Input ciphertexts do not match the published encrypted votes";
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Reads a stream line-by-line as it is written, passing each line to the progress and collecting the lines in the same way as the output of a process.
+   *
+   * @param input    The stream to read.
+   * @param progress The progress to update. May be null.
+   * @return The collected lines.
+   * @throws IOException if the stream could not be read.
+   */
+  private static String drain(final InputStream input, final VerificatumProgress progress) throws IOException {
+    final StringJoiner output = new StringJoiner(LINE_SEPARATOR);
+
+    try (final BufferedReader reader = new BufferedReader(new InputStreamReader(input))) {
+      String line;
+
+      while ((line = reader.readLine()) != null) {
+        output.add(line);
+
+        if (progress != null) {
+          progress.onLine(line);
+        }
+      }
+    }
+
+    return output.toString();
+  }
+
+  /**
+   * Constructs the absolute path of a file within a directory so that commands do not depend upon the working directory in which they are run.
+   *
+   * @param directory The directory.
+   * @param filename  The file name.
+   * @return The absolute path of the file.
+   */
+  private static String getAbsolutePath(final File directory, final String filename) {
+    return new File(directory, filename).getAbsolutePath();
+  }
+
+  /**
+   * Adds a progress listener which will receive progress from long running commands. If the listener has already been added, it will be ignored.
+   *
+   * @param listener The listener to add.
+   */
+  public void addProgressListener(final CryptographyHelper.ProgressListener listener) {
+    this.progressListeners.add(listener);
+  }
+
+  /**
+   * Cancels all commands which are currently running. Each cancelled command fails with a {@link CryptographyException}.
+   */
+  public void cancel() {
+    for (final Process process : this.running) {
+      process.destroyForcibly();
+    }
+
+    if (this.inProcessRunner != null) {
+      this.inProcessRunner.cancel();
+    }
+  }
+
+  /**
+   * Constructs the name of the merged protocol information file of a teller, which is the same for all of the tellers of an election and is used to verify the
+   * election's proofs.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @return The protocol information file.
+   */
+  public static File getProtocolInformationFile(final Parameters parameters, final int teller) {
+    return new File(getTellerDirectory(parameters, teller), TELLER_PUBLIC_INFO_FILENAME);
+  }
+
   /**
    * Constructs the teller directory.
    *
@@ -135,7 +388,7 @@ public class VerificatumHelper {
    * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
    * @return The name for the teller.
    */
-  private static File getTellerInfoFile(final Parameters parameters, final int teller) {
+  static File getTellerInfoFile(final Parameters parameters, final int teller) {
     return new File(getTellerName(parameters, teller) + XML_EXTENSION);
   }
 
@@ -146,11 +399,23 @@ public class VerificatumHelper {
    * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
    * @return The name for the teller.
    */
-  private static String getTellerName(final Parameters parameters, final int teller) {
+  static String getTellerName(final Parameters parameters, final int teller) {
     final int padding = Integer.toString(parameters.getNumberOfTellers()).length();
     return String.format("%s%0" + padding + "d", TELLER_NAME, teller);
   }
 
+  /**
+   * Reads a single value from a file in a proof directory.
+   *
+   * @param proofDirectory The proof directory.
+   * @param filename       The file name.
+   * @return The value, without surrounding white space.
+   * @throws IOException if the file could not be read.
+   */
+  private static String readProofFile(final File proofDirectory, final String filename) throws IOException {
+    return new String(Files.readAllBytes(new File(proofDirectory, filename).toPath()), StandardCharsets.UTF_8).trim();
+  }
+
   /**
    * Creates the election key pair using an existing Verificatum session. Each teller will have their own share of the secret key and hence the output is only the
    * public key.
@@ -164,11 +429,13 @@ public class VerificatumHelper {
     // Create the key pair.
     final File tellerDirectory = getTellerDirectory(parameters, teller);
 
-    final String[] keygenCommand = new String[] {"vmn", "-keygen", PUBLIC_KEY_RAW_FILENAME};
+    final String[] keygenCommand = new String[] {"vmn", "-keygen", getAbsolutePath(tellerDirectory, TELLER_PRIVATE_INFO_FILENAME),
+        getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME), getAbsolutePath(tellerDirectory, PUBLIC_KEY_RAW_FILENAME)};
     this.runCommand(keygenCommand, tellerDirectory);
 
     // Decode the created public key.
-    final String[] convertCommand = new String[] {"vmnc", "-pkey", "-outi", "json", TELLER_PUBLIC_INFO_FILENAME, PUBLIC_KEY_RAW_FILENAME, PUBLIC_KEY_JSON_FILENAME};
+    final String[] convertCommand = new String[] {"vmnc", "-pkey", "-outi", "json", getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME),
+        getAbsolutePath(tellerDirectory, PUBLIC_KEY_RAW_FILENAME), getAbsolutePath(tellerDirectory, PUBLIC_KEY_JSON_FILENAME)};
     this.runCommand(convertCommand, tellerDirectory);
 
     try {
@@ -214,12 +481,14 @@ public class VerificatumHelper {
 
       final String[] initialiseCommand = new String[] {
           "vmni", "-prot", "-sid", SESSION, "-name", parameters.getName(), "-nopart", Integer.toString(parameters.getNumberOfTellers()), "-thres",
-          Integer.toString(parameters.getThresholdTellers()), "-pgroup", groupParameters};
+          Integer.toString(parameters.getThresholdTellers()), "-pgroup", groupParameters, getAbsolutePath(tellerDirectory, TELLER_STUB_INFO_FILENAME)};
       this.runCommand(initialiseCommand, tellerDirectory);
 
       final String[] initialiseTellerCommand = new String[] {"vmni", "-party", "-name", tellerName,
           "-http", publicTellerURL.toString(), "-hint", publicHintHostPort,
-          "-httpl", localTellerURL.toString(), "-hintl", localHintHostPort};
+          "-httpl", localTellerURL.toString(), "-hintl", localHintHostPort, "-dir", getAbsolutePath(tellerDirectory, WORKING_DIRECTORY),
+          getAbsolutePath(tellerDirectory, TELLER_STUB_INFO_FILENAME), getAbsolutePath(tellerDirectory, TELLER_PRIVATE_INFO_FILENAME),
+          getAbsolutePath(tellerDirectory, LOCAL_TELLER_INFO_FILENAME)};
       this.runCommand(initialiseTellerCommand, tellerDirectory);
 
       // Copy the teller information to a file with a sensible name.
@@ -228,6 +497,10 @@ public class VerificatumHelper {
       tellerInfoFile.delete();
       Files.copy(localInfo.toPath(), tellerInfoFile.toPath());
 
+      // Record which arithmetic the teller uses.
+      LOG.info("Teller {} uses {}", tellerName, this.getArithmetic());
+      this.recordArithmetic(tellerInfoFile);
+
       return tellerInfoFile;
     }
     catch (final CryptographyException e) {
@@ -249,11 +522,11 @@ public class VerificatumHelper {
    * @throws CryptographyException if the operation could not be performed.
    */
   public ProofWrapper<List<BigInteger>> decrypt(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
-    // Perform the operation and obtain the JSON output file with the corresponding proof file.
+    // Perform the operation and obtain the raw output file with the corresponding proof file.
     final ProofWrapper<File> outputWithProof = this.operation(parameters, teller, OPERATION_DECRYPT, OPERATION_SESSION_DECRYPT, width, cipherTexts);
 
-    // Load in the plaintexts from the JSON output file.
-    final List<BigInteger> plainTexts = this.readPlainTexts(outputWithProof.getObject());
+    // Load in the plaintexts directly from the raw output file.
+    final List<BigInteger> plainTexts = VerificatumByteTree.readPlainTexts(outputWithProof.getObject(), width);
 
     return new ProofWrapper<>(plainTexts, outputWithProof.getProofFile());
   }
@@ -298,6 +571,27 @@ public class VerificatumHelper {
     return tellerInformationFiles;
   }
 
+  /**
+   * @return A description of the arithmetic used by the tellers.
+   */
+  private String getArithmetic() {
+    return this.nativeArithmetic ? ARITHMETIC_NATIVE : ARITHMETIC_PURE_JAVA;
+  }
+
+  /**
+   * @return The metrics recorded for each command, including the duration of each separate process.
+   */
+  public Metrics getMetrics() {
+    return this.metrics;
+  }
+
+  /**
+   * @return True if the tellers use Verificatum's native GMP arithmetic (VMGJ), false if they use pure Java arithmetic.
+   */
+  public boolean isNativeArithmetic() {
+    return this.nativeArithmetic;
+  }
+
   /**
    * Merges the Verificatum teller information files ready to perform key generation, shuffling, mixing or decryption.
    *
@@ -320,9 +614,11 @@ public class VerificatumHelper {
         throw new CryptographyException("Could not finish creation of teller as missing " + tellerInfoFile.toString() + " teller information file");
       }
 
-      mergeCommand.add(tellerInfoFile.toString());
+      mergeCommand.add(path.getAbsolutePath());
     }
 
+    mergeCommand.add(getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME));
+
     this.runCommand(mergeCommand.toArray(new String[0]), tellerDirectory);
   }
 
@@ -337,13 +633,33 @@ public class VerificatumHelper {
    * @throws CryptographyException if the operation could not be performed.
    */
   public ProofWrapper<List<BigInteger>> mix(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
-    // Perform the operation and obtain the JSON output file with the corresponding proof file.
+    final List<BigInteger> plainTexts = new ArrayList<>(cipherTexts.size());
+    final File proofFile = this.mix(parameters, teller, width, cipherTexts, (block, values) -> plainTexts.addAll(Arrays.asList(values)));
+
+    return new ProofWrapper<>(plainTexts, proofFile);
+  }
+
+  /**
+   * Mixes a list of ciphertexts, streaming the plaintexts to a consumer one block at a time so that they are never held in memory together. The ciphertexts
+   * are only read as they are written to Verificatum, so they may be a view over a larger store.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width       The number of ciphertexts to be operated on as a block.
+   * @param cipherTexts The list of ciphertexts to be mixed.
+   * @param consumer    Receives each block of mixed and decrypted plaintexts.
+   * @return The corresponding proof file.
+   * @throws CryptographyException if the operation could not be performed.
+   */
+  public File mix(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts,
+                  final VerificatumByteTree.BlockConsumer consumer) throws CryptographyException {
+    // Perform the operation and obtain the raw output file with the corresponding proof file.
     final ProofWrapper<File> outputWithProof = this.operation(parameters, teller, OPERATION_MIX, OPERATION_SESSION_MIX, width, cipherTexts);
 
-    // Load in the plaintexts from the JSON output file.
-    final List<BigInteger> plainTexts = this.readPlainTexts(outputWithProof.getObject());
+    // Stream the plaintexts directly from the raw output file.
+    VerificatumByteTree.readPlainTexts(outputWithProof.getObject(), width, consumer);
 
-    return new ProofWrapper<>(plainTexts, outputWithProof.getProofFile());
+    return outputWithProof.getProofFile();
   }
 
   /**
@@ -355,139 +671,90 @@ public class VerificatumHelper {
    * @param width              The number of ciphertexts to be operated on as a block.
    * @param auxiliarySessionId The auxiliary session identifier for the shuffle.
    * @param cipherTexts        The list of ciphertexts to be operated on.
-   * @return The output file which contains either the shuffled (and re-encrypted) ciphertexts or the plaintexts.
+   * @return The raw output file which contains either the shuffled (and re-encrypted) ciphertexts or the plaintexts, with the proof directory.
    * @throws CryptographyException if the operation could not be performed.
    */
   private ProofWrapper<File> operation(final Parameters parameters, final int teller, final String operation, final String auxiliarySessionId, final int width,
                                        final List<CipherText> cipherTexts) throws CryptographyException {
-    // Write the ciphertexts to file.
-    final File tellerDirectory = getTellerDirectory(parameters, teller);
-    final File inputJSONFile = new File(tellerDirectory, OPERATION_IN_JSON_FILENAME);
-    final File outputJSONFile = new File(tellerDirectory, OPERATION_OUT_JSON_FILENAME);
-    this.writeCipherTexts(inputJSONFile, width, cipherTexts);
+    if (!(parameters instanceof DHParametersWrapper)) {
+      throw new CryptographyException("Could not perform operation: wrong class " + parameters.getClass().getName());
+    }
 
-    // Convert the input ciphertexts into raw format.
-    final String[] inCommand = new String[] {"vmnc", "-ciphs", "-ini", "json", "-width", Integer.toString(width), TELLER_PUBLIC_INFO_FILENAME,
-        OPERATION_IN_JSON_FILENAME, OPERATION_IN_RAW_FILENAME};
-    this.runCommand(inCommand, tellerDirectory);
+    // Write the ciphertexts directly in Verificatum's raw format.
+    final File tellerDirectory = getTellerDirectory(parameters, teller);
+    final File inputRawFile = new File(tellerDirectory, OPERATION_IN_RAW_FILENAME);
+    final File outputRawFile = new File(tellerDirectory, OPERATION_OUT_RAW_FILENAME);
+    VerificatumByteTree.writeCipherTexts(inputRawFile, ((DHParametersWrapper) parameters).getP(), width, cipherTexts);
 
-    // Perform the operation on the ciphertexts.
+    // Perform the operation on the ciphertexts. The output is left in raw format.
     final String[] operationCommand = new String[] {"vmn", operation, "-auxsid", auxiliarySessionId, "-width", Integer.toString(width),
-        TELLER_PRIVATE_INFO_FILENAME, TELLER_PUBLIC_INFO_FILENAME, OPERATION_IN_RAW_FILENAME, OPERATION_OUT_RAW_FILENAME};
-    this.runCommand(operationCommand, tellerDirectory);
-
-    // Convert the output into JSON format.
-    final String output = OPERATION_SHUFFLE.equals(operation) ? OUTPUT_CIPHERTEXTS : OUTPUT_PLAINTEXTS;
-    final String[] outCommand = new String[] {"vmnc", output, "-outi", "json", "-width", Integer.toString(width), TELLER_PUBLIC_INFO_FILENAME,
-        OPERATION_OUT_RAW_FILENAME, OPERATION_OUT_JSON_FILENAME};
-    this.runCommand(outCommand, tellerDirectory);
-
-    // ZIP the protocol information and proof files. These are the same on all tellers. We temporarily copy the protocol information into the proof directory so
-    // that it is included in the ZIP file.
+        getAbsolutePath(tellerDirectory, TELLER_PRIVATE_INFO_FILENAME), getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME),
+        inputRawFile.getAbsolutePath(), outputRawFile.getAbsolutePath()};
+    final VerificatumProgress progress = OPERATION_DECRYPT.equals(operation) ? VerificatumProgress.forDecrypt(this.progressListeners) :
+        OPERATION_MIX.equals(operation) ? VerificatumProgress.forMix(parameters.getThresholdTellers(), this.progressListeners) :
+            VerificatumProgress.forShuffle(parameters.getThresholdTellers(), this.progressListeners);
+    this.runCommand(operationCommand, tellerDirectory, progress);
+
+    // The protocol information and proof files form the proof, and are the same on all tellers. The protocol information is copied into the proof directory so
+    // that the directory can be published as it is: it is only ZIPped once its destination is known.
     final File protocolInformationFile = new File(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME);
     final Path proofPath = Paths.get(tellerDirectory.toString(), PROOF_DIRECTORY.toString(), auxiliarySessionId);
-    final File protocolInformationProofFile = new File(proofPath.toFile(), TELLER_PUBLIC_INFO_FILENAME);
-    File zipFile;
 
     try {
-      Files.copy(protocolInformationFile.toPath(), protocolInformationProofFile.toPath());
-      zipFile = Files.createTempFile(null, null).toFile();
-      this.zipDirectory(proofPath, zipFile.toPath());
-    }
-    catch (final CryptographyException e) {
-      throw e;
+      Files.copy(protocolInformationFile.toPath(), proofPath.resolve(TELLER_PUBLIC_INFO_FILENAME), StandardCopyOption.REPLACE_EXISTING);
     }
     catch (final Exception e) {
-      throw new CryptographyException("Could not create proof file", e);
-    }
-    finally {
-      protocolInformationProofFile.delete();
+      throw new CryptographyException("Could not create proof directory", e);
     }
 
-    return new ProofWrapper<>(outputJSONFile, zipFile);
+    return new ProofWrapper<>(outputRawFile, proofPath.toFile());
   }
 
   /**
-   * Reads a list of ciphertexts from (almost) a JSON file.
+   * Precomputes as much of a shuffle or mix as possible before the ciphertexts are known. The precomputed material is held in the teller's session and is used
+   * automatically by the next shuffle or mix in that session. All tellers must precompute at the same time.
    *
-   * @param file The input file.
-   * @return The read ciphertexts.
-   * @throws CryptographyException if the ciphertexts could not be read from file.
+   * @param parameters         The election parameters.
+   * @param teller             The number of the teller. Each teller has a unique number, starting at 1.
+   * @param auxiliarySessionId The auxiliary session identifier of the shuffle or mix which will use the precomputed material.
+   * @param width              The number of ciphertexts to be operated on as a block.
+   * @param maximum            The maximum number of blocks of ciphertexts which will be operated on.
+   * @throws CryptographyException if the precomputation could not be performed.
    */
-  private List<CipherText> readCipherTexts(final File file) throws CryptographyException {
-    BufferedReader reader = null;
-
-    try {
-      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-
-      // Verificatum does not output properly formed JSON, instead it writes JSON objects on a line-by-line basis.
-      final List<CipherText> cipherTexts = new ArrayList<>();
-      final ObjectMapper mapper = new ObjectMapper();
-      String line;
-
-      while ((line = reader.readLine()) != null) {
-        cipherTexts.add(mapper.readValue(line, CipherText.class));
-      }
+  private void precompute(final Parameters parameters, final int teller, final String auxiliarySessionId, final int width, final int maximum)
+      throws CryptographyException {
+    final File tellerDirectory = getTellerDirectory(parameters, teller);
 
-      return cipherTexts;
-    }
-    catch (final Exception e) {
-      throw new CryptographyException("Could not read ciphertexts JSON", e);
-    }
-    finally {
-      try {
-        if (reader != null) {
-          reader.close();
-        }
-      }
-      catch (final Exception e) {
-        // Log only as we may already be throwing an exception.
-        LOG.error("Could not close file", e);
-      }
-    }
+    final String[] precomputeCommand = new String[] {"vmn", OPERATION_PRECOMPUTE, "-auxsid", auxiliarySessionId, "-width", Integer.toString(width), "-maxciph",
+        Integer.toString(maximum), getAbsolutePath(tellerDirectory, TELLER_PRIVATE_INFO_FILENAME), getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME)};
+    this.runCommand(precomputeCommand, tellerDirectory, VerificatumProgress.forPrecompute(this.progressListeners));
   }
 
   /**
-   * Reads a list of plaintexts from (not really) a JSON file.
+   * Precomputes as much of a mix as possible before the ciphertexts are known, so that the next call to {@link #mix(Parameters, int, int, List)} is faster.
    *
-   * @param file The input file.
-   * @return The read plaintexts.
-   * @throws CryptographyException if the plaintexts could not be read from file.
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width      The number of ciphertexts to be operated on as a block.
+   * @param maximum    The maximum number of blocks of ciphertexts which will be mixed.
+   * @throws CryptographyException if the precomputation could not be performed.
    */
-  private List<BigInteger> readPlainTexts(final File file) throws CryptographyException {
-    BufferedReader reader = null;
-
-    try {
-      reader = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
-
-      // Verificatum does not output properly formed JSON, instead it writes big integers as decimal strings on a line-by-line basis with multiple values per width.
-      final List<BigInteger> plainTexts = new ArrayList<>();
-      String line;
-
-      while ((line = reader.readLine()) != null) {
-        final String[] values = line.split(",");
-
-        for (final String value : values) {
-          plainTexts.add(new BigInteger(value.replaceAll("[\\p{Punct}\\s]*", "")));
-        }
-      }
+  public void precomputeMix(final Parameters parameters, final int teller, final int width, final int maximum) throws CryptographyException {
+    this.precompute(parameters, teller, OPERATION_SESSION_MIX, width, maximum);
+  }
 
-      return plainTexts;
-    }
-    catch (final Exception e) {
-      throw new CryptographyException("Could not read plaintexts JSON", e);
-    }
-    finally {
-      try {
-        if (reader != null) {
-          reader.close();
-        }
-      }
-      catch (final Exception e) {
-        // Log only as we may already be throwing an exception.
-        LOG.error("Could not close file", e);
-      }
-    }
+  /**
+   * Precomputes as much of a shuffle as possible before the ciphertexts are known, so that the next call to {@link #shuffle(Parameters, int, int, List)} is
+   * faster.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param width      The number of ciphertexts to be operated on as a block.
+   * @param maximum    The maximum number of blocks of ciphertexts which will be shuffled.
+   * @throws CryptographyException if the precomputation could not be performed.
+   */
+  public void precomputeShuffle(final Parameters parameters, final int teller, final int width, final int maximum) throws CryptographyException {
+    this.precompute(parameters, teller, OPERATION_SESSION_SHUFFLE, width, maximum);
   }
 
   /**
@@ -499,17 +766,65 @@ public class VerificatumHelper {
    * @throws CryptographyException if the command failed.
    */
   private String runCommand(final String[] command, final File directory) throws CryptographyException {
+    return this.runCommand(command, directory, null);
+  }
+
+  /**
+   * Runs a command in the specified directory and obtains its output. If the command fails, times out or is cancelled, an {@link CryptographyException} is
+   * thrown. The command is run in-process if possible, otherwise it is run as a separate process. Output is read as it is written, so that the command cannot
+   * stall on a full output buffer, and is passed to the progress.
+   *
+   * @param command   The command to execute.
+   * @param directory The directory in which the command shoudl be run. Leave null to use the current working directory.
+   * @param progress  The progress to update from the command's output. May be null.
+   * @return The output of the command.
+   * @throws CryptographyException if the command failed.
+   */
+  private String runCommand(final String[] command, final File directory, final VerificatumProgress progress) throws CryptographyException {
+    // Time each command by its programme and protocol option, such as "vmn -mix".
+    final String phase = (command.length > 1) ? command[0] + " " + command[1] : command[0];
+
+    if ((this.inProcessRunner != null) && this.inProcessRunner.canRun(command[0])) {
+      final Metrics.Timer timer = this.metrics.start(METRICS_IN_PROCESS, phase);
+      final String output = this.inProcessRunner.run(command, (progress == null) ? null : progress::onLine, this.timeout);
+
+      if (output != null) {
+        timer.close();
+        return output;
+      }
+    }
+
+    final Metrics.Timer timer = this.metrics.start(METRICS_PROCESS, phase);
+    Process process = null;
+
     try {
       LOG.debug("Command: {} {}", directory, command);
-      final Process process = Runtime.getRuntime().exec(command, null, directory);
-      final int status = process.waitFor();
+      process = Runtime.getRuntime().exec(command, null, directory);
+      this.running.add(process);
+
+      final InputStream inputStream = process.getInputStream();
+      final InputStream errorStream = process.getErrorStream();
+      final Future<String> outputFuture = OUTPUT_EXECUTOR.submit(() -> drain(inputStream, progress));
+      final Future<String> errorFuture = OUTPUT_EXECUTOR.submit(() -> drain(errorStream, progress));
+
+      if (this.timeout > 0) {
+        if (!process.waitFor(this.timeout, TimeUnit.MILLISECONDS)) {
+          process.destroyForcibly();
+          throw new CryptographyException("Command timed out after " + this.timeout + "ms");
+        }
+      }
+      else {
+        process.waitFor();
+      }
+
+      final int status = process.exitValue();
 
-      final String output = new BufferedReader(new InputStreamReader(process.getInputStream())).lines().collect(Collectors.joining(LINE_SEPARATOR));
+      final String output = outputFuture.get();
       if (output.length() > 0) {
         LOG.debug("Command output: {}", output);
       }
 
-      final String error = new BufferedReader(new InputStreamReader(process.getErrorStream())).lines().collect(Collectors.joining(LINE_SEPARATOR));
+      final String error = errorFuture.get();
       if (error.length() > 0) {
         LOG.debug("Command error: {}", error);
       }
@@ -523,6 +838,40 @@ public class VerificatumHelper {
     catch (final Exception e) {
       throw new CryptographyException("Could not run command: \"" + String.join(" ", command) + "\"", e);
     }
+    finally {
+      if (process != null) {
+        this.running.remove(process);
+      }
+
+      timer.close();
+    }
+  }
+
+  /**
+   * Records the arithmetic used by a teller as a comment in its information file, after any XML declaration. Verificatum ignores comments when it reads the
+   * file.
+   *
+   * @param tellerInfoFile The teller information file.
+   * @throws IOException if the file could not be updated.
+   */
+  private void recordArithmetic(final File tellerInfoFile) throws IOException {
+    final String content = new String(Files.readAllBytes(tellerInfoFile.toPath()), StandardCharsets.UTF_8);
+    final String comment = LINE_SEPARATOR + "<!-- Arithmetic: " + this.getArithmetic() + " -->" + LINE_SEPARATOR;
+
+    final int declarationEnd = content.indexOf(XML_DECLARATION_END);
+    final int insert = (declarationEnd < 0) ? 0 : declarationEnd + XML_DECLARATION_END.length();
+
+    Files.write(tellerInfoFile.toPath(), (content.substring(0, insert) + comment + content.substring(insert).replaceFirst("^\\R", ""))
+        .getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Removes a progress listener. If the listener was not added, it will be ignored.
+   *
+   * @param listener The listener to remove.
+   */
+  public void removeProgressListener(final CryptographyHelper.ProgressListener listener) {
+    this.progressListeners.remove(listener);
   }
 
   /**
@@ -536,6 +885,39 @@ public class VerificatumHelper {
     return this.runCommand(command, null);
   }
 
+  /**
+   * Sets the metrics recorded for each command, such as metrics shared with the cryptography helper.
+   *
+   * @param metrics The metrics.
+   */
+  public void setMetrics(final Metrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Sets the election public key of a teller's Verificatum session where the key was generated by the tellers outside of Verificatum, such as by
+   * {@link CryptographyHelper#mergeKeyShares(Parameters, int, List)}. The session can then shuffle ciphertexts under the key, but cannot mix or decrypt them.
+   *
+   * @param parameters The election parameters.
+   * @param teller     The number of the teller. Each teller has a unique number, starting at 1.
+   * @param publicKey  The election public key.
+   * @throws CryptographyException if the public key could not be set.
+   */
+  public void setPublicKey(final Parameters parameters, final int teller, final BigInteger publicKey) throws CryptographyException {
+    if (!(parameters instanceof DHParametersWrapper)) {
+      throw new CryptographyException("Could not set public key: wrong class " + parameters.getClass().getName());
+    }
+
+    final DHParametersWrapper wrapper = (DHParametersWrapper) parameters;
+    final File tellerDirectory = getTellerDirectory(parameters, teller);
+
+    VerificatumByteTree.writePublicKey(new File(tellerDirectory, PUBLIC_KEY_RAW_FILENAME), wrapper.getP(), wrapper.getG(), publicKey);
+
+    final String[] setCommand = new String[] {"vmn", "-setpk", getAbsolutePath(tellerDirectory, TELLER_PRIVATE_INFO_FILENAME),
+        getAbsolutePath(tellerDirectory, TELLER_PUBLIC_INFO_FILENAME), getAbsolutePath(tellerDirectory, PUBLIC_KEY_RAW_FILENAME)};
+    this.runCommand(setCommand, tellerDirectory);
+  }
+
   /**
    * Shuffles a list of ciphertexts.
    *
@@ -547,97 +929,77 @@ public class VerificatumHelper {
    * @throws CryptographyException if the operation could not be performed.
    */
   public ProofWrapper<List<CipherText>> shuffle(final Parameters parameters, final int teller, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
-    // Perform the operation and obtain the JSON output file with the corresponding proof file.
+    // Perform the operation and obtain the raw output file with the corresponding proof file.
     final ProofWrapper<File> outputWithProof = this.operation(parameters, teller, OPERATION_SHUFFLE, OPERATION_SESSION_SHUFFLE, width, cipherTexts);
 
-    // Load in the shuffled ciphertexts from the JSON output file.
-    final List<CipherText> shuffled = this.readCipherTexts(outputWithProof.getObject());
+    // Load in the shuffled ciphertexts directly from the raw output file.
+    final List<CipherText> shuffled = VerificatumByteTree.readCipherTexts(outputWithProof.getObject(), width);
 
     return new ProofWrapper<>(shuffled, outputWithProof.getProofFile());
   }
 
   /**
-   * Writes a list of ciphertexts to (almost) a JSON file ready for import into Verificatum. One pair of ciphertext values is written per width per line.
+   * Verifies a published proof of shuffle, mixing or decryption using Verificatum's verifier. A ZIPped proof is streamed into a temporary directory which is
+   * removed once verified. The type, session and width of the proof are read from the proof itself, but the proof is only verified against the election's own
+   * protocol information, and only if it was created for the election's public key and published ciphertexts. Proofs may be verified concurrently: one is
+   * verified in-process at a time if Verificatum is installed, with any others verified in separate processes.
    *
-   * @param file        The output file.
-   * @param width       The number of ciphertexts to be operated on as a block.
-   * @param cipherTexts The ciphertexts to write.
-   * @throws CryptographyException if the ciphertexts could not be written to file.
+   * @param proof     The published proof ZIP file or proof directory.
+   * @param statement The election's own published values, which must include the election's protocol information.
+   * @return The outcome of the verification.
+   * @throws CryptographyException if the proof could not be read.
    */
-  private void writeCipherTexts(final File file, final int width, final List<CipherText> cipherTexts) throws CryptographyException {
-    PrintWriter writer = null;
+  public ProofVerification verify(final File proof, final ProofStatement statement) throws CryptographyException {
+    if ((statement.getProtocolInformation() == null) || !statement.getProtocolInformation().isFile()) {
+      throw new CryptographyException("Missing election protocol information " + statement.getProtocolInformation());
+    }
+
+    final long start = System.currentTimeMillis();
+    Path directory = null;
 
     try {
-      writer = new PrintWriter(new BufferedWriter(new FileWriter(file, false)));
+      directory = Files.createTempDirectory("vmnv");
 
-      // Verificatum does not expect properly formed JSON as an input, instead it expects JSON objects on a line-by-line basis.
-      final ObjectMapper mapper = new ObjectMapper();
-      mapper.configure(JsonGenerator.Feature.WRITE_NUMBERS_AS_STRINGS, true); // Make sure BigIntegers are written as strings since Verificatum expects this.
+      final File proofDirectory = ProofPackage.unpack(proof, directory);
+      final String type = readProofFile(proofDirectory, PROOF_TYPE_FILENAME);
+      final String auxsid = readProofFile(proofDirectory, PROOF_AUXSID_FILENAME);
+      final int width = Integer.parseInt(readProofFile(proofDirectory, PROOF_WIDTH_FILENAME));
+      final String operation = PROOF_TYPES.get(type);
 
-      for (int i = 0; i < cipherTexts.size(); i += width) {
-        if (width > 1) {
-          writer.print("[");
-        }
+      if (operation == null) {
+        throw new CryptographyException("Unknown proof type " + type);
+      }
 
-        for (int j = 0; j < width; j++) {
-          writer.print(mapper.writeValueAsString(cipherTexts.get(i + j)));
+      // Reject the proof if it was not created for the election's own values, otherwise verify it against the election's protocol information.
+      String error = checkStatement(proofDirectory, type, width, statement);
 
-          if (j < (width - 1)) {
-            writer.print(",");
-          }
-        }
+      if (error == null) {
+        final File workingDirectory = directory.resolve(VERIFY_WORKING_DIRECTORY).toFile();
+        workingDirectory.mkdirs();
 
-        if (width > 1) {
-          writer.print("]");
-        }
+        final String[] verifyCommand = new String[] {"vmnv", operation, "-auxsid", auxsid, "-width", Integer.toString(width), "-wd",
+            workingDirectory.getAbsolutePath(), statement.getProtocolInformation().getAbsolutePath(), proofDirectory.getAbsolutePath()};
 
-        writer.println();
+        try {
+          this.runCommand(verifyCommand, directory.toFile());
+        }
+        catch (final CryptographyException e) {
+          error = (e.getCause() != null) ? e.getCause().getMessage() : e.getMessage();
+        }
       }
+
+      return new ProofVerification(proof.getPath(), type, auxsid, width, error == null, System.currentTimeMillis() - start, error);
+    }
+    catch (final CryptographyException e) {
+      throw e;
     }
     catch (final Exception e) {
-      throw new CryptographyException("Could not write ciphertexts JSON", e);
+      throw new CryptographyException("Could not verify proof " + proof, e);
     }
     finally {
-      try {
-        if (writer != null) {
-          writer.close();
-        }
-      }
-      catch (final Exception e) {
-        // Log only as we may already be throwing an exception.
-        LOG.error("Could not close file", e);
-      }
-    }
-  }
-
-  /**
-   * ZIPs the specified directory into the specified ZIP file. Based on https://stackoverflow.com/questions/15968883/how-to-zip-a-folder-itself-using-java.
-   *
-   * @param directory The directory to ZIP.
-   * @param zipFile   The output ZIP file.
-   * @throws CryptographyException if the directory could not be ZIPped.
-   */
-  public void zipDirectory(final Path directory, final Path zipFile) throws CryptographyException {
-    try {
-      try (final ZipOutputStream zipOutputStream = new ZipOutputStream(Files.newOutputStream(zipFile))) {
-        Files.walk(directory)
-            .filter(path -> !Files.isDirectory(path))
-            .forEach(path -> {
-              final ZipEntry zipEntry = new ZipEntry(directory.relativize(path).toString());
-
-              try {
-                zipOutputStream.putNextEntry(zipEntry);
-                Files.copy(path, zipOutputStream);
-                zipOutputStream.closeEntry();
-              }
-              catch (final Exception e) {
-                throw new RuntimeException(e); // Re-throw as an unchecked exception because of the lambda.
-              }
-            });
+      if (directory != null) {
+        FileUtils.deleteQuietly(directory.toFile());
       }
     }
-    catch (final Exception e) {
-      throw new CryptographyException("Could not create ZIP file", e);
-    }
   }
 }
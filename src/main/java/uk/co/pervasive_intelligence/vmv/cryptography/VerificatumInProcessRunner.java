@@ -0,0 +1,906 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.security.Permission;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the Verificatum command line tools (vog, vmni, vmn, vmnc and vmnv) within the current JVM rather than spawning a new JVM for each command. The installed
+ * Verificatum JAR files are loaded on a dedicated class loader which is isolated from the application's own classes and reused for every command, so that the
+ * start up and warm up cost is only paid once. Each tool's main class is called with the same leading arguments as the corresponding Verificatum shell script
+ * wrapper.
+ * <p>
+ * All file arguments passed to a command must be absolute as the working directory of the JVM cannot be changed. Standard output and standard error are routed
+ * per thread so that only the output of the command's own threads is captured, and only an exit from the command's own threads is trapped. Exit handling still
+ * needs a security manager to be installed for the duration of the command, so only one command is run in-process at a time and none are run in-process while
+ * any {@link Activity}, such as a background job, concurrent workflow or service, may be running alongside it. Any command which cannot be run in-process is
+ * left to the caller to run as a separate process.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VerificatumInProcessRunner {
+
+  /** The Verificatum class which reports whether native arithmetic is in use. */
+  private static final String ARITHMETIC_CLASS = "com.verificatum.arithm.LargeInteger";
+
+  /** The method of the arithmetic class which reports whether native arithmetic is in use. */
+  private static final String ARITHMETIC_NATIVE_METHOD = "nativecode";
+
+  /** The environment variable which overrides the random seed file. */
+  private static final String ENV_RANDOM_SEED = "VERIFICATUM_RANDOM_SEED";
+
+  /** The environment variable which overrides the random source file. */
+  private static final String ENV_RANDOM_SOURCE = "VERIFICATUM_RANDOM_SOURCE";
+
+  /** The environment variable which adds group generators to vog. */
+  private static final String ENV_VOG = "VERIFICATUM_VOG";
+
+  /** The prefix of all Verificatum JAR files. */
+  private static final String JAR_PREFIX = "verificatum-";
+
+  /** The prefix of the Verificatum core JAR file which uses the native arithmetic libraries. */
+  private static final String JAR_PREFIX_NATIVE_VCR = "verificatum-vcr-vmgj";
+
+  /** The prefix of the pure Java Verificatum core JAR file. */
+  private static final String JAR_PREFIX_VCR = "verificatum-vcr-";
+
+  /** The JAR file extension. */
+  private static final String JAR_SUFFIX = ".jar";
+
+  /** The VMGJ class which loads the GMP-backed native arithmetic library. */
+  private static final String NATIVE_ARITHMETIC_CLASS = "com.verificatum.vmgj.VMG";
+
+  /** The prefix of the VMGJ native library name, which is followed by its version. */
+  private static final String NATIVE_LIBRARY_PREFIX = "vmgj-";
+
+  /** The system property which allows or disallows a security manager to be installed. */
+  private static final String PROPERTY_SECURITY_MANAGER = "java.security.manager";
+
+  /** The value of the security manager system property which disallows a security manager to be installed. */
+  private static final String SECURITY_MANAGER_DISALLOW = "disallow";
+
+  /** The Java version from which installing a security manager warns unless explicitly allowed, and later fails. */
+  private static final int SECURITY_MANAGER_DEPRECATED_VERSION = 17;
+
+  /** Platform line separator. */
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+  /** The number of activities which may run alongside a command, during which commands are not run in-process. */
+  private static final AtomicInteger ACTIVITIES = new AtomicInteger(0);
+
+  /** Where the command running on the current thread, or the thread which started it, captures its standard error. */
+  private static final InheritableThreadLocal<OutputStream> CAPTURE_ERR = new InheritableThreadLocal<>();
+
+  /** Where the command running on the current thread, or the thread which started it, captures its standard output. */
+  private static final InheritableThreadLocal<OutputStream> CAPTURE_OUT = new InheritableThreadLocal<>();
+
+  /** True if a security manager can be installed to trap exits from in-process commands, as probed once. */
+  private static final boolean EXIT_TRAP_SUPPORTED = isExitTrapSupported(System.getProperty(PROPERTY_SECURITY_MANAGER),
+      System.getProperty("java.specification.version"));
+
+  /** Only one command may be run in-process at a time. */
+  private static final ReentrantLock LOCK = new ReentrantLock();
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VerificatumInProcessRunner.class);
+
+  /** Interrupts commands which exceed their timeout. */
+  private static final ScheduledExecutorService WATCHDOG = Executors.newSingleThreadScheduledExecutor(runnable -> {
+    final Thread thread = new Thread(runnable, "verificatum-watchdog");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /** The class loader holding Verificatum. */
+  private final ClassLoader classLoader;
+
+  /** True if Verificatum's native GMP arithmetic (VMGJ) is loaded. */
+  private final boolean nativeArithmetic;
+
+  /** The main method for each command, loaded on first use. */
+  private final Map<String, Method> mainMethods = new HashMap<>();
+
+  /** The thread running the current command, if any. */
+  private volatile Thread running = null;
+
+  /** Set if Verificatum could not be loaded or exits cannot be trapped so that all further commands are run as processes. */
+  private volatile boolean unavailable = !EXIT_TRAP_SUPPORTED;
+
+  /**
+   * Constructor requiring the class loader holding Verificatum, which uses pure Java arithmetic.
+   *
+   * @param classLoader The class loader.
+   */
+  VerificatumInProcessRunner(final ClassLoader classLoader) {
+    this(classLoader, false);
+  }
+
+  /**
+   * Constructor requiring the class loader holding Verificatum.
+   *
+   * @param classLoader      The class loader.
+   * @param nativeArithmetic True if the class loader uses Verificatum's native GMP arithmetic (VMGJ).
+   */
+  VerificatumInProcessRunner(final ClassLoader classLoader, final boolean nativeArithmetic) {
+    this.classLoader = classLoader;
+    this.nativeArithmetic = nativeArithmetic;
+  }
+
+  /**
+   * Creates a runner for the Verificatum JAR files installed in the specified directory, such as "/usr/local/share/java", using pure Java arithmetic unless the
+   * native libraries can be loaded from the default library path.
+   *
+   * @param libraryDirectory The directory containing the Verificatum JAR files.
+   * @return The runner, or null if Verificatum is not installed in the directory.
+   */
+  public static VerificatumInProcessRunner create(final File libraryDirectory) {
+    return create(libraryDirectory, null);
+  }
+
+  /**
+   * Creates a runner for the Verificatum JAR files installed in the specified directory, such as "/usr/local/share/java". If the native arithmetic version of
+   * the Verificatum core is installed, it is used provided that its GMP-backed native libraries (VMGJ) can be loaded from the native library directory, such as
+   * "/usr/local/lib", or the default library path. Otherwise the pure Java version is used if it is installed.
+   *
+   * @param libraryDirectory       The directory containing the Verificatum JAR files.
+   * @param nativeLibraryDirectory The directory containing the Verificatum native libraries. May be null.
+   * @return The runner, or null if Verificatum is not installed in the directory or no usable version of the core is installed.
+   */
+  public static VerificatumInProcessRunner create(final File libraryDirectory, final File nativeLibraryDirectory) {
+    final File[] jars = (libraryDirectory == null) ? null :
+        libraryDirectory.listFiles((directory, name) -> name.startsWith(JAR_PREFIX) && name.endsWith(JAR_SUFFIX));
+
+    if ((jars == null) || (jars.length == 0)) {
+      LOG.debug("Verificatum not found in {}: commands will be run as processes", libraryDirectory);
+      return null;
+    }
+
+    if (!EXIT_TRAP_SUPPORTED) {
+      LOG.info("Verificatum exits cannot be trapped without -D{}=allow on this version of Java: commands will be run as processes", PROPERTY_SECURITY_MANAGER);
+      return null;
+    }
+
+    // The core classes are available in both a pure Java and a native arithmetic version: only use one, preferring the native version as the scripts do.
+    final boolean nativeCore = Arrays.stream(jars).anyMatch(jar -> jar.getName().startsWith(JAR_PREFIX_NATIVE_VCR));
+    final boolean pureCore = Arrays.stream(jars).anyMatch(jar -> jar.getName().startsWith(JAR_PREFIX_VCR) && !jar.getName().startsWith(JAR_PREFIX_NATIVE_VCR));
+
+    try {
+      if (nativeCore) {
+        final ClassLoader classLoader = new NativeLibraryClassLoader(classPath(jars, true), nativeLibraryDirectory);
+
+        if (isNativeArithmetic(classLoader)) {
+          LOG.info("Verificatum will use native GMP arithmetic (VMGJ)");
+          return new VerificatumInProcessRunner(classLoader, true);
+        }
+
+        if (!pureCore) {
+          LOG.warn("Verificatum native arithmetic could not be loaded from {}: commands will be run as processes", nativeLibraryDirectory);
+          return null;
+        }
+
+        LOG.info("Verificatum native arithmetic could not be loaded from {}: using pure Java arithmetic", nativeLibraryDirectory);
+      }
+
+      // Isolate Verificatum from the application's own classes.
+      return new VerificatumInProcessRunner(new URLClassLoader(classPath(jars, false), ClassLoader.getSystemClassLoader().getParent()), false);
+    }
+    catch (final Exception e) {
+      LOG.warn("Could not load Verificatum from {}: commands will be run as processes", libraryDirectory, e);
+      return null;
+    }
+  }
+
+  /**
+   * Registers an activity which may run alongside commands, such as a background job, concurrent workflow or service. While any activity is registered,
+   * commands are not run in-process so that the security manager used to trap exits is never installed while other work is running.
+   *
+   * @return The activity, which must be closed when it ends.
+   */
+  public static Activity beginActivity() {
+    return new Activity();
+  }
+
+  /**
+   * Builds the class path for the installed Verificatum JAR files, including only one version of the core classes.
+   *
+   * @param jars       The installed Verificatum JAR files.
+   * @param nativeCore True to include the native arithmetic version of the core classes, false to include the pure Java version.
+   * @return The class path.
+   * @throws IOException if a JAR file could not be converted to a URL.
+   */
+  private static URL[] classPath(final File[] jars, final boolean nativeCore) throws IOException {
+    final List<URL> urls = new ArrayList<>();
+
+    for (final File jar : jars) {
+      final boolean isNativeCore = jar.getName().startsWith(JAR_PREFIX_NATIVE_VCR);
+      final boolean isCore = jar.getName().startsWith(JAR_PREFIX_VCR);
+
+      if (!isCore || (isNativeCore == nativeCore)) {
+        urls.add(jar.toURI().toURL());
+      }
+    }
+
+    LOG.debug("Verificatum in-process class path: {}", urls);
+
+    return urls.toArray(new URL[0]);
+  }
+
+  /**
+   * Determines if the GMP-backed native arithmetic library (VMGJ) is installed in the specified directory, as used by the Verificatum scripts when run as a
+   * process.
+   *
+   * @param nativeLibraryDirectory The directory containing the Verificatum native libraries, such as "/usr/local/lib". May be null.
+   * @return True if the native arithmetic library is installed.
+   */
+  public static boolean hasNativeLibrary(final File nativeLibraryDirectory) {
+    // Map a dummy versioned name to find the platform's prefix and suffix, e.g. "libvmgj-1.so".
+    final String mappedName = System.mapLibraryName(NATIVE_LIBRARY_PREFIX + "1");
+    final String prefix = mappedName.substring(0, mappedName.indexOf(NATIVE_LIBRARY_PREFIX) + NATIVE_LIBRARY_PREFIX.length());
+    final String suffix = mappedName.substring(prefix.length() + 1);
+
+    final File[] libraries = (nativeLibraryDirectory == null) ? null :
+        nativeLibraryDirectory.listFiles((directory, name) -> name.startsWith(prefix) && name.endsWith(suffix));
+
+    return (libraries != null) && (libraries.length > 0);
+  }
+
+  /**
+   * Installs the standard output and standard error streams which route the output of in-process commands to their own capture, leaving the output of all other
+   * threads untouched. The streams are only installed once, unless they have since been replaced, and are left installed.
+   */
+  private static synchronized void installRouting() {
+    if (!(System.out instanceof RoutingPrintStream)) {
+      System.setOut(new RoutingPrintStream(System.out, CAPTURE_OUT));
+    }
+
+    if (!(System.err instanceof RoutingPrintStream)) {
+      System.setErr(new RoutingPrintStream(System.err, CAPTURE_ERR));
+    }
+  }
+
+  /**
+   * Determines if a security manager can be installed to trap exits without the runtime refusing it or warning about its use. From Java 17 onwards, a security
+   * manager is only installed if the runtime has been explicitly allowed to use one with "-Djava.security.manager=allow".
+   *
+   * @param property The value of the security manager system property. May be null.
+   * @param version  The Java specification version, e.g. "1.8" or "17".
+   * @return True if a security manager can be installed.
+   */
+  static boolean isExitTrapSupported(final String property, final String version) {
+    if (property != null) {
+      return !SECURITY_MANAGER_DISALLOW.equals(property);
+    }
+
+    try {
+      final int major = Integer.parseInt(version.startsWith("1.") ? version.substring(2) : version);
+
+      return major < SECURITY_MANAGER_DEPRECATED_VERSION;
+    }
+    catch (final NumberFormatException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Determines if Verificatum on the specified class loader uses native arithmetic by loading the VMGJ native library and asking Verificatum which arithmetic it
+   * uses.
+   *
+   * @param classLoader The class loader holding Verificatum.
+   * @return True if native arithmetic is in use.
+   */
+  static boolean isNativeArithmetic(final ClassLoader classLoader) {
+    try {
+      // Initialising the class loads the native library.
+      Class.forName(NATIVE_ARITHMETIC_CLASS, true, classLoader);
+
+      return (Boolean) Class.forName(ARITHMETIC_CLASS, true, classLoader).getMethod(ARITHMETIC_NATIVE_METHOD).invoke(null);
+    }
+    catch (final ReflectiveOperationException | LinkageError e) {
+      LOG.debug("Verificatum native arithmetic is not available", e);
+      return false;
+    }
+  }
+
+  /**
+   * Finds a file name from an environment variable or defaults to a file in the user's home directory, as per the Verificatum scripts.
+   *
+   * @param variable The environment variable.
+   * @param filename The default file name.
+   * @return The file name.
+   */
+  private static String environmentFile(final String variable, final String filename) {
+    final String value = System.getenv(variable);
+
+    return ((value == null) || value.isEmpty()) ? new File(System.getProperty("user.home"), filename).getAbsolutePath() : value;
+  }
+
+  /**
+   * @return The process identifier of this JVM, used where the scripts pass their own process identifier.
+   */
+  private static String processId() {
+    final String name = ManagementFactory.getRuntimeMXBean().getName();
+    final int separator = name.indexOf('@');
+
+    return (separator > 0) ? name.substring(0, separator) : name;
+  }
+
+  /**
+   * Cancels the command currently running in-process, if any, by interrupting it.
+   */
+  public void cancel() {
+    final Thread thread = this.running;
+
+    if (thread != null) {
+      thread.interrupt();
+    }
+  }
+
+  /**
+   * Determines if a command can be run in-process.
+   *
+   * @param command The command name, e.g. "vmn".
+   * @return True if the command has a known main class and Verificatum is available.
+   */
+  public boolean canRun(final String command) {
+    return !this.unavailable && (Tool.forCommand(command) != null);
+  }
+
+  /**
+   * @return True if Verificatum's native GMP arithmetic (VMGJ) is in use.
+   */
+  public boolean isNativeArithmetic() {
+    return this.nativeArithmetic;
+  }
+
+  /**
+   * Finds the main method for a command, loading it on first use.
+   *
+   * @param tool The tool.
+   * @return The main method.
+   * @throws ReflectiveOperationException if the main method could not be loaded.
+   */
+  private Method getMainMethod(final Tool tool) throws ReflectiveOperationException {
+    synchronized (this.mainMethods) {
+      Method method = this.mainMethods.get(tool.command);
+
+      if (method == null) {
+        method = Class.forName(tool.mainClass, true, this.classLoader).getMethod("main", String[].class);
+        this.mainMethods.put(tool.command, method);
+      }
+
+      return method;
+    }
+  }
+
+  /**
+   * Runs a command in-process and obtains its output. If the command fails, an {@link CryptographyException} is thrown. If the command cannot be run in-process,
+   * either because another command is already running in-process or because Verificatum could not be loaded, null is returned so that the caller can run the
+   * command as a process instead.
+   *
+   * @param command The command to execute. All file arguments must be absolute.
+   * @return The output of the command, or null if the command was not run.
+   * @throws CryptographyException if the command failed.
+   */
+  public String run(final String[] command) throws CryptographyException {
+    return this.run(command, null, 0);
+  }
+
+  /**
+   * Runs a command in-process and obtains its output, passing each line of output to a consumer as it is written. If the command fails, times out or is
+   * cancelled, an {@link CryptographyException} is thrown. If the command cannot be run in-process, either because another command is already running
+   * in-process or because Verificatum could not be loaded, null is returned so that the caller can run the command as a process instead.
+   *
+   * @param command The command to execute. All file arguments must be absolute.
+   * @param lines   Receives each line of output as it is written. May be null.
+   * @param timeout The maximum time in milliseconds for the command to run, or zero for no limit.
+   * @return The output of the command, or null if the command was not run.
+   * @throws CryptographyException if the command failed.
+   */
+  public String run(final String[] command, final Consumer<String> lines, final long timeout) throws CryptographyException {
+    final Tool tool = Tool.forCommand(command[0]);
+
+    if ((tool == null) || this.unavailable || (ACTIVITIES.get() > 0) || !LOCK.tryLock()) {
+      return null;
+    }
+
+    // Check again now that the lock is held in case an activity started while waiting for it.
+    if (ACTIVITIES.get() > 0) {
+      LOCK.unlock();
+      return null;
+    }
+
+    final Thread thread = Thread.currentThread();
+    final ClassLoader originalClassLoader = thread.getContextClassLoader();
+
+    final LineOutputStream out = new LineOutputStream(lines);
+    final LineOutputStream err = new LineOutputStream(lines);
+    final AtomicBoolean timedOut = new AtomicBoolean(false);
+    ScheduledFuture<?> watchdog = null;
+    ExitSecurityManager exitTrap = null;
+    int status = 0;
+
+    try {
+      final Method main = this.getMainMethod(tool);
+      final List<String> arguments = new ArrayList<>(tool.arguments());
+      arguments.addAll(Arrays.asList(command).subList(1, command.length));
+
+      LOG.debug("In-process command: {}", arguments);
+
+      try {
+        exitTrap = ExitSecurityManager.install();
+      }
+      catch (final UnsupportedOperationException | SecurityException e) {
+        // Exits cannot be trapped, so always fall back to processes.
+        LOG.warn("Could not trap Verificatum exits: commands will be run as processes", e);
+        this.unavailable = true;
+        return null;
+      }
+
+      installRouting();
+      thread.setContextClassLoader(this.classLoader);
+      this.running = thread;
+
+      if (timeout > 0) {
+        watchdog = WATCHDOG.schedule(() -> {
+          timedOut.set(true);
+          thread.interrupt();
+        }, timeout, TimeUnit.MILLISECONDS);
+      }
+
+      Throwable cause = null;
+
+      // Set the capture last so that only threads started by the command inherit it.
+      CAPTURE_OUT.set(out);
+      CAPTURE_ERR.set(err);
+
+      try {
+        main.invoke(null, (Object) arguments.toArray(new String[0]));
+      }
+      catch (final InvocationTargetException e) {
+        if (e.getCause() instanceof ExitException) {
+          status = ((ExitException) e.getCause()).status;
+        }
+        else {
+          cause = e.getCause();
+        }
+      }
+
+      if (watchdog != null) {
+        watchdog.cancel(false);
+      }
+
+      // Clear any interrupt so that it does not leak into the caller, reporting it in preference to whatever the command made of it.
+      final boolean interrupted = Thread.interrupted();
+
+      if (timedOut.get()) {
+        throw new CryptographyException("Command timed out after " + timeout + "ms");
+      }
+
+      if (interrupted) {
+        throw new CryptographyException("Command cancelled");
+      }
+
+      if (cause != null) {
+        throw new CryptographyException("Command threw an exception", cause);
+      }
+    }
+    catch (final ReflectiveOperationException | LinkageError e) {
+      // Verificatum could not be loaded, so always fall back to processes.
+      LOG.warn("Could not run Verificatum in-process: commands will be run as processes", e);
+      this.unavailable = true;
+      return null;
+    }
+    finally {
+      if (watchdog != null) {
+        watchdog.cancel(false);
+      }
+
+      this.running = null;
+      thread.setContextClassLoader(originalClassLoader);
+
+      if (exitTrap != null) {
+        exitTrap.uninstall();
+      }
+
+      CAPTURE_OUT.remove();
+      CAPTURE_ERR.remove();
+      LOCK.unlock();
+    }
+
+    final String output = this.toLines(out);
+    if (output.length() > 0) {
+      LOG.debug("Command output: {}", output);
+    }
+
+    final String error = this.toLines(err);
+    if (error.length() > 0) {
+      LOG.debug("Command error: {}", error);
+    }
+
+    if (status != 0) {
+      throw new CryptographyException("Command failed with exit code " + status + ": " + output + "; " + error);
+    }
+
+    return output;
+  }
+
+  /**
+   * Converts captured output into lines joined in the same way as the output of a process.
+   *
+   * @param captured The captured output.
+   * @return The joined lines.
+   */
+  private String toLines(final LineOutputStream captured) {
+    return new BufferedReader(new StringReader(new String(captured.toByteArray(), Charset.defaultCharset()))).lines()
+        .collect(Collectors.joining(LINE_SEPARATOR));
+  }
+
+  /**
+   * An activity which may run alongside commands, during which commands are not run in-process.
+   */
+  public static final class Activity implements AutoCloseable {
+
+    /** True once the activity has ended. */
+    private final AtomicBoolean ended = new AtomicBoolean(false);
+
+    /**
+     * Constructor which registers the activity.
+     */
+    private Activity() {
+      ACTIVITIES.incrementAndGet();
+    }
+
+    /**
+     * Ends the activity. Ending an activity more than once has no further effect.
+     */
+    @Override
+    public void close() {
+      if (this.ended.compareAndSet(false, true)) {
+        ACTIVITIES.decrementAndGet();
+      }
+    }
+  }
+
+  /**
+   * The Verificatum tools which can be run in-process, with the main class and leading arguments used by their shell script wrappers.
+   */
+  enum Tool {
+
+    /** Group generator. */
+    VOG("vog", "com.verificatum.ui.gen.GeneratorTool") {
+      @Override
+      List<String> arguments() {
+        final String vog = System.getenv(ENV_VOG);
+
+        return Arrays.asList(this.command, ((vog == null) ? "" : vog) + ":VERIFICATUM_VOG_BUILTIN", environmentFile(ENV_RANDOM_SOURCE,
+            ".verificatum_random_source"), environmentFile(ENV_RANDOM_SEED, ".verificatum_random_seed"));
+      }
+    },
+
+    /** Mix-net operations. */
+    VMN("vmn", "com.verificatum.protocol.mixnet.MixNetElGamalTool") {
+      @Override
+      List<String> arguments() {
+        return Arrays.asList(processId(), this.command);
+      }
+    },
+
+    /** Mix-net format conversion. */
+    VMNC("vmnc", "com.verificatum.protocol.elgamal.ProtocolElGamalInterfaceTool") {
+      @Override
+      List<String> arguments() {
+        return Arrays.asList(this.command, "com.verificatum.protocol.mixnet.MixNetElGamalInterfaceFactory",
+            environmentFile(ENV_RANDOM_SOURCE, ".verificatum_random_source"), environmentFile(ENV_RANDOM_SEED, ".verificatum_random_seed"));
+      }
+    },
+
+    /** Mix-net proof verification. */
+    VMNV("vmnv", "com.verificatum.protocol.mixnet.MixNetElGamalVerifyFiatShamirTool") {
+      @Override
+      List<String> arguments() {
+        return Arrays.asList(this.command, environmentFile(ENV_RANDOM_SOURCE, ".verificatum_random_source"),
+            environmentFile(ENV_RANDOM_SEED, ".verificatum_random_seed"));
+      }
+    },
+
+    /** Mix-net information files. */
+    VMNI("vmni", "com.verificatum.ui.info.InfoTool") {
+      @Override
+      List<String> arguments() {
+        return Arrays.asList(this.command, environmentFile(ENV_RANDOM_SOURCE, ".verificatum_random_source"),
+            environmentFile(ENV_RANDOM_SEED, ".verificatum_random_seed"), "com.verificatum.protocol.mixnet.MixNetElGamal");
+      }
+    };
+
+    /** The command name. */
+    final String command;
+
+    /** The main class. */
+    final String mainClass;
+
+    /**
+     * Constructor requiring the command name and main class.
+     *
+     * @param command   The command name.
+     * @param mainClass The main class.
+     */
+    Tool(final String command, final String mainClass) {
+      this.command = command;
+      this.mainClass = mainClass;
+    }
+
+    /**
+     * Finds the tool for a command.
+     *
+     * @param command The command name.
+     * @return The tool, or null if the command is not known.
+     */
+    static Tool forCommand(final String command) {
+      for (final Tool tool : values()) {
+        if (tool.command.equals(command)) {
+          return tool;
+        }
+      }
+
+      return null;
+    }
+
+    /**
+     * @return The leading arguments passed to the main class before the command's own arguments.
+     */
+    abstract List<String> arguments();
+  }
+
+  /**
+   * Thrown instead of exiting the JVM when a command calls {@link System#exit(int)}.
+   */
+  private static class ExitException extends SecurityException {
+
+    /** The exit status. */
+    private final int status;
+
+    /**
+     * Constructor requiring the exit status.
+     *
+     * @param status The exit status.
+     */
+    private ExitException(final int status) {
+      super("Exit " + status);
+      this.status = status;
+    }
+  }
+
+  /**
+   * Captures output while passing each complete line to a consumer as it is written.
+   */
+  private static class LineOutputStream extends ByteArrayOutputStream {
+
+    /** The current line. */
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+    /** Receives each line. May be null. */
+    private final Consumer<String> lines;
+
+    /**
+     * Constructor requiring the line consumer.
+     *
+     * @param lines Receives each line. May be null.
+     */
+    private LineOutputStream(final Consumer<String> lines) {
+      this.lines = lines;
+    }
+
+    /**
+     * Writes a byte, passing on the current line at each line feed.
+     *
+     * @param b The byte.
+     */
+    @Override
+    public synchronized void write(final int b) {
+      super.write(b);
+
+      if (this.lines != null) {
+        if (b == '\n') {
+          this.lines.accept(new String(this.line.toByteArray(), Charset.defaultCharset()).replace("\r", ""));
+          this.line.reset();
+        }
+        else {
+          this.line.write(b);
+        }
+      }
+    }
+
+    /**
+     * Writes bytes, passing on the current line at each line feed.
+     *
+     * @param b   The bytes.
+     * @param off The offset of the first byte.
+     * @param len The number of bytes.
+     */
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) {
+      for (int i = off; i < (off + len); i++) {
+        this.write(b[i]);
+      }
+    }
+  }
+
+  /**
+   * Print stream which writes to the capture of the in-process command running on the current thread, if any, and otherwise to the original stream.
+   */
+  private static class RoutingPrintStream extends PrintStream {
+
+    /**
+     * Constructor requiring the original stream and the capture of the current thread.
+     *
+     * @param original The original stream.
+     * @param capture  The capture of the in-process command running on the current thread.
+     */
+    private RoutingPrintStream(final PrintStream original, final ThreadLocal<OutputStream> capture) {
+      super(new OutputStream() {
+        @Override
+        public void flush() throws IOException {
+          final OutputStream stream = capture.get();
+          (stream != null ? stream : original).flush();
+        }
+
+        @Override
+        public void write(final int b) throws IOException {
+          final OutputStream stream = capture.get();
+          (stream != null ? stream : original).write(b);
+        }
+
+        @Override
+        public void write(final byte[] b, final int off, final int len) throws IOException {
+          final OutputStream stream = capture.get();
+          (stream != null ? stream : original).write(b, off, len);
+        }
+      }, true);
+    }
+  }
+
+  /**
+   * Isolated class loader which loads native libraries from a specific directory in preference to the default library path, in the same way that the Verificatum
+   * scripts set the library path.
+   */
+  static class NativeLibraryClassLoader extends URLClassLoader {
+
+    /** The directory containing the native libraries. May be null. */
+    private final File nativeLibraryDirectory;
+
+    /**
+     * Constructor requiring the class path and native library directory.
+     *
+     * @param urls                   The class path.
+     * @param nativeLibraryDirectory The directory containing the native libraries. May be null.
+     */
+    NativeLibraryClassLoader(final URL[] urls, final File nativeLibraryDirectory) {
+      super(urls, ClassLoader.getSystemClassLoader().getParent());
+      this.nativeLibraryDirectory = nativeLibraryDirectory;
+    }
+
+    /**
+     * Finds a native library in the native library directory, if it is there.
+     *
+     * @param libname The library name.
+     * @return The absolute path to the library, or null to search the default library path.
+     */
+    @Override
+    protected String findLibrary(final String libname) {
+      if (this.nativeLibraryDirectory != null) {
+        final File library = new File(this.nativeLibraryDirectory, System.mapLibraryName(libname));
+
+        if (library.isFile()) {
+          return library.getAbsolutePath();
+        }
+      }
+
+      return super.findLibrary(libname);
+    }
+  }
+
+  /**
+   * Security manager which traps an exit from the threads of the in-process command, and otherwise defers to the security manager which it replaces, if any.
+   * All use of the security manager API is kept here, since it is deprecated for removal in later versions of Java.
+   */
+  @SuppressWarnings("removal")
+  private static class ExitSecurityManager extends SecurityManager {
+
+    /** The security manager which was installed before the command. May be null. */
+    private final SecurityManager original;
+
+    /**
+     * Constructor requiring the security manager which was installed before the command.
+     *
+     * @param original The original security manager. May be null.
+     */
+    private ExitSecurityManager(final SecurityManager original) {
+      this.original = original;
+    }
+
+    /**
+     * Installs a security manager which traps exits in place of the current one.
+     *
+     * @return The installed security manager.
+     * @throws UnsupportedOperationException if the runtime does not allow a security manager to be installed.
+     * @throws SecurityException             if the current security manager does not allow it to be replaced.
+     */
+    private static ExitSecurityManager install() {
+      final ExitSecurityManager securityManager = new ExitSecurityManager(System.getSecurityManager());
+      System.setSecurityManager(securityManager);
+
+      return securityManager;
+    }
+
+  /**
+     * Prevents the threads of the in-process command from exiting the JVM.
+     *
+     * @param status The exit status.
+     */
+    @Override
+    public void checkExit(final int status) {
+      if (CAPTURE_OUT.get() != null) {
+        throw new ExitException(status);
+      }
+
+      if (this.original != null) {
+        this.original.checkExit(status);
+      }
+    }
+
+    /**
+     * Defers to the original security manager, if any. Without one, everything is permitted as it would be with no security manager installed.
+     *
+     * @param permission The permission.
+     */
+    @Override
+    public void checkPermission(final Permission permission) {
+      if (this.original != null) {
+        this.original.checkPermission(permission);
+      }
+    }
+
+    /**
+     * Defers to the original security manager, if any. Without one, everything is permitted as it would be with no security manager installed.
+     *
+     * @param permission The permission.
+     * @param context    The security context.
+     */
+    @Override
+    public void checkPermission(final Permission permission, final Object context) {
+      if (this.original != null) {
+        this.original.checkPermission(permission, context);
+      }
+    }
+
+    /**
+     * Restores the security manager which this one replaced.
+     */
+    private void uninstall() {
+      System.setSecurityManager(this.original);
+    }
+  }
+}
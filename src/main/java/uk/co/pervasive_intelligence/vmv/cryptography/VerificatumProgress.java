@@ -0,0 +1,156 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Converts the protocol log lines written by Verificatum into percentage progress. Verificatum does not report percentages itself, but it logs a known line at
+ * each milestone of an operation, such as each teller's shuffle of the ciphertexts, and so progress is the proportion of expected milestones which have been
+ * seen.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+class VerificatumProgress {
+
+  /** Milestones logged once during distributed decryption. */
+  private static final List<String> DECRYPT_MILESTONES = Arrays.asList("Compute decryption factors.", "Collect decryption factors.", "Compute plaintexts.");
+
+  /** The maximum progress reported before the command completes. */
+  private static final float MAXIMUM_PROGRESS = 99f;
+
+  /** Milestones logged once during precomputation. */
+  private static final List<String> PRECOMPUTE_MILESTONES = Arrays.asList("Pre-compute permutation commitment.", "Perform pre-computation for ");
+
+  /** Milestones logged once per shuffling teller, either when the teller computes its own output or reads another teller's output. */
+  private static final List<String> SHUFFLE_MILESTONES = Arrays.asList("Compute output list.", "Read output list from ");
+
+  /** The number of expected decryption milestones. */
+  private final int expectedDecrypt;
+
+  /** The number of expected precomputation milestones. */
+  private final int expectedPrecompute;
+
+  /** The number of expected shuffle milestones. */
+  private final int expectedShuffle;
+
+  /** The listeners to receive progress. */
+  private final Collection<CryptographyHelper.ProgressListener> listeners;
+
+  /** The number of milestones seen so far. */
+  private int completed = 0;
+
+  /**
+   * Constructor requiring the number of each type of milestone expected and the listeners to report to.
+   *
+   * @param expectedShuffle    The number of expected shuffle milestones.
+   * @param expectedDecrypt    The number of expected decryption milestones.
+   * @param expectedPrecompute The number of expected precomputation milestones.
+   * @param listeners          The listeners to receive progress.
+   */
+  private VerificatumProgress(final int expectedShuffle, final int expectedDecrypt, final int expectedPrecompute,
+                              final Collection<CryptographyHelper.ProgressListener> listeners) {
+    this.expectedShuffle = expectedShuffle;
+    this.expectedDecrypt = expectedDecrypt;
+    this.expectedPrecompute = expectedPrecompute;
+    this.listeners = new ArrayList<>(listeners);
+  }
+
+  /**
+   * Creates progress for decrypting ciphertexts.
+   *
+   * @param listeners The listeners to receive progress.
+   * @return The progress.
+   */
+  static VerificatumProgress forDecrypt(final Collection<CryptographyHelper.ProgressListener> listeners) {
+    return new VerificatumProgress(0, DECRYPT_MILESTONES.size(), 0, listeners);
+  }
+
+  /**
+   * Creates progress for mixing ciphertexts: shuffling followed by decryption.
+   *
+   * @param tellers   The number of tellers which shuffle, i.e., the threshold number of tellers.
+   * @param listeners The listeners to receive progress.
+   * @return The progress.
+   */
+  static VerificatumProgress forMix(final int tellers, final Collection<CryptographyHelper.ProgressListener> listeners) {
+    return new VerificatumProgress(tellers, DECRYPT_MILESTONES.size(), 0, listeners);
+  }
+
+  /**
+   * Creates progress for precomputation.
+   *
+   * @param listeners The listeners to receive progress.
+   * @return The progress.
+   */
+  static VerificatumProgress forPrecompute(final Collection<CryptographyHelper.ProgressListener> listeners) {
+    return new VerificatumProgress(0, 0, PRECOMPUTE_MILESTONES.size(), listeners);
+  }
+
+  /**
+   * Creates progress for shuffling ciphertexts.
+   *
+   * @param tellers   The number of tellers which shuffle, i.e., the threshold number of tellers.
+   * @param listeners The listeners to receive progress.
+   * @return The progress.
+   */
+  static VerificatumProgress forShuffle(final int tellers, final Collection<CryptographyHelper.ProgressListener> listeners) {
+    return new VerificatumProgress(tellers, 0, 0, listeners);
+  }
+
+  /**
+   * Determines if a line contains one of the milestones.
+   *
+   * @param line       The line.
+   * @param milestones The milestones.
+   * @return True if the line contains a milestone.
+   */
+  private static boolean matches(final String line, final List<String> milestones) {
+    for (final String milestone : milestones) {
+      if (line.contains(milestone)) {
+        return true;
+      }
+    }
+
+    return false;
+  }
+
+  /**
+   * @return The current percentage progress, which never reaches 100% until the command has completed.
+   */
+  synchronized float getProgress() {
+    final int expected = this.expectedShuffle + this.expectedDecrypt + this.expectedPrecompute;
+
+    return (expected == 0) ? 0f : Math.min(MAXIMUM_PROGRESS, (100f * this.completed) / expected);
+  }
+
+  /**
+   * Called with each line of output from Verificatum. If the line is a milestone, the listeners are informed of the new progress.
+   *
+   * @param line The line of output.
+   */
+  void onLine(final String line) {
+    final boolean milestone = ((this.expectedShuffle > 0) && matches(line, SHUFFLE_MILESTONES)) ||
+        ((this.expectedDecrypt > 0) && matches(line, DECRYPT_MILESTONES)) ||
+        ((this.expectedPrecompute > 0) && matches(line, PRECOMPUTE_MILESTONES));
+
+    if (milestone) {
+      final float progress;
+
+      synchronized (this) {
+        this.completed++;
+        progress = this.getProgress();
+      }
+
+      for (final CryptographyHelper.ProgressListener listener : this.listeners) {
+        listener.onProgress(progress);
+      }
+    }
+  }
+}
@@ -7,10 +7,9 @@ package uk.co.pervasive_intelligence.vmv.cryptography.data;
 
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
+import java.util.Objects;
 
 /**
  * Encapsulates a Verificatum ciphertext element.
@@ -49,40 +48,15 @@ public class CipherText {
    * @param values The bytes encoded using {@link #toByteArray()}.
    * @throws CryptographyException if the ciphertext could not be decoded.
    * @see #toByteArray()
+   * @see CipherTextView
    */
   public CipherText(final byte[] values) throws CryptographyException {
     try {
-      // Decode the array as two length (int) and value pairs.
-      final ByteArrayInputStream input = new ByteArrayInputStream(values);
+      // Decode the array as two length (int) and value pairs directly from their offsets.
+      final CipherTextView view = new CipherTextView().wrap(values);
 
-      final byte[] alphaLengthBytes = new byte[Integer.BYTES];
-
-      if (input.read(alphaLengthBytes) != Integer.BYTES) {
-        throw new CryptographyException("Missing alpha length");
-      }
-
-      final int alphaLength = ByteBuffer.wrap(alphaLengthBytes).getInt();
-      final byte[] alphaBytes = new byte[alphaLength];
-
-      if (input.read(alphaBytes) != alphaLength) {
-        throw new CryptographyException("Missing alpha");
-      }
-
-      final byte[] betaLengthBytes = new byte[Integer.BYTES];
-
-      if (input.read(betaLengthBytes) != Integer.BYTES) {
-        throw new CryptographyException("Missing beta length");
-      }
-
-      final int betaLength = ByteBuffer.wrap(betaLengthBytes).getInt();
-      final byte[] betaBytes = new byte[betaLength];
-
-      if (input.read(betaBytes) != betaLength) {
-        throw new CryptographyException("Missing beta");
-      }
-
-      this.alpha = new BigInteger(1, alphaBytes);
-      this.beta = new BigInteger(1, betaBytes);
+      this.alpha = view.getAlpha();
+      this.beta = view.getBeta();
     }
     catch (final CryptographyException e) {
       throw e;
@@ -92,6 +66,62 @@ public class CipherText {
     }
   }
 
+  /**
+   * Encodes the alpha and beta components of a ciphertext into a caller supplied buffer at its current position, using the same format as {@link #toByteArray()}.
+   * The buffer's position is advanced past the encoded ciphertext.
+   *
+   * @param alpha  The alpha component of the ciphertext.
+   * @param beta   The beta component of the ciphertext.
+   * @param buffer The buffer to write into.
+   * @throws CryptographyException if the ciphertext could not be encoded.
+   */
+  public static void encode(final BigInteger alpha, final BigInteger beta, final ByteBuffer buffer) throws CryptographyException {
+    try {
+      // Encode as two length (int) and value pairs.
+      final byte[] alphaBytes = alpha.toByteArray();
+      final byte[] betaBytes = beta.toByteArray();
+
+      buffer.putInt(alphaBytes.length).put(alphaBytes).putInt(betaBytes.length).put(betaBytes);
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not encode ciphertext", e);
+    }
+  }
+
+  /**
+   * Calculates the number of bytes needed to encode the alpha and beta components of a ciphertext, so that a buffer can be sized before calling
+   * {@link #encode(BigInteger, BigInteger, ByteBuffer)}.
+   *
+   * @param alpha The alpha component of the ciphertext.
+   * @param beta  The beta component of the ciphertext.
+   * @return The number of bytes in the encoding.
+   */
+  public static int encodedLength(final BigInteger alpha, final BigInteger beta) {
+    // BigInteger.toByteArray() always includes a sign bit.
+    return Integer.BYTES + (alpha.bitLength() / Byte.SIZE) + 1 + Integer.BYTES + (beta.bitLength() / Byte.SIZE) + 1;
+  }
+
+  /**
+   * Indicates whether some other object is "equal to" this one.
+   *
+   * @param object the reference object with which to compare.
+   * @return {@code true} if this object is the same as the obj argument; {@code false} otherwise.
+   * @see #hashCode()
+   */
+  @Override
+  public boolean equals(final Object object) {
+    if (this == object) {
+      return true;
+    }
+
+    if (object == null || (this.getClass() != object.getClass())) {
+      return false;
+    }
+
+    final CipherText that = (CipherText) object;
+    return Objects.equals(this.alpha, that.alpha) && Objects.equals(this.beta, that.beta);
+  }
+
   /**
    * @return The alpha component of the ciphertext.
    */
@@ -106,6 +136,15 @@ public class CipherText {
     return this.beta;
   }
 
+  /**
+   * @return The hash code for the ciphertext.
+   * @see #equals(Object)
+   */
+  @Override
+  public int hashCode() {
+    return Objects.hash(this.alpha, this.beta);
+  }
+
   /**
    * Encodes the ciphertext into a byte array.
    *
@@ -113,21 +152,20 @@ public class CipherText {
    * @throws CryptographyException if the ciphertext could not be encoded.
    */
   public byte[] toByteArray() throws CryptographyException {
-    try {
-      // Encode the array as two length (int) and value pairs.
-      final byte[] alphaBytes = this.alpha.toByteArray();
-      final byte[] betaBytes = this.beta.toByteArray();
+    final byte[] bytes = new byte[encodedLength(this.alpha, this.beta)];
+    encode(this.alpha, this.beta, ByteBuffer.wrap(bytes));
 
-      final ByteArrayOutputStream output = new ByteArrayOutputStream();
-      output.write(ByteBuffer.allocate(Integer.BYTES).putInt(alphaBytes.length).array());
-      output.write(alphaBytes);
-      output.write(ByteBuffer.allocate(Integer.BYTES).putInt(betaBytes.length).array());
-      output.write(betaBytes);
+    return bytes;
+  }
 
-      return output.toByteArray();
-    }
-    catch (final Exception e) {
-      throw new CryptographyException("Could not encode ciphertext", e);
-    }
+  /**
+   * Encodes the ciphertext into a caller supplied buffer at its current position. The buffer's position is advanced past the encoded ciphertext.
+   *
+   * @param buffer The buffer to write into.
+   * @throws CryptographyException if the ciphertext could not be encoded.
+   * @see #encode(BigInteger, BigInteger, ByteBuffer)
+   */
+  public void writeTo(final ByteBuffer buffer) throws CryptographyException {
+    encode(this.alpha, this.beta, buffer);
   }
 }
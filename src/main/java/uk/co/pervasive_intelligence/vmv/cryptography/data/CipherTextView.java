@@ -0,0 +1,134 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight, read-only view over a ciphertext encoded using {@link CipherText#toByteArray()}. The alpha and beta components are read directly from their offsets
+ * in the underlying {@link ByteBuffer} without any intermediate streams or length arrays. A single view can be re-wrapped around many encoded ciphertexts.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class CipherTextView {
+
+  /** The length of the alpha component. */
+  private int alphaLength;
+
+  /** The buffer holding the encoded ciphertext. */
+  private ByteBuffer buffer;
+
+  /** The length of the beta component. */
+  private int betaLength;
+
+  /** The offset of the encoded ciphertext in the buffer. */
+  private int offset;
+
+  /**
+   * @return The alpha component of the ciphertext.
+   */
+  public BigInteger getAlpha() {
+    return this.read(this.offset + Integer.BYTES, this.alphaLength);
+  }
+
+  /**
+   * @return The beta component of the ciphertext.
+   */
+  public BigInteger getBeta() {
+    return this.read(this.offset + Integer.BYTES + this.alphaLength + Integer.BYTES, this.betaLength);
+  }
+
+  /**
+   * @return The total number of bytes occupied by the encoded ciphertext, so that consecutive ciphertexts can be walked.
+   */
+  public int getLength() {
+    return Integer.BYTES + this.alphaLength + Integer.BYTES + this.betaLength;
+  }
+
+  /**
+   * Reads a positive big integer from the buffer without moving its position.
+   *
+   * @param position The absolute position of the first byte.
+   * @param length   The number of bytes.
+   * @return The big integer.
+   */
+  private BigInteger read(final int position, final int length) {
+    final byte[] magnitude = new byte[length];
+
+    if (this.buffer.hasArray()) {
+      System.arraycopy(this.buffer.array(), this.buffer.arrayOffset() + position, magnitude, 0, length);
+    }
+    else {
+      for (int i = 0; i < length; i++) {
+        magnitude[i] = this.buffer.get(position + i);
+      }
+    }
+
+    return new BigInteger(1, magnitude);
+  }
+
+  /**
+   * @return A {@link CipherText} holding the decoded alpha and beta components.
+   */
+  public CipherText toCipherText() {
+    return new CipherText(this.getAlpha(), this.getBeta());
+  }
+
+  /**
+   * Wraps the view around an encoded ciphertext.
+   *
+   * @param values The bytes encoded using {@link CipherText#toByteArray()}.
+   * @return This view.
+   * @throws CryptographyException if the bytes do not hold a complete ciphertext.
+   */
+  public CipherTextView wrap(final byte[] values) throws CryptographyException {
+    return this.wrap(ByteBuffer.wrap(values), 0);
+  }
+
+  /**
+   * Wraps the view around an encoded ciphertext starting at the specified absolute offset in a buffer. The buffer's position and limit are not changed.
+   *
+   * @param buffer The buffer holding the encoded ciphertext.
+   * @param offset The offset of the encoded ciphertext.
+   * @return This view.
+   * @throws CryptographyException if the buffer does not hold a complete ciphertext at the offset.
+   */
+  public CipherTextView wrap(final ByteBuffer buffer, final int offset) throws CryptographyException {
+    final int limit = buffer.limit();
+
+    if ((offset + Integer.BYTES) > limit) {
+      throw new CryptographyException("Missing alpha length");
+    }
+
+    final int alphaLength = buffer.getInt(offset);
+
+    if ((alphaLength < 0) || ((offset + Integer.BYTES + alphaLength) > limit)) {
+      throw new CryptographyException("Missing alpha");
+    }
+
+    final int betaLengthOffset = offset + Integer.BYTES + alphaLength;
+
+    if ((betaLengthOffset + Integer.BYTES) > limit) {
+      throw new CryptographyException("Missing beta length");
+    }
+
+    final int betaLength = buffer.getInt(betaLengthOffset);
+
+    if ((betaLength < 0) || ((betaLengthOffset + Integer.BYTES + betaLength) > limit)) {
+      throw new CryptographyException("Missing beta");
+    }
+
+    this.buffer = buffer;
+    this.offset = offset;
+    this.alphaLength = alphaLength;
+    this.betaLength = betaLength;
+
+    return this;
+  }
+}
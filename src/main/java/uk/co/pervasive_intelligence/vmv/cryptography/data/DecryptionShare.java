@@ -0,0 +1,113 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Encapsulates one teller's partial decryption of a list of ElGamal ciphertexts: a decryption factor alpha^share for each ciphertext, with Chaum-Pedersen proofs
+ * that each factor uses the same secret key share as the teller's public key share. The factors are proved in batches, with one proof per batch.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class DecryptionShare {
+
+  /** The number of ciphertexts covered by each proof. */
+  private int batchSize;
+
+  /** The decryption factors, one for each ciphertext. */
+  private List<BigInteger> factors;
+
+  /** The proofs, one for each batch of factors. */
+  private List<Proof> proofs;
+
+  /** The public key share of the teller. */
+  private BigInteger publicKeyShare;
+
+  /** The number of the teller which created the share, starting at 1. */
+  private int teller;
+
+  /**
+   * @return The number of ciphertexts covered by each proof.
+   */
+  public int getBatchSize() {
+    return this.batchSize;
+  }
+
+  /**
+   * Sets the number of ciphertexts covered by each proof.
+   *
+   * @param batchSize The number of ciphertexts covered by each proof.
+   */
+  public void setBatchSize(final int batchSize) {
+    this.batchSize = batchSize;
+  }
+
+  /**
+   * @return The decryption factors, one for each ciphertext.
+   */
+  public List<BigInteger> getFactors() {
+    return this.factors;
+  }
+
+  /**
+   * Sets the decryption factors.
+   *
+   * @param factors The decryption factors, one for each ciphertext.
+   */
+  public void setFactors(final List<BigInteger> factors) {
+    this.factors = factors;
+  }
+
+  /**
+   * @return The proofs, one for each batch of factors.
+   */
+  public List<Proof> getProofs() {
+    return this.proofs;
+  }
+
+  /**
+   * Sets the proofs.
+   *
+   * @param proofs The proofs, one for each batch of factors.
+   */
+  public void setProofs(final List<Proof> proofs) {
+    this.proofs = proofs;
+  }
+
+  /**
+   * @return The public key share of the teller.
+   */
+  public BigInteger getPublicKeyShare() {
+    return this.publicKeyShare;
+  }
+
+  /**
+   * Sets the public key share of the teller.
+   *
+   * @param publicKeyShare The public key share of the teller.
+   */
+  public void setPublicKeyShare(final BigInteger publicKeyShare) {
+    this.publicKeyShare = publicKeyShare;
+  }
+
+  /**
+   * @return The number of the teller which created the share, starting at 1.
+   */
+  public int getTeller() {
+    return this.teller;
+  }
+
+  /**
+   * Sets the number of the teller which created the share.
+   *
+   * @param teller The number of the teller which created the share, starting at 1.
+   */
+  public void setTeller(final int teller) {
+    this.teller = teller;
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+import java.util.Base64;
+
+/**
+ * Defines how group elements ({@link BigInteger} values) are encoded as text in CSV files. Decimal is the default. Hex and Base64 encode the big-endian two's
+ * complement bytes of the value, which avoids the quadratic cost of decimal conversion and produces smaller files. Any non-default encoding is recorded in the
+ * first line of the file using {@link #HEADER} so that the file can be read without knowing the encoding in advance.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public enum ElementEncoding {
+
+  /** Base64 encoding of the big-endian bytes. */
+  BASE64 {
+    @Override
+    public BigInteger decode(final String value) {
+      return new BigInteger(Base64.getDecoder().decode(value));
+    }
+
+    @Override
+    public String encode(final BigInteger value) {
+      return Base64.getEncoder().encodeToString(value.toByteArray());
+    }
+  },
+
+  /** Decimal encoding. */
+  DECIMAL {
+    @Override
+    public BigInteger decode(final String value) {
+      return new BigInteger(value);
+    }
+
+    @Override
+    public String encode(final BigInteger value) {
+      return value.toString();
+    }
+  },
+
+  /** Hexadecimal encoding of the big-endian bytes. */
+  HEX {
+    @Override
+    public BigInteger decode(final String value) {
+      if ((value.length() % 2) != 0) {
+        throw new NumberFormatException("Odd length hex value");
+      }
+
+      final byte[] bytes = new byte[value.length() / 2];
+
+      for (int i = 0; i < bytes.length; i++) {
+        final int high = Character.digit(value.charAt(2 * i), 16);
+        final int low = Character.digit(value.charAt((2 * i) + 1), 16);
+
+        if ((high < 0) || (low < 0)) {
+          throw new NumberFormatException("Invalid hex value");
+        }
+
+        bytes[i] = (byte) ((high << 4) | low);
+      }
+
+      return new BigInteger(bytes);
+    }
+
+    @Override
+    public String encode(final BigInteger value) {
+      final byte[] bytes = value.toByteArray();
+      final char[] chars = new char[bytes.length * 2];
+
+      for (int i = 0; i < bytes.length; i++) {
+        chars[2 * i] = HEX_DIGITS[(bytes[i] >> 4) & 0x0f];
+        chars[(2 * i) + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+      }
+
+      return new String(chars);
+    }
+  };
+
+  /** The prefix of the first line of a CSV file which records a non-default encoding. */
+  public static final String HEADER = "#elementEncoding=";
+
+  /** Hexadecimal digits. */
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  /**
+   * Decodes a value.
+   *
+   * @param value The encoded value.
+   * @return The decoded value.
+   * @throws IllegalArgumentException if the value cannot be decoded.
+   */
+  public abstract BigInteger decode(String value);
+
+  /**
+   * Encodes a value.
+   *
+   * @param value The value to encode.
+   * @return The encoded value.
+   */
+  public abstract String encode(BigInteger value);
+
+  /**
+   * Determines the encoding recorded in the first line of a CSV file.
+   *
+   * @param line The first line of the file. May be null.
+   * @return The recorded encoding, or {@link #DECIMAL} if none is recorded.
+   * @throws IllegalArgumentException if the recorded encoding is not known.
+   */
+  public static ElementEncoding fromHeader(final String line) {
+    if ((line == null) || !line.startsWith(HEADER)) {
+      return DECIMAL;
+    }
+
+    return valueOf(line.substring(HEADER.length()).trim());
+  }
+
+  /**
+   * @return The first line of a CSV file recording this encoding, or null if this is the default encoding and does not need to be recorded.
+   */
+  public String toHeader() {
+    return (this == DECIMAL) ? null : HEADER + this.name();
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+
+/**
+ * Encapsulates one teller's Shamir share of the election secret key together with the corresponding public key share, g^share.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class KeyShare {
+
+  /** The teller's share of the secret key. */
+  private BigInteger privateKeyShare;
+
+  /** The public key share corresponding to the secret key share. */
+  private BigInteger publicKeyShare;
+
+  /** The number of the teller holding the share, starting at 1. */
+  private int teller;
+
+  /**
+   * Default constructor used for de-serialisation.
+   */
+  public KeyShare() {
+    // Do nothing.
+  }
+
+  /**
+   * Constructor requiring all fields.
+   *
+   * @param teller          The number of the teller holding the share, starting at 1.
+   * @param privateKeyShare The teller's share of the secret key.
+   * @param publicKeyShare  The public key share corresponding to the secret key share.
+   */
+  public KeyShare(final int teller, final BigInteger privateKeyShare, final BigInteger publicKeyShare) {
+    this.teller = teller;
+    this.privateKeyShare = privateKeyShare;
+    this.publicKeyShare = publicKeyShare;
+  }
+
+  /**
+   * @return The teller's share of the secret key.
+   */
+  public BigInteger getPrivateKeyShare() {
+    return this.privateKeyShare;
+  }
+
+  /**
+   * Sets the teller's share of the secret key.
+   *
+   * @param privateKeyShare The teller's share of the secret key.
+   */
+  public void setPrivateKeyShare(final BigInteger privateKeyShare) {
+    this.privateKeyShare = privateKeyShare;
+  }
+
+  /**
+   * @return The public key share corresponding to the secret key share.
+   */
+  public BigInteger getPublicKeyShare() {
+    return this.publicKeyShare;
+  }
+
+  /**
+   * Sets the public key share corresponding to the secret key share.
+   *
+   * @param publicKeyShare The public key share corresponding to the secret key share.
+   */
+  public void setPublicKeyShare(final BigInteger publicKeyShare) {
+    this.publicKeyShare = publicKeyShare;
+  }
+
+  /**
+   * @return The number of the teller holding the share, starting at 1.
+   */
+  public int getTeller() {
+    return this.teller;
+  }
+
+  /**
+   * Sets the number of the teller holding the share.
+   *
+   * @param teller The number of the teller holding the share, starting at 1.
+   */
+  public void setTeller(final int teller) {
+    this.teller = teller;
+  }
+}
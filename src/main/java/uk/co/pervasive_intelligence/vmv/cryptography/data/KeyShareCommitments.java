@@ -0,0 +1,75 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Encapsulates one teller's published contribution to the dealerless generation of the election key: Feldman commitments g^a_k to each coefficient a_k of the
+ * teller's secret polynomial. The first commitment is the teller's contribution to the election public key, and together the commitments allow every other
+ * teller to check the key share deal it receives.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class KeyShareCommitments {
+
+  /** The commitments to the coefficients of the teller's polynomial, lowest degree first. */
+  private List<BigInteger> commitments;
+
+  /** The number of the teller which created the commitments, starting at 1. */
+  private int teller;
+
+  /**
+   * Default constructor used for de-serialisation.
+   */
+  public KeyShareCommitments() {
+    // Do nothing.
+  }
+
+  /**
+   * Constructor requiring all fields.
+   *
+   * @param teller      The number of the teller which created the commitments, starting at 1.
+   * @param commitments The commitments to the coefficients of the teller's polynomial, lowest degree first.
+   */
+  public KeyShareCommitments(final int teller, final List<BigInteger> commitments) {
+    this.teller = teller;
+    this.commitments = commitments;
+  }
+
+  /**
+   * @return The commitments to the coefficients of the teller's polynomial, lowest degree first.
+   */
+  public List<BigInteger> getCommitments() {
+    return this.commitments;
+  }
+
+  /**
+   * Sets the commitments to the coefficients of the teller's polynomial.
+   *
+   * @param commitments The commitments to the coefficients of the teller's polynomial, lowest degree first.
+   */
+  public void setCommitments(final List<BigInteger> commitments) {
+    this.commitments = commitments;
+  }
+
+  /**
+   * @return The number of the teller which created the commitments, starting at 1.
+   */
+  public int getTeller() {
+    return this.teller;
+  }
+
+  /**
+   * Sets the number of the teller which created the commitments.
+   *
+   * @param teller The number of the teller which created the commitments, starting at 1.
+   */
+  public void setTeller(final int teller) {
+    this.teller = teller;
+  }
+}
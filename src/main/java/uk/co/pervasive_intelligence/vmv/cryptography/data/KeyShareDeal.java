@@ -0,0 +1,95 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+
+/**
+ * Encapsulates the private share of one teller's secret polynomial which is dealt to another teller during the dealerless generation of the election key: the
+ * polynomial evaluated at the recipient's number. Each teller's key share is the sum of the deals it receives, so that no teller ever holds the election secret
+ * key. A deal must only be seen by the dealer and its recipient.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class KeyShareDeal {
+
+  /** The number of the teller which dealt the share, starting at 1. */
+  private int dealer;
+
+  /** The number of the teller to which the share is dealt, starting at 1. */
+  private int recipient;
+
+  /** The dealer's polynomial evaluated at the recipient's number. */
+  private BigInteger share;
+
+  /**
+   * Default constructor used for de-serialisation.
+   */
+  public KeyShareDeal() {
+    // Do nothing.
+  }
+
+  /**
+   * Constructor requiring all fields.
+   *
+   * @param dealer    The number of the teller which dealt the share, starting at 1.
+   * @param recipient The number of the teller to which the share is dealt, starting at 1.
+   * @param share     The dealer's polynomial evaluated at the recipient's number.
+   */
+  public KeyShareDeal(final int dealer, final int recipient, final BigInteger share) {
+    this.dealer = dealer;
+    this.recipient = recipient;
+    this.share = share;
+  }
+
+  /**
+   * @return The number of the teller which dealt the share, starting at 1.
+   */
+  public int getDealer() {
+    return this.dealer;
+  }
+
+  /**
+   * Sets the number of the teller which dealt the share.
+   *
+   * @param dealer The number of the teller which dealt the share, starting at 1.
+   */
+  public void setDealer(final int dealer) {
+    this.dealer = dealer;
+  }
+
+  /**
+   * @return The number of the teller to which the share is dealt, starting at 1.
+   */
+  public int getRecipient() {
+    return this.recipient;
+  }
+
+  /**
+   * Sets the number of the teller to which the share is dealt.
+   *
+   * @param recipient The number of the teller to which the share is dealt, starting at 1.
+   */
+  public void setRecipient(final int recipient) {
+    this.recipient = recipient;
+  }
+
+  /**
+   * @return The dealer's polynomial evaluated at the recipient's number.
+   */
+  public BigInteger getShare() {
+    return this.share;
+  }
+
+  /**
+   * Sets the dealer's polynomial evaluated at the recipient's number.
+   *
+   * @param share The dealer's polynomial evaluated at the recipient's number.
+   */
+  public void setShare(final BigInteger share) {
+    this.share = share;
+  }
+}
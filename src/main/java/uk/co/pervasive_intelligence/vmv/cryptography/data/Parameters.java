@@ -12,6 +12,18 @@ package uk.co.pervasive_intelligence.vmv.cryptography.data;
  */
 public interface Parameters {
 
+  /**
+   * @return The encoding used for group elements in CSV files written for the election.
+   */
+  ElementEncoding getElementEncoding();
+
+  /**
+   * Sets the encoding used for group elements in CSV files written for the election.
+   *
+   * @param elementEncoding The encoding used for group elements.
+   */
+  void setElementEncoding(ElementEncoding elementEncoding);
+
   /**
    * @return The name of the election.
    */
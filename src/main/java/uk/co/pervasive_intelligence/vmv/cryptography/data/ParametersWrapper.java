@@ -21,6 +21,10 @@ public abstract class ParametersWrapper implements Parameters {
   @JsonIgnore
   private final Object parameters;
 
+  /** The encoding used for group elements in CSV files written for the election. */
+  @NotNull
+  private ElementEncoding elementEncoding = ElementEncoding.DECIMAL;
+
   /** The name of the election. */
   @NotNull
   private String name;
@@ -42,6 +46,24 @@ public abstract class ParametersWrapper implements Parameters {
     this.parameters = parameters;
   }
 
+  /**
+   * @return The encoding used for group elements in CSV files written for the election.
+   */
+  @Override
+  public ElementEncoding getElementEncoding() {
+    return this.elementEncoding;
+  }
+
+  /**
+   * Sets the encoding used for group elements in CSV files written for the election.
+   *
+   * @param elementEncoding The encoding used for group elements.
+   */
+  @Override
+  public void setElementEncoding(final ElementEncoding elementEncoding) {
+    this.elementEncoding = elementEncoding;
+  }
+
   /**
    * @return The name of the election.
    */
@@ -0,0 +1,99 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * The election's own published values against which proofs of shuffle, mixing or decryption are verified. A proof is only verified if the group, public key,
+ * protocol information and ciphertexts it was created for are the same as these, so that a proof cannot be verified against values of its own choosing.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ProofStatement {
+
+  /** The election parameters. */
+  private final Parameters parameters;
+
+  /** The Verificatum protocol information of the election's tellers. May be null if there are no tellers. */
+  private final File protocolInformation;
+
+  /** The election public key. */
+  private final BigInteger publicKey;
+
+  /** The published shuffled encrypted tracker numbers. May be null if not published. */
+  private final List<CipherText> shuffledTrackerNumbers;
+
+  /** The published encrypted tracker numbers before they were shuffled. May be null if not published. */
+  private final List<CipherText> trackerNumbers;
+
+  /** The published encrypted tracker numbers and votes which were mixed, one block per voter. May be null if not published. */
+  private final List<CipherText> votes;
+
+  /**
+   * Constructor allowing all fields to be set.
+   *
+   * @param parameters             The election parameters.
+   * @param publicKey              The election public key.
+   * @param protocolInformation    The Verificatum protocol information of the election's tellers. May be null if there are no tellers.
+   * @param trackerNumbers         The published encrypted tracker numbers before they were shuffled. May be null if not published.
+   * @param shuffledTrackerNumbers The published shuffled encrypted tracker numbers. May be null if not published.
+   * @param votes                  The published encrypted tracker numbers and votes which were mixed, one block per voter. May be null if not published.
+   */
+  public ProofStatement(final Parameters parameters, final BigInteger publicKey, final File protocolInformation, final List<CipherText> trackerNumbers,
+                        final List<CipherText> shuffledTrackerNumbers, final List<CipherText> votes) {
+    this.parameters = parameters;
+    this.publicKey = publicKey;
+    this.protocolInformation = protocolInformation;
+    this.trackerNumbers = trackerNumbers;
+    this.shuffledTrackerNumbers = shuffledTrackerNumbers;
+    this.votes = votes;
+  }
+
+  /**
+   * @return The election parameters.
+   */
+  public Parameters getParameters() {
+    return this.parameters;
+  }
+
+  /**
+   * @return The Verificatum protocol information of the election's tellers. May be null if there are no tellers.
+   */
+  public File getProtocolInformation() {
+    return this.protocolInformation;
+  }
+
+  /**
+   * @return The election public key.
+   */
+  public BigInteger getPublicKey() {
+    return this.publicKey;
+  }
+
+  /**
+   * @return The published shuffled encrypted tracker numbers. May be null if not published.
+   */
+  public List<CipherText> getShuffledTrackerNumbers() {
+    return this.shuffledTrackerNumbers;
+  }
+
+  /**
+   * @return The published encrypted tracker numbers before they were shuffled. May be null if not published.
+   */
+  public List<CipherText> getTrackerNumbers() {
+    return this.trackerNumbers;
+  }
+
+  /**
+   * @return The published encrypted tracker numbers and votes which were mixed, one block per voter. May be null if not published.
+   */
+  public List<CipherText> getVotes() {
+    return this.votes;
+  }
+}
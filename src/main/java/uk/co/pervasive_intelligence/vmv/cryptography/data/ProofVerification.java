@@ -0,0 +1,116 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * The outcome of verifying a published proof, such as a Verificatum proof of shuffle, mixing or decryption.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@JsonPropertyOrder({"proof", "type", "auxsid", "width", "verified", "duration", "error"})
+public class ProofVerification {
+
+  /** The session identifier of the proof. */
+  private String auxsid;
+
+  /** The time taken to verify the proof in milliseconds. */
+  private long duration;
+
+  /** The reason why the proof could not be verified. Null if verified. */
+  private String error;
+
+  /** The proof file. */
+  private String proof;
+
+  /** The type of proof, e.g. "shuffling", "mixing" or "decryption". */
+  private String type;
+
+  /** True if the proof was verified. */
+  private boolean verified;
+
+  /** The number of ciphertexts operated on as a block. */
+  private int width;
+
+  /**
+   * Default constructor used for de-serialisation.
+   */
+  private ProofVerification() {
+    // Do nothing.
+  }
+
+  /**
+   * Constructor allowing all fields to be set.
+   *
+   * @param proof    The proof file.
+   * @param type     The type of proof, e.g. "shuffling", "mixing" or "decryption".
+   * @param auxsid   The session identifier of the proof.
+   * @param width    The number of ciphertexts operated on as a block.
+   * @param verified True if the proof was verified.
+   * @param duration The time taken to verify the proof in milliseconds.
+   * @param error    The reason why the proof could not be verified. Null if verified.
+   */
+  public ProofVerification(final String proof, final String type, final String auxsid, final int width, final boolean verified, final long duration,
+                           final String error) {
+    this.proof = proof;
+    this.type = type;
+    this.auxsid = auxsid;
+    this.width = width;
+    this.verified = verified;
+    this.duration = duration;
+    this.error = error;
+  }
+
+  /**
+   * @return The session identifier of the proof.
+   */
+  public String getAuxsid() {
+    return this.auxsid;
+  }
+
+  /**
+   * @return The time taken to verify the proof in milliseconds.
+   */
+  public long getDuration() {
+    return this.duration;
+  }
+
+  /**
+   * @return The reason why the proof could not be verified. Null if verified.
+   */
+  public String getError() {
+    return this.error;
+  }
+
+  /**
+   * @return The proof file.
+   */
+  public String getProof() {
+    return this.proof;
+  }
+
+  /**
+   * @return The type of proof, e.g. "shuffling", "mixing" or "decryption".
+   */
+  public String getType() {
+    return this.type;
+  }
+
+  /**
+   * @return The number of ciphertexts operated on as a block.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * @return True if the proof was verified.
+   */
+  public boolean isVerified() {
+    return this.verified;
+  }
+}
@@ -8,7 +8,7 @@ package uk.co.pervasive_intelligence.vmv.cryptography.data;
 import java.io.File;
 
 /**
- * Wraps an object with the corresponding proof file.
+ * Wraps an object with the corresponding proof file. The proof file may be a directory of proof files, which is packaged into a single file when it is published.
  *
  * @author Matthew Casey, Pervasive Intelligence Ltd
  */
@@ -39,7 +39,7 @@ public class ProofWrapper<T> {
   }
 
   /**
-   * @return The proof file.
+   * @return The proof file or directory.
    */
   public File getProofFile() {
     return this.proofFile;
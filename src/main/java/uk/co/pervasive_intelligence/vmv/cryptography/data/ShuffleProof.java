@@ -0,0 +1,424 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * Encapsulates a non-interactive zero-knowledge proof of a re-encryption shuffle of ElGamal ciphertexts, in the style of Terelius and Wikstr&ouml;m. The proof
+ * includes the group, public key, input and output ciphertexts so that it can be verified on its own.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ShuffleProof {
+
+  /** The commitment chain, one for each row, which proves that the permutation commitments commit to a permutation. */
+  private List<BigInteger> chainCommitments;
+
+  /** The group generator. */
+  private BigInteger g;
+
+  /** The commitments for the commitment chain, one for each row. */
+  private List<BigInteger> hatCommitments;
+
+  /** The responses for the randomness of the commitment chain, one for each row. */
+  private List<BigInteger> hatResponses;
+
+  /** The ciphertexts input to the shuffle. */
+  private List<CipherText> input;
+
+  /** The re-encrypted and permuted ciphertexts output from the shuffle. */
+  private List<CipherText> output;
+
+  /** The group modulus. */
+  private BigInteger p;
+
+  /** The commitments to the permutation, one for each row. */
+  private List<BigInteger> permutationCommitments;
+
+  /** The responses for the permuted challenges, one for each row. */
+  private List<BigInteger> primeResponses;
+
+  /** The public key under which the ciphertexts are encrypted. */
+  private BigInteger publicKey;
+
+  /** The group order. */
+  private BigInteger q;
+
+  /** The response for the randomness of the permutation commitments. */
+  private BigInteger s1;
+
+  /** The response for the randomness of the last commitment in the chain. */
+  private BigInteger s2;
+
+  /** The response for the randomness of the permutation commitments weighted by the challenges. */
+  private BigInteger s3;
+
+  /** The responses for the re-encryption randomness weighted by the challenges, one for each ciphertext in a row. */
+  private List<BigInteger> s4;
+
+  /** The commitment for the randomness of the permutation commitments. */
+  private BigInteger t1;
+
+  /** The commitment for the randomness of the last commitment in the chain. */
+  private BigInteger t2;
+
+  /** The commitment for the randomness of the permutation commitments weighted by the challenges. */
+  private BigInteger t3;
+
+  /** The commitments for the re-encryption of the alpha components, one for each ciphertext in a row. */
+  private List<BigInteger> t4Alpha;
+
+  /** The commitments for the re-encryption of the beta components, one for each ciphertext in a row. */
+  private List<BigInteger> t4Beta;
+
+  /** The number of ciphertexts in each row which are permuted together. */
+  private int width;
+
+  /**
+   * Default constructor used for de-serialisation.
+   */
+  public ShuffleProof() {
+    // Do nothing.
+  }
+
+  /**
+   * @return The commitment chain, one for each row, which proves that the permutation commitments commit to a permutation.
+   */
+  public List<BigInteger> getChainCommitments() {
+    return this.chainCommitments;
+  }
+
+  /**
+   * Sets the commitment chain, one for each row, which proves that the permutation commitments commit to a permutation.
+   *
+   * @param chainCommitments The commitment chain, one for each row, which proves that the permutation commitments commit to a permutation.
+   */
+  public void setChainCommitments(final List<BigInteger> chainCommitments) {
+    this.chainCommitments = chainCommitments;
+  }
+
+  /**
+   * @return The group generator.
+   */
+  public BigInteger getG() {
+    return this.g;
+  }
+
+  /**
+   * Sets the group generator.
+   *
+   * @param g The group generator.
+   */
+  public void setG(final BigInteger g) {
+    this.g = g;
+  }
+
+  /**
+   * @return The commitments for the commitment chain, one for each row.
+   */
+  public List<BigInteger> getHatCommitments() {
+    return this.hatCommitments;
+  }
+
+  /**
+   * Sets the commitments for the commitment chain, one for each row.
+   *
+   * @param hatCommitments The commitments for the commitment chain, one for each row.
+   */
+  public void setHatCommitments(final List<BigInteger> hatCommitments) {
+    this.hatCommitments = hatCommitments;
+  }
+
+  /**
+   * @return The responses for the randomness of the commitment chain, one for each row.
+   */
+  public List<BigInteger> getHatResponses() {
+    return this.hatResponses;
+  }
+
+  /**
+   * Sets the responses for the randomness of the commitment chain, one for each row.
+   *
+   * @param hatResponses The responses for the randomness of the commitment chain, one for each row.
+   */
+  public void setHatResponses(final List<BigInteger> hatResponses) {
+    this.hatResponses = hatResponses;
+  }
+
+  /**
+   * @return The ciphertexts input to the shuffle.
+   */
+  public List<CipherText> getInput() {
+    return this.input;
+  }
+
+  /**
+   * Sets the ciphertexts input to the shuffle.
+   *
+   * @param input The ciphertexts input to the shuffle.
+   */
+  public void setInput(final List<CipherText> input) {
+    this.input = input;
+  }
+
+  /**
+   * @return The re-encrypted and permuted ciphertexts output from the shuffle.
+   */
+  public List<CipherText> getOutput() {
+    return this.output;
+  }
+
+  /**
+   * Sets the re-encrypted and permuted ciphertexts output from the shuffle.
+   *
+   * @param output The re-encrypted and permuted ciphertexts output from the shuffle.
+   */
+  public void setOutput(final List<CipherText> output) {
+    this.output = output;
+  }
+
+  /**
+   * @return The group modulus.
+   */
+  public BigInteger getP() {
+    return this.p;
+  }
+
+  /**
+   * Sets the group modulus.
+   *
+   * @param p The group modulus.
+   */
+  public void setP(final BigInteger p) {
+    this.p = p;
+  }
+
+  /**
+   * @return The commitments to the permutation, one for each row.
+   */
+  public List<BigInteger> getPermutationCommitments() {
+    return this.permutationCommitments;
+  }
+
+  /**
+   * Sets the commitments to the permutation, one for each row.
+   *
+   * @param permutationCommitments The commitments to the permutation, one for each row.
+   */
+  public void setPermutationCommitments(final List<BigInteger> permutationCommitments) {
+    this.permutationCommitments = permutationCommitments;
+  }
+
+  /**
+   * @return The responses for the permuted challenges, one for each row.
+   */
+  public List<BigInteger> getPrimeResponses() {
+    return this.primeResponses;
+  }
+
+  /**
+   * Sets the responses for the permuted challenges, one for each row.
+   *
+   * @param primeResponses The responses for the permuted challenges, one for each row.
+   */
+  public void setPrimeResponses(final List<BigInteger> primeResponses) {
+    this.primeResponses = primeResponses;
+  }
+
+  /**
+   * @return The public key under which the ciphertexts are encrypted.
+   */
+  public BigInteger getPublicKey() {
+    return this.publicKey;
+  }
+
+  /**
+   * Sets the public key under which the ciphertexts are encrypted.
+   *
+   * @param publicKey The public key under which the ciphertexts are encrypted.
+   */
+  public void setPublicKey(final BigInteger publicKey) {
+    this.publicKey = publicKey;
+  }
+
+  /**
+   * @return The group order.
+   */
+  public BigInteger getQ() {
+    return this.q;
+  }
+
+  /**
+   * Sets the group order.
+   *
+   * @param q The group order.
+   */
+  public void setQ(final BigInteger q) {
+    this.q = q;
+  }
+
+  /**
+   * @return The response for the randomness of the permutation commitments.
+   */
+  public BigInteger getS1() {
+    return this.s1;
+  }
+
+  /**
+   * Sets the response for the randomness of the permutation commitments.
+   *
+   * @param s1 The response for the randomness of the permutation commitments.
+   */
+  public void setS1(final BigInteger s1) {
+    this.s1 = s1;
+  }
+
+  /**
+   * @return The response for the randomness of the last commitment in the chain.
+   */
+  public BigInteger getS2() {
+    return this.s2;
+  }
+
+  /**
+   * Sets the response for the randomness of the last commitment in the chain.
+   *
+   * @param s2 The response for the randomness of the last commitment in the chain.
+   */
+  public void setS2(final BigInteger s2) {
+    this.s2 = s2;
+  }
+
+  /**
+   * @return The response for the randomness of the permutation commitments weighted by the challenges.
+   */
+  public BigInteger getS3() {
+    return this.s3;
+  }
+
+  /**
+   * Sets the response for the randomness of the permutation commitments weighted by the challenges.
+   *
+   * @param s3 The response for the randomness of the permutation commitments weighted by the challenges.
+   */
+  public void setS3(final BigInteger s3) {
+    this.s3 = s3;
+  }
+
+  /**
+   * @return The responses for the re-encryption randomness weighted by the challenges, one for each ciphertext in a row.
+   */
+  public List<BigInteger> getS4() {
+    return this.s4;
+  }
+
+  /**
+   * Sets the responses for the re-encryption randomness weighted by the challenges, one for each ciphertext in a row.
+   *
+   * @param s4 The responses for the re-encryption randomness weighted by the challenges, one for each ciphertext in a row.
+   */
+  public void setS4(final List<BigInteger> s4) {
+    this.s4 = s4;
+  }
+
+  /**
+   * @return The commitment for the randomness of the permutation commitments.
+   */
+  public BigInteger getT1() {
+    return this.t1;
+  }
+
+  /**
+   * Sets the commitment for the randomness of the permutation commitments.
+   *
+   * @param t1 The commitment for the randomness of the permutation commitments.
+   */
+  public void setT1(final BigInteger t1) {
+    this.t1 = t1;
+  }
+
+  /**
+   * @return The commitment for the randomness of the last commitment in the chain.
+   */
+  public BigInteger getT2() {
+    return this.t2;
+  }
+
+  /**
+   * Sets the commitment for the randomness of the last commitment in the chain.
+   *
+   * @param t2 The commitment for the randomness of the last commitment in the chain.
+   */
+  public void setT2(final BigInteger t2) {
+    this.t2 = t2;
+  }
+
+  /**
+   * @return The commitment for the randomness of the permutation commitments weighted by the challenges.
+   */
+  public BigInteger getT3() {
+    return this.t3;
+  }
+
+  /**
+   * Sets the commitment for the randomness of the permutation commitments weighted by the challenges.
+   *
+   * @param t3 The commitment for the randomness of the permutation commitments weighted by the challenges.
+   */
+  public void setT3(final BigInteger t3) {
+    this.t3 = t3;
+  }
+
+  /**
+   * @return The commitments for the re-encryption of the alpha components, one for each ciphertext in a row.
+   */
+  public List<BigInteger> getT4Alpha() {
+    return this.t4Alpha;
+  }
+
+  /**
+   * Sets the commitments for the re-encryption of the alpha components, one for each ciphertext in a row.
+   *
+   * @param t4Alpha The commitments for the re-encryption of the alpha components, one for each ciphertext in a row.
+   */
+  public void setT4Alpha(final List<BigInteger> t4Alpha) {
+    this.t4Alpha = t4Alpha;
+  }
+
+  /**
+   * @return The commitments for the re-encryption of the beta components, one for each ciphertext in a row.
+   */
+  public List<BigInteger> getT4Beta() {
+    return this.t4Beta;
+  }
+
+  /**
+   * Sets the commitments for the re-encryption of the beta components, one for each ciphertext in a row.
+   *
+   * @param t4Beta The commitments for the re-encryption of the beta components, one for each ciphertext in a row.
+   */
+  public void setT4Beta(final List<BigInteger> t4Beta) {
+    this.t4Beta = t4Beta;
+  }
+
+  /**
+   * @return The number of ciphertexts in each row which are permuted together.
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Sets the number of ciphertexts in each row which are permuted together.
+   *
+   * @param width The number of ciphertexts in each row which are permuted together.
+   */
+  public void setWidth(final int width) {
+    this.width = width;
+  }
+}
@@ -0,0 +1,767 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import uk.co.pervasive_intelligence.vmv.cryptography.AlgorithmHelper;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * Compact, columnar {@link List} of {@link Voter} records for very large electorates. Each voter field is held in its own column: group elements are stored as
+ * fixed-width big-endian magnitudes, byte arrays in an append-only arena and other values in primitive arrays. All columns are allocated in chunks of rows so that
+ * no single array has to hold the whole electorate and unused columns cost nothing.
+ * <p>
+ * {@link #get(int)} returns a lightweight view over a row: its getters decode the row's columns on access and its setters write straight back into the columns.
+ * Only appending is supported and the store is not thread safe for concurrent writes, although concurrent reads are safe.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VoterStore extends AbstractList<Voter> implements RandomAccess {
+
+  /** The number of rows held in each column chunk, as a power of two. */
+  private static final int CHUNK_SHIFT = 12;
+
+  /** The number of rows held in each column chunk. */
+  private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+  /** Mask used to find a row within a column chunk. */
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** The voter's tracker number commitment alpha. */
+  private final ElementColumn alpha;
+
+  /** The voter's tracker number commitment beta. */
+  private final ElementColumn beta;
+
+  /** The width in bytes of each group element. */
+  private final int elementWidth;
+
+  /** The encrypted tracker number as a member of the group. */
+  private final BytesColumn encryptedTrackerNumberInGroup = new BytesColumn();
+
+  /** The voter's encrypted vote. */
+  private final BytesColumn encryptedVote = new BytesColumn();
+
+  /** The voter's encrypted vote signature. */
+  private final BytesColumn encryptedVoteSignature = new BytesColumn();
+
+  /** The voter's unique identifier. */
+  private final LongColumn id = new LongColumn();
+
+  /** The voter's plaintext vote. */
+  private final StringColumn plainTextVote = new StringColumn();
+
+  /** The voter's signature private key. */
+  private final ElementColumn signaturePrivateKey;
+
+  /** The voter's signature public key. */
+  private final ElementColumn signaturePublicKey;
+
+  /** Which voters have a signature key pair. */
+  private final BitSet signatureKeyPairPresent = new BitSet();
+
+  /** The tracker number. */
+  private final LongColumn trackerNumber = new LongColumn();
+
+  /** The plaintext tracker number as a member of the group. */
+  private final ElementColumn trackerNumberInGroup;
+
+  /** Which voters have a tracker number. */
+  private final BitSet trackerNumberPresent = new BitSet();
+
+  /** The voter's trapdoor private key. */
+  private final ElementColumn trapdoorPrivateKey;
+
+  /** The voter's trapdoor public key. */
+  private final ElementColumn trapdoorPublicKey;
+
+  /** Which voters have a trapdoor key pair. */
+  private final BitSet trapdoorKeyPairPresent = new BitSet();
+
+  /** Which voters have key pairs. */
+  private final BitSet voterKeyPairsPresent = new BitSet();
+
+  /** The number of voters in the store. */
+  private int size = 0;
+
+  /**
+   * Constructor allowing the element width to be defined.
+   *
+   * @param elementWidth The width in bytes of each group element.
+   */
+  public VoterStore(final int elementWidth) {
+    this.elementWidth = elementWidth;
+    this.alpha = new ElementColumn(elementWidth);
+    this.beta = new ElementColumn(elementWidth);
+    this.signaturePrivateKey = new ElementColumn(elementWidth);
+    this.signaturePublicKey = new ElementColumn(elementWidth);
+    this.trackerNumberInGroup = new ElementColumn(elementWidth);
+    this.trapdoorPrivateKey = new ElementColumn(elementWidth);
+    this.trapdoorPublicKey = new ElementColumn(elementWidth);
+  }
+
+  /**
+   * Creates a store whose element width matches the group defined by the election parameters.
+   *
+   * @param parameters The election parameters.
+   * @return The new, empty store.
+   */
+  public static VoterStore forParameters(final Parameters parameters) {
+    int bits = AlgorithmHelper.DEFAULT_LENGTH_L;
+
+    if ((parameters instanceof DHParametersWrapper) && (((DHParametersWrapper) parameters).getP() != null)) {
+      bits = ((DHParametersWrapper) parameters).getP().bitLength();
+    }
+
+    return new VoterStore((bits + 7) / 8);
+  }
+
+  /**
+   * Appends a voter to the end of the store by copying its fields into the columns.
+   *
+   * @param index The index at which to insert: must be the current size.
+   * @param voter The voter to add.
+   * @throws UnsupportedOperationException if the voter is not being appended.
+   */
+  @Override
+  public void add(final int index, final Voter voter) {
+    if (index != this.size) {
+      throw new UnsupportedOperationException("Voters can only be appended");
+    }
+
+    this.write(this.size, voter);
+    this.size++;
+    this.modCount++;
+  }
+
+  /**
+   * Checks that the row is within the store.
+   *
+   * @param row The row.
+   * @throws IndexOutOfBoundsException if the row is outside of the store.
+   */
+  private void checkRow(final int row) {
+    if ((row < 0) || (row >= this.size)) {
+      throw new IndexOutOfBoundsException("Index: " + row + ", Size: " + this.size);
+    }
+  }
+
+  /**
+   * Returns a view over a voter. The view reads from and writes to the store directly.
+   *
+   * @param index The index of the voter.
+   * @return The view of the voter.
+   */
+  @Override
+  public Voter get(final int index) {
+    this.checkRow(index);
+
+    return new VoterView(index);
+  }
+
+  /**
+   * @return The width in bytes of each group element.
+   */
+  public int getElementWidth() {
+    return this.elementWidth;
+  }
+
+  /**
+   * Replaces a voter by copying its fields into the columns.
+   *
+   * @param index The index of the voter.
+   * @param voter The replacement voter.
+   * @return A detached copy of the voter previously held.
+   */
+  @Override
+  public Voter set(final int index, final Voter voter) {
+    this.checkRow(index);
+
+    final Voter previous = this.toVoter(index);
+    this.write(index, voter);
+
+    return previous;
+  }
+
+  /**
+   * @return The number of voters in the store.
+   */
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Creates a detached copy of a voter, independent of the store.
+   *
+   * @param index The index of the voter.
+   * @return The detached voter.
+   */
+  public Voter toVoter(final int index) {
+    this.checkRow(index);
+
+    final Voter view = new VoterView(index);
+    final Voter voter = new Voter();
+    voter.setAlpha(view.getAlpha());
+    voter.setBeta(view.getBeta());
+    voter.setEncryptedVote(view.getEncryptedVote());
+    voter.setEncryptedVoteSignature(view.getEncryptedVoteSignature());
+    voter.setId(view.getId());
+    voter.setPlainTextVote(view.getPlainTextVote());
+    voter.setTrackerNumber(view.getTrackerNumber());
+    voter.setVoterKeyPairs(view.getVoterKeyPairs());
+
+    return voter;
+  }
+
+  /**
+   * Writes all of the fields of a voter into a row.
+   *
+   * @param row   The row.
+   * @param voter The voter. May be null, in which case all fields are cleared.
+   */
+  private void write(final int row, final Voter voter) {
+    final Voter source = (voter != null) ? voter : new Voter();
+
+    this.alpha.set(row, source.getAlpha());
+    this.beta.set(row, source.getBeta());
+    this.encryptedVote.set(row, source.getEncryptedVote());
+    this.encryptedVoteSignature.set(row, source.getEncryptedVoteSignature());
+    this.id.set(row, source.getId());
+    this.plainTextVote.set(row, source.getPlainTextVote());
+    this.writeTrackerNumber(row, source.getTrackerNumber());
+    this.writeVoterKeyPairs(row, source.getVoterKeyPairs());
+  }
+
+  /**
+   * Writes a key pair into a row.
+   *
+   * @param row        The row.
+   * @param keyPair    The key pair. May be null.
+   * @param present    Which rows have the key pair.
+   * @param privateKey The private key column.
+   * @param publicKey  The public key column.
+   */
+  private void writeKeyPair(final int row, final KeyPair keyPair, final BitSet present, final ElementColumn privateKey, final ElementColumn publicKey) {
+    present.set(row, keyPair != null);
+    privateKey.set(row, (keyPair != null) ? keyPair.getPrivateKey() : null);
+    publicKey.set(row, (keyPair != null) ? keyPair.getPublicKey() : null);
+  }
+
+  /**
+   * Writes a tracker number into a row.
+   *
+   * @param row           The row.
+   * @param trackerNumber The tracker number. May be null.
+   */
+  private void writeTrackerNumber(final int row, final TrackerNumber trackerNumber) {
+    this.trackerNumberPresent.set(row, trackerNumber != null);
+    this.trackerNumber.set(row, ((trackerNumber != null) && (trackerNumber.getTrackerNumber() != null)) ? Long.valueOf(trackerNumber.getTrackerNumber()) : null);
+    this.trackerNumberInGroup.set(row, (trackerNumber != null) ? trackerNumber.getTrackerNumberInGroup() : null);
+    this.encryptedTrackerNumberInGroup.set(row, (trackerNumber != null) ? trackerNumber.getEncryptedTrackerNumberInGroup() : null);
+  }
+
+  /**
+   * Writes voter key pairs into a row.
+   *
+   * @param row           The row.
+   * @param voterKeyPairs The voter key pairs. May be null.
+   */
+  private void writeVoterKeyPairs(final int row, final VoterKeyPairs voterKeyPairs) {
+    this.voterKeyPairsPresent.set(row, voterKeyPairs != null);
+    this.writeKeyPair(row, (voterKeyPairs != null) ? voterKeyPairs.getTrapdoorKeyPair() : null, this.trapdoorKeyPairPresent, this.trapdoorPrivateKey,
+        this.trapdoorPublicKey);
+    this.writeKeyPair(row, (voterKeyPairs != null) ? voterKeyPairs.getSignatureKeyPair() : null, this.signatureKeyPairPresent, this.signaturePrivateKey,
+        this.signaturePublicKey);
+  }
+
+  /**
+   * Column of variable length byte arrays held in an append-only arena of chunks. Replacing a value appends the new value and leaves the old bytes unused.
+   */
+  private static class BytesColumn {
+
+    /** The size of each arena chunk. */
+    private static final int ARENA_CHUNK_SIZE = 1 << 20;
+
+    /** The arena chunks. */
+    private final List<byte[]> arena = new ArrayList<>();
+
+    /** The length of each value plus one, so that zero represents null. */
+    private final List<int[]> lengths = new ArrayList<>();
+
+    /** The arena position of each value: the arena chunk in the high word and the offset in the low word. */
+    private final List<long[]> positions = new ArrayList<>();
+
+    /** The next free offset in the last arena chunk. */
+    private int free = 0;
+
+    /**
+     * Gets a value.
+     *
+     * @param row The row.
+     * @return The value, or null if there is no value.
+     */
+    byte[] get(final int row) {
+      final int chunk = row >>> CHUNK_SHIFT;
+
+      if (chunk >= this.lengths.size()) {
+        return null;
+      }
+
+      final int length = this.lengths.get(chunk)[row & CHUNK_MASK] - 1;
+
+      if (length < 0) {
+        return null;
+      }
+
+      final long position = this.positions.get(chunk)[row & CHUNK_MASK];
+      final byte[] value = new byte[length];
+      System.arraycopy(this.arena.get((int) (position >>> 32)), (int) position, value, 0, length);
+
+      return value;
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param row   The row.
+     * @param value The value. May be null.
+     */
+    void set(final int row, final byte[] value) {
+      final int chunk = row >>> CHUNK_SHIFT;
+
+      if ((value == null) && (chunk >= this.lengths.size())) {
+        return;
+      }
+
+      while (chunk >= this.lengths.size()) {
+        this.lengths.add(new int[CHUNK_SIZE]);
+        this.positions.add(new long[CHUNK_SIZE]);
+      }
+
+      if (value == null) {
+        this.lengths.get(chunk)[row & CHUNK_MASK] = 0;
+        return;
+      }
+
+      // Find space in the arena, giving over-sized values their own chunk.
+      if (this.arena.isEmpty() || ((this.free + value.length) > this.arena.get(this.arena.size() - 1).length)) {
+        this.arena.add(new byte[Math.max(ARENA_CHUNK_SIZE, value.length)]);
+        this.free = 0;
+      }
+
+      final int arenaChunk = this.arena.size() - 1;
+      System.arraycopy(value, 0, this.arena.get(arenaChunk), this.free, value.length);
+
+      this.positions.get(chunk)[row & CHUNK_MASK] = (((long) arenaChunk) << 32) | this.free;
+      this.lengths.get(chunk)[row & CHUNK_MASK] = value.length + 1;
+      this.free += value.length;
+    }
+  }
+
+  /**
+   * Column of non-negative group elements held as fixed-width big-endian magnitudes. The width is widened if an element does not fit, although this should not
+   * happen when the width matches the group.
+   */
+  private static class ElementColumn {
+
+    /** The chunks of elements. */
+    private final List<byte[]> chunks = new ArrayList<>();
+
+    /** Which rows have a value. */
+    private final BitSet present = new BitSet();
+
+    /** The width in bytes of each element. */
+    private int width;
+
+    /**
+     * Constructor allowing the width to be defined.
+     *
+     * @param width The initial width in bytes of each element.
+     */
+    ElementColumn(final int width) {
+      this.width = Math.max(1, width);
+    }
+
+    /**
+     * Gets a value.
+     *
+     * @param row The row.
+     * @return The value, or null if there is no value.
+     */
+    BigInteger get(final int row) {
+      if (!this.present.get(row)) {
+        return null;
+      }
+
+      final byte[] magnitude = new byte[this.width];
+      System.arraycopy(this.chunks.get(row >>> CHUNK_SHIFT), (row & CHUNK_MASK) * this.width, magnitude, 0, this.width);
+
+      return new BigInteger(1, magnitude);
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param row   The row.
+     * @param value The value. May be null.
+     * @throws IllegalArgumentException if the value is negative.
+     */
+    void set(final int row, final BigInteger value) {
+      if ((value != null) && (value.signum() < 0)) {
+        throw new IllegalArgumentException("Element must not be negative");
+      }
+
+      this.present.set(row, value != null);
+
+      if (value == null) {
+        return;
+      }
+
+      // Drop any sign byte.
+      final byte[] bytes = value.toByteArray();
+      final int start = (bytes[0] == 0) ? 1 : 0;
+      final int length = bytes.length - start;
+
+      if (length > this.width) {
+        this.widen(length);
+      }
+
+      final int chunk = row >>> CHUNK_SHIFT;
+
+      while (chunk >= this.chunks.size()) {
+        this.chunks.add(null);
+      }
+
+      if (this.chunks.get(chunk) == null) {
+        this.chunks.set(chunk, new byte[CHUNK_SIZE * this.width]);
+      }
+
+      // Right align the magnitude, zero filling to the left.
+      final int offset = (row & CHUNK_MASK) * this.width;
+      final byte[] target = this.chunks.get(chunk);
+
+      Arrays.fill(target, offset, offset + this.width - length, (byte) 0);
+      System.arraycopy(bytes, start, target, offset + this.width - length, length);
+    }
+
+    /**
+     * Widens the column, re-aligning all existing elements.
+     *
+     * @param width The new width in bytes of each element.
+     */
+    private void widen(final int width) {
+      final int padding = width - this.width;
+
+      for (int i = 0; i < this.chunks.size(); i++) {
+        final byte[] chunk = this.chunks.get(i);
+
+        if (chunk != null) {
+          final byte[] widened = new byte[CHUNK_SIZE * width];
+
+          for (int j = 0; j < CHUNK_SIZE; j++) {
+            System.arraycopy(chunk, j * this.width, widened, (j * width) + padding, this.width);
+          }
+
+          this.chunks.set(i, widened);
+        }
+      }
+
+      this.width = width;
+    }
+  }
+
+  /**
+   * Column of optional long values.
+   */
+  private static class LongColumn {
+
+    /** The chunks of values. */
+    private final List<long[]> chunks = new ArrayList<>();
+
+    /** Which rows have a value. */
+    private final BitSet present = new BitSet();
+
+    /**
+     * Gets a value.
+     *
+     * @param row The row.
+     * @return The value, or null if there is no value.
+     */
+    Long get(final int row) {
+      return this.present.get(row) ? this.chunks.get(row >>> CHUNK_SHIFT)[row & CHUNK_MASK] : null;
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param row   The row.
+     * @param value The value. May be null.
+     */
+    void set(final int row, final Long value) {
+      this.present.set(row, value != null);
+
+      if (value != null) {
+        final int chunk = row >>> CHUNK_SHIFT;
+
+        while (chunk >= this.chunks.size()) {
+          this.chunks.add(new long[CHUNK_SIZE]);
+        }
+
+        this.chunks.get(chunk)[row & CHUNK_MASK] = value;
+      }
+    }
+  }
+
+  /**
+   * Column of optional strings held as codes into a dictionary of distinct values, such as vote options.
+   */
+  private static class StringColumn {
+
+    /** The code of each value plus one, so that zero represents null. */
+    private final List<int[]> chunks = new ArrayList<>();
+
+    /** Map from value to code. */
+    private final Map<String, Integer> codes = new HashMap<>();
+
+    /** The distinct values, indexed by code. */
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Gets a value.
+     *
+     * @param row The row.
+     * @return The value, or null if there is no value.
+     */
+    String get(final int row) {
+      final int chunk = row >>> CHUNK_SHIFT;
+
+      if (chunk >= this.chunks.size()) {
+        return null;
+      }
+
+      final int code = this.chunks.get(chunk)[row & CHUNK_MASK] - 1;
+
+      return (code < 0) ? null : this.values.get(code);
+    }
+
+    /**
+     * Sets a value.
+     *
+     * @param row   The row.
+     * @param value The value. May be null.
+     */
+    void set(final int row, final String value) {
+      final int chunk = row >>> CHUNK_SHIFT;
+
+      if ((value == null) && (chunk >= this.chunks.size())) {
+        return;
+      }
+
+      while (chunk >= this.chunks.size()) {
+        this.chunks.add(new int[CHUNK_SIZE]);
+      }
+
+      int code = 0;
+
+      if (value != null) {
+        Integer existing = this.codes.get(value);
+
+        if (existing == null) {
+          existing = this.values.size();
+          this.values.add(value);
+          this.codes.put(value, existing);
+        }
+
+        code = existing + 1;
+      }
+
+      this.chunks.get(chunk)[row & CHUNK_MASK] = code;
+    }
+  }
+
+  /**
+   * Lightweight view over a single row of the store. Getters decode the row's columns on access and setters write straight back to the store. Serialised as a
+   * {@link Voter}.
+   */
+  @JsonSerialize(as = Voter.class)
+  private class VoterView extends Voter {
+
+    /** The row in the store. */
+    private final int row;
+
+    /**
+     * Constructor allowing the row to be defined.
+     *
+     * @param row The row in the store.
+     */
+    private VoterView(final int row) {
+      this.row = row;
+    }
+
+    /**
+     * @return The voter's tracker number commitment alpha.
+     */
+    @Override
+    public BigInteger getAlpha() {
+      return VoterStore.this.alpha.get(this.row);
+    }
+
+    /**
+     * Sets the voter's tracker number commitment alpha.
+     *
+     * @param alpha The voter's tracker number commitment alpha.
+     */
+    @Override
+    public void setAlpha(final BigInteger alpha) {
+      VoterStore.this.alpha.set(this.row, alpha);
+    }
+
+    /**
+     * @return The voter's tracker number commitment beta.
+     */
+    @Override
+    public BigInteger getBeta() {
+      return VoterStore.this.beta.get(this.row);
+    }
+
+    /**
+     * Sets the voter's tracker number commitment beta.
+     *
+     * @param beta The voter's tracker number commitment beta.
+     */
+    @Override
+    public void setBeta(final BigInteger beta) {
+      VoterStore.this.beta.set(this.row, beta);
+    }
+
+    /**
+     * @return The voter's encrypted vote.
+     */
+    @Override
+    public byte[] getEncryptedVote() {
+      return VoterStore.this.encryptedVote.get(this.row);
+    }
+
+    /**
+     * Sets the voter's encrypted vote.
+     *
+     * @param encryptedVote The voter's encrypted vote.
+     */
+    @Override
+    public void setEncryptedVote(final byte[] encryptedVote) {
+      VoterStore.this.encryptedVote.set(this.row, encryptedVote);
+    }
+
+    /**
+     * @return The voter's encrypted vote signature.
+     */
+    @Override
+    public byte[] getEncryptedVoteSignature() {
+      return VoterStore.this.encryptedVoteSignature.get(this.row);
+    }
+
+    /**
+     * Sets the voter's encrypted vote signature.
+     *
+     * @param encryptedVoteSignature The voter's encrypted vote signature.
+     */
+    @Override
+    public void setEncryptedVoteSignature(final byte[] encryptedVoteSignature) {
+      VoterStore.this.encryptedVoteSignature.set(this.row, encryptedVoteSignature);
+    }
+
+    /**
+     * @return The voter's unique identifier.
+     */
+    @Override
+    public Long getId() {
+      return VoterStore.this.id.get(this.row);
+    }
+
+    /**
+     * Sets the voter's unique identifier.
+     *
+     * @param id The voter's unique identifier.
+     */
+    @Override
+    public void setId(final Long id) {
+      VoterStore.this.id.set(this.row, id);
+    }
+
+    /**
+     * @return The voter's plaintext vote.
+     */
+    @Override
+    public String getPlainTextVote() {
+      return VoterStore.this.plainTextVote.get(this.row);
+    }
+
+    /**
+     * Sets the voter's plaintext vote.
+     *
+     * @param plainTextVote The voter's plaintext vote.
+     */
+    @Override
+    public void setPlainTextVote(final String plainTextVote) {
+      VoterStore.this.plainTextVote.set(this.row, plainTextVote);
+    }
+
+    /**
+     * @return The voter's encrypted tracker number.
+     */
+    @Override
+    public TrackerNumber getTrackerNumber() {
+      if (!VoterStore.this.trackerNumberPresent.get(this.row)) {
+        return null;
+      }
+
+      final Long trackerNumber = VoterStore.this.trackerNumber.get(this.row);
+
+      return new TrackerNumber((trackerNumber != null) ? trackerNumber.intValue() : null, VoterStore.this.trackerNumberInGroup.get(this.row),
+          VoterStore.this.encryptedTrackerNumberInGroup.get(this.row));
+    }
+
+    /**
+     * Sets the voter's encrypted tracker number.
+     *
+     * @param trackerNumber The voter's encrypted tracker number.
+     */
+    @Override
+    public void setTrackerNumber(final TrackerNumber trackerNumber) {
+      VoterStore.this.writeTrackerNumber(this.row, trackerNumber);
+    }
+
+    /**
+     * @return The voter's key pairs.
+     */
+    @Override
+    public VoterKeyPairs getVoterKeyPairs() {
+      if (!VoterStore.this.voterKeyPairsPresent.get(this.row)) {
+        return null;
+      }
+
+      final KeyPair trapdoorKeyPair = VoterStore.this.trapdoorKeyPairPresent.get(this.row) ?
+          new KeyPair(VoterStore.this.trapdoorPrivateKey.get(this.row), VoterStore.this.trapdoorPublicKey.get(this.row)) : null;
+      final KeyPair signatureKeyPair = VoterStore.this.signatureKeyPairPresent.get(this.row) ?
+          new KeyPair(VoterStore.this.signaturePrivateKey.get(this.row), VoterStore.this.signaturePublicKey.get(this.row)) : null;
+
+      return new VoterKeyPairs(trapdoorKeyPair, signatureKeyPair);
+    }
+
+    /**
+     * Sets the voter's key pairs.
+     *
+     * @param voterKeyPairs The voter's key pairs.
+     */
+    @Override
+    public void setVoterKeyPairs(final VoterKeyPairs voterKeyPairs) {
+      VoterStore.this.writeVoterKeyPairs(this.row, voterKeyPairs);
+    }
+  }
+}
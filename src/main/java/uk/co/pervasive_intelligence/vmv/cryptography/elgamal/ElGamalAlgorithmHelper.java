@@ -114,6 +114,33 @@ public class ElGamalAlgorithmHelper extends BaseHelper implements AlgorithmHelpe
       throw new CryptographyException("Missing private key");
     }
 
+    try {
+      return this.decrypt(parameters, keyPair, new CipherText(data));
+    }
+    catch (final CryptographyException e) {
+      throw e;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not ElGamal decrypt", e);
+    }
+  }
+
+  /**
+   * Decrypts an already decoded ciphertext using the parameters and key pair. This avoids encoding and then decoding a ciphertext that is already held as its
+   * alpha and beta components.
+   *
+   * @param parameters The created algorithm parameters.
+   * @param keyPair    The created algorithm key pair for the parameters.
+   * @param cipherText The ciphertext.
+   * @return The decrypted plaintext.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  public byte[] decrypt(final Parameters parameters, final KeyPair keyPair, final CipherText cipherText) throws CryptographyException {
+    // Make sure we have a private key.
+    if (keyPair.getPrivateKey() == null) {
+      throw new CryptographyException("Missing private key");
+    }
+
     try {
       LOG.debug("ElGamal decrypt");
 
@@ -121,7 +148,6 @@ public class ElGamalAlgorithmHelper extends BaseHelper implements AlgorithmHelpe
       // calculation manually.
       final DHParametersWrapper dhParametersWrapper = (DHParametersWrapper) parameters;
       final BigInteger p = dhParametersWrapper.getP();
-      final CipherText cipherText = new CipherText(data);
 
       // Use the shortcut defined in Bouncy Castle.
       final BigInteger numberInGroup =
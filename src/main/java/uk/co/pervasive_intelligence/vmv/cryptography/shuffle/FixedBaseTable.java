@@ -0,0 +1,153 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.shuffle;
+
+import java.math.BigInteger;
+import java.util.stream.IntStream;
+
+/**
+ * Fixed-base exponentiation table. When the same base is raised to many different exponents, the powers base^(d * 2^(w * i)) for every window digit d and window
+ * position i are precomputed once, after which each exponentiation is reduced to one multiplication per window of the exponent rather than a full square and
+ * multiply. The table is read-only once built and so may be shared between threads.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class FixedBaseTable {
+
+  /** The number of exponentiations above which a table with the wide window is built. */
+  static final int LARGE_USES = 256;
+
+  /** The number of exponentiations below which a table is not worth building. */
+  static final int MINIMUM_USES = 16;
+
+  /** The window width in bits used when there are few exponentiations. */
+  static final int NARROW_WINDOW = 4;
+
+  /** The window width in bits used when there are many exponentiations. */
+  static final int WIDE_WINDOW = 8;
+
+  /** The base. */
+  private final BigInteger base;
+
+  /** The maximum bit length of the exponents covered by the table. */
+  private final int exponentBitLength;
+
+  /** The modulus. */
+  private final BigInteger modulus;
+
+  /** The precomputed powers, by window position and then digit. Null if no table is built. */
+  private final BigInteger[][] table;
+
+  /** The window width in bits. */
+  private final int window;
+
+  /**
+   * Constructor which builds the table, if it is worth building for the expected number of exponentiations.
+   *
+   * @param base              The base.
+   * @param modulus           The modulus.
+   * @param exponentBitLength The maximum bit length of the exponents, typically the bit length of the group order.
+   * @param uses              The expected number of exponentiations.
+   */
+  public FixedBaseTable(final BigInteger base, final BigInteger modulus, final int exponentBitLength, final int uses) {
+    this.base = base.mod(modulus);
+    this.modulus = modulus;
+    this.exponentBitLength = exponentBitLength;
+
+    if (uses < MINIMUM_USES) {
+      this.window = 0;
+      this.table = null;
+    }
+    else {
+      this.window = (uses < LARGE_USES) ? NARROW_WINDOW : WIDE_WINDOW;
+
+      // The base for each window position is the previous base squared window times.
+      final int positions = (exponentBitLength + this.window - 1) / this.window;
+      final BigInteger[] positionBases = new BigInteger[positions];
+      positionBases[0] = this.base;
+
+      for (int i = 1; i < positions; i++) {
+        BigInteger value = positionBases[i - 1];
+
+        for (int j = 0; j < this.window; j++) {
+          value = value.multiply(value).mod(modulus);
+        }
+
+        positionBases[i] = value;
+      }
+
+      // Each window position is independent.
+      this.table = new BigInteger[positions][];
+      final int digits = 1 << this.window;
+
+      IntStream.range(0, positions).parallel().forEach(i -> {
+        final BigInteger[] powers = new BigInteger[digits];
+        powers[0] = BigInteger.ONE;
+
+        for (int d = 1; d < digits; d++) {
+          powers[d] = powers[d - 1].multiply(positionBases[i]).mod(modulus);
+        }
+
+        this.table[i] = powers;
+      });
+    }
+  }
+
+  /**
+   * Extracts a window digit from the big-endian two's complement bytes of a non-negative number.
+   *
+   * @param bytes    The bytes of the number.
+   * @param position The position of the least significant bit of the digit.
+   * @param width    The width of the digit in bits.
+   * @return The digit.
+   */
+  private static int digit(final byte[] bytes, final int position, final int width) {
+    int value = 0;
+
+    for (int b = 0; b < width; b++) {
+      final int bit = position + b;
+      final int index = bytes.length - 1 - (bit / Byte.SIZE);
+
+      if ((index >= 0) && (((bytes[index] >> (bit % Byte.SIZE)) & 1) != 0)) {
+        value |= 1 << b;
+      }
+    }
+
+    return value;
+  }
+
+  /**
+   * @return True if a table has been built, false if exponentiations are calculated directly.
+   */
+  public boolean isTabulated() {
+    return this.table != null;
+  }
+
+  /**
+   * Raises the base to the exponent. Exponents which are negative or longer than the table are calculated directly.
+   *
+   * @param exponent The exponent.
+   * @return base^exponent mod modulus.
+   */
+  public BigInteger pow(final BigInteger exponent) {
+    if ((this.table == null) || (exponent.signum() < 0) || (exponent.bitLength() > this.exponentBitLength)) {
+      return this.base.modPow(exponent, this.modulus);
+    }
+
+    final byte[] bytes = exponent.toByteArray();
+    BigInteger result = BigInteger.ONE;
+
+    for (int i = 0; i < this.table.length; i++) {
+      final int digit = digit(bytes, i * this.window, this.window);
+
+      if (digit != 0) {
+        result = result.multiply(this.table[i][digit]).mod(this.modulus);
+      }
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,531 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.shuffle;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.cryptography.AlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.BaseHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ShuffleProof;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Verifiable re-encryption shuffle of ElGamal ciphertexts, used in place of Verificatum when an election has no tellers. The ciphertexts are permuted in rows of
+ * a fixed width and re-encrypted, and a non-interactive zero-knowledge proof of the shuffle is generated in the style of Terelius and Wikstr&ouml;m (as
+ * described by Haenni, Locher, Koenig and Dubuis). The proof commits to the permutation using independent generators, proves that the commitment is to a
+ * permutation using a chain of commitments, and proves that the output is a re-encryption of the input permuted in the same way.
+ * <p>
+ * The repeated exponentiations of the generator, public key and first independent generator use {@link FixedBaseTable}s and all per-row work is spread over the
+ * available processors.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ShuffleAlgorithmHelper extends BaseHelper {
+
+  /** The bit length of the digest used to derive the independent generators. */
+  private static final int GENERATOR_DIGEST_LENGTH = 512;
+
+  /** The number of extra bits derived for each independent generator so that reduction modulo p is unbiased. */
+  private static final int GENERATOR_EXTRA_BITS = 128;
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ShuffleAlgorithmHelper.class);
+
+  /**
+   * Checks that a value is an element of the subgroup of order q.
+   *
+   * @param value The value to check.
+   * @param p     The group modulus.
+   * @param q     The group order.
+   * @return True if the value is an element of the subgroup.
+   */
+  private static boolean isElement(final BigInteger value, final BigInteger p, final BigInteger q) {
+    return (value != null) && (value.signum() > 0) && (value.compareTo(p) < 0) && value.modPow(q, p).equals(BigInteger.ONE);
+  }
+
+  /**
+   * Checks that a value is an exponent modulo q.
+   *
+   * @param value The value to check.
+   * @param q     The group order.
+   * @return True if the value is an exponent.
+   */
+  private static boolean isExponent(final BigInteger value, final BigInteger q) {
+    return (value != null) && (value.signum() >= 0) && (value.compareTo(q) < 0);
+  }
+
+  /**
+   * Calculates each of the values in parallel.
+   *
+   * @param n     The number of values.
+   * @param value Calculates the value at an index.
+   * @return The values.
+   */
+  private static BigInteger[] parallel(final int n, final IntFunction<BigInteger> value) {
+    final BigInteger[] values = new BigInteger[n];
+    IntStream.range(0, n).parallel().forEach(i -> values[i] = value.apply(i));
+
+    return values;
+  }
+
+  /**
+   * Calculates the product of the terms modulo p in parallel.
+   *
+   * @param n    The number of terms.
+   * @param term Calculates the term at an index.
+   * @param p    The group modulus.
+   * @return The product of the terms.
+   */
+  private static BigInteger product(final int n, final IntFunction<BigInteger> term, final BigInteger p) {
+    return IntStream.range(0, n).parallel().mapToObj(term).reduce(BigInteger.ONE, (a, b) -> a.multiply(b).mod(p));
+  }
+
+  /**
+   * Calculates the sum of the terms modulo q.
+   *
+   * @param n    The number of terms.
+   * @param term Calculates the term at an index.
+   * @param q    The group order.
+   * @return The sum of the terms.
+   */
+  private static BigInteger sum(final int n, final IntFunction<BigInteger> term, final BigInteger q) {
+    return IntStream.range(0, n).mapToObj(term).reduce(BigInteger.ZERO, BigInteger::add).mod(q);
+  }
+
+  /**
+   * Hashes the seed, commitment chain and the proof commitments to form the challenge.
+   *
+   * @param seed  The hash of the statement and permutation commitments.
+   * @param q     The group order.
+   * @param proof The proof including its commitments.
+   * @return The challenge.
+   */
+  private BigInteger challenge(final BigInteger seed, final BigInteger q, final ShuffleProof proof) {
+    final List<BigInteger> values = new ArrayList<>();
+    values.add(seed);
+    values.addAll(proof.getChainCommitments());
+    values.addAll(Arrays.asList(proof.getT1(), proof.getT2(), proof.getT3()));
+    values.addAll(proof.getT4Alpha());
+    values.addAll(proof.getT4Beta());
+    values.addAll(proof.getHatCommitments());
+
+    return this.hash(q.bitLength(), values.toArray(new BigInteger[0])).mod(q);
+  }
+
+  /**
+   * Derives the challenges for each row from the statement and permutation commitments.
+   *
+   * @param seed The hash of the statement and permutation commitments.
+   * @param q    The group order.
+   * @param n    The number of rows.
+   * @return The challenges.
+   */
+  private BigInteger[] challenges(final BigInteger seed, final BigInteger q, final int n) {
+    return parallel(n, i -> this.hash(q.bitLength(), seed, BigInteger.valueOf(i)).mod(q));
+  }
+
+  /**
+   * Checks that the ciphertexts form whole rows of the width.
+   *
+   * @param width       The number of ciphertexts in each row.
+   * @param cipherTexts The ciphertexts.
+   * @throws CryptographyException if the ciphertexts do not form whole rows.
+   */
+  private void checkWidth(final int width, final List<CipherText> cipherTexts) throws CryptographyException {
+    if ((width < 1) || cipherTexts.isEmpty() || ((cipherTexts.size() % width) != 0)) {
+      throw new CryptographyException("Cannot shuffle " + cipherTexts.size() + " ciphertexts with width " + width);
+    }
+  }
+
+  /**
+   * Derives independent generators of the subgroup of order q from the group parameters, such that nobody knows the discrete logarithm of one with respect to
+   * another. Each generator is a hash of the parameters and its index raised to the cofactor.
+   *
+   * @param p The group modulus.
+   * @param q The group order.
+   * @param g The group generator.
+   * @param n The number of generators.
+   * @return The generators.
+   */
+  private BigInteger[] generators(final BigInteger p, final BigInteger q, final BigInteger g, final int n) {
+    final BigInteger seed = this.hash(GENERATOR_DIGEST_LENGTH, p, q, g);
+    final BigInteger cofactor = p.subtract(BigInteger.ONE).divide(q);
+    final int blocks = (p.bitLength() + GENERATOR_EXTRA_BITS + GENERATOR_DIGEST_LENGTH - 1) / GENERATOR_DIGEST_LENGTH;
+
+    return parallel(n, i -> {
+      BigInteger generator = BigInteger.ONE;
+
+      for (int counter = 0; generator.equals(BigInteger.ONE); counter++) {
+        BigInteger value = BigInteger.ZERO;
+
+        for (int block = 0; block < blocks; block++) {
+          value = value.shiftLeft(GENERATOR_DIGEST_LENGTH)
+              .or(this.hash(GENERATOR_DIGEST_LENGTH, seed, BigInteger.valueOf(i), BigInteger.valueOf(counter), BigInteger.valueOf(block)));
+        }
+
+        generator = value.mod(p).modPow(cofactor, p);
+      }
+
+      return generator;
+    });
+  }
+
+  /**
+   * Generates random exponents.
+   *
+   * @param random Source of randomness.
+   * @param q      The group order.
+   * @param n      The number of exponents.
+   * @return The random exponents in the range 1 to q-1.
+   */
+  private BigInteger[] randoms(final SecureRandom random, final BigInteger q, final int n) {
+    final BigInteger[] values = new BigInteger[n];
+
+    for (int i = 0; i < n; i++) {
+      values[i] = this.generateRandom(random, q);
+    }
+
+    return values;
+  }
+
+  /**
+   * Hashes the statement and the permutation commitments, from which the challenges for each row are derived.
+   *
+   * @param p                      The group modulus.
+   * @param q                      The group order.
+   * @param g                      The group generator.
+   * @param publicKey              The public key under which the ciphertexts are encrypted.
+   * @param width                  The number of ciphertexts in each row.
+   * @param input                  The ciphertexts which were shuffled.
+   * @param output                 The shuffled ciphertexts.
+   * @param permutationCommitments The commitments to the permutation.
+   * @return The hash.
+   */
+  private BigInteger seed(final BigInteger p, final BigInteger q, final BigInteger g, final BigInteger publicKey, final int width, final List<CipherText> input,
+                          final List<CipherText> output, final List<BigInteger> permutationCommitments) {
+    final List<BigInteger> values = new ArrayList<>(5 + (2 * input.size()) + (2 * output.size()) + permutationCommitments.size());
+    values.addAll(Arrays.asList(p, q, g, publicKey, BigInteger.valueOf(width)));
+
+    for (final CipherText cipherText : input) {
+      values.add(cipherText.getAlpha());
+      values.add(cipherText.getBeta());
+    }
+
+    for (final CipherText cipherText : output) {
+      values.add(cipherText.getAlpha());
+      values.add(cipherText.getBeta());
+    }
+
+    values.addAll(permutationCommitments);
+
+    return this.hash(q.bitLength(), values.toArray(new BigInteger[0]));
+  }
+
+  /**
+   * Shuffles the ciphertexts by permuting their rows and re-encrypting each ciphertext, and generates a proof of the shuffle.
+   *
+   * @param random      Source of randomness.
+   * @param parameters  The election parameters.
+   * @param publicKey   The public key under which the ciphertexts are encrypted.
+   * @param width       The number of ciphertexts in each row which are permuted together.
+   * @param cipherTexts The ciphertexts to shuffle, row by row.
+   * @return The proof, including the shuffled ciphertexts as its output.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  public ShuffleProof shuffle(final SecureRandom random, final Parameters parameters, final BigInteger publicKey, final int width,
+                              final List<CipherText> cipherTexts) throws CryptographyException {
+    this.checkWidth(width, cipherTexts);
+
+    try {
+      LOG.debug("Shuffle {} ciphertexts with width {}", cipherTexts.size(), width);
+
+      final DHParametersWrapper dhParametersWrapper = (DHParametersWrapper) parameters;
+      final BigInteger p = dhParametersWrapper.getP();
+      final BigInteger q = dhParametersWrapper.getQ();
+      final BigInteger g = dhParametersWrapper.getG();
+      final int n = cipherTexts.size() / width;
+
+      final FixedBaseTable gTable = new FixedBaseTable(g, p, q.bitLength(), n * (width + 3));
+      final FixedBaseTable publicKeyTable = new FixedBaseTable(publicKey, p, q.bitLength(), n * width);
+      final BigInteger[] h = this.generators(p, q, g, n + 1);
+      final FixedBaseTable hTable = new FixedBaseTable(h[0], p, q.bitLength(), 2 * n);
+
+      // Choose the permutation psi, such that output row i is input row psi(i).
+      final int[] psi = IntStream.range(0, n).toArray();
+
+      for (int i = n - 1; i > 0; i--) {
+        final int j = random.nextInt(i + 1);
+        final int swap = psi[i];
+        psi[i] = psi[j];
+        psi[j] = swap;
+      }
+
+      // Re-encrypt each permuted ciphertext: alpha' = alpha * g^r', beta' = beta * pk^r'.
+      final BigInteger[][] reEncryptions = new BigInteger[n][];
+
+      for (int i = 0; i < n; i++) {
+        reEncryptions[i] = this.randoms(random, q, width);
+      }
+
+      final CipherText[] output = new CipherText[cipherTexts.size()];
+
+      IntStream.range(0, n).parallel().forEach(i -> {
+        for (int k = 0; k < width; k++) {
+          final CipherText cipherText = cipherTexts.get((psi[i] * width) + k);
+          final BigInteger r = reEncryptions[i][k];
+          output[(i * width) + k] = new CipherText(cipherText.getAlpha().multiply(gTable.pow(r)).mod(p),
+              cipherText.getBeta().multiply(publicKeyTable.pow(r)).mod(p));
+        }
+      });
+
+      final ShuffleProof proof = new ShuffleProof();
+      proof.setP(p);
+      proof.setQ(q);
+      proof.setG(g);
+      proof.setPublicKey(publicKey);
+      proof.setWidth(width);
+      proof.setInput(new ArrayList<>(cipherTexts));
+      proof.setOutput(Arrays.asList(output));
+
+      // Commit to the permutation: c_psi(i) = g^r_psi(i) * h_i.
+      final BigInteger[] r = this.randoms(random, q, n);
+      final BigInteger[] c = new BigInteger[n];
+      IntStream.range(0, n).parallel().forEach(i -> c[psi[i]] = gTable.pow(r[psi[i]]).multiply(h[i + 1]).mod(p));
+      proof.setPermutationCommitments(Arrays.asList(c));
+
+      // Derive the challenges u_j and permute them: u'_i = u_psi(i).
+      final BigInteger seed = this.seed(p, q, g, publicKey, width, cipherTexts, proof.getOutput(), proof.getPermutationCommitments());
+      final BigInteger[] u = this.challenges(seed, q, n);
+      final BigInteger[] uDash = parallel(n, i -> u[psi[i]]);
+
+      // Build the commitment chain c^_i = g^r^_i * c^_(i-1)^u'_i with c^_0 = h, expressed as c^_i = g^R_i * h^U_i so that every link uses the fixed bases.
+      final BigInteger[] rHat = this.randoms(random, q, n);
+      final BigInteger[] chainR = new BigInteger[n + 1];
+      final BigInteger[] chainU = new BigInteger[n + 1];
+      chainR[0] = BigInteger.ZERO;
+      chainU[0] = BigInteger.ONE;
+
+      for (int i = 0; i < n; i++) {
+        chainR[i + 1] = rHat[i].add(uDash[i].multiply(chainR[i])).mod(q);
+        chainU[i + 1] = chainU[i].multiply(uDash[i]).mod(q);
+      }
+
+      proof.setChainCommitments(Arrays.asList(parallel(n, i -> gTable.pow(chainR[i + 1]).multiply(hTable.pow(chainU[i + 1])).mod(p))));
+
+      // Commitments of the proof.
+      final BigInteger omega1 = this.generateRandom(random, q);
+      final BigInteger omega2 = this.generateRandom(random, q);
+      final BigInteger omega3 = this.generateRandom(random, q);
+      final BigInteger[] omega4 = this.randoms(random, q, width);
+      final BigInteger[] omegaHat = this.randoms(random, q, n);
+      final BigInteger[] omegaDash = this.randoms(random, q, n);
+
+      // t1 = g^w1, t2 = g^w2, t3 = g^w3 * prod(h_i^w'_i).
+      proof.setT1(gTable.pow(omega1));
+      proof.setT2(gTable.pow(omega2));
+      proof.setT3(gTable.pow(omega3).multiply(product(n, i -> h[i + 1].modPow(omegaDash[i], p), p)).mod(p));
+
+      // t4 = (g^-w4 * prod(alpha'_i^w'_i), pk^-w4 * prod(beta'_i^w'_i)) for each ciphertext in a row.
+      final List<BigInteger> t4Alpha = new ArrayList<>();
+      final List<BigInteger> t4Beta = new ArrayList<>();
+
+      for (int k = 0; k < width; k++) {
+        final int column = k;
+        final BigInteger negated = q.subtract(omega4[k]);
+        t4Alpha.add(gTable.pow(negated).multiply(product(n, i -> output[(i * width) + column].getAlpha().modPow(omegaDash[i], p), p)).mod(p));
+        t4Beta.add(publicKeyTable.pow(negated).multiply(product(n, i -> output[(i * width) + column].getBeta().modPow(omegaDash[i], p), p)).mod(p));
+      }
+
+      proof.setT4Alpha(t4Alpha);
+      proof.setT4Beta(t4Beta);
+
+      // t^_i = g^w^_i * c^_(i-1)^w'_i = g^(w^_i + w'_i * R_(i-1)) * h^(w'_i * U_(i-1)).
+      proof.setHatCommitments(Arrays.asList(parallel(n, i -> gTable.pow(omegaHat[i].add(omegaDash[i].multiply(chainR[i])).mod(q))
+          .multiply(hTable.pow(omegaDash[i].multiply(chainU[i]).mod(q))).mod(p))));
+
+      // Challenge.
+      final BigInteger challenge = this.challenge(seed, q, proof);
+
+      // v_n = 1, v_(i-1) = u'_i * v_i.
+      final BigInteger[] v = new BigInteger[n];
+      v[n - 1] = BigInteger.ONE;
+
+      for (int i = n - 1; i > 0; i--) {
+        v[i - 1] = uDash[i].multiply(v[i]).mod(q);
+      }
+
+      // Responses s = w - c * secret.
+      final BigInteger rBar = sum(n, i -> r[i], q);
+      final BigInteger rHatSum = sum(n, i -> rHat[i].multiply(v[i]), q);
+      final BigInteger rTilde = sum(n, i -> r[i].multiply(u[i]), q);
+
+      proof.setS1(omega1.subtract(challenge.multiply(rBar)).mod(q));
+      proof.setS2(omega2.subtract(challenge.multiply(rHatSum)).mod(q));
+      proof.setS3(omega3.subtract(challenge.multiply(rTilde)).mod(q));
+
+      final List<BigInteger> s4 = new ArrayList<>();
+
+      for (int k = 0; k < width; k++) {
+        final int column = k;
+        final BigInteger rDash = sum(n, i -> reEncryptions[i][column].multiply(uDash[i]), q);
+        s4.add(omega4[k].subtract(challenge.multiply(rDash)).mod(q));
+      }
+
+      proof.setS4(s4);
+      proof.setHatResponses(Arrays.asList(parallel(n, i -> omegaHat[i].subtract(challenge.multiply(rHat[i])).mod(q))));
+      proof.setPrimeResponses(Arrays.asList(parallel(n, i -> omegaDash[i].subtract(challenge.multiply(uDash[i])).mod(q))));
+
+      return proof;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not shuffle ciphertexts", e);
+    }
+  }
+
+  /**
+   * Verifies a proof of shuffle against the election's own statement. The proof is rejected if the group, public key, input or output it was created for
+   * differ from the election's, and only the election's values are used to verify it.
+   *
+   * @param parameters The election parameters.
+   * @param publicKey  The election public key.
+   * @param input      The published ciphertexts which were shuffled, row by row.
+   * @param output     The published shuffled ciphertexts, row by row. May be null if the shuffled ciphertexts are not published, in which case those in the proof
+   *                   are used.
+   * @param proof      The proof to verify.
+   * @return True if the proof is verified, false otherwise.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  public boolean verify(final Parameters parameters, final BigInteger publicKey, final List<CipherText> input, final List<CipherText> output,
+                        final ShuffleProof proof) throws CryptographyException {
+    if (proof == null) {
+      throw new CryptographyException("Missing proof");
+    }
+    if ((parameters == null) || (publicKey == null) || (input == null)) {
+      throw new CryptographyException("Missing election parameters, public key or shuffle input");
+    }
+
+    try {
+      final DHParametersWrapper dhParametersWrapper = (DHParametersWrapper) parameters;
+      final BigInteger p = dhParametersWrapper.getP();
+      final BigInteger q = dhParametersWrapper.getQ();
+      final BigInteger g = dhParametersWrapper.getG();
+      final int width = proof.getWidth();
+
+      // The election's group must be a subgroup of prime order q of the integers modulo the prime p, with g a generator of it.
+      if (!p.isProbablePrime(AlgorithmHelper.DEFAULT_PRIME_CERTAINTY) || !q.isProbablePrime(AlgorithmHelper.DEFAULT_PRIME_CERTAINTY) ||
+          (p.subtract(BigInteger.ONE).mod(q).signum() != 0) || g.equals(BigInteger.ONE) || !isElement(g, p, q)) {
+        LOG.debug("Election parameters are not a prime order subgroup");
+        return false;
+      }
+
+      // The proof must be for the election's own statement.
+      if (!p.equals(proof.getP()) || !q.equals(proof.getQ()) || !g.equals(proof.getG()) || !publicKey.equals(proof.getPublicKey()) ||
+          !input.equals(proof.getInput()) || ((output != null) && !output.equals(proof.getOutput())) || (proof.getOutput() == null)) {
+        LOG.debug("Shuffle proof is not for the election's parameters, public key or ciphertexts");
+        return false;
+      }
+
+      this.checkWidth(width, input);
+
+      LOG.debug("Verify shuffle of {} ciphertexts with width {}", input.size(), width);
+
+      final int n = input.size() / width;
+      final List<CipherText> shuffled = (output != null) ? output : proof.getOutput();
+
+      // Check the shape of the proof.
+      if ((shuffled.size() != input.size()) || (proof.getPermutationCommitments().size() != n) || (proof.getChainCommitments().size() != n) ||
+          (proof.getHatCommitments().size() != n) || (proof.getHatResponses().size() != n) || (proof.getPrimeResponses().size() != n) ||
+          (proof.getT4Alpha().size() != width) || (proof.getT4Beta().size() != width) || (proof.getS4().size() != width)) {
+        return false;
+      }
+
+      // Check that each element is in the group and that each response is an exponent.
+      final List<BigInteger> elements = new ArrayList<>(Arrays.asList(publicKey, proof.getT1(), proof.getT2(), proof.getT3()));
+      elements.addAll(proof.getPermutationCommitments());
+      elements.addAll(proof.getChainCommitments());
+      elements.addAll(proof.getHatCommitments());
+      elements.addAll(proof.getT4Alpha());
+      elements.addAll(proof.getT4Beta());
+
+      for (final CipherText cipherText : shuffled) {
+        elements.add(cipherText.getAlpha());
+        elements.add(cipherText.getBeta());
+      }
+
+      final List<BigInteger> exponents = new ArrayList<>(Arrays.asList(proof.getS1(), proof.getS2(), proof.getS3()));
+      exponents.addAll(proof.getS4());
+      exponents.addAll(proof.getHatResponses());
+      exponents.addAll(proof.getPrimeResponses());
+
+      if (!elements.parallelStream().allMatch(element -> isElement(element, p, q)) || !exponents.stream().allMatch(exponent -> isExponent(exponent, q))) {
+        return false;
+      }
+
+      final FixedBaseTable gTable = new FixedBaseTable(g, p, q.bitLength(), n + width + 3);
+      final BigInteger[] h = this.generators(p, q, g, n + 1);
+      final List<BigInteger> c = proof.getPermutationCommitments();
+      final List<BigInteger> cHat = proof.getChainCommitments();
+      final List<BigInteger> sHat = proof.getHatResponses();
+      final List<BigInteger> sDash = proof.getPrimeResponses();
+
+      // Recalculate the challenges.
+      final BigInteger seed = this.seed(p, q, g, publicKey, width, input, shuffled, proof.getPermutationCommitments());
+      final BigInteger[] u = this.challenges(seed, q, n);
+      final BigInteger challenge = this.challenge(seed, q, proof);
+
+      // c- = prod(c_j) / prod(h_i): t1 =? c-^c * g^s1.
+      final BigInteger cBar = product(n, c::get, p).multiply(product(n, i -> h[i + 1], p).modInverse(p)).mod(p);
+      boolean result = proof.getT1().equals(cBar.modPow(challenge, p).multiply(gTable.pow(proof.getS1())).mod(p));
+
+      // c^ = c^_n / h^prod(u_j): t2 =? c^^c * g^s2.
+      final BigInteger uProduct = IntStream.range(0, n).mapToObj(i -> u[i]).reduce(BigInteger.ONE, (a, b) -> a.multiply(b).mod(q));
+      final BigInteger cHatLast = cHat.get(n - 1).multiply(h[0].modPow(q.subtract(uProduct), p)).mod(p);
+      result &= proof.getT2().equals(cHatLast.modPow(challenge, p).multiply(gTable.pow(proof.getS2())).mod(p));
+
+      // c~ = prod(c_j^u_j): t3 =? c~^c * g^s3 * prod(h_i^s'_i).
+      final BigInteger cTilde = product(n, i -> c.get(i).modPow(u[i], p), p);
+      result &= proof.getT3().equals(cTilde.modPow(challenge, p).multiply(gTable.pow(proof.getS3())).multiply(product(n, i -> h[i + 1].modPow(sDash.get(i), p), p))
+          .mod(p));
+
+      // a~ = prod(alpha_j^u_j), b~ = prod(beta_j^u_j): t4 =? (a~^c * g^-s4 * prod(alpha'_i^s'_i), b~^c * pk^-s4 * prod(beta'_i^s'_i)).
+      for (int k = 0; (k < width) && result; k++) {
+        final int column = k;
+        final BigInteger negated = q.subtract(proof.getS4().get(k));
+        final BigInteger aTilde = product(n, i -> input.get((i * width) + column).getAlpha().modPow(u[i], p), p);
+        final BigInteger bTilde = product(n, i -> input.get((i * width) + column).getBeta().modPow(u[i], p), p);
+
+        result &= proof.getT4Alpha().get(k).equals(aTilde.modPow(challenge, p).multiply(gTable.pow(negated))
+            .multiply(product(n, i -> shuffled.get((i * width) + column).getAlpha().modPow(sDash.get(i), p), p)).mod(p));
+        result &= proof.getT4Beta().get(k).equals(bTilde.modPow(challenge, p).multiply(publicKey.modPow(negated, p))
+            .multiply(product(n, i -> shuffled.get((i * width) + column).getBeta().modPow(sDash.get(i), p), p)).mod(p));
+      }
+
+      // t^_i =? c^_i^c * g^s^_i * c^_(i-1)^s'_i.
+      result &= IntStream.range(0, n).parallel().allMatch(i -> {
+        final BigInteger previous = (i == 0) ? h[0] : cHat.get(i - 1);
+        final BigInteger expected = cHat.get(i).modPow(challenge, p).multiply(gTable.pow(sHat.get(i))).multiply(previous.modPow(sDash.get(i), p)).mod(p);
+
+        return proof.getHatCommitments().get(i).equals(expected);
+      });
+
+      return result;
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not verify shuffle", e);
+    }
+  }
+}
@@ -0,0 +1,508 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.threshold;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.cryptography.BaseHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Threshold decryption of ElGamal ciphertexts where the election secret key is split into Shamir shares held by the tellers. The shares are generated without a
+ * dealer in the style of Pedersen: each teller deals a share of its own random polynomial to every teller together with Feldman commitments to the polynomial,
+ * and each teller's key share is the sum of the deals it receives, so that the election secret key, the sum of the polynomials' constant terms, is never held by
+ * anyone. Each teller computes a decryption
+ * factor alpha^share for every ciphertext and proves with {@link ChaumPedersenAlgorithmHelper} that the factors use the same share as its public key share.
+ * Rather than one proof per ciphertext, the factors are proved in batches: each batch is reduced to a single pair of values by a random linear combination with
+ * small exponents derived from a hash of the batch, so that one proof covers the whole batch and verification costs one short exponentiation per factor.
+ * <p>
+ * A combiner verifies the shares of a threshold number of tellers, checks that their public key shares interpolate to the election public key and then merges
+ * the factors using Lagrange coefficients to obtain the plaintexts. All per-ciphertext work is spread over the available processors.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ThresholdDecryptionAlgorithmHelper extends BaseHelper {
+
+  /** The number of ciphertexts covered by each proof. */
+  static final int BATCH_SIZE = 1024;
+
+  /** The maximum bit length of the exponents used to combine each batch. */
+  static final int BATCH_EXPONENT_BITS = 128;
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ThresholdDecryptionAlgorithmHelper.class);
+
+  /** Chaum-Pedersen algorithm helper used to prove each batch. */
+  private final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper;
+
+  /**
+   * Constructor requiring the helper used to prove each batch.
+   *
+   * @param chaumPedersenAlgorithmHelper Chaum-Pedersen algorithm helper.
+   */
+  public ThresholdDecryptionAlgorithmHelper(final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper) {
+    this.chaumPedersenAlgorithmHelper = chaumPedersenAlgorithmHelper;
+  }
+
+  /**
+   * Checks that the parameters are suitable for ElGamal over a prime order group.
+   *
+   * @param parameters The election parameters.
+   * @return The parameters.
+   * @throws CryptographyException if the parameters are of the wrong class.
+   */
+  private static DHParametersWrapper checkDHParameters(final Parameters parameters) throws CryptographyException {
+    if (!(parameters instanceof DHParametersWrapper)) {
+      throw new CryptographyException("Could not perform threshold decryption: wrong class " + parameters.getClass().getName());
+    }
+
+    return (DHParametersWrapper) parameters;
+  }
+
+  /**
+   * Checks that a value is an element of the subgroup of order q.
+   *
+   * @param value The value to check.
+   * @param p     The group modulus.
+   * @param q     The group order.
+   * @return True if the value is an element of the subgroup.
+   */
+  private static boolean isElement(final BigInteger value, final BigInteger p, final BigInteger q) {
+    return (value != null) && (value.signum() > 0) && (value.compareTo(p) < 0) && value.modPow(q, p).equals(BigInteger.ONE);
+  }
+
+  /**
+   * Checks that a value is an exponent modulo q.
+   *
+   * @param value The value to check.
+   * @param q     The group order.
+   * @return True if the value is an exponent.
+   */
+  private static boolean isExponent(final BigInteger value, final BigInteger q) {
+    return (value != null) && (value.signum() >= 0) && (value.compareTo(q) < 0);
+  }
+
+  /**
+   * Calculates the Lagrange coefficient at zero for a teller's share, where the shares of the specified tellers are combined.
+   *
+   * @param q       The group order.
+   * @param teller  The number of the teller.
+   * @param tellers The numbers of all of the tellers whose shares are combined.
+   * @return The Lagrange coefficient.
+   */
+  public static BigInteger lagrangeCoefficient(final BigInteger q, final int teller, final List<Integer> tellers) {
+    BigInteger numerator = BigInteger.ONE;
+    BigInteger denominator = BigInteger.ONE;
+
+    for (final int other : tellers) {
+      if (other != teller) {
+        numerator = numerator.multiply(BigInteger.valueOf(other)).mod(q);
+        denominator = denominator.multiply(BigInteger.valueOf(other - teller)).mod(q);
+      }
+    }
+
+    return numerator.multiply(denominator.modInverse(q)).mod(q);
+  }
+
+  /**
+   * Derives the exponents used to combine a batch of factors from a hash of the teller's statement and the batch.
+   *
+   * @param parameters  The election parameters.
+   * @param share       The decryption share.
+   * @param cipherTexts The ciphertexts.
+   * @param from        The index of the first ciphertext in the batch.
+   * @param to          The exclusive index of the last ciphertext in the batch.
+   * @return The exponents, one for each ciphertext in the batch.
+   */
+  private BigInteger[] batchExponents(final DHParametersWrapper parameters, final DecryptionShare share, final List<CipherText> cipherTexts, final int from,
+                                      final int to) {
+    final BigInteger q = parameters.getQ();
+    final List<BigInteger> values = new ArrayList<>(5 + (2 * (to - from)));
+    values.addAll(Arrays.asList(parameters.getP(), q, parameters.getG(), BigInteger.valueOf(share.getTeller()), share.getPublicKeyShare()));
+
+    for (int i = from; i < to; i++) {
+      values.add(cipherTexts.get(i).getAlpha());
+      values.add(share.getFactors().get(i));
+    }
+
+    final BigInteger seed = this.hash(q.bitLength(), values.toArray(new BigInteger[0]));
+    final BigInteger limit = BigInteger.ONE.shiftLeft(Math.min(BATCH_EXPONENT_BITS, q.bitLength() - 1));
+    final BigInteger[] exponents = new BigInteger[to - from];
+
+    for (int i = from; i < to; i++) {
+      exponents[i - from] = this.hash(q.bitLength(), seed, BigInteger.valueOf(i)).mod(limit);
+    }
+
+    return exponents;
+  }
+
+  /**
+   * Forms the statements proved for a batch: the public key share is g^share and the combined factor is the combined alpha^share.
+   *
+   * @param parameters  The election parameters.
+   * @param share       The decryption share.
+   * @param cipherTexts The ciphertexts.
+   * @param batch       The number of the batch.
+   * @return The statements.
+   */
+  private Statement[] batchStatements(final DHParametersWrapper parameters, final DecryptionShare share, final List<CipherText> cipherTexts, final int batch) {
+    final BigInteger p = parameters.getP();
+    final int from = batch * share.getBatchSize();
+    final int to = Math.min(cipherTexts.size(), from + share.getBatchSize());
+    final BigInteger[] exponents = this.batchExponents(parameters, share, cipherTexts, from, to);
+
+    BigInteger alpha = BigInteger.ONE;
+    BigInteger factor = BigInteger.ONE;
+
+    for (int i = from; i < to; i++) {
+      alpha = alpha.multiply(cipherTexts.get(i).getAlpha().modPow(exponents[i - from], p)).mod(p);
+      factor = factor.multiply(share.getFactors().get(i).modPow(exponents[i - from], p)).mod(p);
+    }
+
+    return new Statement[] {new Statement(share.getPublicKeyShare(), parameters.getG()), new Statement(factor, alpha)};
+  }
+
+  /**
+   * Checks that there are commitments from each teller in teller order, all to polynomials of the same degree and all group elements.
+   *
+   * @param parameters  The election parameters.
+   * @param commitments The published commitments of every teller.
+   * @throws CryptographyException if the commitments are missing or invalid.
+   */
+  private void checkCommitments(final DHParametersWrapper parameters, final List<KeyShareCommitments> commitments) throws CryptographyException {
+    if ((commitments == null) || commitments.isEmpty()) {
+      throw new CryptographyException("No key share commitments");
+    }
+
+    final int threshold = commitments.get(0).getCommitments().size();
+
+    for (int i = 0; i < commitments.size(); i++) {
+      final KeyShareCommitments teller = commitments.get(i);
+
+      if ((teller.getTeller() != (i + 1)) || (teller.getCommitments() == null) || (teller.getCommitments().size() != threshold) ||
+          !teller.getCommitments().stream().allMatch(commitment -> isElement(commitment, parameters.getP(), parameters.getQ()))) {
+        throw new CryptographyException("Invalid key share commitments from teller " + teller.getTeller());
+      }
+    }
+  }
+
+  /**
+   * Verifies the decryption shares of a threshold number of tellers and merges them to decrypt the ciphertexts.
+   *
+   * @param parameters  The election parameters.
+   * @param publicKey   The election public key.
+   * @param cipherTexts The ciphertexts which have been partially decrypted.
+   * @param shares      The decryption shares, one from each of a threshold number of different tellers.
+   * @return The plaintexts, in the same order as the ciphertexts.
+   * @throws CryptographyException if a share is invalid or the shares do not combine to the public key.
+   */
+  public List<BigInteger> combine(final Parameters parameters, final BigInteger publicKey, final List<CipherText> cipherTexts,
+                                  final List<DecryptionShare> shares) throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger p = wrapper.getP();
+    final BigInteger q = wrapper.getQ();
+
+    if ((shares == null) || shares.isEmpty()) {
+      throw new CryptographyException("No decryption shares to combine");
+    }
+
+    final List<Integer> tellers = shares.stream().map(DecryptionShare::getTeller).collect(Collectors.toList());
+
+    if (new HashSet<>(tellers).size() != tellers.size()) {
+      throw new CryptographyException("Duplicate decryption shares from tellers " + tellers);
+    }
+
+    for (final DecryptionShare share : shares) {
+      if (!this.verify(parameters, cipherTexts, share)) {
+        throw new CryptographyException("Invalid decryption share from teller " + share.getTeller());
+      }
+    }
+
+    // The public key shares must interpolate to the public key, otherwise the shares are from the wrong key or too few tellers.
+    final BigInteger[] coefficients = new BigInteger[shares.size()];
+    BigInteger combinedPublicKey = BigInteger.ONE;
+
+    for (int i = 0; i < shares.size(); i++) {
+      coefficients[i] = lagrangeCoefficient(q, tellers.get(i), tellers);
+      combinedPublicKey = combinedPublicKey.multiply(shares.get(i).getPublicKeyShare().modPow(coefficients[i], p)).mod(p);
+    }
+
+    if (!combinedPublicKey.equals(publicKey.mod(p))) {
+      throw new CryptographyException("Decryption shares from tellers " + tellers + " do not combine to the public key");
+    }
+
+    LOG.debug("Combine {} decryption shares for {} ciphertexts", shares.size(), cipherTexts.size());
+
+    final BigInteger[] plainTexts = new BigInteger[cipherTexts.size()];
+
+    IntStream.range(0, cipherTexts.size()).parallel().forEach(i -> {
+      BigInteger factor = BigInteger.ONE;
+
+      for (int j = 0; j < shares.size(); j++) {
+        factor = factor.multiply(shares.get(j).getFactors().get(i).modPow(coefficients[j], p)).mod(p);
+      }
+
+      plainTexts[i] = cipherTexts.get(i).getBeta().multiply(factor.modInverse(p)).mod(p);
+    });
+
+    return Arrays.asList(plainTexts);
+  }
+
+  /**
+   * Combines the tellers' commitments into the election public key: the product of the commitments to each teller's constant term.
+   *
+   * @param parameters  The election parameters.
+   * @param commitments The published commitments of every teller.
+   * @return The election public key.
+   * @throws CryptographyException if the commitments are missing or invalid.
+   */
+  public BigInteger combinePublicKey(final Parameters parameters, final List<KeyShareCommitments> commitments) throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger p = wrapper.getP();
+
+    this.checkCommitments(wrapper, commitments);
+
+    BigInteger publicKey = BigInteger.ONE;
+
+    for (final KeyShareCommitments teller : commitments) {
+      publicKey = publicKey.multiply(teller.getCommitments().get(0)).mod(p);
+    }
+
+    return publicKey;
+  }
+
+  /**
+   * Commits to the coefficients of a teller's secret polynomial so that the deals from it can be checked by their recipients.
+   *
+   * @param parameters The election parameters.
+   * @param dealer     The number of the teller which created the polynomial.
+   * @param polynomial The coefficients of the polynomial, lowest degree first.
+   * @return The commitments, g^a_k for each coefficient a_k.
+   * @throws CryptographyException if the parameters are of the wrong class.
+   */
+  public KeyShareCommitments commit(final Parameters parameters, final int dealer, final BigInteger[] polynomial) throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+
+    return new KeyShareCommitments(dealer, Arrays.stream(polynomial).map(coefficient -> wrapper.getG().modPow(coefficient, wrapper.getP()))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Creates a teller's random secret polynomial of degree threshold - 1, from which it deals a share to every teller. The polynomial must be discarded once the
+   * deals have been made.
+   *
+   * @param random     Source of randomness.
+   * @param parameters The election parameters.
+   * @param tellers    The number of tellers.
+   * @param threshold  The threshold number of tellers.
+   * @return The coefficients of the polynomial, lowest degree first.
+   * @throws CryptographyException if the number of tellers or threshold is invalid.
+   */
+  public BigInteger[] createPolynomial(final SecureRandom random, final Parameters parameters, final int tellers, final int threshold)
+      throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+
+    if ((threshold < 1) || (threshold > tellers)) {
+      throw new CryptographyException("Threshold " + threshold + " must be between 1 and the number of tellers " + tellers);
+    }
+
+    final BigInteger[] polynomial = new BigInteger[threshold];
+
+    for (int i = 0; i < threshold; i++) {
+      polynomial[i] = this.generateRandom(random, wrapper.getQ());
+    }
+
+    return polynomial;
+  }
+
+  /**
+   * Deals a share of a teller's secret polynomial to a teller: the polynomial evaluated at the recipient's number.
+   *
+   * @param parameters The election parameters.
+   * @param dealer     The number of the teller which created the polynomial.
+   * @param recipient  The number of the teller to which the share is dealt.
+   * @param polynomial The coefficients of the polynomial, lowest degree first.
+   * @return The deal.
+   * @throws CryptographyException if the parameters are of the wrong class.
+   */
+  public KeyShareDeal deal(final Parameters parameters, final int dealer, final int recipient, final BigInteger[] polynomial) throws CryptographyException {
+    final BigInteger q = checkDHParameters(parameters).getQ();
+    final BigInteger x = BigInteger.valueOf(recipient);
+    BigInteger share = BigInteger.ZERO;
+
+    for (int i = polynomial.length - 1; i >= 0; i--) {
+      share = share.multiply(x).add(polynomial[i]).mod(q);
+    }
+
+    return new KeyShareDeal(dealer, recipient, share);
+  }
+
+  /**
+   * Partially decrypts the ciphertexts using a teller's key share. The factors are calculated in parallel and each batch of factors is then proved in parallel.
+   *
+   * @param random      Source of randomness.
+   * @param parameters  The election parameters.
+   * @param keyShare    The teller's key share.
+   * @param cipherTexts The ciphertexts to partially decrypt.
+   * @return The decryption share, including its proofs.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  public DecryptionShare decrypt(final SecureRandom random, final Parameters parameters, final KeyShare keyShare, final List<CipherText> cipherTexts)
+      throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger p = wrapper.getP();
+
+    if (cipherTexts.isEmpty()) {
+      throw new CryptographyException("No ciphertexts to decrypt");
+    }
+
+    LOG.debug("Teller {} decryption share for {} ciphertexts", keyShare.getTeller(), cipherTexts.size());
+
+    final BigInteger[] factors = new BigInteger[cipherTexts.size()];
+    IntStream.range(0, cipherTexts.size()).parallel().forEach(i -> factors[i] = cipherTexts.get(i).getAlpha().modPow(keyShare.getPrivateKeyShare(), p));
+
+    final DecryptionShare share = new DecryptionShare();
+    share.setTeller(keyShare.getTeller());
+    share.setPublicKeyShare(keyShare.getPublicKeyShare());
+    share.setBatchSize(BATCH_SIZE);
+    share.setFactors(Arrays.asList(factors));
+
+    final int batches = (cipherTexts.size() + BATCH_SIZE - 1) / BATCH_SIZE;
+
+    try {
+      share.setProofs(IntStream.range(0, batches).parallel().mapToObj(batch -> {
+        try {
+          return this.chaumPedersenAlgorithmHelper.generateProof(random, parameters, keyShare.getPrivateKeyShare(),
+              this.batchStatements(wrapper, share, cipherTexts, batch));
+        }
+        catch (final Exception e) {
+          throw new RuntimeException(e); // Re-throw as an unchecked exception because of the lambda.
+        }
+      }).collect(Collectors.toList()));
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not prove decryption share", e);
+    }
+
+    return share;
+  }
+
+  /**
+   * Merges the deals received by a teller into its key share, after checking every deal against its dealer's published commitments. The public key share is
+   * g^share, which is also the product of the commitments of every dealer evaluated at the teller's number.
+   *
+   * @param parameters  The election parameters.
+   * @param teller      The number of the teller receiving the deals.
+   * @param commitments The published commitments of every teller, in teller order.
+   * @param deals       The deals received from every teller, in teller order.
+   * @return The teller's key share.
+   * @throws CryptographyException if a deal is missing or does not match its dealer's commitments.
+   */
+  public KeyShare merge(final Parameters parameters, final int teller, final List<KeyShareCommitments> commitments, final List<KeyShareDeal> deals)
+      throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger q = wrapper.getQ();
+
+    this.checkCommitments(wrapper, commitments);
+
+    if ((deals == null) || (deals.size() != commitments.size())) {
+      throw new CryptographyException("Teller " + teller + " needs one key share deal from each of " + commitments.size() + " tellers");
+    }
+
+    BigInteger share = BigInteger.ZERO;
+
+    for (int i = 0; i < deals.size(); i++) {
+      final KeyShareDeal deal = deals.get(i);
+
+      if ((deal.getDealer() != (i + 1)) || (deal.getRecipient() != teller) || !this.verifyDeal(wrapper, commitments.get(i), deal)) {
+        throw new CryptographyException("Invalid key share deal from teller " + deal.getDealer() + " to teller " + teller);
+      }
+
+      share = share.add(deal.getShare()).mod(q);
+    }
+
+    return new KeyShare(teller, share, wrapper.getG().modPow(share, wrapper.getP()));
+  }
+
+  /**
+   * Verifies a teller's decryption share: each factor must be a group element and every batch of factors must be proved against the teller's public key share.
+   * The batches are verified in parallel.
+   *
+   * @param parameters  The election parameters.
+   * @param cipherTexts The ciphertexts which have been partially decrypted.
+   * @param share       The decryption share.
+   * @return True if the share is verified, false otherwise.
+   * @throws CryptographyException if the cryptographic operation could not be completed.
+   */
+  public boolean verify(final Parameters parameters, final List<CipherText> cipherTexts, final DecryptionShare share) throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger p = wrapper.getP();
+    final BigInteger q = wrapper.getQ();
+
+    if (share == null) {
+      throw new CryptographyException("Missing decryption share");
+    }
+
+    if ((share.getFactors() == null) || (share.getFactors().size() != cipherTexts.size()) || (share.getBatchSize() < 1) || (share.getProofs() == null) ||
+        (share.getProofs().size() != ((cipherTexts.size() + share.getBatchSize() - 1) / share.getBatchSize())) || !isElement(share.getPublicKeyShare(), p, q)) {
+      return false;
+    }
+
+    try {
+      return share.getFactors().parallelStream().allMatch(factor -> isElement(factor, p, q)) &&
+          IntStream.range(0, share.getProofs().size()).parallel().allMatch(batch -> {
+            try {
+              return this.chaumPedersenAlgorithmHelper.verifyProof(parameters, share.getProofs().get(batch),
+                  this.batchStatements(wrapper, share, cipherTexts, batch));
+            }
+            catch (final Exception e) {
+              throw new RuntimeException(e); // Re-throw as an unchecked exception because of the lambda.
+            }
+          });
+    }
+    catch (final Exception e) {
+      throw new CryptographyException("Could not verify decryption share", e);
+    }
+  }
+
+  /**
+   * Checks a deal against its dealer's published commitments: g^share must equal the product of the commitments C_k^(recipient^k).
+   *
+   * @param parameters  The election parameters.
+   * @param commitments The dealer's published commitments.
+   * @param deal        The deal.
+   * @return True if the deal matches the commitments, false otherwise.
+   * @throws CryptographyException if the parameters are of the wrong class.
+   */
+  public boolean verifyDeal(final Parameters parameters, final KeyShareCommitments commitments, final KeyShareDeal deal) throws CryptographyException {
+    final DHParametersWrapper wrapper = checkDHParameters(parameters);
+    final BigInteger p = wrapper.getP();
+    final BigInteger q = wrapper.getQ();
+
+    if ((deal == null) || !isExponent(deal.getShare(), q) || (commitments.getTeller() != deal.getDealer())) {
+      return false;
+    }
+
+    final BigInteger x = BigInteger.valueOf(deal.getRecipient());
+    BigInteger power = BigInteger.ONE;
+    BigInteger expected = BigInteger.ONE;
+
+    for (final BigInteger commitment : commitments.getCommitments()) {
+      expected = expected.multiply(commitment.modPow(power, p)).mod(p);
+      power = power.multiply(x).mod(q);
+    }
+
+    return wrapper.getG().modPow(deal.getShare(), p).equals(expected);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+
+import javax.validation.Valid;
+
+/**
+ * Cancel job shell command. Cancels a background job, interrupting its command. Any files the command has already written are left in place.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class CancelJobShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(CancelJobShellComponent.class);
+
+  /** The background job manager. */
+  private final JobManager jobManager;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param jobManager    The background job manager.
+   * @param messageSource The source for messages.
+   */
+  public CancelJobShellComponent(final JobManager jobManager, final MessageSource messageSource) {
+    this.jobManager = jobManager;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "job.cancel_job.help", group = "job.group")
+  public void cancelJob(@ShellOption(optOut = true) @Valid final CancelJobOptions options) {
+    LOG.info("cancel-job --job {}", options.job);
+
+    try {
+      final String code = this.jobManager.cancel(options.job) ? "job.cancel_job.cancelled" : "job.cancel_job.ended";
+      System.out.println(this.messageSource.getMessage(code, new Object[] {options.job, this.jobManager.getJob(options.job).getState()}, null));
+    }
+    catch (final Exception e) {
+      LOG.error("cancel-job:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("cancel-job: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #cancelJob(CancelJobOptions)}.
+   */
+  public static class CancelJobOptions {
+
+    /** The number of the job to cancel. */
+    @Parameter(names = "--job", required = true)
+    int job;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private CancelJobOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param job The number of the job to cancel.
+     */
+    public CancelJobOptions(final int job) {
+      this.job = job;
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import java.util.concurrent.Future;
+
+/**
+ * A shell command running in the background, submitted to the {@link JobManager}. The state and progress of the job are updated by the thread running it and
+ * may be read at any time from other threads.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class Job {
+
+  /** The command line being run. */
+  private final String command;
+
+  /** The unique job number. */
+  private final int id;
+
+  /** The time the job was submitted. */
+  private final long submitted = System.currentTimeMillis();
+
+  /** The time the job ended, or zero if it is still running. */
+  private volatile long ended = 0;
+
+  /** The error message if the job failed. */
+  private volatile String error = null;
+
+  /** The future used to wait for or cancel the job. */
+  private volatile Future<?> future = null;
+
+  /** The percentage progress of the current operation. */
+  private volatile float progress = 0;
+
+  /** The name of the current operation, if any. */
+  private volatile String progressName = null;
+
+  /** The state of the job. */
+  private volatile State state = State.RUNNING;
+
+  /**
+   * Constructor requiring the job identity.
+   *
+   * @param id      The unique job number.
+   * @param command The command line being run.
+   */
+  public Job(final int id, final String command) {
+    this.id = id;
+    this.command = command;
+  }
+
+  /**
+   * Ends the job if it is still running.
+   *
+   * @param state The final state of the job.
+   * @param error The error message if the job failed.
+   * @return True if the job was ended, false if it had already ended.
+   */
+  synchronized boolean end(final State state, final String error) {
+    if (this.state != State.RUNNING) {
+      return false;
+    }
+
+    this.state = state;
+    this.error = error;
+    this.ended = System.currentTimeMillis();
+
+    return true;
+  }
+
+  /**
+   * @return The command line being run.
+   */
+  public String getCommand() {
+    return this.command;
+  }
+
+  /**
+   * @return The time in milliseconds the job has been running, or ran for if it has ended.
+   */
+  public long getDuration() {
+    return ((this.ended != 0) ? this.ended : System.currentTimeMillis()) - this.submitted;
+  }
+
+  /**
+   * @return The error message if the job failed.
+   */
+  public String getError() {
+    return this.error;
+  }
+
+  /**
+   * @return The future used to wait for or cancel the job.
+   */
+  Future<?> getFuture() {
+    return this.future;
+  }
+
+  /**
+   * @param future The future used to wait for or cancel the job.
+   */
+  void setFuture(final Future<?> future) {
+    this.future = future;
+  }
+
+  /**
+   * @return The unique job number.
+   */
+  public int getId() {
+    return this.id;
+  }
+
+  /**
+   * @return The percentage progress of the current operation.
+   */
+  public float getProgress() {
+    return this.progress;
+  }
+
+  /**
+   * @param progress The percentage progress of the current operation.
+   */
+  void setProgress(final float progress) {
+    this.progress = progress;
+  }
+
+  /**
+   * @return The name of the current operation, if any.
+   */
+  public String getProgressName() {
+    return this.progressName;
+  }
+
+  /**
+   * @param progressName The name of the current operation, if any.
+   */
+  void setProgressName(final String progressName) {
+    this.progressName = progressName;
+  }
+
+  /**
+   * @return The state of the job.
+   */
+  public State getState() {
+    return this.state;
+  }
+
+  /**
+   * The states of a job.
+   */
+  public enum State {
+
+    /** The job is running. */
+    RUNNING,
+
+    /** The command completed. */
+    COMPLETED,
+
+    /** The command failed. */
+    FAILED,
+
+    /** The job was cancelled. */
+    CANCELLED
+  }
+}
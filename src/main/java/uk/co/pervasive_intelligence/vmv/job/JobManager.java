@@ -0,0 +1,224 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumInProcessRunner;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs shell commands as background jobs so that the shell prompt is not blocked while they run. Each job runs on its own thread, but the parallel work within
+ * each command runs on the cryptography helper's shared executor, so jobs running at the same time share the same number of threads.
+ * <p>
+ * The manager is registered as a {@link CryptographyHelper.ProgressListener} and attributes progress to the job running on the thread which reports it, so that
+ * the progress of each job can be listed. Progress reported by other threads, such as the output of Verificatum processes, is not attributed to a job.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class JobManager implements CryptographyHelper.ProgressListener {
+
+  /** The job running on the current thread, if any. */
+  private static final ThreadLocal<Job> CURRENT = new ThreadLocal<>();
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(JobManager.class);
+
+  /** Executor used to run the jobs: jobs spend most of their time waiting for the shared executor, so each has its own thread. */
+  private final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+    final Thread thread = new Thread(runnable, "vmv-job");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  /** The jobs, by job number. */
+  private final Map<Integer, Job> jobs = new ConcurrentSkipListMap<>();
+
+  /** The number of the next job. */
+  private final AtomicInteger nextId = new AtomicInteger(1);
+
+  /**
+   * @return True if the current thread is running a background job.
+   */
+  public static boolean isBackground() {
+    return CURRENT.get() != null;
+  }
+
+  /**
+   * Cancels a job, interrupting the command if it is still running.
+   *
+   * @param id The job number.
+   * @return True if the job was cancelled, false if it had already ended.
+   * @throws VMVException if the job is unknown.
+   */
+  public boolean cancel(final int id) throws VMVException {
+    final Job job = this.getJob(id);
+    final boolean cancelled = job.end(Job.State.CANCELLED, null);
+
+    if (cancelled) {
+      LOG.info("job {} cancelled", id);
+      job.getFuture().cancel(true);
+    }
+
+    return cancelled;
+  }
+
+  /**
+   * Gets a job.
+   *
+   * @param id The job number.
+   * @return The job.
+   * @throws VMVException if the job is unknown.
+   */
+  public Job getJob(final int id) throws VMVException {
+    final Job job = this.jobs.get(id);
+
+    if (job == null) {
+      throw new VMVException("Unknown job " + id);
+    }
+
+    return job;
+  }
+
+  /**
+   * @return All of the jobs, in job number order.
+   */
+  public List<Job> getJobs() {
+    return new ArrayList<>(this.jobs.values());
+  }
+
+  /**
+   * Called when an operation ends.
+   */
+  @Override
+  public void onEnd() {
+    final Job job = CURRENT.get();
+
+    if (job != null) {
+      job.setProgress(100);
+    }
+  }
+
+  /**
+   * Called when progress has been made.
+   *
+   * @param progress The percentage progress.
+   */
+  @Override
+  public void onProgress(final float progress) {
+    final Job job = CURRENT.get();
+
+    if (job != null) {
+      job.setProgress(progress);
+    }
+  }
+
+  /**
+   * Called when an operation starts.
+   *
+   * @param name The name of the progress item.
+   */
+  @Override
+  public void onStart(final String name) {
+    final Job job = CURRENT.get();
+
+    if (job != null) {
+      job.setProgressName(name);
+      job.setProgress(0);
+    }
+  }
+
+  /**
+   * Cancels all running jobs and stops accepting new jobs.
+   */
+  public void shutdown() {
+    for (final Job job : this.jobs.values()) {
+      if (job.end(Job.State.CANCELLED, null)) {
+        job.getFuture().cancel(true);
+      }
+    }
+
+    this.executor.shutdownNow();
+  }
+
+  /**
+   * Submits a command to run in the background.
+   *
+   * @param command The command line, used to describe the job.
+   * @param task    Runs the command.
+   * @return The job.
+   */
+  public Job submit(final String command, final Callable<?> task) {
+    final Job job = new Job(this.nextId.getAndIncrement(), command);
+    final FutureTask<Object> future = new FutureTask<>(() -> {
+      CURRENT.set(job);
+      LOG.info("job {} started: {}", job.getId(), command);
+
+      // Other commands may run while the job runs, so Verificatum must not be run in-process.
+      final VerificatumInProcessRunner.Activity activity = VerificatumInProcessRunner.beginActivity();
+
+      try {
+        final Object result = task.call();
+        job.end(Job.State.COMPLETED, null);
+        LOG.info("job {} complete", job.getId());
+        return result;
+      }
+      catch (final Exception e) {
+        LOG.error("job " + job.getId() + ":", e);
+        job.end(Job.State.FAILED, (e.getCause() != null) ? e.getCause().getMessage() : e.getMessage());
+        throw e;
+      }
+      finally {
+        activity.close();
+        CURRENT.remove();
+      }
+    });
+
+    // The future is set before the job can start so that it can always be cancelled.
+    job.setFuture(future);
+    this.jobs.put(job.getId(), job);
+    this.executor.execute(future);
+
+    return job;
+  }
+
+  /**
+   * Waits for a job to end.
+   *
+   * @param id      The job number.
+   * @param timeout The maximum time to wait in milliseconds: zero to wait until the job ends.
+   * @return The job, which may still be running if the timeout expired.
+   * @throws VMVException if the job is unknown or the wait was interrupted.
+   */
+  public Job waitFor(final int id, final long timeout) throws VMVException {
+    final Job job = this.getJob(id);
+
+    try {
+      if (timeout > 0) {
+        job.getFuture().get(timeout, TimeUnit.MILLISECONDS);
+      }
+      else {
+        job.getFuture().get();
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VMVException("Interrupted waiting for job " + id, e);
+    }
+    catch (final TimeoutException | ExecutionException | CancellationException e) {
+      // The outcome is recorded in the job.
+    }
+
+    return job;
+  }
+}
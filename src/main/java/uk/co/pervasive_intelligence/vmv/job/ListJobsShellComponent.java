@@ -0,0 +1,81 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+
+import java.util.List;
+
+/**
+ * List jobs shell command. Lists the background jobs with their state and the progress of their current operation.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class ListJobsShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ListJobsShellComponent.class);
+
+  /** The background job manager. */
+  private final JobManager jobManager;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param jobManager    The background job manager.
+   * @param messageSource The source for messages.
+   */
+  public ListJobsShellComponent(final JobManager jobManager, final MessageSource messageSource) {
+    this.jobManager = jobManager;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Outputs the state of a job.
+   *
+   * @param messageSource The source for messages.
+   * @param job           The job.
+   */
+  static void output(final MessageSource messageSource, final Job job) {
+    System.out.println(messageSource.getMessage("job.list_jobs.job", new Object[] {job.getId(), job.getState(), String.format("%.3f",
+        job.getDuration() / 1000f), job.getCommand()}, null));
+
+    if (job.getProgressName() != null) {
+      System.out.println(messageSource.getMessage("job.list_jobs.progress", new Object[] {job.getProgressName(), Math.round(job.getProgress())}, null));
+    }
+
+    if (job.getError() != null) {
+      System.out.println(messageSource.getMessage("job.list_jobs.error", new Object[] {job.getError()}, null));
+    }
+  }
+
+  /**
+   * Shell command.
+   */
+  @ShellMethod(value = "job.list_jobs.help", group = "job.group")
+  public void listJobs() {
+    LOG.info("list-jobs");
+
+    final List<Job> jobs = this.jobManager.getJobs();
+
+    if (jobs.isEmpty()) {
+      System.out.println(this.messageSource.getMessage("job.list_jobs.none", null, null));
+    }
+
+    for (final Job job : jobs) {
+      output(this.messageSource, job);
+    }
+  }
+}
@@ -0,0 +1,118 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowRunner;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowStep;
+
+import javax.validation.Valid;
+
+/**
+ * Submit job shell command. Runs another shell command in the background so that the shell can be used while it runs, for example to create the voters' keys
+ * while the tracker numbers are being created. The command and its options are checked before the job is submitted.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class SubmitJobShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(SubmitJobShellComponent.class);
+
+  /** The application context containing the shell components. */
+  private final ApplicationContext context;
+
+  /** The background job manager. */
+  private final JobManager jobManager;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /** The resolver used to parse the options of the command. */
+  private final JCommanderParameterResolver resolver;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param context       The application context containing the shell components.
+   * @param resolver      The resolver used to parse the options of the command.
+   * @param jobManager    The background job manager.
+   * @param messageSource The source for messages.
+   */
+  public SubmitJobShellComponent(final ApplicationContext context, final JCommanderParameterResolver resolver, final JobManager jobManager,
+                                 final MessageSource messageSource) {
+    this.context = context;
+    this.resolver = resolver;
+    this.jobManager = jobManager;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "job.submit_job.help", group = "job.group")
+  public void submitJob(@ShellOption(optOut = true) @Valid final SubmitJobOptions options) {
+    LOG.info("submit-job --command {}", options.command);
+
+    try {
+      // Split the command line into the command and its options, and check them before the job is submitted.
+      final String[] words = options.command.trim().split("\\s+", 2);
+      final WorkflowStep step = new WorkflowStep(words[0], (words.length > 1) ? words[1] : null, null);
+      final WorkflowRunner runner = new WorkflowRunner(this.context, this.resolver, VMVCommandLine.findCommands());
+      final Object[] arguments = runner.resolve(step.getCommand(), step);
+
+      final Job job = this.jobManager.submit(options.command, () -> runner.execute(step.getCommand(), step, arguments));
+      System.out.println(this.messageSource.getMessage("job.submit_job.submitted", new Object[] {job.getId(), job.getCommand()}, null));
+    }
+    catch (final Exception e) {
+      LOG.error("submit-job:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("submit-job: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #submitJob(SubmitJobOptions)}.
+   */
+  public static class SubmitJobOptions {
+
+    /** The command line to run in the background. */
+    @Parameter(names = "--command", required = true)
+    String command;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private SubmitJobOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param command The command line to run in the background.
+     */
+    public SubmitJobOptions(final String command) {
+      this.command = command;
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import javax.validation.Valid;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Wait job shell command. Waits for one or all background jobs to end and outputs their state. The command fails if any of the jobs failed.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class WaitJobShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(WaitJobShellComponent.class);
+
+  /** The background job manager. */
+  private final JobManager jobManager;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param jobManager    The background job manager.
+   * @param messageSource The source for messages.
+   */
+  public WaitJobShellComponent(final JobManager jobManager, final MessageSource messageSource) {
+    this.jobManager = jobManager;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "job.wait_job.help", group = "job.group")
+  public void waitJob(@ShellOption(optOut = true) @Valid final WaitJobOptions options) {
+    LOG.info("wait-job --job {} --timeout {}", options.job, options.timeout);
+
+    try {
+      final List<Job> jobs = new ArrayList<>();
+
+      if (options.job > 0) {
+        jobs.add(this.jobManager.getJob(options.job));
+      }
+      else {
+        jobs.addAll(this.jobManager.getJobs());
+      }
+
+      // Wait for each job in turn, within the overall timeout.
+      final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(options.timeout);
+      int failed = 0;
+
+      for (final Job job : jobs) {
+        final long timeout = (options.timeout > 0) ? Math.max(1, end - System.currentTimeMillis()) : 0;
+        this.jobManager.waitFor(job.getId(), timeout);
+        ListJobsShellComponent.output(this.messageSource, job);
+
+        if (job.getState() == Job.State.FAILED) {
+          failed++;
+        }
+      }
+
+      if (failed > 0) {
+        throw new VMVException(failed + " of " + jobs.size() + " jobs failed");
+      }
+    }
+    catch (final Exception e) {
+      LOG.error("wait-job:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("wait-job: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #waitJob(WaitJobOptions)}.
+   */
+  public static class WaitJobOptions {
+
+    /** The number of the job to wait for: zero for all jobs. */
+    @Parameter(names = "--job")
+    int job = 0;
+
+    /** The maximum time to wait in seconds: zero for no limit. */
+    @Parameter(names = "--timeout")
+    long timeout = 0;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private WaitJobOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param job     The number of the job to wait for: zero for all jobs.
+     * @param timeout The maximum time to wait in seconds: zero for no limit.
+     */
+    public WaitJobOptions(final int job, final long timeout) {
+      this.job = job;
+      this.timeout = timeout;
+    }
+  }
+}
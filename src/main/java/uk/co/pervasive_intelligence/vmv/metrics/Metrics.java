@@ -0,0 +1,316 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.metrics;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Records the time taken, the number of items processed and the memory allocated by each phase of each operation, such as creating the commitments versus
+ * self-checking their proofs, or running a Verificatum command. Each phase is timed by a {@link Timer} on the thread which runs it, so that the bytes allocated
+ * by the thread can be measured exactly even when many threads run the same phase. Each timed phase is also recorded as a JDK Flight Recorder event, if the
+ * JVM includes Flight Recorder.
+ * <p>
+ * Each command clears the metrics when it starts and writes them as a JSON report next to its output file when it completes, so that each report covers one
+ * command. The report is named after the command followed by the report name, by default {@link #DEFAULT_REPORT}, e.g. "mix-votes-metrics.json".
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class Metrics {
+
+  /** The default name of the report file, which follows the name of the command. */
+  public static final String DEFAULT_REPORT = "metrics.json";
+
+  /** The name of the phase which times the whole of an operation. */
+  public static final String TOTAL = "total";
+
+  /** True if the JVM includes the Flight Recorder API. */
+  private static final boolean FLIGHT_RECORDER = isFlightRecorderAvailable();
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+  /** The thread management bean used to measure allocation, or null if allocation cannot be measured. */
+  private static final com.sun.management.ThreadMXBean THREADS = getThreadBean();
+
+  /** The metrics of each phase, by operation and phase name. */
+  private final Map<String, Map<String, PhaseMetrics>> operations = new ConcurrentSkipListMap<>();
+
+  /** The name of the report file, or null if no report is written. */
+  private final String report;
+
+  /**
+   * Default constructor: metrics are recorded but no report is written.
+   */
+  public Metrics() {
+    this(null);
+  }
+
+  /**
+   * Constructor which writes the report.
+   *
+   * @param report The name of the report file, or null if no report is written.
+   */
+  public Metrics(final String report) {
+    this.report = report;
+  }
+
+  /**
+   * Gets the number of bytes allocated by the current thread.
+   *
+   * @return The bytes allocated, or a negative value if allocation cannot be measured.
+   */
+  private static long getAllocated() {
+    return (THREADS != null) ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : -1;
+  }
+
+  /**
+   * @return The thread management bean if it can measure the allocation of each thread, otherwise null.
+   */
+  private static com.sun.management.ThreadMXBean getThreadBean() {
+    try {
+      final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+      if ((bean instanceof com.sun.management.ThreadMXBean) && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+        ((com.sun.management.ThreadMXBean) bean).setThreadAllocatedMemoryEnabled(true);
+        return (com.sun.management.ThreadMXBean) bean;
+      }
+    }
+    catch (final Throwable t) {
+      LOG.debug("Thread allocation cannot be measured", t);
+    }
+
+    return null;
+  }
+
+  /**
+   * @return True if the JVM includes the Flight Recorder API, which is the case for JDK 8u262 onwards and JDK 11 onwards.
+   */
+  public static boolean isFlightRecorderAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, Metrics.class.getClassLoader());
+      return true;
+    }
+    catch (final Throwable t) {
+      return false;
+    }
+  }
+
+  /**
+   * Removes all of the recorded metrics.
+   */
+  public void clear() {
+    this.operations.clear();
+  }
+
+  /**
+   * Gets the metrics of a phase.
+   *
+   * @param operation The name of the operation.
+   * @param phase     The name of the phase.
+   * @return The metrics of the phase, or null if the phase has not been recorded.
+   */
+  public PhaseMetrics getPhase(final String operation, final String phase) {
+    final Map<String, PhaseMetrics> phases = this.operations.get(operation);
+
+    return (phases != null) ? phases.get(phase) : null;
+  }
+
+  /**
+   * @return The name of the report file, or null if no report is written.
+   */
+  public String getReport() {
+    return this.report;
+  }
+
+  /**
+   * Records one run of a phase.
+   *
+   * @param operation The name of the operation.
+   * @param phase     The name of the phase.
+   * @param nanos     The duration in nanoseconds.
+   * @param items     The number of items processed.
+   * @param allocated The number of bytes allocated by the current thread, or a negative value if allocation cannot be measured.
+   */
+  private void record(final String operation, final String phase, final long nanos, final long items, final long allocated) {
+    this.operations.computeIfAbsent(operation, name -> new ConcurrentSkipListMap<>()).computeIfAbsent(phase, name -> new PhaseMetrics())
+        .record(nanos, items, Thread.currentThread().getName(), allocated);
+  }
+
+  /**
+   * Starts timing a phase on the current thread. The phase is recorded when the timer is closed on the same thread.
+   *
+   * @param operation The name of the operation.
+   * @param phase     The name of the phase.
+   * @return The timer.
+   */
+  public Timer start(final String operation, final String phase) {
+    return new Timer(operation, phase);
+  }
+
+  /**
+   * Times one run of a phase of a task on the current thread, recording it if the task completes.
+   *
+   * @param operation The name of the operation.
+   * @param phase     The name of the phase.
+   * @param task      The task.
+   * @param <T>       The type of result.
+   * @param <E>       The type of exception thrown by the task.
+   * @return The result of the task.
+   * @throws E if the task failed.
+   */
+  public <T, E extends Exception> T time(final String operation, final String phase, final Task<T, E> task) throws E {
+    final Timer timer = this.start(operation, phase);
+    final T result = task.run();
+    timer.close();
+
+    return result;
+  }
+
+  /**
+   * @return The report content: the time it was created, whether Flight Recorder events are available and the metrics of each phase of each operation.
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> operations = new LinkedHashMap<>();
+
+    for (final Map.Entry<String, Map<String, PhaseMetrics>> operation : this.operations.entrySet()) {
+      final Map<String, Object> phases = new LinkedHashMap<>();
+
+      for (final Map.Entry<String, PhaseMetrics> phase : operation.getValue().entrySet()) {
+        phases.put(phase.getKey(), phase.getValue().toMap());
+      }
+
+      operations.put(operation.getKey(), phases);
+    }
+
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("created", Instant.now().toString());
+    map.put("processors", Runtime.getRuntime().availableProcessors());
+    map.put("allocation", THREADS != null);
+    map.put("flightRecorder", FLIGHT_RECORDER);
+    map.put("operations", operations);
+
+    return map;
+  }
+
+  /**
+   * Writes the report of a command into a directory, replacing any existing report of the same command. Nothing is written if there is no report file name.
+   *
+   * @param directory The directory, such as the directory of an output file. If null, the current directory is used.
+   * @param command   The name of the command, such as "mix-votes", which prefixes the report file name.
+   * @return The report file, or null if nothing was written.
+   * @throws VMVException if the report could not be written.
+   */
+  public File write(final File directory, final String command) throws VMVException {
+    if (this.report == null) {
+      return null;
+    }
+
+    final File file = new File(directory, command + "-" + this.report);
+
+    try {
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, this.toMap());
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not write metrics report " + file, e);
+    }
+
+    return file;
+  }
+
+  /**
+   * A task which is timed as a phase.
+   *
+   * @param <T> The type of result.
+   * @param <E> The type of exception thrown by the task.
+   */
+  @FunctionalInterface
+  public interface Task<T, E extends Exception> {
+
+    /**
+     * Runs the task.
+     *
+     * @return The result.
+     * @throws E if the task failed.
+     */
+    T run() throws E;
+  }
+
+  /**
+   * Times a phase on the thread which started it. A timer which is never closed, such as when the phase fails, is simply not recorded.
+   */
+  public class Timer implements AutoCloseable {
+
+    /** The bytes allocated by the thread when the timer was started. */
+    private final long allocated;
+
+    /** The started Flight Recorder event, or null if the event is not recorded. */
+    private final Object event;
+
+    /** The name of the operation. */
+    private final String operation;
+
+    /** The name of the phase. */
+    private final String phase;
+
+    /** The time the timer was started in nanoseconds. */
+    private final long start;
+
+    /** The number of items processed. */
+    private long items = 1;
+
+    /**
+     * Constructor which starts the timer.
+     *
+     * @param operation The name of the operation.
+     * @param phase     The name of the phase.
+     */
+    private Timer(final String operation, final String phase) {
+      this.operation = operation;
+      this.phase = phase;
+      this.event = FLIGHT_RECORDER ? PhaseEvent.start() : null;
+      this.allocated = getAllocated();
+      this.start = System.nanoTime();
+    }
+
+    /**
+     * Stops the timer and records the phase.
+     */
+    @Override
+    public void close() {
+      final long nanos = System.nanoTime() - this.start;
+      final long allocated = (this.allocated >= 0) ? getAllocated() - this.allocated : -1;
+
+      Metrics.this.record(this.operation, this.phase, nanos, this.items, allocated);
+
+      if (this.event != null) {
+        PhaseEvent.finish(this.event, this.operation, this.phase, this.items, allocated);
+      }
+    }
+
+    /**
+     * Sets the number of items processed by the phase, which defaults to one.
+     *
+     * @param items The number of items.
+     * @return This timer.
+     */
+    public Timer setItems(final long items) {
+      this.items = items;
+
+      return this;
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JDK Flight Recorder event recorded for each timed phase of an operation, so that a recording shows the phases alongside garbage collection, locking and
+ * thread activity. This class is only loaded if the JVM includes the Flight Recorder API, see {@link Metrics#isFlightRecorderAvailable()}, so it is only
+ * referenced through its static methods, which use {@link Object} in place of the event type.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@Name("uk.co.pervasive_intelligence.vmv.Phase")
+@Label("VMV Phase")
+@Category("VMV")
+@Description("A timed phase of a VMV operation")
+class PhaseEvent extends Event {
+
+  /** The number of bytes allocated by the thread during the phase. */
+  @Label("Allocated")
+  @DataAmount
+  long allocated;
+
+  /** The number of items processed. */
+  @Label("Items")
+  long items;
+
+  /** The name of the operation. */
+  @Label("Operation")
+  String operation;
+
+  /** The name of the phase. */
+  @Label("Phase")
+  String phase;
+
+  /**
+   * Starts timing an event, if the event is enabled in a running recording.
+   *
+   * @return The started event, or null if the event is not enabled.
+   */
+  static Object start() {
+    final PhaseEvent event = new PhaseEvent();
+
+    if (!event.isEnabled()) {
+      return null;
+    }
+
+    event.begin();
+
+    return event;
+  }
+
+  /**
+   * Ends and commits an event started by {@link #start()}.
+   *
+   * @param started   The started event.
+   * @param operation The name of the operation.
+   * @param phase     The name of the phase.
+   * @param items     The number of items processed.
+   * @param allocated The number of bytes allocated by the thread, or a negative value if allocation cannot be measured.
+   */
+  static void finish(final Object started, final String operation, final String phase, final long items, final long allocated) {
+    final PhaseEvent event = (PhaseEvent) started;
+    event.end();
+
+    if (event.shouldCommit()) {
+      event.operation = operation;
+      event.phase = phase;
+      event.items = items;
+      event.allocated = Math.max(allocated, 0);
+      event.commit();
+    }
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.metrics;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The accumulated timings, item counts and allocation of one phase of an operation. A phase is timed each time it is run, which may be concurrently on many
+ * threads, such as once per voter on the worker threads, or once around the whole of a parallel section on the calling thread. The throughput is the number of
+ * items divided by the accumulated time, so for a phase timed on each worker thread it is the throughput of a single thread.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class PhaseMetrics {
+
+  /** The bytes allocated while running the phase, by thread name. */
+  private final Map<String, LongAdder> allocatedByThread = new ConcurrentHashMap<>();
+
+  /** The number of times the phase was run. */
+  private final LongAdder count = new LongAdder();
+
+  /** The total duration in nanoseconds. */
+  private final LongAdder duration = new LongAdder();
+
+  /** The number of items processed. */
+  private final LongAdder items = new LongAdder();
+
+  /** The longest single duration in nanoseconds. */
+  private final AtomicLong maximum = new AtomicLong();
+
+  /**
+   * Converts nanoseconds to milliseconds.
+   *
+   * @param nanos The nanoseconds.
+   * @return The milliseconds.
+   */
+  private static double toMillis(final long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @return The total number of bytes allocated while running the phase, or zero if allocation cannot be measured.
+   */
+  public long getAllocated() {
+    return this.allocatedByThread.values().stream().mapToLong(LongAdder::sum).sum();
+  }
+
+  /**
+   * @return The number of bytes allocated while running the phase, by thread name.
+   */
+  public Map<String, Long> getAllocatedByThread() {
+    final Map<String, Long> allocated = new TreeMap<>();
+
+    for (final Map.Entry<String, LongAdder> entry : this.allocatedByThread.entrySet()) {
+      allocated.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    return allocated;
+  }
+
+  /**
+   * @return The number of times the phase was run.
+   */
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  /**
+   * @return The total duration in milliseconds.
+   */
+  public double getDuration() {
+    return toMillis(this.duration.sum());
+  }
+
+  /**
+   * @return The number of items processed.
+   */
+  public long getItems() {
+    return this.items.sum();
+  }
+
+  /**
+   * @return The longest single duration in milliseconds.
+   */
+  public double getMaximum() {
+    return toMillis(this.maximum.get());
+  }
+
+  /**
+   * @return The mean duration in milliseconds, or zero if the phase has not been run.
+   */
+  public double getMean() {
+    final long count = this.count.sum();
+
+    return (count > 0) ? toMillis(this.duration.sum()) / count : 0;
+  }
+
+  /**
+   * @return The number of items processed per second of accumulated duration, or zero if no time has been recorded.
+   */
+  public double getThroughput() {
+    final long duration = this.duration.sum();
+
+    return (duration > 0) ? this.items.sum() * (double) TimeUnit.SECONDS.toNanos(1) / duration : 0;
+  }
+
+  /**
+   * Records one run of the phase.
+   *
+   * @param nanos     The duration in nanoseconds.
+   * @param items     The number of items processed.
+   * @param thread    The name of the thread which ran the phase.
+   * @param allocated The number of bytes allocated by the thread, or a negative value if allocation cannot be measured.
+   */
+  void record(final long nanos, final long items, final String thread, final long allocated) {
+    this.count.increment();
+    this.duration.add(nanos);
+    this.items.add(items);
+    this.maximum.accumulateAndGet(nanos, Math::max);
+
+    if (allocated >= 0) {
+      this.allocatedByThread.computeIfAbsent(thread, name -> new LongAdder()).add(allocated);
+    }
+  }
+
+  /**
+   * @return The metrics as a map, in milliseconds and bytes, for reporting.
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("count", this.getCount());
+    map.put("items", this.getItems());
+    map.put("duration", this.getDuration());
+    map.put("mean", this.getMean());
+    map.put("max", this.getMaximum());
+    map.put("throughput", this.getThroughput());
+    map.put("allocated", this.getAllocated());
+    map.put("allocatedByThread", this.getAllocatedByThread());
+
+    return map;
+  }
+}
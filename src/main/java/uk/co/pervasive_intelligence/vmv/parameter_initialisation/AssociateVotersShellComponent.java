@@ -59,10 +59,13 @@ public class AssociateVotersShellComponent extends BaseShellComponent {
     try {
       LOG.info("associate-voters --election {} --voters {} --output {} --publish {}", options.election, options.voters, options.output, options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
 
       // Load in the pre-allocated list of voters with encrypted tracker numbers and commitments.
       final List<Voter> preallocatedVoterList = (List<Voter>) this.readCSV(options.voters.get(0), Voter.class, JacksonViews.Public.class);
@@ -75,10 +78,13 @@ public class AssociateVotersShellComponent extends BaseShellComponent {
       this.cryptographyHelper.associateVoters(ersVoterList, preallocatedVoterList);
 
       // Output the voter association ERS export.
-      this.writeCSV(options.output, Voter.class, preallocatedVoterList, JacksonViews.ERSExport.class);
+      this.writeCSV(options.output, Voter.class, preallocatedVoterList, JacksonViews.ERSExport.class, parameters.getElementEncoding());
 
       // Output for publication the public voter association.
-      this.writeCSV(options.publish, Voter.class, preallocatedVoterList, JacksonViews.Public.class);
+      this.writeCSV(options.publish, Voter.class, preallocatedVoterList, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("associate-voters", options.output);
     }
     catch (final Exception e) {
       LOG.error("associate-voters:", e);
@@ -16,11 +16,12 @@ import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -53,37 +54,40 @@ public class CreateCommitmentsShellComponent extends BaseShellComponent {
    * @param options The {@link JCommander} options.
    */
   @ShellMethod(value = "parameter_initialisation.create_commitments.help", group = "parameter_initialisation.group")
-  @SuppressWarnings("unchecked")
   public void createCommitments(@ShellOption(optOut = true) @Valid final CreateCommitmentsOptions options) {
     try {
       LOG.info("create-commitments --election {} --voters {} --tracker-numbers {} --output {} --publish {}", options.election, options.voters,
           options.trackerNumbers, options.output, options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
 
       // Load in the public voter key pairs and tracker numbers.
-      final List<VoterKeyPairs> votersKeyPairs = (List<VoterKeyPairs>) this.readCSV(options.voters, VoterKeyPairs.class, JacksonViews.Public.class);
-      final List<TrackerNumber> trackerNumberList = (List<TrackerNumber>) this.readCSV(options.trackerNumbers, TrackerNumber.class, JacksonViews.Public.class);
+      final List<VoterKeyPairs> votersKeyPairs = this.readCachedCSV(options.voters, VoterKeyPairs.class, JacksonViews.Public.class);
+      final List<TrackerNumber> trackerNumberList = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class, JacksonViews.Public.class);
 
       // Create the commitments.
       final ProofWrapper<List<Commitment>> commitmentsWithProof = this.cryptographyHelper.createCommitments(parameters, keyPair, votersKeyPairs,
-          trackerNumberList);
+          trackerNumberList, ProofArchive.isArchive(options.publish.get(1)));
 
       // Output the commitments.
-      this.writeCSV(options.output, Commitment.class, commitmentsWithProof.getObject());
+      this.writeCSV(options.output, Commitment.class, commitmentsWithProof.getObject(), null, parameters.getElementEncoding());
 
       // Output the public commitments for publication.
-      this.writeCSV(options.publish.get(0), Commitment.class, commitmentsWithProof.getObject(), JacksonViews.Public.class);
+      this.writeCSV(options.publish.get(0), Commitment.class, commitmentsWithProof.getObject(), JacksonViews.Public.class, parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file or archive, indexed by each voter's public key, to the output, if it exists.
       if ((commitmentsWithProof.getProofFile() != null) && commitmentsWithProof.getProofFile().exists()) {
-        options.publish.get(1).delete();
-        Files.copy(commitmentsWithProof.getProofFile().toPath(), options.publish.get(1).toPath());
-        commitmentsWithProof.getProofFile().delete();
+        ProofPackage.publish(commitmentsWithProof.getProofFile(), options.publish.get(1));
       }
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("create-commitments", options.output);
     }
     catch (final Exception e) {
       LOG.error("create-commitments:", e);
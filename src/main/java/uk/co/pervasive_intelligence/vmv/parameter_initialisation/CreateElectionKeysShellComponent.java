@@ -55,18 +55,24 @@ public class CreateElectionKeysShellComponent extends BaseShellComponent {
     LOG.info("create-election-keys --election {} --teller {} --output {} --publish {}", options.election, options.teller, options.output, options.publish);
 
     try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
 
       // Create the election key pair.
       final KeyPair keyPair = this.cryptographyHelper.createElectionKeyPair(parameters, options.teller);
 
       // Output the private (if available) and public key.
-      this.writeCSV(options.output, keyPair.getClass(), keyPair);
+      this.writeCSV(options.output, keyPair.getClass(), keyPair, null, parameters.getElementEncoding());
 
       // Output for publication the public key.
-      this.writeCSV(options.publish, keyPair.getClass(), keyPair, JacksonViews.Public.class);
+      this.writeCSV(options.publish, keyPair.getClass(), keyPair, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("create-election-keys", options.output);
     }
     catch (final Exception e) {
       LOG.error("create-election-keys:", e);
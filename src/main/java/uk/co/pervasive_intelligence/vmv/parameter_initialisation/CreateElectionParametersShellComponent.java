@@ -17,6 +17,7 @@ import uk.co.pervasive_intelligence.vmv.JacksonViews;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.AlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
 
 import javax.validation.Valid;
@@ -53,13 +54,18 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
   @ShellMethod(value = "parameter_initialisation.create_election_parameters.help", group = "parameter_initialisation.group")
   public void createElectionParameters(@ShellOption(optOut = true) @Valid final CreateElectionParametersOptions options) {
     LOG.info("create-election-parameters --publish {} --name {} --no-tellers {} --number-of-tellers {} --threshold-tellers {} --dsa-l {} --dsa-n {} " +
-            "--prime-certainty {}",
-        options.publish, options.name, options.noTellers, options.numberOfTellers, options.thresholdTellers, options.dsaL, options.dsaN, options.primeCertainty);
+            "--prime-certainty {} --element-encoding {}",
+        options.publish, options.name, options.noTellers, options.numberOfTellers, options.thresholdTellers, options.dsaL, options.dsaN, options.primeCertainty,
+        options.elementEncoding);
 
     try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Create the election parameters.
       final Parameters parameters = this.cryptographyHelper.createElectionParameters(options.dsaL, options.dsaN, options.primeCertainty);
       parameters.setName(options.name);
+      parameters.setElementEncoding(options.elementEncoding);
 
       if (options.noTellers) {
         parameters.setNumberOfTellers(0);
@@ -71,7 +77,10 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
       }
 
       // Output for publication the public parameters.
-      this.writeCSV(options.publish, parameters.getClass(), parameters, JacksonViews.Public.class);
+      this.writeCSV(options.publish, parameters.getClass(), parameters, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the published parameters.
+      this.writeMetrics("create-election-parameters", options.publish);
     }
     catch (final Exception e) {
       LOG.error("create-election-parameters:", e);
@@ -95,6 +104,10 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
     @Parameter(names = "--dsa-n")
     int dsaN = AlgorithmHelper.DEFAULT_LENGTH_N;
 
+    /** Optional encoding of group elements in CSV files written for the election. */
+    @Parameter(names = "--element-encoding", converter = JCommanderConfiguration.ElementEncodingConverter.class)
+    ElementEncoding elementEncoding = ElementEncoding.DECIMAL;
+
     /** The name of the election. */
     @Parameter(names = "--name", required = true)
     String name;
@@ -120,7 +133,7 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
     int thresholdTellers = CryptographyHelper.DEFAULT_THRESHOLD_TELLERS;
 
     /**
-     * Constructor allow the fields to be set.
+     * Constructor allow the fields to be set, using the default decimal encoding of group elements.
      *
      * @param publish          The publish file
      * @param name             The name of the election.
@@ -133,6 +146,24 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
      */
     public CreateElectionParametersOptions(final File publish, final String name, final boolean noTellers, final int numberOfTellers, final int thresholdTellers,
                                            final int dsaL, final int dsaN, final int primeCertainty) {
+      this(publish, name, noTellers, numberOfTellers, thresholdTellers, dsaL, dsaN, primeCertainty, ElementEncoding.DECIMAL);
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param publish          The publish file
+     * @param name             The name of the election.
+     * @param noTellers        Disable the use of tellers?
+     * @param numberOfTellers  The number of tellers.
+     * @param thresholdTellers The threshold number of tellers.
+     * @param dsaL             Optional DSA L parameter.
+     * @param dsaN             Optional DSA N parameter.
+     * @param primeCertainty   Optional prime certainty to use in parameter generation.
+     * @param elementEncoding  Optional encoding of group elements in CSV files written for the election.
+     */
+    public CreateElectionParametersOptions(final File publish, final String name, final boolean noTellers, final int numberOfTellers, final int thresholdTellers,
+                                           final int dsaL, final int dsaN, final int primeCertainty, final ElementEncoding elementEncoding) {
       this.publish = publish;
       this.name = name;
       this.noTellers = noTellers;
@@ -141,6 +172,7 @@ public class CreateElectionParametersShellComponent extends BaseShellComponent {
       this.dsaL = dsaL;
       this.dsaN = dsaN;
       this.primeCertainty = primeCertainty;
+      this.elementEncoding = elementEncoding;
     }
 
     /**
@@ -0,0 +1,124 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyShareCommitments;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import java.io.File;
+
+/**
+ * Create key shares shell command: a teller's contribution to the election key when the tellers generate it without a dealer. The share dealt to each teller is
+ * written into the teller directory and must be copied privately to its recipient.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class CreateKeySharesShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(CreateKeySharesShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   */
+  public CreateKeySharesShellComponent(final CryptographyHelper cryptographyHelper) {
+    this.cryptographyHelper = cryptographyHelper;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "parameter_initialisation.create_key_shares.help", group = "parameter_initialisation.group")
+  public void createKeyShares(@ShellOption(optOut = true) @Valid final CreateKeySharesOptions options) {
+    LOG.info("create-key-shares --election {} --teller {} --publish {}", options.election, options.teller, options.publish);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      // Load in the election parameters.
+      final Parameters parameters =
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+
+      // Deal the shares into the teller directory.
+      final KeyShareCommitments commitments = this.cryptographyHelper.createKeyShares(parameters, options.teller);
+
+      // Output for publication the commitments to the teller's polynomial.
+      new ObjectMapper().writeValue(options.publish, commitments);
+
+      // Write the metrics report next to the published commitments.
+      this.writeMetrics("create-key-shares", options.publish);
+    }
+    catch (final Exception e) {
+      LOG.error("create-key-shares:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("create-key-shares: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #createKeyShares(CreateKeySharesOptions)}.
+   */
+  public static class CreateKeySharesOptions {
+
+    /** The public election file. */
+    @Parameter(names = "--election", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File election;
+
+    /** The publish file. */
+    @Parameter(names = "--publish", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File publish;
+
+    /** The number of the teller. Each teller has a unique number, starting at 1. */
+    @Parameter(names = "--teller", required = true)
+    @Min(1)
+    int teller;
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election The public election file.
+     * @param teller   The number of the teller. Each teller has a unique number, starting at 1.
+     * @param publish  The publish file.
+     */
+    public CreateKeySharesOptions(final File election, final int teller, final File publish) {
+      this.election = election;
+      this.teller = teller;
+      this.publish = publish;
+    }
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private CreateKeySharesOptions() {
+      // Do nothing.
+    }
+  }
+}
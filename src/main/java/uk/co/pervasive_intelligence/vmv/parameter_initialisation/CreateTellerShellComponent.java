@@ -56,9 +56,12 @@ public class CreateTellerShellComponent extends BaseShellComponent {
         options.tellerPort, options.hintPort, options.publish);
 
     try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
 
       // Create the teller and obtain the path to its information file.
       final File tellerInformationFile = this.cryptographyHelper.createTeller(parameters, options.teller, options.ip, options.tellerPort, options.hintPort);
@@ -68,6 +71,9 @@ public class CreateTellerShellComponent extends BaseShellComponent {
         options.publish.delete();
         Files.copy(tellerInformationFile.toPath(), options.publish.toPath());
       }
+
+      // Write the metrics report next to the published teller information.
+      this.writeMetrics("create-teller", options.publish);
     }
     catch (final Exception e) {
       LOG.error("create-teller:", e);
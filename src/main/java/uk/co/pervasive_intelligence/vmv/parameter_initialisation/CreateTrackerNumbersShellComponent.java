@@ -58,16 +58,22 @@ public class CreateTrackerNumbersShellComponent extends BaseShellComponent {
     try {
       LOG.info("create-tracker-numbers --election {} --number-of-voters {} --publish {}", options.election, options.numberOfVoters, options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
 
       // Create the tracker numbers.
       final List<TrackerNumber> trackerNumbers = new ArrayList<>(this.cryptographyHelper.createTrackerNumbers(parameters, keyPair, options.numberOfVoters));
 
       // Output for publication the tracker numbers, including the restricted elements.
-      this.writeCSV(options.publish, TrackerNumber.class, trackerNumbers, JacksonViews.RestrictedPublic.class);
+      this.writeCSV(options.publish, TrackerNumber.class, trackerNumbers, JacksonViews.RestrictedPublic.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the published tracker numbers.
+      this.writeMetrics("create-tracker-numbers", options.publish);
     }
     catch (final Exception e) {
       LOG.error("create-tracker-numbers:", e);
@@ -7,6 +7,7 @@ package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.shell.standard.ShellComponent;
@@ -14,18 +15,20 @@ import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Decrypt commitments shell command.
+ * Decrypt commitments shell command. Where the tellers hold their own key shares, the commitments are first written with --ciphertexts for each teller to
+ * create its decryption share, and then decrypted by combining a threshold number of the shares with --decryption-shares.
  *
  * @author Matthew Casey, Pervasive Intelligence Ltd
  */
@@ -56,17 +59,21 @@ public class DecryptCommitmentsShellComponent extends BaseShellComponent {
   @SuppressWarnings("unchecked")
   public void decryptCommitments(@ShellOption(optOut = true) @Valid final DecryptCommitmentsOptions options) {
     try {
-      LOG.info("decrypt-commitments --election {} --teller {} --voters {} --tracker-numbers {} --commitments {} --publish {}", options.election, options.teller,
-          options.voters, options.trackerNumbers, options.commitments, options.publish);
+      LOG.info("decrypt-commitments --election {} --teller {} --voters {} --tracker-numbers {} --commitments {} --ciphertexts {} --decryption-shares {} " +
+          "--publish {}", options.election, options.teller, options.voters, options.trackerNumbers, options.commitments, options.cipherTexts,
+          options.decryptionShares, options.publish);
+
+      // Record the metrics of this command only.
+      this.startMetrics();
 
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, null).get(0);
 
       // Load in the public voter key pairs, tracker numbers.
-      final List<VoterKeyPairs> votersKeyPairs = (List<VoterKeyPairs>) this.readCSV(options.voters, VoterKeyPairs.class, JacksonViews.Public.class);
-      final List<TrackerNumber> trackerNumberList = (List<TrackerNumber>) this.readCSV(options.trackerNumbers, TrackerNumber.class, JacksonViews.Public.class);
+      final List<VoterKeyPairs> votersKeyPairs = this.readCachedCSV(options.voters, VoterKeyPairs.class, JacksonViews.Public.class);
+      final List<TrackerNumber> trackerNumberList = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class, JacksonViews.Public.class);
 
       // Load in all of the commitments files.
       final List<List<Commitment>> commitmentsLists = new ArrayList<>();
@@ -75,19 +82,48 @@ public class DecryptCommitmentsShellComponent extends BaseShellComponent {
         commitmentsLists.add((List<Commitment>) this.readCSV(file, Commitment.class, JacksonViews.Public.class));
       }
 
-      // Decrypt the commitments.
-      final ProofWrapper<List<Voter>> votersWithProof = this.cryptographyHelper.decryptCommitments(parameters, keyPair, options.teller, votersKeyPairs,
-          trackerNumberList, commitmentsLists);
+      // Where the tellers decrypt with their own key shares, first output the commitments for each teller to create its decryption share.
+      if ((options.cipherTexts != null) && options.decryptionShares.isEmpty()) {
+        final List<CipherText> cipherTexts = this.cryptographyHelper.formCommitments(parameters, votersKeyPairs, trackerNumberList, commitmentsLists);
+        this.writeCSV(options.cipherTexts, CipherText.class, cipherTexts, null, parameters.getElementEncoding());
+
+        // Write the metrics report next to the commitments.
+        this.writeMetrics("decrypt-commitments", options.cipherTexts);
+        return;
+      }
+
+      if (options.publish.size() != 2) {
+        throw new VMVException("Publish files are needed to decrypt the commitments");
+      }
+
+      // Decrypt the commitments, combining the tellers' decryption shares if they are supplied.
+      final ProofWrapper<List<Voter>> votersWithProof;
+
+      if (options.decryptionShares.isEmpty()) {
+        votersWithProof = this.cryptographyHelper.decryptCommitments(parameters, keyPair, options.teller, votersKeyPairs, trackerNumberList, commitmentsLists);
+      }
+      else {
+        final ObjectMapper mapper = new ObjectMapper();
+        final List<DecryptionShare> decryptionShares = new ArrayList<>();
+
+        for (final File file : options.decryptionShares) {
+          decryptionShares.add(mapper.readValue(file, DecryptionShare.class));
+        }
+
+        votersWithProof = this.cryptographyHelper.decryptCommitments(parameters, keyPair, options.teller, votersKeyPairs, trackerNumberList, commitmentsLists,
+            decryptionShares);
+      }
 
       // Output the public voters for publication.
-      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Public.class);
+      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Public.class, parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file to the output, if it exists.
       if ((votersWithProof.getProofFile() != null) && votersWithProof.getProofFile().exists()) {
-        options.publish.get(1).delete();
-        Files.copy(votersWithProof.getProofFile().toPath(), options.publish.get(1).toPath());
-        votersWithProof.getProofFile().delete();
+        ProofPackage.publish(votersWithProof.getProofFile(), options.publish.get(1));
       }
+
+      // Write the metrics report next to the published voters.
+      this.writeMetrics("decrypt-commitments", options.publish.get(0));
     }
     catch (final Exception e) {
       LOG.error("decrypt-commitments:", e);
@@ -103,16 +139,24 @@ public class DecryptCommitmentsShellComponent extends BaseShellComponent {
    */
   public static class DecryptCommitmentsOptions {
 
+    /** The file to which the commitments are written for the tellers to create their decryption shares, instead of decrypting them. */
+    @Parameter(names = "--ciphertexts", converter = JCommanderConfiguration.FileConverter.class)
+    File cipherTexts;
+
     /** The commitments file. */
     @Parameter(names = "--commitments", variableArity = true, required = true, converter = JCommanderConfiguration.FileConverter.class)
     List<File> commitments = new ArrayList<>();
 
+    /** The published decryption shares of a threshold number of tellers to combine, rather than decrypting with Verificatum. */
+    @Parameter(names = "--decryption-shares", variableArity = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> decryptionShares = new ArrayList<>();
+
     /** The public election file. */
     @Parameter(names = "--election", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
     List<File> election = new ArrayList<>();
 
-    /** The publish file. */
-    @Parameter(names = "--publish", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    /** The publish file. Not needed when only writing the commitments for the tellers to decrypt. */
+    @Parameter(names = "--publish", arity = 2, converter = JCommanderConfiguration.FileConverter.class)
     List<File> publish = new ArrayList<>();
 
     /** The number of the teller. Each teller has a unique number, starting at 1. */
@@ -139,6 +183,27 @@ public class DecryptCommitmentsShellComponent extends BaseShellComponent {
      */
     public DecryptCommitmentsOptions(final List<File> election, final int teller, final File voters, final File trackerNumbers, final List<File> commitments,
                                      final List<File> publish) {
+      this(election, teller, voters, trackerNumbers, commitments, null, null, publish);
+    }
+
+    /**
+     * Constructor allow the fields to be set, including those used when the tellers decrypt with their own key shares.
+     *
+     * @param election         The public election files.
+     * @param teller           The number of the teller. Each teller has a unique number, starting at 1.
+     * @param voters           The voter key pairs file.
+     * @param trackerNumbers   The tracker numbers file.
+     * @param commitments      The commitments files.
+     * @param cipherTexts      The file to which the commitments are written for the tellers to create their decryption shares. May be null.
+     * @param decryptionShares The published decryption shares of a threshold number of tellers to combine. May be null.
+     * @param publish          The publish files.
+     */
+    public DecryptCommitmentsOptions(final List<File> election, final int teller, final File voters, final File trackerNumbers, final List<File> commitments,
+                                     final File cipherTexts, final List<File> decryptionShares, final List<File> publish) {
+      this.cipherTexts = cipherTexts;
+      if (decryptionShares != null) {
+        this.decryptionShares.addAll(decryptionShares);
+      }
       if (election != null) {
         this.election.addAll(election);
       }
@@ -57,9 +57,12 @@ public class MapVoteOptionsShellComponent extends BaseShellComponent {
     LOG.info("map-vote-options --election {} --votes {} --publish {}", options.election, options.voteOptions, options.publish);
 
     try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
 
       // Load in the vote options file.
       final List<VoteOption> voteOptions = (List<VoteOption>) this.readCSV(options.voteOptions, VoteOption.class, JacksonViews.ERSImport.class);
@@ -69,7 +72,10 @@ public class MapVoteOptionsShellComponent extends BaseShellComponent {
       this.cryptographyHelper.mapVoteOptions(parameters, voteOptions);
 
       // Output for publication the mapped vote options.
-      this.writeCSV(options.publish, VoteOption.class, voteOptions, JacksonViews.Public.class);
+      this.writeCSV(options.publish, VoteOption.class, voteOptions, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the published vote options.
+      this.writeMetrics("map-vote-options", options.publish);
     }
     catch (final Exception e) {
       LOG.error("map-vote-options:", e);
@@ -0,0 +1,181 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyPair;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyShareCommitments;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Merge key shares shell command: completes a teller's key share from the shares dealt to it by every teller, and creates the election public key in the same way
+ * as {@link CreateElectionKeysShellComponent}.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class MergeKeySharesShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(MergeKeySharesShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   */
+  public MergeKeySharesShellComponent(final CryptographyHelper cryptographyHelper) {
+    this.cryptographyHelper = cryptographyHelper;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "parameter_initialisation.merge_key_shares.help", group = "parameter_initialisation.group")
+  public void mergeKeyShares(@ShellOption(optOut = true) @Valid final MergeKeySharesOptions options) {
+    LOG.info("merge-key-shares --election {} --teller {} --commitments {} --key-share-deals {} --output {} --publish {}", options.election, options.teller,
+        options.commitments, options.keyShareDeals, options.output, options.publish);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      // Load in the election parameters.
+      final Parameters parameters =
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+
+      // Copy any key share deals to their corresponding local files in the local teller directory. This assumes the files are in the right order for each teller.
+      if (!options.keyShareDeals.isEmpty()) {
+        final File[] localFiles = this.cryptographyHelper.getKeyShareDealFiles(parameters, options.teller);
+
+        if (options.keyShareDeals.size() != localFiles.length) {
+          throw new CryptographyException("Number of key share deal files and expected number do not match: " + options.keyShareDeals.size() + " vs. " +
+              localFiles.length);
+        }
+
+        for (int i = 0; i < localFiles.length; i++) {
+          if (!options.keyShareDeals.get(i).getAbsoluteFile().equals(localFiles[i].getAbsoluteFile())) {
+            localFiles[i].delete();
+            Files.copy(options.keyShareDeals.get(i).toPath(), localFiles[i].toPath());
+          }
+        }
+      }
+
+      // Load in the published commitments of every teller.
+      final ObjectMapper mapper = new ObjectMapper();
+      final List<KeyShareCommitments> commitments = new ArrayList<>();
+
+      for (final File file : options.commitments) {
+        commitments.add(mapper.readValue(file, KeyShareCommitments.class));
+      }
+
+      // Merge the key shares.
+      final KeyPair keyPair = this.cryptographyHelper.mergeKeyShares(parameters, options.teller, commitments);
+
+      // Output the public key, since the teller's key share is held in the teller directory.
+      this.writeCSV(options.output, keyPair.getClass(), keyPair, null, parameters.getElementEncoding());
+
+      // Output for publication the public key.
+      this.writeCSV(options.publish, keyPair.getClass(), keyPair, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("merge-key-shares", options.output);
+    }
+    catch (final Exception e) {
+      LOG.error("merge-key-shares:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("merge-key-shares: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #mergeKeyShares(MergeKeySharesOptions)}.
+   */
+  public static class MergeKeySharesOptions {
+
+    /** The published commitments files of every teller, in teller order. */
+    @Parameter(names = "--commitments", variableArity = true, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> commitments = new ArrayList<>();
+
+    /** The public election file. */
+    @Parameter(names = "--election", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File election;
+
+    /** The key share deal files dealt to the teller by every teller, in teller order, if not already in the teller directory. */
+    @Parameter(names = "--key-share-deals", variableArity = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> keyShareDeals = new ArrayList<>();
+
+    /** The output file. */
+    @Parameter(names = "--output", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File output;
+
+    /** The publish file. */
+    @Parameter(names = "--publish", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File publish;
+
+    /** The number of the teller. Each teller has a unique number, starting at 1. */
+    @Parameter(names = "--teller", required = true)
+    @Min(1)
+    int teller;
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election      The public election file.
+     * @param teller        The number of the teller. Each teller has a unique number, starting at 1.
+     * @param commitments   The published commitments files of every teller, in teller order.
+     * @param keyShareDeals The key share deal files dealt to the teller by every teller, in teller order. May be null if already in the teller directory.
+     * @param output        The output file.
+     * @param publish       The publish file.
+     */
+    public MergeKeySharesOptions(final File election, final int teller, final List<File> commitments, final List<File> keyShareDeals, final File output,
+                                 final File publish) {
+      this.election = election;
+      this.teller = teller;
+      if (commitments != null) {
+        this.commitments.addAll(commitments);
+      }
+      if (keyShareDeals != null) {
+        this.keyShareDeals.addAll(keyShareDeals);
+      }
+      this.output = output;
+      this.publish = publish;
+    }
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private MergeKeySharesOptions() {
+      // Do nothing.
+    }
+  }
+}
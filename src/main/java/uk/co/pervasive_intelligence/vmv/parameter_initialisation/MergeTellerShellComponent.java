@@ -60,7 +60,7 @@ public class MergeTellerShellComponent extends BaseShellComponent {
     try {
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
 
       // Copy all of the teller information files to their corresponding local files in the local teller directory. This assumes the files are correct and in the
       // right order for each teller.
@@ -16,13 +16,14 @@ import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyPair;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.ProofWrapper;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.TrackerNumber;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -55,33 +56,42 @@ public class ShuffleTrackerNumbersShellComponent extends BaseShellComponent {
    * @param options The {@link JCommander} options.
    */
   @ShellMethod(value = "parameter_initialisation.shuffle_tracker_numbers.help", group = "parameter_initialisation.group")
-  @SuppressWarnings("unchecked")
   public void shuffleTrackerNumbers(@ShellOption(optOut = true) @Valid final ShuffleTrackerNumbersOptions options) {
     try {
       LOG.info("shuffle-tracker-numbers --election {} --teller {} --tracker-numbers {} --publish {}", options.election, options.teller, options.trackerNumbers,
           options.publish);
 
-      // Load in the election parameters.
-      final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      // Load in the election parameters and, if provided, the public key needed to shuffle without tellers.
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+          JacksonViews.Public.class).get(0);
+      KeyPair keyPair = null;
+
+      if (options.election.size() > 1) {
+        keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      }
 
       // Load in the tracker numbers, including their restricted elements.
-      final List<TrackerNumber> trackerNumberList = (List<TrackerNumber>) this.readCSV(options.trackerNumbers, TrackerNumber.class,
+      final List<TrackerNumber> trackerNumberList = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class,
           JacksonViews.RestrictedPublic.class);
 
       // Shuffle the tracker numbers.
-      final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = this.cryptographyHelper.shuffleTrackerNumbers(parameters, options.teller,
+      final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = this.cryptographyHelper.shuffleTrackerNumbers(parameters, keyPair, options.teller,
           trackerNumberList);
 
       // Output for publication the shuffled tracker numbers.
-      this.writeCSV(options.publish.get(0), TrackerNumber.class, shuffledTrackerNumbersWithProof.getObject(), JacksonViews.Public.class);
+      this.writeCSV(options.publish.get(0), TrackerNumber.class, shuffledTrackerNumbersWithProof.getObject(), JacksonViews.Public.class,
+          parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file to the output, if it exists.
       if ((shuffledTrackerNumbersWithProof.getProofFile() != null) && shuffledTrackerNumbersWithProof.getProofFile().exists()) {
-        options.publish.get(1).delete();
-        Files.copy(shuffledTrackerNumbersWithProof.getProofFile().toPath(), options.publish.get(1).toPath());
-        shuffledTrackerNumbersWithProof.getProofFile().delete();
+        ProofPackage.publish(shuffledTrackerNumbersWithProof.getProofFile(), options.publish.get(1));
       }
+
+      // Write the metrics report next to the published tracker numbers.
+      this.writeMetrics("shuffle-tracker-numbers", options.publish.get(0));
     }
     catch (final Exception e) {
       LOG.error("shuffle-tracker-numbers:", e);
@@ -97,9 +107,9 @@ public class ShuffleTrackerNumbersShellComponent extends BaseShellComponent {
    */
   public static class ShuffleTrackerNumbersOptions {
 
-    /** The public election file. */
-    @Parameter(names = "--election", required = true, converter = JCommanderConfiguration.FileConverter.class)
-    File election;
+    /** The public election files: the parameters and, without tellers, the public key. */
+    @Parameter(names = "--election", variableArity = true, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> election = new ArrayList<>();
 
     /** The publish file. */
     @Parameter(names = "--publish", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
@@ -116,13 +126,15 @@ public class ShuffleTrackerNumbersShellComponent extends BaseShellComponent {
     /**
      * Constructor allow the fields to be set.
      *
-     * @param election       The public election file.
+     * @param election       The public election files: the parameters and, without tellers, the public key.
      * @param teller         The number of the teller. Each teller has a unique number, starting at 1.
      * @param trackerNumbers The tracker numbers.
      * @param publish        The publish files.
      */
-    public ShuffleTrackerNumbersOptions(final File election, final int teller, final File trackerNumbers, final List<File> publish) {
-      this.election = election;
+    public ShuffleTrackerNumbersOptions(final List<File> election, final int teller, final File trackerNumbers, final List<File> publish) {
+      if (election != null) {
+        this.election.addAll(election);
+      }
       this.teller = teller;
       this.trackerNumbers = trackerNumbers;
       if (publish != null) {
@@ -56,18 +56,24 @@ public class VoterCreateKeysShellComponent extends BaseShellComponent {
     try {
       LOG.info("voter-create-keys --election {} --output {} --publish {}", options.election, options.output, options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
 
       // Create the voter's trapdoor and signature key pairs.
       final List<VoterKeyPairs> keyPairs = this.cryptographyHelper.createVotersKeyPairs(1, parameters);
 
       // Output the private and public voter parameters and key pairs.
-      this.writeCSV(options.output, VoterKeyPairs.class, keyPairs);
+      this.writeCSV(options.output, VoterKeyPairs.class, keyPairs, null, parameters.getElementEncoding());
 
       // Output for publication the public voter parameters and public keys.
-      this.writeCSV(options.publish, VoterKeyPairs.class, keyPairs, JacksonViews.Public.class);
+      this.writeCSV(options.publish, VoterKeyPairs.class, keyPairs, JacksonViews.Public.class, parameters.getElementEncoding());
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("voter-create-keys", options.output);
     }
     catch (final Exception e) {
       LOG.error("voter-create-keys:", e);
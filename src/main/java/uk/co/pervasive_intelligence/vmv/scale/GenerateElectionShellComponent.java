@@ -0,0 +1,136 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.VoteOption;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generate election shell command. Generates the synthetic ERS files for an election of a given size: the voters, numbered from zero, and the vote options.
+ * The voters are created as they are written, so that even the largest electorates are not held in memory. The voters' plaintext votes are generated by
+ * {@link GenerateVotesShellComponent} once the voters have been associated with their keys.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class GenerateElectionShellComponent extends BaseShellComponent {
+
+  /** The prefix of each generated vote option. */
+  static final String OPTION_PREFIX = "Option ";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(GenerateElectionShellComponent.class);
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "scale.generate_election.help", group = "scale.group")
+  public void generateElection(@ShellOption(optOut = true) @Valid final GenerateElectionOptions options) {
+    LOG.info("generate-election --number-of-voters {} --number-of-options {} --output {}", options.numberOfVoters, options.numberOfOptions, options.output);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      if ((options.numberOfVoters < 1) || (options.numberOfOptions < 1)) {
+        throw new VMVException("Number of voters and vote options must be positive");
+      }
+
+      if (options.output.size() != 2) {
+        throw new VMVException("Output needs ERS voters and ERS vote options files");
+      }
+
+      // Output the voters for import, creating each voter only as it is written.
+      this.writeCSV(options.output.get(0), Voter.class, new AbstractList<Voter>() {
+        @Override
+        public Voter get(final int index) {
+          return new Voter(index);
+        }
+
+        @Override
+        public int size() {
+          return options.numberOfVoters;
+        }
+      }, JacksonViews.ERSImport.class);
+
+      // Output the vote options for import.
+      final List<VoteOption> voteOptions = new ArrayList<>();
+
+      for (int i = 1; i <= options.numberOfOptions; i++) {
+        voteOptions.add(new VoteOption(OPTION_PREFIX + i));
+      }
+
+      this.writeCSV(options.output.get(1), VoteOption.class, voteOptions, JacksonViews.ERSImport.class);
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("generate-election", options.output.get(0));
+    }
+    catch (final Exception e) {
+      LOG.error("generate-election:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("generate-election: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #generateElection(GenerateElectionOptions)}.
+   */
+  public static class GenerateElectionOptions {
+
+    /** The number of vote options. */
+    @Parameter(names = "--number-of-options")
+    int numberOfOptions = 4;
+
+    /** The number of voters. */
+    @Parameter(names = "--number-of-voters", required = true)
+    int numberOfVoters;
+
+    /** The ERS voters and ERS vote options files. */
+    @Parameter(names = "--output", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> output = new ArrayList<>();
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private GenerateElectionOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param numberOfVoters  The number of voters.
+     * @param numberOfOptions The number of vote options.
+     * @param output          The ERS voters and ERS vote options files.
+     */
+    public GenerateElectionOptions(final int numberOfVoters, final int numberOfOptions, final List<File> output) {
+      this.numberOfVoters = numberOfVoters;
+      this.numberOfOptions = numberOfOptions;
+      this.output = output;
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.VoteOption;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Generate votes shell command. Generates the synthetic ERS plaintext votes for the voters once they have been associated with their keys. Each voter's vote
+ * is chosen at random from the vote options using a seed and the voter's identifier, so that the same votes are generated for the same seed, and a percentage
+ * of voters may abstain.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class GenerateVotesShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(GenerateVotesShellComponent.class);
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "scale.generate_votes.help", group = "scale.group")
+  public void generateVotes(@ShellOption(optOut = true) @Valid final GenerateVotesOptions options) {
+    LOG.info("generate-votes --voters {} --votes {} --abstentions {} --seed {} --output {}", options.voters, options.votes, options.abstentions, options.seed,
+        options.output);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      if ((options.abstentions < 0) || (options.abstentions > 100)) {
+        throw new VMVException("Abstentions must be a percentage");
+      }
+
+      // Load in the associated voters and the vote options.
+      final List<Voter> voters = this.readCSV(options.voters, Voter.class, JacksonViews.ERSExport.class, new ArrayList<>());
+      final List<VoteOption> voteOptions = this.readCSV(options.votes, VoteOption.class, JacksonViews.ERSImport.class, new ArrayList<>());
+
+      if (voteOptions.isEmpty()) {
+        throw new VMVException("No vote options");
+      }
+
+      // Choose each voter's vote, if they vote.
+      for (final Voter voter : voters) {
+        final SplittableRandom random = new SplittableRandom(options.seed + voter.getId());
+
+        if (random.nextInt(100) >= options.abstentions) {
+          voter.setPlainTextVote(voteOptions.get(random.nextInt(voteOptions.size())).getOption());
+        }
+      }
+
+      // Output the voters with their plaintext votes for import.
+      this.writeCSV(options.output, Voter.class, voters, JacksonViews.ERSVoteImport.class);
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("generate-votes", options.output);
+    }
+    catch (final Exception e) {
+      LOG.error("generate-votes:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("generate-votes: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #generateVotes(GenerateVotesOptions)}.
+   */
+  public static class GenerateVotesOptions {
+
+    /** The percentage of voters who do not vote. */
+    @Parameter(names = "--abstentions")
+    int abstentions = 0;
+
+    /** The ERS plaintext voters file. */
+    @Parameter(names = "--output", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File output;
+
+    /** The seed from which the votes are chosen. */
+    @Parameter(names = "--seed")
+    long seed = 0;
+
+    /** The ERS associated voters file. */
+    @Parameter(names = "--voters", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File voters;
+
+    /** The ERS vote options file. */
+    @Parameter(names = "--votes", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File votes;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private GenerateVotesOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param voters      The ERS associated voters file.
+     * @param votes       The ERS vote options file.
+     * @param abstentions The percentage of voters who do not vote.
+     * @param seed        The seed from which the votes are chosen.
+     * @param output      The ERS plaintext voters file.
+     */
+    public GenerateVotesOptions(final File voters, final File votes, final int abstentions, final long seed, final File output) {
+      this.voters = voters;
+      this.votes = votes;
+      this.abstentions = abstentions;
+      this.seed = seed;
+      this.output = output;
+    }
+  }
+}
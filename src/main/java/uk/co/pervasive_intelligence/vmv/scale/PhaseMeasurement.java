@@ -0,0 +1,141 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The resources used by one phase of an election of a given size: the wall and CPU time taken, the peak heap used, the size of each file written and the
+ * metrics of the operations run within the phase. The scaling exponent compares the wall time with the same phase of the next smaller election, so that a
+ * phase whose time grows faster than the number of voters can be seen.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class PhaseMeasurement {
+
+  /** The CPU time used by this process in milliseconds, or a negative value if it cannot be measured. */
+  private final long cpuTime;
+
+  /** The scaling exponent of the wall time from the next smaller election, or null if there is none. */
+  private Double exponent = null;
+
+  /** The size in bytes of each file written, by file name. */
+  private final Map<String, Long> files;
+
+  /** The name of the phase, which is the command run. */
+  private final String name;
+
+  /** The number of voters in the election. */
+  private final int numberOfVoters;
+
+  /** The metrics of each phase of each operation run within the phase, or null if there are none. */
+  private final Object operations;
+
+  /** The peak heap used in bytes. */
+  private final long peakHeap;
+
+  /** The wall time in milliseconds. */
+  private final long wallTime;
+
+  /**
+   * Constructor requiring all of the measurements.
+   *
+   * @param name           The name of the phase, which is the command run.
+   * @param numberOfVoters The number of voters in the election.
+   * @param wallTime       The wall time in milliseconds.
+   * @param cpuTime        The CPU time used by this process in milliseconds, or a negative value if it cannot be measured.
+   * @param peakHeap       The peak heap used in bytes.
+   * @param files          The size in bytes of each file written, by file name.
+   * @param operations     The metrics of each phase of each operation run within the phase, or null if there are none.
+   */
+  public PhaseMeasurement(final String name, final int numberOfVoters, final long wallTime, final long cpuTime, final long peakHeap,
+                          final Map<String, Long> files, final Object operations) {
+    this.name = name;
+    this.numberOfVoters = numberOfVoters;
+    this.wallTime = wallTime;
+    this.cpuTime = cpuTime;
+    this.peakHeap = peakHeap;
+    this.files = new TreeMap<>(files);
+    this.operations = operations;
+  }
+
+  /**
+   * Calculates the scaling exponent of this phase from the same phase of a smaller election: the power of the number of voters by which the wall time grows,
+   * which is 1 for a phase that scales linearly and 2 for one that scales quadratically. No exponent is calculated if either wall time is too short to
+   * compare.
+   *
+   * @param smaller The same phase of a smaller election.
+   */
+  public void compare(final PhaseMeasurement smaller) {
+    if ((smaller.numberOfVoters < this.numberOfVoters) && (smaller.wallTime > 0) && (this.wallTime > 0)) {
+      this.exponent = Math.log(this.wallTime / (double) smaller.wallTime) / Math.log(this.numberOfVoters / (double) smaller.numberOfVoters);
+    }
+  }
+
+  /**
+   * @return The CPU time used by this process in milliseconds, or a negative value if it cannot be measured.
+   */
+  public long getCpuTime() {
+    return this.cpuTime;
+  }
+
+  /**
+   * @return The scaling exponent of the wall time from the next smaller election, or null if there is none.
+   */
+  public Double getExponent() {
+    return this.exponent;
+  }
+
+  /**
+   * @return The size in bytes of each file written, by file name.
+   */
+  public Map<String, Long> getFiles() {
+    return this.files;
+  }
+
+  /**
+   * @return The total size in bytes of the files written.
+   */
+  public long getFilesSize() {
+    return this.files.values().stream().mapToLong(Long::longValue).sum();
+  }
+
+  /**
+   * @return The name of the phase, which is the command run.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * @return The number of voters in the election.
+   */
+  public int getNumberOfVoters() {
+    return this.numberOfVoters;
+  }
+
+  /**
+   * @return The metrics of each phase of each operation run within the phase, or null if there are none.
+   */
+  public Object getOperations() {
+    return this.operations;
+  }
+
+  /**
+   * @return The peak heap used in bytes.
+   */
+  public long getPeakHeap() {
+    return this.peakHeap;
+  }
+
+  /**
+   * @return The wall time in milliseconds.
+   */
+  public long getWallTime() {
+    return this.wallTime;
+  }
+}
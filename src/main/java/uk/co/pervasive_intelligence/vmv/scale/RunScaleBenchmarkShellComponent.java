@@ -0,0 +1,228 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.cryptography.AlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowRunner;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Run scale benchmark shell command. Runs a complete synthetic election for each of a number of electorate sizes, from generating the ERS files through to
+ * mixing the votes and verifying the proofs, measuring the wall time, CPU time, peak heap and file sizes of each phase. Each phase is compared with the same
+ * phase of the next smaller election, so that phases whose time grows faster than the number of voters are reported. The measurements are written as a JSON
+ * report so that runs can be compared.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class RunScaleBenchmarkShellComponent extends BaseShellComponent {
+
+  /** The default name of the report file within the directory. */
+  static final String DEFAULT_REPORT = "scale-report.json";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(RunScaleBenchmarkShellComponent.class);
+
+  /** The application context containing the shell components. */
+  private final ApplicationContext context;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /** The resolver used to parse the options of each command. */
+  private final JCommanderParameterResolver resolver;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param context       The application context containing the shell components.
+   * @param resolver      The resolver used to parse the options of each command.
+   * @param messageSource The source for messages.
+   */
+  public RunScaleBenchmarkShellComponent(final ApplicationContext context, final JCommanderParameterResolver resolver, final MessageSource messageSource) {
+    this.context = context;
+    this.resolver = resolver;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "scale.run_scale_benchmark.help", group = "scale.group")
+  public void runScaleBenchmark(@ShellOption(optOut = true) @Valid final RunScaleBenchmarkOptions options) {
+    LOG.info("run-scale-benchmark --number-of-voters {} --number-of-tellers {} --threshold-tellers {} --number-of-options {} --dsa-l {} --dsa-n {} "
+            + "--directory {} --report {} --superlinear {}", options.numberOfVoters, options.numberOfTellers, options.thresholdTellers, options.numberOfOptions,
+        options.dsaL, options.dsaN, options.directory, options.report, options.superlinear);
+
+    try {
+      if ((options.numberOfTellers < 0) || (options.numberOfTellers == 1)) {
+        throw new VMVException("Number of tellers must be zero, for no tellers, or at least two");
+      }
+
+      // Proofs written by the simulated Verificatum cannot be verified.
+      final boolean simulated = this.context.getEnvironment().getProperty("vmv.verificatum.simulate", Boolean.class, false);
+      final ScaleRunner runner = new ScaleRunner(new WorkflowRunner(this.context, this.resolver, VMVCommandLine.findCommands()), this.getMetrics(),
+          this.getArtefactCache(),
+          options.numberOfTellers, options.thresholdTellers, options.numberOfOptions, options.dsaL, options.dsaN, (options.numberOfTellers == 0) || !simulated);
+
+      // Run each election in its own directory, smallest first, comparing each phase with the previous election.
+      final List<Integer> sizes = new ArrayList<>(new TreeSet<>(options.numberOfVoters));
+      final List<PhaseMeasurement> measurements = new ArrayList<>();
+      final Map<String, PhaseMeasurement> previous = new HashMap<>();
+
+      for (final int numberOfVoters : sizes) {
+        for (final PhaseMeasurement measurement : runner.run(new File(options.directory, "voters-" + numberOfVoters), numberOfVoters)) {
+          if (previous.containsKey(measurement.getName())) {
+            measurement.compare(previous.get(measurement.getName()));
+          }
+
+          previous.put(measurement.getName(), measurement);
+          measurements.add(measurement);
+          this.print(measurement, options.superlinear);
+        }
+      }
+
+      // Output the report.
+      final File report = (options.report != null) ? options.report : new File(options.directory, DEFAULT_REPORT);
+      final Map<String, Object> content = new LinkedHashMap<>();
+      content.put("created", Instant.now().toString());
+      content.put("processors", Runtime.getRuntime().availableProcessors());
+      content.put("maxHeap", Runtime.getRuntime().maxMemory());
+      content.put("numberOfTellers", options.numberOfTellers);
+      content.put("thresholdTellers", options.thresholdTellers);
+      content.put("simulatedVerificatum", simulated);
+      content.put("numberOfOptions", options.numberOfOptions);
+      content.put("dsaL", options.dsaL);
+      content.put("dsaN", options.dsaN);
+      content.put("numberOfVoters", sizes);
+      content.put("phases", measurements);
+
+      new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report, content);
+      System.out.println(this.messageSource.getMessage("scale.run_scale_benchmark.report", new Object[] {report}, null));
+    }
+    catch (final Exception e) {
+      LOG.error("run-scale-benchmark:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("run-scale-benchmark: complete");
+    }
+  }
+
+  /**
+   * Prints the measurements of a phase, and whether it scales superlinearly.
+   *
+   * @param measurement The measurements of the phase.
+   * @param superlinear The scaling exponent above which the phase is reported as scaling superlinearly.
+   */
+  private void print(final PhaseMeasurement measurement, final double superlinear) {
+    final Double exponent = measurement.getExponent();
+    final String formatted = (exponent != null) ? String.format("%.2f", exponent) : "-";
+
+    System.out.println(this.messageSource.getMessage("scale.run_scale_benchmark.phase", new Object[] {measurement.getNumberOfVoters(), measurement.getName(),
+        measurement.getWallTime(), measurement.getCpuTime(), measurement.getPeakHeap() / (1024 * 1024), measurement.getFilesSize(), formatted}, null));
+
+    if ((exponent != null) && (exponent > superlinear)) {
+      System.out.println(this.messageSource.getMessage("scale.run_scale_benchmark.superlinear", new Object[] {measurement.getName(),
+          measurement.getNumberOfVoters(), formatted}, null));
+    }
+  }
+
+  /**
+   * The command line options for {@link #runScaleBenchmark(RunScaleBenchmarkOptions)}.
+   */
+  public static class RunScaleBenchmarkOptions {
+
+    /** The directory in which each election is run. */
+    @Parameter(names = "--directory", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File directory;
+
+    /** The length of p in bits. */
+    @Parameter(names = "--dsa-l")
+    int dsaL = AlgorithmHelper.DEFAULT_LENGTH_L;
+
+    /** The length of q in bits. */
+    @Parameter(names = "--dsa-n")
+    int dsaN = AlgorithmHelper.DEFAULT_LENGTH_N;
+
+    /** The number of vote options. */
+    @Parameter(names = "--number-of-options")
+    int numberOfOptions = 4;
+
+    /** The number of tellers, or zero to run without tellers. */
+    @Parameter(names = "--number-of-tellers")
+    int numberOfTellers = 0;
+
+    /** The number of voters in each election. */
+    @Parameter(names = "--number-of-voters", variableArity = true, required = true)
+    List<Integer> numberOfVoters = new ArrayList<>();
+
+    /** The optional report file, otherwise the report is written into the directory. */
+    @Parameter(names = "--report", converter = JCommanderConfiguration.FileConverter.class)
+    File report;
+
+    /** The scaling exponent above which a phase is reported as scaling superlinearly. */
+    @Parameter(names = "--superlinear")
+    double superlinear = 1.2;
+
+    /** The threshold number of tellers. */
+    @Parameter(names = "--threshold-tellers")
+    int thresholdTellers = 2;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private RunScaleBenchmarkOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param numberOfVoters   The number of voters in each election.
+     * @param numberOfTellers  The number of tellers, or zero to run without tellers.
+     * @param thresholdTellers The threshold number of tellers.
+     * @param numberOfOptions  The number of vote options.
+     * @param dsaL             The length of p in bits.
+     * @param dsaN             The length of q in bits.
+     * @param directory        The directory in which each election is run.
+     * @param report           The optional report file, otherwise the report is written into the directory.
+     */
+    public RunScaleBenchmarkOptions(final List<Integer> numberOfVoters, final int numberOfTellers, final int thresholdTellers, final int numberOfOptions,
+                                    final int dsaL, final int dsaN, final File directory, final File report) {
+      this.numberOfVoters = numberOfVoters;
+      this.numberOfTellers = numberOfTellers;
+      this.thresholdTellers = thresholdTellers;
+      this.numberOfOptions = numberOfOptions;
+      this.dsaL = dsaL;
+      this.dsaN = dsaN;
+      this.directory = directory;
+      this.report = report;
+    }
+  }
+}
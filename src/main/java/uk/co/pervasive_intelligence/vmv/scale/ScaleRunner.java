@@ -0,0 +1,402 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.ArtefactCache;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+import uk.co.pervasive_intelligence.vmv.workflow.Workflow;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowRunner;
+import uk.co.pervasive_intelligence.vmv.workflow.WorkflowStep;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Runs a complete synthetic election of a given size within this JVM, one phase at a time, measuring the resources used by each phase. Each phase runs one
+ * command: once for the election, or once for each teller, with the tellers running concurrently as they would on their own machines. The phases are those of
+ * a real election, from generating the ERS files through to mixing the votes and verifying the published proofs.
+ * <p>
+ * Without tellers, the election is run with a single set of election keys. With tellers, the tellers are created and merged first, and each teller's part of
+ * the threshold cryptography is run by the configured {@link VerificatumHelper}, which may be simulated. Verificatum keeps each teller's state in a teller
+ * directory within the current directory, so these must not already exist; they are removed once the election is complete. Proofs written by the simulated
+ * Verificatum cannot be verified, so the proofs are then not verified.
+ * <p>
+ * The time, CPU time and peak heap of each phase are measured for the whole process, so only one election should be run at a time. The {@link Metrics} are
+ * cleared before each phase, so that the operations recorded within the phase, such as the self-checks of the proofs, are measured alongside it. The
+ * {@link ArtefactCache} is also cleared before each phase, so that each phase parses the files written by earlier phases as a separate command would, and the
+ * cached files are not counted in its peak heap.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ScaleRunner {
+
+  /** The base port used by the tellers for their hints. */
+  static final int HINT_PORT = 4040;
+
+  /** The base port used by the tellers to talk to each other. */
+  static final int TELLER_PORT = 8080;
+
+  /** The bean used to measure the CPU time of this process, or null if CPU time cannot be measured. */
+  private static final com.sun.management.OperatingSystemMXBean CPU = getOperatingSystemBean();
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ScaleRunner.class);
+
+  /** The cache of election files shared by the commands, or null if there is none. */
+  private final ArtefactCache artefactCache;
+
+  /** The length of p in bits. */
+  private final int dsaL;
+
+  /** The length of q in bits. */
+  private final int dsaN;
+
+  /** The metrics recorded by the commands, or null if there are none. */
+  private final Metrics metrics;
+
+  /** The number of vote options. */
+  private final int numberOfOptions;
+
+  /** The number of tellers, or zero to run without tellers. */
+  private final int numberOfTellers;
+
+  /** The runner used to run the commands of each phase. */
+  private final WorkflowRunner runner;
+
+  /** The threshold number of tellers. */
+  private final int thresholdTellers;
+
+  /** True if the published proofs are verified. */
+  private final boolean verifyProofs;
+
+  /**
+   * Constructor requiring the runner and the shape of the elections to run.
+   *
+   * @param runner           The runner used to run the commands of each phase.
+   * @param metrics          The metrics recorded by the commands, or null if there are none.
+   * @param artefactCache    The cache of election files shared by the commands, or null if there is none.
+   * @param numberOfTellers  The number of tellers, or zero to run without tellers.
+   * @param thresholdTellers The threshold number of tellers.
+   * @param numberOfOptions  The number of vote options.
+   * @param dsaL             The length of p in bits.
+   * @param dsaN             The length of q in bits.
+   * @param verifyProofs     True if the published proofs are verified.
+   */
+  public ScaleRunner(final WorkflowRunner runner, final Metrics metrics, final ArtefactCache artefactCache, final int numberOfTellers,
+                     final int thresholdTellers, final int numberOfOptions, final int dsaL, final int dsaN, final boolean verifyProofs) {
+    this.runner = runner;
+    this.metrics = metrics;
+    this.artefactCache = artefactCache;
+    this.numberOfTellers = numberOfTellers;
+    this.thresholdTellers = thresholdTellers;
+    this.numberOfOptions = numberOfOptions;
+    this.dsaL = dsaL;
+    this.dsaN = dsaN;
+    this.verifyProofs = verifyProofs;
+  }
+
+  /**
+   * @return The CPU time used by this process in nanoseconds, or a negative value if it cannot be measured.
+   */
+  private static long getCpuTime() {
+    return (CPU != null) ? CPU.getProcessCpuTime() : -1;
+  }
+
+  /**
+   * @return The heap memory pools.
+   */
+  private static List<MemoryPoolMXBean> getHeapPools() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream().filter(pool -> pool.getType() == MemoryType.HEAP).collect(Collectors.toList());
+  }
+
+  /**
+   * @return The operating system management bean if it can measure the CPU time of this process, otherwise null.
+   */
+  private static com.sun.management.OperatingSystemMXBean getOperatingSystemBean() {
+    try {
+      final java.lang.management.OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+
+      if ((bean instanceof com.sun.management.OperatingSystemMXBean) && (((com.sun.management.OperatingSystemMXBean) bean).getProcessCpuTime() >= 0)) {
+        return (com.sun.management.OperatingSystemMXBean) bean;
+      }
+    }
+    catch (final Throwable t) {
+      LOG.debug("Process CPU time cannot be measured", t);
+    }
+
+    return null;
+  }
+
+  /**
+   * @return The peak heap used since the peaks were last reset, as the sum of the peak usage of each heap memory pool.
+   */
+  private static long getPeakHeap() {
+    return getHeapPools().stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+  }
+
+  /**
+   * Resets the peak usage of each heap memory pool to its current usage.
+   */
+  private static void resetPeakHeap() {
+    getHeapPools().forEach(MemoryPoolMXBean::resetPeakUsage);
+  }
+
+  /**
+   * Records the last modified time of each file in a directory.
+   *
+   * @param directory The directory.
+   * @return The last modified time of each file, by file name.
+   */
+  private static Map<String, Long> snapshot(final File directory) {
+    final Map<String, Long> files = new HashMap<>();
+    final File[] contents = directory.listFiles(File::isFile);
+
+    if (contents != null) {
+      for (final File file : contents) {
+        files.put(file.getName(), file.lastModified());
+      }
+    }
+
+    return files;
+  }
+
+  /**
+   * Adds a phase which runs its command a number of times.
+   *
+   * @param phases  The phases, by phase name.
+   * @param command The command, which is also the name of the phase.
+   * @param runs    The number of times the command is run, such as once for each teller.
+   * @param options Creates the options of each run, numbered from 1.
+   */
+  private void addPhase(final Map<String, List<WorkflowStep>> phases, final String command, final int runs, final IntFunction<String> options) {
+    phases.put(command, IntStream.rangeClosed(1, runs).mapToObj(i -> new WorkflowStep(command, options.apply(i), Collections.emptyList()))
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Creates the phases of an election, each with the steps which run its command.
+   *
+   * @param directory      The directory in which the election's files are written.
+   * @param numberOfVoters The number of voters.
+   * @return The steps of each phase, by phase name, in the order they are run.
+   */
+  public Map<String, List<WorkflowStep>> createPhases(final File directory, final int numberOfVoters) {
+    final boolean tellers = this.numberOfTellers > 0;
+    final int numberOfRuns = tellers ? this.numberOfTellers : 1;
+    final IntFunction<String> teller = i -> tellers ? " --teller " + i : "";
+
+    // Files used by all of the tellers. Each teller writes its own copy of the files it creates, as the election scripts do, and later phases read teller 1's.
+    final String params = this.path(directory, "public-election-params.csv");
+    final IntFunction<String> election = i -> params + " " + this.path(directory, String.format("public-election-keys-%d.csv", i));
+    final IntFunction<String> electionKeys = i -> params + " " + this.path(directory, String.format("election-keys-%d.csv", i));
+    final IntFunction<String> shuffledTrackerNumbers = i -> this.path(directory, String.format("shuffled-tracker-numbers-%d.csv", i));
+    final String trackerNumbers = this.path(directory, "public-tracker-numbers.csv");
+    final String commitments = this.paths(directory, "commitments-%d.csv", numberOfRuns);
+    final String publicCommitments = this.paths(directory, "public-commitments-%d.csv", numberOfRuns);
+    final String tellerInformation = this.paths(directory, "teller-information-%d.xml", numberOfRuns);
+
+    final Map<String, List<WorkflowStep>> phases = new LinkedHashMap<>();
+    this.addPhase(phases, "generate-election", 1, i -> "--number-of-voters " + numberOfVoters + " --number-of-options " + this.numberOfOptions + " --output "
+        + this.path(directory, "ers-voters.csv") + " " + this.path(directory, "ers-vote-options.csv"));
+    this.addPhase(phases, "create-election-parameters", 1, i -> "--publish " + params + " --name 'Scale Election " + numberOfVoters + "' --dsa-l " + this.dsaL
+        + " --dsa-n " + this.dsaN + (tellers ? " --number-of-tellers " + this.numberOfTellers + " --threshold-tellers " + this.thresholdTellers : " --no-tellers"));
+
+    if (tellers) {
+      this.addPhase(phases, "create-teller", numberOfRuns, i -> "--election " + params + " --teller " + i + " --ip 127.0.0.1 --teller-port " + (TELLER_PORT + i)
+          + " --hint-port " + (HINT_PORT + i) + " --publish " + this.path(directory, String.format("teller-information-%d.xml", i)));
+      this.addPhase(phases, "merge-teller", numberOfRuns, i -> "--election " + params + " --teller " + i + " --teller-information " + tellerInformation);
+    }
+
+    this.addPhase(phases, "create-election-keys", numberOfRuns, i -> "--election " + params + teller.apply(i) + " --output "
+        + this.path(directory, String.format("election-keys-%d.csv", i)) + " --publish " + this.path(directory, String.format("public-election-keys-%d.csv", i)));
+    this.addPhase(phases, "create-voters-keys", 1, i -> "--election " + params + " --number-of-voters " + numberOfVoters + " --output "
+        + this.path(directory, "voters-keys.csv") + " --publish " + this.path(directory, "public-voters-keys.csv"));
+    this.addPhase(phases, "create-tracker-numbers", 1, i -> "--election " + election.apply(1) + " --number-of-voters " + numberOfVoters + " --publish "
+        + trackerNumbers);
+    this.addPhase(phases, "shuffle-tracker-numbers", numberOfRuns, i -> "--election " + election.apply(i) + teller.apply(i) + " --tracker-numbers "
+        + trackerNumbers + " --publish " + shuffledTrackerNumbers.apply(i) + " " + this.path(directory, String.format("shuffle-proofs-%d.zip", i)));
+    this.addPhase(phases, "create-commitments", numberOfRuns, i -> "--election " + election.apply(i) + " --voters "
+        + this.path(directory, "public-voters-keys.csv") + " --tracker-numbers " + shuffledTrackerNumbers.apply(i) + " --output "
+        + this.path(directory, String.format("commitments-%d.csv", i)) + " --publish " + this.path(directory, String.format("public-commitments-%d.csv", i))
+        + " " + this.path(directory, String.format("commitments-proofs-%d.csv", i)));
+    this.addPhase(phases, "decrypt-commitments", numberOfRuns, i -> "--election " + electionKeys.apply(i) + teller.apply(i) + " --voters "
+        + this.path(directory, "public-voters-keys.csv") + " --tracker-numbers " + shuffledTrackerNumbers.apply(i) + " --commitments " + publicCommitments
+        + " --publish " + this.path(directory, String.format("public-voters-%d.csv", i)) + " " + this.path(directory, String.format("decrypt-proofs-%d.zip", i)));
+    this.addPhase(phases, "associate-voters", 1, i -> "--election " + election.apply(1) + " --voters " + this.path(directory, "public-voters-1.csv") + " "
+        + this.path(directory, "ers-voters.csv") + " --output " + this.path(directory, "ers-associated-voters.csv") + " --publish "
+        + this.path(directory, "public-associated-voters.csv"));
+    this.addPhase(phases, "generate-votes", 1, i -> "--voters " + this.path(directory, "ers-associated-voters.csv") + " --votes "
+        + this.path(directory, "ers-vote-options.csv") + " --output " + this.path(directory, "ers-plaintext-voters.csv"));
+    this.addPhase(phases, "encrypt-votes", 1, i -> "--election " + election.apply(1) + " --voters " + this.path(directory, "voters-keys.csv") + " "
+        + this.path(directory, "ers-plaintext-voters.csv") + " --votes " + this.path(directory, "ers-vote-options.csv") + " --commitments " + commitments
+        + " --output " + this.path(directory, "ers-encrypted-voters.csv") + " --publish " + this.path(directory, "public-encrypted-voters.csv") + " "
+        + this.path(directory, "public-vote-options.csv") + " " + this.path(directory, "encrypt-proofs.csv"));
+    this.addPhase(phases, "mix-votes", numberOfRuns, i -> "--election " + electionKeys.apply(i) + teller.apply(i) + " --votes "
+        + this.path(directory, "public-vote-options.csv") + " --tracker-numbers " + trackerNumbers + " --voters "
+        + this.path(directory, "public-encrypted-voters.csv") + " --publish " + this.path(directory, String.format("public-mixed-voters-%d.csv", i)) + " "
+        + this.path(directory, String.format("mix-proofs-%d.zip", i)));
+
+    if (this.verifyProofs) {
+      this.addPhase(phases, "verify-proofs", 1, i -> "--election " + election.apply(1) + (tellers ? " --protocol-information '"
+          + VerificatumHelper.getProtocolInformationFile(this.getTellerParameters(), 1).getAbsolutePath() + "'" : "") + " --tracker-numbers " + trackerNumbers
+          + " " + shuffledTrackerNumbers.apply(1) + " --voters " + this.path(directory, "public-encrypted-voters.csv") + " --proofs "
+          + this.paths(directory, "shuffle-proofs-%d.zip", numberOfRuns) + " " + this.paths(directory, "mix-proofs-%d.zip", numberOfRuns) + " --output "
+          + this.path(directory, "proof-verifications.csv"));
+    }
+
+    return phases;
+  }
+
+  /**
+   * @return The teller directories used by the tellers of an election.
+   */
+  private List<File> getTellerDirectories() {
+    final Parameters parameters = this.getTellerParameters();
+
+    return IntStream.rangeClosed(1, this.numberOfTellers).mapToObj(i -> VerificatumHelper.getTellerDirectory(parameters, i)).collect(Collectors.toList());
+  }
+
+  /**
+   * @return Parameters which locate the teller directories used by the tellers of an election.
+   */
+  private Parameters getTellerParameters() {
+    final DHParametersWrapper parameters = new DHParametersWrapper(null);
+    parameters.setNumberOfTellers(this.numberOfTellers);
+
+    return parameters;
+  }
+
+  /**
+   * Runs the steps of a phase concurrently, measuring the resources used.
+   *
+   * @param name           The name of the phase.
+   * @param steps          The steps of the phase.
+   * @param directory      The directory in which the election's files are written.
+   * @param numberOfVoters The number of voters.
+   * @return The measurements of the phase.
+   * @throws VMVException if a step failed.
+   */
+  private PhaseMeasurement measure(final String name, final List<WorkflowStep> steps, final File directory, final int numberOfVoters) throws VMVException {
+    final Workflow workflow = new Workflow();
+    workflow.setName(name);
+    workflow.setThreads(steps.size());
+
+    for (int i = 0; i < steps.size(); i++) {
+      workflow.getSteps().put((steps.size() > 1) ? name + "-" + (i + 1) : name, steps.get(i));
+    }
+
+    // Start each phase with only the live heap and without the files parsed by earlier phases, so that the parsing and peak heap are those of the phase.
+    final Map<String, Long> before = snapshot(directory);
+
+    if (this.artefactCache != null) {
+      this.artefactCache.clear();
+    }
+
+    System.gc();
+    resetPeakHeap();
+
+    if (this.metrics != null) {
+      this.metrics.clear();
+    }
+
+    final long cpuStart = getCpuTime();
+    final long start = System.nanoTime();
+    this.runner.run(workflow);
+    final long wallTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    final long cpuTime = (cpuStart >= 0) ? TimeUnit.NANOSECONDS.toMillis(getCpuTime() - cpuStart) : -1;
+    final long peakHeap = getPeakHeap();
+
+    // Find the files which were written by the phase. Workflow steps do not write metrics reports.
+    final Map<String, Long> files = new HashMap<>();
+
+    for (final Map.Entry<String, Long> entry : snapshot(directory).entrySet()) {
+      if (!entry.getValue().equals(before.get(entry.getKey()))) {
+        files.put(entry.getKey(), new File(directory, entry.getKey()).length());
+      }
+    }
+
+    LOG.info("scale: {} voters {} complete in {}ms, CPU {}ms, peak heap {} bytes", numberOfVoters, name, wallTime, cpuTime, peakHeap);
+
+    final Object operations = (this.metrics != null) ? this.metrics.toMap().get("operations") : null;
+
+    return new PhaseMeasurement(name, numberOfVoters, wallTime, cpuTime, peakHeap, files, operations);
+  }
+
+  /**
+   * Constructs the quoted option value for a file in the election's directory.
+   *
+   * @param directory The directory in which the election's files are written.
+   * @param name      The file name.
+   * @return The quoted absolute path of the file.
+   */
+  private String path(final File directory, final String name) {
+    return "'" + new File(directory, name).getAbsolutePath() + "'";
+  }
+
+  /**
+   * Constructs the quoted option values for a file for each teller in the election's directory.
+   *
+   * @param directory The directory in which the election's files are written.
+   * @param template  The file name template, formatted with each teller's number.
+   * @param count     The number of tellers.
+   * @return The quoted absolute paths of the files, separated by spaces.
+   */
+  private String paths(final File directory, final String template, final int count) {
+    return IntStream.rangeClosed(1, count).mapToObj(i -> this.path(directory, String.format(template, i))).collect(Collectors.joining(" "));
+  }
+
+  /**
+   * Runs an election of the given size, measuring each phase.
+   *
+   * @param directory      The directory in which the election's files are written, which is created if needed.
+   * @param numberOfVoters The number of voters.
+   * @return The measurements of each phase, in the order they were run.
+   * @throws VMVException if the election could not be run.
+   */
+  public List<PhaseMeasurement> run(final File directory, final int numberOfVoters) throws VMVException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new VMVException("Could not create directory " + directory);
+    }
+
+    // Do not disturb the state of any existing tellers.
+    final List<File> tellerDirectories = this.getTellerDirectories();
+
+    for (final File tellerDirectory : tellerDirectories) {
+      if (tellerDirectory.exists()) {
+        throw new VMVException("Teller directory " + tellerDirectory + " already exists");
+      }
+    }
+
+    final List<PhaseMeasurement> measurements = new ArrayList<>();
+
+    try {
+      for (final Map.Entry<String, List<WorkflowStep>> phase : this.createPhases(directory, numberOfVoters).entrySet()) {
+        measurements.add(this.measure(phase.getKey(), phase.getValue(), directory, numberOfVoters));
+      }
+    }
+    finally {
+      for (final File tellerDirectory : tellerDirectories) {
+        FileUtils.deleteQuietly(tellerDirectory);
+      }
+    }
+
+    return measurements;
+  }
+}
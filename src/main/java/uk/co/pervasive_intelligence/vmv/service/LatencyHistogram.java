@@ -0,0 +1,179 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Records request latencies in a fixed number of buckets so that percentiles can be reported without keeping every sample. Latencies below
+ * {@link #SUB_BUCKETS} microseconds are recorded exactly; larger latencies are recorded in {@link #SUB_BUCKETS} buckets for each power of two, so each
+ * percentile is within about 6% of the true value. Recording is lock free, so one histogram can be shared by all of the threads serving requests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class LatencyHistogram {
+
+  /** The number of powers of two covered by the buckets, allowing latencies of up to about 12 days. */
+  private static final int POWERS = 40;
+
+  /** The number of buckets for each power of two. */
+  private static final int SUB_BUCKETS = 16;
+
+  /** The number of bits needed to number the buckets for each power of two. */
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  /** The number of latencies recorded in each bucket. */
+  private final AtomicLongArray counts = new AtomicLongArray(SUB_BUCKETS * (POWERS - SUB_BUCKET_BITS + 1));
+
+  /** The number of requests which failed. */
+  private final LongAdder errors = new LongAdder();
+
+  /** The maximum latency recorded in microseconds. */
+  private final AtomicLong maximum = new AtomicLong();
+
+  /** The total of all latencies recorded in microseconds. */
+  private final LongAdder total = new LongAdder();
+
+  /**
+   * Finds the bucket for a latency.
+   *
+   * @param micros The latency in microseconds.
+   * @return The bucket.
+   */
+  static int bucket(final long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) Math.max(0, micros);
+    }
+
+    final int power = 63 - Long.numberOfLeadingZeros(micros);
+    final int subBucket = (int) ((micros >>> (power - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+
+    return Math.min(((power - SUB_BUCKET_BITS + 1) * SUB_BUCKETS) + subBucket, (SUB_BUCKETS * (POWERS - SUB_BUCKET_BITS + 1)) - 1);
+  }
+
+  /**
+   * Finds the largest latency recorded in a bucket.
+   *
+   * @param bucket The bucket.
+   * @return The largest latency in microseconds.
+   */
+  static long upperBound(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    final int power = (bucket / SUB_BUCKETS) + SUB_BUCKET_BITS - 1;
+    final long subBucket = SUB_BUCKETS + (bucket % SUB_BUCKETS);
+
+    return ((subBucket + 1) << (power - SUB_BUCKET_BITS)) - 1;
+  }
+
+  /**
+   * @return The number of latencies recorded.
+   */
+  public long getCount() {
+    long count = 0;
+
+    for (int i = 0; i < this.counts.length(); i++) {
+      count += this.counts.get(i);
+    }
+
+    return count;
+  }
+
+  /**
+   * @return The number of requests which failed.
+   */
+  public long getErrors() {
+    return this.errors.sum();
+  }
+
+  /**
+   * @return The maximum latency recorded in milliseconds.
+   */
+  public double getMaximum() {
+    return this.maximum.get() / 1000d;
+  }
+
+  /**
+   * @return The mean latency in milliseconds.
+   */
+  public double getMean() {
+    final long count = this.getCount();
+
+    return (count > 0) ? (this.total.sum() / 1000d) / count : 0;
+  }
+
+  /**
+   * Gets a latency percentile.
+   *
+   * @param percentile The percentile, between 0 and 100.
+   * @return The latency in milliseconds below which the percentile of latencies lie, or zero if no latencies have been recorded.
+   */
+  public double getPercentile(final double percentile) {
+    final long[] counts = new long[this.counts.length()];
+    long count = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = this.counts.get(i);
+      count += counts[i];
+    }
+
+    // Find the bucket holding the latency at the percentile's rank, capped at the maximum since the bucket's upper bound may be larger.
+    final long rank = Math.max(1, (long) Math.ceil((percentile / 100d) * count));
+    long cumulative = 0;
+
+    for (int i = 0; i < counts.length; i++) {
+      cumulative += counts[i];
+
+      if (cumulative >= rank) {
+        return Math.min(upperBound(i), this.maximum.get()) / 1000d;
+      }
+    }
+
+    return 0;
+  }
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param nanos  The latency in nanoseconds.
+   * @param failed True if the request failed.
+   */
+  public void record(final long nanos, final boolean failed) {
+    final long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+    this.counts.incrementAndGet(bucket(micros));
+    this.total.add(micros);
+    this.maximum.accumulateAndGet(micros, Math::max);
+
+    if (failed) {
+      this.errors.increment();
+    }
+  }
+
+  /**
+   * @return The count, errors, mean, maximum and 50th, 90th, 99th and 99.9th percentile latencies in milliseconds, by name.
+   */
+  public Map<String, Object> toMap() {
+    final Map<String, Object> map = new LinkedHashMap<>();
+    map.put("count", this.getCount());
+    map.put("errors", this.getErrors());
+    map.put("mean", this.getMean());
+    map.put("p50", this.getPercentile(50));
+    map.put("p90", this.getPercentile(90));
+    map.put("p99", this.getPercentile(99));
+    map.put("p999", this.getPercentile(99.9));
+    map.put("max", this.getMaximum());
+
+    return map;
+  }
+}
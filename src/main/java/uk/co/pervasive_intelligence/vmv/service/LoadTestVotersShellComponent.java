@@ -0,0 +1,167 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test voters shell command. Stands in for the voters' clients of the service started by serve-voters, sending tracker number or ballot verification
+ * requests for the voters from a number of concurrent clients and reporting the throughput and latencies seen by the clients.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class LoadTestVotersShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(LoadTestVotersShellComponent.class);
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param messageSource The source for messages.
+   */
+  public LoadTestVotersShellComponent(final MessageSource messageSource) {
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "service.load_test_voters.help", group = "service.group")
+  public void loadTestVoters(@ShellOption(optOut = true) @Valid final LoadTestVotersOptions options) {
+    LOG.info("load-test-voters --url {} --voters {} --ballots {} --requests {} --concurrency {}", options.url, options.voters, options.ballots,
+        options.requests, options.concurrency);
+
+    try {
+      // Form a request for each voter: the associated voters give each voter's beta and public key, and the ERS encrypted voters their alpha.
+      final List<Voter> voters = this.readCSV(options.voters.get(0), Voter.class, JacksonViews.ERSExport.class, new ArrayList<>());
+      final List<String> requests = new ArrayList<>();
+
+      if (options.ballots) {
+        for (final Voter voter : voters) {
+          requests.add(VoterServiceClient.ballotRequest(voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey()));
+        }
+      }
+      else {
+        if (options.voters.size() < 2) {
+          throw new VMVException("ERS encrypted voters file needed for tracker number requests");
+        }
+
+        final Map<Long, BigInteger> alphas = new HashMap<>();
+
+        for (final Voter voter : this.readCSV(options.voters.get(1), Voter.class, JacksonViews.ERSVoteExport.class, new ArrayList<>())) {
+          alphas.put(voter.getId(), voter.getAlpha());
+        }
+
+        for (final Voter voter : voters) {
+          final BigInteger alpha = alphas.get(voter.getId());
+
+          if (alpha != null) {
+            requests.add(VoterServiceClient.trackerNumberRequest(alpha, voter.getBeta(), voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey()));
+          }
+        }
+      }
+
+      // Send the requests and report what the clients saw.
+      final long start = System.currentTimeMillis();
+      final LatencyHistogram latencies = new VoterServiceClient(options.url).loadTest(requests, options.requests, options.concurrency);
+      final long duration = Math.max(1, System.currentTimeMillis() - start);
+
+      System.out.println(this.messageSource.getMessage("service.load_test_voters.complete", new Object[] {latencies.getCount(), duration,
+          String.format("%.1f", (latencies.getCount() * 1000d) / duration)}, null));
+      ServeVotersShellComponent.output(this.messageSource, options.ballots ? VoterService.BALLOT_PATH : VoterService.TRACKER_NUMBER_PATH, latencies);
+
+      if (latencies.getErrors() > 0) {
+        throw new VMVException(latencies.getErrors() + " of " + latencies.getCount() + " requests failed");
+      }
+    }
+    catch (final Exception e) {
+      LOG.error("load-test-voters:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("load-test-voters: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #loadTestVoters(LoadTestVotersOptions)}.
+   */
+  public static class LoadTestVotersOptions {
+
+    /** Send ballot verification requests rather than tracker number requests? */
+    @Parameter(names = "--ballots")
+    boolean ballots = false;
+
+    /** The number of concurrent clients. */
+    @Parameter(names = "--concurrency")
+    int concurrency = 10;
+
+    /** The total number of requests to send. */
+    @Parameter(names = "--requests")
+    int requests = 1000;
+
+    /** The base URL of the service. */
+    @Parameter(names = "--url")
+    String url = "http://localhost:8080";
+
+    /** The associated voters file and, for tracker number requests, the ERS encrypted voters file. */
+    @Parameter(names = "--voters", variableArity = true, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> voters = new ArrayList<>();
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private LoadTestVotersOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param url         The base URL of the service.
+     * @param voters      The associated voters file and, for tracker number requests, the ERS encrypted voters file.
+     * @param ballots     Send ballot verification requests rather than tracker number requests?
+     * @param requests    The total number of requests to send.
+     * @param concurrency The number of concurrent clients.
+     */
+    public LoadTestVotersOptions(final String url, final List<File> voters, final boolean ballots, final int requests, final int concurrency) {
+      this.url = url;
+      if (voters != null) {
+        this.voters.addAll(voters);
+      }
+      this.ballots = ballots;
+      this.requests = requests;
+      this.concurrency = concurrency;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serve voters shell command. Loads the election artefacts once and serves voters' tracker number and ballot verification requests over HTTP until the
+ * duration has passed or the command is interrupted, for example by running it as a background job and cancelling the job.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class ServeVotersShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ServeVotersShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   * @param messageSource      The source for messages.
+   */
+  public ServeVotersShellComponent(final CryptographyHelper cryptographyHelper, final MessageSource messageSource) {
+    this.cryptographyHelper = cryptographyHelper;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Outputs the latencies of a request type.
+   *
+   * @param messageSource The source for messages.
+   * @param name          The name of the request type.
+   * @param latencies     The latencies.
+   */
+  static void output(final MessageSource messageSource, final String name, final LatencyHistogram latencies) {
+    System.out.println(messageSource.getMessage("service.latencies", new Object[] {name, latencies.getCount(), latencies.getErrors(),
+        String.format("%.3f", latencies.getPercentile(50)), String.format("%.3f", latencies.getPercentile(90)), String.format("%.3f",
+        latencies.getPercentile(99)), String.format("%.3f", latencies.getMaximum())}, null));
+  }
+
+  /**
+   * Reads the proofs of encryption of the published encrypted votes.
+   *
+   * @param file    The proof archive or CSV file.
+   * @param ballots The published encrypted votes.
+   * @return The proofs, by the voter's trapdoor public key.
+   * @throws Exception if the proofs could not be read.
+   */
+  private Map<BigInteger, EncryptProof> readProofs(final File file, final List<Voter> ballots) throws Exception {
+    if (ProofArchive.isArchive(file)) {
+      try (final ProofArchive<EncryptProof> archive = ProofArchive.open(file, EncryptProof.class, JacksonViews.Public.class)) {
+        return archive.getByKey();
+      }
+    }
+
+    // Otherwise match each proof to its voter using the encrypted vote signature.
+    final Map<String, BigInteger> keys = new HashMap<>();
+
+    for (final Voter voter : ballots) {
+      if ((voter.getEncryptedVoteSignature() != null) && (voter.getVoterKeyPairs() != null) && (voter.getVoterKeyPairs().getTrapdoorKeyPair() != null)) {
+        keys.put(Base64.getEncoder().encodeToString(voter.getEncryptedVoteSignature()), voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey());
+      }
+    }
+
+    final Map<BigInteger, EncryptProof> proofs = new HashMap<>();
+
+    for (final EncryptProof proof : this.readCSV(file, EncryptProof.class, JacksonViews.Public.class, new ArrayList<>())) {
+      final BigInteger key = (proof.getEncryptedVoteSignature() != null) ? keys.get(Base64.getEncoder().encodeToString(proof.getEncryptedVoteSignature())) : null;
+
+      if (key != null) {
+        proofs.put(key, proof);
+      }
+    }
+
+    return proofs;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "service.serve_voters.help", group = "service.group")
+  public void serveVoters(@ShellOption(optOut = true) @Valid final ServeVotersOptions options) {
+    LOG.info("serve-voters --election {} --voters {} --tracker-numbers {} --ballots {} --port {} --threads {} --queue {} --duration {}", options.election,
+        options.voters, options.trackerNumbers, options.ballots, options.port, options.threads, options.queue, options.duration);
+
+    VoterService service = null;
+
+    try {
+      // Load in and index the election artefacts once for all requests.
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+          JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final List<VoterKeyPairs> votersKeyPairs = this.readCachedCSV(options.voters, VoterKeyPairs.class, null);
+      final List<TrackerNumber> trackerNumbers = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class, JacksonViews.RestrictedPublic.class);
+
+      List<Voter> ballots = null;
+      Map<BigInteger, EncryptProof> proofs = null;
+
+      if (!options.ballots.isEmpty()) {
+        ballots = this.readCachedCSV(options.ballots.get(0), Voter.class, JacksonViews.Vote.class);
+        proofs = this.readProofs(options.ballots.get(1), ballots);
+      }
+
+      service = new VoterService(this.cryptographyHelper, parameters, keyPair, votersKeyPairs, trackerNumbers, ballots, proofs);
+      service.start(options.port, (options.threads > 0) ? options.threads : Runtime.getRuntime().availableProcessors(), options.queue);
+      System.out.println(this.messageSource.getMessage("service.serve_voters.started", new Object[] {String.valueOf(service.getPort())}, null));
+
+      // Serve requests until the duration has passed or the command is interrupted.
+      try {
+        if (options.duration > 0) {
+          Thread.sleep(TimeUnit.SECONDS.toMillis(options.duration));
+        }
+        else {
+          new CountDownLatch(1).await();
+        }
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    catch (final Exception e) {
+      LOG.error("serve-voters:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      if (service != null) {
+        service.stop();
+        output(this.messageSource, VoterService.TRACKER_NUMBER_PATH, service.getTrackerNumberLatencies());
+        output(this.messageSource, VoterService.BALLOT_PATH, service.getBallotLatencies());
+      }
+
+      LOG.info("serve-voters: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #serveVoters(ServeVotersOptions)}.
+   */
+  public static class ServeVotersOptions {
+
+    /** The optional published encrypted votes file and encryption proofs file. */
+    @Parameter(names = "--ballots", arity = 2, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> ballots = new ArrayList<>();
+
+    /** The time to serve requests in seconds: zero until interrupted. */
+    @Parameter(names = "--duration")
+    long duration = 0;
+
+    /** The public election files. */
+    @Parameter(names = "--election", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> election = new ArrayList<>();
+
+    /** The port to listen on: zero for any free port. */
+    @Parameter(names = "--port")
+    int port = 8080;
+
+    /** The maximum number of requests waiting for a thread. */
+    @Parameter(names = "--queue")
+    int queue = 1000;
+
+    /** The number of threads serving requests: zero for the number of processors. */
+    @Parameter(names = "--threads")
+    int threads = 0;
+
+    /** The tracker numbers file. */
+    @Parameter(names = "--tracker-numbers", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File trackerNumbers;
+
+    /** The voter key pairs file. */
+    @Parameter(names = "--voters", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File voters;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private ServeVotersOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election       The public election files.
+     * @param voters         The voter key pairs file.
+     * @param trackerNumbers The tracker numbers file.
+     * @param ballots        The optional published encrypted votes file and encryption proofs file.
+     * @param port           The port to listen on: zero for any free port.
+     * @param threads        The number of threads serving requests: zero for the number of processors.
+     * @param queue          The maximum number of requests waiting for a thread.
+     * @param duration       The time to serve requests in seconds: zero until interrupted.
+     */
+    public ServeVotersOptions(final List<File> election, final File voters, final File trackerNumbers, final List<File> ballots, final int port,
+                              final int threads, final int queue, final long duration) {
+      if (election != null) {
+        this.election.addAll(election);
+      }
+      this.voters = voters;
+      this.trackerNumbers = trackerNumbers;
+      if (ballots != null) {
+        this.ballots.addAll(ballots);
+      }
+      this.port = port;
+      this.threads = threads;
+      this.queue = queue;
+      this.duration = duration;
+    }
+  }
+}
@@ -0,0 +1,412 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumInProcessRunner;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Embedded HTTP service which answers voters' requests from election artefacts loaded once and indexed in memory, rather than launching a command and parsing
+ * the files for each request. The service listens on the loopback address only and provides:
+ * <ul>
+ * <li>{@value #TRACKER_NUMBER_PATH}{@code ?alpha=&beta=&public-key=}: decrypts a voter's tracker number, as voter-decrypt-tracker-number.</li>
+ * <li>{@value #BALLOT_PATH}{@code ?public-key=}: verifies the proof of encryption and signature of a voter's published encrypted vote.</li>
+ * <li>{@value #METRICS_PATH}: the number of requests, errors and latency percentiles of each of the above.</li>
+ * </ul>
+ * Requests are served concurrently by a fixed number of threads. When all of the threads are busy and the queue of waiting requests is full, no more
+ * connections are accepted until a thread is free, so that a burst of requests waits in the socket backlog rather than using more memory.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VoterService {
+
+  /** The path of ballot verification requests. */
+  public static final String BALLOT_PATH = "/ballot";
+
+  /** The path of metrics requests. */
+  public static final String METRICS_PATH = "/metrics";
+
+  /** The path of tracker number requests. */
+  public static final String TRACKER_NUMBER_PATH = "/tracker-number";
+
+  /** The content type of all responses. */
+  private static final String CONTENT_TYPE = "application/json; charset=utf-8";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VoterService.class);
+
+  /** The query parameter holding the alpha commitment. */
+  private static final String PARAMETER_ALPHA = "alpha";
+
+  /** The query parameter holding the beta commitment. */
+  private static final String PARAMETER_BETA = "beta";
+
+  /** The query parameter holding the voter's trapdoor public key. */
+  private static final String PARAMETER_PUBLIC_KEY = "public-key";
+
+  /** The voters' published encrypted votes, by the voter's trapdoor public key. */
+  private final Map<BigInteger, Voter> ballots;
+
+  /** The latencies of ballot verification requests. */
+  private final LatencyHistogram ballotLatencies = new LatencyHistogram();
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /** The election key pair. Only the public key is needed. */
+  private final KeyPair keyPair;
+
+  /** Used to write responses. */
+  private final ObjectMapper mapper = new ObjectMapper();
+
+  /** The election parameters. */
+  private final Parameters parameters;
+
+  /** The proofs of encryption of the voters' encrypted votes, by the voter's trapdoor public key. */
+  private final Map<BigInteger, EncryptProof> proofs;
+
+  /** The latencies of tracker number requests. */
+  private final LatencyHistogram trackerNumberLatencies = new LatencyHistogram();
+
+  /** The tracker numbers including their restricted elements, by tracker number in the group. */
+  private final Map<BigInteger, TrackerNumber> trackerNumbers = new HashMap<>();
+
+  /** The voters' key pairs, by trapdoor public key. */
+  private final Map<BigInteger, VoterKeyPairs> votersKeyPairs = new HashMap<>();
+
+  /** Registered while the service is running so that Verificatum is not run in-process alongside it. */
+  private VerificatumInProcessRunner.Activity activity = null;
+
+  /** The executor used to serve requests. */
+  private ThreadPoolExecutor executor = null;
+
+  /** The HTTP server. */
+  private HttpServer server = null;
+
+  /**
+   * Constructor requiring the election artefacts, which are indexed for the lifetime of the service.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   * @param parameters         The election parameters.
+   * @param keyPair            The election key pair. Only the public key is needed.
+   * @param votersKeyPairs     The voters' key pairs.
+   * @param trackerNumbers     The tracker numbers including their restricted elements.
+   * @param ballots            The optional voters' published encrypted votes.
+   * @param proofs             The optional proofs of encryption of the encrypted votes, by the voter's trapdoor public key.
+   */
+  public VoterService(final CryptographyHelper cryptographyHelper, final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
+                      final List<TrackerNumber> trackerNumbers, final List<Voter> ballots, final Map<BigInteger, EncryptProof> proofs) {
+    this.cryptographyHelper = cryptographyHelper;
+    this.parameters = parameters;
+    this.keyPair = keyPair;
+    this.proofs = (proofs != null) ? proofs : Collections.emptyMap();
+    this.ballots = new HashMap<>();
+
+    for (final VoterKeyPairs pair : votersKeyPairs) {
+      if ((pair != null) && (pair.getTrapdoorKeyPair() != null) && (pair.getTrapdoorKeyPair().getPublicKey() != null)) {
+        this.votersKeyPairs.putIfAbsent(pair.getTrapdoorKeyPair().getPublicKey(), pair);
+      }
+    }
+
+    for (final TrackerNumber trackerNumber : trackerNumbers) {
+      if ((trackerNumber != null) && (trackerNumber.getTrackerNumberInGroup() != null)) {
+        this.trackerNumbers.putIfAbsent(trackerNumber.getTrackerNumberInGroup(), trackerNumber);
+      }
+    }
+
+    if (ballots != null) {
+      for (final Voter voter : ballots) {
+        if ((voter != null) && (voter.getVoterKeyPairs() != null) && (voter.getVoterKeyPairs().getTrapdoorKeyPair() != null)) {
+          this.ballots.putIfAbsent(voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey(), voter);
+        }
+      }
+    }
+  }
+
+  /**
+   * Gets a required numeric query parameter.
+   *
+   * @param query The query parameters.
+   * @param name  The name of the parameter.
+   * @return The value.
+   * @throws IllegalArgumentException if the parameter is missing or not a number.
+   */
+  private static BigInteger getParameter(final Map<String, String> query, final String name) {
+    final String value = query.get(name);
+
+    if ((value == null) || value.isEmpty()) {
+      throw new IllegalArgumentException("Missing parameter " + name);
+    }
+
+    try {
+      return new BigInteger(value);
+    }
+    catch (final NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid parameter " + name, e);
+    }
+  }
+
+  /**
+   * Splits the query of a request into its parameters.
+   *
+   * @param query The raw query, which may be null.
+   * @return The decoded parameters, by name.
+   * @throws UnsupportedEncodingException if the query could not be decoded.
+   */
+  static Map<String, String> parseQuery(final String query) throws UnsupportedEncodingException {
+    final Map<String, String> parameters = new HashMap<>();
+
+    if (query != null) {
+      for (final String parameter : query.split("&")) {
+        final int equals = parameter.indexOf('=');
+
+        if (equals > 0) {
+          parameters.put(URLDecoder.decode(parameter.substring(0, equals), StandardCharsets.UTF_8.name()),
+              URLDecoder.decode(parameter.substring(equals + 1), StandardCharsets.UTF_8.name()));
+        }
+      }
+    }
+
+    return parameters;
+  }
+
+  /**
+   * @return The latencies of ballot verification requests.
+   */
+  public LatencyHistogram getBallotLatencies() {
+    return this.ballotLatencies;
+  }
+
+  /**
+   * @return The port the service is listening on, or zero if it is not started.
+   */
+  public synchronized int getPort() {
+    return (this.server != null) ? this.server.getAddress().getPort() : 0;
+  }
+
+  /**
+   * @return The latencies of tracker number requests.
+   */
+  public LatencyHistogram getTrackerNumberLatencies() {
+    return this.trackerNumberLatencies;
+  }
+
+  /**
+   * Serves a request, recording its latency.
+   *
+   * @param exchange  The request and response.
+   * @param latencies The latencies of the request type.
+   * @param handler   Answers the request.
+   */
+  private void handle(final HttpExchange exchange, final LatencyHistogram latencies, final Handler handler) {
+    final long start = System.nanoTime();
+    int status;
+    Object response;
+
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        status = 405;
+        response = Collections.singletonMap("error", "Method not allowed");
+      }
+      else {
+        response = handler.handle(parseQuery(exchange.getRequestURI().getRawQuery()));
+        status = (response != null) ? 200 : 404;
+        response = (response != null) ? response : Collections.singletonMap("error", "Not found");
+      }
+    }
+    catch (final IllegalArgumentException e) {
+      status = 400;
+      response = Collections.singletonMap("error", e.getMessage());
+    }
+    catch (final CryptographyException e) {
+      status = 422;
+      response = Collections.singletonMap("error", e.getMessage());
+    }
+    catch (final Exception e) {
+      LOG.error("voter service:", e);
+      status = 500;
+      response = Collections.singletonMap("error", "Internal error");
+    }
+
+    try {
+      final byte[] body = this.mapper.writeValueAsBytes(response);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(status, body.length);
+
+      try (final OutputStream output = exchange.getResponseBody()) {
+        output.write(body);
+      }
+    }
+    catch (final IOException e) {
+      LOG.debug("voter service: could not send response", e);
+    }
+    finally {
+      exchange.close();
+    }
+
+    if (latencies != null) {
+      latencies.record(System.nanoTime() - start, status >= 400);
+    }
+  }
+
+  /**
+   * Decrypts a voter's tracker number in the group and looks up the tracker number from it, without searching the tracker numbers or voters.
+   *
+   * @param alpha     The alpha commitment.
+   * @param beta      The beta commitment.
+   * @param publicKey The voter's trapdoor public key.
+   * @return The tracker number, or null if the voter is unknown.
+   * @throws CryptographyException if the tracker number could not be decrypted or is not one of the election's tracker numbers.
+   */
+  public TrackerNumber lookupTrackerNumber(final BigInteger alpha, final BigInteger beta, final BigInteger publicKey) throws CryptographyException {
+    final VoterKeyPairs voterKeyPairs = this.votersKeyPairs.get(publicKey);
+
+    if (voterKeyPairs == null) {
+      return null;
+    }
+
+    final BigInteger trackerNumberInGroup = this.cryptographyHelper.decryptTrackerNumberInGroup(this.parameters, alpha, beta,
+        voterKeyPairs.getTrapdoorKeyPair());
+    final TrackerNumber trackerNumber = this.trackerNumbers.get(trackerNumberInGroup);
+
+    if (trackerNumber == null) {
+      throw new CryptographyException("Could not find tracker number from tracker number in group: " + trackerNumberInGroup);
+    }
+
+    return trackerNumber;
+  }
+
+  /**
+   * Starts the service.
+   *
+   * @param port    The port to listen on, or zero for any free port.
+   * @param threads The number of threads serving requests.
+   * @param queue   The maximum number of requests waiting for a thread.
+   * @throws VMVException if the service could not be started.
+   */
+  public synchronized void start(final int port, final int threads, final int queue) throws VMVException {
+    if (this.server != null) {
+      throw new VMVException("Voter service already started");
+    }
+
+    final AtomicInteger threadNumber = new AtomicInteger(1);
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(Math.max(1, queue)), runnable -> {
+      final Thread thread = new Thread(runnable, "vmv-voter-service-" + threadNumber.getAndIncrement());
+      thread.setDaemon(true);
+      return thread;
+    }, (runnable, executor) -> {
+      // Block the connection dispatcher until there is space in the queue so that further connections wait in the socket backlog.
+      try {
+        executor.getQueue().put(runnable);
+      }
+      catch (final InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RejectedExecutionException("Interrupted waiting to queue request", e);
+      }
+    });
+
+    try {
+      this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+      this.server.createContext(TRACKER_NUMBER_PATH, exchange -> this.handle(exchange, this.trackerNumberLatencies, query -> {
+        final TrackerNumber trackerNumber = this.lookupTrackerNumber(getParameter(query, PARAMETER_ALPHA), getParameter(query, PARAMETER_BETA),
+            getParameter(query, PARAMETER_PUBLIC_KEY));
+        return (trackerNumber != null) ? Collections.singletonMap("trackerNumber", trackerNumber.getTrackerNumber()) : null;
+      }));
+      this.server.createContext(BALLOT_PATH, exchange -> this.handle(exchange, this.ballotLatencies, query -> {
+        final Boolean verified = this.verifyBallot(getParameter(query, PARAMETER_PUBLIC_KEY));
+        return (verified != null) ? Collections.singletonMap("verified", verified) : null;
+      }));
+      this.server.createContext(METRICS_PATH, exchange -> this.handle(exchange, null, query -> {
+        final Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put(TRACKER_NUMBER_PATH.substring(1), this.trackerNumberLatencies.toMap());
+        metrics.put(BALLOT_PATH.substring(1), this.ballotLatencies.toMap());
+        return metrics;
+      }));
+      this.server.setExecutor(this.executor);
+      this.server.start();
+      this.activity = VerificatumInProcessRunner.beginActivity();
+    }
+    catch (final IOException e) {
+      this.executor.shutdownNow();
+      this.server = null;
+      throw new VMVException("Could not start voter service on port " + port, e);
+    }
+
+    LOG.info("voter service: listening on port {} with {} threads", this.getPort(), threads);
+  }
+
+  /**
+   * Stops the service, allowing requests being served a short time to complete.
+   */
+  public synchronized void stop() {
+    if (this.server != null) {
+      this.server.stop(1);
+      this.executor.shutdownNow();
+      this.server = null;
+      this.executor = null;
+      this.activity.close();
+      this.activity = null;
+      LOG.info("voter service: stopped");
+    }
+  }
+
+  /**
+   * Verifies the proof of encryption and signature of a voter's published encrypted vote.
+   *
+   * @param publicKey The voter's trapdoor public key.
+   * @return True if the encrypted vote is verified, false if not, or null if there is no encrypted vote or proof for the voter.
+   * @throws CryptographyException if the proof could not be verified.
+   */
+  public Boolean verifyBallot(final BigInteger publicKey) throws CryptographyException {
+    final Voter voter = this.ballots.get(publicKey);
+    final EncryptProof proof = this.proofs.get(publicKey);
+
+    if ((voter == null) || (proof == null) || (voter.getEncryptedVote() == null) || (voter.getEncryptedVote().length == 0)) {
+      return null;
+    }
+
+    // The proof must be for the published signature as well as verifying against it.
+    return Arrays.equals(voter.getEncryptedVoteSignature(), proof.getEncryptedVoteSignature()) &&
+        this.cryptographyHelper.verifyEncryptProof(this.parameters, this.keyPair, voter.getEncryptedVote(), voter.getVoterKeyPairs().getSignatureKeyPair(),
+            proof);
+  }
+
+  /**
+   * Answers a request.
+   */
+  @FunctionalInterface
+  private interface Handler {
+
+    /**
+     * Answers a request.
+     *
+     * @param query The query parameters.
+     * @return The response, or null if the request is for something which does not exist.
+     * @throws Exception if the request could not be answered.
+     */
+    Object handle(Map<String, String> query) throws Exception;
+  }
+}
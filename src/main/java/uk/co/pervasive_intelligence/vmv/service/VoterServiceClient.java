@@ -0,0 +1,159 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stand-in for the voters' clients of the {@link VoterService}, used to load test the service by sending requests from a number of concurrent clients.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VoterServiceClient {
+
+  /** The time allowed to connect and for each response in milliseconds. */
+  private static final int TIMEOUT = 30000;
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VoterServiceClient.class);
+
+  /** The base URL of the service. */
+  private final String url;
+
+  /**
+   * Constructor requiring the service location.
+   *
+   * @param url The base URL of the service, such as http://localhost:8080.
+   */
+  public VoterServiceClient(final String url) {
+    this.url = url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+  }
+
+  /**
+   * Forms the path and query of a ballot verification request.
+   *
+   * @param publicKey The voter's trapdoor public key.
+   * @return The request.
+   */
+  public static String ballotRequest(final BigInteger publicKey) {
+    return VoterService.BALLOT_PATH + "?public-key=" + publicKey;
+  }
+
+  /**
+   * Forms the path and query of a tracker number request.
+   *
+   * @param alpha     The alpha commitment.
+   * @param beta      The beta commitment.
+   * @param publicKey The voter's trapdoor public key.
+   * @return The request.
+   */
+  public static String trackerNumberRequest(final BigInteger alpha, final BigInteger beta, final BigInteger publicKey) {
+    return VoterService.TRACKER_NUMBER_PATH + "?alpha=" + alpha + "&beta=" + beta + "&public-key=" + publicKey;
+  }
+
+  /**
+   * Sends requests from concurrent clients, each client sending the next of the requests in turn, repeating them as needed, until the number of requests have
+   * been sent.
+   *
+   * @param requests    The paths and queries of the requests.
+   * @param number      The total number of requests to send.
+   * @param concurrency The number of concurrent clients.
+   * @return The latency of each request as seen by the clients. A request fails if its response is not successful.
+   * @throws VMVException if the requests could not be sent.
+   */
+  public LatencyHistogram loadTest(final List<String> requests, final int number, final int concurrency) throws VMVException {
+    if (requests.isEmpty()) {
+      throw new VMVException("No requests to send");
+    }
+
+    final LatencyHistogram latencies = new LatencyHistogram();
+    final AtomicInteger next = new AtomicInteger();
+    final ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, concurrency));
+
+    try {
+      final List<Callable<Void>> clients = new ArrayList<>();
+
+      for (int i = 0; i < Math.max(1, concurrency); i++) {
+        clients.add(() -> {
+          int request;
+
+          while ((request = next.getAndIncrement()) < number) {
+            final long start = System.nanoTime();
+            boolean failed;
+
+            try {
+              failed = this.send(requests.get(request % requests.size())) != HttpURLConnection.HTTP_OK;
+            }
+            catch (final IOException e) {
+              LOG.debug("voter service client:", e);
+              failed = true;
+            }
+
+            latencies.record(System.nanoTime() - start, failed);
+          }
+
+          return null;
+        });
+      }
+
+      for (final Future<Void> future : executor.invokeAll(clients)) {
+        future.get();
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VMVException("Interrupted sending requests", e);
+    }
+    catch (final ExecutionException e) {
+      throw new VMVException("Could not send requests", e.getCause());
+    }
+    finally {
+      executor.shutdownNow();
+    }
+
+    return latencies;
+  }
+
+  /**
+   * Sends a request and reads the response.
+   *
+   * @param request The path and query of the request.
+   * @return The status of the response.
+   * @throws IOException if the request could not be sent.
+   */
+  public int send(final String request) throws IOException {
+    final HttpURLConnection connection = (HttpURLConnection) new URL(this.url + request).openConnection();
+    connection.setConnectTimeout(TIMEOUT);
+    connection.setReadTimeout(TIMEOUT);
+
+    final int status = connection.getResponseCode();
+
+    // Read the whole response so that the connection can be reused.
+    try (final InputStream input = (status < HttpURLConnection.HTTP_BAD_REQUEST) ? connection.getInputStream() : connection.getErrorStream()) {
+      if (input != null) {
+        final byte[] buffer = new byte[4096];
+
+        while (input.read(buffer) >= 0) {
+          // Do nothing.
+        }
+      }
+    }
+
+    return status;
+  }
+}
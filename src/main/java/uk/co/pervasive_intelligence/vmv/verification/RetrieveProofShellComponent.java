@@ -0,0 +1,160 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CommitmentProof;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.EncryptProof;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.math.BigInteger;
+import java.util.Collections;
+
+/**
+ * Retrieve proof shell command. Run by anyone, such as a voter, to retrieve a single published proof of encryption or commitment from a proof archive using the
+ * voter's public key, without reading the rest of the archive.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class RetrieveProofShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(RetrieveProofShellComponent.class);
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param messageSource The source for messages.
+   */
+  public RetrieveProofShellComponent(final MessageSource messageSource) {
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Determines the class of proof held in a proof archive.
+   *
+   * @param file The proof archive.
+   * @return The class of proof.
+   * @throws CryptographyException if the archive could not be read.
+   * @throws VMVException          if the archive does not hold a known class of proof.
+   */
+  static Class<?> getProofClass(final File file) throws CryptographyException, VMVException {
+    final String type = ProofArchive.readType(file);
+
+    if (EncryptProof.class.getSimpleName().equals(type)) {
+      return EncryptProof.class;
+    }
+    else if (CommitmentProof.class.getSimpleName().equals(type)) {
+      return CommitmentProof.class;
+    }
+
+    throw new VMVException("Unknown proof archive type: " + type);
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "verification.retrieve_proof.help", group = "verification.group")
+  public void retrieveProof(@ShellOption(optOut = true) @Valid final RetrieveProofOptions options) {
+    LOG.info("retrieve-proof --proofs {} --key {} --position {} --output {}", options.proofs, options.key, options.position, options.output);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      if ((options.key == null) == (options.position == null)) {
+        throw new VMVException("Either the key or the position of the proof is required");
+      }
+
+      final Class<?> clazz = getProofClass(options.proofs);
+
+      // Only the index header, a single index chunk and the proof's chunk are read.
+      try (final ProofArchive<?> archive = ProofArchive.open(options.proofs, clazz, JacksonViews.Public.class)) {
+        final Object proof = (options.key != null) ? archive.get(new BigInteger(options.key)) : archive.get(options.position.intValue());
+
+        if (proof == null) {
+          throw new VMVException(this.messageSource.getMessage("verification.retrieve_proof.missing", new Object[] {options.key}, null));
+        }
+
+        this.writeCSV(options.output, clazz, Collections.singletonList(proof), JacksonViews.Public.class);
+      }
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("retrieve-proof", options.output);
+    }
+    catch (final Exception e) {
+      LOG.error("retrieve-proof:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("retrieve-proof: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #retrieveProof(RetrieveProofOptions)}.
+   */
+  public static class RetrieveProofOptions {
+
+    /** The key of the proof, such as the voter's public key. */
+    @Parameter(names = "--key")
+    String key;
+
+    /** The output file. */
+    @Parameter(names = "--output", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File output;
+
+    /** The position of the proof in the archive. */
+    @Parameter(names = "--position")
+    Integer position;
+
+    /** The published proof archive. */
+    @Parameter(names = "--proofs", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File proofs;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private RetrieveProofOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param proofs   The published proof archive.
+     * @param key      The key of the proof, such as the voter's public key.
+     * @param position The position of the proof in the archive.
+     * @param output   The output file.
+     */
+    public RetrieveProofOptions(final File proofs, final String key, final Integer position, final File output) {
+      this.proofs = proofs;
+      this.key = key;
+      this.position = position;
+      this.output = output;
+    }
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Verify proof archive shell command. Run by anyone auditing the election to verify every proof of encryption or commitment in a published proof archive against
+ * the published encrypted votes or commitments. Each chunk of the archive is read and verified in parallel, so that the whole archive is never held in memory.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class VerifyProofArchiveShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VerifyProofArchiveShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   * @param messageSource      The source for messages.
+   */
+  public VerifyProofArchiveShellComponent(final CryptographyHelper cryptographyHelper, final MessageSource messageSource) {
+    this.cryptographyHelper = cryptographyHelper;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Verifies an archive of commitment proofs against the published commitments, which are in the same order as the proofs.
+   *
+   * @param parameters The election parameters.
+   * @param keyPair    The election public key.
+   * @param file       The proof archive.
+   * @param published  The published commitments file.
+   * @param executor   The executor used to verify each chunk.
+   * @return True if all of the proofs are verified.
+   * @throws Exception if the proofs could not be verified.
+   */
+  private boolean verifyCommitmentProofs(final Parameters parameters, final KeyPair keyPair, final File file, final File published,
+                                         final ExecutorService executor) throws Exception {
+    final List<Commitment> commitments = this.readCSV(published, Commitment.class, JacksonViews.Public.class, new ArrayList<>());
+
+    try (final ProofArchive<CommitmentProof> archive = ProofArchive.open(file, CommitmentProof.class, JacksonViews.Public.class)) {
+      if (archive.size() != commitments.size()) {
+        throw new VMVException("Number of proofs and commitments does not match: " + archive.size() + " vs. " + commitments.size());
+      }
+
+      return archive.verify(executor, (position, proof) -> this.cryptographyHelper.verifyCommitmentProof(parameters, keyPair,
+          commitments.get(position).getPublicKey(), commitments.get(position), proof));
+    }
+  }
+
+  /**
+   * Verifies an archive of encryption proofs against the published encrypted votes. The proofs are in the same order as the voters who have an encrypted vote.
+   *
+   * @param parameters The election parameters.
+   * @param keyPair    The election public key.
+   * @param file       The proof archive.
+   * @param published  The published encrypted votes file.
+   * @param executor   The executor used to verify each chunk.
+   * @return True if all of the proofs are verified.
+   * @throws Exception if the proofs could not be verified.
+   */
+  private boolean verifyEncryptProofs(final Parameters parameters, final KeyPair keyPair, final File file, final File published,
+                                      final ExecutorService executor) throws Exception {
+    final List<Voter> voters = new ArrayList<>();
+
+    for (final Voter voter : this.readCSV(published, Voter.class, JacksonViews.Vote.class, new ArrayList<>())) {
+      if ((voter.getEncryptedVote() != null) && (voter.getEncryptedVote().length > 0)) {
+        voters.add(voter);
+      }
+    }
+
+    try (final ProofArchive<EncryptProof> archive = ProofArchive.open(file, EncryptProof.class, JacksonViews.Public.class)) {
+      if (archive.size() != voters.size()) {
+        throw new VMVException("Number of proofs and encrypted votes does not match: " + archive.size() + " vs. " + voters.size());
+      }
+
+      // The proof must be for the published signature as well as verifying against it.
+      return archive.verify(executor, (position, proof) -> {
+        final Voter voter = voters.get(position);
+
+        return Arrays.equals(voter.getEncryptedVoteSignature(), proof.getEncryptedVoteSignature()) && this.cryptographyHelper.verifyEncryptProof(parameters,
+            keyPair, voter.getEncryptedVote(), voter.getVoterKeyPairs().getSignatureKeyPair(), proof);
+      });
+    }
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "verification.verify_proof_archive.help", group = "verification.group")
+  public void verifyProofArchive(@ShellOption(optOut = true) @Valid final VerifyProofArchiveOptions options) {
+    LOG.info("verify-proof-archive --election {} --proofs {} --published {}", options.election, options.proofs, options.published);
+
+    final ExecutorService executor = Executors.newWorkStealingPool();
+
+    try {
+      // Load in the election parameters and public key.
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+          JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+
+      // Verify the proofs against the published data for their type.
+      final long start = System.currentTimeMillis();
+      final Class<?> clazz = RetrieveProofShellComponent.getProofClass(options.proofs);
+      final boolean verified = (clazz == EncryptProof.class) ? this.verifyEncryptProofs(parameters, keyPair, options.proofs, options.published, executor) :
+          this.verifyCommitmentProofs(parameters, keyPair, options.proofs, options.published, executor);
+      final long duration = System.currentTimeMillis() - start;
+
+      LOG.info("verify-proof-archive: {} {} {} {}ms", options.proofs, clazz.getSimpleName(), verified, duration);
+
+      if (!verified) {
+        throw new VMVException(this.messageSource.getMessage("verification.verify_proof_archive.failed", new Object[] {options.proofs, clazz.getSimpleName(),
+            duration}, null));
+      }
+
+      System.out.println(this.messageSource.getMessage("verification.verify_proof_archive.verified", new Object[] {options.proofs, clazz.getSimpleName(),
+          duration}, null));
+    }
+    catch (final Exception e) {
+      LOG.error("verify-proof-archive:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      executor.shutdown();
+      LOG.info("verify-proof-archive: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #verifyProofArchive(VerifyProofArchiveOptions)}.
+   */
+  public static class VerifyProofArchiveOptions {
+
+    /** The public election files. */
+    @Parameter(names = "--election", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> election = new ArrayList<>();
+
+    /** The published proof archive. */
+    @Parameter(names = "--proofs", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File proofs;
+
+    /** The published encrypted votes or commitments which the proofs are for. */
+    @Parameter(names = "--published", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File published;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private VerifyProofArchiveOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election  The public election files.
+     * @param proofs    The published proof archive.
+     * @param published The published encrypted votes or commitments which the proofs are for.
+     */
+    public VerifyProofArchiveOptions(final List<File> election, final File proofs, final File published) {
+      if (election != null) {
+        this.election.addAll(election);
+      }
+      this.proofs = proofs;
+      this.published = published;
+    }
+  }
+}
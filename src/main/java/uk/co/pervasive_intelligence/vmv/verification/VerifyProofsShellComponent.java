@@ -0,0 +1,238 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Verify proofs shell command. Run by anyone auditing the election to verify the proofs published by the tracker number shuffle, vote mix and commitment
+ * decryption. Each proof is an independent session, so all of the proofs are verified concurrently. Each proof is only verified against the election's own
+ * parameters, public key, protocol information and published ciphertexts, so that a proof created for any other values fails.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class VerifyProofsShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(VerifyProofsShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   * @param messageSource      The source for messages.
+   */
+  public VerifyProofsShellComponent(final CryptographyHelper cryptographyHelper, final MessageSource messageSource) {
+    this.cryptographyHelper = cryptographyHelper;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Reads the published encrypted tracker numbers.
+   *
+   * @param file The published tracker numbers.
+   * @param view The view with which the tracker numbers were published.
+   * @return The encrypted tracker numbers, in the order they were published.
+   * @throws VMVException          if the tracker numbers could not be read.
+   * @throws CryptographyException if an encrypted tracker number could not be decoded.
+   */
+  private List<CipherText> readTrackerNumbers(final File file, final Class<?> view) throws VMVException, CryptographyException {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (final TrackerNumber trackerNumber : this.readCSV(file, TrackerNumber.class, view, new ArrayList<>())) {
+      cipherTexts.add(new CipherText(trackerNumber.getEncryptedTrackerNumberInGroup()));
+    }
+
+    return cipherTexts;
+  }
+
+  /**
+   * Reads the published encrypted tracker numbers and votes which are mixed, in the same way as the vote mix: one block for each voter with both an encrypted
+   * tracker number and an encrypted vote.
+   *
+   * @param file The published encrypted votes.
+   * @return The encrypted tracker numbers and votes, one block per voter.
+   * @throws VMVException          if the encrypted votes could not be read.
+   * @throws CryptographyException if an encrypted value could not be decoded.
+   */
+  private List<CipherText> readVotes(final File file) throws VMVException, CryptographyException {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (final Voter voter : this.readCSV(file, Voter.class, JacksonViews.Vote.class, new ArrayList<>())) {
+      final byte[] encryptedTrackerNumberInGroup = (voter.getTrackerNumber() != null) ? voter.getTrackerNumber().getEncryptedTrackerNumberInGroup() : null;
+      final byte[] encryptedVote = voter.getEncryptedVote();
+
+      if ((encryptedTrackerNumberInGroup != null) && (encryptedTrackerNumberInGroup.length > 0) && (encryptedVote != null) && (encryptedVote.length > 0)) {
+        cipherTexts.add(new CipherText(encryptedTrackerNumberInGroup));
+        cipherTexts.add(new CipherText(encryptedVote));
+      }
+    }
+
+    return cipherTexts;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "verification.verify_proofs.help", group = "verification.group")
+  public void verifyProofs(@ShellOption(optOut = true) @Valid final VerifyProofsOptions options) {
+    LOG.info("verify-proofs --election {} --protocol-information {} --tracker-numbers {} --voters {} --proofs {} --output {}", options.election,
+        options.protocolInformation, options.trackerNumbers, options.voters, options.proofs, options.output);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      // Load in the election's own published values which the proofs must have been created for.
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+          JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      List<CipherText> trackerNumbers = null;
+      List<CipherText> shuffledTrackerNumbers = null;
+      List<CipherText> votes = null;
+
+      if (!options.trackerNumbers.isEmpty()) {
+        trackerNumbers = this.readTrackerNumbers(options.trackerNumbers.get(0), JacksonViews.RestrictedPublic.class);
+        shuffledTrackerNumbers = this.readTrackerNumbers(options.trackerNumbers.get(1), JacksonViews.Public.class);
+      }
+
+      if (options.voters != null) {
+        votes = this.readVotes(options.voters);
+      }
+
+      final ProofStatement statement = new ProofStatement(parameters, keyPair.getPublicKey(), options.protocolInformation, trackerNumbers,
+          shuffledTrackerNumbers, votes);
+
+      // Verify all of the proofs, reporting the outcome and time taken for each.
+      final List<ProofVerification> verifications = this.cryptographyHelper.verifyProofs(statement, options.proofs);
+      int failed = 0;
+
+      for (final ProofVerification verification : verifications) {
+        LOG.info("verify-proofs: {} {} {} {}ms", verification.getProof(), verification.getType(), verification.isVerified(), verification.getDuration());
+
+        if (verification.isVerified()) {
+          System.out.println(this.messageSource.getMessage("verification.verify_proofs.verified", new Object[] {verification.getProof(),
+              verification.getType(), verification.getDuration()}, null));
+        }
+        else {
+          failed++;
+          System.out.println(this.messageSource.getMessage("verification.verify_proofs.failed", new Object[] {verification.getProof(),
+              verification.getType(), verification.getDuration(), verification.getError()}, null));
+        }
+      }
+
+      // Output the report, if required.
+      if (options.output != null) {
+        this.writeCSV(options.output, ProofVerification.class, verifications);
+      }
+
+      if (failed > 0) {
+        throw new VMVException(failed + " of " + verifications.size() + " proofs failed verification");
+      }
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("verify-proofs", options.output);
+    }
+    catch (final Exception e) {
+      LOG.error("verify-proofs:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("verify-proofs: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #verifyProofs(VerifyProofsOptions)}.
+   */
+  public static class VerifyProofsOptions {
+
+    /** The public election files. */
+    @Parameter(names = "--election", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> election = new ArrayList<>();
+
+    /** The optional verification report file. */
+    @Parameter(names = "--output", converter = JCommanderConfiguration.FileConverter.class)
+    File output;
+
+    /** The published proof files. */
+    @Parameter(names = "--proofs", variableArity = true, required = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> proofs = new ArrayList<>();
+
+    /** The election's protocol information, needed to verify the proofs of an election with tellers. */
+    @Parameter(names = "--protocol-information", converter = JCommanderConfiguration.FileConverter.class)
+    File protocolInformation;
+
+    /** The published tracker numbers and shuffled tracker numbers, needed to verify the tracker number shuffle. */
+    @Parameter(names = "--tracker-numbers", arity = 2, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> trackerNumbers = new ArrayList<>();
+
+    /** The published encrypted votes, needed to verify the vote mix. */
+    @Parameter(names = "--voters", converter = JCommanderConfiguration.FileConverter.class)
+    File voters;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private VerifyProofsOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election            The public election files.
+     * @param protocolInformation The election's protocol information. May be null if there are no tellers.
+     * @param trackerNumbers      The published tracker numbers and shuffled tracker numbers. May be null.
+     * @param voters              The published encrypted votes. May be null.
+     * @param proofs              The published proof files.
+     * @param output              The optional verification report file.
+     */
+    public VerifyProofsOptions(final List<File> election, final File protocolInformation, final List<File> trackerNumbers, final File voters,
+                               final List<File> proofs, final File output) {
+      if (election != null) {
+        this.election.addAll(election);
+      }
+      this.protocolInformation = protocolInformation;
+      if (trackerNumbers != null) {
+        this.trackerNumbers.addAll(trackerNumbers);
+      }
+      this.voters = voters;
+      if (proofs != null) {
+        this.proofs.addAll(proofs);
+      }
+      this.output = output;
+    }
+  }
+}
@@ -0,0 +1,137 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DecryptionShare;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Min;
+import java.io.File;
+import java.util.List;
+
+/**
+ * Create decryption share shell command: a teller's proved share of the decryption of the ciphertexts written by decrypt-commitments or mix-votes, using the key
+ * share created by merge-key-shares.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class CreateDecryptionShareShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(CreateDecryptionShareShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   */
+  public CreateDecryptionShareShellComponent(final CryptographyHelper cryptographyHelper) {
+    this.cryptographyHelper = cryptographyHelper;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "vote_anonymisation_and_decryption.create_decryption_share.help", group = "vote_anonymisation_and_decryption.group")
+  @SuppressWarnings("unchecked")
+  public void createDecryptionShare(@ShellOption(optOut = true) @Valid final CreateDecryptionShareOptions options) {
+    LOG.info("create-decryption-share --election {} --teller {} --ciphertexts {} --publish {}", options.election, options.teller, options.cipherTexts,
+        options.publish);
+
+    try {
+      // Record the metrics of this command only.
+      this.startMetrics();
+
+      // Load in the election parameters.
+      final Parameters parameters =
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+
+      // Load in the ciphertexts to decrypt.
+      final List<CipherText> cipherTexts = (List<CipherText>) this.readCSV(options.cipherTexts, CipherText.class);
+
+      // Create the decryption share.
+      final DecryptionShare share = this.cryptographyHelper.createDecryptionShare(parameters, options.teller, cipherTexts);
+
+      // Output for publication the decryption share, which includes its proofs.
+      new ObjectMapper().writeValue(options.publish, share);
+
+      // Write the metrics report next to the published decryption share.
+      this.writeMetrics("create-decryption-share", options.publish);
+    }
+    catch (final Exception e) {
+      LOG.error("create-decryption-share:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("create-decryption-share: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #createDecryptionShare(CreateDecryptionShareOptions)}.
+   */
+  public static class CreateDecryptionShareOptions {
+
+    /** The ciphertexts file. */
+    @Parameter(names = "--ciphertexts", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File cipherTexts;
+
+    /** The public election file. */
+    @Parameter(names = "--election", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File election;
+
+    /** The publish file. */
+    @Parameter(names = "--publish", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File publish;
+
+    /** The number of the teller. Each teller has a unique number, starting at 1. */
+    @Parameter(names = "--teller", required = true)
+    @Min(1)
+    int teller;
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election    The public election file.
+     * @param teller      The number of the teller. Each teller has a unique number, starting at 1.
+     * @param cipherTexts The ciphertexts file.
+     * @param publish     The publish file.
+     */
+    public CreateDecryptionShareOptions(final File election, final int teller, final File cipherTexts, final File publish) {
+      this.election = election;
+      this.teller = teller;
+      this.cipherTexts = cipherTexts;
+      this.publish = publish;
+    }
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private CreateDecryptionShareOptions() {
+      // Do nothing.
+    }
+  }
+}
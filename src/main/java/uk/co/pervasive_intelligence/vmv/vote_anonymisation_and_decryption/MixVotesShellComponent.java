@@ -7,6 +7,7 @@ package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
 
 import com.beust.jcommander.JCommander;
 import com.beust.jcommander.Parameter;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.shell.standard.ShellComponent;
@@ -14,18 +15,20 @@ import org.springframework.shell.standard.ShellMethod;
 import org.springframework.shell.standard.ShellOption;
 import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.VMVException;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
- * Mix votes shell command.
+ * Mix votes shell command. Where the tellers hold their own key shares, the votes are first shuffled into --ciphertexts for each teller to create its
+ * decryption share, and then decrypted by combining a threshold number of the shares with --decryption-shares.
  *
  * @author Matthew Casey, Pervasive Intelligence Ltd
  */
@@ -56,37 +59,82 @@ public class MixVotesShellComponent extends BaseShellComponent {
   @SuppressWarnings("unchecked")
   public void mixVotes(@ShellOption(optOut = true) @Valid final MixVotesOptions options) {
     try {
-      LOG.info("shuffle-votes --election {} --teller {} --tracker-numbers {} --votes {} --voters {} --publish {}", options.election, options.teller,
-          options.trackerNumbers, options.votes, options.voters, options.publish);
+      LOG.info("mix-votes --election {} --teller {} --tracker-numbers {} --votes {} --voters {} --ciphertexts {} --decryption-shares {} --publish {}",
+          options.election, options.teller, options.trackerNumbers, options.votes, options.voters, options.cipherTexts, options.decryptionShares,
+          options.publish);
+
+      // Record the metrics of this command only.
+      this.startMetrics();
 
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, null).get(0);
 
       // Load in the vote options.
       final List<VoteOption> voteOptions = (List<VoteOption>) this.readCSV(options.votes, VoteOption.class, JacksonViews.Public.class);
 
       // Load in the tracker numbers, including their restricted elements.
-      final List<TrackerNumber> trackerNumberList = (List<TrackerNumber>) this.readCSV(options.trackerNumbers, TrackerNumber.class,
+      final List<TrackerNumber> trackerNumberList = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class,
           JacksonViews.RestrictedPublic.class);
 
-      // Load in the encrypted votes.
-      final List<Voter> encryptedVoters = (List<Voter>) this.readCSV(options.voters, Voter.class, JacksonViews.Vote.class);
+      if (!options.decryptionShares.isEmpty()) {
+        if (options.cipherTexts == null) {
+          throw new VMVException("The shuffled ciphertexts are needed to combine the decryption shares");
+        }
+
+        // Combine the tellers' decryption shares of the shuffled votes.
+        final List<CipherText> cipherTexts = (List<CipherText>) this.readCSV(options.cipherTexts, CipherText.class);
+        final ObjectMapper mapper = new ObjectMapper();
+        final List<DecryptionShare> decryptionShares = new ArrayList<>();
+
+        for (final File file : options.decryptionShares) {
+          decryptionShares.add(mapper.readValue(file, DecryptionShare.class));
+        }
+
+        final List<Voter> mixedVoters = this.cryptographyHelper.decryptVotes(parameters, keyPair, trackerNumberList, voteOptions, cipherTexts,
+            decryptionShares);
+
+        // Output for publication the mixed votes. The published decryption shares are the proofs of decryption.
+        this.writeCSV(options.publish.get(0), Voter.class, mixedVoters, JacksonViews.Mixed.class, parameters.getElementEncoding());
+
+        // Write the metrics report next to the published votes.
+        this.writeMetrics("mix-votes", options.publish.get(0));
+        return;
+      }
+
+      // Load in the encrypted votes, holding them in columnar form.
+      final List<Voter> encryptedVoters = this.readCSV(options.voters, Voter.class, JacksonViews.Vote.class, VoterStore.forParameters(parameters));
+
+      if (options.cipherTexts != null) {
+        // Shuffle the votes without decrypting them, for each teller to create its decryption share.
+        final ProofWrapper<List<CipherText>> shuffledWithProof = this.cryptographyHelper.shuffleVotes(parameters, keyPair, options.teller, encryptedVoters);
+        this.writeCSV(options.cipherTexts, CipherText.class, shuffledWithProof.getObject(), null, parameters.getElementEncoding());
+
+        // Publish the shuffle proof file to the output, if it exists.
+        if ((shuffledWithProof.getProofFile() != null) && shuffledWithProof.getProofFile().exists()) {
+          ProofPackage.publish(shuffledWithProof.getProofFile(), options.publish.get(1));
+        }
+
+        // Write the metrics report next to the shuffled votes.
+        this.writeMetrics("mix-votes", options.cipherTexts);
+        return;
+      }
 
       // Mix the votes.
       final ProofWrapper<List<Voter>> votersWithProof = this.cryptographyHelper.mixVotes(parameters, keyPair, options.teller, trackerNumberList, voteOptions,
           encryptedVoters);
 
       // Output for publication the mixed votes and proofs.
-      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Mixed.class);
+      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Mixed.class, parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file to the output, if it exists.
       if ((votersWithProof.getProofFile() != null) && votersWithProof.getProofFile().exists()) {
-        options.publish.get(1).delete();
-        Files.copy(votersWithProof.getProofFile().toPath(), options.publish.get(1).toPath());
-        votersWithProof.getProofFile().delete();
+        ProofPackage.publish(votersWithProof.getProofFile(), options.publish.get(1));
       }
+
+      // Write the metrics report next to the published votes.
+      this.writeMetrics("mix-votes", options.publish.get(0));
     }
     catch (final Exception e) {
       LOG.error("mix-votes:", e);
@@ -102,6 +150,14 @@ public class MixVotesShellComponent extends BaseShellComponent {
    */
   public static class MixVotesOptions {
 
+    /** The file to which the shuffled votes are written for the tellers to create their decryption shares, or from which they are read to be combined. */
+    @Parameter(names = "--ciphertexts", converter = JCommanderConfiguration.FileConverter.class)
+    File cipherTexts;
+
+    /** The published decryption shares of the shuffled votes from a threshold number of tellers to combine, rather than mixing with Verificatum. */
+    @Parameter(names = "--decryption-shares", variableArity = true, converter = JCommanderConfiguration.FileConverter.class)
+    List<File> decryptionShares = new ArrayList<>();
+
     /** The public election files. */
     @Parameter(names = "--election", arity = 2, required = true, converter = JCommanderConfiguration.FileConverter.class)
     List<File> election = new ArrayList<>();
@@ -137,6 +193,27 @@ public class MixVotesShellComponent extends BaseShellComponent {
      * @param publish        The publish files.
      */
     public MixVotesOptions(final List<File> election, final int teller, final File trackerNumbers, final File votes, final File voters, final List<File> publish) {
+      this(election, teller, trackerNumbers, votes, voters, null, null, publish);
+    }
+
+    /**
+     * Constructor allow the fields to be set, including those used when the tellers decrypt with their own key shares.
+     *
+     * @param election         The public election files.
+     * @param teller           The number of the teller. Each teller has a unique number, starting at 1.
+     * @param trackerNumbers   The tracker numbers file.
+     * @param votes            The vote options file.
+     * @param voters           The encrypted votes per voter.
+     * @param cipherTexts      The file to which the shuffled votes are written, or from which they are read to be combined. May be null.
+     * @param decryptionShares The published decryption shares of the shuffled votes to combine. May be null.
+     * @param publish          The publish files.
+     */
+    public MixVotesOptions(final List<File> election, final int teller, final File trackerNumbers, final File votes, final File voters, final File cipherTexts,
+                           final List<File> decryptionShares, final List<File> publish) {
+      this.cipherTexts = cipherTexts;
+      if (decryptionShares != null) {
+        this.decryptionShares.addAll(decryptionShares);
+      }
       if (election != null) {
         this.election.addAll(election);
       }
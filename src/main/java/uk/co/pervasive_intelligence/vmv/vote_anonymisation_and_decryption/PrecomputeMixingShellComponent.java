@@ -0,0 +1,117 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Parameters;
+
+import javax.validation.Valid;
+import java.io.File;
+
+/**
+ * Precompute mixing shell command. Run by every teller at the same time, typically during the voting period, so that the later tracker number shuffle and vote
+ * mix only need to perform the work which depends upon the ciphertexts.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class PrecomputeMixingShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(PrecomputeMixingShellComponent.class);
+
+  /** The cryptography helper. */
+  private final CryptographyHelper cryptographyHelper;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param cryptographyHelper The cryptography helper.
+   */
+  public PrecomputeMixingShellComponent(final CryptographyHelper cryptographyHelper) {
+    this.cryptographyHelper = cryptographyHelper;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "vote_anonymisation_and_decryption.precompute_mixing.help", group = "vote_anonymisation_and_decryption.group")
+  public void precomputeMixing(@ShellOption(optOut = true) @Valid final PrecomputeMixingOptions options) {
+    LOG.info("precompute-mixing --election {} --teller {} --tracker-numbers {} --voters {}", options.election, options.teller, options.trackerNumbers,
+        options.voters);
+
+    try {
+      // Load in the election parameters.
+      final Parameters parameters =
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+
+      // Precompute for the expected maximum numbers of tracker numbers and votes.
+      this.cryptographyHelper.precomputeMixing(parameters, options.teller, options.trackerNumbers, options.voters);
+    }
+    catch (final Exception e) {
+      LOG.error("precompute-mixing:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("precompute-mixing: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #precomputeMixing(PrecomputeMixingOptions)}.
+   */
+  public static class PrecomputeMixingOptions {
+
+    /** The public election file. */
+    @Parameter(names = "--election", required = true)
+    File election;
+
+    /** The number of the teller. Each teller has a unique number, starting at 1. */
+    @Parameter(names = "--teller", required = true)
+    int teller;
+
+    /** The maximum number of tracker numbers which will be shuffled, or zero to skip the shuffle. */
+    @Parameter(names = "--tracker-numbers")
+    int trackerNumbers;
+
+    /** The maximum number of votes which will be mixed, or zero to skip the mix. */
+    @Parameter(names = "--voters")
+    int voters;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private PrecomputeMixingOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param election       The public election file.
+     * @param teller         The number of the teller. Each teller has a unique number, starting at 1.
+     * @param trackerNumbers The maximum number of tracker numbers which will be shuffled, or zero to skip the shuffle.
+     * @param voters         The maximum number of votes which will be mixed, or zero to skip the mix.
+     */
+    public PrecomputeMixingOptions(final File election, final int teller, final int trackerNumbers, final int voters) {
+      this.election = election;
+      this.teller = teller;
+      this.trackerNumbers = trackerNumbers;
+      this.voters = voters;
+    }
+  }
+}
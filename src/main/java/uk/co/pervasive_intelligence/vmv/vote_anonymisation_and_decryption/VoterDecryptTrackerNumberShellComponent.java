@@ -24,6 +24,7 @@ import uk.co.pervasive_intelligence.vmv.cryptography.data.VoterKeyPairs;
 import javax.validation.Valid;
 import java.io.File;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -37,6 +38,9 @@ public class VoterDecryptTrackerNumberShellComponent extends BaseShellComponent
   /** Logger. */
   private static final Logger LOG = LoggerFactory.getLogger(VoterDecryptTrackerNumberShellComponent.class);
 
+  /** The column holding the voter's trapdoor public key. */
+  private static final String PUBLIC_KEY_TRAPDOOR = "publicKeyTrapdoor";
+
   /** The cryptography helper. */
   private final CryptographyHelper cryptographyHelper;
 
@@ -60,7 +64,6 @@ public class VoterDecryptTrackerNumberShellComponent extends BaseShellComponent
    * @param options The {@link JCommander} options.
    */
   @ShellMethod(value = "vote_anonymisation_and_decryption.voter_decrypt_tracker_number.help", group = "vote_anonymisation_and_decryption.group")
-  @SuppressWarnings("unchecked")
   public void voterDecryptTrackerNumber(@ShellOption(optOut = true) @Valid final VoterDecryptTrackerNumberShellComponent.VoterDecryptTrackerNumberOptions options) {
     try {
       LOG.info("voter-decrypt-tracker-number --election {} --alpha {} --beta {} --public-key {} --voters {} --tracker-numbers {}", options.election, options.alpha,
@@ -68,13 +71,19 @@ public class VoterDecryptTrackerNumberShellComponent extends BaseShellComponent
 
       // Load in the election parameters.
       final Parameters parameters =
-          (Parameters) this.readCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+          this.readCachedCSV(options.election, this.cryptographyHelper.getElectionParametersClass(), JacksonViews.Public.class).get(0);
+
+      // Load in the public and private voter key pairs, but only materialise those matching the voter's public key.
+      final List<VoterKeyPairs> votersKeyPairs = new ArrayList<>();
 
-      // Load in the public and private voter key pairs.
-      final List<VoterKeyPairs> votersKeyPairs = (List<VoterKeyPairs>) this.readCSV(options.voters, VoterKeyPairs.class);
+      for (final LazyRecord<VoterKeyPairs> record : this.readCSVLazily(options.voters, VoterKeyPairs.class, null)) {
+        if (options.publicKey.equals(record.getElement(PUBLIC_KEY_TRAPDOOR))) {
+          votersKeyPairs.add(record.getValue());
+        }
+      }
 
       // Load in the tracker numbers, including their restricted elements.
-      final List<TrackerNumber> trackerNumberList = (List<TrackerNumber>) this.readCSV(options.trackerNumbers, TrackerNumber.class,
+      final List<TrackerNumber> trackerNumberList = this.readCachedCSV(options.trackerNumbers, TrackerNumber.class,
           JacksonViews.RestrictedPublic.class);
 
       // Attempt to decrypt the tracker number.
@@ -16,11 +16,12 @@ import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -61,10 +62,13 @@ public class EncryptVotesShellComponent extends BaseShellComponent {
       LOG.info("encrypt-votes --election {} --voters {} --votes {} --commitments {} --output {} --publish {}", options.election, options.voters, options.votes,
           options.commitments, options.output, options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
 
       // We might have up to three voters files: voter key pairs, plaintext voters and encryption proofs. If we have generated all of the private and public keys,
       // then there will only be the voter key pairs and plaintext voters files. However, if some keys have been created externally, and hence some votes
@@ -76,7 +80,7 @@ public class EncryptVotesShellComponent extends BaseShellComponent {
 
       try {
         if (options.voters.size() >= 2) {
-          votersKeyPairs = (List<VoterKeyPairs>) this.readCSV(options.voters.get(votersIndex), VoterKeyPairs.class);
+          votersKeyPairs = this.readCachedCSV(options.voters.get(votersIndex), VoterKeyPairs.class, null);
           votersIndex++;
         }
       }
@@ -86,13 +90,14 @@ public class EncryptVotesShellComponent extends BaseShellComponent {
 
       // Load in the plaintext votes. Here optional encrypted votes and their signatures can be provided instead of plaintext votes. We therefore first attempt
       // to load in the encrypted votes, which will fail, and hence we then try to load in the plaintext votes only.
+      // The voters are held in columnar form.
       List<Voter> voters;
 
       try {
-        voters = (List<Voter>) this.readCSV(options.voters.get(votersIndex), Voter.class, JacksonViews.ERSVoteEncryptedImport.class);
+        voters = this.readCSV(options.voters.get(votersIndex), Voter.class, JacksonViews.ERSVoteEncryptedImport.class, VoterStore.forParameters(parameters));
       }
       catch (final Exception e) {
-        voters = (List<Voter>) this.readCSV(options.voters.get(votersIndex), Voter.class, JacksonViews.ERSVoteImport.class);
+        voters = this.readCSV(options.voters.get(votersIndex), Voter.class, JacksonViews.ERSVoteImport.class, VoterStore.forParameters(parameters));
       }
 
       votersIndex++;
@@ -138,23 +143,25 @@ public class EncryptVotesShellComponent extends BaseShellComponent {
       // Complete the formation of the commitments and update the voter information.
       this.cryptographyHelper.completeCommitments(parameters, voters, commitmentsLists);
 
-      // Encrypt and sign the votes for each voter and obtain the corresponding proof of knowledge of encryption.
+      // Encrypt and sign the votes for each voter and obtain the corresponding proof of knowledge of encryption, written straight into an archive indexed by the
+      // public key of each voter if one is to be published.
       final ProofWrapper<List<Voter>> votersWithProof = this.cryptographyHelper.encryptVotes(parameters, keyPair, votersKeyPairs, voteOptions, voters,
-          ersEncryptProofs);
+          ersEncryptProofs, ProofArchive.isArchive(options.publish.get(2)));
 
       // Output the voter associated encrypted votes.
-      this.writeCSV(options.output, Voter.class, votersWithProof.getObject(), JacksonViews.ERSVoteExport.class);
+      this.writeCSV(options.output, Voter.class, votersWithProof.getObject(), JacksonViews.ERSVoteExport.class, parameters.getElementEncoding());
 
       // Output for publication the encrypted votes and vote options.
-      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Vote.class);
-      this.writeCSV(options.publish.get(1), VoteOption.class, voteOptions, JacksonViews.Public.class);
+      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.Vote.class, parameters.getElementEncoding());
+      this.writeCSV(options.publish.get(1), VoteOption.class, voteOptions, JacksonViews.Public.class, parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file or archive to the output, if it exists.
       if ((votersWithProof.getProofFile() != null) && votersWithProof.getProofFile().exists()) {
-        options.publish.get(2).delete();
-        Files.copy(votersWithProof.getProofFile().toPath(), options.publish.get(2).toPath());
-        votersWithProof.getProofFile().delete();
+        ProofPackage.publish(votersWithProof.getProofFile(), options.publish.get(2));
       }
+
+      // Write the metrics report next to the output.
+      this.writeMetrics("encrypt-votes", options.output);
     }
     catch (final Exception e) {
       LOG.error("encrypt-votes:", e);
@@ -16,11 +16,11 @@ import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
 import uk.co.pervasive_intelligence.vmv.JacksonViews;
 import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofPackage;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
 
 import javax.validation.Valid;
 import java.io.File;
-import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -60,13 +60,16 @@ public class VoterEncryptVoteShellComponent extends BaseShellComponent {
       LOG.info("voter-encrypt-vote {} --election {} --voter {} --votes {} --publish {}", options.vote, options.election, options.voter, options.votes,
           options.publish);
 
+      // Record the metrics of this command only.
+      this.startMetrics();
+
       // Load in the election parameters and public key.
-      final Parameters parameters = (Parameters) this.readCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
+      final Parameters parameters = this.readCachedCSV(options.election.get(0), this.cryptographyHelper.getElectionParametersClass(),
           JacksonViews.Public.class).get(0);
-      final KeyPair keyPair = (KeyPair) this.readCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
+      final KeyPair keyPair = this.readCachedCSV(options.election.get(1), KeyPair.class, JacksonViews.Public.class).get(0);
 
       // Load in the voter key pairs.
-      final List<VoterKeyPairs> votersKeyPairs = (List<VoterKeyPairs>) this.readCSV(options.voter, VoterKeyPairs.class);
+      final List<VoterKeyPairs> votersKeyPairs = this.readCachedCSV(options.voter, VoterKeyPairs.class, null);
 
       // Load in the vote options file.
       final List<VoteOption> voteOptions = (List<VoteOption>) this.readCSV(options.votes, VoteOption.class, JacksonViews.ERSImport.class);
@@ -81,15 +84,15 @@ public class VoterEncryptVoteShellComponent extends BaseShellComponent {
           Collections.singletonList(voter), null);
 
       // Output for publication the encrypted vote.
-      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.VoterVote.class);
+      this.writeCSV(options.publish.get(0), Voter.class, votersWithProof.getObject(), JacksonViews.VoterVote.class, parameters.getElementEncoding());
 
-      // Copy the proof file to the output, if it exists.
+      // Publish the proof file to the output, if it exists.
       if ((votersWithProof.getProofFile() != null) && votersWithProof.getProofFile().exists()) {
-        options.publish.get(1).delete();
-        Files.copy(votersWithProof.getProofFile().toPath(), options.publish.get(1).toPath());
-        votersWithProof.getProofFile().delete();
+        ProofPackage.publish(votersWithProof.getProofFile(), options.publish.get(1));
       }
 
+      // Write the metrics report next to the published vote.
+      this.writeMetrics("voter-encrypt-vote", options.publish.get(0));
     }
     catch (final Exception e) {
       LOG.error("voter-encrypt-vote:", e);
@@ -0,0 +1,366 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exchanges files between tellers through a shared exchange directory, such as a local directory or a mounted SFTP directory, in place of repeatedly polling
+ * the SFTP server for each file. The exchange directory is watched with a {@link WatchService}, so that a step starts as soon as the files it needs arrive.
+ * File systems which do not report changes, such as some network mounts, are rescanned every {@link #RESCAN_INTERVAL} milliseconds instead.
+ * <p>
+ * Files are written to the exchange directory with a {@link #TEMPORARY_SUFFIX} name and then renamed, in the same way as the election scripts upload files, so
+ * that other tellers never see a partly written file. Files written by other means are only picked up once they are not empty and their size and modification
+ * time have not changed for the settle time. Picked up files are copied to the working directory under a temporary name and then atomically renamed, so that a
+ * step never reads a partly copied file.
+ * <p>
+ * Each published file is preceded by a {@link #DIGEST_SUFFIX} file holding its SHA-256 digest, in the same format as {@code sha256sum}. When a file has a
+ * digest, the copy is only renamed into the working directory if it matches, so that a file is never picked up while it is being replaced.
+ * <p>
+ * Files left by an earlier round must not be picked up. When the tellers share a round identifier, it is recorded in each digest file as a comment line, which
+ * {@code sha256sum -c} ignores, and only files whose digest names the same round are picked up, whatever their modification time. Otherwise files and digests
+ * last modified before the coordinator was started are ignored, which relies upon the clocks of this computer and the exchange directory agreeing to within
+ * the skew allowed for by the caller.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ExchangeCoordinator {
+
+  /** The default time in milliseconds a file must be unchanged before it is picked up. */
+  public static final long DEFAULT_SETTLE = 500;
+
+  /** The suffix of the file holding the digest of a file. */
+  static final String DIGEST_SUFFIX = ".sha256";
+
+  /** The prefix of the comment line in a digest file which identifies the round. */
+  static final String ROUND_PREFIX = "# round: ";
+
+  /** The maximum time between scans of the exchange directory in milliseconds. */
+  static final long RESCAN_INTERVAL = 1000;
+
+  /** The suffix of files which are being written. */
+  static final String TEMPORARY_SUFFIX = ".tmp";
+
+  /** The size of the buffer used to read files. */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /** The digest algorithm used to validate files. */
+  private static final String DIGEST_ALGORITHM = "SHA-256";
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(ExchangeCoordinator.class);
+
+  /** The exchange directory. */
+  private final Path exchange;
+
+  /** The identifier of the round whose files are exchanged, or null if files are identified by their modification time. */
+  private final String round;
+
+  /** The time in milliseconds a file must be unchanged before it is picked up. */
+  private final long settle;
+
+  /**
+   * Without a round, files last modified before this time are ignored, to the nearest second below since not all file systems record milliseconds.
+   */
+  private final long since;
+
+  /** The working directory in which the steps read and write their files. */
+  private final Path working;
+
+  /**
+   * Constructor requiring the directories, which identifies the files of the current round by their modification time.
+   *
+   * @param exchange The exchange directory.
+   * @param working  The working directory in which the steps read and write their files.
+   * @param settle   The time in milliseconds a file must be unchanged before it is picked up.
+   * @param since    The time in milliseconds the coordinator was started, less any allowance for clock skew: files last modified before this time are ignored.
+   */
+  public ExchangeCoordinator(final Path exchange, final Path working, final long settle, final long since) {
+    this(exchange, working, settle, since, null);
+  }
+
+  /**
+   * Constructor requiring the directories and the round.
+   *
+   * @param exchange The exchange directory.
+   * @param working  The working directory in which the steps read and write their files.
+   * @param settle   The time in milliseconds a file must be unchanged before it is picked up.
+   * @param since    The time in milliseconds the coordinator was started, less any allowance for clock skew: without a round, files last modified before this
+   *                 time are ignored.
+   * @param round    The identifier of the round shared by all of the tellers, or null to identify the files of the round by their modification time.
+   */
+  public ExchangeCoordinator(final Path exchange, final Path working, final long settle, final long since, final String round) {
+    this.exchange = exchange;
+    this.working = working;
+    this.settle = settle;
+    this.since = since - (since % 1000);
+    this.round = ((round == null) || round.trim().isEmpty()) ? null : round.trim();
+  }
+
+  /**
+   * Copies a file so that the target only ever appears complete: the file is copied to a temporary file alongside the target which is then atomically renamed.
+   *
+   * @param source The source file.
+   * @param target The target file.
+   * @param digest The expected digest of the file, or null if it is not known.
+   * @throws IOException if the file could not be copied, changed while being copied or does not match the digest.
+   */
+  static void copy(final Path source, final Path target, final String digest) throws IOException {
+    if (Files.exists(target) && Files.isSameFile(source, target)) {
+      if ((digest != null) && !digest.equals(digest(source))) {
+        throw new IOException("File does not match its digest: " + source);
+      }
+
+      return;
+    }
+
+    final Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+    final long size = Files.size(source);
+    Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+
+    if (Files.size(temporary) != size) {
+      Files.deleteIfExists(temporary);
+      throw new IOException("File changed while being copied: " + source);
+    }
+
+    // Validate the copy, rather than the source, so that the file renamed into place is the one which was checked.
+    if ((digest != null) && !digest.equals(digest(temporary))) {
+      Files.deleteIfExists(temporary);
+      throw new IOException("File does not match its digest: " + source);
+    }
+
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  /**
+   * Calculates the digest of a file.
+   *
+   * @param file The file.
+   * @return The digest as lower case hexadecimal.
+   * @throws IOException if the file could not be read.
+   */
+  static String digest(final Path file) throws IOException {
+    try (final DigestInputStream input = new DigestInputStream(Files.newInputStream(file), MessageDigest.getInstance(DIGEST_ALGORITHM))) {
+      final byte[] buffer = new byte[BUFFER_SIZE];
+
+      while (input.read(buffer) >= 0) {
+        // Do nothing.
+      }
+
+      return String.format("%064x", new BigInteger(1, input.getMessageDigest().digest()));
+    }
+    catch (final NoSuchAlgorithmException e) {
+      throw new IOException("Could not calculate digest of " + file, e);
+    }
+  }
+
+  /**
+   * Writes the digest file of a file so that it only ever appears complete.
+   *
+   * @param file   The file.
+   * @param target The digest file.
+   * @param round  The round recorded in the digest file. May be null.
+   * @throws IOException if the digest file could not be written.
+   */
+  private static void writeDigest(final Path file, final Path target, final String round) throws IOException {
+    final Path temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+    final String lines = ((round != null) ? ROUND_PREFIX + round + "\n" : "") + digest(file) + "  " + file.getFileName() + "\n";
+    Files.write(temporary, lines.getBytes(StandardCharsets.UTF_8));
+    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Waits for files to arrive in the exchange directory and picks them up into the working directory.
+   *
+   * @param names   The names of the files.
+   * @param timeout The maximum time to wait in milliseconds: zero for no limit.
+   * @return The picked up files in the working directory, in the same order as the names.
+   * @throws VMVException if the files did not arrive in time, could not be picked up or the wait was interrupted.
+   */
+  public List<Path> await(final Collection<String> names, final long timeout) throws VMVException {
+    final Set<String> remaining = new LinkedHashSet<>(names);
+    final long deadline = (timeout > 0) ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+
+    try (final WatchService watcher = this.exchange.getFileSystem().newWatchService()) {
+      this.exchange.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+      // Pick up any files which have already arrived before waiting for more.
+      this.pickUp(remaining);
+
+      while (!remaining.isEmpty()) {
+        final long wait = Math.min(RESCAN_INTERVAL, deadline - System.currentTimeMillis());
+
+        if (wait <= 0) {
+          throw new VMVException("Timed out waiting for " + remaining + " in " + this.exchange);
+        }
+
+        // Events only wake the coordinator: the remaining files are checked whether or not there was an event.
+        final WatchKey key = watcher.poll(wait, TimeUnit.MILLISECONDS);
+
+        if (key != null) {
+          key.pollEvents();
+          key.reset();
+        }
+
+        this.pickUp(remaining);
+      }
+    }
+    catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new VMVException("Interrupted waiting for " + remaining, e);
+    }
+    catch (final IOException e) {
+      throw new VMVException("Could not watch exchange directory " + this.exchange, e);
+    }
+
+    final List<Path> files = new ArrayList<>();
+
+    for (final String name : names) {
+      files.add(this.working.resolve(name));
+    }
+
+    return files;
+  }
+
+  /**
+   * Determines if a file in the exchange directory is complete and can be picked up.
+   *
+   * @param file The file.
+   * @return True if the file exists, is not empty, was modified after the coordinator was started unless there is a round, and has not changed for the settle
+   * time.
+   * @throws IOException if the file could not be checked.
+   * @throws InterruptedException if interrupted waiting for the settle time.
+   */
+  boolean isReady(final Path file) throws IOException, InterruptedException {
+    if (!Files.isRegularFile(file) || (Files.size(file) <= 0)) {
+      return false;
+    }
+
+    final long size = Files.size(file);
+    final FileTime modified = Files.getLastModifiedTime(file);
+
+    // Without a round, a file left by an earlier round is ignored until it is replaced. With a round, its digest identifies the round instead.
+    if ((this.round == null) && (modified.toMillis() < this.since)) {
+      LOG.debug("exchange: ignoring {} last modified before the workflow started", file);
+      return false;
+    }
+
+    // A file which has not changed for the settle time is complete without waiting again.
+    if ((System.currentTimeMillis() - modified.toMillis()) >= this.settle) {
+      return true;
+    }
+
+    Thread.sleep(this.settle);
+
+    return Files.isRegularFile(file) && (Files.size(file) == size) && Files.getLastModifiedTime(file).equals(modified);
+  }
+
+  /**
+   * Picks up the files which have arrived. A file with a digest is only picked up once it matches its digest, since the file may still be being replaced. With a
+   * round, a file is only picked up once its digest has been published for the round.
+   *
+   * @param remaining The names of the files still to be picked up. Picked up files are removed.
+   * @throws IOException if a file could not be picked up.
+   * @throws InterruptedException if interrupted checking a file.
+   */
+  private void pickUp(final Set<String> remaining) throws IOException, InterruptedException {
+    final Iterator<String> iterator = remaining.iterator();
+
+    while (iterator.hasNext()) {
+      final String name = iterator.next();
+      final Path source = this.exchange.resolve(name);
+
+      if (this.isReady(source)) {
+        final String digest = this.readDigest(this.exchange.resolve(name + DIGEST_SUFFIX));
+
+        if ((digest == null) && (this.round != null)) {
+          LOG.debug("exchange: ignoring {} until it is published for round {}", name, this.round);
+          continue;
+        }
+
+        try {
+          copy(source, this.working.resolve(name), digest);
+        }
+        catch (final IOException e) {
+          LOG.warn("exchange: not picking up {}: {}", name, e.getMessage());
+          continue;
+        }
+
+        iterator.remove();
+        LOG.info("exchange: picked up {}{}", name, (digest != null) ? " with matching digest" : "");
+      }
+    }
+  }
+
+  /**
+   * Publishes files from the working directory to the exchange directory, each preceded by its digest.
+   *
+   * @param names The names of the files.
+   * @throws VMVException if a file could not be published.
+   */
+  public void publish(final Collection<String> names) throws VMVException {
+    for (final String name : names) {
+      try {
+        // The digest is published first, so that a file which has been published always has its digest.
+        final Path source = this.working.resolve(name);
+        writeDigest(source, this.exchange.resolve(name + DIGEST_SUFFIX), this.round);
+        copy(source, this.exchange.resolve(name), null);
+        LOG.info("exchange: published {}", name);
+      }
+      catch (final IOException e) {
+        throw new VMVException("Could not publish " + name + " to " + this.exchange, e);
+      }
+    }
+  }
+
+  /**
+   * Reads the digest of a file from its digest file.
+   *
+   * @param file The digest file.
+   * @return The digest, or null if there is no digest file or it is of another round: with a round, if it does not name the round, and otherwise if it was last
+   * modified before the coordinator was started.
+   * @throws IOException if the digest file could not be read.
+   */
+  private String readDigest(final Path file) throws IOException {
+    if (!Files.isRegularFile(file) || ((this.round == null) && (Files.getLastModifiedTime(file).toMillis() < this.since))) {
+      return null;
+    }
+
+    String digest = null;
+    String round = null;
+
+    for (final String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+      if (line.startsWith(ROUND_PREFIX)) {
+        round = line.substring(ROUND_PREFIX.length()).trim();
+      }
+      else if ((digest == null) && !line.trim().isEmpty() && !line.startsWith("#")) {
+        final String content = line.trim();
+        final int space = content.indexOf(' ');
+        digest = ((space >= 0) ? content.substring(0, space) : content).toLowerCase(Locale.ROOT);
+      }
+    }
+
+    if ((this.round != null) && !this.round.equals(round)) {
+      LOG.debug("exchange: ignoring {} of round {}", file, round);
+      return null;
+    }
+
+    return digest;
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import com.beust.jcommander.JCommander;
+import com.beust.jcommander.Parameter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.shell.standard.ShellComponent;
+import org.springframework.shell.standard.ShellMethod;
+import org.springframework.shell.standard.ShellOption;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderConfiguration;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+
+import javax.validation.Valid;
+import java.io.File;
+import java.util.Map;
+
+/**
+ * Run workflow shell command. Runs the steps of a YAML workflow file within this JVM, running steps which do not depend upon each other concurrently. Steps
+ * may also wait for files from other tellers to arrive in an exchange directory. The steps do not write metrics reports of their own: a single report covering all
+ * of the steps is written next to the workflow file.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@ShellComponent
+public class RunWorkflowShellComponent extends BaseShellComponent {
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(RunWorkflowShellComponent.class);
+
+  /** The application context containing the shell components. */
+  private final ApplicationContext context;
+
+  /** The source for messages. */
+  private final MessageSource messageSource;
+
+  /** The resolver used to parse the options of each step. */
+  private final JCommanderParameterResolver resolver;
+
+  /**
+   * Auto wired constructor with dependencies.
+   *
+   * @param context       The application context containing the shell components.
+   * @param resolver      The resolver used to parse the options of each step.
+   * @param messageSource The source for messages.
+   */
+  public RunWorkflowShellComponent(final ApplicationContext context, final JCommanderParameterResolver resolver, final MessageSource messageSource) {
+    this.context = context;
+    this.resolver = resolver;
+    this.messageSource = messageSource;
+  }
+
+  /**
+   * Shell command.
+   *
+   * @param options The {@link JCommander} options.
+   */
+  @ShellMethod(value = "workflow.run_workflow.help", group = "workflow.group")
+  public void runWorkflow(@ShellOption(optOut = true) @Valid final RunWorkflowOptions options) {
+    LOG.info("run-workflow --workflow {} --threads {} --exchange {}", options.workflow, options.threads, options.exchange);
+
+    try {
+      // Record the metrics of this workflow only.
+      this.startMetrics();
+
+      final Workflow workflow = WorkflowRunner.read(options.workflow);
+
+      if (options.threads > 0) {
+        workflow.setThreads(options.threads);
+      }
+
+      if (options.exchange != null) {
+        workflow.setExchange(options.exchange.getPath());
+      }
+
+      // Run the workflow and report the time taken by each step.
+      final Map<String, Long> durations = new WorkflowRunner(this.context, this.resolver, VMVCommandLine.findCommands()).run(workflow);
+
+      for (final Map.Entry<String, Long> entry : durations.entrySet()) {
+        System.out.println(this.messageSource.getMessage("workflow.run_workflow.complete", new Object[] {entry.getKey(),
+            workflow.getSteps().get(entry.getKey()).getCommand(), entry.getValue()}, null));
+      }
+
+      // Write the metrics report of all of the steps next to the workflow file.
+      this.writeMetrics("run-workflow", options.workflow);
+    }
+    catch (final Exception e) {
+      LOG.error("run-workflow:", e);
+      throw new RuntimeException(e); // Re-throw the exception so that it is displayed prettily.
+    }
+    finally {
+      LOG.info("run-workflow: complete");
+    }
+  }
+
+  /**
+   * The command line options for {@link #runWorkflow(RunWorkflowOptions)}.
+   */
+  public static class RunWorkflowOptions {
+
+    /** The optional exchange directory, overriding the workflow file. */
+    @Parameter(names = "--exchange", converter = JCommanderConfiguration.FileConverter.class)
+    File exchange;
+
+    /** The optional maximum number of steps run at the same time, overriding the workflow file. */
+    @Parameter(names = "--threads")
+    int threads = 0;
+
+    /** The workflow file. */
+    @Parameter(names = "--workflow", required = true, converter = JCommanderConfiguration.FileConverter.class)
+    File workflow;
+
+    /**
+     * Constructor for reflective instantiation.
+     */
+    private RunWorkflowOptions() {
+      // Do nothing.
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param workflow The workflow file.
+     * @param threads  The optional maximum number of steps run at the same time, overriding the workflow file.
+     */
+    public RunWorkflowOptions(final File workflow, final int threads) {
+      this(workflow, threads, null);
+    }
+
+    /**
+     * Constructor allow the fields to be set.
+     *
+     * @param workflow The workflow file.
+     * @param threads  The optional maximum number of steps run at the same time, overriding the workflow file.
+     * @param exchange The optional exchange directory, overriding the workflow file.
+     */
+    public RunWorkflowOptions(final File workflow, final int threads, final File exchange) {
+      this.workflow = workflow;
+      this.threads = threads;
+      this.exchange = exchange;
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A workflow of shell commands, read from a YAML workflow file. Each step names the steps it runs after, so that the steps form a directed acyclic graph and
+ * steps which do not depend upon each other can be run concurrently.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class Workflow {
+
+  /** The optional exchange directory through which the steps' input and output files are exchanged with other tellers. */
+  private String exchange;
+
+  /** The name of the workflow. */
+  private String name;
+
+  /** The optional identifier of the round, shared by all of the tellers' workflows, whose files are exchanged. */
+  private String round;
+
+  /** The tolerance in seconds for the difference between this computer's clock and the exchange directory's when no round is given. */
+  private long skew = 0;
+
+  /** The steps, by step name, in the order they are defined. */
+  private Map<String, WorkflowStep> steps = new LinkedHashMap<>();
+
+  /** The maximum number of steps run at the same time: zero for the number of processors. */
+  private int threads = 0;
+
+  /** The maximum time in seconds a step waits for its input files: zero for no limit. */
+  private long timeout = 0;
+
+  /**
+   * @return The optional exchange directory through which the steps' input and output files are exchanged with other tellers.
+   */
+  public String getExchange() {
+    return this.exchange;
+  }
+
+  /**
+   * @param exchange The optional exchange directory through which the steps' input and output files are exchanged with other tellers.
+   */
+  public void setExchange(final String exchange) {
+    this.exchange = exchange;
+  }
+
+  /**
+   * @return The name of the workflow.
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * @param name The name of the workflow.
+   */
+  public void setName(final String name) {
+    this.name = name;
+  }
+
+  /**
+   * @return The optional identifier of the round, shared by all of the tellers' workflows, whose files are exchanged.
+   */
+  public String getRound() {
+    return this.round;
+  }
+
+  /**
+   * @param round The optional identifier of the round, shared by all of the tellers' workflows, whose files are exchanged.
+   */
+  public void setRound(final String round) {
+    this.round = round;
+  }
+
+  /**
+   * @return The tolerance in seconds for the difference between this computer's clock and the exchange directory's when no round is given.
+   */
+  public long getSkew() {
+    return this.skew;
+  }
+
+  /**
+   * @param skew The tolerance in seconds for the difference between this computer's clock and the exchange directory's when no round is given.
+   */
+  public void setSkew(final long skew) {
+    this.skew = skew;
+  }
+
+  /**
+   * @return The steps, by step name, in the order they are defined.
+   */
+  public Map<String, WorkflowStep> getSteps() {
+    return this.steps;
+  }
+
+  /**
+   * @param steps The steps, by step name, in the order they are defined.
+   */
+  public void setSteps(final Map<String, WorkflowStep> steps) {
+    this.steps = new LinkedHashMap<>();
+
+    if (steps != null) {
+      this.steps.putAll(steps);
+    }
+  }
+
+  /**
+   * @return The maximum number of steps run at the same time: zero for the number of processors.
+   */
+  public int getThreads() {
+    return this.threads;
+  }
+
+  /**
+   * @param threads The maximum number of steps run at the same time: zero for the number of processors.
+   */
+  public void setThreads(final int threads) {
+    this.threads = threads;
+  }
+
+  /**
+   * @return The maximum time in seconds a step waits for its input files: zero for no limit.
+   */
+  public long getTimeout() {
+    return this.timeout;
+  }
+
+  /**
+   * @param timeout The maximum time in seconds a step waits for its input files: zero for no limit.
+   */
+  public void setTimeout(final long timeout) {
+    this.timeout = timeout;
+  }
+}
@@ -0,0 +1,333 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationContext;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.constructor.SafeConstructor;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumInProcessRunner;
+
+import java.io.File;
+import java.io.Reader;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Runs the steps of a {@link Workflow} within this JVM. Each step is started as soon as all of the steps it runs after have completed, so independent steps,
+ * such as creating the tracker numbers and the voters' keys, run concurrently. At most {@link Workflow#getThreads()} steps run at the same time; the parallel
+ * work within each step runs on the cryptography helper's shared executor, so concurrent steps share the same worker threads rather than each starting its
+ * own.
+ * <p>
+ * Running the steps in one JVM also means that files written by one step and read by later steps, such as the election parameters and tracker numbers, are
+ * parsed once and then shared through the {@link uk.co.pervasive_intelligence.vmv.ArtefactCache}.
+ * <p>
+ * When the workflow has an exchange directory, each step also waits for its input files to arrive from other tellers, picked up by an
+ * {@link ExchangeCoordinator}, and publishes its output files once complete. This allows each teller to run its part of a multi-teller election as a
+ * workflow, with each step triggered by the arrival of the files it needs.
+ * <p>
+ * The options of every step are checked before any step is run. If a step fails, the steps which run after it are not run, but independent steps are allowed
+ * to complete. Steps may run concurrently, so the shell's progress output is suppressed while a step runs: the start and end of each step are logged instead.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class WorkflowRunner {
+
+  /** The name of the step running on the current thread, if any. */
+  private static final ThreadLocal<String> CURRENT = new ThreadLocal<>();
+
+  /** Logger. */
+  private static final Logger LOG = LoggerFactory.getLogger(WorkflowRunner.class);
+
+  /** The shell command methods, by command name. */
+  private final Map<String, Method> commands;
+
+  /** The application context containing the shell components. */
+  private final ApplicationContext context;
+
+  /** The resolver used to parse the options of each step. */
+  private final JCommanderParameterResolver resolver;
+
+  /**
+   * Constructor requiring the context in which the steps are run.
+   *
+   * @param context  The application context containing the shell components.
+   * @param resolver The resolver used to parse the options of each step.
+   * @param commands The shell command methods, by command name.
+   */
+  public WorkflowRunner(final ApplicationContext context, final JCommanderParameterResolver resolver, final Map<String, Method> commands) {
+    this.context = context;
+    this.resolver = resolver;
+    this.commands = commands;
+  }
+
+  /**
+   * @return True if the current thread is running a workflow step.
+   */
+  public static boolean isStep() {
+    return CURRENT.get() != null;
+  }
+
+  /**
+   * Reads a workflow from a YAML workflow file.
+   *
+   * @param file The workflow file.
+   * @return The workflow.
+   * @throws VMVException if the file could not be read.
+   */
+  public static Workflow read(final File file) throws VMVException {
+    try (final Reader input = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      return new ObjectMapper().convertValue(new Yaml(new SafeConstructor()).load(input), Workflow.class);
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not read workflow file " + file, e);
+    }
+  }
+
+  /**
+   * Runs a step.
+   *
+   * @param name      The name of the step.
+   * @param step      The step.
+   * @param arguments The arguments of the step's command, from {@link #resolve(String, WorkflowStep)}.
+   * @return The time taken to run the step in milliseconds.
+   * @throws VMVException if the step failed.
+   */
+  public long execute(final String name, final WorkflowStep step, final Object[] arguments) throws VMVException {
+    final Method method = this.commands.get(step.getCommand());
+    final long start = System.currentTimeMillis();
+    LOG.info("workflow: {} {} started", name, step.getCommand());
+
+    try {
+      CURRENT.set(name);
+      method.invoke(this.getComponent(method.getDeclaringClass()), arguments);
+    }
+    catch (final InvocationTargetException e) {
+      throw new VMVException("Step " + name + " failed", (e.getCause() != null) ? e.getCause() : e);
+    }
+    catch (final Exception e) {
+      throw new VMVException("Could not run step " + name, e);
+    }
+    finally {
+      CURRENT.remove();
+    }
+
+    final long duration = System.currentTimeMillis() - start;
+    LOG.info("workflow: {} {} complete in {}ms", name, step.getCommand(), duration);
+
+    return duration;
+  }
+
+  /**
+   * Gets the shell component which implements a command: the component from the application context if there is one, otherwise a new component autowired
+   * from the application context, such as when only some components are in the context.
+   *
+   * @param clazz The class of the shell component.
+   * @return The shell component.
+   */
+  private Object getComponent(final Class<?> clazz) {
+    if (this.context.getBeanNamesForType(clazz).length > 0) {
+      return this.context.getBean(clazz);
+    }
+
+    return this.context.getAutowireCapableBeanFactory().createBean(clazz);
+  }
+
+  /**
+   * Checks the steps of a workflow and orders them so that every step comes after the steps it runs after. Steps are otherwise kept in the order they are
+   * defined.
+   *
+   * @param workflow The workflow.
+   * @return The names of the steps in order.
+   * @throws VMVException if a step has an unknown command or runs after an unknown step, or if the steps form a cycle.
+   */
+  public List<String> order(final Workflow workflow) throws VMVException {
+    final Map<String, WorkflowStep> steps = workflow.getSteps();
+
+    if (steps.isEmpty()) {
+      throw new VMVException("Workflow has no steps");
+    }
+
+    for (final Map.Entry<String, WorkflowStep> entry : steps.entrySet()) {
+      final WorkflowStep step = entry.getValue();
+
+      if ((step == null) || !this.commands.containsKey(step.getCommand())) {
+        throw new VMVException("Unknown command in step " + entry.getKey());
+      }
+
+      for (final String after : step.getAfter()) {
+        if (!steps.containsKey(after) || after.equals(entry.getKey())) {
+          throw new VMVException("Step " + entry.getKey() + " runs after unknown step " + after);
+        }
+      }
+
+      if ((workflow.getExchange() == null) && (!step.getInputs().isEmpty() || !step.getOutputs().isEmpty())) {
+        throw new VMVException("Step " + entry.getKey() + " exchanges files but the workflow has no exchange directory");
+      }
+    }
+
+    // Repeatedly take the steps whose preceding steps have all been taken.
+    final List<String> order = new ArrayList<>();
+    final Set<String> remaining = new LinkedHashSet<>(steps.keySet());
+
+    while (!remaining.isEmpty()) {
+      final Iterator<String> iterator = remaining.iterator();
+      boolean found = false;
+
+      while (iterator.hasNext()) {
+        final String name = iterator.next();
+
+        if (order.containsAll(steps.get(name).getAfter())) {
+          order.add(name);
+          iterator.remove();
+          found = true;
+        }
+      }
+
+      if (!found) {
+        throw new VMVException("Workflow steps form a cycle: " + remaining);
+      }
+    }
+
+    return order;
+  }
+
+  /**
+   * Resolves the arguments of a step's command from its options.
+   *
+   * @param name The name of the step.
+   * @param step The step.
+   * @return The arguments of the command.
+   * @throws VMVException if the command is unknown or its options are not valid.
+   */
+  public Object[] resolve(final String name, final WorkflowStep step) throws VMVException {
+    final Method method = this.commands.get(step.getCommand());
+
+    if (method == null) {
+      throw new VMVException("Unknown command in step " + name);
+    }
+
+    try {
+      return VMVCommandLine.resolveArguments(this.resolver, method, VMVCommandLine.tokenise((step.getOptions() != null) ? step.getOptions() : ""));
+    }
+    catch (final Exception e) {
+      throw new VMVException("Invalid options for step " + name + ": " + e.getMessage(), e);
+    }
+  }
+
+  /**
+   * Runs the workflow, waiting for all of the steps to complete.
+   *
+   * @param workflow The workflow.
+   * @return The time taken to run each step in milliseconds, by step name, in step order.
+   * @throws VMVException if the workflow is not valid or a step failed.
+   */
+  public Map<String, Long> run(final Workflow workflow) throws VMVException {
+    final List<String> order = this.order(workflow);
+
+    // Check the options of all of the steps before any are run.
+    final Map<String, Object[]> arguments = new HashMap<>();
+
+    for (final String name : order) {
+      arguments.put(name, this.resolve(name, workflow.getSteps().get(name)));
+    }
+
+    // Exchange files through the exchange directory, if there is one, using the current directory to run the steps. Files of other rounds, or without a round
+    // those last modified before the workflow started, allowing for clock skew, are ignored.
+    final ExchangeCoordinator coordinator;
+
+    if (workflow.getExchange() != null) {
+      final Path exchange = Paths.get(workflow.getExchange());
+
+      if (!Files.isDirectory(exchange)) {
+        throw new VMVException("Missing exchange directory " + exchange);
+      }
+
+      coordinator = new ExchangeCoordinator(exchange, Paths.get("").toAbsolutePath(), ExchangeCoordinator.DEFAULT_SETTLE,
+          System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(workflow.getSkew()), workflow.getRound());
+    }
+    else {
+      coordinator = null;
+    }
+
+    // Start each step once the steps it runs after have completed and its input files have arrived.
+    final int threads = (workflow.getThreads() > 0) ? workflow.getThreads() : Runtime.getRuntime().availableProcessors();
+    final ExecutorService executor = Executors.newFixedThreadPool(threads);
+    final Map<String, Long> durations = new ConcurrentHashMap<>();
+    final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+    // Steps may run concurrently, so Verificatum must not be run in-process.
+    final VerificatumInProcessRunner.Activity activity = (threads > 1) ? VerificatumInProcessRunner.beginActivity() : null;
+
+    try {
+      for (final String name : order) {
+        final WorkflowStep step = workflow.getSteps().get(name);
+        final CompletableFuture<?>[] preceding = step.getAfter().stream().map(futures::get).toArray(CompletableFuture[]::new);
+
+        futures.put(name, CompletableFuture.allOf(preceding).thenRunAsync(() -> {
+          try {
+            if (coordinator != null) {
+              coordinator.await(step.getInputs(), TimeUnit.SECONDS.toMillis(workflow.getTimeout()));
+            }
+
+            durations.put(name, this.execute(name, step, arguments.get(name)));
+
+            if (coordinator != null) {
+              coordinator.publish(step.getOutputs());
+            }
+          }
+          catch (final VMVException e) {
+            throw new CompletionException(e); // Re-throw as an unchecked exception because of the lambda.
+          }
+        }, executor));
+      }
+
+      // Wait for all of the steps, reporting the first failure.
+      VMVException failure = null;
+
+      for (final CompletableFuture<Void> future : futures.values()) {
+        try {
+          future.join();
+        }
+        catch (final CompletionException e) {
+          if (failure == null) {
+            failure = (e.getCause() instanceof VMVException) ? (VMVException) e.getCause() : new VMVException("Could not run workflow", e.getCause());
+          }
+        }
+      }
+
+      if (failure != null) {
+        throw failure;
+      }
+    }
+    finally {
+      executor.shutdownNow();
+
+      if (activity != null) {
+        activity.close();
+      }
+    }
+
+    final Map<String, Long> result = new LinkedHashMap<>();
+
+    for (final String name : order) {
+      result.put(name, durations.get(name));
+    }
+
+    return result;
+  }
+}
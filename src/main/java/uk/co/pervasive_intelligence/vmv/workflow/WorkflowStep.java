@@ -0,0 +1,135 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A step of a {@link Workflow}: a shell command with its options, run once all of the steps it runs after have completed and, when the workflow has an exchange
+ * directory, all of its input files have arrived from other tellers. The step's output files are then published for other tellers.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class WorkflowStep {
+
+  /** The names of the steps which must complete before this step is run. */
+  private List<String> after = new ArrayList<>();
+
+  /** The shell command name. */
+  private String command;
+
+  /** The names of the files this step needs from the exchange directory. */
+  private List<String> inputs = new ArrayList<>();
+
+  /** The options of the command, written as they would be in the shell. */
+  private String options;
+
+  /** The names of the files this step publishes to the exchange directory. */
+  private List<String> outputs = new ArrayList<>();
+
+  /**
+   * Default constructor.
+   */
+  public WorkflowStep() {
+    // Do nothing.
+  }
+
+  /**
+   * Constructor requiring all fields.
+   *
+   * @param command The shell command name.
+   * @param options The options of the command, written as they would be in the shell.
+   * @param after   The names of the steps which must complete before this step is run.
+   */
+  public WorkflowStep(final String command, final String options, final List<String> after) {
+    this.command = command;
+    this.options = options;
+    this.setAfter(after);
+  }
+
+  /**
+   * @return The names of the steps which must complete before this step is run.
+   */
+  public List<String> getAfter() {
+    return this.after;
+  }
+
+  /**
+   * @param after The names of the steps which must complete before this step is run.
+   */
+  public void setAfter(final List<String> after) {
+    this.after = new ArrayList<>();
+
+    if (after != null) {
+      this.after.addAll(after);
+    }
+  }
+
+  /**
+   * @return The shell command name.
+   */
+  public String getCommand() {
+    return this.command;
+  }
+
+  /**
+   * @param command The shell command name.
+   */
+  public void setCommand(final String command) {
+    this.command = command;
+  }
+
+  /**
+   * @return The names of the files this step needs from the exchange directory.
+   */
+  public List<String> getInputs() {
+    return this.inputs;
+  }
+
+  /**
+   * @param inputs The names of the files this step needs from the exchange directory.
+   */
+  public void setInputs(final List<String> inputs) {
+    this.inputs = new ArrayList<>();
+
+    if (inputs != null) {
+      this.inputs.addAll(inputs);
+    }
+  }
+
+  /**
+   * @return The options of the command, written as they would be in the shell.
+   */
+  public String getOptions() {
+    return this.options;
+  }
+
+  /**
+   * @param options The options of the command, written as they would be in the shell.
+   */
+  public void setOptions(final String options) {
+    this.options = options;
+  }
+
+  /**
+   * @return The names of the files this step publishes to the exchange directory.
+   */
+  public List<String> getOutputs() {
+    return this.outputs;
+  }
+
+  /**
+   * @param outputs The names of the files this step publishes to the exchange directory.
+   */
+  public void setOutputs(final List<String> outputs) {
+    this.outputs = new ArrayList<>();
+
+    if (outputs != null) {
+      this.outputs.addAll(outputs);
+    }
+  }
+}
@@ -0,0 +1,181 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponentTests.TestBaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponentTests.TestContent;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Artefact cache tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ArtefactCacheTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+
+  private final File firstFile = new File("first-file.csv");
+
+  private final File secondFile = new File("second-file.csv");
+
+  private List<TestContent> get(final ArtefactCache cache, final File file) throws Exception {
+    return cache.get(file, TestContent.class, JacksonViews.Public.class,
+        input -> this.baseShellComponent.readCSV(input, TestContent.class, JacksonViews.Public.class, new ArrayList<>()));
+  }
+
+  @Before
+  @After
+  public void setUp() {
+    this.firstFile.delete();
+    this.secondFile.delete();
+  }
+
+  private void write(final File file, final String name) throws Exception {
+    this.baseShellComponent.writeCSV(file, TestContent.class, Arrays.asList(new TestContent(name, 1, new byte[10]), new TestContent("other", 2, new byte[10])),
+        JacksonViews.Public.class);
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(0);
+    this.write(this.firstFile, "first");
+
+    final List<TestContent> values = this.get(cache, this.firstFile);
+    assertThat(values.get(0).getName()).isEqualTo("first");
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(this.get(cache, this.firstFile)).isNotSameAs(values);
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    this.write(this.firstFile, "first");
+    this.write(this.secondFile, "second");
+
+    // Only room for one of the files.
+    final ArtefactCache cache = new ArtefactCache(this.firstFile.length() + this.secondFile.length() - 1);
+    final List<TestContent> first = this.get(cache, this.firstFile);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getWeight()).isEqualTo(this.firstFile.length());
+
+    final List<TestContent> second = this.get(cache, this.secondFile);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getWeight()).isEqualTo(this.secondFile.length());
+    assertThat(this.get(cache, this.secondFile)).isSameAs(second);
+    assertThat(this.get(cache, this.firstFile)).isNotSameAs(first);
+
+    cache.clear();
+    assertThat(cache.size()).isEqualTo(0);
+    assertThat(cache.getWeight()).isEqualTo(0);
+  }
+
+  @Test
+  public void testGet() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(1024 * 1024);
+    this.write(this.firstFile, "first");
+
+    final List<TestContent> values = this.get(cache, this.firstFile);
+    assertThat(values).hasSize(2);
+    assertThat(values.get(0).getName()).isEqualTo("first");
+    assertThat(values.get(0).getPrivateKey()).isNull();
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getWeight()).isEqualTo(this.firstFile.length());
+
+    // The same file by a different path is a hit.
+    assertThat(this.get(cache, new File(this.firstFile.getAbsoluteFile().getParentFile(), "./" + this.firstFile.getName()))).isSameAs(values);
+    assertThat(cache.size()).isEqualTo(1);
+  }
+
+  @Test
+  public void testGetChanged() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(1024 * 1024);
+    this.write(this.firstFile, "first");
+
+    final List<TestContent> values = this.get(cache, this.firstFile);
+    final FileTime modified = Files.getLastModifiedTime(this.firstFile.toPath());
+
+    // Same size but different content.
+    this.write(this.firstFile, "fixed");
+    Files.setLastModifiedTime(this.firstFile.toPath(), FileTime.fromMillis(modified.toMillis() + 1000));
+
+    final List<TestContent> changed = this.get(cache, this.firstFile);
+    assertThat(changed).isNotSameAs(values);
+    assertThat(changed.get(0).getName()).isEqualTo("fixed");
+    assertThat(cache.size()).isEqualTo(1);
+
+    // Modified but with the same content.
+    Files.setLastModifiedTime(this.firstFile.toPath(), FileTime.fromMillis(modified.toMillis() + 2000));
+    assertThat(this.get(cache, this.firstFile)).isSameAs(changed);
+
+    // Replaced by a different file with the same size and modification time.
+    this.write(this.secondFile, "other");
+    Files.setLastModifiedTime(this.secondFile.toPath(), Files.getLastModifiedTime(this.firstFile.toPath()));
+    Files.move(this.secondFile.toPath(), this.firstFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    assertThat(this.get(cache, this.firstFile).get(0).getName()).isEqualTo("other");
+
+    // Different size.
+    this.write(this.firstFile, "longer name");
+    assertThat(this.get(cache, this.firstFile).get(0).getName()).isEqualTo("longer name");
+  }
+
+  @Test
+  public void testGetImmutable() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(1024 * 1024);
+    this.write(this.firstFile, "first");
+
+    this.exception.expect(UnsupportedOperationException.class);
+    this.get(cache, this.firstFile).clear();
+  }
+
+  @Test
+  public void testGetMissing() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(1024 * 1024);
+
+    this.exception.expect(VMVException.class);
+    this.get(cache, this.firstFile);
+  }
+
+  @Test
+  public void testInvalidate() throws Exception {
+    final ArtefactCache cache = new ArtefactCache(1024 * 1024);
+    this.write(this.firstFile, "first");
+    this.write(this.secondFile, "second");
+
+    final List<TestContent> values = this.get(cache, this.firstFile);
+    this.get(cache, this.secondFile);
+    assertThat(cache.size()).isEqualTo(2);
+
+    cache.invalidate(this.firstFile);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(cache.getWeight()).isEqualTo(this.secondFile.length());
+    assertThat(this.get(cache, this.firstFile)).isNotSameAs(values);
+
+    // Writing a file invalidates its entries.
+    final TestBaseShellComponent component = new TestBaseShellComponent();
+    component.setArtefactCache(cache);
+    component.writeCSV(this.secondFile, TestContent.class, Collections.singletonList(new TestContent("third", 3, new byte[10])), JacksonViews.Public.class);
+    assertThat(cache.size()).isEqualTo(1);
+    assertThat(this.get(cache, this.secondFile).get(0).getName()).isEqualTo("third");
+  }
+}
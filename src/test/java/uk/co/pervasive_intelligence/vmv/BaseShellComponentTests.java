@@ -11,8 +11,12 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
 
 import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -30,10 +34,64 @@ public class BaseShellComponentTests extends BaseTestCase {
 
   private final File outputFile = new File("output-file.csv");
 
+  private final File reportFile = new File("command-" + Metrics.DEFAULT_REPORT);
+
   @Before
   @After
   public void setUp() {
     this.outputFile.delete();
+    this.reportFile.delete();
+  }
+
+  @Test
+  public void testCSVCached() throws Exception {
+    final List<TestContent> writeContent = new ArrayList<>();
+    writeContent.add(new TestContent("first", 1, new byte[10]));
+    writeContent.add(new TestContent("second", 2, new byte[10]));
+
+    final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+    baseShellComponent.writeCSV(this.outputFile, TestContent.class, writeContent, JacksonViews.Public.class);
+
+    // Without a cache the content is read each time.
+    final List<TestContent> uncached = baseShellComponent.readCachedCSV(this.outputFile, TestContent.class, JacksonViews.Public.class);
+    assertThat(uncached.size()).isEqualTo(writeContent.size());
+    assertThat(baseShellComponent.readCachedCSV(this.outputFile, TestContent.class, JacksonViews.Public.class)).isNotSameAs(uncached);
+
+    // With a cache the same content is shared.
+    baseShellComponent.setArtefactCache(new ArtefactCache(1024 * 1024));
+
+    final List<TestContent> cached = baseShellComponent.readCachedCSV(this.outputFile, TestContent.class, JacksonViews.Public.class);
+    assertThat(cached.size()).isEqualTo(writeContent.size());
+    assertThat(cached.get(0).getName()).isEqualTo(writeContent.get(0).getName());
+    assertThat(cached.get(0).getPrivateKey()).isNull();
+    assertThat(baseShellComponent.readCachedCSV(this.outputFile, TestContent.class, JacksonViews.Public.class)).isSameAs(cached);
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCSVElementEncoding() throws Exception {
+    final List<TestElementContent> writeContent = new ArrayList<>();
+    writeContent.add(new TestElementContent(BigInteger.ONE));
+    writeContent.add(new TestElementContent(BigInteger.ONE.shiftLeft(3071).add(BigInteger.TEN)));
+    writeContent.add(new TestElementContent(null));
+
+    final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+
+    for (final ElementEncoding encoding : ElementEncoding.values()) {
+      baseShellComponent.writeCSV(this.outputFile, TestElementContent.class, writeContent, null, encoding);
+
+      // The encoding is only recorded if it is not the default.
+      final String firstLine = Files.readAllLines(this.outputFile.toPath()).get(0);
+      assertThat(ElementEncoding.fromHeader(firstLine)).isEqualTo(encoding);
+      assertThat(firstLine.startsWith(ElementEncoding.HEADER)).isEqualTo(encoding != ElementEncoding.DECIMAL);
+
+      final List<TestElementContent> readContent = (List<TestElementContent>) baseShellComponent.readCSV(this.outputFile, TestElementContent.class);
+      assertThat(readContent.size()).isEqualTo(writeContent.size());
+
+      for (int i = 0; i < writeContent.size(); i++) {
+        assertThat(readContent.get(i).getElement()).isEqualTo(writeContent.get(i).getElement());
+      }
+    }
   }
 
   @Test
@@ -61,6 +119,81 @@ public class BaseShellComponentTests extends BaseTestCase {
     }
   }
 
+  @Test
+  public void testCSVLazily() throws Exception {
+    final List<TestContent> writeContent = new ArrayList<>();
+    writeContent.add(new TestContent("first", 1, new byte[10]));
+    writeContent.add(new TestContent("second", 2, new byte[10]));
+
+    final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+    baseShellComponent.writeCSV(this.outputFile, TestContent.class, writeContent);
+
+    final List<BaseShellComponent.LazyRecord<TestContent>> records = baseShellComponent.readCSVLazily(this.outputFile, TestContent.class,
+        JacksonViews.Public.class);
+    assertThat(records.size()).isEqualTo(writeContent.size());
+
+    for (int i = 0; i < writeContent.size(); i++) {
+      assertThat(records.get(i).getField("name")).isEqualTo(writeContent.get(i).getName());
+      assertThat(records.get(i).getElement("value")).isEqualTo(BigInteger.valueOf(writeContent.get(i).getValue()));
+
+      final TestContent value = records.get(i).getValue();
+      assertThat(value.getName()).isEqualTo(writeContent.get(i).getName());
+      assertThat(value.getValue()).isEqualTo(writeContent.get(i).getValue());
+      assertThat(value.getPrivateKey()).isNull();
+      assertThat(records.get(i).getValue()).isSameAs(value);
+    }
+
+    // Columns outside of the view are not kept.
+    this.exception.expect(IllegalArgumentException.class);
+    records.get(0).getField("privateKey");
+  }
+
+  @Test
+  public void testCSVLazilyElementEncoding() throws Exception {
+    final List<TestElementContent> writeContent = new ArrayList<>();
+    writeContent.add(new TestElementContent(BigInteger.ONE.shiftLeft(3071).add(BigInteger.TEN)));
+    writeContent.add(new TestElementContent(null));
+
+    final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+    baseShellComponent.writeCSV(this.outputFile, TestElementContent.class, writeContent, null, ElementEncoding.HEX);
+
+    final List<BaseShellComponent.LazyRecord<TestElementContent>> records = baseShellComponent.readCSVLazily(this.outputFile, TestElementContent.class, null);
+    assertThat(records.size()).isEqualTo(writeContent.size());
+
+    for (int i = 0; i < writeContent.size(); i++) {
+      assertThat(records.get(i).getElement("element")).isEqualTo(writeContent.get(i).getElement());
+      assertThat(records.get(i).getValue().getElement()).isEqualTo(writeContent.get(i).getElement());
+    }
+  }
+
+  @Test
+  public void testCSVMetrics() throws Exception {
+    final List<TestContent> writeContent = new ArrayList<>();
+    writeContent.add(new TestContent("first", 1, new byte[10]));
+    writeContent.add(new TestContent("second", 2, new byte[10]));
+
+    final Metrics metrics = new Metrics(Metrics.DEFAULT_REPORT);
+    final TestBaseShellComponent baseShellComponent = new TestBaseShellComponent();
+    baseShellComponent.setMetrics(metrics);
+
+    // Writing a CSV file does not write the report.
+    baseShellComponent.writeCSV(this.outputFile, TestContent.class, writeContent, JacksonViews.Public.class);
+    assertThat(this.reportFile.exists()).isFalse();
+    assertThat(metrics.getPhase("csv", "write").getItems()).isEqualTo(2);
+
+    baseShellComponent.readCSV(this.outputFile, TestContent.class, JacksonViews.Public.class);
+    assertThat(metrics.getPhase("csv", "read").getItems()).isEqualTo(2);
+
+    // The report is written next to the output file once the command completes, named after the command.
+    baseShellComponent.writeMetrics("command", this.outputFile);
+    assertThat(this.reportFile.exists()).isTrue();
+    assertThat(new String(Files.readAllBytes(this.reportFile.toPath()))).contains("\"csv\"", "\"write\"", "\"read\"");
+
+    // The next command starts with no metrics.
+    baseShellComponent.startMetrics();
+    assertThat(metrics.getPhase("csv", "write")).isNull();
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testCSVNoExclude() throws Exception {
@@ -93,6 +226,26 @@ public class BaseShellComponentTests extends BaseTestCase {
 
   }
 
+  /**
+   * Content implementation.
+   */
+  public static class TestElementContent {
+
+    private BigInteger element;
+
+    private TestElementContent() {
+
+    }
+
+    public TestElementContent(final BigInteger element) {
+      this.element = element;
+    }
+
+    public BigInteger getElement() {
+      return this.element;
+    }
+  }
+
   /**
    * Content implementation.
    */
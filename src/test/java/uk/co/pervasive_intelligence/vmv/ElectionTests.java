@@ -24,6 +24,7 @@ import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.parameter_initialisation.*;
 import uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption.MixVotesShellComponent;
 import uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption.VoterDecryptTrackerNumberShellComponent;
@@ -174,11 +175,13 @@ public class ElectionTests extends BaseTestCase {
     // Cryptography helpers.
     final DSAAlgorithmHelper dsaAlgorithmHelper = new DSAAlgorithmHelper();
     final ElGamalAlgorithmHelper elGamalAlgorithmHelper = new ElGamalAlgorithmHelper();
-    final VerificatumHelper verificatumHelper = new VerificatumHelper();
+    final VerificatumHelper verificatumHelper = new VerificatumHelper(new File(VerificatumHelper.DEFAULT_LIBRARY_DIRECTORY),
+        new File(VerificatumHelper.DEFAULT_NATIVE_LIBRARY_DIRECTORY), 0);
     final SchnorrAlgorithmHelper schnorrAlgorithmHelper = new SchnorrAlgorithmHelper();
     final ChaumPedersenAlgorithmHelper chaumPedersenAlgorithmHelper = new ChaumPedersenAlgorithmHelper();
+    final ShuffleAlgorithmHelper shuffleAlgorithmHelper = new ShuffleAlgorithmHelper();
     final SeleneCryptographyHelper cryptographyHelper = new SeleneCryptographyHelper(this.messageSource, dsaAlgorithmHelper, elGamalAlgorithmHelper,
-        verificatumHelper, schnorrAlgorithmHelper, chaumPedersenAlgorithmHelper);
+        verificatumHelper, schnorrAlgorithmHelper, chaumPedersenAlgorithmHelper, shuffleAlgorithmHelper);
 
     // Start the executor.
     final ExecutorService executor = Executors.newFixedThreadPool(numberOfTellers);
@@ -271,7 +274,7 @@ public class ElectionTests extends BaseTestCase {
       shuffleTrackerNumberTasks.add(() -> {
         final ShuffleTrackerNumbersShellComponent shuffleTrackerNumbersShellComponent = new ShuffleTrackerNumbersShellComponent(cryptographyHelper);
         final ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions shuffleTrackerNumbersOptions =
-            new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(this.publishElectionParams, i, this.publishTrackerNumbers,
+            new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(Arrays.asList(this.publishElectionParams, this.publishElectionKeys), i, this.publishTrackerNumbers,
                 Arrays.asList(this.shuffledTrackerNumbers, shuffleProofsFiles[0][i - 1]));
         shuffleTrackerNumbersShellComponent.shuffleTrackerNumbers(shuffleTrackerNumbersOptions);
 
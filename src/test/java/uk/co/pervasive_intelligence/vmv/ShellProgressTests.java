@@ -30,4 +30,22 @@ public class ShellProgressTests extends BaseTestCase {
     shellProgress.onProgress(23f);
     shellProgress.onEnd();
   }
+
+  @Test
+  public void testFormat() {
+    assertThat(ShellProgress.format("name", 25, 100, 2.5, 8)).isEqualTo("name: 25% 25/100, 2.5/s, ETA 0:00:30, 8 threads");
+    assertThat(ShellProgress.format("name", 0, 100, 0, 8)).isEqualTo("name: 0% 0/100, 0.0/s, ETA --:--:--, 8 threads");
+    assertThat(ShellProgress.format("name", 100, 100, 10, 0)).isEqualTo("name: 100% 100/100, 10.0/s, ETA 0:00:00, 0 threads");
+    assertThat(ShellProgress.formatDuration(6 * 3600 + 61)).isEqualTo("6:01:01");
+  }
+
+  @Test
+  public void testItems() {
+    final ShellProgress shellProgress = new ShellProgress();
+
+    shellProgress.onStart("name");
+    shellProgress.onProgress(10, 100, 4);
+    shellProgress.onProgress(100, 100, 4);
+    shellProgress.onEnd();
+  }
 }
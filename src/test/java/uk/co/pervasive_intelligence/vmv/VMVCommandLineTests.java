@@ -0,0 +1,133 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+
+import java.io.File;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * VMV command line tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VMVCommandLineTests extends BaseTestCase {
+
+  private final File commandFile = new File("commands.txt");
+
+  private final File keysReport = new File("create-election-keys-" + Metrics.DEFAULT_REPORT);
+
+  private final File output = new File("election-keys.csv");
+
+  private final File paramsReport = new File("create-election-parameters-" + Metrics.DEFAULT_REPORT);
+
+  private final File publishKeys = new File("public-election-keys.csv");
+
+  private final File publishParams = new File("public-election-params.csv");
+
+  @Before
+  public void setUp() {
+    this.tearDown();
+  }
+
+  @After
+  public void tearDown() {
+    this.commandFile.delete();
+    this.output.delete();
+    this.publishKeys.delete();
+    this.publishParams.delete();
+    this.keysReport.delete();
+    this.paramsReport.delete();
+  }
+
+  @Test
+  public void testFindCommands() {
+    assertThat(VMVCommandLine.findCommands()).containsKeys("create-election-parameters", "create-election-keys", "mix-votes", "verify-proofs");
+    assertThat(new VMVCommandLine().getCommands()).contains("decrypt-commitments");
+  }
+
+  @Test
+  public void testParse() throws Exception {
+    final List<List<String>> commands = VMVCommandLine.parse("create-teller", "--teller", "1", ";", ";", "merge-teller", "--teller", "1");
+    assertThat(commands).containsExactly(Arrays.asList("create-teller", "--teller", "1"), Arrays.asList("merge-teller", "--teller", "1"));
+
+    assertThat(VMVCommandLine.parse()).isEmpty();
+  }
+
+  @Test
+  public void testParseFile() throws Exception {
+    Files.write(this.commandFile.toPath(), Arrays.asList("# Comment", "", "  create-teller --teller 1 --ip-address \"127.0.0.1\"", "merge-teller"),
+        StandardCharsets.UTF_8);
+
+    final List<List<String>> commands = VMVCommandLine.parse(VMVCommandLine.FILE_OPTION, this.commandFile.getPath());
+    assertThat(commands).containsExactly(Arrays.asList("create-teller", "--teller", "1", "--ip-address", "127.0.0.1"),
+        Arrays.asList("merge-teller"));
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    final int status = new VMVCommandLine().run("create-election-parameters", "--publish", this.publishParams.getPath(), "--name", "Headless Election",
+        "--no-tellers", "--dsa-l", "1024", "--dsa-n", "160", VMVCommandLine.COMMAND_SEPARATOR,
+        "create-election-keys", "--election", this.publishParams.getPath(), "--output", this.output.getPath(), "--publish", this.publishKeys.getPath());
+
+    assertThat(status).isEqualTo(VMVCommandLine.EXIT_SUCCESS);
+    assertThat(this.publishParams).exists();
+    assertThat(this.output).exists();
+    assertThat(this.publishKeys).exists();
+
+    // Each command writes its own metrics report.
+    assertThat(this.paramsReport).exists();
+    assertThat(this.keysReport).exists();
+  }
+
+  @Test
+  public void testRunFailure() {
+    assertThat(new VMVCommandLine().run("create-election-keys", "--election", "missing.csv", "--output", this.output.getPath(), "--publish",
+        this.publishKeys.getPath())).isEqualTo(VMVCommandLine.EXIT_FAILURE);
+    assertThat(this.output).doesNotExist();
+  }
+
+  @Test
+  public void testRunInvalidOptions() {
+    final StringWriter output = new StringWriter();
+    final StringWriter error = new StringWriter();
+    final VMVCommandLine commandLine = new VMVCommandLine(new PrintWriter(output), new PrintWriter(error));
+
+    // The options are parsed but fail validation, so the command is never run.
+    assertThat(commandLine.run("create-key-shares", "--election", this.publishParams.getPath(), "--teller", "0", "--publish",
+        this.publishKeys.getPath())).isEqualTo(VMVCommandLine.EXIT_USAGE);
+    assertThat(error.toString()).contains("create-key-shares").contains("teller");
+    assertThat(output.toString()).isEmpty();
+    assertThat(this.publishKeys).doesNotExist();
+  }
+
+  @Test
+  public void testRunUsage() {
+    final VMVCommandLine commandLine = new VMVCommandLine();
+
+    assertThat(commandLine.run()).isEqualTo(VMVCommandLine.EXIT_USAGE);
+    assertThat(commandLine.run("unknown-command")).isEqualTo(VMVCommandLine.EXIT_USAGE);
+    assertThat(commandLine.run("create-election-keys", "--election", "missing.csv")).isEqualTo(VMVCommandLine.EXIT_USAGE);
+    assertThat(commandLine.run(VMVCommandLine.FILE_OPTION, this.commandFile.getPath())).isEqualTo(VMVCommandLine.EXIT_USAGE);
+  }
+
+  @Test
+  public void testTokenise() {
+    assertThat(VMVCommandLine.tokenise("a  'b c' \"d 'e'\" f\"g\"")).containsExactly("a", "b c", "d 'e'", "fg");
+    assertThat(VMVCommandLine.tokenise("''")).containsExactly("");
+  }
+}
@@ -14,11 +14,14 @@ import org.springframework.context.MessageSource;
 import org.springframework.test.context.junit4.SpringRunner;
 import uk.co.pervasive_intelligence.vmv.BaseTestCase;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.SimulatedVerificatumHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.VerificatumHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -48,6 +51,9 @@ public class CryptographyConfigurationTests extends BaseTestCase {
   @Mock
   private SchnorrAlgorithmHelper schnorrAlgorithmHelper;
 
+  @Mock
+  private ShuffleAlgorithmHelper shuffleAlgorithmHelper;
+
   @Mock
   private VerificatumHelper verificatumHelper;
 
@@ -55,7 +61,7 @@ public class CryptographyConfigurationTests extends BaseTestCase {
   public void testCryptographyHelper() {
     final CryptographyConfiguration configuration = new CryptographyConfiguration();
     final CryptographyHelper helper = configuration.cryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper, new Metrics(), 2);
     assertThat(helper).isNotNull();
   }
 
@@ -74,9 +80,24 @@ public class CryptographyConfigurationTests extends BaseTestCase {
   }
 
   @Test
-  public void testVerificatumHelper() {
+  public void testMetrics() {
+    final CryptographyConfiguration configuration = new CryptographyConfiguration();
+    assertThat(configuration.metrics(Metrics.DEFAULT_REPORT).getReport()).isEqualTo(Metrics.DEFAULT_REPORT);
+    assertThat(configuration.metrics("").getReport()).isNull();
+  }
+
+  @Test
+  public void testShuffleAlgorithmHelper() {
     final CryptographyConfiguration configuration = new CryptographyConfiguration();
-    final VerificatumHelper helper = configuration.verificatumHelper();
+    final ShuffleAlgorithmHelper helper = configuration.shuffleAlgorithmHelper();
     assertThat(helper).isNotNull();
   }
+
+  @Test
+  public void testVerificatumHelper() {
+    final CryptographyConfiguration configuration = new CryptographyConfiguration();
+    assertThat(configuration.verificatumHelper("", "", 0, false)).isNotNull();
+    assertThat(configuration.verificatumHelper("missing", "missing", 60, false)).isNotNull();
+    assertThat(configuration.verificatumHelper("", "", 60, true)).isInstanceOf(SimulatedVerificatumHelper.class);
+  }
 }
@@ -9,8 +9,14 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.springframework.core.MethodParameter;
+import org.springframework.shell.Utils;
 import org.springframework.test.context.junit4.SpringRunner;
 import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.parameter_initialisation.CreateKeySharesShellComponent;
+
+import javax.validation.ConstraintViolationException;
+import java.util.Arrays;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -31,4 +37,22 @@ public class JCommanderParameterResolverTests extends BaseTestCase {
     final JCommanderParameterResolver resolver = new JCommanderParameterResolver();
     assertThat(resolver).isNotNull();
   }
+
+  @Test
+  public void testValidate() throws Exception {
+    final JCommanderParameterResolver resolver = new JCommanderParameterResolver();
+    final MethodParameter parameter = Utils.createMethodParameter(CreateKeySharesShellComponent.class.getMethod("createKeyShares",
+        CreateKeySharesShellComponent.CreateKeySharesOptions.class), 0);
+
+    final Object valid = resolver.resolve(parameter, Arrays.asList("--election", "params.csv", "--teller", "1", "--publish", "commitments.json"))
+        .resolvedValue();
+    resolver.validate(parameter, valid);
+
+    final Object invalid = resolver.resolve(parameter, Arrays.asList("--election", "params.csv", "--teller", "0", "--publish", "commitments.json"))
+        .resolvedValue();
+
+    this.exception.expect(ConstraintViolationException.class);
+    this.exception.expectMessage("teller");
+    resolver.validate(parameter, invalid);
+  }
 }
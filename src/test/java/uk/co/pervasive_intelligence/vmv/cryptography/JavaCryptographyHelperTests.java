@@ -112,7 +112,12 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
 
     @Override
     public ProofWrapper<List<Commitment>> createCommitments(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
-                                                            final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+                                                            final List<TrackerNumber> trackerNumbers, final boolean archive) throws CryptographyException {
+      return null;
+    }
+
+    @Override
+    public DecryptionShare createDecryptionShare(final Parameters parameters, final int teller, final List<CipherText> cipherTexts) throws CryptographyException {
       return null;
     }
 
@@ -126,6 +131,11 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
       return null;
     }
 
+    @Override
+    public KeyShareCommitments createKeyShares(final Parameters parameters, final int teller) throws CryptographyException {
+      return null;
+    }
+
     @Override
     public File createTeller(final Parameters parameters, final int teller, final String ip, final int tellerPort, final int hintPort) throws CryptographyException {
       return null;
@@ -144,7 +154,8 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
     @Override
     public ProofWrapper<List<Voter>> decryptCommitments(final Parameters parameters, final KeyPair keyPair, final int teller,
                                                         final List<VoterKeyPairs> votersKeyPairs,
-                                                        final List<TrackerNumber> trackerNumbers, final List<List<Commitment>> commitments) throws CryptographyException {
+                                                        final List<TrackerNumber> trackerNumbers, final List<List<Commitment>> commitments,
+                                                        final List<DecryptionShare> decryptionShares) throws CryptographyException {
       return null;
     }
 
@@ -154,9 +165,28 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
       return null;
     }
 
+    @Override
+    public BigInteger decryptTrackerNumberInGroup(final Parameters parameters, final BigInteger alpha, final BigInteger beta, final KeyPair keyPair) {
+      return null;
+    }
+
+    @Override
+    public List<Voter> decryptVotes(final Parameters parameters, final KeyPair keyPair, final List<TrackerNumber> trackerNumbers,
+                                    final List<VoteOption> voteOptions, final List<CipherText> cipherTexts, final List<DecryptionShare> decryptionShares)
+        throws CryptographyException {
+      return null;
+    }
+
     @Override
     public ProofWrapper<List<Voter>> encryptVotes(final Parameters parameters, final KeyPair keyPair, final List<VoterKeyPairs> votersKeyPairs,
-                                                  final List<VoteOption> voteOptions, final List<Voter> voters, final List<EncryptProof> ersEncryptProofs) throws CryptographyException {
+                                                  final List<VoteOption> voteOptions, final List<Voter> voters, final List<EncryptProof> ersEncryptProofs,
+                                                  final boolean archive) throws CryptographyException {
+      return null;
+    }
+
+    @Override
+    public List<CipherText> formCommitments(final Parameters parameters, final List<VoterKeyPairs> votersKeyPairs, final List<TrackerNumber> trackerNumbers,
+                                            final List<List<Commitment>> commitments) throws CryptographyException {
       return null;
     }
 
@@ -165,6 +195,11 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
       return null;
     }
 
+    @Override
+    public File[] getKeyShareDealFiles(final Parameters parameters, final int teller) throws CryptographyException {
+      return new File[0];
+    }
+
     @Override
     public File[] getTellerInformationFiles(final Parameters parameters, final int teller) throws CryptographyException {
       return new File[0];
@@ -175,6 +210,11 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
 
     }
 
+    @Override
+    public KeyPair mergeKeyShares(final Parameters parameters, final int teller, final List<KeyShareCommitments> commitments) throws CryptographyException {
+      return null;
+    }
+
     @Override
     public void mergeTeller(final Parameters parameters, final int teller, final File... tellerInformationFiles) throws CryptographyException {
 
@@ -187,7 +227,35 @@ public class JavaCryptographyHelperTests extends BaseTestCase {
     }
 
     @Override
-    public ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(final Parameters parameters, final int teller, final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+    public void precomputeMixing(final Parameters parameters, final int teller, final int maximumTrackerNumbers, final int maximumVoters) throws CryptographyException {
+
+    }
+
+    @Override
+    public ProofWrapper<List<TrackerNumber>> shuffleTrackerNumbers(final Parameters parameters, final KeyPair keyPair, final int teller, final List<TrackerNumber> trackerNumbers) throws CryptographyException {
+      return null;
+    }
+
+    @Override
+    public ProofWrapper<List<CipherText>> shuffleVotes(final Parameters parameters, final KeyPair keyPair, final int teller, final List<Voter> voters)
+        throws CryptographyException {
+      return null;
+    }
+
+    @Override
+    public boolean verifyCommitmentProof(final Parameters parameters, final KeyPair keyPair, final BigInteger voterPublicKey, final Commitment commitment,
+                                         final CommitmentProof commitmentProof) throws CryptographyException {
+      return false;
+    }
+
+    @Override
+    public boolean verifyEncryptProof(final Parameters parameters, final KeyPair keyPair, final byte[] encrypted, final KeyPair signatureKeyPair,
+                                      final EncryptProof encryptProof) throws CryptographyException {
+      return false;
+    }
+
+    @Override
+    public List<ProofVerification> verifyProofs(final ProofStatement statement, final List<File> proofs) throws CryptographyException {
       return null;
     }
   }
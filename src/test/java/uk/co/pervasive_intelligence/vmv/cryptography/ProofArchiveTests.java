@@ -0,0 +1,189 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.EncryptProof;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Proof;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proof archive tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ProofArchiveTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File archiveFile = new File("proof-archive.zip");
+
+  private final List<BigInteger> keys = new ArrayList<>();
+
+  private final List<Proof> proofs = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    this.archiveFile.delete();
+
+    for (int i = 0; i < 25; i++) {
+      this.proofs.add(new Proof(BigInteger.valueOf(i), BigInteger.valueOf(1000 + i)));
+      this.keys.add((i == 3) ? null : BigInteger.valueOf(500 + i));
+    }
+  }
+
+  @After
+  public void tearDown() {
+    this.archiveFile.delete();
+  }
+
+  @Test
+  public void testGetByKey() throws Exception {
+    ProofArchive.write(this.archiveFile, Proof.class, this.proofs, this.keys, JacksonViews.Public.class, ElementEncoding.DECIMAL, 10);
+
+    try (final ProofArchive<Proof> archive = ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class)) {
+      final Map<BigInteger, Proof> byKey = archive.getByKey();
+
+      // Every proof except the one without a key.
+      assertThat(byKey).hasSize(this.proofs.size() - 1);
+
+      for (int i = 0; i < this.proofs.size(); i++) {
+        if (this.keys.get(i) != null) {
+          assertThat(byKey.get(this.keys.get(i)).getHash()).isEqualTo(this.proofs.get(i).getHash());
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testCreate() throws Exception {
+    // Keys are added in reverse order, with a duplicate.
+    try (final ProofArchive.ChunkWriter<Proof> writer = ProofArchive.create(this.archiveFile, Proof.class, JacksonViews.Public.class, ElementEncoding.BASE64, 3)) {
+      for (int i = 0; i < this.proofs.size(); i++) {
+        writer.add(this.proofs.get(i), (i == 20) ? BigInteger.valueOf(1000 - 3) : BigInteger.valueOf(1000 - i));
+      }
+
+      assertThat(writer.size()).isEqualTo(this.proofs.size());
+    }
+
+    try (final ProofArchive<Proof> archive = ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class)) {
+      assertThat(archive.size()).isEqualTo(this.proofs.size());
+      assertThat(archive.getNumberOfChunks()).isEqualTo(9);
+
+      for (int i = 0; i < this.proofs.size(); i++) {
+        if (i != 20) {
+          assertThat(archive.get(BigInteger.valueOf(1000 - i)).getHash()).isEqualTo(this.proofs.get(i).getHash());
+        }
+      }
+
+      // The first proof with a duplicate key is retrieved.
+      assertThat(archive.get(BigInteger.valueOf(1000 - 3)).getHash()).isEqualTo(this.proofs.get(3).getHash());
+      assertThat(archive.get(BigInteger.valueOf(1000 - 20))).isNull();
+      assertThat(archive.get(BigInteger.ZERO)).isNull();
+      assertThat(archive.get(BigInteger.valueOf(2000))).isNull();
+    }
+  }
+
+  @Test
+  public void testIsArchive() {
+    assertThat(ProofArchive.isArchive(new File("proofs.zip"))).isTrue();
+    assertThat(ProofArchive.isArchive(new File("PROOFS.ZIP"))).isTrue();
+    assertThat(ProofArchive.isArchive(new File("proofs.csv"))).isFalse();
+    assertThat(ProofArchive.isArchive(null)).isFalse();
+  }
+
+  @Test
+  public void testKeysMismatch() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    ProofArchive.write(this.archiveFile, Proof.class, this.proofs, this.keys.subList(0, 1), JacksonViews.Public.class, ElementEncoding.DECIMAL, 10);
+  }
+
+  @Test
+  public void testMissingIndex() throws Exception {
+    new ZipOutputStream(new FileOutputStream(this.archiveFile)).close();
+
+    this.exception.expect(CryptographyException.class);
+    ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class);
+  }
+
+  @Test
+  public void testReadType() throws Exception {
+    ProofArchive.write(this.archiveFile, Proof.class, this.proofs, this.keys, JacksonViews.Public.class, ElementEncoding.DECIMAL, 10);
+    assertThat(ProofArchive.readType(this.archiveFile)).isEqualTo(Proof.class.getSimpleName());
+
+    this.exception.expect(CryptographyException.class);
+    ProofArchive.open(this.archiveFile, EncryptProof.class, JacksonViews.Public.class);
+  }
+
+  @Test
+  public void testVerify() throws Exception {
+    ProofArchive.write(this.archiveFile, Proof.class, this.proofs, null, JacksonViews.Public.class, ElementEncoding.DECIMAL, 4);
+    final ExecutorService executor = Executors.newWorkStealingPool();
+
+    try (final ProofArchive<Proof> archive = ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class)) {
+      // Each proof must be passed with its position, whichever chunk it is in.
+      assertThat(archive.verify(executor, (position, proof) -> proof.getHash().equals(BigInteger.valueOf(position)))).isTrue();
+      assertThat(archive.verify(executor, (position, proof) -> position != 21)).isFalse();
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    for (final ElementEncoding encoding : ElementEncoding.values()) {
+      ProofArchive.write(this.archiveFile, Proof.class, this.proofs, this.keys, JacksonViews.Public.class, encoding, 10);
+
+      // One entry per chunk, one per index chunk, the index header and the archive information.
+      try (final ZipFile zipFile = new ZipFile(this.archiveFile)) {
+        assertThat(zipFile.size()).isEqualTo(8);
+      }
+
+      try (final ProofArchive<Proof> archive = ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class)) {
+        assertThat(archive.size()).isEqualTo(this.proofs.size());
+        assertThat(archive.getNumberOfChunks()).isEqualTo(3);
+        assertThat(archive.getChunk(2).size()).isEqualTo(5);
+
+        for (int i = 0; i < this.proofs.size(); i++) {
+          assertThat(archive.get(i).getHash()).isEqualTo(this.proofs.get(i).getHash());
+          assertThat(archive.get(i).getSignature()).isEqualTo(this.proofs.get(i).getSignature());
+
+          if (this.keys.get(i) != null) {
+            assertThat(archive.get(this.keys.get(i)).getHash()).isEqualTo(this.proofs.get(i).getHash());
+          }
+        }
+
+        assertThat(archive.get(BigInteger.ONE)).isNull();
+      }
+    }
+
+    try (final ProofArchive<Proof> archive = ProofArchive.open(this.archiveFile, Proof.class, JacksonViews.Public.class)) {
+      this.exception.expect(CryptographyException.class);
+      archive.get(this.proofs.size());
+    }
+  }
+}
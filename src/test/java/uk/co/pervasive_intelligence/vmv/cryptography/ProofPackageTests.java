@@ -0,0 +1,162 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Proof package tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ProofPackageTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File destination = new File("proof-package.zip");
+
+  private Path directory;
+
+  private byte[] random;
+
+  private byte[] text;
+
+  private static byte[] read(final ZipFile zipFile, final String name) throws Exception {
+    try (final InputStream input = zipFile.getInputStream(zipFile.getEntry(name))) {
+      final ByteArrayOutputStream output = new ByteArrayOutputStream();
+      final byte[] buffer = new byte[1024];
+      int read;
+
+      while ((read = input.read(buffer)) > 0) {
+        output.write(buffer, 0, read);
+      }
+
+      return output.toByteArray();
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.destination.delete();
+
+    this.directory = Files.createTempDirectory(null);
+    Files.createDirectory(this.directory.resolve("proofs"));
+
+    this.random = new byte[100000];
+    new Random(0).nextBytes(this.random);
+    Files.write(this.directory.resolve("proofs").resolve("PermutationCommitment01.bt"), this.random);
+
+    final StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      builder.append("<protocol>").append(i).append("</protocol>\n");
+    }
+    this.text = builder.toString().getBytes(StandardCharsets.UTF_8);
+    Files.write(this.directory.resolve("protInfo.xml"), this.text);
+
+    Files.write(this.directory.resolve("empty"), new byte[0]);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    this.destination.delete();
+
+    Files.walk(this.directory).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+  }
+
+  @Test
+  public void testPublishDirectory() throws Exception {
+    // Any existing file is replaced.
+    Files.write(this.destination.toPath(), new byte[] {1, 2, 3});
+
+    ProofPackage.publish(this.directory.toFile(), this.destination);
+
+    try (final ZipFile zipFile = new ZipFile(this.destination)) {
+      assertThat(zipFile.size()).isEqualTo(3);
+
+      // Random content is stored, while text is compressed.
+      assertThat(zipFile.getEntry("proofs/PermutationCommitment01.bt").getMethod()).isEqualTo(ZipEntry.STORED);
+      assertThat(zipFile.getEntry("protInfo.xml").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+      assertThat(zipFile.getEntry("empty").getSize()).isEqualTo(0);
+
+      assertThat(read(zipFile, "proofs/PermutationCommitment01.bt")).isEqualTo(this.random);
+      assertThat(read(zipFile, "protInfo.xml")).isEqualTo(this.text);
+    }
+
+    // No partially written files are left behind.
+    final File[] parts = new File(".").listFiles((dir, name) -> name.endsWith(".part"));
+    assertThat(parts).isNotNull();
+    assertThat(Arrays.asList(parts)).isEmpty();
+  }
+
+  @Test
+  public void testPublishFile() throws Exception {
+    final File proofFile = this.directory.resolve("protInfo.xml").toFile();
+
+    ProofPackage.publish(proofFile, this.destination);
+
+    assertThat(proofFile).doesNotExist();
+    assertThat(Files.readAllBytes(this.destination.toPath())).isEqualTo(this.text);
+  }
+
+  @Test
+  public void testPublishMissing() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    ProofPackage.publish(new File("missing"), this.destination);
+  }
+
+  @Test
+  public void testUnpack() throws Exception {
+    ProofPackage.publish(this.directory.toFile(), this.destination);
+
+    final Path unpacked = Files.createTempDirectory(null);
+
+    try {
+      assertThat(ProofPackage.unpack(this.destination, unpacked)).isEqualTo(unpacked.toAbsolutePath().toFile());
+      assertThat(Files.readAllBytes(unpacked.resolve("proofs").resolve("PermutationCommitment01.bt"))).isEqualTo(this.random);
+      assertThat(Files.readAllBytes(unpacked.resolve("protInfo.xml"))).isEqualTo(this.text);
+      assertThat(unpacked.resolve("empty")).exists();
+
+      // A proof directory is used as it is.
+      assertThat(ProofPackage.unpack(this.directory.toFile(), unpacked)).isEqualTo(this.directory.toFile());
+    }
+    finally {
+      Files.walk(unpacked).sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+    }
+  }
+
+  @Test
+  public void testUnpackOutsideDirectory() throws Exception {
+    try (final ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(this.destination))) {
+      zipOutputStream.putNextEntry(new ZipEntry("../outside"));
+      zipOutputStream.write(new byte[] {1, 2, 3});
+      zipOutputStream.closeEntry();
+    }
+
+    this.exception.expect(CryptographyException.class);
+    ProofPackage.unpack(this.destination, this.directory);
+  }
+}
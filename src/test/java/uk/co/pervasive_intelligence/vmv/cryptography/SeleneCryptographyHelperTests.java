@@ -5,11 +5,15 @@
  */
 package uk.co.pervasive_intelligence.vmv.cryptography;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.io.FileUtils;
 import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.context.MessageSource;
@@ -22,12 +26,15 @@ import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.SchnorrAlgorithmHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.shuffle.ShuffleAlgorithmHelper;
 
 import java.io.File;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.security.SecureRandom;
 import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -57,9 +64,100 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Mock
   private SchnorrAlgorithmHelper schnorrAlgorithmHelper;
 
+  @Mock
+  private ShuffleAlgorithmHelper shuffleAlgorithmHelper;
+
   @Mock
   private VerificatumHelper verificatumHelper;
 
+  private static DHParametersWrapper createThresholdParameters() {
+    // Schnorr group: p = kq + 1 with g generating the subgroup of prime order q, as needed for threshold decryption.
+    final SecureRandom random = new SecureRandom();
+    final BigInteger q = BigInteger.probablePrime(160, random);
+    BigInteger p;
+
+    do {
+      final BigInteger k = new BigInteger(352, random).setBit(351).shiftLeft(1);
+      p = k.multiply(q).add(BigInteger.ONE);
+    } while (!p.isProbablePrime(50));
+
+    final BigInteger g = BigInteger.valueOf(2).modPow(p.subtract(BigInteger.ONE).divide(q), p);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(g, p, q, 0, 0, null);
+    wrapper.setNumberOfTellers(3);
+    wrapper.setThresholdTellers(2);
+
+    return wrapper;
+  }
+
+  private static CipherText encrypt(final DHParametersWrapper wrapper, final BigInteger publicKey, final BigInteger plainText) {
+    final BigInteger k = new BigInteger(wrapper.getQ().bitLength() - 1, new SecureRandom());
+
+    return new CipherText(wrapper.getG().modPow(k, wrapper.getP()), plainText.multiply(publicKey.modPow(k, wrapper.getP())).mod(wrapper.getP()));
+  }
+
+  private KeyPair createKeyShares(final CryptographyHelper helper, final DHParametersWrapper wrapper) throws Exception {
+    final List<KeyShareCommitments> commitments = new ArrayList<>();
+
+    for (int teller = 1; teller <= wrapper.getNumberOfTellers(); teller++) {
+      commitments.add(helper.createKeyShares(wrapper, teller));
+    }
+
+    // Hand each deal to its recipient.
+    for (int dealer = 1; dealer <= wrapper.getNumberOfTellers(); dealer++) {
+      for (int recipient = 1; recipient <= wrapper.getNumberOfTellers(); recipient++) {
+        if (dealer == recipient) {
+          continue;
+        }
+
+        final String filename = SeleneCryptographyHelper.getKeyShareDealFilename(wrapper, dealer, recipient);
+        FileUtils.copyFile(new File(VerificatumHelper.getTellerDirectory(wrapper, dealer), filename),
+            new File(VerificatumHelper.getTellerDirectory(wrapper, recipient), filename));
+      }
+    }
+
+    KeyPair keyPair = null;
+
+    for (int teller = 1; teller <= wrapper.getNumberOfTellers(); teller++) {
+      final KeyPair merged = helper.mergeKeyShares(wrapper, teller, commitments);
+      assertThat(merged.getPrivateKey()).isNull();
+
+      if (keyPair != null) {
+        assertThat(merged.getPublicKey()).isEqualTo(keyPair.getPublicKey());
+      }
+
+      keyPair = merged;
+    }
+
+    return keyPair;
+  }
+
+  private void deleteTellers(final DHParametersWrapper wrapper) throws Exception {
+    for (int teller = 1; teller <= wrapper.getNumberOfTellers(); teller++) {
+      FileUtils.deleteDirectory(VerificatumHelper.getTellerDirectory(wrapper, teller));
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    // The local shuffle returns its rows in reverse order, as if permuted.
+    Mockito.doAnswer(invocation -> {
+      final int width = invocation.getArgument(3);
+      final List<CipherText> input = invocation.getArgument(4);
+      final List<CipherText> output = new ArrayList<>();
+
+      for (int i = input.size() - width; i >= 0; i -= width) {
+        output.addAll(input.subList(i, i + width));
+      }
+
+      final ShuffleProof proof = new ShuffleProof();
+      proof.setWidth(width);
+      proof.setInput(input);
+      proof.setOutput(output);
+
+      return proof;
+    }).when(this.shuffleAlgorithmHelper).shuffle(Mockito.any(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyInt(), Mockito.isNotNull());
+  }
+
   @Test
   public void testAssociateVoters() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ONE, 1, 2, BigInteger.ONE, null);
@@ -70,7 +168,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -101,7 +199,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final CipherText encrypted = new CipherText(BigInteger.ONE, BigInteger.TEN);
     final byte[] random = BigInteger.TEN.toByteArray();
     Mockito.when(this.elgamalAlgorithmHelper.encrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new byte[][] {encrypted.toByteArray(), random});
-    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
 
     Mockito.when(this.schnorrAlgorithmHelper.generateProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new Proof());
     Mockito.when(this.schnorrAlgorithmHelper.verifyProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(true);
@@ -111,7 +209,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
 
     final int teller = 1;
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
     final ProofWrapper<List<Commitment>> commitmentsWithProof = helper.createCommitments(wrapper, keyPair, keyPairs, shuffledTrackerNumbersWithProof.getObject());
     final ProofWrapper<List<Voter>> votersWithProof = helper.decryptCommitments(wrapper, keyPair, teller, keyPairs, trackerNumbersList,
         Collections.singletonList(commitmentsWithProof.getObject()));
@@ -134,7 +232,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testAssociateVotersWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<Voter> ersVoters = Arrays.asList(new Voter(), new Voter());
@@ -150,7 +248,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -185,7 +283,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -212,7 +310,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testCompleteCommitmentsWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<Voter> voters = Arrays.asList(new Voter(1), new Voter(2), new Voter(3));
@@ -234,7 +332,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -258,7 +356,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final ProofWrapper<List<CipherText>> shuffleWithProof = new ProofWrapper<>(cipherTexts, proofFile);
     Mockito.when(this.verificatumHelper.shuffle(Mockito.isNotNull(), Mockito.eq(teller), Mockito.anyInt(), Mockito.isNotNull())).thenReturn(shuffleWithProof);
 
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
 
     final CipherText encrypted = new CipherText(BigInteger.ONE, BigInteger.TEN);
     final byte[] random = BigInteger.TEN.toByteArray();
@@ -285,8 +383,19 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
       assertThat(commitment.getEncryptedG()).isNotNull();
     }
 
+    // The proofs can also be written straight into an archive indexed by each voter's public key.
+    final ProofWrapper<List<Commitment>> commitmentsWithArchive = helper.createCommitments(wrapper, keyPair, keyPairs,
+        shuffledTrackerNumbersWithProof.getObject(), true);
+
+    try (final ProofArchive<CommitmentProof> archive = ProofArchive.open(commitmentsWithArchive.getProofFile(), CommitmentProof.class,
+        JacksonViews.Public.class)) {
+      assertThat(archive.size()).isEqualTo(voters);
+      assertThat(archive.get(publicKey)).isNotNull();
+    }
+
     shuffledTrackerNumbersWithProof.getProofFile().delete();
     commitmentsWithProof.getProofFile().delete();
+    commitmentsWithArchive.getProofFile().delete();
     proofFile.delete();
   }
 
@@ -300,7 +409,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -318,7 +427,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
 
     final int teller = 1;
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
 
     final byte[] encrypted = new byte[256];
     final byte[] random = BigInteger.TEN.toByteArray();
@@ -352,7 +461,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testCreateCommitmentsWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<VoterKeyPairs> keyPairs = Arrays.asList(new VoterKeyPairs(null, null), new VoterKeyPairs(null, null));
@@ -363,6 +472,18 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     helper.createCommitments(null, null, keyPairs, trackerNumbers);
   }
 
+  @Test
+  public void testCreateDecryptionShareMissingKeyShare() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, new ChaumPedersenAlgorithmHelper(), this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    this.exception.expect(CryptographyException.class);
+    helper.createDecryptionShare(wrapper, 1, Collections.singletonList(new CipherText(BigInteger.ONE, BigInteger.ONE)));
+  }
+
   @Test
   public void testCreateElectionKeyPair() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -376,7 +497,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.verificatumHelper.createElectionKeyPair(Mockito.isNotNull(), Mockito.anyInt())).thenReturn(dummyKeyPair);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final KeyPair keyPair = helper.createElectionKeyPair(wrapper, 1);
@@ -396,7 +517,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.createKeys(Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(dummyKeyPair);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final KeyPair keyPair = helper.createElectionKeyPair(wrapper, 0);
@@ -416,7 +537,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.createKeys(Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(dummyKeyPair);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     this.exception.expect(CryptographyException.class);
@@ -431,7 +552,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.<Class<?>>when(this.dsaAlgorithmHelper.getParametersClass()).thenReturn(wrapper.getClass());
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final Object[] options = new Object[] {1024, 160};
@@ -441,6 +562,19 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     assertThat(helper.getElectionParametersClass()).isEqualTo(parameters.getClass());
   }
 
+  @Test
+  public void testCreateKeySharesNoTellers() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    this.exception.expect(CryptographyException.class);
+    helper.createKeyShares(wrapper, 1);
+  }
+
   @Test
   public void testCreateTeller() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -449,7 +583,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -470,7 +604,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -490,7 +624,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 0;
@@ -517,7 +651,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -533,6 +667,39 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     }
   }
 
+  @Test
+  public void testCreateTrackerNumbersProgress() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    // The first encryption is slow, but the others complete.
+    final CipherText encrypted = new CipherText(BigInteger.ONE, BigInteger.TEN);
+    final AtomicBoolean first = new AtomicBoolean(true);
+    Mockito.when(this.elgamalAlgorithmHelper.encrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenAnswer(invocation -> {
+      if (first.getAndSet(false)) {
+        Thread.sleep(SeleneCryptographyHelper.PROGRESS_INTERVAL * 3);
+      }
+
+      return new byte[][] {encrypted.toByteArray()};
+    });
+
+    final SeleneCryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    helper.setExecutor(Executors.newFixedThreadPool(4));
+
+    final CryptographyHelper.ProgressListener listener = Mockito.mock(CryptographyHelper.ProgressListener.class);
+    helper.addProgressListener(listener);
+
+    final int voters = 100;
+    assertThat(helper.createTrackerNumbers(wrapper, new KeyPair(BigInteger.ONE, BigInteger.TEN), voters)).hasSize(voters);
+
+    // Progress is reported from the completed items while the first is still running, ending with all of them.
+    final ArgumentCaptor<Long> completed = ArgumentCaptor.forClass(Long.class);
+    Mockito.verify(listener, Mockito.atLeast(2)).onProgress(completed.capture(), Mockito.eq((long) voters), Mockito.anyInt());
+    assertThat(completed.getAllValues()).anyMatch(value -> (value > 0) && (value < voters));
+    assertThat(completed.getValue()).isEqualTo(voters);
+  }
+
   @Test
   public void testCreateTrackerNumbersNoTellers() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -547,7 +714,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -574,7 +741,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.createKeys(Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(dummyKeyPair);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -589,6 +756,22 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     }
   }
 
+  @Test
+  public void testDistinctRows() throws Exception {
+    final int rows = 1000;
+    final List<byte[]> values = new ArrayList<>();
+    final SeleneCryptographyHelper.DistinctRows distinctRows = new SeleneCryptographyHelper.DistinctRows(10);
+
+    for (int i = 0; i < rows; i++) {
+      values.add(BigInteger.valueOf(i).toByteArray());
+      assertThat(distinctRows.add(values.get(i), i, values::get)).isTrue();
+    }
+
+    for (int i = 0; i < rows; i++) {
+      assertThat(distinctRows.add(BigInteger.valueOf(i).toByteArray(), rows + i, values::get)).isFalse();
+    }
+  }
+
   @Test
   public void testDecryptCommitments() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ONE, 1, 2, BigInteger.ONE, null);
@@ -599,7 +782,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair electionKeyPair = new KeyPair(BigInteger.valueOf(123), BigInteger.valueOf(456));
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -641,7 +824,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.chaumPedersenAlgorithmHelper.verifyProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(true);
 
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, null, teller, trackerNumbersList);
     final ProofWrapper<List<Commitment>> commitmentsWithProof = helper.createCommitments(wrapper, electionKeyPair, keyPairs,
         shuffledTrackerNumbersWithProof.getObject());
 
@@ -667,6 +850,61 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     proofFile.delete();
   }
 
+  @Test
+  public void testDecryptCommitmentsDecryptionShares() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, new ChaumPedersenAlgorithmHelper(), this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    try {
+      final KeyPair keyPair = this.createKeyShares(helper, wrapper);
+
+      // The teller commitments are the identity so that the decrypted commitment is the tracker number in group.
+      final int numberOfVoters = 10;
+      final List<VoterKeyPairs> votersKeyPairs = new ArrayList<>();
+      final List<TrackerNumber> trackerNumbers = new ArrayList<>();
+      final List<Commitment> tellerCommitments = new ArrayList<>();
+      for (int i = 0; i < numberOfVoters; i++) {
+        final BigInteger trapdoorPublicKey = BigInteger.valueOf(100 + i);
+        votersKeyPairs.add(new VoterKeyPairs(new KeyPair(null, trapdoorPublicKey), null));
+
+        final BigInteger trackerNumberInGroup = wrapper.getG().modPow(BigInteger.valueOf(i + 1), wrapper.getP());
+        trackerNumbers.add(new TrackerNumber(i, trackerNumberInGroup, encrypt(wrapper, keyPair.getPublicKey(), trackerNumberInGroup).toByteArray()));
+
+        final Commitment commitment = new Commitment();
+        commitment.setPublicKey(trapdoorPublicKey);
+        commitment.setEncryptedH(new CipherText(BigInteger.ONE, BigInteger.ONE).toByteArray());
+        tellerCommitments.add(commitment);
+      }
+
+      final List<List<Commitment>> commitments = Collections.singletonList(tellerCommitments);
+      final List<CipherText> cipherTexts = helper.formCommitments(wrapper, votersKeyPairs, trackerNumbers, commitments);
+      final List<DecryptionShare> decryptionShares = Arrays.asList(helper.createDecryptionShare(wrapper, 1, cipherTexts),
+          helper.createDecryptionShare(wrapper, 3, cipherTexts));
+
+      final ProofWrapper<List<Voter>> votersWithProof = helper.decryptCommitments(wrapper, keyPair, 1, votersKeyPairs, trackerNumbers, commitments,
+          decryptionShares);
+      assertThat(votersWithProof.getProofFile()).isNull();
+      assertThat(votersWithProof.getObject().size()).isEqualTo(numberOfVoters);
+
+      for (int i = 0; i < numberOfVoters; i++) {
+        final Voter voter = votersWithProof.getObject().get(i);
+        assertThat(voter.getVoterKeyPairs()).isEqualTo(votersKeyPairs.get(i));
+        assertThat(voter.getTrackerNumber()).isEqualTo(trackerNumbers.get(i));
+        assertThat(voter.getBeta()).isEqualTo(trackerNumbers.get(i).getTrackerNumberInGroup());
+      }
+
+      // A single share is below the threshold.
+      this.exception.expect(CryptographyException.class);
+      helper.decryptCommitments(wrapper, keyPair, 1, votersKeyPairs, trackerNumbers, commitments, decryptionShares.subList(0, 1));
+    }
+    finally {
+      this.deleteTellers(wrapper);
+    }
+  }
+
   @Test
   public void testDecryptCommitmentsNoTellers() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ONE, 1, 2, BigInteger.ONE, null);
@@ -677,7 +915,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -694,7 +932,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final CipherText encrypted = new CipherText(BigInteger.ONE, BigInteger.TEN);
     final byte[] random = BigInteger.TEN.toByteArray();
     Mockito.when(this.elgamalAlgorithmHelper.encrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new byte[][] {encrypted.toByteArray(), random});
-    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
 
     final int teller = 1;
 
@@ -709,7 +947,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.chaumPedersenAlgorithmHelper.verifyProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(true);
 
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
     final ProofWrapper<List<Commitment>> commitmentsWithProof = helper.createCommitments(wrapper, keyPair, keyPairs, shuffledTrackerNumbersWithProof.getObject());
 
     final ProofWrapper<List<Voter>> votersWithProof = helper.decryptCommitments(wrapper, keyPair, teller, keyPairs,
@@ -743,7 +981,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair electionKeyPair = new KeyPair(BigInteger.valueOf(123), BigInteger.valueOf(456));
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -787,7 +1025,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.chaumPedersenAlgorithmHelper.verifyProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(true);
 
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, null, teller, trackerNumbersList);
     final ProofWrapper<List<Commitment>> commitmentsWithProof = helper.createCommitments(wrapper, electionKeyPair, keyPairs,
         shuffledTrackerNumbersWithProof.getObject());
 
@@ -802,7 +1040,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testDecryptCommitmentsWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<VoterKeyPairs> keyPairs = Arrays.asList(new VoterKeyPairs(null, null), new VoterKeyPairs(null, null));
@@ -827,7 +1065,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -847,7 +1085,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final CipherText encrypted = new CipherText(BigInteger.ONE, BigInteger.TEN);
     final byte[] random = BigInteger.TEN.toByteArray();
     Mockito.when(this.elgamalAlgorithmHelper.encrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new byte[][] {encrypted.toByteArray(), random});
-    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull())).thenReturn(BigInteger.TEN.toByteArray());
 
     int teller = 1;
 
@@ -862,7 +1100,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.chaumPedersenAlgorithmHelper.verifyProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(true);
 
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
     final ProofWrapper<List<Commitment>> commitmentsWithProof = helper.createCommitments(wrapper, keyPair, keyPairs, shuffledTrackerNumbersWithProof.getObject());
 
     proofFile.delete();
@@ -879,7 +1117,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -899,18 +1137,32 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final BigInteger beta = BigInteger.TEN;
     final BigInteger publicKey = BigInteger.valueOf(numberOfVoters + 34);
 
-    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(BigInteger.valueOf(0).toByteArray());
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull())).thenReturn(BigInteger.valueOf(0).toByteArray());
 
     helper.decryptTrackerNumber(wrapper, alpha, beta, publicKey, voterKeyPairs, trackerNumbersList);
   }
 
+  @Test
+  public void testDecryptTrackerNumberInGroup() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    final KeyPair keyPair = new KeyPair(BigInteger.ONE, BigInteger.TEN);
+
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.eq(wrapper), Mockito.eq(keyPair), Mockito.<CipherText>isNotNull())).thenReturn(new byte[] {42});
+
+    assertThat(helper.decryptTrackerNumberInGroup(wrapper, BigInteger.ONE, BigInteger.TEN, keyPair)).isEqualTo(BigInteger.valueOf(42));
+  }
+
   @Test
   public void testDecryptTrackerNumberNoKeyPair() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -940,7 +1192,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -960,18 +1212,78 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final BigInteger beta = BigInteger.TEN;
     final BigInteger publicKey = BigInteger.valueOf(numberOfVoters + 34);
 
-    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(BigInteger.valueOf(numberOfVoters).toByteArray());
+    Mockito.when(this.elgamalAlgorithmHelper.decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull())).thenReturn(BigInteger.valueOf(numberOfVoters).toByteArray());
 
     this.exception.expect(CryptographyException.class);
     helper.decryptTrackerNumber(wrapper, alpha, beta, publicKey, voterKeyPairs, trackerNumbersList);
   }
 
+  @Test
+  public void testDecryptVotes() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, new ChaumPedersenAlgorithmHelper(), this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    try {
+      final KeyPair keyPair = this.createKeyShares(helper, wrapper);
+      Mockito.verify(this.verificatumHelper).setPublicKey(wrapper, 1, keyPair.getPublicKey());
+      Mockito.verify(this.verificatumHelper).setPublicKey(wrapper, 2, keyPair.getPublicKey());
+      Mockito.verify(this.verificatumHelper).setPublicKey(wrapper, 3, keyPair.getPublicKey());
+
+      final int numberOfVoters = 10;
+      final List<TrackerNumber> trackerNumbers = new ArrayList<>();
+      final List<VoteOption> voteOptions = new ArrayList<>();
+      final List<CipherText> cipherTexts = new ArrayList<>();
+      for (int i = 0; i < numberOfVoters; i++) {
+        final BigInteger trackerNumberInGroup = wrapper.getG().modPow(BigInteger.valueOf(i + 1), wrapper.getP());
+        trackerNumbers.add(new TrackerNumber(i, trackerNumberInGroup, null));
+
+        final VoteOption voteOption = new VoteOption(Integer.toString(i));
+        voteOption.setOptionNumberInGroup(wrapper.getG().modPow(BigInteger.valueOf(100 + i), wrapper.getP()));
+        voteOptions.add(voteOption);
+
+        // Each voter chooses the option after their tracker number.
+        cipherTexts.add(encrypt(wrapper, keyPair.getPublicKey(), trackerNumberInGroup));
+        cipherTexts.add(encrypt(wrapper, keyPair.getPublicKey(), voteOptions.get(i).getOptionNumberInGroup()));
+      }
+
+      final List<DecryptionShare> decryptionShares = Arrays.asList(helper.createDecryptionShare(wrapper, 2, cipherTexts),
+          helper.createDecryptionShare(wrapper, 3, cipherTexts));
+
+      final List<Voter> voters = helper.decryptVotes(wrapper, keyPair, trackerNumbers, voteOptions, cipherTexts, decryptionShares);
+      assertThat(voters.size()).isEqualTo(numberOfVoters);
+
+      for (int i = 0; i < numberOfVoters; i++) {
+        assertThat(voters.get(i).getTrackerNumber()).isEqualTo(trackerNumbers.get(i));
+        assertThat(voters.get(i).getPlainTextVote()).isEqualTo(Integer.toString(i));
+      }
+    }
+    finally {
+      this.deleteTellers(wrapper);
+    }
+  }
+
+  @Test
+  public void testDecryptVotesWrongSize() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    this.exception.expect(CryptographyException.class);
+    helper.decryptVotes(wrapper, new KeyPair(null, BigInteger.ONE), new ArrayList<>(), new ArrayList<>(),
+        Collections.singletonList(new CipherText(BigInteger.ONE, BigInteger.ONE)), new ArrayList<>());
+  }
+
   @Test
   public void testEncryptProof() throws Exception {
     final DSAAlgorithmHelper dsaAlgorithmHelper = new DSAAlgorithmHelper();
     final ElGamalAlgorithmHelper elgamalAlgorithmHelper = new ElGamalAlgorithmHelper();
     final SeleneCryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, dsaAlgorithmHelper, elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final Parameters parameters = helper.createElectionParameters();
@@ -999,7 +1311,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = elgamalHelper.createKeys(new SecureRandom(), parameters);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, elgamalHelper, this.verificatumHelper,
-        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1073,7 +1385,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = elgamalHelper.createKeys(new SecureRandom(), parameters);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, elgamalHelper, this.verificatumHelper,
-        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1159,7 +1471,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = elgamalHelper.createKeys(new SecureRandom(), parameters);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, elgamalHelper, this.verificatumHelper,
-        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1217,7 +1529,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1277,7 +1589,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1329,7 +1641,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testEncryptVotesMissingVoterKeyPairs() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1364,7 +1676,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testEncryptVotesWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<VoterKeyPairs> keyPairs = Arrays.asList(new VoterKeyPairs(null, null), new VoterKeyPairs(null, null));
@@ -1383,7 +1695,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -1400,7 +1712,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -1417,7 +1729,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 0;
@@ -1432,7 +1744,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper parameters = (DHParametersWrapper) dsaAlgorithmHelper.createParameters(new SecureRandom(), 1024, 160, 128);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoteOptions = 100;
@@ -1466,7 +1778,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper parameters = (DHParametersWrapper) dsaAlgorithmHelper.createParameters(new SecureRandom(), 1024, 160, 128);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoteOptions = 100;
@@ -1481,6 +1793,61 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     helper.mapVoteOptions(parameters, voteOptions);
   }
 
+  @Test
+  public void testMergeKeyShares() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, new ChaumPedersenAlgorithmHelper(), this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    try {
+      final KeyPair keyPair = this.createKeyShares(helper, wrapper);
+      assertThat(keyPair.getPublicKey()).isNotNull();
+
+      for (int teller = 1; teller <= wrapper.getNumberOfTellers(); teller++) {
+        final File tellerDirectory = VerificatumHelper.getTellerDirectory(wrapper, teller);
+        assertThat(new File(tellerDirectory, SeleneCryptographyHelper.KEY_SHARE_FILENAME)).exists();
+
+        final File[] dealFiles = helper.getKeyShareDealFiles(wrapper, teller);
+        assertThat(dealFiles.length).isEqualTo(wrapper.getNumberOfTellers());
+
+        for (int dealer = 1; dealer <= wrapper.getNumberOfTellers(); dealer++) {
+          assertThat(dealFiles[dealer - 1]).isEqualTo(new File(tellerDirectory, SeleneCryptographyHelper.getKeyShareDealFilename(wrapper, dealer, teller)));
+        }
+
+        Mockito.verify(this.verificatumHelper).setPublicKey(wrapper, teller, keyPair.getPublicKey());
+      }
+    }
+    finally {
+      this.deleteTellers(wrapper);
+    }
+  }
+
+  @Test
+  public void testMergeKeySharesMissingDeal() throws Exception {
+    final DHParametersWrapper wrapper = createThresholdParameters();
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, new ChaumPedersenAlgorithmHelper(), this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    try {
+      final List<KeyShareCommitments> commitments = new ArrayList<>();
+
+      for (int teller = 1; teller <= wrapper.getNumberOfTellers(); teller++) {
+        commitments.add(helper.createKeyShares(wrapper, teller));
+      }
+
+      // The deals from the other tellers have not been handed over.
+      this.exception.expect(CryptographyException.class);
+      helper.mergeKeyShares(wrapper, 1, commitments);
+    }
+    finally {
+      this.deleteTellers(wrapper);
+    }
+  }
+
   @Test
   public void testMergeTeller() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -1489,7 +1856,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -1505,7 +1872,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 1;
@@ -1522,7 +1889,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int teller = 0;
@@ -1543,7 +1910,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1602,15 +1969,22 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
 
     final File proofFile = Files.createTempFile(null, null).toFile();
     Mockito.doAnswer(invocation -> {
+      final int width = invocation.getArgument(2);
       final List<CipherText> flatCipherTexts = invocation.getArgument(3);
-      final List<BigInteger> plainTexts = new ArrayList<>();
+      final VerificatumByteTree.BlockConsumer consumer = invocation.getArgument(4);
+
+      for (int i = 0; i < flatCipherTexts.size() / width; i++) {
+        final BigInteger[] plainTexts = new BigInteger[width];
+
+        for (int j = 0; j < width; j++) {
+          plainTexts[j] = flatCipherTexts.get((i * width) + j).getAlpha();
+        }
 
-      for (final CipherText cipherText : flatCipherTexts) {
-        plainTexts.add(cipherText.getAlpha());
+        consumer.accept(i, plainTexts);
       }
 
-      return new ProofWrapper<>(plainTexts, proofFile);
-    }).when(this.verificatumHelper).mix(Mockito.isNotNull(), Mockito.eq(teller), Mockito.anyInt(), Mockito.isNotNull());
+      return proofFile;
+    }).when(this.verificatumHelper).mix(Mockito.isNotNull(), Mockito.eq(teller), Mockito.anyInt(), Mockito.isNotNull(), Mockito.isNotNull());
 
     final ProofWrapper<List<Voter>> votersWithProof = helper.mixVotes(wrapper, keyPair, teller, trackerNumbers, voteOptions, voters);
     assertThat(votersWithProof).isNotNull();
@@ -1654,7 +2028,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1692,10 +2066,9 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.sign(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(signed);
 
     Mockito.doAnswer(invocation -> {
-      final byte[] data = invocation.getArgument(2);
-      final CipherText cipherText = new CipherText(data);
+      final CipherText cipherText = invocation.getArgument(2);
       return cipherText.getAlpha().toByteArray();
-    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull());
 
     final int teller = 1;
 
@@ -1713,7 +2086,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1751,10 +2124,9 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.sign(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(signed);
 
     Mockito.doAnswer(invocation -> {
-      final byte[] data = invocation.getArgument(2);
-      final CipherText cipherText = new CipherText(data);
+      final CipherText cipherText = invocation.getArgument(2);
       return cipherText.getAlpha().toByteArray();
-    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull());
 
     final int teller = 1;
 
@@ -1772,7 +2144,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final KeyPair keyPair = new KeyPair(privateKey, publicKey);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int numberOfVoters = 100;
@@ -1810,10 +2182,9 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     Mockito.when(this.dsaAlgorithmHelper.sign(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(signed);
 
     Mockito.doAnswer(invocation -> {
-      final byte[] data = invocation.getArgument(2);
-      final CipherText cipherText = new CipherText(data);
+      final CipherText cipherText = invocation.getArgument(2);
       return cipherText.getAlpha().toByteArray();
-    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    }).when(this.elgamalAlgorithmHelper).decrypt(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.<CipherText>isNotNull());
 
     final int teller = 1;
 
@@ -1823,6 +2194,10 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     assertThat(votersWithProof.getObject()).isNotNull();
     assertThat(votersWithProof.getObject().size()).isEqualTo(numberOfVoters);
 
+    // The tracker number and vote are shuffled together.
+    Mockito.verify(this.shuffleAlgorithmHelper).shuffle(Mockito.any(), Mockito.eq(wrapper), Mockito.eq(publicKey),
+        Mockito.eq(SeleneCryptographyHelper.MIX_VOTES_WIDTH), Mockito.isNotNull());
+
     int numberEqual = 0;
 
     for (int i = 0; i < numberOfVoters; i++) {
@@ -1849,7 +2224,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
   @Test
   public void testMixVotesWrongSize() throws Exception {
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<TrackerNumber> trackerNumbers = Arrays.asList(new TrackerNumber(1, null, null), new TrackerNumber(2, null, null));
@@ -1867,7 +2242,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final List<TrackerNumber> trackerNumbers = Arrays.asList(new TrackerNumber(1, null, null), new TrackerNumber(2, null, null));
@@ -1877,6 +2252,64 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     helper.mixVotes(wrapper, null, 0, trackerNumbers, null, voters);
   }
 
+  @Test
+  public void testPrecomputeMixing() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+    wrapper.setNumberOfTellers(4);
+    wrapper.setThresholdTellers(3);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    final int teller = 1;
+
+    helper.precomputeMixing(wrapper, teller, 100, 50);
+
+    Mockito.verify(this.verificatumHelper).precomputeShuffle(Mockito.isNotNull(), Mockito.eq(teller), Mockito.eq(SeleneCryptographyHelper.SHUFFLE_TRACKER_NUMBERS_WIDTH),
+        Mockito.eq(100));
+    Mockito.verify(this.verificatumHelper).precomputeMix(Mockito.isNotNull(), Mockito.eq(teller), Mockito.eq(SeleneCryptographyHelper.MIX_VOTES_WIDTH),
+        Mockito.eq(50));
+
+    // Skip the shuffle.
+    Mockito.reset(this.verificatumHelper);
+    helper.precomputeMixing(wrapper, teller, 0, 50);
+
+    Mockito.verify(this.verificatumHelper, Mockito.never()).precomputeShuffle(Mockito.any(), Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+    Mockito.verify(this.verificatumHelper).precomputeMix(Mockito.isNotNull(), Mockito.eq(teller), Mockito.anyInt(), Mockito.eq(50));
+  }
+
+  @Test
+  public void testPrecomputeMixingNoTellers() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    // Nothing to precompute for a local shuffle.
+    helper.precomputeMixing(wrapper, 1, 100, 50);
+
+    Mockito.verifyZeroInteractions(this.verificatumHelper);
+  }
+
+  @Test
+  public void testPrecomputeMixingWrongTeller() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+    wrapper.setNumberOfTellers(4);
+    wrapper.setThresholdTellers(3);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    this.exception.expect(CryptographyException.class);
+    helper.precomputeMixing(wrapper, 0, 100, 50);
+  }
+
   @Test
   public void testShuffleTrackerNumbers() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -1885,7 +2318,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -1904,7 +2337,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final ProofWrapper<List<CipherText>> shuffleWithProof = new ProofWrapper<>(cipherTexts, proofFile);
     Mockito.when(this.verificatumHelper.shuffle(Mockito.isNotNull(), Mockito.eq(teller), Mockito.anyInt(), Mockito.isNotNull())).thenReturn(shuffleWithProof);
 
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, null, teller, trackerNumbersList);
     assertThat(shuffledTrackerNumbersWithProof).isNotNull();
     assertThat(shuffledTrackerNumbersWithProof.getProofFile()).isNotNull();
     assertThat(shuffledTrackerNumbersWithProof.getObject()).isNotNull();
@@ -1926,44 +2359,61 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
     final DHParametersWrapper wrapper = new DHParametersWrapper(object);
 
+    final BigInteger publicKey = BigInteger.valueOf(456);
+    final KeyPair keyPair = new KeyPair(null, publicKey);
+
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
-    final Set<TrackerNumber> trackerNumbers = new HashSet<>();
-    final CipherText cipherText = new CipherText(BigInteger.ONE, BigInteger.TEN);
+    final List<TrackerNumber> trackerNumbersList = new ArrayList<>();
     for (int i = 0; i < voters; i++) {
-      trackerNumbers.add(new TrackerNumber(i, BigInteger.valueOf(i), cipherText.toByteArray()));
+      trackerNumbersList.add(new TrackerNumber(i, BigInteger.valueOf(i), new CipherText(BigInteger.valueOf(i + 1), BigInteger.TEN).toByteArray()));
     }
 
     final int teller = 1;
-    final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
 
-    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    final ProofWrapper<List<TrackerNumber>> shuffledTrackerNumbersWithProof = helper.shuffleTrackerNumbers(wrapper, keyPair, teller, trackerNumbersList);
     assertThat(shuffledTrackerNumbersWithProof).isNotNull();
     assertThat(shuffledTrackerNumbersWithProof.getProofFile()).isNotNull();
     assertThat(shuffledTrackerNumbersWithProof.getObject()).isNotNull();
     assertThat(shuffledTrackerNumbersWithProof.getObject().size()).isEqualTo(voters);
 
-    int numberEqual = 0;
-
+    // The shuffled tracker numbers are the output of the verifiable shuffle.
     for (int i = 0; i < voters; i++) {
       final TrackerNumber trackerNumber = shuffledTrackerNumbersWithProof.getObject().get(i);
       assertThat(trackerNumber.getTrackerNumber()).isNull();
       assertThat(trackerNumber.getTrackerNumberInGroup()).isNull();
-      assertThat(trackerNumber.getEncryptedTrackerNumberInGroup()).isNotEmpty();
-
-      if (Arrays.equals(trackerNumber.getEncryptedTrackerNumberInGroup(), trackerNumbersList.get(i).getEncryptedTrackerNumberInGroup())) {
-        numberEqual++;
-      }
+      assertThat(trackerNumber.getEncryptedTrackerNumberInGroup()).isEqualTo(trackerNumbersList.get(voters - 1 - i).getEncryptedTrackerNumberInGroup());
     }
 
-    assertThat(numberEqual).isEqualTo(voters);
+    Mockito.verify(this.shuffleAlgorithmHelper).shuffle(Mockito.any(), Mockito.eq(wrapper), Mockito.eq(publicKey),
+        Mockito.eq(SeleneCryptographyHelper.SHUFFLE_TRACKER_NUMBERS_WIDTH), Mockito.isNotNull());
+
+    // The proof is written as JSON.
+    final ShuffleProof proof = new ObjectMapper().readValue(shuffledTrackerNumbersWithProof.getProofFile(), ShuffleProof.class);
+    assertThat(proof.getWidth()).isEqualTo(SeleneCryptographyHelper.SHUFFLE_TRACKER_NUMBERS_WIDTH);
+    assertThat(proof.getOutput()).hasSize(voters);
 
     shuffledTrackerNumbersWithProof.getProofFile().delete();
   }
 
+  @Test
+  public void testShuffleTrackerNumbersNoTellersMissingKey() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+
+    final List<TrackerNumber> trackerNumbersList = Collections.singletonList(
+        new TrackerNumber(1, BigInteger.ONE, new CipherText(BigInteger.ONE, BigInteger.TEN).toByteArray()));
+
+    this.exception.expect(CryptographyException.class);
+    helper.shuffleTrackerNumbers(wrapper, null, 1, trackerNumbersList);
+  }
+
   @Test
   public void testShuffleTrackerNumbersWrongTeller() throws Exception {
     final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
@@ -1972,7 +2422,7 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     wrapper.setThresholdTellers(3);
 
     final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
-        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper);
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
     assertThat(helper).isNotNull();
 
     final int voters = 100;
@@ -1985,6 +2435,171 @@ public class SeleneCryptographyHelperTests extends BaseTestCase {
     final ArrayList<TrackerNumber> trackerNumbersList = new ArrayList<>(trackerNumbers);
 
     this.exception.expect(CryptographyException.class);
-    helper.shuffleTrackerNumbers(wrapper, teller, trackerNumbersList);
+    helper.shuffleTrackerNumbers(wrapper, null, teller, trackerNumbersList);
+  }
+
+  @Test
+  public void testShuffleVotes() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+    wrapper.setNumberOfTellers(4);
+    wrapper.setThresholdTellers(3);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    final List<Voter> voters = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      final Voter voter = new Voter(i);
+      voter.setTrackerNumber(new TrackerNumber(i, BigInteger.valueOf(i), new CipherText(BigInteger.valueOf(i), BigInteger.valueOf(i)).toByteArray()));
+
+      // Voters without a vote are not shuffled.
+      if ((i % 3) != 0) {
+        voter.setEncryptedVote(new CipherText(BigInteger.valueOf(100 + i), BigInteger.valueOf(100 + i)).toByteArray());
+      }
+
+      voters.add(voter);
+    }
+
+    final int teller = 1;
+    final ProofWrapper<List<CipherText>> shuffled = new ProofWrapper<>(new ArrayList<>(), null);
+    final ArgumentCaptor<List<CipherText>> captor = ArgumentCaptor.forClass(List.class);
+    Mockito.when(this.verificatumHelper.shuffle(Mockito.eq(wrapper), Mockito.eq(teller), Mockito.eq(SeleneCryptographyHelper.MIX_VOTES_WIDTH), captor.capture()))
+        .thenReturn(shuffled);
+
+    assertThat(helper.shuffleVotes(wrapper, null, teller, voters)).isSameAs(shuffled);
+
+    final List<CipherText> cipherTexts = captor.getValue();
+    assertThat(cipherTexts.size()).isEqualTo(6 * SeleneCryptographyHelper.MIX_VOTES_WIDTH);
+    assertThat(cipherTexts.get(0).getAlpha()).isEqualTo(BigInteger.valueOf(1));
+    assertThat(cipherTexts.get(1).getAlpha()).isEqualTo(BigInteger.valueOf(101));
+  }
+
+  @Test
+  public void testShuffleVotesNoTellers() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper wrapper = new DHParametersWrapper(object);
+
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    final List<Voter> voters = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      final Voter voter = new Voter(i);
+      voter.setTrackerNumber(new TrackerNumber(i, BigInteger.valueOf(i), new CipherText(BigInteger.valueOf(i), BigInteger.valueOf(i)).toByteArray()));
+      voter.setEncryptedVote(new CipherText(BigInteger.valueOf(100 + i), BigInteger.valueOf(100 + i)).toByteArray());
+      voters.add(voter);
+    }
+
+    final ProofWrapper<List<CipherText>> shuffled = helper.shuffleVotes(wrapper, new KeyPair(null, BigInteger.valueOf(456)), 0, voters);
+    assertThat(shuffled.getProofFile()).exists();
+    assertThat(shuffled.getObject().size()).isEqualTo(8);
+
+    // The mocked shuffle reverses the voters, keeping each tracker number and vote together.
+    assertThat(shuffled.getObject().get(0).getAlpha()).isEqualTo(BigInteger.valueOf(3));
+    assertThat(shuffled.getObject().get(1).getAlpha()).isEqualTo(BigInteger.valueOf(103));
+
+    shuffled.getProofFile().delete();
+
+    // Without tellers the public key is needed.
+    this.exception.expect(CryptographyException.class);
+    helper.shuffleVotes(wrapper, null, 0, voters);
+  }
+
+  @Test
+  public void testVerifyProofs() throws Exception {
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+    assertThat(helper).isNotNull();
+
+    final List<File> proofs = Arrays.asList(new File("shuffle.zip"), new File("mix.zip"), new File("decrypt.zip"));
+    final ProofStatement statement = new ProofStatement(null, BigInteger.ONE, new File("protInfo.xml"), null, null, null);
+
+    for (final File proof : proofs) {
+      Mockito.when(this.verificatumHelper.verify(proof, statement)).thenReturn(new ProofVerification(proof.getPath(), "mixing", "mix", 2,
+          !proof.getName().equals("mix.zip"), 10, null));
+    }
+
+    // The outcomes are in the same order as the proofs, whatever order they are verified in.
+    final List<ProofVerification> verifications = helper.verifyProofs(statement, proofs);
+    assertThat(verifications).hasSize(3);
+    assertThat(verifications.get(0).getProof()).isEqualTo("shuffle.zip");
+    assertThat(verifications.get(1).isVerified()).isFalse();
+    assertThat(verifications.get(2).getProof()).isEqualTo("decrypt.zip");
+    assertThat(verifications.get(2).isVerified()).isTrue();
+  }
+
+  @Test
+  public void testVerifyProofsFailed() throws Exception {
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+
+    Mockito.when(this.verificatumHelper.verify(Mockito.any(), Mockito.any())).thenThrow(new CryptographyException("unreadable"));
+
+    this.exception.expect(CryptographyException.class);
+    helper.verifyProofs(new ProofStatement(null, BigInteger.ONE, null, null, null, null), Collections.singletonList(new File("missing.zip")));
+  }
+
+  @Test
+  public void testVerifyProofsShuffle() throws Exception {
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+
+    final ShuffleProof proof = new ShuffleProof();
+    proof.setWidth(SeleneCryptographyHelper.MIX_VOTES_WIDTH);
+    final File proofFile = Files.createTempFile(null, null).toFile();
+
+    final Parameters parameters = Mockito.mock(Parameters.class);
+    final List<CipherText> votes = Arrays.asList(new CipherText(BigInteger.ONE, BigInteger.TEN), new CipherText(BigInteger.TEN, BigInteger.ONE));
+
+    try {
+      new ObjectMapper().writeValue(proofFile, proof);
+      Mockito.when(this.shuffleAlgorithmHelper.verify(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.isNotNull())).thenReturn(true);
+
+      // Shuffle proofs are verified locally rather than by Verificatum, against the election's own values.
+      final List<ProofVerification> verifications = helper.verifyProofs(new ProofStatement(parameters, BigInteger.ONE, null, null, null, votes),
+          Collections.singletonList(proofFile));
+      assertThat(verifications).hasSize(1);
+      assertThat(verifications.get(0).isVerified()).isTrue();
+      assertThat(verifications.get(0).getType()).isEqualTo(SeleneCryptographyHelper.SHUFFLE_PROOF_TYPE);
+      assertThat(verifications.get(0).getWidth()).isEqualTo(SeleneCryptographyHelper.MIX_VOTES_WIDTH);
+
+      Mockito.verify(this.shuffleAlgorithmHelper).verify(Mockito.same(parameters), Mockito.eq(BigInteger.ONE), Mockito.same(votes), Mockito.isNull(),
+          Mockito.isNotNull());
+      Mockito.verify(this.verificatumHelper, Mockito.never()).verify(Mockito.any(), Mockito.any());
+    }
+    finally {
+      proofFile.delete();
+    }
+  }
+
+  @Test
+  public void testVerifyProofsShuffleUnpublished() throws Exception {
+    final CryptographyHelper helper = new SeleneCryptographyHelper(this.messageSource, this.dsaAlgorithmHelper, this.elgamalAlgorithmHelper,
+        this.verificatumHelper, this.schnorrAlgorithmHelper, this.chaumPedersenAlgorithmHelper, this.shuffleAlgorithmHelper);
+
+    final ShuffleProof proof = new ShuffleProof();
+    proof.setWidth(SeleneCryptographyHelper.SHUFFLE_TRACKER_NUMBERS_WIDTH);
+    final File proofFile = Files.createTempFile(null, null).toFile();
+
+    final List<CipherText> trackerNumbers = Collections.singletonList(new CipherText(BigInteger.ONE, BigInteger.TEN));
+
+    try {
+      new ObjectMapper().writeValue(proofFile, proof);
+
+      // Without the published shuffled tracker numbers, a tracker number shuffle proof cannot be verified.
+      final List<ProofVerification> verifications = helper.verifyProofs(new ProofStatement(Mockito.mock(Parameters.class), BigInteger.ONE, null,
+          trackerNumbers, null, null), Collections.singletonList(proofFile));
+      assertThat(verifications).hasSize(1);
+      assertThat(verifications.get(0).isVerified()).isFalse();
+      assertThat(verifications.get(0).getError()).isNotNull();
+
+      Mockito.verify(this.shuffleAlgorithmHelper, Mockito.never()).verify(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any());
+    }
+    finally {
+      proofFile.delete();
+    }
   }
 }
@@ -0,0 +1,199 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.apache.commons.io.FileDeleteStrategy;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Simulated Verificatum helper tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class SimulatedVerificatumHelperTests extends BaseTestCase {
+
+  private static final int NUMBER_OF_TELLERS = 5;
+
+  private static final int THRESHOLD_TELLERS = 3;
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final SecureRandom random = new SecureRandom();
+
+  private ExecutorService executor;
+
+  private SimulatedVerificatumHelper helper;
+
+  private DHParametersWrapper parameters;
+
+  private <T> List<T> allTellers(final TellerTask<T> task) throws Exception {
+    final List<Callable<T>> tasks = new ArrayList<>();
+
+    for (int i = 1; i <= NUMBER_OF_TELLERS; i++) {
+      final int teller = i;
+      tasks.add(() -> task.run(teller));
+    }
+
+    final List<T> results = new ArrayList<>();
+
+    for (final Future<T> future : this.executor.invokeAll(tasks)) {
+      results.add(future.get());
+    }
+
+    return results;
+  }
+
+  private List<CipherText> encrypt(final BigInteger publicKey, final List<BigInteger> plainTexts) {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (final BigInteger plainText : plainTexts) {
+      final BigInteger k = new BigInteger(this.parameters.getQ().bitLength(), this.random).mod(this.parameters.getQ());
+      cipherTexts.add(new CipherText(this.parameters.getG().modPow(k, this.parameters.getP()),
+          plainText.multiply(publicKey.modPow(k, this.parameters.getP())).mod(this.parameters.getP())));
+    }
+
+    return cipherTexts;
+  }
+
+  private BigInteger setUpTellers() throws Exception {
+    this.allTellers(teller -> this.helper.createTeller(this.parameters, teller, "127.0.0.1", 8080 + teller, 4040 + teller));
+
+    // Share the teller information files as the merge teller command would.
+    for (int i = 1; i <= NUMBER_OF_TELLERS; i++) {
+      final File[] files = this.helper.getTellerInformationFiles(this.parameters, i);
+
+      for (int j = 1; j <= NUMBER_OF_TELLERS; j++) {
+        if (i != j) {
+          FileUtils.copyFile(this.helper.getTellerInformationFiles(this.parameters, j)[j - 1], files[j - 1]);
+        }
+      }
+    }
+
+    this.allTellers(teller -> {
+      this.helper.mergeTeller(this.parameters, teller);
+      return null;
+    });
+
+    final List<KeyPair> keyPairs = this.allTellers(teller -> this.helper.createElectionKeyPair(this.parameters, teller));
+    assertThat(keyPairs.stream().map(KeyPair::getPublicKey).distinct().count()).isEqualTo(1);
+    assertThat(keyPairs.get(0).getPrivateKey()).isNull();
+
+    return keyPairs.get(0).getPublicKey();
+  }
+
+  @Before
+  public void setUp() {
+    // Small safe prime group: p = 2q + 1 with g generating the subgroup of order q.
+    this.parameters = new DHParametersWrapper(BigInteger.valueOf(4), BigInteger.valueOf(2039), BigInteger.valueOf(1019), 0, 0, null);
+    this.parameters.setName("Simulated Election");
+    this.parameters.setNumberOfTellers(NUMBER_OF_TELLERS);
+    this.parameters.setThresholdTellers(THRESHOLD_TELLERS);
+
+    this.helper = new SimulatedVerificatumHelper(60000);
+    this.executor = Executors.newFixedThreadPool(NUMBER_OF_TELLERS);
+  }
+
+  @After
+  public void tearDown() {
+    this.executor.shutdownNow();
+
+    for (int i = 1; i <= NUMBER_OF_TELLERS; i++) {
+      FileDeleteStrategy.FORCE.deleteQuietly(VerificatumHelper.getTellerDirectory(this.parameters, i));
+    }
+  }
+
+  @Test
+  public void testMissingElection() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    this.helper.createElectionKeyPair(this.parameters, 1);
+  }
+
+  @Test
+  public void testMix() throws Exception {
+    final BigInteger publicKey = this.setUpTellers();
+
+    // Pairs of values, where each pair must stay together.
+    final List<BigInteger> plainTexts = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      plainTexts.add(BigInteger.valueOf(100 + i));
+      plainTexts.add(BigInteger.valueOf(200 + i));
+    }
+
+    final List<CipherText> cipherTexts = this.encrypt(publicKey, plainTexts);
+    final List<ProofWrapper<List<BigInteger>>> mixed = this.allTellers(teller -> this.helper.mix(this.parameters, teller, 2, cipherTexts));
+
+    for (final ProofWrapper<List<BigInteger>> result : mixed) {
+      assertThat(result.getObject()).isEqualTo(mixed.get(0).getObject());
+      assertThat(new File(result.getProofFile(), "type")).exists();
+    }
+
+    final List<BigInteger> output = mixed.get(0).getObject();
+    assertThat(output).containsExactlyInAnyOrderElementsOf(plainTexts);
+
+    for (int i = 0; i < output.size(); i += 2) {
+      assertThat(output.get(i + 1)).isEqualTo(output.get(i).add(BigInteger.valueOf(100)));
+    }
+  }
+
+  @Test
+  public void testShuffleAndDecrypt() throws Exception {
+    final BigInteger publicKey = this.setUpTellers();
+
+    final List<BigInteger> plainTexts = new ArrayList<>();
+    for (int i = 0; i < 30; i++) {
+      plainTexts.add(BigInteger.valueOf(10 + i));
+    }
+
+    final List<CipherText> cipherTexts = this.encrypt(publicKey, plainTexts);
+    final List<ProofWrapper<List<CipherText>>> shuffled = this.allTellers(teller -> this.helper.shuffle(this.parameters, teller, 1, cipherTexts));
+
+    // All tellers agree on the re-encrypted ciphertexts.
+    for (final ProofWrapper<List<CipherText>> result : shuffled) {
+      assertThat(result.getObject()).hasSize(cipherTexts.size());
+      assertThat(result.getObject().get(0).getAlpha()).isEqualTo(shuffled.get(0).getObject().get(0).getAlpha());
+    }
+
+    final List<CipherText> shuffledCipherTexts = shuffled.get(0).getObject();
+    final List<ProofWrapper<List<BigInteger>>> decrypted = this.allTellers(teller -> this.helper.decrypt(this.parameters, teller, 1, shuffledCipherTexts));
+
+    for (final ProofWrapper<List<BigInteger>> result : decrypted) {
+      assertThat(result.getObject()).containsExactlyInAnyOrderElementsOf(plainTexts);
+
+      // Each threshold teller's decryption share is written to the proof directory.
+      for (int i = 1; i <= NUMBER_OF_TELLERS; i++) {
+        final File shareFile = new File(result.getProofFile(), String.format("%s%02d%s", SimulatedVerificatumHelper.DECRYPTION_SHARE_PREFIX, i,
+            SimulatedVerificatumHelper.DECRYPTION_SHARE_SUFFIX));
+        assertThat(shareFile.exists()).isEqualTo(i <= THRESHOLD_TELLERS);
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface TellerTask<T> {
+
+    T run(int teller) throws Exception;
+  }
+}
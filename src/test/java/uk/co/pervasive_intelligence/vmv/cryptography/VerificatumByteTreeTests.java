@@ -0,0 +1,114 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verificatum byte tree tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VerificatumByteTreeTests extends BaseTestCase {
+
+  /** Modulus with its top bit set, so that Verificatum pads elements to 2 bytes. */
+  private static final BigInteger MODULUS = BigInteger.valueOf(227);
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File rawFile = new File("byte-tree.raw");
+
+  @After
+  public void tearDown() {
+    this.rawFile.delete();
+  }
+
+  @Test
+  public void testMalformed() throws Exception {
+    Files.write(this.rawFile.toPath(), new byte[] {1, 0, 0, 0, 0});
+
+    this.exception.expect(CryptographyException.class);
+    VerificatumByteTree.readCipherTexts(this.rawFile, 1);
+  }
+
+  @Test
+  public void testReadPlainTexts() throws Exception {
+    // Width 2: a node of two columns, each a node of two 1-byte leaves.
+    Files.write(this.rawFile.toPath(), new byte[] {
+        0, 0, 0, 0, 2,
+        0, 0, 0, 0, 2, 1, 0, 0, 0, 1, 10, 1, 0, 0, 0, 1, 30,
+        0, 0, 0, 0, 2, 1, 0, 0, 0, 1, 20, 1, 0, 0, 0, 1, 40});
+
+    assertThat(VerificatumByteTree.readPlainTexts(this.rawFile, 2)).containsExactly(BigInteger.valueOf(10), BigInteger.valueOf(20), BigInteger.valueOf(30),
+        BigInteger.valueOf(40));
+  }
+
+  @Test
+  public void testReadPublicKey() throws Exception {
+    // A node of the generator and the public key element.
+    Files.write(this.rawFile.toPath(), new byte[] {0, 0, 0, 0, 2, 1, 0, 0, 0, 1, 2, 1, 0, 0, 0, 2, 0, 99});
+
+    assertThat(VerificatumByteTree.readPublicKey(this.rawFile)).containsExactly(BigInteger.valueOf(2), BigInteger.valueOf(99));
+
+    Files.write(this.rawFile.toPath(), new byte[] {0, 0, 0, 0, 1, 1, 0, 0, 0, 1, 2});
+
+    this.exception.expect(CryptographyException.class);
+    VerificatumByteTree.readPublicKey(this.rawFile);
+  }
+
+  @Test
+  public void testWidthMismatch() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    VerificatumByteTree.writeCipherTexts(this.rawFile, MODULUS, 2, Arrays.asList(new CipherText(BigInteger.ONE, BigInteger.TEN)));
+  }
+
+  @Test
+  public void testWriteCipherTexts() throws Exception {
+    VerificatumByteTree.writeCipherTexts(this.rawFile, MODULUS, 1, Arrays.asList(new CipherText(BigInteger.valueOf(200), BigInteger.valueOf(3))));
+
+    // A pair of nodes, each holding a single fixed length leaf.
+    assertThat(Files.readAllBytes(this.rawFile.toPath())).containsExactly(
+        0, 0, 0, 0, 2,
+        0, 0, 0, 0, 1, 1, 0, 0, 0, 2, 0, (byte) 200,
+        0, 0, 0, 0, 1, 1, 0, 0, 0, 2, 0, 3);
+  }
+
+  @Test
+  public void testWriteReadCipherTexts() throws Exception {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (int i = 0; i < 6; i++) {
+      cipherTexts.add(new CipherText(BigInteger.valueOf(i + 1), BigInteger.valueOf(226 - i)));
+    }
+
+    for (final int width : new int[] {1, 2, 3}) {
+      VerificatumByteTree.writeCipherTexts(this.rawFile, MODULUS, width, cipherTexts);
+      final List<CipherText> read = VerificatumByteTree.readCipherTexts(this.rawFile, width);
+
+      assertThat(read).hasSize(cipherTexts.size());
+
+      for (int i = 0; i < cipherTexts.size(); i++) {
+        assertThat(read.get(i).getAlpha()).isEqualTo(cipherTexts.get(i).getAlpha());
+        assertThat(read.get(i).getBeta()).isEqualTo(cipherTexts.get(i).getBeta());
+      }
+    }
+  }
+}
@@ -6,6 +6,7 @@
 package uk.co.pervasive_intelligence.vmv.cryptography;
 
 import org.apache.commons.io.FileDeleteStrategy;
+import org.apache.commons.io.FileUtils;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
@@ -17,15 +18,19 @@ import uk.co.pervasive_intelligence.vmv.BaseTestCase;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyPair;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ProofStatement;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.ProofWrapper;
 import uk.co.pervasive_intelligence.vmv.cryptography.dsa.DSAAlgorithmHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.elgamal.ElGamalAlgorithmHelper;
 
 import java.io.File;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.SecureRandom;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.*;
 import java.util.stream.IntStream;
@@ -64,7 +69,8 @@ public class VerificatumHelperTests extends BaseTestCase {
     parameters.setNumberOfTellers(4);
     parameters.setThresholdTellers(3);
 
-    final VerificatumHelper helper = new VerificatumHelper();
+    final VerificatumHelper helper = new VerificatumHelper(new File(VerificatumHelper.DEFAULT_LIBRARY_DIRECTORY),
+        new File(VerificatumHelper.DEFAULT_NATIVE_LIBRARY_DIRECTORY), 0);
     assertThat(helper).isNotNull();
 
     final List<File> tellerInfoFiles = new ArrayList<>();
@@ -73,6 +79,7 @@ public class VerificatumHelperTests extends BaseTestCase {
     for (int i = 1; i <= parameters.getNumberOfTellers(); i++) {
       final File tellerInfoFile = helper.createTeller(parameters, i, "localhost", 8080 + i, 4040 + i);
       assertThat(tellerInfoFile).isNotNull();
+      assertThat(new String(Files.readAllBytes(tellerInfoFile.toPath()))).contains(helper.isNativeArithmetic() ? "native GMP arithmetic" : "pure Java arithmetic");
 
       tellerInfoFiles.add(tellerInfoFile);
     }
@@ -277,4 +284,50 @@ public class VerificatumHelperTests extends BaseTestCase {
       }
     }
   }
+
+  @Test
+  public void testVerifyStatement() throws Exception {
+    final Path directory = Files.createTempDirectory(null);
+
+    try {
+      // A shuffle proof directory for a public key of 99 and a single ciphertext.
+      final File proofDirectory = directory.resolve("proof").toFile();
+      proofDirectory.mkdirs();
+      Files.write(new File(proofDirectory, "type").toPath(), "shuffling".getBytes(StandardCharsets.UTF_8));
+      Files.write(new File(proofDirectory, "auxsid").toPath(), "shuffle".getBytes(StandardCharsets.UTF_8));
+      Files.write(new File(proofDirectory, "width").toPath(), "1".getBytes(StandardCharsets.UTF_8));
+      Files.write(new File(proofDirectory, "protInfo.xml").toPath(), "<protocol/>".getBytes(StandardCharsets.UTF_8));
+      Files.write(new File(proofDirectory, "FullPublicKey.bt").toPath(), new byte[] {0, 0, 0, 0, 2, 1, 0, 0, 0, 1, 2, 1, 0, 0, 0, 1, 99});
+
+      final List<CipherText> input = Collections.singletonList(new CipherText(BigInteger.valueOf(3), BigInteger.valueOf(4)));
+      final List<CipherText> output = Collections.singletonList(new CipherText(BigInteger.valueOf(5), BigInteger.valueOf(6)));
+      VerificatumByteTree.writeCipherTexts(new File(proofDirectory, "Ciphertexts.bt"), BigInteger.valueOf(227), 1, input);
+      VerificatumByteTree.writeCipherTexts(new File(proofDirectory, "ShuffledCiphertexts.bt"), BigInteger.valueOf(227), 1, output);
+
+      final File protocolInformation = directory.resolve("protInfo.xml").toFile();
+      Files.write(protocolInformation.toPath(), "<protocol/>".getBytes(StandardCharsets.UTF_8));
+      final File otherProtocolInformation = directory.resolve("otherProtInfo.xml").toFile();
+      Files.write(otherProtocolInformation.toPath(), "<other/>".getBytes(StandardCharsets.UTF_8));
+
+      final VerificatumHelper helper = new VerificatumHelper(null);
+
+      // The proof is rejected before it is verified if it was not created for the election's own values.
+      assertThat(helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(99), otherProtocolInformation, input, output, null)).getError())
+          .contains("Protocol information");
+      assertThat(helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(98), protocolInformation, input, output, null)).getError())
+          .contains("Public key");
+      assertThat(helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(99), protocolInformation, output, output, null)).getError())
+          .contains("Input ciphertexts");
+      assertThat(helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(99), protocolInformation, input, input, null)).getError())
+          .contains("Shuffled ciphertexts");
+      assertThat(helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(99), protocolInformation, null, null, null)).getError())
+          .contains("required");
+
+      this.exception.expect(CryptographyException.class);
+      helper.verify(proofDirectory, new ProofStatement(null, BigInteger.valueOf(99), null, input, output, null));
+    }
+    finally {
+      FileUtils.deleteQuietly(directory.toFile());
+    }
+  }
 }
@@ -0,0 +1,138 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verificatum in-process runner tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VerificatumInProcessRunnerTests extends BaseTestCase {
+
+  @Test
+  public void testCanRun() {
+    final VerificatumInProcessRunner runner = new VerificatumInProcessRunner(this.getClass().getClassLoader());
+
+    assertThat(runner.canRun("vog")).isTrue();
+    assertThat(runner.canRun("vmn")).isTrue();
+    assertThat(runner.canRun("vmnc")).isTrue();
+    assertThat(runner.canRun("vmni")).isTrue();
+    assertThat(runner.canRun("ls")).isFalse();
+  }
+
+  @Test
+  public void testCreate() {
+    assertThat(VerificatumInProcessRunner.create(null)).isNull();
+    assertThat(VerificatumInProcessRunner.create(new File("missing"))).isNull();
+    assertThat(VerificatumInProcessRunner.create(new File("src"))).isNull();
+  }
+
+  @Test
+  public void testExitTrapSupported() {
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported(null, "1.8")).isTrue();
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported(null, "11")).isTrue();
+
+    // Later versions warn about or refuse a security manager unless it is explicitly allowed.
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported(null, "17")).isFalse();
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported(null, "21")).isFalse();
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported("allow", "21")).isTrue();
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported("disallow", "1.8")).isFalse();
+    assertThat(VerificatumInProcessRunner.isExitTrapSupported(null, "unknown")).isFalse();
+  }
+
+  @Test
+  public void testNativeArithmetic() throws Exception {
+    // Verificatum is not on this class loader, so native arithmetic cannot be used.
+    assertThat(VerificatumInProcessRunner.isNativeArithmetic(new URLClassLoader(new URL[0], null))).isFalse();
+    assertThat(new VerificatumInProcessRunner(this.getClass().getClassLoader()).isNativeArithmetic()).isFalse();
+    assertThat(new VerificatumInProcessRunner(this.getClass().getClassLoader(), true).isNativeArithmetic()).isTrue();
+
+    final Path directory = Files.createTempDirectory(null);
+
+    try {
+      assertThat(VerificatumInProcessRunner.hasNativeLibrary(null)).isFalse();
+      assertThat(VerificatumInProcessRunner.hasNativeLibrary(directory.toFile())).isFalse();
+
+      final Path library = Files.createFile(directory.resolve(System.mapLibraryName("vmgj-1.2.0")));
+      assertThat(VerificatumInProcessRunner.hasNativeLibrary(directory.toFile())).isTrue();
+
+      // Native libraries are found in the directory in preference to the default library path.
+      try (final TestNativeLibraryClassLoader classLoader = new TestNativeLibraryClassLoader(directory.toFile())) {
+        assertThat(classLoader.findLibrary("vmgj-1.2.0")).isEqualTo(library.toFile().getAbsolutePath());
+        assertThat(classLoader.findLibrary("vecj-2.1.3")).isNull();
+      }
+
+      Files.delete(library);
+    }
+    finally {
+      Files.delete(directory);
+    }
+  }
+
+  @Test
+  public void testRunActivity() throws Exception {
+    final VerificatumInProcessRunner runner = new VerificatumInProcessRunner(new URLClassLoader(new URL[0], null));
+
+    // While an activity is running, commands are not run in-process at all, so Verificatum is not even loaded.
+    try (final VerificatumInProcessRunner.Activity activity = VerificatumInProcessRunner.beginActivity()) {
+      assertThat(runner.run(new String[] {"vmn"})).isNull();
+      assertThat(runner.canRun("vmn")).isTrue();
+
+      activity.close();
+    }
+
+    // Once the activity has ended, the command is attempted in-process.
+    assertThat(runner.run(new String[] {"vmn"})).isNull();
+    assertThat(runner.canRun("vmn")).isFalse();
+  }
+
+  @Test
+  public void testRunUnavailable() throws Exception {
+    // Verificatum is not on this class loader, so the runner must defer to processes from then on.
+    final VerificatumInProcessRunner runner = new VerificatumInProcessRunner(new URLClassLoader(new URL[0], null));
+
+    assertThat(runner.run(new String[] {"ls"})).isNull();
+    assertThat(runner.canRun("vmn")).isTrue();
+
+    assertThat(runner.run(new String[] {"vmn", "-version"})).isNull();
+    assertThat(runner.canRun("vmn")).isFalse();
+  }
+
+  @Test
+  public void testTool() {
+    assertThat(VerificatumInProcessRunner.Tool.forCommand("vmn")).isEqualTo(VerificatumInProcessRunner.Tool.VMN);
+    assertThat(VerificatumInProcessRunner.Tool.forCommand("unknown")).isNull();
+    assertThat(VerificatumInProcessRunner.Tool.VMN.arguments()).containsExactly(VerificatumInProcessRunner.Tool.VMN.arguments().get(0), "vmn");
+    assertThat(VerificatumInProcessRunner.Tool.VMNC.arguments()).hasSize(4).startsWith("vmnc");
+    assertThat(VerificatumInProcessRunner.Tool.VMNI.arguments()).hasSize(4).endsWith("com.verificatum.protocol.mixnet.MixNetElGamal");
+  }
+
+  /**
+   * Exposes the native library search for testing.
+   */
+  private static class TestNativeLibraryClassLoader extends VerificatumInProcessRunner.NativeLibraryClassLoader {
+
+    private TestNativeLibraryClassLoader(final File nativeLibraryDirectory) {
+      super(new URL[0], nativeLibraryDirectory);
+    }
+
+    @Override
+    public String findLibrary(final String libname) {
+      return super.findLibrary(libname);
+    }
+  }
+}
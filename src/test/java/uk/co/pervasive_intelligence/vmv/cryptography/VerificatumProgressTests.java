@@ -0,0 +1,81 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.Mockito.*;
+
+/**
+ * Verificatum progress tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VerificatumProgressTests extends BaseTestCase {
+
+  @Test
+  public void testDecrypt() {
+    final CryptographyHelper.ProgressListener listener = mock(CryptographyHelper.ProgressListener.class);
+    final VerificatumProgress progress = VerificatumProgress.forDecrypt(Collections.singleton(listener));
+
+    // Shuffle milestones are not expected when decrypting.
+    progress.onLine("Compute output list.");
+    assertThat(progress.getProgress()).isEqualTo(0f);
+    verifyZeroInteractions(listener);
+
+    progress.onLine("Compute decryption factors.");
+    progress.onLine("Collect decryption factors.");
+    progress.onLine("Compute plaintexts.");
+
+    // Never 100% until the command has completed.
+    assertThat(progress.getProgress()).isEqualTo(99f);
+    verify(listener, times(3)).onProgress(anyFloat());
+  }
+
+  @Test
+  public void testMix() {
+    final CryptographyHelper.ProgressListener listener = mock(CryptographyHelper.ProgressListener.class);
+    final VerificatumProgress progress = VerificatumProgress.forMix(3, Collections.singleton(listener));
+
+    progress.onLine("00:00:01 Compute output list.");
+    progress.onLine("00:00:02 Read output list from party 2.");
+    progress.onLine("00:00:02 Some other log line.");
+    assertThat(progress.getProgress()).isEqualTo(100f * 2 / 6);
+    verify(listener).onProgress(100f / 6);
+    verify(listener).onProgress(100f * 2 / 6);
+
+    progress.onLine("00:00:03 Read output list from party 3.");
+    progress.onLine("00:00:04 Compute decryption factors.");
+    assertThat(progress.getProgress()).isEqualTo(100f * 4 / 6);
+  }
+
+  @Test
+  public void testPrecompute() {
+    final VerificatumProgress progress = VerificatumProgress.forPrecompute(Collections.emptyList());
+
+    progress.onLine("Pre-compute permutation commitment.");
+    assertThat(progress.getProgress()).isEqualTo(50f);
+
+    progress.onLine("Perform pre-computation for 10 ciphertexts.");
+    assertThat(progress.getProgress()).isEqualTo(99f);
+  }
+
+  @Test
+  public void testShuffle() {
+    final VerificatumProgress progress = VerificatumProgress.forShuffle(2, Collections.emptyList());
+
+    progress.onLine("Compute decryption factors.");
+    assertThat(progress.getProgress()).isEqualTo(0f);
+
+    progress.onLine("Compute output list.");
+    assertThat(progress.getProgress()).isEqualTo(50f);
+  }
+}
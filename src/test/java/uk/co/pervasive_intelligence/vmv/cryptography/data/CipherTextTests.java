@@ -9,8 +9,10 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
 
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -41,5 +43,20 @@ public class CipherTextTests extends BaseTestCase {
     assertThat(read).isNotNull();
     assertThat(read.getAlpha()).isEqualTo(alpha);
     assertThat(read.getBeta()).isEqualTo(beta);
+
+    assertThat(CipherText.encodedLength(alpha, beta)).isEqualTo(bytes.length);
+
+    final ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+    cipherText.writeTo(buffer);
+    assertThat(buffer.array()).isEqualTo(bytes);
+  }
+
+  @Test
+  public void testCipherTextMissingBeta() throws Exception {
+    final ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES + 1);
+    buffer.putInt(1).put((byte) 1);
+
+    this.exception.expect(CryptographyException.class);
+    new CipherText(buffer.array());
   }
 }
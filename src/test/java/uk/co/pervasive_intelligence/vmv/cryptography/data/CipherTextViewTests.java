@@ -0,0 +1,71 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Ciphertext view tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class CipherTextViewTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void testCipherTextView() throws Exception {
+    final CipherText first = new CipherText(BigInteger.ONE, BigInteger.TEN);
+    final CipherText second = new CipherText(BigInteger.valueOf(255), BigInteger.valueOf(Long.MAX_VALUE));
+
+    // Encode two consecutive ciphertexts into a single direct buffer.
+    final ByteBuffer buffer = ByteBuffer.allocateDirect(CipherText.encodedLength(first.getAlpha(), first.getBeta()) +
+        CipherText.encodedLength(second.getAlpha(), second.getBeta()));
+    first.writeTo(buffer);
+    CipherText.encode(second.getAlpha(), second.getBeta(), buffer);
+    assertThat(buffer.remaining()).isEqualTo(0);
+
+    // Walk the buffer using a single view.
+    final CipherTextView view = new CipherTextView();
+    assertThat(view.wrap(buffer, 0)).isSameAs(view);
+    assertThat(view.getAlpha()).isEqualTo(first.getAlpha());
+    assertThat(view.getBeta()).isEqualTo(first.getBeta());
+
+    view.wrap(buffer, view.getLength());
+    assertThat(view.getAlpha()).isEqualTo(second.getAlpha());
+    assertThat(view.getBeta()).isEqualTo(second.getBeta());
+
+    final CipherText read = view.toCipherText();
+    assertThat(read.getAlpha()).isEqualTo(second.getAlpha());
+    assertThat(read.getBeta()).isEqualTo(second.getBeta());
+
+    // Wrap a byte array.
+    view.wrap(first.toByteArray());
+    assertThat(view.getAlpha()).isEqualTo(first.getAlpha());
+    assertThat(view.getBeta()).isEqualTo(first.getBeta());
+    assertThat(view.getLength()).isEqualTo(first.toByteArray().length);
+  }
+
+  @Test
+  public void testCipherTextViewTruncated() throws Exception {
+    final byte[] bytes = new CipherText(BigInteger.ONE, BigInteger.TEN).toByteArray();
+    final byte[] truncated = new byte[bytes.length - 1];
+    System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+
+    this.exception.expect(CryptographyException.class);
+    new CipherTextView().wrap(truncated);
+  }
+}
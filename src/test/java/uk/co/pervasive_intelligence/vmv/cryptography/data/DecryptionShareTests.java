@@ -0,0 +1,59 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Decryption share tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class DecryptionShareTests extends BaseTestCase {
+
+  private DecryptionShare createShare() {
+    final DecryptionShare share = new DecryptionShare();
+    share.setTeller(2);
+    share.setPublicKeyShare(BigInteger.valueOf(9));
+    share.setBatchSize(1024);
+    share.setFactors(Arrays.asList(BigInteger.ONE, BigInteger.TEN));
+    share.setProofs(Collections.singletonList(new Proof(BigInteger.valueOf(3), BigInteger.valueOf(4))));
+
+    return share;
+  }
+
+  @Test
+  public void testDecryptionShare() {
+    final DecryptionShare share = this.createShare();
+    assertThat(share.getTeller()).isEqualTo(2);
+    assertThat(share.getPublicKeyShare()).isEqualTo(BigInteger.valueOf(9));
+    assertThat(share.getBatchSize()).isEqualTo(1024);
+    assertThat(share.getFactors()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(share.getProofs()).hasSize(1);
+    assertThat(share.getProofs().get(0).getHash()).isEqualTo(BigInteger.valueOf(3));
+  }
+
+  @Test
+  public void testDecryptionShareSerialise() throws Exception {
+    final ObjectMapper mapper = new ObjectMapper();
+    final DecryptionShare read = mapper.readValue(mapper.writeValueAsString(this.createShare()), DecryptionShare.class);
+
+    assertThat(read.getTeller()).isEqualTo(2);
+    assertThat(read.getPublicKeyShare()).isEqualTo(BigInteger.valueOf(9));
+    assertThat(read.getBatchSize()).isEqualTo(1024);
+    assertThat(read.getFactors()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(read.getProofs().get(0).getHash()).isEqualTo(BigInteger.valueOf(3));
+    assertThat(read.getProofs().get(0).getSignature()).isEqualTo(BigInteger.valueOf(4));
+  }
+}
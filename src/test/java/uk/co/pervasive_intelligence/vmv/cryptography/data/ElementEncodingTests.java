@@ -0,0 +1,70 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Element encoding tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ElementEncodingTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void testElementEncoding() {
+    final SecureRandom random = new SecureRandom();
+    final BigInteger[] values = {BigInteger.ZERO, BigInteger.ONE, BigInteger.valueOf(255), BigInteger.valueOf(-256), new BigInteger(3072, random)};
+
+    for (final ElementEncoding encoding : ElementEncoding.values()) {
+      for (final BigInteger value : values) {
+        assertThat(encoding.decode(encoding.encode(value))).isEqualTo(value);
+      }
+    }
+
+    assertThat(ElementEncoding.DECIMAL.encode(BigInteger.valueOf(255))).isEqualTo("255");
+    assertThat(ElementEncoding.HEX.encode(BigInteger.valueOf(255))).isEqualTo("00ff");
+    assertThat(ElementEncoding.BASE64.encode(BigInteger.valueOf(255))).isEqualTo("AP8=");
+    assertThat(ElementEncoding.HEX.decode("00FF")).isEqualTo(BigInteger.valueOf(255));
+  }
+
+  @Test
+  public void testElementEncodingHeader() {
+    assertThat(ElementEncoding.DECIMAL.toHeader()).isNull();
+    assertThat(ElementEncoding.fromHeader(null)).isEqualTo(ElementEncoding.DECIMAL);
+    assertThat(ElementEncoding.fromHeader("\"name\",\"value\"")).isEqualTo(ElementEncoding.DECIMAL);
+
+    for (final ElementEncoding encoding : ElementEncoding.values()) {
+      if (encoding != ElementEncoding.DECIMAL) {
+        assertThat(encoding.toHeader()).startsWith(ElementEncoding.HEADER);
+        assertThat(ElementEncoding.fromHeader(encoding.toHeader())).isEqualTo(encoding);
+      }
+    }
+  }
+
+  @Test
+  public void testElementEncodingInvalidHex() {
+    this.exception.expect(NumberFormatException.class);
+    ElementEncoding.HEX.decode("0g");
+  }
+
+  @Test
+  public void testElementEncodingOddHex() {
+    this.exception.expect(NumberFormatException.class);
+    ElementEncoding.HEX.decode("fff");
+  }
+}
@@ -0,0 +1,41 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.math.BigInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Key share tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class KeyShareTests extends BaseTestCase {
+
+  @Test
+  public void testKeyShare() {
+    KeyShare keyShare = new KeyShare();
+    assertThat(keyShare.getTeller()).isEqualTo(0);
+    assertThat(keyShare.getPrivateKeyShare()).isNull();
+    assertThat(keyShare.getPublicKeyShare()).isNull();
+
+    keyShare.setTeller(2);
+    keyShare.setPrivateKeyShare(BigInteger.ONE);
+    keyShare.setPublicKeyShare(BigInteger.TEN);
+    assertThat(keyShare.getTeller()).isEqualTo(2);
+    assertThat(keyShare.getPrivateKeyShare()).isEqualTo(BigInteger.ONE);
+    assertThat(keyShare.getPublicKeyShare()).isEqualTo(BigInteger.TEN);
+
+    keyShare = new KeyShare(3, BigInteger.TEN, BigInteger.ONE);
+    assertThat(keyShare.getTeller()).isEqualTo(3);
+    assertThat(keyShare.getPrivateKeyShare()).isEqualTo(BigInteger.TEN);
+    assertThat(keyShare.getPublicKeyShare()).isEqualTo(BigInteger.ONE);
+  }
+}
@@ -41,6 +41,10 @@ public class ParametersWrapperTests extends BaseTestCase {
 
     wrapper.setThresholdTellers(thresholdTellers);
     assertThat(wrapper.getThresholdTellers()).isEqualTo(thresholdTellers);
+
+    assertThat(wrapper.getElementEncoding()).isEqualTo(ElementEncoding.DECIMAL);
+    wrapper.setElementEncoding(ElementEncoding.HEX);
+    assertThat(wrapper.getElementEncoding()).isEqualTo(ElementEncoding.HEX);
   }
 
   /**
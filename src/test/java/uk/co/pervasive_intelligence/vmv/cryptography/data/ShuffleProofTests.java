@@ -0,0 +1,95 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Shuffle proof tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ShuffleProofTests extends BaseTestCase {
+
+  private ShuffleProof createProof() {
+    final ShuffleProof proof = new ShuffleProof();
+    final List<BigInteger> values = Arrays.asList(BigInteger.ONE, BigInteger.TEN);
+
+    proof.setP(BigInteger.valueOf(23));
+    proof.setQ(BigInteger.valueOf(11));
+    proof.setG(BigInteger.valueOf(4));
+    proof.setPublicKey(BigInteger.valueOf(9));
+    proof.setWidth(1);
+    proof.setInput(Arrays.asList(new CipherText(BigInteger.ONE, BigInteger.TEN), new CipherText(BigInteger.TEN, BigInteger.ONE)));
+    proof.setOutput(Arrays.asList(new CipherText(BigInteger.TEN, BigInteger.ONE), new CipherText(BigInteger.ONE, BigInteger.TEN)));
+    proof.setPermutationCommitments(values);
+    proof.setChainCommitments(values);
+    proof.setHatCommitments(values);
+    proof.setHatResponses(values);
+    proof.setPrimeResponses(values);
+    proof.setT1(BigInteger.valueOf(1));
+    proof.setT2(BigInteger.valueOf(2));
+    proof.setT3(BigInteger.valueOf(3));
+    proof.setT4Alpha(Collections.singletonList(BigInteger.valueOf(4)));
+    proof.setT4Beta(Collections.singletonList(BigInteger.valueOf(5)));
+    proof.setS1(BigInteger.valueOf(6));
+    proof.setS2(BigInteger.valueOf(7));
+    proof.setS3(BigInteger.valueOf(8));
+    proof.setS4(Collections.singletonList(BigInteger.valueOf(9)));
+
+    return proof;
+  }
+
+  @Test
+  public void testShuffleProof() {
+    final ShuffleProof proof = this.createProof();
+    assertThat(proof.getP()).isEqualTo(BigInteger.valueOf(23));
+    assertThat(proof.getQ()).isEqualTo(BigInteger.valueOf(11));
+    assertThat(proof.getG()).isEqualTo(BigInteger.valueOf(4));
+    assertThat(proof.getPublicKey()).isEqualTo(BigInteger.valueOf(9));
+    assertThat(proof.getWidth()).isEqualTo(1);
+    assertThat(proof.getInput()).hasSize(2);
+    assertThat(proof.getOutput()).hasSize(2);
+    assertThat(proof.getPermutationCommitments()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(proof.getChainCommitments()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(proof.getHatCommitments()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(proof.getHatResponses()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(proof.getPrimeResponses()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+    assertThat(proof.getT1()).isEqualTo(BigInteger.valueOf(1));
+    assertThat(proof.getT2()).isEqualTo(BigInteger.valueOf(2));
+    assertThat(proof.getT3()).isEqualTo(BigInteger.valueOf(3));
+    assertThat(proof.getT4Alpha()).containsExactly(BigInteger.valueOf(4));
+    assertThat(proof.getT4Beta()).containsExactly(BigInteger.valueOf(5));
+    assertThat(proof.getS1()).isEqualTo(BigInteger.valueOf(6));
+    assertThat(proof.getS2()).isEqualTo(BigInteger.valueOf(7));
+    assertThat(proof.getS3()).isEqualTo(BigInteger.valueOf(8));
+    assertThat(proof.getS4()).containsExactly(BigInteger.valueOf(9));
+  }
+
+  @Test
+  public void testShuffleProofSerialise() throws Exception {
+    final ObjectMapper mapper = new ObjectMapper();
+    final ShuffleProof read = mapper.readValue(mapper.writeValueAsString(this.createProof()), ShuffleProof.class);
+
+    assertThat(read.getP()).isEqualTo(BigInteger.valueOf(23));
+    assertThat(read.getWidth()).isEqualTo(1);
+    assertThat(read.getInput().get(0).getAlpha()).isEqualTo(BigInteger.ONE);
+    assertThat(read.getInput().get(0).getBeta()).isEqualTo(BigInteger.TEN);
+    assertThat(read.getOutput().get(1).getBeta()).isEqualTo(BigInteger.TEN);
+    assertThat(read.getT4Alpha()).containsExactly(BigInteger.valueOf(4));
+    assertThat(read.getS4()).containsExactly(BigInteger.valueOf(9));
+    assertThat(read.getHatResponses()).containsExactly(BigInteger.ONE, BigInteger.TEN);
+  }
+}
@@ -0,0 +1,195 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.data;
+
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Voter store tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class VoterStoreTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private Voter createVoter(final int i) throws Exception {
+    final Voter voter = new Voter(i);
+    voter.setBeta(BigInteger.valueOf(i).shiftLeft(1000));
+    voter.setEncryptedVote(new CipherText(BigInteger.valueOf(i), BigInteger.TEN).toByteArray());
+    voter.setEncryptedVoteSignature(new byte[] {(byte) i, 1, 2});
+    voter.setPlainTextVote((i % 2) == 0 ? "Yes" : "No");
+    voter.setTrackerNumber(new TrackerNumber(i, BigInteger.valueOf(i + 1), new byte[] {(byte) i}));
+    voter.setVoterKeyPairs(new VoterKeyPairs(new KeyPair(BigInteger.ONE, BigInteger.valueOf(i)), new KeyPair(null, BigInteger.valueOf(i + 2))));
+
+    return voter;
+  }
+
+  @Test
+  public void testVoterStore() throws Exception {
+    final VoterStore store = new VoterStore(128);
+    assertThat(store.getElementWidth()).isEqualTo(128);
+    assertThat(store.size()).isEqualTo(0);
+
+    // Cross at least one chunk boundary.
+    final int voters = 5000;
+
+    for (int i = 0; i < voters; i++) {
+      store.add(this.createVoter(i));
+    }
+
+    store.add(new Voter());
+    store.add(null);
+    assertThat(store.size()).isEqualTo(voters + 2);
+
+    for (int i = 0; i < voters; i++) {
+      final Voter expected = this.createVoter(i);
+      final Voter voter = store.get(i);
+
+      assertThat(voter.getId()).isEqualTo(expected.getId());
+      assertThat(voter.getAlpha()).isNull();
+      assertThat(voter.getBeta()).isEqualTo(expected.getBeta());
+      assertThat(voter.getEncryptedVote()).isEqualTo(expected.getEncryptedVote());
+      assertThat(voter.getEncryptedVoteSignature()).isEqualTo(expected.getEncryptedVoteSignature());
+      assertThat(voter.getPlainTextVote()).isEqualTo(expected.getPlainTextVote());
+      assertThat(voter.getTrackerNumber()).isEqualTo(expected.getTrackerNumber());
+      assertThat(voter.getTrackerNumber().getTrackerNumberInGroup()).isEqualTo(expected.getTrackerNumber().getTrackerNumberInGroup());
+      assertThat(voter.getTrackerNumber().getEncryptedTrackerNumberInGroup()).isEqualTo(expected.getTrackerNumber().getEncryptedTrackerNumberInGroup());
+      assertThat(voter.getVoterKeyPairs().getTrapdoorKeyPair().getPrivateKey()).isEqualTo(BigInteger.ONE);
+      assertThat(voter.getVoterKeyPairs().getTrapdoorKeyPair().getPublicKey()).isEqualTo(BigInteger.valueOf(i));
+      assertThat(voter.getVoterKeyPairs().getSignatureKeyPair().getPrivateKey()).isNull();
+      assertThat(voter.getVoterKeyPairs().getSignatureKeyPair().getPublicKey()).isEqualTo(BigInteger.valueOf(i + 2));
+    }
+
+    for (int i = voters; i < store.size(); i++) {
+      final Voter voter = store.get(i);
+      assertThat(voter.getId()).isNull();
+      assertThat(voter.getBeta()).isNull();
+      assertThat(voter.getEncryptedVote()).isNull();
+      assertThat(voter.getPlainTextVote()).isNull();
+      assertThat(voter.getTrackerNumber()).isNull();
+      assertThat(voter.getVoterKeyPairs()).isNull();
+    }
+  }
+
+  @Test
+  public void testVoterStoreElementNegative() {
+    final VoterStore store = new VoterStore(1);
+    final Voter voter = new Voter();
+    voter.setBeta(BigInteger.valueOf(-1));
+
+    this.exception.expect(IllegalArgumentException.class);
+    store.add(voter);
+  }
+
+  @Test
+  public void testVoterStoreElementWiden() {
+    final VoterStore store = new VoterStore(1);
+
+    for (int i = 0; i < 300; i++) {
+      final Voter voter = new Voter();
+      voter.setBeta(BigInteger.valueOf(i).shiftLeft(i));
+      store.add(voter);
+    }
+
+    for (int i = 0; i < 300; i++) {
+      assertThat(store.get(i).getBeta()).isEqualTo(BigInteger.valueOf(i).shiftLeft(i));
+    }
+  }
+
+  @Test
+  public void testVoterStoreForParameters() {
+    final DHParametersWrapper parameters = new DHParametersWrapper(new DHParameters(BigInteger.ONE.shiftLeft(1023).add(BigInteger.ONE), BigInteger.TEN));
+    assertThat(VoterStore.forParameters(parameters).getElementWidth()).isEqualTo(128);
+  }
+
+  @Test
+  public void testVoterStoreInsert() {
+    final VoterStore store = new VoterStore(128);
+
+    this.exception.expect(UnsupportedOperationException.class);
+    store.add(1, new Voter());
+  }
+
+  @Test
+  public void testVoterStoreSerialisation() throws Exception {
+    final BaseShellComponent shellComponent = new BaseShellComponent() {
+    };
+
+    final List<Voter> voters = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      voters.add(this.createVoter(i));
+    }
+
+    final File file = Files.createTempFile(null, null).toFile();
+
+    try {
+      shellComponent.writeCSV(file, Voter.class, voters, JacksonViews.Vote.class);
+
+      final List<Voter> store = shellComponent.readCSV(file, Voter.class, JacksonViews.Vote.class, new VoterStore(128));
+      assertThat(store).isInstanceOf(VoterStore.class);
+      assertThat(store.size()).isEqualTo(voters.size());
+
+      // Write the store back out and compare with the original.
+      final File copy = Files.createTempFile(null, null).toFile();
+
+      try {
+        shellComponent.writeCSV(copy, Voter.class, store, JacksonViews.Vote.class);
+        assertThat(Files.readAllLines(copy.toPath())).isEqualTo(Files.readAllLines(file.toPath()));
+      }
+      finally {
+        copy.delete();
+      }
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testVoterStoreWriteThrough() throws Exception {
+    final VoterStore store = new VoterStore(128);
+    store.add(this.createVoter(1));
+
+    final Voter voter = store.get(0);
+    voter.setId(42L);
+    voter.setAlpha(BigInteger.TEN);
+    voter.setEncryptedVote(null);
+    voter.setPlainTextVote("Maybe");
+    voter.setTrackerNumber(null);
+    voter.setVoterKeyPairs(new VoterKeyPairs(null, new KeyPair(BigInteger.ONE, BigInteger.TEN)));
+
+    final Voter read = store.get(0);
+    assertThat(read.getId()).isEqualTo(42L);
+    assertThat(read.getAlpha()).isEqualTo(BigInteger.TEN);
+    assertThat(read.getEncryptedVote()).isNull();
+    assertThat(read.getPlainTextVote()).isEqualTo("Maybe");
+    assertThat(read.getTrackerNumber()).isNull();
+    assertThat(read.getVoterKeyPairs().getTrapdoorKeyPair()).isNull();
+    assertThat(read.getVoterKeyPairs().getSignatureKeyPair().getPublicKey()).isEqualTo(BigInteger.TEN);
+
+    // Replace and check that the previous voter is detached.
+    final Voter previous = store.set(0, this.createVoter(2));
+    assertThat(previous.getId()).isEqualTo(42L);
+    assertThat(store.get(0).getId()).isEqualTo(2L);
+    assertThat(store.toVoter(0).getClass()).isEqualTo(Voter.class);
+  }
+}
@@ -81,6 +81,9 @@ public class ElGamalAlgorithmHelperTests extends BaseTestCase {
     assertThat(decrypted).isNotNull();
     assertThat(decrypted).isEqualTo(data);
 
+    final byte[] decryptedCipherText = helper.decrypt(parameters, keyPair, new CipherText(encrypted[0]));
+    assertThat(decryptedCipherText).isEqualTo(data);
+
     final byte[][] encryptedAgain = helper.encrypt(new SecureRandom(), parameters, keyPair, data);
     assertThat(encryptedAgain).isNotNull();
     assertThat(encryptedAgain[0]).isNotEqualTo(encrypted[0]);
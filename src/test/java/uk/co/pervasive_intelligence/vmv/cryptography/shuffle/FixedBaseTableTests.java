@@ -0,0 +1,74 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.shuffle;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Fixed-base exponentiation table tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class FixedBaseTableTests extends BaseTestCase {
+
+  private static final BigInteger MODULUS = BigInteger.probablePrime(512, new SecureRandom());
+
+  private final SecureRandom random = new SecureRandom();
+
+  private void assertPowers(final FixedBaseTable table, final BigInteger base, final int exponentBitLength) {
+    for (int i = 0; i < 100; i++) {
+      final BigInteger exponent = new BigInteger(exponentBitLength, this.random);
+      assertThat(table.pow(exponent)).isEqualTo(base.modPow(exponent, MODULUS));
+    }
+
+    assertThat(table.pow(BigInteger.ZERO)).isEqualTo(BigInteger.ONE);
+    assertThat(table.pow(BigInteger.ONE)).isEqualTo(base);
+  }
+
+  @Test
+  public void testDirect() {
+    final BigInteger base = new BigInteger(500, this.random);
+    final FixedBaseTable table = new FixedBaseTable(base, MODULUS, 160, FixedBaseTable.MINIMUM_USES - 1);
+    assertThat(table.isTabulated()).isFalse();
+
+    this.assertPowers(table, base, 160);
+  }
+
+  @Test
+  public void testNarrowWindow() {
+    final BigInteger base = new BigInteger(500, this.random);
+    final FixedBaseTable table = new FixedBaseTable(base, MODULUS, 161, FixedBaseTable.MINIMUM_USES);
+    assertThat(table.isTabulated()).isTrue();
+
+    this.assertPowers(table, base, 161);
+  }
+
+  @Test
+  public void testOutsideTable() {
+    final BigInteger base = new BigInteger(500, this.random);
+    final FixedBaseTable table = new FixedBaseTable(base, MODULUS, 160, FixedBaseTable.LARGE_USES);
+
+    // Exponents which are too long or negative are calculated directly.
+    final BigInteger exponent = new BigInteger(200, this.random).setBit(199);
+    assertThat(table.pow(exponent)).isEqualTo(base.modPow(exponent, MODULUS));
+    assertThat(table.pow(BigInteger.valueOf(-3))).isEqualTo(base.modPow(BigInteger.valueOf(-3), MODULUS));
+  }
+
+  @Test
+  public void testWideWindow() {
+    final BigInteger base = new BigInteger(500, this.random);
+    final FixedBaseTable table = new FixedBaseTable(base, MODULUS, 163, FixedBaseTable.LARGE_USES);
+    assertThat(table.isTabulated()).isTrue();
+
+    this.assertPowers(table, base, 163);
+  }
+}
@@ -0,0 +1,308 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.shuffle;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ShuffleProof;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Shuffle algorithm helper tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ShuffleAlgorithmHelperTests extends BaseTestCase {
+
+  private static final DHParametersWrapper PARAMETERS = createParameters();
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final ShuffleAlgorithmHelper helper = new ShuffleAlgorithmHelper();
+
+  private final SecureRandom random = new SecureRandom();
+
+  private DHParametersWrapper parameters;
+
+  private BigInteger privateKey;
+
+  private BigInteger publicKey;
+
+  private static DHParametersWrapper createParameters() {
+    // Schnorr group: p = kq + 1 with g generating the subgroup of prime order q. Large enough that a tampered proof is only accepted with negligible probability.
+    final SecureRandom random = new SecureRandom();
+    final BigInteger q = BigInteger.probablePrime(160, random);
+    BigInteger p;
+
+    do {
+      final BigInteger k = new BigInteger(352, random).setBit(351).shiftLeft(1);
+      p = k.multiply(q).add(BigInteger.ONE);
+    } while (!p.isProbablePrime(50));
+
+    final BigInteger g = BigInteger.valueOf(2).modPow(p.subtract(BigInteger.ONE).divide(q), p);
+
+    return new DHParametersWrapper(g, p, q, 0, 0, null);
+  }
+
+  private List<BigInteger> decrypt(final List<CipherText> cipherTexts) {
+    final List<BigInteger> plainTexts = new ArrayList<>();
+    final BigInteger p = this.parameters.getP();
+
+    for (final CipherText cipherText : cipherTexts) {
+      plainTexts.add(cipherText.getBeta().multiply(cipherText.getAlpha().modPow(this.privateKey, p).modInverse(p)).mod(p));
+    }
+
+    return plainTexts;
+  }
+
+  private List<CipherText> encrypt(final List<BigInteger> plainTexts) {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+    final BigInteger p = this.parameters.getP();
+
+    for (final BigInteger plainText : plainTexts) {
+      final BigInteger k = this.helper.generateRandom(this.random, this.parameters.getQ());
+      cipherTexts.add(new CipherText(this.parameters.getG().modPow(k, p), plainText.multiply(this.publicKey.modPow(k, p)).mod(p)));
+    }
+
+    return cipherTexts;
+  }
+
+  private List<BigInteger> plainTexts(final int number) {
+    // Powers of the generator are in the subgroup of order q.
+    final List<BigInteger> plainTexts = new ArrayList<>();
+
+    for (int i = 0; i < number; i++) {
+      plainTexts.add(this.parameters.getG().modPow(BigInteger.valueOf(i + 1), this.parameters.getP()));
+    }
+
+    return plainTexts;
+  }
+
+  private boolean verify(final List<CipherText> cipherTexts, final ShuffleProof proof) throws CryptographyException {
+    // The published output is that of the proof.
+    return this.helper.verify(this.parameters, this.publicKey, cipherTexts, proof.getOutput(), proof);
+  }
+
+  @Before
+  public void setUp() {
+    this.parameters = PARAMETERS;
+    this.privateKey = this.helper.generateRandom(this.random, this.parameters.getQ());
+    this.publicKey = this.parameters.getG().modPow(this.privateKey, this.parameters.getP());
+  }
+
+  @Test
+  public void testShuffle() throws Exception {
+    final List<BigInteger> plainTexts = this.plainTexts(40);
+    final List<CipherText> cipherTexts = this.encrypt(plainTexts);
+
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+    assertThat(proof).isNotNull();
+    assertThat(proof.getInput()).isEqualTo(cipherTexts);
+    assertThat(proof.getOutput()).hasSize(cipherTexts.size());
+
+    // The output is a re-encryption of a permutation of the input.
+    assertThat(this.decrypt(proof.getOutput())).containsExactlyInAnyOrderElementsOf(plainTexts);
+
+    for (final CipherText cipherText : proof.getOutput()) {
+      assertThat(cipherTexts).noneMatch(input -> input.getAlpha().equals(cipherText.getAlpha()));
+    }
+
+    assertThat(this.verify(cipherTexts, proof)).isTrue();
+  }
+
+  @Test
+  public void testShuffleInvalidWidth() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(3));
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.shuffle(this.random, this.parameters, this.publicKey, 2, cipherTexts);
+  }
+
+  @Test
+  public void testShuffleSerialised() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    final ObjectMapper mapper = new ObjectMapper();
+    final ShuffleProof read = mapper.readValue(mapper.writeValueAsString(proof), ShuffleProof.class);
+    assertThat(this.verify(cipherTexts, read)).isTrue();
+  }
+
+  @Test
+  public void testShuffleSingle() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(1));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    assertThat(this.decrypt(proof.getOutput())).isEqualTo(this.plainTexts(1));
+    assertThat(this.verify(cipherTexts, proof)).isTrue();
+  }
+
+  @Test
+  public void testShuffleWidth() throws Exception {
+    // Pairs of values, where each pair must stay together.
+    final List<BigInteger> plainTexts = this.plainTexts(60);
+    final List<CipherText> cipherTexts = this.encrypt(plainTexts);
+
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 2, cipherTexts);
+    final List<BigInteger> output = this.decrypt(proof.getOutput());
+    assertThat(output).containsExactlyInAnyOrderElementsOf(plainTexts);
+
+    for (int i = 0; i < output.size(); i += 2) {
+      assertThat(plainTexts.indexOf(output.get(i + 1))).isEqualTo(plainTexts.indexOf(output.get(i)) + 1);
+    }
+
+    assertThat(this.verify(cipherTexts, proof)).isTrue();
+  }
+
+  @Test
+  public void testShuffleSmallGroup() throws Exception {
+    // Small safe prime group: p = 2q + 1 with g generating the subgroup of order q.
+    this.parameters = new DHParametersWrapper(BigInteger.valueOf(4), BigInteger.valueOf(2039), BigInteger.valueOf(1019), 0, 0, null);
+    this.privateKey = this.helper.generateRandom(this.random, this.parameters.getQ());
+    this.publicKey = this.parameters.getG().modPow(this.privateKey, this.parameters.getP());
+
+    final List<BigInteger> plainTexts = this.plainTexts(30);
+    final List<CipherText> cipherTexts = this.encrypt(plainTexts);
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    assertThat(this.decrypt(proof.getOutput())).containsExactlyInAnyOrderElementsOf(plainTexts);
+    assertThat(this.verify(cipherTexts, proof)).isTrue();
+  }
+
+  @Test
+  public void testVerifyDifferentInput() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    // A valid proof of a shuffle of other ciphertexts is not a proof for the published ciphertexts.
+    final List<CipherText> published = new ArrayList<>(cipherTexts);
+    published.set(0, this.encrypt(this.plainTexts(1)).get(0));
+
+    assertThat(this.helper.verify(this.parameters, this.publicKey, published, proof.getOutput(), proof)).isFalse();
+  }
+
+  @Test
+  public void testVerifyDifferentOutput() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    final List<CipherText> published = new ArrayList<>(proof.getOutput());
+    Collections.swap(published, 0, 1);
+
+    assertThat(this.helper.verify(this.parameters, this.publicKey, cipherTexts, published, proof)).isFalse();
+
+    // Without published output, the proof's own output is used.
+    assertThat(this.helper.verify(this.parameters, this.publicKey, cipherTexts, null, proof)).isTrue();
+  }
+
+  @Test
+  public void testVerifyDifferentParameters() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    // A proof in another group is rejected, even if it is valid in that group.
+    final DHParametersWrapper small = new DHParametersWrapper(BigInteger.valueOf(4), BigInteger.valueOf(2039), BigInteger.valueOf(1019), 0, 0, null);
+    assertThat(this.helper.verify(small, this.publicKey, cipherTexts, proof.getOutput(), proof)).isFalse();
+
+    final ShuffleProof generator = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+    generator.setG(this.parameters.getG().modPow(BigInteger.valueOf(2), this.parameters.getP()));
+    assertThat(this.verify(cipherTexts, generator)).isFalse();
+  }
+
+  @Test
+  public void testVerifyDifferentPublicKey() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    final BigInteger other = this.parameters.getG().modPow(this.helper.generateRandom(this.random, this.parameters.getQ()), this.parameters.getP());
+    assertThat(this.helper.verify(this.parameters, other, cipherTexts, proof.getOutput(), proof)).isFalse();
+  }
+
+  @Test
+  public void testVerifyInvalidGroup() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(3));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    // Composite p, composite q and a q which does not divide p - 1 are all rejected, even if the proof claims the same group.
+    final BigInteger[][] groups = {
+        {BigInteger.valueOf(4), BigInteger.valueOf(2041), BigInteger.valueOf(1019)},
+        {BigInteger.valueOf(4), BigInteger.valueOf(2039), BigInteger.valueOf(1018)},
+        {BigInteger.valueOf(4), BigInteger.valueOf(2039), BigInteger.valueOf(1013)}};
+
+    for (final BigInteger[] group : groups) {
+      proof.setG(group[0]);
+      proof.setP(group[1]);
+      proof.setQ(group[2]);
+      assertThat(this.helper.verify(new DHParametersWrapper(group[0], group[1], group[2], 0, 0, null), this.publicKey, cipherTexts, proof.getOutput(), proof))
+          .isFalse();
+    }
+  }
+
+  @Test
+  public void testVerifyMissing() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    this.helper.verify(this.parameters, this.publicKey, new ArrayList<>(), null, null);
+  }
+
+  @Test
+  public void testVerifyMissingInput() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(3));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.verify(this.parameters, this.publicKey, null, null, proof);
+  }
+
+  @Test
+  public void testVerifyTamperedOutput() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    // Replace an output with a fresh encryption of a different value.
+    final List<CipherText> output = new ArrayList<>(proof.getOutput());
+    output.set(0, this.encrypt(this.plainTexts(30)).get(25));
+    proof.setOutput(output);
+
+    assertThat(this.verify(cipherTexts, proof)).isFalse();
+  }
+
+  @Test
+  public void testVerifyTamperedResponse() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    final List<BigInteger> responses = new ArrayList<>(proof.getPrimeResponses());
+    responses.set(3, responses.get(3).add(BigInteger.ONE).mod(this.parameters.getQ()));
+    proof.setPrimeResponses(responses);
+
+    assertThat(this.verify(cipherTexts, proof)).isFalse();
+  }
+
+  @Test
+  public void testVerifyTruncated() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(20));
+    final ShuffleProof proof = this.helper.shuffle(this.random, this.parameters, this.publicKey, 1, cipherTexts);
+
+    proof.setOutput(proof.getOutput().subList(1, proof.getOutput().size()));
+
+    assertThat(this.verify(cipherTexts, proof)).isFalse();
+  }
+}
@@ -0,0 +1,264 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.cryptography.threshold;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+import uk.co.pervasive_intelligence.vmv.cryptography.nizkp.ChaumPedersenAlgorithmHelper;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Threshold decryption algorithm helper tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ThresholdDecryptionAlgorithmHelperTests extends BaseTestCase {
+
+  private static final DHParametersWrapper PARAMETERS = createParameters();
+
+  private static final int TELLERS = 5;
+
+  private static final int THRESHOLD = 3;
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final ThresholdDecryptionAlgorithmHelper helper = new ThresholdDecryptionAlgorithmHelper(new ChaumPedersenAlgorithmHelper());
+
+  private final SecureRandom random = new SecureRandom();
+
+  private List<KeyShareCommitments> commitments;
+
+  private List<List<KeyShareDeal>> deals;
+
+  private List<KeyShare> keyShares;
+
+  private BigInteger publicKey;
+
+  private static DHParametersWrapper createParameters() {
+    // Schnorr group: p = kq + 1 with g generating the subgroup of prime order q. Large enough that a tampered share is only accepted with negligible probability.
+    final SecureRandom random = new SecureRandom();
+    final BigInteger q = BigInteger.probablePrime(160, random);
+    BigInteger p;
+
+    do {
+      final BigInteger k = new BigInteger(352, random).setBit(351).shiftLeft(1);
+      p = k.multiply(q).add(BigInteger.ONE);
+    } while (!p.isProbablePrime(50));
+
+    final BigInteger g = BigInteger.valueOf(2).modPow(p.subtract(BigInteger.ONE).divide(q), p);
+
+    return new DHParametersWrapper(g, p, q, 0, 0, null);
+  }
+
+  private List<DecryptionShare> decrypt(final List<CipherText> cipherTexts, final int... tellers) throws Exception {
+    final List<DecryptionShare> shares = new ArrayList<>();
+
+    for (final int teller : tellers) {
+      shares.add(this.helper.decrypt(this.random, PARAMETERS, this.keyShares.get(teller - 1), cipherTexts));
+    }
+
+    return shares;
+  }
+
+  private List<CipherText> encrypt(final List<BigInteger> plainTexts) {
+    final List<CipherText> cipherTexts = new ArrayList<>();
+    final BigInteger p = PARAMETERS.getP();
+
+    for (final BigInteger plainText : plainTexts) {
+      final BigInteger k = this.helper.generateRandom(this.random, PARAMETERS.getQ());
+      cipherTexts.add(new CipherText(PARAMETERS.getG().modPow(k, p), plainText.multiply(this.publicKey.modPow(k, p)).mod(p)));
+    }
+
+    return cipherTexts;
+  }
+
+  private List<BigInteger> plainTexts(final int number) {
+    final List<BigInteger> plainTexts = new ArrayList<>();
+
+    for (int i = 0; i < number; i++) {
+      plainTexts.add(PARAMETERS.getG().modPow(BigInteger.valueOf(i + 1), PARAMETERS.getP()));
+    }
+
+    return plainTexts;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    // Every teller deals a share of its own polynomial to every teller, so that no one holds the secret key.
+    this.commitments = new ArrayList<>();
+    this.deals = new ArrayList<>();
+
+    for (int recipient = 1; recipient <= TELLERS; recipient++) {
+      this.deals.add(new ArrayList<>());
+    }
+
+    for (int dealer = 1; dealer <= TELLERS; dealer++) {
+      final BigInteger[] polynomial = this.helper.createPolynomial(this.random, PARAMETERS, TELLERS, THRESHOLD);
+      this.commitments.add(this.helper.commit(PARAMETERS, dealer, polynomial));
+
+      for (int recipient = 1; recipient <= TELLERS; recipient++) {
+        this.deals.get(recipient - 1).add(this.helper.deal(PARAMETERS, dealer, recipient, polynomial));
+      }
+    }
+
+    this.publicKey = this.helper.combinePublicKey(PARAMETERS, this.commitments);
+    this.keyShares = new ArrayList<>();
+
+    for (int teller = 1; teller <= TELLERS; teller++) {
+      this.keyShares.add(this.helper.merge(PARAMETERS, teller, this.commitments, this.deals.get(teller - 1)));
+    }
+  }
+
+  @Test
+  public void testCombine() throws Exception {
+    final List<BigInteger> plainTexts = this.plainTexts(20);
+    final List<CipherText> cipherTexts = this.encrypt(plainTexts);
+
+    // Any threshold subset of tellers decrypts.
+    assertThat(this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, this.decrypt(cipherTexts, 1, 2, 3))).isEqualTo(plainTexts);
+    assertThat(this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, this.decrypt(cipherTexts, 5, 2, 4))).isEqualTo(plainTexts);
+  }
+
+  @Test
+  public void testCombineBatches() throws Exception {
+    final List<BigInteger> plainTexts = this.plainTexts(ThresholdDecryptionAlgorithmHelper.BATCH_SIZE + 10);
+    final List<CipherText> cipherTexts = this.encrypt(plainTexts);
+    final List<DecryptionShare> shares = this.decrypt(cipherTexts, 1, 3, 5);
+
+    assertThat(shares.get(0).getProofs()).hasSize(2);
+    assertThat(this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, shares)).isEqualTo(plainTexts);
+  }
+
+  @Test
+  public void testCombineDuplicate() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(5));
+    final List<DecryptionShare> shares = this.decrypt(cipherTexts, 1, 2, 2);
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, shares);
+  }
+
+  @Test
+  public void testCombineTooFew() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(5));
+    final List<DecryptionShare> shares = this.decrypt(cipherTexts, 1, 2);
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, shares);
+  }
+
+  @Test
+  public void testCombineWrongFactor() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(5));
+    final List<DecryptionShare> shares = this.decrypt(cipherTexts, 1, 2, 3);
+
+    // Replace a factor with a different group element.
+    final List<BigInteger> factors = new ArrayList<>(shares.get(1).getFactors());
+    factors.set(3, factors.get(3).multiply(PARAMETERS.getG()).mod(PARAMETERS.getP()));
+    shares.get(1).setFactors(factors);
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.combine(PARAMETERS, this.publicKey, cipherTexts, shares);
+  }
+
+  @Test
+  public void testCombinePublicKeyInvalid() throws Exception {
+    final List<KeyShareCommitments> invalid = new ArrayList<>(this.commitments);
+    invalid.set(2, new KeyShareCommitments(3, Arrays.asList(BigInteger.ZERO, BigInteger.ONE, BigInteger.ONE)));
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.combinePublicKey(PARAMETERS, invalid);
+  }
+
+  @Test
+  public void testCreatePolynomialInvalidThreshold() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    this.helper.createPolynomial(this.random, PARAMETERS, 2, 3);
+  }
+
+  @Test
+  public void testMerge() throws Exception {
+    assertThat(this.keyShares).hasSize(TELLERS);
+
+    for (int i = 0; i < TELLERS; i++) {
+      assertThat(this.keyShares.get(i).getTeller()).isEqualTo(i + 1);
+      assertThat(this.keyShares.get(i).getPublicKeyShare()).isEqualTo(PARAMETERS.getG().modPow(this.keyShares.get(i).getPrivateKeyShare(), PARAMETERS.getP()));
+    }
+
+    // Any threshold shares interpolate to the secret key of the combined public key.
+    final List<Integer> tellers = Arrays.asList(2, 4, 5);
+    BigInteger secret = BigInteger.ZERO;
+
+    for (final int teller : tellers) {
+      secret = secret.add(this.keyShares.get(teller - 1).getPrivateKeyShare()
+          .multiply(ThresholdDecryptionAlgorithmHelper.lagrangeCoefficient(PARAMETERS.getQ(), teller, tellers)));
+    }
+
+    assertThat(PARAMETERS.getG().modPow(secret.mod(PARAMETERS.getQ()), PARAMETERS.getP())).isEqualTo(this.publicKey);
+  }
+
+  @Test
+  public void testMergeInvalidDeal() throws Exception {
+    final List<KeyShareDeal> deals = new ArrayList<>(this.deals.get(1));
+    final KeyShareDeal deal = deals.get(3);
+    deals.set(3, new KeyShareDeal(deal.getDealer(), deal.getRecipient(), deal.getShare().add(BigInteger.ONE).mod(PARAMETERS.getQ())));
+
+    assertThat(this.helper.verifyDeal(PARAMETERS, this.commitments.get(3), deal)).isTrue();
+    assertThat(this.helper.verifyDeal(PARAMETERS, this.commitments.get(3), deals.get(3))).isFalse();
+
+    this.exception.expect(CryptographyException.class);
+    this.helper.merge(PARAMETERS, 2, this.commitments, deals);
+  }
+
+  @Test
+  public void testMergeWrongRecipient() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    this.helper.merge(PARAMETERS, 1, this.commitments, this.deals.get(1));
+  }
+
+  @Test
+  public void testVerify() throws Exception {
+    final List<CipherText> cipherTexts = this.encrypt(this.plainTexts(10));
+    final DecryptionShare share = this.decrypt(cipherTexts, 4).get(0);
+
+    assertThat(this.helper.verify(PARAMETERS, cipherTexts, share)).isTrue();
+
+    // The share survives being written to and read from a share file.
+    final ObjectMapper mapper = new ObjectMapper();
+    assertThat(this.helper.verify(PARAMETERS, cipherTexts, mapper.readValue(mapper.writeValueAsString(share), DecryptionShare.class))).isTrue();
+
+    // A share for different ciphertexts, with a different public key share or with missing factors is rejected.
+    assertThat(this.helper.verify(PARAMETERS, this.encrypt(this.plainTexts(10)), share)).isFalse();
+
+    final DecryptionShare wrongKey = mapper.readValue(mapper.writeValueAsString(share), DecryptionShare.class);
+    wrongKey.setPublicKeyShare(this.keyShares.get(0).getPublicKeyShare());
+    assertThat(this.helper.verify(PARAMETERS, cipherTexts, wrongKey)).isFalse();
+
+    final DecryptionShare missing = mapper.readValue(mapper.writeValueAsString(share), DecryptionShare.class);
+    missing.setFactors(missing.getFactors().subList(0, 9));
+    assertThat(this.helper.verify(PARAMETERS, cipherTexts, missing)).isFalse();
+  }
+
+  @Test
+  public void testVerifyMissing() throws Exception {
+    this.exception.expect(CryptographyException.class);
+    this.helper.verify(PARAMETERS, this.encrypt(this.plainTexts(1)), null);
+  }
+}
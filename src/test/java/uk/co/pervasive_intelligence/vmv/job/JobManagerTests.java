@@ -0,0 +1,107 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Job manager tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class JobManagerTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final JobManager jobManager = new JobManager();
+
+  @After
+  public void tearDown() {
+    this.jobManager.shutdown();
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    final CountDownLatch started = new CountDownLatch(1);
+    final Job job = this.jobManager.submit("sleep", () -> {
+      started.countDown();
+      Thread.sleep(60000);
+      return null;
+    });
+
+    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(this.jobManager.cancel(job.getId())).isTrue();
+    assertThat(this.jobManager.waitFor(job.getId(), 0).getState()).isEqualTo(Job.State.CANCELLED);
+
+    // A job which has ended cannot be cancelled again.
+    assertThat(this.jobManager.cancel(job.getId())).isFalse();
+  }
+
+  @Test
+  public void testProgress() throws Exception {
+    final Job job = this.jobManager.submit("progress", () -> {
+      assertThat(JobManager.isBackground()).isTrue();
+      this.jobManager.onStart("step");
+      this.jobManager.onProgress(42);
+      return null;
+    });
+
+    assertThat(this.jobManager.waitFor(job.getId(), 0).getState()).isEqualTo(Job.State.COMPLETED);
+    assertThat(job.getProgressName()).isEqualTo("step");
+    assertThat(job.getProgress()).isEqualTo(42f);
+
+    // Progress reported outside of a job is ignored.
+    assertThat(JobManager.isBackground()).isFalse();
+    this.jobManager.onEnd();
+    assertThat(job.getProgress()).isEqualTo(42f);
+  }
+
+  @Test
+  public void testSubmit() throws Exception {
+    final Job first = this.jobManager.submit("first", () -> "done");
+    final Job second = this.jobManager.submit("second", () -> {
+      throw new VMVException("Broken", new IllegalStateException("cause"));
+    });
+
+    assertThat(this.jobManager.waitFor(first.getId(), 0).getState()).isEqualTo(Job.State.COMPLETED);
+    assertThat(first.getError()).isNull();
+    assertThat(this.jobManager.waitFor(second.getId(), 0).getState()).isEqualTo(Job.State.FAILED);
+    assertThat(second.getError()).isEqualTo("cause");
+
+    assertThat(this.jobManager.getJobs()).containsExactly(first, second);
+    assertThat(first.getCommand()).isEqualTo("first");
+    assertThat(second.getId()).isEqualTo(first.getId() + 1);
+  }
+
+  @Test
+  public void testUnknownJob() throws Exception {
+    this.exception.expect(VMVException.class);
+    this.jobManager.getJob(1);
+  }
+
+  @Test
+  public void testWaitForTimeout() throws Exception {
+    final CountDownLatch release = new CountDownLatch(1);
+    final Job job = this.jobManager.submit("wait", () -> release.await(10, TimeUnit.SECONDS));
+
+    assertThat(this.jobManager.waitFor(job.getId(), 50).getState()).isEqualTo(Job.State.RUNNING);
+
+    release.countDown();
+    assertThat(this.jobManager.waitFor(job.getId(), 0).getState()).isEqualTo(Job.State.COMPLETED);
+    assertThat(job.getDuration()).isGreaterThanOrEqualTo(0);
+  }
+}
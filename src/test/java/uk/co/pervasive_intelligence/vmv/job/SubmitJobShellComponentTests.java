@@ -0,0 +1,76 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.job;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Submit job tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class SubmitJobShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File parameters = new File("job-params.csv");
+
+  @Mock
+  private ApplicationContext context;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() {
+    this.parameters.delete();
+    new File("create-election-parameters-" + Metrics.DEFAULT_REPORT).delete();
+  }
+
+  @Test
+  public void testSubmitJob() throws Exception {
+    // Run headless so that the job is submitted, waited for and listed within the same application.
+    assertThat(new VMVCommandLine().run("submit-job", "--command", "create-election-parameters --publish " + this.parameters.getPath() +
+        " --name 'Job Election' --no-tellers --dsa-l 1024 --dsa-n 160", ";", "wait-job", "--timeout", "600", ";", "list-jobs")).isEqualTo(0);
+    assertThat(Files.readAllLines(this.parameters.toPath())).hasSize(2);
+  }
+
+  @Test
+  public void testSubmitJobFailed() {
+    assertThat(new VMVCommandLine().run("submit-job", "--command", "create-election-parameters --publish missing/" + this.parameters.getPath() +
+        " --name 'Job Election' --no-tellers --dsa-l 1024 --dsa-n 160", ";", "wait-job")).isEqualTo(1);
+  }
+
+  @Test
+  public void testSubmitJobInvalid() {
+    final SubmitJobShellComponent component = new SubmitJobShellComponent(this.context, new JCommanderParameterResolver(), new JobManager(),
+        this.messageSource);
+
+    this.exception.expect(RuntimeException.class);
+    component.submitJob(new SubmitJobShellComponent.SubmitJobOptions("create-election-parameters --unknown"));
+  }
+}
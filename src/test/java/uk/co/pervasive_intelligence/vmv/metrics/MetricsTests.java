@@ -0,0 +1,139 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.metrics;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assume;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Metrics tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class MetricsTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  @Test
+  public void testFlightRecorder() throws Exception {
+    Assume.assumeTrue(Metrics.isFlightRecorderAvailable());
+
+    final Metrics metrics = new Metrics();
+    final Path file = Files.createTempFile("metrics", ".jfr");
+
+    try (final Recording recording = new Recording()) {
+      recording.enable("uk.co.pervasive_intelligence.vmv.Phase");
+      recording.start();
+      metrics.start("operation", "phase").setItems(3).close();
+      recording.stop();
+      recording.dump(file);
+
+      final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+      assertThat(events).hasSize(1);
+      assertThat(events.get(0).getString("operation")).isEqualTo("operation");
+      assertThat(events.get(0).getString("phase")).isEqualTo("phase");
+      assertThat(events.get(0).getLong("items")).isEqualTo(3);
+    }
+    finally {
+      Files.deleteIfExists(file);
+    }
+  }
+
+  @Test
+  public void testStart() throws Exception {
+    final Metrics metrics = new Metrics();
+    assertThat(metrics.getPhase("operation", "phase")).isNull();
+
+    // Time the same phase on several threads, each allocating memory.
+    final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    for (int i = 0; i < 8; i++) {
+      executor.submit(() -> {
+        try (final Metrics.Timer timer = metrics.start("operation", "phase").setItems(10)) {
+          assertThat(new byte[1024 * 1024]).isNotNull();
+        }
+      });
+    }
+
+    executor.shutdown();
+    assertThat(executor.awaitTermination(1, TimeUnit.MINUTES)).isTrue();
+
+    final PhaseMetrics phase = metrics.getPhase("operation", "phase");
+    assertThat(phase.getCount()).isEqualTo(8);
+    assertThat(phase.getItems()).isEqualTo(80);
+    assertThat(phase.getMaximum()).isLessThanOrEqualTo(phase.getDuration());
+    assertThat(phase.getMean()).isLessThanOrEqualTo(phase.getMaximum());
+    assertThat(phase.getThroughput()).isGreaterThan(0);
+    assertThat(phase.getAllocated()).isGreaterThanOrEqualTo(8L * 1024 * 1024);
+    assertThat(phase.getAllocatedByThread().size()).isBetween(1, 4);
+
+    metrics.clear();
+    assertThat(metrics.getPhase("operation", "phase")).isNull();
+  }
+
+  @Test
+  public void testTime() throws Exception {
+    final Metrics metrics = new Metrics();
+    assertThat(metrics.time("operation", "phase", () -> 42)).isEqualTo(42);
+    assertThat(metrics.getPhase("operation", "phase").getCount()).isEqualTo(1);
+
+    // A failed task is not recorded.
+    this.exception.expect(IllegalStateException.class);
+
+    try {
+      metrics.time("operation", "failed", () -> {
+        throw new IllegalStateException();
+      });
+    }
+    finally {
+      assertThat(metrics.getPhase("operation", "failed")).isNull();
+    }
+  }
+
+  @Test
+  public void testWrite() throws Exception {
+    final Path directory = Files.createTempDirectory("metrics");
+
+    try {
+      // Nothing is written without a report name.
+      assertThat(new Metrics().write(directory.toFile(), "command")).isNull();
+
+      final Metrics metrics = new Metrics(Metrics.DEFAULT_REPORT);
+      metrics.start("operation", Metrics.TOTAL).setItems(5).close();
+
+      final File report = metrics.write(directory.toFile(), "command");
+      assertThat(report).isEqualTo(new File(directory.toFile(), "command-" + Metrics.DEFAULT_REPORT));
+
+      final JsonNode node = new ObjectMapper().readTree(report);
+      assertThat(node.has("created")).isTrue();
+      assertThat(node.get("operations").get("operation").get(Metrics.TOTAL).get("items").asLong()).isEqualTo(5);
+      assertThat(node.get("operations").get("operation").get(Metrics.TOTAL).has("allocatedByThread")).isTrue();
+    }
+    finally {
+      Files.deleteIfExists(directory.resolve("command-" + Metrics.DEFAULT_REPORT));
+      Files.deleteIfExists(directory);
+    }
+  }
+}
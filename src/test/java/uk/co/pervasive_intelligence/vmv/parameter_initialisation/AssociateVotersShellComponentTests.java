@@ -149,11 +149,11 @@ public class AssociateVotersShellComponentTests extends BaseTestCase {
 
     final int teller = 1;
     final List<TrackerNumber> shuffledTrackerNumbers = new ArrayList<>(trackerNumbers);
-    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, null));
+    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, null));
 
     final ShuffleTrackerNumbersShellComponent shuffleTrackerNumbersShellComponent = new ShuffleTrackerNumbersShellComponent(this.cryptographyHelper);
     final ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions shuffleTrackerNumbersOptions =
-        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(this.publishParams, teller, this.publishTrackerNumbers,
+        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(Arrays.asList(this.publishParams, this.publishKeys), teller, this.publishTrackerNumbers,
             Arrays.asList(this.shuffledTrackerNumbers, this.shuffleProofs));
     shuffleTrackerNumbersShellComponent.shuffleTrackerNumbers(shuffleTrackerNumbersOptions);
 
@@ -166,7 +166,7 @@ public class AssociateVotersShellComponentTests extends BaseTestCase {
       commitments.add(commitment);
     }
 
-    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(commitments, null));
+    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean())).thenReturn(new ProofWrapper<>(commitments, null));
 
     final CreateCommitmentsShellComponent createCommitmentsShellComponent = new CreateCommitmentsShellComponent(this.cryptographyHelper);
     final CreateCommitmentsShellComponent.CreateCommitmentsOptions createCommitmentsOptions =
@@ -234,8 +234,8 @@ public class AssociateVotersShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper, Mockito.times(7)).getElectionParametersClass();
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).createTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyInt());
-    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
-    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean());
     Mockito.verify(this.cryptographyHelper).decryptCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(),
         Mockito.isNotNull(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).associateVoters(Mockito.isNotNull(), Mockito.isNotNull());
@@ -148,11 +148,11 @@ public class CreateCommitmentsShellComponentTests extends BaseTestCase {
     final int teller = 1;
     final List<TrackerNumber> shuffledTrackerNumbers = new ArrayList<>(trackerNumbers);
     final File shuffleProofFile = Files.createTempFile(null, null).toFile();
-    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, shuffleProofFile));
+    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, shuffleProofFile));
 
     final ShuffleTrackerNumbersShellComponent shuffleTrackerNumbersShellComponent = new ShuffleTrackerNumbersShellComponent(this.cryptographyHelper);
     final ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions shuffleTrackerNumbersOptions =
-        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(this.publishParams, teller, this.publishTrackerNumbers,
+        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(Arrays.asList(this.publishParams, this.publishKeys), teller, this.publishTrackerNumbers,
             Arrays.asList(this.shuffledTrackerNumbers, this.shuffleProofs));
     shuffleTrackerNumbersShellComponent.shuffleTrackerNumbers(shuffleTrackerNumbersOptions);
 
@@ -169,7 +169,7 @@ public class CreateCommitmentsShellComponentTests extends BaseTestCase {
     }
 
     final File commitmentsProofFile = Files.createTempFile(null, null).toFile();
-    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(commitments, commitmentsProofFile));
+    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean())).thenReturn(new ProofWrapper<>(commitments, commitmentsProofFile));
 
     final CreateCommitmentsShellComponent createCommitmentsShellComponent = new CreateCommitmentsShellComponent(this.cryptographyHelper);
     assertThat(createCommitmentsShellComponent).isNotNull();
@@ -218,8 +218,8 @@ public class CreateCommitmentsShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper, Mockito.times(5)).getElectionParametersClass();
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).createTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyInt());
-    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
-    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean());
 
     shuffleProofFile.delete();
     commitmentsProofFile.delete();
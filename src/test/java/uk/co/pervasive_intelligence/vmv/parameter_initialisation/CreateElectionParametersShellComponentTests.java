@@ -18,6 +18,7 @@ import org.springframework.test.context.junit4.SpringRunner;
 import uk.co.pervasive_intelligence.vmv.BaseTestCase;
 import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
 import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
 
 import java.io.File;
 import java.math.BigInteger;
@@ -79,6 +80,39 @@ public class CreateElectionParametersShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper).createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testCreateElectionEncoding() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+
+    for (final ElementEncoding elementEncoding : new ElementEncoding[] {ElementEncoding.HEX, ElementEncoding.BASE64}) {
+      this.publishParams.delete();
+
+      final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+          new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", false, 4, 3, 1024, 160, 128,
+              elementEncoding);
+      createElectionParametersShellComponent.createElectionParameters(options);
+
+      assertThat(this.publishParams.exists()).isTrue();
+
+      final List<DHParametersWrapper> publishParameters = (List<DHParametersWrapper>) createElectionParametersShellComponent.readCSV(this.publishParams,
+          DHParametersWrapper.class);
+      assertThat(publishParameters).isNotNull();
+      assertThat(publishParameters.size()).isEqualTo(1);
+      assertThat(publishParameters.get(0).getElementEncoding()).isEqualTo(elementEncoding);
+      assertThat(publishParameters.get(0).getG()).isEqualTo(parameters.getG());
+      assertThat(publishParameters.get(0).getP()).isEqualTo(parameters.getP());
+      assertThat(publishParameters.get(0).getQ()).isEqualTo(parameters.getQ());
+      assertThat(publishParameters.get(0).getName()).isEqualTo(parameters.getName());
+    }
+
+    Mockito.verify(this.cryptographyHelper, Mockito.times(2)).createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt());
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void testCreateElectionTellers() throws Exception {
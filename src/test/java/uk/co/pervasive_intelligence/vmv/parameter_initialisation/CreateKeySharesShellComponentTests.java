@@ -0,0 +1,109 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyShareCommitments;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Create key shares tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class CreateKeySharesShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File publishCommitments = new File("key-share-commitments-1.json");
+
+  private final File publishParams = new File("public-election-params.csv");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Before
+  @After
+  public void setUp() {
+    this.publishParams.delete();
+    this.publishCommitments.delete();
+  }
+
+  @Test
+  public void testCreateKeyShares() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 4, 3, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final int teller = 1;
+    final KeyShareCommitments commitments = new KeyShareCommitments(teller, Arrays.asList(BigInteger.valueOf(2), BigInteger.valueOf(3), BigInteger.valueOf(4)));
+    Mockito.when(this.cryptographyHelper.createKeyShares(Mockito.isNotNull(), Mockito.eq(teller))).thenReturn(commitments);
+
+    final CreateKeySharesShellComponent createKeySharesShellComponent = new CreateKeySharesShellComponent(this.cryptographyHelper);
+    assertThat(createKeySharesShellComponent).isNotNull();
+
+    assertThat(this.publishCommitments.exists()).isFalse();
+
+    createKeySharesShellComponent.createKeyShares(new CreateKeySharesShellComponent.CreateKeySharesOptions(this.publishParams, teller,
+        this.publishCommitments));
+
+    assertThat(this.publishCommitments.exists()).isTrue();
+
+    final KeyShareCommitments published = new ObjectMapper().readValue(this.publishCommitments, KeyShareCommitments.class);
+    assertThat(published.getTeller()).isEqualTo(teller);
+    assertThat(published.getCommitments()).isEqualTo(commitments.getCommitments());
+
+    Mockito.verify(this.cryptographyHelper).createKeyShares(Mockito.isNotNull(), Mockito.eq(teller));
+  }
+
+  @Test
+  public void testCreateKeySharesWrongTeller() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 4, 3, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+    Mockito.when(this.cryptographyHelper.createKeyShares(Mockito.isNotNull(), Mockito.anyInt())).thenThrow(new CryptographyException("Wrong teller"));
+
+    final CreateKeySharesShellComponent createKeySharesShellComponent = new CreateKeySharesShellComponent(this.cryptographyHelper);
+
+    this.exception.expect(RuntimeException.class);
+    createKeySharesShellComponent.createKeyShares(new CreateKeySharesShellComponent.CreateKeySharesOptions(this.publishParams, 0, this.publishCommitments));
+  }
+}
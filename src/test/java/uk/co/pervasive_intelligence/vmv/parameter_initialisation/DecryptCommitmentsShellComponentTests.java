@@ -5,6 +5,7 @@
  */
 package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bouncycastle.crypto.params.DHParameters;
 import org.junit.After;
 import org.junit.Before;
@@ -38,10 +39,16 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
   @Rule
   public final ExpectedException exception = ExpectedException.none();
 
+  private final File cipherTexts = new File("combined-commitments.csv");
+
   private final File commitmentsProofs = new File("commitments-proofs.csv");
 
   private final File decryptProofs = new File("decrypt-proofs.zip");
 
+  private final File decryptionShare1 = new File("decryption-share-1.json");
+
+  private final File decryptionShare2 = new File("decryption-share-2.json");
+
   private final File outputCommitments = new File("commitments.csv");
 
   private final File outputKeys = new File("election-keys.csv");
@@ -88,6 +95,10 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
 
     this.publishVoters.delete();
     this.decryptProofs.delete();
+
+    this.cipherTexts.delete();
+    this.decryptionShare1.delete();
+    this.decryptionShare2.delete();
   }
 
   @Test
@@ -155,11 +166,11 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
     final int teller = 1;
     final List<TrackerNumber> shuffledTrackerNumbers = new ArrayList<>(trackerNumbers);
     final File shuffleProofFile = Files.createTempFile(null, null).toFile();
-    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, shuffleProofFile));
+    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, shuffleProofFile));
 
     final ShuffleTrackerNumbersShellComponent shuffleTrackerNumbersShellComponent = new ShuffleTrackerNumbersShellComponent(this.cryptographyHelper);
     final ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions shuffleTrackerNumbersOptions =
-        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(this.publishParams, teller, this.publishTrackerNumbers,
+        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(Arrays.asList(this.publishParams, this.publishKeys), teller, this.publishTrackerNumbers,
             Arrays.asList(this.shuffledTrackerNumbers, this.shuffleProofs));
     shuffleTrackerNumbersShellComponent.shuffleTrackerNumbers(shuffleTrackerNumbersOptions);
 
@@ -173,7 +184,7 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
     }
 
     final File commitmentsProofFile = Files.createTempFile(null, null).toFile();
-    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(commitments, commitmentsProofFile));
+    Mockito.when(this.cryptographyHelper.createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean())).thenReturn(new ProofWrapper<>(commitments, commitmentsProofFile));
 
     final CreateCommitmentsShellComponent createCommitmentsShellComponent = new CreateCommitmentsShellComponent(this.cryptographyHelper);
     final CreateCommitmentsShellComponent.CreateCommitmentsOptions createCommitmentsOptions =
@@ -218,8 +229,8 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper, Mockito.times(6)).getElectionParametersClass();
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).createTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyInt());
-    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
-    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).createCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyBoolean());
     Mockito.verify(this.cryptographyHelper).decryptCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(),
         Mockito.isNotNull(), Mockito.isNotNull());
 
@@ -227,4 +238,125 @@ public class DecryptCommitmentsShellComponentTests extends BaseTestCase {
     commitmentsProofFile.delete();
     decryptProofFile.delete();
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testDecryptCommitmentsDecryptionShares() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions createElectionParametersOptions =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(createElectionParametersOptions);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final DecryptCommitmentsShellComponent decryptCommitmentsShellComponent = new DecryptCommitmentsShellComponent(this.cryptographyHelper);
+    assertThat(decryptCommitmentsShellComponent).isNotNull();
+
+    // The election public key is set by the tellers from their key shares, as output by merge-key-shares.
+    decryptCommitmentsShellComponent.writeCSV(this.outputKeys, KeyPair.class, new KeyPair(null, BigInteger.valueOf(456)));
+
+    final int numberOfVoters = 10;
+    final List<VoterKeyPairs> keyPairs = new ArrayList<>();
+    final List<TrackerNumber> trackerNumbers = new ArrayList<>();
+    final List<Commitment> commitments = new ArrayList<>();
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (int i = 0; i < numberOfVoters; i++) {
+      keyPairs.add(new VoterKeyPairs(new KeyPair(null, BigInteger.valueOf(i + 2)), new KeyPair(null, BigInteger.valueOf(i + 4))));
+      trackerNumbers.add(new TrackerNumber(i + 1, BigInteger.ZERO, new byte[10]));
+
+      final Commitment commitment = new Commitment();
+      commitment.setPublicKey(BigInteger.valueOf(i + 2));
+      commitment.setEncryptedG(new byte[2]);
+      commitment.setEncryptedH(new byte[3]);
+      commitments.add(commitment);
+
+      cipherTexts.add(new CipherText(BigInteger.valueOf(i + 5), BigInteger.valueOf(i + 6)));
+    }
+
+    decryptCommitmentsShellComponent.writeCSV(this.publishVotersKeys, VoterKeyPairs.class, keyPairs, JacksonViews.Public.class);
+    decryptCommitmentsShellComponent.writeCSV(this.shuffledTrackerNumbers, TrackerNumber.class, trackerNumbers, JacksonViews.Public.class);
+    decryptCommitmentsShellComponent.writeCSV(this.publishCommitments, Commitment.class, commitments, JacksonViews.Public.class);
+
+    // First output the commitments for each teller to create its decryption share.
+    final int teller = 1;
+    Mockito.when(this.cryptographyHelper.formCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull()))
+        .thenReturn(cipherTexts);
+
+    assertThat(this.cipherTexts.exists()).isFalse();
+
+    decryptCommitmentsShellComponent.decryptCommitments(new DecryptCommitmentsShellComponent.DecryptCommitmentsOptions(
+        Arrays.asList(this.publishParams, this.outputKeys), teller, this.publishVotersKeys, this.shuffledTrackerNumbers,
+        Collections.singletonList(this.publishCommitments), this.cipherTexts, null, null));
+
+    assertThat(this.cipherTexts.exists()).isTrue();
+    assertThat(this.publishVoters.exists()).isFalse();
+
+    final List<CipherText> writtenCipherTexts = (List<CipherText>) decryptCommitmentsShellComponent.readCSV(this.cipherTexts, CipherText.class);
+    assertThat(writtenCipherTexts.size()).isEqualTo(numberOfVoters);
+    assertThat(writtenCipherTexts.get(0).getAlpha()).isEqualTo(BigInteger.valueOf(5));
+
+    // Then combine the decryption shares.
+    final ObjectMapper mapper = new ObjectMapper();
+    final DecryptionShare share = new DecryptionShare();
+    share.setTeller(1);
+    mapper.writeValue(this.decryptionShare1, share);
+    share.setTeller(3);
+    mapper.writeValue(this.decryptionShare2, share);
+
+    final List<Voter> voters = new ArrayList<>();
+
+    for (int i = 0; i < numberOfVoters; i++) {
+      voters.add(new Voter(i));
+    }
+
+    Mockito.when(this.cryptographyHelper.decryptCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(),
+        Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(voters, null));
+
+    decryptCommitmentsShellComponent.decryptCommitments(new DecryptCommitmentsShellComponent.DecryptCommitmentsOptions(
+        Arrays.asList(this.publishParams, this.outputKeys), teller, this.publishVotersKeys, this.shuffledTrackerNumbers,
+        Collections.singletonList(this.publishCommitments), null, Arrays.asList(this.decryptionShare1, this.decryptionShare2),
+        Arrays.asList(this.publishVoters, this.decryptProofs)));
+
+    assertThat(this.publishVoters.exists()).isTrue();
+    assertThat(this.decryptProofs.exists()).isFalse();
+
+    final List<Voter> publishVoters = (List<Voter>) decryptCommitmentsShellComponent.readCSV(this.publishVoters, Voter.class, JacksonViews.Public.class);
+    assertThat(publishVoters.size()).isEqualTo(numberOfVoters);
+
+    Mockito.verify(this.cryptographyHelper).formCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).decryptCommitments(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(),
+        Mockito.isNotNull(), Mockito.isNotNull(), Mockito.argThat(shares -> (shares.size() == 2) && (shares.get(1).getTeller() == 3)));
+    Mockito.verify(this.cryptographyHelper, Mockito.never()).decryptCommitments(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any(),
+        Mockito.any());
+  }
+
+  @Test
+  public void testDecryptCommitmentsNoPublish() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions createElectionParametersOptions =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(createElectionParametersOptions);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final DecryptCommitmentsShellComponent decryptCommitmentsShellComponent = new DecryptCommitmentsShellComponent(this.cryptographyHelper);
+    decryptCommitmentsShellComponent.writeCSV(this.outputKeys, KeyPair.class, new KeyPair(null, BigInteger.valueOf(456)));
+    decryptCommitmentsShellComponent.writeCSV(this.publishVotersKeys, VoterKeyPairs.class, new ArrayList<VoterKeyPairs>(), JacksonViews.Public.class);
+    decryptCommitmentsShellComponent.writeCSV(this.shuffledTrackerNumbers, TrackerNumber.class, new ArrayList<TrackerNumber>(), JacksonViews.Public.class);
+    decryptCommitmentsShellComponent.writeCSV(this.publishCommitments, Commitment.class, new ArrayList<Commitment>(), JacksonViews.Public.class);
+
+    this.exception.expect(RuntimeException.class);
+    decryptCommitmentsShellComponent.decryptCommitments(new DecryptCommitmentsShellComponent.DecryptCommitmentsOptions(
+        Arrays.asList(this.publishParams, this.outputKeys), 1, this.publishVotersKeys, this.shuffledTrackerNumbers,
+        Collections.singletonList(this.publishCommitments), null, null, null));
+  }
 }
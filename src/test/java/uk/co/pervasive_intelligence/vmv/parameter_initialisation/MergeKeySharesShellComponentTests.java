@@ -0,0 +1,175 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.parameter_initialisation;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyPair;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyShareCommitments;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.KeyShareDeal;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Merge key shares tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class MergeKeySharesShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File keyShareDeal1 = new File("key-share-deal-1.json");
+
+  private final File keyShareDeal2 = new File("key-share-deal-2.json");
+
+  private final File keyShareDeal3 = new File("key-share-deal-3.json");
+
+  private final File localKeyShareDeal1 = new File("local-deal-1.json");
+
+  private final File localKeyShareDeal2 = new File("local-deal-2.json");
+
+  private final File localKeyShareDeal3 = new File("local-deal-3.json");
+
+  private final File outputKeys = new File("election-keys.csv");
+
+  private final File publishCommitments1 = new File("key-share-commitments-1.json");
+
+  private final File publishCommitments2 = new File("key-share-commitments-2.json");
+
+  private final File publishCommitments3 = new File("key-share-commitments-3.json");
+
+  private final File publishKeys = new File("public-election-keys.csv");
+
+  private final File publishParams = new File("public-election-params.csv");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Before
+  @After
+  public void setUp() {
+    this.publishParams.delete();
+
+    this.publishCommitments1.delete();
+    this.publishCommitments2.delete();
+    this.publishCommitments3.delete();
+
+    this.keyShareDeal1.delete();
+    this.keyShareDeal2.delete();
+    this.keyShareDeal3.delete();
+
+    this.localKeyShareDeal1.delete();
+    this.localKeyShareDeal2.delete();
+    this.localKeyShareDeal3.delete();
+
+    this.outputKeys.delete();
+    this.publishKeys.delete();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testMergeKeyShares() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final int teller = 2;
+    final ObjectMapper mapper = new ObjectMapper();
+    final List<File> publishCommitments = Arrays.asList(this.publishCommitments1, this.publishCommitments2, this.publishCommitments3);
+    final List<File> keyShareDeals = Arrays.asList(this.keyShareDeal1, this.keyShareDeal2, this.keyShareDeal3);
+
+    for (int i = 0; i < publishCommitments.size(); i++) {
+      mapper.writeValue(publishCommitments.get(i), new KeyShareCommitments(i + 1, Arrays.asList(BigInteger.valueOf(i + 2), BigInteger.valueOf(i + 3))));
+      mapper.writeValue(keyShareDeals.get(i), new KeyShareDeal(i + 1, teller, BigInteger.valueOf(i + 4)));
+    }
+
+    Mockito.when(this.cryptographyHelper.getKeyShareDealFiles(Mockito.isNotNull(), Mockito.eq(teller))).thenReturn(new File[] {
+        this.localKeyShareDeal1, this.localKeyShareDeal2, this.localKeyShareDeal3
+    });
+
+    final KeyPair keyPair = new KeyPair(null, BigInteger.valueOf(456));
+    Mockito.when(this.cryptographyHelper.mergeKeyShares(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(keyPair);
+
+    final MergeKeySharesShellComponent mergeKeySharesShellComponent = new MergeKeySharesShellComponent(this.cryptographyHelper);
+    assertThat(mergeKeySharesShellComponent).isNotNull();
+
+    assertThat(this.localKeyShareDeal1.exists()).isFalse();
+    assertThat(this.outputKeys.exists()).isFalse();
+    assertThat(this.publishKeys.exists()).isFalse();
+
+    mergeKeySharesShellComponent.mergeKeyShares(new MergeKeySharesShellComponent.MergeKeySharesOptions(this.publishParams, teller, publishCommitments,
+        keyShareDeals, this.outputKeys, this.publishKeys));
+
+    assertThat(this.localKeyShareDeal1.exists()).isTrue();
+    assertThat(this.localKeyShareDeal2.exists()).isTrue();
+    assertThat(this.localKeyShareDeal3.exists()).isTrue();
+    assertThat(mapper.readValue(this.localKeyShareDeal3, KeyShareDeal.class).getShare()).isEqualTo(BigInteger.valueOf(6));
+
+    assertThat(this.outputKeys.exists()).isTrue();
+    assertThat(this.publishKeys.exists()).isTrue();
+
+    final List<KeyPair> publishKeys = (List<KeyPair>) mergeKeySharesShellComponent.readCSV(this.publishKeys, KeyPair.class, JacksonViews.Public.class);
+    assertThat(publishKeys.size()).isEqualTo(1);
+    assertThat(publishKeys.get(0).getPublicKey()).isEqualTo(keyPair.getPublicKey());
+
+    Mockito.verify(this.cryptographyHelper).mergeKeyShares(Mockito.isNotNull(), Mockito.eq(teller),
+        Mockito.argThat(commitments -> (commitments.size() == 3) && (commitments.get(2).getTeller() == 3)));
+  }
+
+  @Test
+  public void testMergeKeySharesWrongNumberOfDeals() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final int teller = 2;
+    Mockito.when(this.cryptographyHelper.getKeyShareDealFiles(Mockito.isNotNull(), Mockito.eq(teller))).thenReturn(new File[] {
+        this.localKeyShareDeal1, this.localKeyShareDeal2, this.localKeyShareDeal3
+    });
+
+    final MergeKeySharesShellComponent mergeKeySharesShellComponent = new MergeKeySharesShellComponent(this.cryptographyHelper);
+
+    this.exception.expect(RuntimeException.class);
+    mergeKeySharesShellComponent.mergeKeyShares(new MergeKeySharesShellComponent.MergeKeySharesOptions(this.publishParams, teller,
+        Collections.singletonList(this.publishCommitments1), Collections.singletonList(this.keyShareDeal1), this.outputKeys, this.publishKeys));
+  }
+}
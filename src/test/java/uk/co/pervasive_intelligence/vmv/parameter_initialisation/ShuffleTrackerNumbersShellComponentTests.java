@@ -137,7 +137,7 @@ public class ShuffleTrackerNumbersShellComponentTests extends BaseTestCase {
     final int teller = 1;
     final List<TrackerNumber> shuffledTrackerNumbers = new ArrayList<>(trackerNumbers);
     final File proofFile = Files.createTempFile(null, null).toFile();
-    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, proofFile));
+    Mockito.when(this.cryptographyHelper.shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull())).thenReturn(new ProofWrapper<>(shuffledTrackerNumbers, proofFile));
 
     final ShuffleTrackerNumbersShellComponent shuffleTrackerNumbersShellComponent = new ShuffleTrackerNumbersShellComponent(this.cryptographyHelper);
     assertThat(shuffleTrackerNumbersShellComponent).isNotNull();
@@ -146,7 +146,7 @@ public class ShuffleTrackerNumbersShellComponentTests extends BaseTestCase {
     assertThat(this.shuffleProofs.exists()).isFalse();
 
     final ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions shuffleTrackerNumbersOptions =
-        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(this.publishParams, teller, this.publishTrackerNumbers,
+        new ShuffleTrackerNumbersShellComponent.ShuffleTrackerNumbersOptions(Arrays.asList(this.publishParams, this.publishKeys), teller, this.publishTrackerNumbers,
             Arrays.asList(this.shuffledTrackerNumbers, this.shuffleProofs));
     shuffleTrackerNumbersShellComponent.shuffleTrackerNumbers(shuffleTrackerNumbersOptions);
 
@@ -169,7 +169,7 @@ public class ShuffleTrackerNumbersShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper, Mockito.times(4)).getElectionParametersClass();
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).createTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.anyInt());
-    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).shuffleTrackerNumbers(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
 
     proofFile.delete();
   }
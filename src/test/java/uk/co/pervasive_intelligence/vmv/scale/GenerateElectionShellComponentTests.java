@@ -0,0 +1,73 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.VoteOption;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generate election tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class GenerateElectionShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File ersVoteOptions = new File("ers-vote-options.csv");
+
+  private final File ersVoters = new File("ers-voters.csv");
+
+  @Before
+  @After
+  public void setUp() {
+    this.ersVoteOptions.delete();
+    this.ersVoters.delete();
+  }
+
+  @Test
+  public void testGenerateElection() throws Exception {
+    final GenerateElectionShellComponent component = new GenerateElectionShellComponent();
+    assertThat(component).isNotNull();
+
+    final int numberOfVoters = 100;
+    final List<File> output = Arrays.asList(this.ersVoters, this.ersVoteOptions);
+    component.generateElection(new GenerateElectionShellComponent.GenerateElectionOptions(numberOfVoters, 3, output));
+
+    final List<Voter> voters = component.readCSV(this.ersVoters, Voter.class, JacksonViews.ERSImport.class, new ArrayList<>());
+    assertThat(voters).hasSize(numberOfVoters);
+
+    for (int i = 0; i < numberOfVoters; i++) {
+      assertThat(voters.get(i).getId()).isEqualTo((long) i);
+    }
+
+    final List<VoteOption> voteOptions = component.readCSV(this.ersVoteOptions, VoteOption.class, JacksonViews.ERSImport.class, new ArrayList<>());
+    assertThat(voteOptions).extracting(VoteOption::getOption).containsExactly("Option 1", "Option 2", "Option 3");
+  }
+
+  @Test
+  public void testGenerateElectionInvalid() {
+    final GenerateElectionShellComponent component = new GenerateElectionShellComponent();
+
+    this.exception.expect(RuntimeException.class);
+    component.generateElection(new GenerateElectionShellComponent.GenerateElectionOptions(0, 3, Arrays.asList(this.ersVoters, this.ersVoteOptions)));
+  }
+}
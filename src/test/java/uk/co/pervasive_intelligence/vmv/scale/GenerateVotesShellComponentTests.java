@@ -0,0 +1,91 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.Voter;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Generate votes tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class GenerateVotesShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File ersAssociatedVoters = new File("ers-associated-voters.csv");
+
+  private final File ersPlainTextVoters = new File("ers-plaintext-voters.csv");
+
+  private final File ersVoteOptions = new File("ers-vote-options.csv");
+
+  private final File ersVoters = new File("ers-voters.csv");
+
+  @Before
+  @After
+  public void setUp() {
+    this.ersAssociatedVoters.delete();
+    this.ersPlainTextVoters.delete();
+    this.ersVoteOptions.delete();
+    this.ersVoters.delete();
+  }
+
+  @Test
+  public void testGenerateVotes() throws Exception {
+    final int numberOfVoters = 100;
+    final GenerateElectionShellComponent generateElectionShellComponent = new GenerateElectionShellComponent();
+    generateElectionShellComponent.generateElection(new GenerateElectionShellComponent.GenerateElectionOptions(numberOfVoters, 3,
+        Arrays.asList(this.ersVoters, this.ersVoteOptions)));
+
+    // Stand in for the associated voters.
+    final List<Voter> voters = generateElectionShellComponent.readCSV(this.ersVoters, Voter.class, JacksonViews.ERSImport.class, new ArrayList<>());
+    generateElectionShellComponent.writeCSV(this.ersAssociatedVoters, Voter.class, voters, JacksonViews.ERSExport.class);
+
+    final GenerateVotesShellComponent component = new GenerateVotesShellComponent();
+    assertThat(component).isNotNull();
+
+    component.generateVotes(new GenerateVotesShellComponent.GenerateVotesOptions(this.ersAssociatedVoters, this.ersVoteOptions, 20, 1,
+        this.ersPlainTextVoters));
+
+    // Some voters abstain and the rest vote for one of the options.
+    final List<Voter> plainTextVoters = component.readCSV(this.ersPlainTextVoters, Voter.class, JacksonViews.ERSVoteImport.class, new ArrayList<>());
+    assertThat(plainTextVoters).hasSize(numberOfVoters);
+    assertThat(plainTextVoters).filteredOn(voter -> (voter.getPlainTextVote() == null) || voter.getPlainTextVote().isEmpty()).isNotEmpty();
+    assertThat(plainTextVoters).filteredOn(voter -> (voter.getPlainTextVote() != null) && !voter.getPlainTextVote().isEmpty())
+        .extracting(Voter::getPlainTextVote).isNotEmpty().isSubsetOf("Option 1", "Option 2", "Option 3");
+
+    // The same seed generates the same votes.
+    component.generateVotes(new GenerateVotesShellComponent.GenerateVotesOptions(this.ersAssociatedVoters, this.ersVoteOptions, 20, 1,
+        this.ersPlainTextVoters));
+    assertThat(component.readCSV(this.ersPlainTextVoters, Voter.class, JacksonViews.ERSVoteImport.class, new ArrayList<>()))
+        .extracting(Voter::getPlainTextVote).isEqualTo(plainTextVoters.stream().map(Voter::getPlainTextVote).collect(Collectors.toList()));
+  }
+
+  @Test
+  public void testGenerateVotesInvalid() {
+    final GenerateVotesShellComponent component = new GenerateVotesShellComponent();
+
+    this.exception.expect(RuntimeException.class);
+    component.generateVotes(new GenerateVotesShellComponent.GenerateVotesOptions(this.ersAssociatedVoters, this.ersVoteOptions, 101, 0,
+        this.ersPlainTextVoters));
+  }
+}
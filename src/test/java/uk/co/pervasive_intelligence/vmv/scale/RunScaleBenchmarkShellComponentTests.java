@@ -0,0 +1,106 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.scale;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run scale benchmark tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class RunScaleBenchmarkShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File directory = new File("scale-benchmark");
+
+  @Mock
+  private ApplicationContext context;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() throws Exception {
+    FileUtils.deleteDirectory(this.directory);
+  }
+
+  @Test
+  public void testRunScaleBenchmark() throws Exception {
+    // Run headless so that only the components needed by the elections are created.
+    assertThat(new VMVCommandLine().run("run-scale-benchmark", "--number-of-voters", "5", "10", "--number-of-options", "3", "--dsa-l", "1024", "--dsa-n",
+        "160", "--directory", this.directory.getPath())).isEqualTo(0);
+
+    // Each election runs to completion in its own directory.
+    assertThat(Files.readAllLines(new File(this.directory, "voters-5/public-mixed-voters-1.csv").toPath())).hasSize(5 + 1);
+    assertThat(Files.readAllLines(new File(this.directory, "voters-10/public-mixed-voters-1.csv").toPath())).hasSize(10 + 1);
+
+    // Every phase of each election is reported, with the operations within it and the scaling of the larger election.
+    final String report = new String(Files.readAllBytes(new File(this.directory, RunScaleBenchmarkShellComponent.DEFAULT_REPORT).toPath()),
+        StandardCharsets.UTF_8);
+    assertThat(report).contains("\"generate-election\"", "\"create-commitments\"", "\"encrypt-votes\"", "\"mix-votes\"", "\"verify-proofs\"",
+        "\"peakHeap\"", "\"cpuTime\"", "\"public-encrypted-voters.csv\"", "\"exponent\"", "\"self-check\"");
+  }
+
+  @Test
+  public void testRunScaleBenchmarkTellers() throws Exception {
+    System.setProperty("vmv.verificatum.simulate", "true");
+
+    try {
+      assertThat(new VMVCommandLine().run("run-scale-benchmark", "--number-of-voters", "5", "--number-of-tellers", "2", "--threshold-tellers", "2",
+          "--number-of-options", "3", "--dsa-l", "1024", "--dsa-n", "160", "--directory", this.directory.getPath())).isEqualTo(0);
+    }
+    finally {
+      System.clearProperty("vmv.verificatum.simulate");
+    }
+
+    // Each teller writes its own copy of the files it creates.
+    final File election = new File(this.directory, "voters-5");
+
+    for (int teller = 1; teller <= 2; teller++) {
+      assertThat(new File(election, "election-keys-" + teller + ".csv")).exists();
+      assertThat(Files.readAllLines(new File(election, "shuffled-tracker-numbers-" + teller + ".csv").toPath())).hasSize(5 + 1);
+      assertThat(Files.readAllLines(new File(election, "public-voters-" + teller + ".csv").toPath())).hasSize(5 + 1);
+      assertThat(Files.readAllLines(new File(election, "public-mixed-voters-" + teller + ".csv").toPath())).hasSize(5 + 1);
+    }
+
+    assertThat(Files.readAllLines(new File(election, "ers-associated-voters.csv").toPath())).hasSize(5 + 1);
+  }
+
+  @Test
+  public void testRunScaleBenchmarkOneTeller() {
+    final RunScaleBenchmarkShellComponent component = new RunScaleBenchmarkShellComponent(this.context, new JCommanderParameterResolver(),
+        this.messageSource);
+    assertThat(component).isNotNull();
+
+    this.exception.expect(RuntimeException.class);
+    component.runScaleBenchmark(new RunScaleBenchmarkShellComponent.RunScaleBenchmarkOptions(Arrays.asList(5, 10), 1, 1, 3, 1024, 160, this.directory, null));
+  }
+}
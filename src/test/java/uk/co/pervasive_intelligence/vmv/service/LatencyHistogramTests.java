@@ -0,0 +1,67 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Latency histogram tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class LatencyHistogramTests extends BaseTestCase {
+
+  @Test
+  public void testBucket() {
+    // Every latency lies within its bucket, and the buckets are contiguous.
+    long lower = 0;
+
+    for (int bucket = 0; bucket < 500; bucket++) {
+      final long upper = LatencyHistogram.upperBound(bucket);
+      assertThat(LatencyHistogram.bucket(lower)).isEqualTo(bucket);
+      assertThat(LatencyHistogram.bucket(upper)).isEqualTo(bucket);
+      lower = upper + 1;
+    }
+
+    // Large latencies share the last bucket.
+    assertThat(LatencyHistogram.bucket(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.bucket(Long.MAX_VALUE / 2));
+  }
+
+  @Test
+  public void testEmpty() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    assertThat(histogram.getCount()).isEqualTo(0);
+    assertThat(histogram.getPercentile(99)).isEqualTo(0);
+    assertThat(histogram.getMean()).isEqualTo(0);
+  }
+
+  @Test
+  public void testPercentile() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    // 1 to 1000 milliseconds, with every tenth failing.
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i), (i % 10) == 0);
+    }
+
+    assertThat(histogram.getCount()).isEqualTo(1000);
+    assertThat(histogram.getErrors()).isEqualTo(100);
+    assertThat(histogram.getMaximum()).isEqualTo(1000d);
+    assertThat(histogram.getMean()).isCloseTo(500.5, within(0.001));
+    assertThat(histogram.getPercentile(50)).isCloseTo(500d, within(500d * 0.07));
+    assertThat(histogram.getPercentile(90)).isCloseTo(900d, within(900d * 0.07));
+    assertThat(histogram.getPercentile(99)).isCloseTo(990d, within(990d * 0.07));
+    assertThat(histogram.getPercentile(100)).isEqualTo(1000d);
+    assertThat(histogram.toMap()).containsKeys("count", "errors", "p50", "p99", "max");
+  }
+}
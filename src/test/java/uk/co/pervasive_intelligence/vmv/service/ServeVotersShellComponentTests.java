@@ -0,0 +1,49 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Serve voters tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class ServeVotersShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Test
+  public void testServeVotersMissing() {
+    final ServeVotersShellComponent component = new ServeVotersShellComponent(this.cryptographyHelper, this.messageSource);
+    assertThat(component).isNotNull();
+
+    this.exception.expect(RuntimeException.class);
+    component.serveVoters(new ServeVotersShellComponent.ServeVotersOptions(Arrays.asList(new File("missing-params.csv"), new File("missing-keys.csv")),
+        new File("missing-voters.csv"), new File("missing-tracker-numbers.csv"), null, 0, 1, 1, 1));
+  }
+}
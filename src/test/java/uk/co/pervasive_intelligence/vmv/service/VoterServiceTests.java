@@ -0,0 +1,133 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Voter service tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class VoterServiceTests extends BaseTestCase {
+
+  private static final int VOTERS = 20;
+
+  private VoterServiceClient client;
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  private VoterService service;
+
+  @Before
+  public void setUp() throws Exception {
+    final List<VoterKeyPairs> votersKeyPairs = new ArrayList<>();
+    final List<Voter> ballots = new ArrayList<>();
+    final Map<BigInteger, EncryptProof> proofs = new HashMap<>();
+
+    for (int i = 0; i < VOTERS; i++) {
+      final VoterKeyPairs pairs = new VoterKeyPairs(new KeyPair(BigInteger.valueOf(i), BigInteger.valueOf(100 + i)), new KeyPair(null,
+          BigInteger.valueOf(200 + i)));
+      votersKeyPairs.add(pairs);
+
+      // Only the first half of the voters have voted.
+      if (i < (VOTERS / 2)) {
+        final Voter voter = new Voter();
+        voter.setVoterKeyPairs(pairs);
+        voter.setEncryptedVote(new byte[] {(byte) i});
+        voter.setEncryptedVoteSignature(new byte[] {(byte) (i + 1)});
+        ballots.add(voter);
+        proofs.put(BigInteger.valueOf(100 + i), new EncryptProof(BigInteger.ONE, BigInteger.ONE, BigInteger.ONE, BigInteger.ONE, new byte[] {(byte) (i + 1)}));
+      }
+    }
+
+    final List<TrackerNumber> trackerNumbers = Arrays.asList(new TrackerNumber(1234, BigInteger.TEN, null), new TrackerNumber(5678, BigInteger.ONE, null));
+
+    Mockito.when(this.cryptographyHelper.decryptTrackerNumberInGroup(ArgumentMatchers.any(), ArgumentMatchers.eq(BigInteger.ONE), ArgumentMatchers.any(),
+        ArgumentMatchers.any())).thenReturn(BigInteger.TEN);
+    Mockito.when(this.cryptographyHelper.decryptTrackerNumberInGroup(ArgumentMatchers.any(), ArgumentMatchers.eq(BigInteger.TEN), ArgumentMatchers.any(),
+        ArgumentMatchers.any())).thenReturn(BigInteger.valueOf(3));
+    Mockito.when(this.cryptographyHelper.verifyEncryptProof(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+        ArgumentMatchers.any())).thenReturn(true);
+
+    this.service = new VoterService(this.cryptographyHelper, null, null, votersKeyPairs, trackerNumbers, ballots, proofs);
+    this.service.start(0, 4, 10);
+    this.client = new VoterServiceClient("http://localhost:" + this.service.getPort() + "/");
+  }
+
+  @After
+  public void tearDown() {
+    this.service.stop();
+  }
+
+  @Test
+  public void testBallot() throws Exception {
+    assertThat(this.client.send(VoterServiceClient.ballotRequest(BigInteger.valueOf(100)))).isEqualTo(200);
+
+    // The voter has not voted, or is unknown.
+    assertThat(this.client.send(VoterServiceClient.ballotRequest(BigInteger.valueOf(100 + VOTERS - 1)))).isEqualTo(404);
+    assertThat(this.client.send(VoterServiceClient.ballotRequest(BigInteger.ONE))).isEqualTo(404);
+
+    assertThat(this.service.verifyBallot(BigInteger.valueOf(101))).isTrue();
+    assertThat(this.service.getBallotLatencies().getCount()).isEqualTo(3);
+    assertThat(this.service.getBallotLatencies().getErrors()).isEqualTo(2);
+  }
+
+  @Test
+  public void testLoadTest() throws Exception {
+    final List<String> requests = new ArrayList<>();
+
+    for (int i = 0; i < VOTERS; i++) {
+      requests.add(VoterServiceClient.trackerNumberRequest(BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(100 + i)));
+    }
+
+    // More clients than service threads and queue, so that some wait to be accepted.
+    final LatencyHistogram latencies = this.client.loadTest(requests, 200, 16);
+
+    assertThat(latencies.getCount()).isEqualTo(200);
+    assertThat(latencies.getErrors()).isEqualTo(0);
+    assertThat(this.service.getTrackerNumberLatencies().getCount()).isEqualTo(200);
+    assertThat(this.client.send(VoterService.METRICS_PATH)).isEqualTo(200);
+  }
+
+  @Test
+  public void testTrackerNumber() throws Exception {
+    assertThat(this.service.lookupTrackerNumber(BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(105)).getTrackerNumber()).isEqualTo(1234);
+    assertThat(this.client.send(VoterServiceClient.trackerNumberRequest(BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(105)))).isEqualTo(200);
+
+    // Only the voter's own key pair is used, and the tracker number is looked up rather than searched for.
+    Mockito.verify(this.cryptographyHelper, Mockito.times(2)).decryptTrackerNumberInGroup(ArgumentMatchers.any(), ArgumentMatchers.eq(BigInteger.ONE),
+        ArgumentMatchers.any(), ArgumentMatchers.argThat(keyPair -> keyPair.getPublicKey().equals(BigInteger.valueOf(105))));
+    Mockito.verify(this.cryptographyHelper, Mockito.never()).decryptTrackerNumber(ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any(),
+        ArgumentMatchers.any(), ArgumentMatchers.any(), ArgumentMatchers.any());
+
+    // Unknown voter, invalid request and unknown tracker number.
+    assertThat(this.client.send(VoterServiceClient.trackerNumberRequest(BigInteger.ONE, BigInteger.ONE, BigInteger.ONE))).isEqualTo(404);
+    assertThat(this.client.send(VoterService.TRACKER_NUMBER_PATH + "?alpha=1&beta=x&public-key=105")).isEqualTo(400);
+    assertThat(this.client.send(VoterService.TRACKER_NUMBER_PATH + "?alpha=1")).isEqualTo(400);
+    assertThat(this.client.send(VoterServiceClient.trackerNumberRequest(BigInteger.TEN, BigInteger.ONE, BigInteger.valueOf(105)))).isEqualTo(422);
+
+    assertThat(this.service.getTrackerNumberLatencies().getCount()).isEqualTo(5);
+    assertThat(this.service.getTrackerNumberLatencies().getErrors()).isEqualTo(4);
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.ElementEncoding;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.EncryptProof;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Retrieve proof tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class RetrieveProofShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File output = new File("retrieved-proof.csv");
+
+  private final File proofs = new File("encrypt-proofs.zip");
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() {
+    this.output.delete();
+    this.proofs.delete();
+  }
+
+  @Test
+  public void testRetrieveProof() throws Exception {
+    final List<EncryptProof> encryptProofs = new ArrayList<>();
+    final List<BigInteger> keys = new ArrayList<>();
+
+    for (int i = 0; i < 50; i++) {
+      encryptProofs.add(new EncryptProof(BigInteger.valueOf(i), BigInteger.ONE, BigInteger.ONE, BigInteger.ONE, new byte[] {(byte) i}));
+      keys.add(BigInteger.valueOf(100 + i));
+    }
+
+    ProofArchive.write(this.proofs, EncryptProof.class, encryptProofs, keys, JacksonViews.Public.class, ElementEncoding.DECIMAL, 10);
+
+    final RetrieveProofShellComponent component = new RetrieveProofShellComponent(this.messageSource);
+    assertThat(component).isNotNull();
+
+    component.retrieveProof(new RetrieveProofShellComponent.RetrieveProofOptions(this.proofs, "142", null, this.output));
+
+    final List<String> lines = Files.readAllLines(this.output.toPath());
+    assertThat(lines).hasSize(2);
+    assertThat(lines.get(1)).contains("42");
+
+    component.retrieveProof(new RetrieveProofShellComponent.RetrieveProofOptions(this.proofs, null, 7, this.output));
+    assertThat(Files.readAllLines(this.output.toPath()).get(1)).contains("7");
+
+    this.exception.expect(RuntimeException.class);
+    component.retrieveProof(new RetrieveProofShellComponent.RetrieveProofOptions(this.proofs, "99", null, this.output));
+  }
+
+  @Test
+  public void testRetrieveProofNoKeyOrPosition() {
+    final RetrieveProofShellComponent component = new RetrieveProofShellComponent(this.messageSource);
+
+    this.exception.expect(RuntimeException.class);
+    component.retrieveProof(new RetrieveProofShellComponent.RetrieveProofOptions(this.proofs, null, null, this.output));
+  }
+}
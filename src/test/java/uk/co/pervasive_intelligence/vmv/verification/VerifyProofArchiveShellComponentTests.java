@@ -0,0 +1,124 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.ProofArchive;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verify proof archive tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class VerifyProofArchiveShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File commitments = new File("public-commitments.csv");
+
+  private final File keys = new File("public-election-keys.csv");
+
+  private final File params = new File("public-election-params.csv");
+
+  private final File proofs = new File("commitment-proofs.zip");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() {
+    this.commitments.delete();
+    this.keys.delete();
+    this.params.delete();
+    this.proofs.delete();
+  }
+
+  @Test
+  public void testVerifyProofArchive() throws Exception {
+    final DHParametersWrapper parameters = new DHParametersWrapper(new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null));
+    final BaseShellComponent shellComponent = new BaseShellComponent() {
+    };
+    shellComponent.writeCSV(this.params, DHParametersWrapper.class, parameters, JacksonViews.Public.class);
+    shellComponent.writeCSV(this.keys, KeyPair.class, new KeyPair(BigInteger.ONE, BigInteger.TEN), JacksonViews.Public.class);
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(DHParametersWrapper.class);
+
+    // The proofs are in the same order as the commitments.
+    final List<Commitment> publicCommitments = new ArrayList<>();
+    final List<CommitmentProof> commitmentProofs = new ArrayList<>();
+
+    for (int i = 0; i < 25; i++) {
+      final Commitment commitment = new Commitment();
+      commitment.setEncryptedG(new byte[] {1});
+      commitment.setEncryptedH(new byte[] {2});
+      commitment.setPublicKey(BigInteger.valueOf(100 + i));
+      publicCommitments.add(commitment);
+
+      commitmentProofs.add(new CommitmentProof(BigInteger.valueOf(100 + i), BigInteger.ONE, BigInteger.ONE, BigInteger.ONE, BigInteger.ONE, BigInteger.ONE,
+          new Proof(), new Proof(), new Proof(), new Proof(), new Proof(), new Proof(), new Proof(), new Proof(), new Proof()));
+    }
+
+    shellComponent.writeCSV(this.commitments, Commitment.class, publicCommitments, JacksonViews.Public.class);
+    ProofArchive.write(this.proofs, CommitmentProof.class, commitmentProofs, null, JacksonViews.Public.class, ElementEncoding.DECIMAL, 10);
+
+    Mockito.when(this.cryptographyHelper.verifyCommitmentProof(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
+        Mockito.isNotNull())).thenAnswer(invocation -> ((BigInteger) invocation.getArgument(2)).equals(
+        ((CommitmentProof) invocation.getArgument(4)).getA1Dash()));
+
+    final VerifyProofArchiveShellComponent component = new VerifyProofArchiveShellComponent(this.cryptographyHelper, this.messageSource);
+    assertThat(component).isNotNull();
+
+    component.verifyProofArchive(new VerifyProofArchiveShellComponent.VerifyProofArchiveOptions(Arrays.asList(this.params, this.keys), this.proofs,
+        this.commitments));
+    Mockito.verify(this.cryptographyHelper, Mockito.times(publicCommitments.size())).verifyCommitmentProof(Mockito.isNotNull(), Mockito.isNotNull(),
+        Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull());
+
+    // A proof which does not match its commitment fails the archive.
+    publicCommitments.get(20).setPublicKey(BigInteger.ONE);
+    shellComponent.writeCSV(this.commitments, Commitment.class, publicCommitments, JacksonViews.Public.class);
+
+    this.exception.expect(RuntimeException.class);
+    component.verifyProofArchive(new VerifyProofArchiveShellComponent.VerifyProofArchiveOptions(Arrays.asList(this.params, this.keys), this.proofs,
+        this.commitments));
+  }
+
+  @Test
+  public void testVerifyProofArchiveMissing() {
+    final VerifyProofArchiveShellComponent component = new VerifyProofArchiveShellComponent(this.cryptographyHelper, this.messageSource);
+
+    this.exception.expect(RuntimeException.class);
+    component.verifyProofArchive(new VerifyProofArchiveShellComponent.VerifyProofArchiveOptions(Arrays.asList(new File("missing-params.csv"),
+        new File("missing-keys.csv")), new File("missing-proofs.zip"), new File("missing-commitments.csv")));
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.verification;
+
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseShellComponent;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.JacksonViews;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.*;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Verify proofs tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class VerifyProofsShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File keys = new File("public-election-keys.csv");
+
+  private final File output = new File("verify-proofs.csv");
+
+  private final File params = new File("public-election-params.csv");
+
+  private final File shuffledTrackerNumbers = new File("shuffled-tracker-numbers.csv");
+
+  private final File trackerNumbers = new File("public-tracker-numbers.csv");
+
+  private final File voters = new File("public-encrypted-voters.csv");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() {
+    this.keys.delete();
+    this.output.delete();
+    this.params.delete();
+    this.shuffledTrackerNumbers.delete();
+    this.trackerNumbers.delete();
+    this.voters.delete();
+  }
+
+  /**
+   * Writes the public election files.
+   *
+   * @throws Exception if the files could not be written.
+   */
+  private void writeElection() throws Exception {
+    final DHParametersWrapper parameters = new DHParametersWrapper(new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null));
+    final BaseShellComponent shellComponent = new BaseShellComponent() {
+    };
+    shellComponent.writeCSV(this.params, DHParametersWrapper.class, parameters, JacksonViews.Public.class);
+    shellComponent.writeCSV(this.keys, KeyPair.class, new KeyPair(BigInteger.ONE, BigInteger.TEN), JacksonViews.Public.class);
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(DHParametersWrapper.class);
+  }
+
+  @Test
+  public void testVerifyProofs() throws Exception {
+    this.writeElection();
+
+    // Publish the tracker numbers before and after the shuffle, and the encrypted votes of which only those with a tracker number are mixed.
+    final BaseShellComponent shellComponent = new BaseShellComponent() {
+    };
+    final CipherText first = new CipherText(BigInteger.valueOf(3), BigInteger.valueOf(4));
+    final CipherText second = new CipherText(BigInteger.valueOf(5), BigInteger.valueOf(6));
+    shellComponent.writeCSV(this.trackerNumbers, TrackerNumber.class, Arrays.asList(new TrackerNumber(1, BigInteger.ONE, first.toByteArray()),
+        new TrackerNumber(2, BigInteger.TEN, second.toByteArray())), JacksonViews.RestrictedPublic.class);
+    shellComponent.writeCSV(this.shuffledTrackerNumbers, TrackerNumber.class, Arrays.asList(new TrackerNumber(null, null, second.toByteArray()),
+        new TrackerNumber(null, null, first.toByteArray())), JacksonViews.Public.class);
+
+    final List<Voter> encryptedVoters = new ArrayList<>();
+    final Voter voter = new Voter();
+    voter.setTrackerNumber(new TrackerNumber(null, null, first.toByteArray()));
+    voter.setEncryptedVote(second.toByteArray());
+    encryptedVoters.add(voter);
+    encryptedVoters.add(new Voter());
+    shellComponent.writeCSV(this.voters, Voter.class, encryptedVoters, JacksonViews.Vote.class);
+
+    final List<File> proofs = Arrays.asList(new File("shuffle-proof.zip"), new File("mix-proof.zip"));
+    Mockito.when(this.cryptographyHelper.verifyProofs(Mockito.argThat(statement -> BigInteger.TEN.equals(statement.getPublicKey())
+        && Arrays.asList(first, second).equals(statement.getTrackerNumbers()) && Arrays.asList(second, first).equals(statement.getShuffledTrackerNumbers())
+        && Arrays.asList(first, second).equals(statement.getVotes())), Mockito.eq(proofs))).thenReturn(Arrays.asList(
+        new ProofVerification("shuffle-proof.zip", "shuffling", "shuffle", 1, true, 1000, null),
+        new ProofVerification("mix-proof.zip", "mixing", "mix", 2, true, 2000, null)));
+
+    final VerifyProofsShellComponent component = new VerifyProofsShellComponent(this.cryptographyHelper, this.messageSource);
+    assertThat(component).isNotNull();
+
+    component.verifyProofs(new VerifyProofsShellComponent.VerifyProofsOptions(Arrays.asList(this.params, this.keys), null,
+        Arrays.asList(this.trackerNumbers, this.shuffledTrackerNumbers), this.voters, proofs, this.output));
+
+    final List<String> lines = Files.readAllLines(this.output.toPath());
+    assertThat(lines).hasSize(3);
+    assertThat(lines.get(0)).isEqualTo("\"proof\",\"type\",\"auxsid\",\"width\",\"verified\",\"duration\",\"error\"");
+    assertThat(lines.get(2)).contains("mix-proof.zip", "mixing", "2000");
+  }
+
+  @Test
+  public void testVerifyProofsFailed() throws Exception {
+    this.writeElection();
+
+    final List<File> proofs = Collections.singletonList(new File("decrypt-proof.zip"));
+    Mockito.when(this.cryptographyHelper.verifyProofs(Mockito.any(), Mockito.eq(proofs))).thenReturn(Collections.singletonList(
+        new ProofVerification("decrypt-proof.zip", "decryption", "decrypt", 1, false, 500, "Invalid proof")));
+
+    final VerifyProofsShellComponent component = new VerifyProofsShellComponent(this.cryptographyHelper, this.messageSource);
+
+    // The report is still written even though the command fails.
+    this.exception.expect(RuntimeException.class);
+
+    try {
+      component.verifyProofs(new VerifyProofsShellComponent.VerifyProofsOptions(Arrays.asList(this.params, this.keys), null, null, null, proofs,
+          this.output));
+    }
+    finally {
+      assertThat(this.output).exists();
+    }
+  }
+}
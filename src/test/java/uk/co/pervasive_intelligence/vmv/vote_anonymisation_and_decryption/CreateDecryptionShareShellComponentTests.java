@@ -0,0 +1,131 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.CipherText;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DecryptionShare;
+import uk.co.pervasive_intelligence.vmv.parameter_initialisation.CreateElectionParametersShellComponent;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Create decryption share tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class CreateDecryptionShareShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File cipherTexts = new File("shuffled-votes.csv");
+
+  private final File publishDecryptionShare = new File("decryption-share-1.json");
+
+  private final File publishParams = new File("public-election-params.csv");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Before
+  @After
+  public void setUp() {
+    this.publishParams.delete();
+    this.cipherTexts.delete();
+    this.publishDecryptionShare.delete();
+  }
+
+  @Test
+  public void testCreateDecryptionShare() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final CreateDecryptionShareShellComponent createDecryptionShareShellComponent = new CreateDecryptionShareShellComponent(this.cryptographyHelper);
+    assertThat(createDecryptionShareShellComponent).isNotNull();
+
+    final int numberOfCipherTexts = 10;
+    final List<CipherText> cipherTexts = new ArrayList<>();
+    final List<BigInteger> factors = new ArrayList<>();
+
+    for (int i = 0; i < numberOfCipherTexts; i++) {
+      cipherTexts.add(new CipherText(BigInteger.valueOf(i + 1), BigInteger.valueOf(i + 2)));
+      factors.add(BigInteger.valueOf(i + 3));
+    }
+
+    createDecryptionShareShellComponent.writeCSV(this.cipherTexts, CipherText.class, cipherTexts);
+
+    final int teller = 1;
+    final DecryptionShare share = new DecryptionShare();
+    share.setTeller(teller);
+    share.setBatchSize(numberOfCipherTexts);
+    share.setFactors(factors);
+    share.setPublicKeyShare(BigInteger.valueOf(456));
+    Mockito.when(this.cryptographyHelper.createDecryptionShare(Mockito.isNotNull(), Mockito.eq(teller),
+        Mockito.argThat(list -> (list.size() == numberOfCipherTexts) && list.get(0).getAlpha().equals(BigInteger.ONE)))).thenReturn(share);
+
+    assertThat(this.publishDecryptionShare.exists()).isFalse();
+
+    createDecryptionShareShellComponent.createDecryptionShare(new CreateDecryptionShareShellComponent.CreateDecryptionShareOptions(this.publishParams, teller,
+        this.cipherTexts, this.publishDecryptionShare));
+
+    assertThat(this.publishDecryptionShare.exists()).isTrue();
+
+    final DecryptionShare published = new ObjectMapper().readValue(this.publishDecryptionShare, DecryptionShare.class);
+    assertThat(published.getTeller()).isEqualTo(teller);
+    assertThat(published.getFactors()).isEqualTo(factors);
+    assertThat(published.getPublicKeyShare()).isEqualTo(share.getPublicKeyShare());
+
+    Mockito.verify(this.cryptographyHelper).createDecryptionShare(Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+  }
+
+  @Test
+  public void testCreateDecryptionShareMissingCipherTexts() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions options =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(options);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final CreateDecryptionShareShellComponent createDecryptionShareShellComponent = new CreateDecryptionShareShellComponent(this.cryptographyHelper);
+
+    this.exception.expect(RuntimeException.class);
+    createDecryptionShareShellComponent.createDecryptionShare(new CreateDecryptionShareShellComponent.CreateDecryptionShareOptions(this.publishParams, 1,
+        this.cipherTexts, this.publishDecryptionShare));
+  }
+}
@@ -5,6 +5,7 @@
  */
 package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.bouncycastle.crypto.params.DHParameters;
 import org.junit.After;
 import org.junit.Before;
@@ -45,6 +46,12 @@ public class MixVotesShellComponentTests extends BaseTestCase {
   @Rule
   public final ExpectedException exception = ExpectedException.none();
 
+  private final File cipherTexts = new File("shuffled-votes.csv");
+
+  private final File decryptionShare1 = new File("decryption-share-1.json");
+
+  private final File decryptionShare2 = new File("decryption-share-2.json");
+
   private final File encryptProofs = new File("encrypt-proofs.csv");
 
   private final File ersEncryptedVoters = new File("ers-encrypted-voters.csv");
@@ -101,6 +108,10 @@ public class MixVotesShellComponentTests extends BaseTestCase {
 
     this.publishMixedVoters.delete();
     this.mixProofs.delete();
+
+    this.cipherTexts.delete();
+    this.decryptionShare1.delete();
+    this.decryptionShare2.delete();
   }
 
   @Test
@@ -193,7 +204,7 @@ public class MixVotesShellComponentTests extends BaseTestCase {
 
       return new ProofWrapper<>(voters, encryptProofFile);
     }).when(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
 
     final EncryptVotesShellComponent.EncryptVotesOptions encryptVotesOptions =
         new EncryptVotesShellComponent.EncryptVotesOptions(Arrays.asList(this.publishParams, this.publishKeys),
@@ -244,11 +255,140 @@ public class MixVotesShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).mapVoteOptions(Mockito.isNotNull(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
     Mockito.verify(this.cryptographyHelper).mixVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(), Mockito.isNotNull(),
         Mockito.isNotNull());
 
     encryptProofFile.delete();
     mixProofFile.delete();
   }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testMixVotesDecryptionShares() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions createElectionParametersOptions =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(createElectionParametersOptions);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final MixVotesShellComponent mixVotesShellComponent = new MixVotesShellComponent(this.cryptographyHelper);
+    assertThat(mixVotesShellComponent).isNotNull();
+
+    // The election public key is set by the tellers from their key shares, as output by merge-key-shares.
+    mixVotesShellComponent.writeCSV(this.outputKeys, KeyPair.class, new KeyPair(null, BigInteger.valueOf(456)));
+
+    final int numberOfVoters = 10;
+    final List<Voter> encryptedVoters = new ArrayList<>();
+    final List<TrackerNumber> trackerNumbers = new ArrayList<>();
+    final List<Voter> mixedVoters = new ArrayList<>();
+    final List<CipherText> cipherTexts = new ArrayList<>();
+
+    for (int i = 0; i < numberOfVoters; i++) {
+      final TrackerNumber trackerNumber = new TrackerNumber(i + 1, BigInteger.valueOf(i + 1), new byte[10]);
+      trackerNumbers.add(trackerNumber);
+
+      final Voter voter = new Voter(i);
+      voter.setTrackerNumber(trackerNumber);
+      voter.setEncryptedVote(new byte[i + 1]);
+      encryptedVoters.add(voter);
+
+      final Voter mixedVoter = new Voter();
+      mixedVoter.setTrackerNumber(trackerNumber);
+      mixedVoter.setPlainTextVote("Yes");
+      mixedVoters.add(mixedVoter);
+
+      cipherTexts.add(new CipherText(BigInteger.valueOf(i + 5), BigInteger.valueOf(i + 6)));
+      cipherTexts.add(new CipherText(BigInteger.valueOf(i + 7), BigInteger.valueOf(i + 8)));
+    }
+
+    final VoteOption voteOption = new VoteOption("Yes");
+    voteOption.setOptionNumberInGroup(BigInteger.ONE);
+
+    mixVotesShellComponent.writeCSV(this.publishEncryptedVoters, Voter.class, encryptedVoters, JacksonViews.Vote.class);
+    mixVotesShellComponent.writeCSV(this.publishTrackerNumbers, TrackerNumber.class, trackerNumbers, JacksonViews.RestrictedPublic.class);
+    mixVotesShellComponent.writeCSV(this.publishVoteOptions, VoteOption.class, Collections.singletonList(voteOption), JacksonViews.Public.class);
+
+    // First shuffle the votes for each teller to create its decryption share.
+    final int teller = 1;
+    final File shuffleProofFile = Files.createTempFile(null, null).toFile();
+    Mockito.when(this.cryptographyHelper.shuffleVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull()))
+        .thenReturn(new ProofWrapper<>(cipherTexts, shuffleProofFile));
+
+    assertThat(this.cipherTexts.exists()).isFalse();
+    assertThat(this.mixProofs.exists()).isFalse();
+
+    mixVotesShellComponent.mixVotes(new MixVotesShellComponent.MixVotesOptions(Arrays.asList(this.publishParams, this.outputKeys), teller,
+        this.publishTrackerNumbers, this.publishVoteOptions, this.publishEncryptedVoters, this.cipherTexts, null,
+        Arrays.asList(this.publishMixedVoters, this.mixProofs)));
+
+    assertThat(this.cipherTexts.exists()).isTrue();
+    assertThat(this.mixProofs.exists()).isTrue();
+    assertThat(this.publishMixedVoters.exists()).isFalse();
+
+    final List<CipherText> shuffledCipherTexts = (List<CipherText>) mixVotesShellComponent.readCSV(this.cipherTexts, CipherText.class);
+    assertThat(shuffledCipherTexts.size()).isEqualTo(numberOfVoters * 2);
+
+    // Then combine the decryption shares.
+    final ObjectMapper mapper = new ObjectMapper();
+    final DecryptionShare share = new DecryptionShare();
+    share.setTeller(2);
+    mapper.writeValue(this.decryptionShare1, share);
+    share.setTeller(3);
+    mapper.writeValue(this.decryptionShare2, share);
+
+    Mockito.when(this.cryptographyHelper.decryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
+        Mockito.argThat(list -> list.size() == (numberOfVoters * 2)), Mockito.isNotNull())).thenReturn(mixedVoters);
+
+    mixVotesShellComponent.mixVotes(new MixVotesShellComponent.MixVotesOptions(Arrays.asList(this.publishParams, this.outputKeys), teller,
+        this.publishTrackerNumbers, this.publishVoteOptions, this.publishEncryptedVoters, this.cipherTexts,
+        Arrays.asList(this.decryptionShare1, this.decryptionShare2), Arrays.asList(this.publishMixedVoters, this.mixProofs)));
+
+    assertThat(this.publishMixedVoters.exists()).isTrue();
+
+    final List<Voter> publishMixedVoters = (List<Voter>) mixVotesShellComponent.readCSV(this.publishMixedVoters, Voter.class, JacksonViews.Mixed.class);
+    assertThat(publishMixedVoters.size()).isEqualTo(numberOfVoters);
+
+    for (int i = 0; i < numberOfVoters; i++) {
+      assertThat(publishMixedVoters.get(i).getTrackerNumber().getTrackerNumber()).isEqualTo(i + 1);
+      assertThat(publishMixedVoters.get(i).getPlainTextVote()).isEqualTo("Yes");
+    }
+
+    Mockito.verify(this.cryptographyHelper).shuffleVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).decryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
+        Mockito.isNotNull(), Mockito.argThat(shares -> (shares.size() == 2) && (shares.get(0).getTeller() == 2)));
+    Mockito.verify(this.cryptographyHelper, Mockito.never()).mixVotes(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.any(), Mockito.any(),
+        Mockito.any());
+
+    shuffleProofFile.delete();
+  }
+
+  @Test
+  public void testMixVotesDecryptionSharesMissingCipherTexts() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    final CreateElectionParametersShellComponent.CreateElectionParametersOptions createElectionParametersOptions =
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 3, 2, 1024, 160, 128);
+    createElectionParametersShellComponent.createElectionParameters(createElectionParametersOptions);
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    final MixVotesShellComponent mixVotesShellComponent = new MixVotesShellComponent(this.cryptographyHelper);
+    mixVotesShellComponent.writeCSV(this.outputKeys, KeyPair.class, new KeyPair(null, BigInteger.valueOf(456)));
+    mixVotesShellComponent.writeCSV(this.publishTrackerNumbers, TrackerNumber.class, new ArrayList<TrackerNumber>(), JacksonViews.RestrictedPublic.class);
+    mixVotesShellComponent.writeCSV(this.publishVoteOptions, VoteOption.class, new ArrayList<VoteOption>(), JacksonViews.Public.class);
+
+    this.exception.expect(RuntimeException.class);
+    mixVotesShellComponent.mixVotes(new MixVotesShellComponent.MixVotesOptions(Arrays.asList(this.publishParams, this.outputKeys), 1,
+        this.publishTrackerNumbers, this.publishVoteOptions, this.publishEncryptedVoters, null, Collections.singletonList(this.decryptionShare1),
+        Arrays.asList(this.publishMixedVoters, this.mixProofs)));
+  }
 }
@@ -0,0 +1,94 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.vote_anonymisation_and_decryption;
+
+import org.bouncycastle.crypto.params.DHParameters;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyException;
+import uk.co.pervasive_intelligence.vmv.cryptography.CryptographyHelper;
+import uk.co.pervasive_intelligence.vmv.cryptography.data.DHParametersWrapper;
+import uk.co.pervasive_intelligence.vmv.parameter_initialisation.CreateElectionParametersShellComponent;
+
+import java.io.File;
+import java.math.BigInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Precompute mixing tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class PrecomputeMixingShellComponentTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File publishParams = new File("public-election-params.csv");
+
+  @Mock
+  private CryptographyHelper cryptographyHelper;
+
+  @Before
+  @After
+  public void setUp() {
+    this.publishParams.delete();
+  }
+
+  @Test
+  public void testPrecomputeMixing() throws Exception {
+    final DHParametersWrapper parameters = this.createElectionParameters();
+
+    final PrecomputeMixingShellComponent component = new PrecomputeMixingShellComponent(this.cryptographyHelper);
+    assertThat(component).isNotNull();
+
+    component.precomputeMixing(new PrecomputeMixingShellComponent.PrecomputeMixingOptions(this.publishParams, 2, 100, 50));
+
+    Mockito.verify(this.cryptographyHelper).precomputeMixing(Mockito.argThat(value -> value.getNumberOfTellers() == parameters.getNumberOfTellers()),
+        Mockito.eq(2), Mockito.eq(100), Mockito.eq(50));
+  }
+
+  @Test
+  public void testPrecomputeMixingFailed() throws Exception {
+    this.createElectionParameters();
+    Mockito.doThrow(new CryptographyException("failed")).when(this.cryptographyHelper).precomputeMixing(Mockito.any(), Mockito.anyInt(), Mockito.anyInt(),
+        Mockito.anyInt());
+
+    final PrecomputeMixingShellComponent component = new PrecomputeMixingShellComponent(this.cryptographyHelper);
+
+    this.exception.expect(RuntimeException.class);
+    component.precomputeMixing(new PrecomputeMixingShellComponent.PrecomputeMixingOptions(this.publishParams, 1, 100, 50));
+  }
+
+  /**
+   * Creates the election parameters file.
+   *
+   * @return The created parameters.
+   */
+  private DHParametersWrapper createElectionParameters() throws Exception {
+    final DHParameters object = new DHParameters(BigInteger.TEN, BigInteger.TEN, BigInteger.ZERO, 1, 2, BigInteger.ONE, null);
+    final DHParametersWrapper parameters = new DHParametersWrapper(object);
+    Mockito.when(this.cryptographyHelper.createElectionParameters(Mockito.anyInt(), Mockito.anyInt(), Mockito.anyInt())).thenReturn(parameters);
+
+    final CreateElectionParametersShellComponent createElectionParametersShellComponent = new CreateElectionParametersShellComponent(this.cryptographyHelper);
+    createElectionParametersShellComponent.createElectionParameters(
+        new CreateElectionParametersShellComponent.CreateElectionParametersOptions(this.publishParams, "Election", true, 4, 3, 1024, 160, 128));
+
+    Mockito.<Class<?>>when(this.cryptographyHelper.getElectionParametersClass()).thenReturn(parameters.getClass());
+
+    return parameters;
+  }
+}
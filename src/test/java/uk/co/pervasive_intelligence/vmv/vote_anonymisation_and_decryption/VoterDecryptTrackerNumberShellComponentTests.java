@@ -29,8 +29,8 @@ import java.io.File;
 import java.math.BigInteger;
 import java.nio.file.Files;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -197,7 +197,7 @@ public class VoterDecryptTrackerNumberShellComponentTests extends BaseTestCase {
 
       return new ProofWrapper<>(voters, encryptProofFile);
     }).when(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
 
     final EncryptVotesShellComponent.EncryptVotesOptions encryptVotesOptions =
         new EncryptVotesShellComponent.EncryptVotesOptions(Arrays.asList(this.publishParams, this.publishKeys),
@@ -244,9 +244,12 @@ public class VoterDecryptTrackerNumberShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).mapVoteOptions(Mockito.isNotNull(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
     Mockito.verify(this.cryptographyHelper).mixVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.eq(teller), Mockito.isNotNull(), Mockito.isNotNull(),
         Mockito.isNotNull());
+    Mockito.verify(this.cryptographyHelper).decryptTrackerNumber(Mockito.notNull(), Mockito.eq(BigInteger.ONE), Mockito.eq(BigInteger.TEN),
+        Mockito.eq(BigInteger.TEN), Mockito.argThat(list -> (list.size() == 1) && list.get(0).getTrapdoorKeyPair().getPublicKey().equals(BigInteger.TEN)),
+        Mockito.notNull());
 
     encryptProofFile.delete();
     mixProofFile.delete();
@@ -177,7 +177,7 @@ public class EncryptVotesShellComponentTests extends BaseTestCase {
 
       return new ProofWrapper<>(voters, encryptProofFile);
     }).when(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
 
     Mockito.doAnswer(invocation -> {
       List<Voter> voters = invocation.getArgument(1);
@@ -254,7 +254,7 @@ public class EncryptVotesShellComponentTests extends BaseTestCase {
     Mockito.verify(this.cryptographyHelper).createVotersKeyPairs(Mockito.anyInt(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).mapVoteOptions(Mockito.isNotNull(), Mockito.isNotNull());
     Mockito.verify(this.cryptographyHelper).encryptVotes(Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(), Mockito.isNotNull(),
-        Mockito.any());
+        Mockito.any(), Mockito.anyBoolean());
 
     encryptProofFile.delete();
   }
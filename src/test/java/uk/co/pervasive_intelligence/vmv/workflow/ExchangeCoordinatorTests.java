@@ -0,0 +1,271 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Exchange coordinator tests. A local directory stands in for the SFTP server.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class ExchangeCoordinatorTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File exchange = new File("exchange-directory");
+
+  private final File working = new File("exchange-working");
+
+  private ExchangeCoordinator coordinator;
+
+  private static void delete(final File directory) {
+    final File[] files = directory.listFiles();
+
+    if (files != null) {
+      for (final File file : files) {
+        file.delete();
+      }
+    }
+
+    directory.delete();
+  }
+
+  private void upload(final String name, final String content) throws Exception {
+    final Path temporary = new File(this.exchange, name + ExchangeCoordinator.TEMPORARY_SUFFIX).toPath();
+    Files.write(temporary, Collections.singletonList(content), StandardCharsets.UTF_8);
+    Files.move(temporary, new File(this.exchange, name).toPath());
+  }
+
+  @Before
+  public void setUp() {
+    this.tearDown();
+    assertThat(this.exchange.mkdir()).isTrue();
+    assertThat(this.working.mkdir()).isTrue();
+
+    this.coordinator = new ExchangeCoordinator(this.exchange.toPath(), this.working.toPath(), 50, System.currentTimeMillis());
+  }
+
+  @After
+  public void tearDown() {
+    delete(this.exchange);
+    delete(this.working);
+  }
+
+  @Test
+  public void testAwait() throws Exception {
+    // One file is already there and the others arrive while waiting.
+    this.upload("teller-information-1.xml", "1");
+
+    final Thread tellers = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+        this.upload("teller-information-2.xml", "2");
+        Thread.sleep(100);
+        this.upload("teller-information-3.xml", "3");
+      }
+      catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    tellers.start();
+
+    final long start = System.currentTimeMillis();
+    final List<Path> files = this.coordinator.await(Arrays.asList("teller-information-1.xml", "teller-information-2.xml", "teller-information-3.xml"), 30000);
+    tellers.join();
+
+    // The files are picked up as they arrive rather than on the next rescan.
+    assertThat(System.currentTimeMillis() - start).isLessThan(ExchangeCoordinator.RESCAN_INTERVAL * 5);
+    assertThat(files).hasSize(3);
+
+    for (int i = 0; i < files.size(); i++) {
+      assertThat(files.get(i).getParent().toFile()).isEqualTo(this.working);
+      assertThat(Files.readAllLines(files.get(i), StandardCharsets.UTF_8)).containsExactly(String.valueOf(i + 1));
+    }
+
+    // No temporary files are left behind.
+    assertThat(this.working.list()).hasSize(3);
+  }
+
+  @Test
+  public void testAwaitDigest() throws Exception {
+    // Another teller publishes the file with its digest.
+    final File other = new File(this.working, "other");
+    assertThat(other.mkdir()).isTrue();
+    Files.write(new File(other, "public-commitments-2.csv").toPath(), Collections.singletonList("commitments"), StandardCharsets.UTF_8);
+
+    try {
+      new ExchangeCoordinator(this.exchange.toPath(), other.toPath(), 50, System.currentTimeMillis()).publish(
+          Collections.singletonList("public-commitments-2.csv"));
+    }
+    finally {
+      delete(other);
+    }
+
+    final List<Path> files = this.coordinator.await(Collections.singletonList("public-commitments-2.csv"), 30000);
+    assertThat(Files.readAllLines(files.get(0), StandardCharsets.UTF_8)).containsExactly("commitments");
+  }
+
+  @Test
+  public void testAwaitDigestMismatch() throws Exception {
+    // A file which does not match its digest, such as one still being replaced, is not picked up.
+    this.upload("public-commitments-2.csv", "commitments");
+    this.upload("public-commitments-2.csv" + ExchangeCoordinator.DIGEST_SUFFIX, String.format("%064x  public-commitments-2.csv", 1));
+
+    assertThatThrownBy(() -> this.coordinator.await(Collections.singletonList("public-commitments-2.csv"), 500)).isInstanceOf(VMVException.class)
+        .hasMessageContaining("public-commitments-2.csv");
+
+    // Nothing is left in the working directory.
+    assertThat(this.working.list()).isEmpty();
+  }
+
+  @Test
+  public void testAwaitRound() throws Exception {
+    final File other = new File(this.working, "other");
+    assertThat(other.mkdir()).isTrue();
+    final Path file = new File(other, "public-commitments-2.csv").toPath();
+
+    try {
+      // A file published for an earlier round is ignored, even though it was modified after the coordinator started.
+      Files.write(file, Collections.singletonList("old"), StandardCharsets.UTF_8);
+      new ExchangeCoordinator(this.exchange.toPath(), other.toPath(), 50, System.currentTimeMillis(), "round-1").publish(
+          Collections.singletonList("public-commitments-2.csv"));
+
+      final ExchangeCoordinator coordinator = new ExchangeCoordinator(this.exchange.toPath(), this.working.toPath(), 50, System.currentTimeMillis(), "round-2");
+      assertThatThrownBy(() -> coordinator.await(Collections.singletonList("public-commitments-2.csv"), 500)).isInstanceOf(VMVException.class);
+
+      // A file published for the round is picked up, even though its modification time is behind this computer's clock.
+      Files.write(file, Collections.singletonList("new"), StandardCharsets.UTF_8);
+      new ExchangeCoordinator(this.exchange.toPath(), other.toPath(), 50, System.currentTimeMillis(), "round-2").publish(
+          Collections.singletonList("public-commitments-2.csv"));
+      Files.setLastModifiedTime(new File(this.exchange, "public-commitments-2.csv").toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+      final List<Path> files = coordinator.await(Collections.singletonList("public-commitments-2.csv"), 30000);
+      assertThat(Files.readAllLines(files.get(0), StandardCharsets.UTF_8)).containsExactly("new");
+    }
+    finally {
+      delete(other);
+    }
+
+    // The round is recorded as a comment which sha256sum ignores.
+    assertThat(Files.readAllLines(new File(this.exchange, "public-commitments-2.csv" + ExchangeCoordinator.DIGEST_SUFFIX).toPath(), StandardCharsets.UTF_8))
+        .hasSize(2).startsWith(ExchangeCoordinator.ROUND_PREFIX + "round-2");
+  }
+
+  @Test
+  public void testAwaitSkew() throws Exception {
+    // A file whose modification time is behind this computer's clock is picked up within the allowed skew.
+    this.upload("teller-information-2.xml", "2");
+    Files.setLastModifiedTime(new File(this.exchange, "teller-information-2.xml").toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+    final ExchangeCoordinator coordinator = new ExchangeCoordinator(this.exchange.toPath(), this.working.toPath(), 50, System.currentTimeMillis() - 120000);
+    final List<Path> files = coordinator.await(Collections.singletonList("teller-information-2.xml"), 30000);
+    assertThat(Files.readAllLines(files.get(0), StandardCharsets.UTF_8)).containsExactly("2");
+  }
+
+  @Test
+  public void testAwaitStale() throws Exception {
+    // A file left by an earlier round is ignored until it is replaced.
+    this.upload("teller-information-2.xml", "old");
+    Files.setLastModifiedTime(new File(this.exchange, "teller-information-2.xml").toPath(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+
+    final Thread teller = new Thread(() -> {
+      try {
+        Thread.sleep(200);
+        Files.delete(new File(this.exchange, "teller-information-2.xml").toPath());
+        this.upload("teller-information-2.xml", "new");
+      }
+      catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    teller.start();
+
+    final List<Path> files = this.coordinator.await(Collections.singletonList("teller-information-2.xml"), 30000);
+    teller.join();
+
+    assertThat(Files.readAllLines(files.get(0), StandardCharsets.UTF_8)).containsExactly("new");
+  }
+
+  @Test
+  public void testAwaitTemporary() throws Exception {
+    // A file still being uploaded is not picked up.
+    Files.write(new File(this.exchange, "public-election-params.csv" + ExchangeCoordinator.TEMPORARY_SUFFIX).toPath(), Collections.singletonList("partial"),
+        StandardCharsets.UTF_8);
+
+    this.exception.expect(VMVException.class);
+    this.exception.expectMessage("public-election-params.csv");
+    this.coordinator.await(Collections.singletonList("public-election-params.csv"), 200);
+  }
+
+  @Test
+  public void testIsReady() throws Exception {
+    final Path file = new File(this.exchange, "file.csv").toPath();
+    assertThat(this.coordinator.isReady(file)).isFalse();
+
+    // Empty files are not ready.
+    Files.createFile(file);
+    assertThat(this.coordinator.isReady(file)).isFalse();
+
+    // A file which is no longer changing is ready.
+    Files.write(file, Collections.singletonList("content"), StandardCharsets.UTF_8);
+    assertThat(this.coordinator.isReady(file)).isTrue();
+
+    // A file left by an earlier round is not ready.
+    Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() - 60000));
+    assertThat(this.coordinator.isReady(file)).isFalse();
+  }
+
+  @Test
+  public void testPublish() throws Exception {
+    Files.write(new File(this.working, "public-commitments-1.csv").toPath(), Collections.singletonList("commitments"), StandardCharsets.UTF_8);
+
+    this.coordinator.publish(Collections.singletonList("public-commitments-1.csv"));
+
+    final Path published = new File(this.exchange, "public-commitments-1.csv").toPath();
+    assertThat(this.exchange.list()).containsExactlyInAnyOrder("public-commitments-1.csv", "public-commitments-1.csv" + ExchangeCoordinator.DIGEST_SUFFIX);
+    assertThat(Files.readAllLines(published, StandardCharsets.UTF_8)).containsExactly("commitments");
+
+    // The digest is in the same format as sha256sum.
+    assertThat(Files.readAllLines(new File(this.exchange, "public-commitments-1.csv" + ExchangeCoordinator.DIGEST_SUFFIX).toPath(),
+        StandardCharsets.UTF_8)).containsExactly(ExchangeCoordinator.digest(published) + "  public-commitments-1.csv");
+  }
+
+  @Test
+  public void testPublishMissing() throws Exception {
+    this.exception.expect(VMVException.class);
+    this.coordinator.publish(Collections.singletonList("missing.csv"));
+  }
+
+  @Test
+  public void testSameDirectory() throws Exception {
+    final ExchangeCoordinator shared = new ExchangeCoordinator(this.exchange.toPath(), this.exchange.toPath(), 0, System.currentTimeMillis());
+    this.upload("shared.csv", "shared");
+
+    assertThat(shared.await(Collections.singletonList("shared.csv"), 1000)).hasSize(1);
+    shared.publish(Collections.singletonList("shared.csv"));
+    assertThat(this.exchange.list()).containsExactlyInAnyOrder("shared.csv", "shared.csv" + ExchangeCoordinator.DIGEST_SUFFIX);
+  }
+}
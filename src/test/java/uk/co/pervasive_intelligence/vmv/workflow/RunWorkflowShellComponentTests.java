@@ -0,0 +1,121 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.MessageSource;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVCommandLine;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+import uk.co.pervasive_intelligence.vmv.metrics.Metrics;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Run workflow tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class RunWorkflowShellComponentTests extends BaseTestCase {
+
+  private static final List<String> FILES = Arrays.asList("workflow.yml", "workflow-params.csv", "workflow-keys.csv", "workflow-public-keys.csv",
+      "workflow-voters-keys.csv", "workflow-public-voters-keys.csv", "workflow-tracker-numbers.csv", "workflow-shuffled-tracker-numbers.csv",
+      "workflow-shuffle-proofs.zip", "workflow-commitments.csv", "workflow-public-commitments.csv", "workflow-commitments-proofs.csv",
+      "workflow-voters.csv", "workflow-decrypt-proofs.zip", "run-workflow-" + Metrics.DEFAULT_REPORT);
+
+  private static final int VOTERS = 10;
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final File workflow = new File("workflow.yml");
+
+  @Mock
+  private ApplicationContext context;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Before
+  @After
+  public void setUp() {
+    for (final String file : FILES) {
+      new File(file).delete();
+    }
+  }
+
+  @Test
+  public void testRunWorkflow() throws Exception {
+    Files.write(this.workflow.toPath(), Arrays.asList(
+        "name: \"Workflow Election\"",
+        "threads: 2",
+        "steps:",
+        "  parameters:",
+        "    command: \"create-election-parameters\"",
+        "    options: \"--publish workflow-params.csv --name 'Workflow Election' --no-tellers --dsa-l 1024 --dsa-n 160\"",
+        "  election-keys:",
+        "    command: \"create-election-keys\"",
+        "    options: \"--election workflow-params.csv --output workflow-keys.csv --publish workflow-public-keys.csv\"",
+        "    after: [\"parameters\"]",
+        "  voters-keys:",
+        "    command: \"create-voters-keys\"",
+        "    options: \"--election workflow-params.csv --number-of-voters " + VOTERS + " --output workflow-voters-keys.csv --publish workflow-public-voters-keys.csv\"",
+        "    after: [\"parameters\"]",
+        "  tracker-numbers:",
+        "    command: \"create-tracker-numbers\"",
+        "    options: \"--election workflow-params.csv workflow-public-keys.csv --number-of-voters " + VOTERS + " --publish workflow-tracker-numbers.csv\"",
+        "    after: [\"election-keys\"]",
+        "  shuffle-tracker-numbers:",
+        "    command: \"shuffle-tracker-numbers\"",
+        "    options: \"--election workflow-params.csv workflow-public-keys.csv --tracker-numbers workflow-tracker-numbers.csv",
+        "      --publish workflow-shuffled-tracker-numbers.csv workflow-shuffle-proofs.zip\"",
+        "    after: [\"tracker-numbers\"]",
+        "  commitments:",
+        "    command: \"create-commitments\"",
+        "    options: \"--election workflow-params.csv workflow-public-keys.csv --voters workflow-public-voters-keys.csv",
+        "      --tracker-numbers workflow-shuffled-tracker-numbers.csv --output workflow-commitments.csv",
+        "      --publish workflow-public-commitments.csv workflow-commitments-proofs.csv\"",
+        "    after: [\"voters-keys\", \"shuffle-tracker-numbers\"]",
+        "  decrypt-commitments:",
+        "    command: \"decrypt-commitments\"",
+        "    options: \"--election workflow-params.csv workflow-keys.csv --voters workflow-public-voters-keys.csv",
+        "      --tracker-numbers workflow-shuffled-tracker-numbers.csv --commitments workflow-public-commitments.csv",
+        "      --publish workflow-voters.csv workflow-decrypt-proofs.zip\"",
+        "    after: [\"commitments\"]"), StandardCharsets.UTF_8);
+
+    // Run headless so that only the components needed by the workflow are created.
+    assertThat(new VMVCommandLine().run("run-workflow", "--workflow", this.workflow.getPath())).isEqualTo(0);
+    assertThat(Files.readAllLines(new File("workflow-voters.csv").toPath())).hasSize(VOTERS + 1);
+
+    // The metrics of every step are reported once, next to the workflow file.
+    assertThat(new String(Files.readAllBytes(new File("run-workflow-" + Metrics.DEFAULT_REPORT).toPath()), StandardCharsets.UTF_8)).contains("\"create-commitments\"",
+        "\"self-check\"", "\"decrypt-commitments\"", "\"csv\"");
+  }
+
+  @Test
+  public void testRunWorkflowMissing() {
+    final RunWorkflowShellComponent component = new RunWorkflowShellComponent(this.context, new JCommanderParameterResolver(), this.messageSource);
+    assertThat(component).isNotNull();
+
+    this.exception.expect(RuntimeException.class);
+    component.runWorkflow(new RunWorkflowShellComponent.RunWorkflowOptions(this.workflow, 0));
+  }
+}
@@ -0,0 +1,296 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import com.beust.jcommander.Parameter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationContext;
+import org.springframework.shell.standard.ShellOption;
+import org.springframework.test.context.junit4.SpringRunner;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+import uk.co.pervasive_intelligence.vmv.VMVException;
+import uk.co.pervasive_intelligence.vmv.configuration.JCommanderParameterResolver;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Workflow runner tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+@RunWith(SpringRunner.class)
+public class WorkflowRunnerTests extends BaseTestCase {
+
+  @Rule
+  public final ExpectedException exception = ExpectedException.none();
+
+  private final TestComponent component = new TestComponent();
+
+  private final File exchange = new File("workflow-exchange");
+
+  private final File input = new File("workflow-input.csv");
+
+  private final File output = new File("workflow-output.csv");
+
+  private final File workflowFile = new File("workflow.yml");
+
+  @Mock
+  private ApplicationContext context;
+
+  private WorkflowRunner runner;
+
+  private static Workflow createWorkflow(final WorkflowStep... steps) {
+    final Map<String, WorkflowStep> map = new LinkedHashMap<>();
+
+    for (int i = 0; i < steps.length; i++) {
+      map.put("step" + (i + 1), steps[i]);
+    }
+
+    final Workflow workflow = new Workflow();
+    workflow.setSteps(map);
+
+    return workflow;
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    this.tearDown();
+
+    final Map<String, Method> commands = new HashMap<>();
+    commands.put("record", TestComponent.class.getMethod("record", TestOptions.class));
+    commands.put("fail", TestComponent.class.getMethod("fail", TestOptions.class));
+
+    Mockito.when(this.context.getBeanNamesForType(TestComponent.class)).thenReturn(new String[] {"testComponent"});
+    Mockito.when(this.context.getBean(TestComponent.class)).thenReturn(this.component);
+
+    this.runner = new WorkflowRunner(this.context, new JCommanderParameterResolver(), commands);
+  }
+
+  @After
+  public void tearDown() {
+    this.workflowFile.delete();
+    this.input.delete();
+    this.output.delete();
+    new File(this.exchange, this.input.getName()).delete();
+    new File(this.exchange, this.output.getName()).delete();
+    new File(this.exchange, this.output.getName() + ExchangeCoordinator.DIGEST_SUFFIX).delete();
+    this.exchange.delete();
+  }
+
+  @Test
+  public void testOrder() throws Exception {
+    final Workflow workflow = createWorkflow(new WorkflowStep("record", null, Arrays.asList("step3", "step2")),
+        new WorkflowStep("record", null, Collections.singletonList("step3")), new WorkflowStep("record", null, null),
+        new WorkflowStep("record", null, null));
+
+    assertThat(this.runner.order(workflow)).containsExactly("step3", "step4", "step2", "step1");
+  }
+
+  @Test
+  public void testOrderCycle() throws Exception {
+    final Workflow workflow = createWorkflow(new WorkflowStep("record", null, Collections.singletonList("step2")),
+        new WorkflowStep("record", null, Collections.singletonList("step1")));
+
+    this.exception.expect(VMVException.class);
+    this.exception.expectMessage("cycle");
+    this.runner.order(workflow);
+  }
+
+  @Test
+  public void testOrderEmpty() throws Exception {
+    this.exception.expect(VMVException.class);
+    this.runner.order(new Workflow());
+  }
+
+  @Test
+  public void testOrderNoExchange() throws Exception {
+    final WorkflowStep step = new WorkflowStep("record", null, null);
+    step.setInputs(Collections.singletonList(this.input.getName()));
+
+    this.exception.expect(VMVException.class);
+    this.exception.expectMessage("exchange");
+    this.runner.order(createWorkflow(step));
+  }
+
+  @Test
+  public void testOrderUnknownCommand() throws Exception {
+    this.exception.expect(VMVException.class);
+    this.exception.expectMessage("step1");
+    this.runner.order(createWorkflow(new WorkflowStep("unknown", null, null)));
+  }
+
+  @Test
+  public void testOrderUnknownStep() throws Exception {
+    this.exception.expect(VMVException.class);
+    this.exception.expectMessage("step3");
+    this.runner.order(createWorkflow(new WorkflowStep("record", null, null), new WorkflowStep("record", null, Collections.singletonList("step3"))));
+  }
+
+  @Test
+  public void testRead() throws Exception {
+    Files.write(this.workflowFile.toPath(), Arrays.asList("name: \"Test\"", "threads: 2", "steps:", "  first:", "    command: \"record\"",
+        "    options: \"--name 'first step'\"", "  second:", "    command: \"record\"", "    after: [\"first\"]"), StandardCharsets.UTF_8);
+
+    final Workflow workflow = WorkflowRunner.read(this.workflowFile);
+    assertThat(workflow.getName()).isEqualTo("Test");
+    assertThat(workflow.getThreads()).isEqualTo(2);
+    assertThat(workflow.getSteps().keySet()).containsExactly("first", "second");
+    assertThat(workflow.getSteps().get("first").getOptions()).isEqualTo("--name 'first step'");
+    assertThat(workflow.getSteps().get("first").getAfter()).isEmpty();
+    assertThat(workflow.getSteps().get("second").getAfter()).containsExactly("first");
+  }
+
+  @Test
+  public void testReadMissing() throws Exception {
+    this.exception.expect(VMVException.class);
+    WorkflowRunner.read(this.workflowFile);
+  }
+
+  @Test
+  public void testReadUnsafe() throws Exception {
+    Files.write(this.workflowFile.toPath(), Arrays.asList("name: !!java.io.File [\"unsafe\"]", "steps:", "  first:", "    command: \"record\""),
+        StandardCharsets.UTF_8);
+
+    // Arbitrary Java types must not be constructed from the workflow file.
+    this.exception.expect(VMVException.class);
+    WorkflowRunner.read(this.workflowFile);
+  }
+
+  @Test
+  public void testRun() throws Exception {
+    final Workflow workflow = createWorkflow(new WorkflowStep("record", "--name last", Arrays.asList("step2", "step3")),
+        new WorkflowStep("record", "--name first --wait", null), new WorkflowStep("record", "--name second --wait", null));
+    workflow.setThreads(2);
+
+    // The independent steps must be run at the same time to pass the barrier.
+    final Map<String, Long> durations = this.runner.run(workflow);
+    assertThat(durations.keySet()).containsExactly("step2", "step3", "step1");
+    assertThat(this.component.names).hasSize(3);
+    assertThat(this.component.names.get(2)).isEqualTo("last");
+
+    // Shell progress is suppressed while each step runs, but not afterwards.
+    assertThat(this.component.steps).containsExactly(true, true, true);
+    assertThat(WorkflowRunner.isStep()).isFalse();
+  }
+
+  @Test
+  public void testRunExchange() throws Exception {
+    assertThat(this.exchange.mkdir()).isTrue();
+
+    final WorkflowStep first = new WorkflowStep("record", "--name first", null);
+    first.setInputs(Collections.singletonList(this.input.getName()));
+    final WorkflowStep second = new WorkflowStep("record", "--name second --write " + this.output.getName(), Collections.singletonList("step1"));
+    second.setOutputs(Collections.singletonList(this.output.getName()));
+
+    final Workflow workflow = createWorkflow(first, second);
+    workflow.setExchange(this.exchange.getPath());
+    workflow.setTimeout(30);
+
+    // Another teller uploads the input file after the workflow has started, writing it under a temporary name first.
+    final Thread teller = new Thread(() -> {
+      try {
+        Thread.sleep(200);
+        final File temporary = new File(this.exchange, this.input.getName() + ExchangeCoordinator.TEMPORARY_SUFFIX);
+        Files.write(temporary.toPath(), Collections.singletonList("input"), StandardCharsets.UTF_8);
+        Files.move(temporary.toPath(), new File(this.exchange, this.input.getName()).toPath());
+      }
+      catch (final Exception e) {
+        throw new RuntimeException(e);
+      }
+    });
+    teller.start();
+
+    this.runner.run(workflow);
+    teller.join();
+
+    // The input is picked up before the first step runs and the output is published after the second.
+    assertThat(this.component.names).containsExactly("first", "second");
+    assertThat(Files.readAllLines(this.input.toPath(), StandardCharsets.UTF_8)).containsExactly("input");
+    assertThat(new File(this.exchange, this.output.getName())).exists();
+    assertThat(new File(this.exchange, this.output.getName() + ExchangeCoordinator.DIGEST_SUFFIX)).exists();
+  }
+
+  @Test
+  public void testRunFailure() throws Exception {
+    final Workflow workflow = createWorkflow(new WorkflowStep("fail", "--name failed", null),
+        new WorkflowStep("record", "--name skipped", Collections.singletonList("step1")), new WorkflowStep("record", "--name independent", null));
+
+    assertThatThrownBy(() -> this.runner.run(workflow)).isInstanceOf(VMVException.class).hasMessageContaining("step1");
+
+    // Steps after the failure are not run, but independent steps are.
+    assertThat(this.component.names).containsExactly("independent");
+  }
+
+  @Test
+  public void testRunInvalidOptions() throws Exception {
+    final Workflow workflow = createWorkflow(new WorkflowStep("record", "--name first", null), new WorkflowStep("record", "--unknown", null));
+
+    assertThatThrownBy(() -> this.runner.run(workflow)).isInstanceOf(VMVException.class).hasMessageContaining("step2");
+
+    // No steps are run if any options are invalid.
+    assertThat(this.component.names).isEmpty();
+  }
+
+  /**
+   * Shell component implementation.
+   */
+  public static class TestComponent {
+
+    private final CyclicBarrier barrier = new CyclicBarrier(2);
+
+    private final List<String> names = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<Boolean> steps = Collections.synchronizedList(new ArrayList<>());
+
+    public void fail(@ShellOption(optOut = true) final TestOptions options) {
+      throw new RuntimeException("Failed " + options.name);
+    }
+
+    public void record(@ShellOption(optOut = true) final TestOptions options) throws Exception {
+      if (options.wait) {
+        this.barrier.await(10, TimeUnit.SECONDS);
+      }
+
+      if (options.write != null) {
+        Files.write(new File(options.write).toPath(), Collections.singletonList(options.name), StandardCharsets.UTF_8);
+      }
+
+      this.names.add(options.name);
+      this.steps.add(WorkflowRunner.isStep());
+    }
+  }
+
+  /**
+   * Options implementation.
+   */
+  public static class TestOptions {
+
+    @Parameter(names = "--name")
+    String name;
+
+    @Parameter(names = "--wait")
+    boolean wait = false;
+
+    @Parameter(names = "--write")
+    String write;
+  }
+}
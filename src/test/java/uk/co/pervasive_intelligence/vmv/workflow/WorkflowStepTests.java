@@ -0,0 +1,51 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Workflow step tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class WorkflowStepTests extends BaseTestCase {
+
+  @Test
+  public void testWorkflowStep() {
+    final WorkflowStep step = new WorkflowStep("create-commitments", "--output commitments.csv", Arrays.asList("voters-keys", "shuffle"));
+    assertThat(step.getCommand()).isEqualTo("create-commitments");
+    assertThat(step.getOptions()).isEqualTo("--output commitments.csv");
+    assertThat(step.getAfter()).containsExactly("voters-keys", "shuffle");
+
+    final WorkflowStep empty = new WorkflowStep();
+    assertThat(empty.getAfter()).isEmpty();
+    assertThat(empty.getInputs()).isEmpty();
+    assertThat(empty.getOutputs()).isEmpty();
+
+    empty.setCommand("decrypt-commitments");
+    empty.setOptions("--teller 1");
+    empty.setAfter(null);
+    empty.setInputs(Arrays.asList("public-commitments-1.csv", "public-commitments-2.csv"));
+    empty.setOutputs(Collections.singletonList("public-voters-1.csv"));
+    assertThat(empty.getCommand()).isEqualTo("decrypt-commitments");
+    assertThat(empty.getOptions()).isEqualTo("--teller 1");
+    assertThat(empty.getAfter()).isEmpty();
+    assertThat(empty.getInputs()).containsExactly("public-commitments-1.csv", "public-commitments-2.csv");
+    assertThat(empty.getOutputs()).containsExactly("public-voters-1.csv");
+
+    empty.setInputs(null);
+    empty.setOutputs(null);
+    assertThat(empty.getInputs()).isEmpty();
+    assertThat(empty.getOutputs()).isEmpty();
+  }
+}
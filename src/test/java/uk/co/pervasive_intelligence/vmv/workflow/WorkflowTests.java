@@ -0,0 +1,46 @@
+/*
+ * Trusted and Transparent Voting Systems: Verify My Vote Demonstrator
+ *
+ * (c) University of Surrey 2019
+ */
+package uk.co.pervasive_intelligence.vmv.workflow;
+
+import org.junit.Test;
+import uk.co.pervasive_intelligence.vmv.BaseTestCase;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Workflow tests.
+ *
+ * @author Matthew Casey, Pervasive Intelligence Ltd
+ */
+public class WorkflowTests extends BaseTestCase {
+
+  @Test
+  public void testWorkflow() {
+    final Workflow workflow = new Workflow();
+    assertThat(workflow.getSteps()).isEmpty();
+    assertThat(workflow.getThreads()).isEqualTo(0);
+    assertThat(workflow.getExchange()).isNull();
+    assertThat(workflow.getTimeout()).isEqualTo(0);
+
+    final WorkflowStep step = new WorkflowStep("create-election-keys", "--teller 1", Collections.singletonList("parameters"));
+    workflow.setName("name");
+    workflow.setSteps(Collections.singletonMap("keys", step));
+    workflow.setThreads(4);
+    workflow.setExchange("exchange");
+    workflow.setTimeout(60);
+
+    assertThat(workflow.getName()).isEqualTo("name");
+    assertThat(workflow.getSteps()).containsEntry("keys", step);
+    assertThat(workflow.getThreads()).isEqualTo(4);
+    assertThat(workflow.getExchange()).isEqualTo("exchange");
+    assertThat(workflow.getTimeout()).isEqualTo(60);
+
+    workflow.setSteps(null);
+    assertThat(workflow.getSteps()).isEmpty();
+  }
+}